@@ -0,0 +1,97 @@
+package com.yingzhou.data.progress;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 进度树的追加、出证明、校验证明，以及一批存档的并行核对
+ * 树预先追加 leaves 项；verifyAll 每次核对 1000 份 200 项的存档。
+ *
+ * 运行: mvn -Pjmh verify -Djmh.include=ProgressTreeBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProgressTreeBenchmark {
+
+    private static final int PROFILES = 1000;
+    private static final int ITEMS = 200;
+
+    @Param({"100000"})
+    private int leaves;
+
+    private ProgressTree tree;
+    private ProgressProof proof;
+    private ProgressItem item;
+    private byte[] root;
+    private final List<List<ProgressItem>> logs = new ArrayList<>();
+    private final List<ProgressAnchor> anchors = new ArrayList<>();
+    private ProgressVerifier verifier;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        tree = new ProgressTree();
+        for (int i = 0; i < leaves; i++) {
+            tree.append(ProgressItem.fragment("f" + i));
+        }
+        item = ProgressItem.fragment("f" + (leaves / 3));
+        proof = tree.proof(leaves / 3);
+        root = tree.root();
+        for (int p = 0; p < PROFILES; p++) {
+            List<ProgressItem> log = new ArrayList<>(ITEMS);
+            for (int i = 0; i < ITEMS; i++) {
+                log.add(ProgressItem.miniGame("p" + p + "-" + i));
+            }
+            logs.add(log);
+            anchors.add(ProgressAnchor.local(ProgressTree.build(log, false)));
+        }
+        verifier = new ProgressVerifier();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        verifier.close();
+    }
+
+    /**
+     * 追加一项：叶子哈希加上平均一个祖先
+     */
+    @Benchmark
+    public int append() {
+        return tree.append(ProgressItem.epoch("e" + next++));
+    }
+
+    @Benchmark
+    public ProgressProof proof() {
+        return tree.proof(next++ % leaves, leaves);
+    }
+
+    @Benchmark
+    public boolean verifyProof() {
+        return proof.verify(item, root);
+    }
+
+    @Benchmark
+    public String[] verifyAll() {
+        return verifier.verifyAll(logs, anchors);
+    }
+}
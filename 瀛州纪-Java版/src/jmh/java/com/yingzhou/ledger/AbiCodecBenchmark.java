@@ -0,0 +1,148 @@
+package com.yingzhou.ledger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 池化惰性编解码（{@link AbiEncoder} / {@link AbiView}）与逐字段整体解码（{@link AbiCodec}）的对比
+ * 两边都从 JSON-RPC 返回的十六进制串开始，读取界面实际用到的字段。
+ *
+ * 运行: mvn -Pjmh verify（或 -Djmh.include=AbiCodecBenchmark.history 只跑一组）
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AbiCodecBenchmark {
+
+    private static final String PLAYER = "0xf39fd6e51aad88f6f4ce6ab8827279cfffb92266";
+    private static final int HISTORY_SIZE = 500;
+
+    private AbiFunction getNpc;
+    private AbiFunction getFragment;
+    private AbiFunction getHistory;
+    private AbiFunction hasFragment;
+    private String npcHex;
+    private String fragmentHex;
+    private String historyHex;
+    private final byte[] playerBytes = Hex.decode(PLAYER);
+    private final byte[] addressScratch = new byte[20];
+    private long fragmentId;
+
+    @Setup
+    public void setup() {
+        AbiRegistry abis = AbiRegistry.getDefault();
+        getNpc = abis.contract("AINPC").function("getNPC");
+        getFragment = abis.contract("MemoryFragment").function("getFragment");
+        getHistory = abis.contract("AINPC_Extended").function("getDialogueHistory");
+        hasFragment = abis.contract("EpochManager").function("hasFragment");
+
+        byte[] npcId = Hex.decode("0x68697374617269616e0000000000000000000000000000000000000000000000");
+        npcHex = Hex.encode(AbiCodec.encode(getNpc.getOutputs(), (Object) new Object[]{
+                npcId, 0, "史官·观测者", BigInteger.valueOf(1_700_000_000L), 4821, 3, true}));
+        fragmentHex = Hex.encode(AbiCodec.encode(getFragment.getOutputs(), (Object) new Object[]{
+                7, "创世之光", "在第一个区块诞生之前，瀛州只有一串等待被验证的哈希……".repeat(4), "创世", 0, false}));
+
+        List<Object> history = new ArrayList<>(HISTORY_SIZE);
+        for (int i = 0; i < HISTORY_SIZE; i++) {
+            byte[] question = new byte[32];
+            byte[] response = new byte[32];
+            Arrays.fill(question, (byte) i);
+            Arrays.fill(response, (byte) (i * 7));
+            String inquirer = i % 3 == 0 ? PLAYER : String.format("0x%040x", i);
+            history.add(new Object[]{1_700_000_000L + i * 60L, inquirer, question, response, i % 100, i % 5});
+        }
+        historyHex = Hex.encode(AbiCodec.encode(getHistory.getOutputs(), (Object) history));
+    }
+
+    @Benchmark
+    public long npcNaive() {
+        Object[] npc = (Object[]) getNpc.decodeResult(Hex.decode(npcHex))[0];
+        return ((BigInteger) npc[4]).longValue() + (((Boolean) npc[6]) ? 1 : 0);
+    }
+
+    @Benchmark
+    public long npcLazy() {
+        try (AbiResult result = AbiResult.decode(npcHex, getNpc.getOutputs())) {
+            AbiView npc = result.view().getTuple(0);
+            return npc.getLong(4) + (npc.getBoolean(6) ? 1 : 0);
+        }
+    }
+
+    @Benchmark
+    public int fragmentNaive() {
+        Object[] fragment = (Object[]) getFragment.decodeResult(Hex.decode(fragmentHex))[0];
+        return ((String) fragment[1]).length() + ((BigInteger) fragment[4]).intValue();
+    }
+
+    @Benchmark
+    public int fragmentLazy() {
+        try (AbiResult result = AbiResult.decode(fragmentHex, getFragment.getOutputs())) {
+            AbiView fragment = result.view().getTuple(0);
+            return fragment.getString(1).length() + fragment.getInt(4);
+        }
+    }
+
+    /**
+     * 对话历史：统计本玩家的提问次数和平均熵值
+     */
+    @Benchmark
+    public long historyNaive() {
+        @SuppressWarnings("unchecked")
+        List<Object> records = (List<Object>) getHistory.decodeResult(Hex.decode(historyHex))[0];
+        long mine = 0;
+        long entropy = 0;
+        for (Object item : records) {
+            Object[] record = (Object[]) item;
+            if (PLAYER.equals(record[1])) {
+                mine++;
+            }
+            entropy += ((BigInteger) record[4]).longValue();
+        }
+        return mine * 1_000_000 + entropy;
+    }
+
+    @Benchmark
+    public long historyLazy() {
+        try (AbiResult result = AbiResult.decode(historyHex, getHistory.getOutputs())) {
+            AbiView records = result.view().getArray(0);
+            long mine = 0;
+            long entropy = 0;
+            for (int i = 0; i < records.size(); i++) {
+                AbiView record = records.getTuple(i);
+                record.copyAddress(1, addressScratch, 0);
+                if (Arrays.equals(addressScratch, playerBytes)) {
+                    mine++;
+                }
+                entropy += record.getLong(4);
+            }
+            return mine * 1_000_000 + entropy;
+        }
+    }
+
+    @Benchmark
+    public String encodeNaive() {
+        return Hex.encode(hasFragment.encodeCall(PLAYER, BigInteger.valueOf(++fragmentId & 31)));
+    }
+
+    @Benchmark
+    public String encodePooled() {
+        return AbiEncoder.encodeCallHex(hasFragment, PLAYER, ++fragmentId & 31);
+    }
+}
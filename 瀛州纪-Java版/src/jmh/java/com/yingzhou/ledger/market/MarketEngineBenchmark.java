@@ -0,0 +1,134 @@
+package com.yingzhou.ledger.market;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 市场引擎在百万级挂单下的吞吐（操作/秒）
+ * 每轮测量前预先挂出 listings 个卖单，分布在 64 种资源上；各基准挂一单的同时消耗一单，簿的规模保持不变。
+ *
+ * 运行: mvn -Pjmh verify -Djmh.include=MarketEngineBenchmark（-Djmh.args="-p listings=100000" 换规模）
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class MarketEngineBenchmark {
+
+    private static final String TOKEN = "0x5fbdb2315678afecb367f032d93f642f64180aa3";
+    private static final int TOKEN_IDS = 64;
+    private static final int BATCH = 256;
+    private static final String[] TRADERS = new String[16];
+
+    static {
+        for (int i = 0; i < TRADERS.length; i++) {
+            TRADERS[i] = String.format("0x%040x", 0x1000 + i);
+        }
+    }
+
+    @Param({"1000000"})
+    private int listings;
+
+    private MarketEngine engine;
+    private final MarketBatch lists = new MarketBatch(BATCH);
+    private final MarketBatch buys = new MarketBatch(BATCH);
+    private long seed = 42;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        engine = new MarketEngine(MarketCustody.UNCHECKED);
+        MarketBatch batch = new MarketBatch(4096);
+        for (int i = 0; i < listings; i++) {
+            batch.list(trader(), TOKEN, tokenId(), amount(), price());
+            if (batch.size() == 4096 || i == listings - 1) {
+                engine.settle(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * 挂一单，再按最优价买入同样数量（可能跨多个挂单）
+     */
+    @Benchmark
+    public long listAndSweep() {
+        long tokenId = tokenId();
+        long amount = amount();
+        engine.list(trader(), TOKEN, tokenId, amount, price());
+        return engine.sweep(trader(), TOKEN, tokenId, amount, Long.MAX_VALUE);
+    }
+
+    /**
+     * 挂一单再撤单，撤下的条目在堆里惰性删除
+     */
+    @Benchmark
+    public long listAndCancel() {
+        String seller = trader();
+        long id = engine.list(seller, TOKEN, tokenId(), amount(), price());
+        engine.cancel(seller, id);
+        return id;
+    }
+
+    /**
+     * 一批挂单，再一批按挂单号整单买入，每批一次加锁
+     */
+    @Benchmark
+    @OperationsPerInvocation(BATCH * 2)
+    public int settleBatch() {
+        lists.clear();
+        for (int i = 0; i < BATCH; i++) {
+            lists.list(trader(), TOKEN, tokenId(), amount(), price());
+        }
+        engine.settle(lists);
+        buys.clear();
+        for (int i = 0; i < BATCH; i++) {
+            long id = lists.getResult(i);
+            MarketListing listing = engine.getListing(id);
+            buys.buy(trader(), id, listing.getAmount(), listing.getAmount() * listing.getPrice());
+        }
+        return engine.settle(buys);
+    }
+
+    @Benchmark
+    public long bestPrice() {
+        return engine.bestPrice(TOKEN, tokenId());
+    }
+
+    private String trader() {
+        return TRADERS[(int) (next() & (TRADERS.length - 1))];
+    }
+
+    private long tokenId() {
+        return next() & (TOKEN_IDS - 1);
+    }
+
+    private long amount() {
+        return 1 + (next() & 7);
+    }
+
+    private long price() {
+        return 1_000_000_000L + (next() & 0xFFFFF) * 1_000_000L;
+    }
+
+    private long next() {
+        seed ^= seed << 13;
+        seed ^= seed >>> 7;
+        seed ^= seed << 17;
+        return seed >>> 1;
+    }
+}
@@ -1,6 +1,9 @@
 package com.yingzhou;
 
+import com.yingzhou.game.GameLauncher;
 import com.yingzhou.launcher.VersionSelector;
+import com.yingzhou.perf.GameFlightRecorder;
+import com.yingzhou.perf.StartupTimeline;
 import com.yingzhou.util.Logger;
 import javafx.application.Application;
 import javafx.stage.Stage;
@@ -13,9 +16,13 @@ import javafx.stage.Stage;
  */
 public class Main extends Application {
 
+    /** -Dyingzhou.direct=true 时跳过版本选择界面 */
+    public static final String DIRECT_LAUNCH_PROPERTY = "yingzhou.direct";
+
     @Override
     public void start(Stage primaryStage) {
         try {
+            StartupTimeline.mark("JavaFX就绪");
             Logger.info("=== 瀛州纪 Java版 v1.0 ===");
             Logger.info("系统信息:");
             Logger.info("  Java版本: " + System.getProperty("java.version"));
@@ -23,9 +30,14 @@ public class Main extends Application {
             Logger.info("  操作系统: " + System.getProperty("os.name"));
             Logger.info("  系统架构: " + System.getProperty("os.arch"));
             
-            // 显示版本选择界面
-            VersionSelector versionSelector = new VersionSelector();
-            versionSelector.show(primaryStage);
+            if (Boolean.getBoolean(DIRECT_LAUNCH_PROPERTY)) {
+                // 展台模式：跳过版本选择，直接进入Java版
+                new GameLauncher().start(primaryStage);
+            } else {
+                // 显示版本选择界面
+                VersionSelector versionSelector = new VersionSelector();
+                versionSelector.show(primaryStage);
+            }
             
         } catch (Exception e) {
             Logger.error("应用启动失败", e);
@@ -34,12 +46,14 @@ public class Main extends Application {
     }
 
     public static void main(String[] args) {
+        GameFlightRecorder.startIfRequested();
         try {
             launch(args);
         } catch (Exception e) {
             Logger.error("应用运行出错", e);
             e.printStackTrace();
         } finally {
+            GameFlightRecorder.stop();
             Logger.close();
         }
     }
@@ -0,0 +1,168 @@
+package com.yingzhou.data;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 对话历史磁盘存储
+ * 只追加的日志文件 + 定长偏移索引文件，按序号随机读取任意一段历史
+ *
+ * 内存中只保存条数和文件末尾位置，与对话长度无关；
+ * 文件建在临时目录，关闭或进程退出时删除。
+ */
+public class DialogueHistoryStore implements Closeable {
+
+    // 记录头：时间戳(8) + 角色(1) + 内容长度(4)
+    private static final int HEADER_SIZE = 8 + 1 + 4;
+    private static final int INDEX_ENTRY_SIZE = 8;
+
+    private Path dataPath;
+    private Path indexPath;
+    private FileChannel dataChannel;
+    private FileChannel indexChannel;
+    private long size;
+    private long dataEnd;
+
+    /**
+     * 一条历史记录
+     */
+    public static class Entry {
+        public final boolean fromPlayer;
+        public final String content;
+        public final long timestamp;
+
+        public Entry(boolean fromPlayer, String content, long timestamp) {
+            this.fromPlayer = fromPlayer;
+            this.content = content;
+            this.timestamp = timestamp;
+        }
+    }
+
+    private void open() throws IOException {
+        if (dataChannel != null) {
+            return;
+        }
+        dataPath = Files.createTempFile("yingzhou-dialogue", ".log");
+        indexPath = Files.createTempFile("yingzhou-dialogue", ".idx");
+        dataPath.toFile().deleteOnExit();
+        indexPath.toFile().deleteOnExit();
+        dataChannel = FileChannel.open(dataPath, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        indexChannel = FileChannel.open(indexPath, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * 追加一条记录
+     *
+     * @return 该记录的序号
+     */
+    public synchronized long append(boolean fromPlayer, String content, long timestamp) throws IOException {
+        open();
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + bytes.length);
+        record.putLong(timestamp).put((byte) (fromPlayer ? 1 : 0)).putInt(bytes.length).put(bytes).flip();
+        writeFully(dataChannel, record, dataEnd);
+
+        ByteBuffer indexEntry = ByteBuffer.allocate(INDEX_ENTRY_SIZE);
+        indexEntry.putLong(dataEnd).flip();
+        writeFully(indexChannel, indexEntry, size * INDEX_ENTRY_SIZE);
+
+        dataEnd += record.capacity();
+        return size++;
+    }
+
+    /**
+     * 读取 [from, from + count) 范围内的记录，超出范围的部分被截掉
+     */
+    public synchronized List<Entry> read(long from, int count) throws IOException {
+        long end = Math.min(size, from + count);
+        if (from < 0 || from >= end) {
+            return new ArrayList<>();
+        }
+        int n = (int) (end - from);
+
+        ByteBuffer offsets = ByteBuffer.allocate(n * INDEX_ENTRY_SIZE);
+        readFully(indexChannel, offsets, from * INDEX_ENTRY_SIZE);
+        offsets.flip();
+        long start = offsets.getLong(0);
+        long stop = end < size ? readOffset(end) : dataEnd;
+
+        // 整段一次读入再逐条解析
+        ByteBuffer span = ByteBuffer.allocate((int) (stop - start));
+        readFully(dataChannel, span, start);
+        span.flip();
+
+        List<Entry> entries = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            long timestamp = span.getLong();
+            boolean fromPlayer = span.get() == 1;
+            byte[] bytes = new byte[span.getInt()];
+            span.get(bytes);
+            entries.add(new Entry(fromPlayer, new String(bytes, StandardCharsets.UTF_8), timestamp));
+        }
+        return entries;
+    }
+
+    private long readOffset(long index) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(INDEX_ENTRY_SIZE);
+        readFully(indexChannel, buffer, index * INDEX_ENTRY_SIZE);
+        return buffer.getLong(0);
+    }
+
+    public synchronized long size() {
+        return size;
+    }
+
+    /**
+     * 清空历史（切换对话对象时使用），文件保留复用
+     */
+    public synchronized void clear() throws IOException {
+        if (dataChannel != null) {
+            dataChannel.truncate(0);
+            indexChannel.truncate(0);
+        }
+        size = 0;
+        dataEnd = 0;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (dataChannel == null) {
+            return;
+        }
+        try {
+            dataChannel.close();
+            indexChannel.close();
+        } finally {
+            Files.deleteIfExists(dataPath);
+            Files.deleteIfExists(indexPath);
+            dataChannel = null;
+            indexChannel = null;
+            size = 0;
+            dataEnd = 0;
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("对话历史文件已损坏");
+            }
+            position += read;
+        }
+    }
+}
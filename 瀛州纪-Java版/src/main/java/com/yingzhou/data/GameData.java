@@ -2,14 +2,25 @@ package com.yingzhou.data;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.yingzhou.data.progress.ProgressAnchor;
+import com.yingzhou.data.progress.ProgressItem;
+import com.yingzhou.data.progress.ProgressTree;
+import com.yingzhou.ledger.Hex;
+import com.yingzhou.ledger.tx.TxPipeline;
+import com.yingzhou.ledger.tx.TxReceipt;
+import com.yingzhou.perf.GameDataEvent;
+import com.yingzhou.util.Logger;
 
 import java.io.*;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * 游戏数据管理
- * 负责保存和加载游戏进度
+ * 负责保存和加载游戏进度；进度同时记入只追加的 Merkle 树，根可锚定到 WorldLedger（见 {@link ProgressAnchor}）
  */
 public class GameData {
     
@@ -23,34 +34,72 @@ public class GameData {
     }
 
     private void loadOrCreate() {
+        GameDataEvent event = new GameDataEvent();
+        event.begin();
         File file = new File(SAVE_FILE);
         if (file.exists()) {
             try (Reader reader = new FileReader(file)) {
                 saveData = gson.fromJson(reader, SaveData.class);
-                System.out.println("游戏数据已加载");
+                event.success = true;
+                Logger.info("游戏数据已加载");
             } catch (IOException e) {
-                System.err.println("加载游戏数据失败: " + e.getMessage());
+                Logger.error("加载游戏数据失败", e);
                 saveData = new SaveData();
             }
         } else {
             saveData = new SaveData();
-            System.out.println("创建新游戏数据");
+            event.success = true;
+            Logger.info("创建新游戏数据");
+        }
+        if (saveData.migrateProgress()) {
+            Logger.info("旧存档的进度已记入进度日志，尚未锚定");
+        }
+        String problem = saveData.checkProgress();
+        if (problem != null) {
+            Logger.warn("存档进度校验未通过: " + problem);
+        }
+        if (event.shouldCommit()) {
+            event.operation = "load";
+            event.bytes = file.length();
+            fillEvent(event);
+            event.commit();
         }
     }
 
     public void save() {
+        GameDataEvent event = new GameDataEvent();
+        event.begin();
         try (Writer writer = new FileWriter(SAVE_FILE)) {
             gson.toJson(saveData, writer);
-            System.out.println("游戏数据已保存");
+            event.success = true;
+            Logger.info("游戏数据已保存");
         } catch (IOException e) {
-            System.err.println("保存游戏数据失败: " + e.getMessage());
+            Logger.error("保存游戏数据失败", e);
+        }
+        if (event.shouldCommit()) {
+            event.operation = "save";
+            event.bytes = new File(SAVE_FILE).length();
+            fillEvent(event);
+            event.commit();
         }
     }
 
+    private void fillEvent(GameDataEvent event) {
+        event.epoch = saveData.getCurrentEpoch();
+        event.fragmentsCollected = saveData.getFragmentsCollected();
+    }
+
     public SaveData getSaveData() {
         return saveData;
     }
 
+    /**
+     * 把当前进度的根经交易管线写入 WorldLedger
+     */
+    public CompletableFuture<TxReceipt> anchorProgress(TxPipeline pipeline) {
+        return ProgressAnchor.submit(pipeline, saveData.getProgressTree());
+    }
+
     /**
      * 保存数据结构
      */
@@ -61,6 +110,108 @@ public class GameData {
         private List<String> completedMiniGames = new ArrayList<>();
         private List<String> unlockedDialogues = new ArrayList<>();
         private double playTime = 0;
+        private List<ProgressItem> progress = new ArrayList<>();
+        private String progressRoot;
+        private transient ProgressTree progressTree;
+
+        /**
+         * 追加一项进度：记入进度日志和 Merkle 树（O(log n)），并同步到对应的存档字段
+         */
+        public void recordProgress(ProgressItem item) {
+            getProgressTree().append(item);
+            progress.add(item);
+            apply(item);
+            progressRoot = Hex.encode(progressTree.root());
+        }
+
+        private void apply(ProgressItem item) {
+            switch (item.getKind()) {
+                case FRAGMENT -> {
+                    collectedFragments.add(item.getValue());
+                    fragmentsCollected = collectedFragments.size();
+                }
+                case EPOCH -> currentEpoch = item.getValue();
+                case MINIGAME -> completedMiniGames.add(item.getValue());
+                case DIALOGUE -> unlockedDialogues.add(item.getValue());
+            }
+        }
+
+        /**
+         * 进度日志构成的树，首次访问时由日志重建
+         */
+        public ProgressTree getProgressTree() {
+            if (progressTree == null) {
+                progressTree = ProgressTree.build(getProgress(), false);
+            }
+            return progressTree;
+        }
+
+        public List<ProgressItem> getProgress() {
+            if (progress == null) {
+                progress = new ArrayList<>();
+            }
+            return Collections.unmodifiableList(progress);
+        }
+
+        /**
+         * 最近一次记录进度时的根（0x 十六进制），没有进度时为 null
+         */
+        public String getProgressRoot() {
+            return progressRoot;
+        }
+
+        /**
+         * 核对进度日志、记录的根和存档字段三者一致；一致时返回 null，否则返回原因
+         * 只能发现直接改动存档的情况，整体重写日志和根的篡改要与链上锚定的根比对（{@link com.yingzhou.data.progress.ProgressVerifier}）。
+         */
+        public String checkProgress() {
+            List<ProgressItem> items = getProgress();
+            if (progressRoot == null ? !items.isEmpty()
+                    : !Arrays.equals(Hex.decode(progressRoot), getProgressTree().root())) {
+                return "进度日志与记录的根不符";
+            }
+            SaveData expected = new SaveData();
+            for (ProgressItem item : items) {
+                expected.apply(item);
+            }
+            if (!expected.currentEpoch.equals(currentEpoch) || expected.fragmentsCollected != fragmentsCollected
+                    || !expected.collectedFragments.equals(collectedFragments)
+                    || !expected.completedMiniGames.equals(completedMiniGames)
+                    || !expected.unlockedDialogues.equals(unlockedDialogues)) {
+                return "存档字段与进度日志不符";
+            }
+            return null;
+        }
+
+        /**
+         * 没有进度日志的旧存档：按已有字段补记一份日志
+         *
+         * @return 是否补记了
+         */
+        boolean migrateProgress() {
+            if (!getProgress().isEmpty() || progressRoot != null) {
+                return false;
+            }
+            // 只有计数没有编号的碎片按序号补上编号
+            for (int i = collectedFragments.size(); i < fragmentsCollected; i++) {
+                collectedFragments.add("#" + (i + 1));
+            }
+            List<ProgressItem> items = new ArrayList<>();
+            collectedFragments.forEach(id -> items.add(ProgressItem.fragment(id)));
+            completedMiniGames.forEach(id -> items.add(ProgressItem.miniGame(id)));
+            unlockedDialogues.forEach(id -> items.add(ProgressItem.dialogue(id)));
+            if (!"GENESIS".equals(currentEpoch)) {
+                items.add(ProgressItem.epoch(currentEpoch));
+            }
+            if (items.isEmpty()) {
+                return false;
+            }
+            progress.addAll(items);
+            progressTree = null;
+            progressRoot = Hex.encode(getProgressTree().root());
+            fragmentsCollected = collectedFragments.size();
+            return true;
+        }
 
         // Getters and Setters
         public String getCurrentEpoch() {
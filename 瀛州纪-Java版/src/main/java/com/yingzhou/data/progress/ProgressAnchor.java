@@ -0,0 +1,136 @@
+package com.yingzhou.data.progress;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.yingzhou.ledger.Hex;
+import com.yingzhou.ledger.LedgerClient;
+import com.yingzhou.ledger.tx.TxPipeline;
+import com.yingzhou.ledger.tx.TxReceipt;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 锚定在 WorldLedger 上的一次进度提交：recordEvent(Memory, 根, {"progress": 叶子数})
+ * 链上只存根和当时的叶子数；之后的存档只能在其后追加，前 size 项的根须与锚定的根一致。
+ * recordEvent 仅限已登记的数字生命调用，发送账户须先由 worldGovernor registerDigitalBeing。
+ */
+public final class ProgressAnchor {
+
+    /**
+     * WorldLedger.EventType.Memory
+     */
+    public static final int MEMORY_EVENT = 4;
+    public static final String METADATA_KEY = "progress";
+
+    private final long eventId;
+    private final long blockNumber;
+    private final int size;
+    private final byte[] root;
+
+    public ProgressAnchor(long eventId, long blockNumber, int size, byte[] root) {
+        if (root.length != ProgressTree.HASH_LENGTH) {
+            throw new IllegalArgumentException("根须为 32 字节: " + root.length);
+        }
+        this.eventId = eventId;
+        this.blockNumber = blockNumber;
+        this.size = size;
+        this.root = root.clone();
+    }
+
+    /**
+     * 未上链时的本地锚点（如存档中记录的根），eventId 和区块号为 -1
+     */
+    public static ProgressAnchor local(ProgressTree tree) {
+        return new ProgressAnchor(-1, -1, tree.size(), tree.root());
+    }
+
+    /**
+     * 经交易管线把当前的根写入 WorldLedger
+     */
+    public static CompletableFuture<TxReceipt> submit(TxPipeline pipeline, ProgressTree tree) {
+        JsonObject metadata = new JsonObject();
+        metadata.addProperty(METADATA_KEY, tree.size());
+        return pipeline.submit("WorldLedger", "recordEvent", MEMORY_EVENT, tree.root(), metadata.toString());
+    }
+
+    /**
+     * 读取该账户在 WorldLedger 上的全部进度锚点，按事件号升序
+     * 第一次读取随调用方的 flush 发出（游戏中每帧一次），各事件的读取合并为一个批量请求。
+     */
+    public static CompletableFuture<List<ProgressAnchor>> fetch(LedgerClient client, String player) {
+        return client.<List<BigInteger>>callValue("WorldLedger", "getBeingEvents", player).thenCompose(ids -> {
+            List<CompletableFuture<Object[]>> events = new ArrayList<>();
+            for (BigInteger id : ids) {
+                events.add(client.callValue("WorldLedger", "getEvent", id));
+            }
+            client.flush();
+            return CompletableFuture.allOf(events.toArray(new CompletableFuture<?>[0])).thenApply(v -> {
+                List<ProgressAnchor> anchors = new ArrayList<>();
+                for (CompletableFuture<Object[]> future : events) {
+                    ProgressAnchor anchor = parse(future.join());
+                    if (anchor != null) {
+                        anchors.add(anchor);
+                    }
+                }
+                anchors.sort(Comparator.comparingLong(ProgressAnchor::getEventId));
+                return anchors;
+            });
+        });
+    }
+
+    /**
+     * HistoricalEvent(id, timestamp, blockNumber, eventType, actor, contentHash, metadata, isSealed)；
+     * 不是进度锚点时返回 null
+     */
+    static ProgressAnchor parse(Object[] event) {
+        if (((BigInteger) event[3]).intValue() != MEMORY_EVENT) {
+            return null;
+        }
+        int size;
+        try {
+            JsonElement metadata = JsonParser.parseString((String) event[6]);
+            JsonElement value = metadata.isJsonObject() ? metadata.getAsJsonObject().get(METADATA_KEY) : null;
+            if (value == null || !value.isJsonPrimitive()) {
+                return null;
+            }
+            size = value.getAsInt();
+        } catch (RuntimeException e) {
+            return null;
+        }
+        return new ProgressAnchor(((BigInteger) event[0]).longValue(), ((BigInteger) event[2]).longValue(), size,
+                (byte[]) event[5]);
+    }
+
+    public long getEventId() {
+        return eventId;
+    }
+
+    public long getBlockNumber() {
+        return blockNumber;
+    }
+
+    /**
+     * 锚定时的叶子数
+     */
+    public int getSize() {
+        return size;
+    }
+
+    public byte[] getRoot() {
+        return root.clone();
+    }
+
+    byte[] root() {
+        return root;
+    }
+
+    @Override
+    public String toString() {
+        return "#" + eventId + " size=" + size + " root=" + Hex.encode(root);
+    }
+}
@@ -0,0 +1,94 @@
+package com.yingzhou.data.progress;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+/**
+ * 进度日志中的一项：收集碎片、进入新纪元、完成小游戏或解锁对话
+ * 按发生顺序追加进 {@link ProgressTree}，叶子哈希只取决于种类和值，位置由树的形状固定。
+ */
+public final class ProgressItem {
+
+    public enum Kind {
+        FRAGMENT(1), EPOCH(2), MINIGAME(3), DIALOGUE(4);
+
+        private final byte code;
+
+        Kind(int code) {
+            this.code = (byte) code;
+        }
+
+        public byte getCode() {
+            return code;
+        }
+    }
+
+    private final Kind kind;
+    private final String value;
+
+    public ProgressItem(Kind kind, String value) {
+        this.kind = Objects.requireNonNull(kind, "kind");
+        this.value = Objects.requireNonNull(value, "value");
+    }
+
+    public static ProgressItem fragment(String id) {
+        return new ProgressItem(Kind.FRAGMENT, id);
+    }
+
+    public static ProgressItem epoch(String epoch) {
+        return new ProgressItem(Kind.EPOCH, epoch);
+    }
+
+    public static ProgressItem miniGame(String id) {
+        return new ProgressItem(Kind.MINIGAME, id);
+    }
+
+    public static ProgressItem dialogue(String id) {
+        return new ProgressItem(Kind.DIALOGUE, id);
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    /**
+     * 叶子编码：种类代码 + 值的 UTF-8
+     */
+    public byte[] encode() {
+        byte[] text = value.getBytes(StandardCharsets.UTF_8);
+        byte[] data = new byte[1 + text.length];
+        data[0] = kind.code;
+        System.arraycopy(text, 0, data, 1, text.length);
+        return data;
+    }
+
+    public byte[] leafHash() {
+        return ProgressTree.leafHash(encode());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ProgressItem)) {
+            return false;
+        }
+        ProgressItem other = (ProgressItem) o;
+        return kind == other.kind && value.equals(other.value);
+    }
+
+    @Override
+    public int hashCode() {
+        return kind.hashCode() * 31 + value.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return kind + ":" + value;
+    }
+}
@@ -0,0 +1,88 @@
+package com.yingzhou.data.progress;
+
+import com.yingzhou.ledger.Hex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 一个进度项在大小为 treeSize 的树中的包含证明
+ * 校验不需要树本身：持有叶子、证明和锚定的根即可，按 RFC 9162 2.1.3.2 由审计路径重算根。
+ */
+public final class ProgressProof {
+
+    private final int index;
+    private final int treeSize;
+    private final byte[][] path;
+
+    public ProgressProof(int index, int treeSize, byte[][] path) {
+        if (index < 0 || index >= treeSize) {
+            throw new IllegalArgumentException("叶子序号 " + index + " 超出树的大小 " + treeSize);
+        }
+        this.index = index;
+        this.treeSize = treeSize;
+        this.path = path;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public int getTreeSize() {
+        return treeSize;
+    }
+
+    /**
+     * 审计路径上的兄弟哈希（0x 十六进制），从叶子一侧开始
+     */
+    public List<String> getPath() {
+        List<String> hex = new ArrayList<>(path.length);
+        for (byte[] node : path) {
+            hex.add(Hex.encode(node));
+        }
+        return hex;
+    }
+
+    public boolean verify(ProgressItem item, byte[] root) {
+        return verify(item.leafHash(), root);
+    }
+
+    public boolean verify(byte[] leafHash, byte[] root) {
+        return Arrays.equals(computeRoot(leafHash), root);
+    }
+
+    /**
+     * 由叶子哈希和审计路径重算根；路径长度与树形不符时返回 null
+     */
+    public byte[] computeRoot(byte[] leafHash) {
+        long fn = index;
+        long sn = treeSize - 1L;
+        byte[] r = leafHash;
+        for (byte[] sibling : path) {
+            if (sn == 0) {
+                return null;
+            }
+            if ((fn & 1) == 1 || fn == sn) {
+                r = ProgressTree.nodeHash(sibling, r);
+                // 右边界上的节点没有右兄弟，跳过这些只有一个孩子的层
+                if ((fn & 1) == 0) {
+                    while ((fn & 1) == 0 && fn != 0) {
+                        fn >>= 1;
+                        sn >>= 1;
+                    }
+                }
+            } else {
+                r = ProgressTree.nodeHash(r, sibling);
+            }
+            fn >>= 1;
+            sn >>= 1;
+        }
+        return sn == 0 ? r : null;
+    }
+
+    @Override
+    public String toString() {
+        return "#" + index + "/" + treeSize + " " + getPath();
+    }
+}
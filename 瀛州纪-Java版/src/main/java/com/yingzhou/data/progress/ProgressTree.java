@@ -0,0 +1,222 @@
+package com.yingzhou.data.progress;
+
+import com.yingzhou.ledger.Keccak256;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * 只追加的进度 Merkle 树，形状与 RFC 6962（Certificate Transparency）相同，哈希为 Keccak-256：
+ * 叶子 = keccak256(0x00 ‖ 数据)，内部节点 = keccak256(0x01 ‖ 左 ‖ 右)，
+ * n 个叶子的根 = 前 k 个（小于 n 的最大 2 的幂）与其余部分两棵子树的根再哈希。
+ * 每层只保存完整对齐的子树（第 k 层第 i 个节点覆盖叶子 [i·2^k, (i+1)·2^k)），存在连续的 byte[] 里；
+ * 追加一项只补上因此变完整的 O(log n) 个祖先，任意前缀的根和任意叶子的包含证明都由已存节点 O(log n) 次哈希得出。
+ * 非线程安全。
+ */
+public final class ProgressTree {
+
+    public static final int HASH_LENGTH = 32;
+
+    /**
+     * 空树的根：keccak256 空串
+     */
+    public static final byte[] EMPTY_ROOT = Keccak256.hash(new byte[0]);
+
+    /**
+     * 批量建树时每层节点数不少于此值才并行哈希
+     */
+    private static final int PARALLEL_THRESHOLD = 1024;
+
+    private byte[][] levels = new byte[1][];
+    private int[] counts = new int[1];
+    private int size;
+
+    public ProgressTree() {
+        levels[0] = new byte[16 * HASH_LENGTH];
+    }
+
+    /**
+     * 由一批叶子哈希一次建树，parallel 时各层在公共 ForkJoinPool 上并行哈希
+     */
+    public static ProgressTree build(byte[][] leaves, boolean parallel) {
+        ProgressTree tree = new ProgressTree();
+        int count = leaves.length;
+        int depth = 1;
+        while ((count >>> (depth - 1)) > 1) {
+            depth++;
+        }
+        tree.levels = new byte[depth][];
+        tree.counts = new int[depth];
+        byte[] level = new byte[Math.max(count, 1) * HASH_LENGTH];
+        for (int i = 0; i < count; i++) {
+            System.arraycopy(leaves[i], 0, level, i * HASH_LENGTH, HASH_LENGTH);
+        }
+        tree.levels[0] = level;
+        tree.counts[0] = count;
+        for (int k = 1; k < depth; k++) {
+            byte[] below = tree.levels[k - 1];
+            int parents = tree.counts[k - 1] >>> 1;
+            byte[] above = new byte[parents * HASH_LENGTH];
+            IntStream range = IntStream.range(0, parents);
+            if (parallel && parents >= PARALLEL_THRESHOLD) {
+                range = range.parallel();
+            }
+            range.forEach(i -> System.arraycopy(nodeHash(below, 2 * i * HASH_LENGTH, below, (2 * i + 1) * HASH_LENGTH),
+                    0, above, i * HASH_LENGTH, HASH_LENGTH));
+            tree.levels[k] = above;
+            tree.counts[k] = parents;
+        }
+        tree.size = count;
+        return tree;
+    }
+
+    /**
+     * 按顺序哈希各项后建树，parallel 时叶子哈希也并行
+     */
+    public static ProgressTree build(List<ProgressItem> items, boolean parallel) {
+        IntStream range = IntStream.range(0, items.size());
+        if (parallel && items.size() >= PARALLEL_THRESHOLD) {
+            range = range.parallel();
+        }
+        byte[][] leaves = new byte[items.size()][];
+        range.forEach(i -> leaves[i] = items.get(i).leafHash());
+        return build(leaves, parallel);
+    }
+
+    public static byte[] leafHash(byte[] data) {
+        byte[] input = new byte[1 + data.length];
+        System.arraycopy(data, 0, input, 1, data.length);
+        return Keccak256.hash(input);
+    }
+
+    public static byte[] nodeHash(byte[] left, byte[] right) {
+        return nodeHash(left, 0, right, 0);
+    }
+
+    private static byte[] nodeHash(byte[] left, int leftOffset, byte[] right, int rightOffset) {
+        byte[] input = new byte[1 + 2 * HASH_LENGTH];
+        input[0] = 1;
+        System.arraycopy(left, leftOffset, input, 1, HASH_LENGTH);
+        System.arraycopy(right, rightOffset, input, 1 + HASH_LENGTH, HASH_LENGTH);
+        return Keccak256.hash(input);
+    }
+
+    /**
+     * 追加一个叶子哈希，返回其序号
+     */
+    public int append(byte[] leaf) {
+        if (leaf.length != HASH_LENGTH) {
+            throw new IllegalArgumentException("叶子哈希须为 32 字节: " + leaf.length);
+        }
+        int index = size;
+        store(0, index, leaf);
+        size++;
+        // 右孩子落位时父节点变完整，逐层向上直到遇到左孩子
+        int i = index;
+        int level = 0;
+        while ((i & 1) == 1) {
+            byte[] nodes = levels[level];
+            byte[] parent = nodeHash(nodes, (i - 1) * HASH_LENGTH, nodes, i * HASH_LENGTH);
+            i >>>= 1;
+            level++;
+            store(level, i, parent);
+        }
+        return index;
+    }
+
+    public int append(ProgressItem item) {
+        return append(item.leafHash());
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public byte[] leaf(int index) {
+        checkIndex(index, size);
+        return Arrays.copyOfRange(levels[0], index * HASH_LENGTH, (index + 1) * HASH_LENGTH);
+    }
+
+    public byte[] root() {
+        return rootAt(size);
+    }
+
+    /**
+     * 前 treeSize 个叶子构成的树的根，用于核对存档是否延续了某次锚定时的进度
+     */
+    public byte[] rootAt(int treeSize) {
+        if (treeSize < 0 || treeSize > size) {
+            throw new IllegalArgumentException("树只有 " + size + " 个叶子: " + treeSize);
+        }
+        return treeSize == 0 ? EMPTY_ROOT.clone() : hash(0, treeSize);
+    }
+
+    public ProgressProof proof(int index) {
+        return proof(index, size);
+    }
+
+    /**
+     * 第 index 个叶子在前 treeSize 个叶子构成的树中的包含证明（RFC 6962 审计路径，从叶子一侧开始）
+     */
+    public ProgressProof proof(int index, int treeSize) {
+        if (treeSize > size) {
+            throw new IllegalArgumentException("树只有 " + size + " 个叶子: " + treeSize);
+        }
+        checkIndex(index, treeSize);
+        List<byte[]> path = new ArrayList<>();
+        path(index, 0, treeSize, path);
+        return new ProgressProof(index, treeSize, path.toArray(new byte[0][]));
+    }
+
+    private void path(int index, int from, int to, List<byte[]> path) {
+        int n = to - from;
+        if (n == 1) {
+            return;
+        }
+        int k = Integer.highestOneBit(n - 1);
+        if (index < from + k) {
+            path(index, from, from + k, path);
+            path.add(hash(from + k, to));
+        } else {
+            path(index, from + k, to, path);
+            path.add(hash(from, from + k));
+        }
+    }
+
+    /**
+     * 叶子 [from, to) 的子树根；递归中出现的左子树总是完整对齐的，直接取已存节点
+     */
+    private byte[] hash(int from, int to) {
+        int n = to - from;
+        if ((n & (n - 1)) == 0 && from % n == 0) {
+            int level = Integer.numberOfTrailingZeros(n);
+            int i = from >>> level;
+            return Arrays.copyOfRange(levels[level], i * HASH_LENGTH, (i + 1) * HASH_LENGTH);
+        }
+        int k = Integer.highestOneBit(n - 1);
+        return nodeHash(hash(from, from + k), hash(from + k, to));
+    }
+
+    private void store(int level, int index, byte[] hash) {
+        if (level == levels.length) {
+            levels = Arrays.copyOf(levels, level + 1);
+            counts = Arrays.copyOf(counts, level + 1);
+            levels[level] = new byte[16 * HASH_LENGTH];
+        }
+        byte[] nodes = levels[level];
+        if ((index + 1) * HASH_LENGTH > nodes.length) {
+            nodes = Arrays.copyOf(nodes, Math.max(nodes.length * 2, (index + 1) * HASH_LENGTH));
+            levels[level] = nodes;
+        }
+        System.arraycopy(hash, 0, nodes, index * HASH_LENGTH, HASH_LENGTH);
+        counts[level] = index + 1;
+    }
+
+    private static void checkIndex(int index, int treeSize) {
+        if (index < 0 || index >= treeSize) {
+            throw new IndexOutOfBoundsException("叶子序号 " + index + " 超出树的大小 " + treeSize);
+        }
+    }
+}
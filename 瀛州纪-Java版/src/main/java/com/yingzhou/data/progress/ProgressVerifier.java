@@ -0,0 +1,84 @@
+package com.yingzhou.data.progress;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * 服务端批量核对玩家存档的进度
+ * 每份存档按锚定时的叶子数重建前缀树，根须与锚定的根一致；各存档之间互不依赖，在专用 ForkJoinPool 上并行，
+ * 不占用公共池。单份存档的核对见 {@link #verify(List, ProgressAnchor)}，结果为 null 表示通过，否则为原因。
+ */
+public class ProgressVerifier implements AutoCloseable {
+
+    public static final String UNANCHORED = "没有锚定记录";
+    public static final String TRUNCATED = "存档短于锚定时的进度";
+    public static final String ROOT_MISMATCH = "进度与锚定的根不符";
+
+    private final ForkJoinPool pool;
+
+    public ProgressVerifier() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public ProgressVerifier(int parallelism) {
+        this.pool = new ForkJoinPool(parallelism);
+    }
+
+    public static String verify(List<ProgressItem> items, ProgressAnchor anchor) {
+        if (anchor == null) {
+            return UNANCHORED;
+        }
+        if (items.size() < anchor.getSize()) {
+            return TRUNCATED;
+        }
+        // 锚定之后追加的项不影响核对，只哈希前缀
+        ProgressTree tree = ProgressTree.build(items.subList(0, anchor.getSize()), false);
+        return Arrays.equals(tree.root(), anchor.root()) ? null : ROOT_MISMATCH;
+    }
+
+    public static String verify(ProgressTree tree, ProgressAnchor anchor) {
+        if (anchor == null) {
+            return UNANCHORED;
+        }
+        if (tree.size() < anchor.getSize()) {
+            return TRUNCATED;
+        }
+        return Arrays.equals(tree.rootAt(anchor.getSize()), anchor.root()) ? null : ROOT_MISMATCH;
+    }
+
+    /**
+     * 并行核对多份存档，logs 与 anchors 一一对应；返回每份的结果，null 表示通过
+     */
+    public String[] verifyAll(List<? extends List<ProgressItem>> logs, List<ProgressAnchor> anchors) {
+        if (logs.size() != anchors.size()) {
+            throw new IllegalArgumentException("存档数 " + logs.size() + " 与锚点数 " + anchors.size() + " 不一致");
+        }
+        return pool.submit(() -> IntStream.range(0, logs.size()).parallel()
+                .mapToObj(i -> verify(logs.get(i), anchors.get(i)))
+                .toArray(String[]::new)).join();
+    }
+
+    /**
+     * 并行校验一批包含证明：第 i 项在根为 roots[i] 的树中
+     */
+    public boolean[] verifyProofs(List<ProgressItem> items, List<ProgressProof> proofs, List<byte[]> roots) {
+        if (items.size() != proofs.size() || items.size() != roots.size()) {
+            throw new IllegalArgumentException("进度项、证明与根的数量不一致");
+        }
+        boolean[] valid = new boolean[items.size()];
+        pool.submit(() -> IntStream.range(0, valid.length).parallel()
+                .forEach(i -> valid[i] = proofs.get(i).verify(items.get(i), roots.get(i)))).join();
+        return valid;
+    }
+
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+}
@@ -1,10 +1,32 @@
 package com.yingzhou.game;
 
 import com.yingzhou.data.GameData;
+import com.yingzhou.data.progress.ProgressItem;
 import com.yingzhou.game.epoch.EpochManager;
+import com.yingzhou.game.epoch.EpochState;
+import com.yingzhou.game.event.GameEventBus;
+import com.yingzhou.game.input.Action;
+import com.yingzhou.game.input.InputQueue;
+import com.yingzhou.game.input.InputSnapshot;
 import com.yingzhou.game.player.Player;
+import com.yingzhou.npc.BaseNPC;
 import com.yingzhou.npc.NPCManager;
+import com.yingzhou.perf.DialogueEvent;
+import com.yingzhou.perf.EngineTickEvent;
+import com.yingzhou.perf.PerfMonitor;
+import com.yingzhou.perf.StartupTimeline;
+import com.yingzhou.util.Logger;
 import javafx.animation.AnimationTimer;
+import javafx.geometry.Point3D;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
 
 /**
  * 游戏引擎核心
@@ -12,33 +34,123 @@ import javafx.animation.AnimationTimer;
  */
 public class GameEngine {
     
+    /**
+     * 会话监听器
+     * 在逻辑帧开始和玩家命令执行时回调，回调发生在游戏循环线程；录像据此记录完整会话
+     */
+    public interface SessionListener {
+        /**
+         * 逻辑帧开始，输入尚未应用
+         */
+        default void onTick(long tick, long deltaNanos, InputSnapshot input) {}
+        
+        default void onDialogue(int npcIndex, String message) {}
+        
+        default void onAdvanceEpoch() {}
+        
+        default void onCollectFragment() {}
+    }
+
+    /**
+     * 本机玩家的移动方式
+     * 未设置时按本帧输入直接推进；联机时由客户端预测接管，以服务器的帧间隔推进并与服务器对账
+     */
+    public interface PlayerDriver {
+        /**
+         * 代替 {@link Player#applyInput} 和 {@link Player#update} 推进本机玩家
+         */
+        void drive(Player player, InputSnapshot input, double deltaTime);
+    }
+    
     private Player player;
+    // 本机玩家之外的玩家（机器人、远程访客），输入由各自的 pendingInput 提供
+    private final List<Player> otherPlayers = new CopyOnWriteArrayList<>();
+    // 其他玩家各自的纪元进度，规则与本机玩家共用同一个 EpochEngine
+    private final Map<Player, EpochState> otherEpochStates = new ConcurrentHashMap<>();
     private EpochManager epochManager;
     private NPCManager npcManager;
     private GameData gameData;
+    private final GameEventBus eventBus = new GameEventBus();
+    private final InputQueue inputQueue = new InputQueue();
+    private final InputSnapshot input = new InputSnapshot();
     private AnimationTimer gameLoop;
     private boolean running;
+    private long tickCount;
+    private long seed = System.nanoTime();
+    private SplittableRandom random = new SplittableRandom(seed);
+    private final List<SessionListener> sessionListeners = new CopyOnWriteArrayList<>();
+    private PlayerDriver playerDriver;
 
     public GameEngine() {
         initialize();
     }
 
+    /**
+     * 构造标记：子系统留空，由 createAsync 的异步任务填充
+     */
+    private enum Deferred {
+        SUBSYSTEMS
+    }
+
+    private GameEngine(Deferred deferred) {
+    }
+
+    /**
+     * 并行初始化引擎：存档加载和NPC创建互不依赖，分别在后台线程执行
+     * 游戏启动走这里，本机玩家的纪元和碎片数按存档恢复；直接构造的引擎（服务器、回放等工具）从创世纪元开始。
+     *
+     * @param executor 执行初始化任务的线程池
+     */
+    public static CompletableFuture<GameEngine> createAsync(Executor executor) {
+        GameEngine engine = new GameEngine(Deferred.SUBSYSTEMS);
+        
+        CompletableFuture<Void> dataLoaded = CompletableFuture.runAsync(() -> {
+            engine.gameData = new GameData();
+            StartupTimeline.mark("存档加载");
+        }, executor);
+        CompletableFuture<Void> npcsReady = CompletableFuture.runAsync(() -> {
+            engine.npcManager = new NPCManager(engine);
+            StartupTimeline.mark("NPC初始化");
+        }, executor);
+        
+        engine.initializePlayerState();
+        return CompletableFuture.allOf(dataLoaded, npcsReady).thenApply(v -> {
+            engine.restoreProgress();
+            return engine;
+        });
+    }
+
     private void initialize() {
         // 初始化游戏数据
         gameData = new GameData();
         
+        initializePlayerState();
+        
+        // 初始化NPC管理器
+        npcManager = new NPCManager(this);
+    }
+
+    private void initializePlayerState() {
         // 初始化玩家
         player = new Player();
         
         // 初始化纪元管理器
-        epochManager = new EpochManager();
+        epochManager = new EpochManager(eventBus);
         epochManager.setCurrentEpoch(EpochManager.Epoch.GENESIS);
-        
-        // 初始化NPC管理器
-        npcManager = new NPCManager(this);
-        
-        // 创建游戏循环
-        createGameLoop();
+    }
+
+    /**
+     * 按存档恢复本机玩家的纪元和碎片数，新碎片的编号（纪元#序号）接着存档往下排，不与已记录的重复
+     */
+    private void restoreProgress() {
+        GameData.SaveData save = gameData.getSaveData();
+        EpochManager.Epoch epoch = EpochManager.Epoch.GENESIS;
+        try {
+            epoch = EpochManager.Epoch.valueOf(save.getCurrentEpoch());
+        } catch (IllegalArgumentException | NullPointerException e) {
+            Logger.warn("存档中的纪元无效，从创世纪元开始: " + save.getCurrentEpoch());
+        }
+        epochManager.restore(epoch, save.getFragmentsCollected());
     }
 
     private void createGameLoop() {
@@ -52,17 +164,66 @@ public class GameEngine {
                     return;
                 }
                 
-                double deltaTime = (now - lastUpdate) / 1_000_000_000.0;
+                long deltaNanos = now - lastUpdate;
                 lastUpdate = now;
                 
-                update(deltaTime);
+                inputQueue.drainTo(input);
+                tick(deltaNanos, input);
             }
         };
     }
 
-    private void update(double deltaTime) {
+    /**
+     * 推进一个逻辑帧
+     * 状态变化只取决于当前状态、帧间隔和输入，录像回放和无界面工具直接调用此方法
+     *
+     * @param deltaNanos 距上一帧的纳秒数
+     * @param input 本帧合并后的输入
+     */
+    public void tick(long deltaNanos, InputSnapshot input) {
+        eventBus.setTick(tickCount);
+        for (SessionListener listener : sessionListeners) {
+            listener.onTick(tickCount, deltaNanos, input);
+        }
+        update(deltaNanos / 1_000_000_000.0, input);
+        tickCount++;
+    }
+
+    private void update(double deltaTime, InputSnapshot input) {
+        long tickStart = System.nanoTime();
+        EngineTickEvent tickEvent = new EngineTickEvent();
+        tickEvent.begin();
+        
+        // 应用本帧合并后的输入
+        if (playerDriver == null) {
+            player.applyInput(input);
+        }
+        if (input.wasPressed(Action.INTERACT)) {
+            interactWithNearestNPC();
+        }
+        
         // 更新玩家状态
-        player.update(deltaTime);
+        if (playerDriver == null) {
+            player.update(deltaTime);
+        } else {
+            playerDriver.drive(player, input, deltaTime);
+        }
+        
+        // 其他玩家：应用并消费各自的待处理输入
+        for (Player other : otherPlayers) {
+            InputSnapshot pending = other.getPendingInput();
+            other.applyInput(pending);
+            EpochState epochState = otherEpochStates.get(other);
+            if (pending.wasPressed(Action.INTERACT)) {
+                BaseNPC npc = npcManager.interactWithNearest(other.getPosition());
+                if (npc != null) {
+                    epochManager.getEngine().recordInteraction(epochState, npc.getName());
+                }
+            }
+            pending.set(pending.getHeldMask(), 0, 0, 0);
+            other.update(deltaTime);
+            epochManager.getEngine().update(epochState, deltaTime);
+        }
         
         // 更新NPC
         npcManager.update(deltaTime);
@@ -72,13 +233,26 @@ public class GameEngine {
         
         // 检查玩家与NPC的距离
         npcManager.checkPlayerProximity(player.getPosition());
+        
+        PerfMonitor.recordTick(System.nanoTime() - tickStart);
+        if (tickEvent.shouldCommit()) {
+            tickEvent.deltaTime = deltaTime;
+            tickEvent.npcCount = npcManager.getNPCs().size();
+            tickEvent.playerCount = 1 + otherPlayers.size();
+            tickEvent.epoch = epochManager.getCurrentEpoch().name();
+            tickEvent.commit();
+        }
     }
 
     public void start() {
         if (!running) {
             running = true;
+            if (gameLoop == null) {
+                // 游戏循环在启动时才创建，无界面的工具可以不依赖JavaFX定时器
+                createGameLoop();
+            }
             gameLoop.start();
-            System.out.println("游戏引擎已启动");
+            Logger.info("游戏引擎已启动");
         }
     }
 
@@ -86,12 +260,205 @@ public class GameEngine {
         if (running) {
             running = false;
             gameLoop.stop();
-            System.out.println("游戏引擎已停止");
+            Logger.info("游戏引擎已停止");
         }
     }
 
     public void interactWithNearestNPC() {
-        npcManager.interactWithNearest(player.getPosition());
+        BaseNPC npc = npcManager.interactWithNearest(player.getPosition());
+        if (npc != null) {
+            epochManager.recordInteraction(npc.getName());
+        }
+    }
+
+    /**
+     * 向NPC发送一条消息并返回回复
+     * 对话是玩家命令，经由引擎执行以便录像在帧序中记录
+     */
+    public String sendDialogue(BaseNPC npc, String message) {
+        int npcIndex = npcManager.getNPCs().indexOf(npc);
+        for (SessionListener listener : sessionListeners) {
+            listener.onDialogue(npcIndex, message);
+        }
+        epochManager.recordInteraction(npc.getName());
+        return respond(npc, npcIndex, message, epochManager.getCurrentEpoch());
+    }
+
+    /**
+     * 其他玩家向NPC发送消息，计入该玩家自己的纪元进度
+     */
+    public String sendDialogue(Player speaker, BaseNPC npc, String message) {
+        if (speaker == player) {
+            return sendDialogue(npc, message);
+        }
+        EpochState epochState = getEpochState(speaker);
+        epochManager.getEngine().recordInteraction(epochState, npc.getName());
+        return respond(npc, npcManager.getNPCs().indexOf(npc), message, epochState.getEpoch());
+    }
+
+    /**
+     * 与NPC进行一局小游戏，结束后发布小游戏完成事件；首次完成的小游戏记入存档进度
+     *
+     * @return 玩家是否完成了挑战
+     */
+    public boolean playMiniGame(BaseNPC npc) {
+        boolean success = npc.startMiniGame();
+        GameData.SaveData save = gameData.getSaveData();
+        if (success && !save.getCompletedMiniGames().contains(npc.getMiniGameName())) {
+            save.recordProgress(ProgressItem.miniGame(npc.getMiniGameName()));
+        }
+        eventBus.publishMiniGameCompleted(npcManager.getNPCs().indexOf(npc), npc.getMiniGameName(), success);
+        return success;
+    }
+
+    private String respond(BaseNPC npc, int npcIndex, String message, EpochManager.Epoch epoch) {
+        DialogueEvent dialogueEvent = new DialogueEvent();
+        dialogueEvent.begin();
+        String response = npc.getDialogue(message);
+        if (dialogueEvent.shouldCommit()) {
+            dialogueEvent.npcName = npc.getName();
+            dialogueEvent.inputLength = message.length();
+            dialogueEvent.responseLength = response.length();
+            dialogueEvent.epoch = epoch.name();
+            dialogueEvent.commit();
+        }
+        eventBus.publishDialogueSent(npcIndex, message, response);
+        return response;
+    }
+
+    /**
+     * 推进纪元（玩家命令）
+     *
+     * @return 是否满足条件并已推进
+     */
+    public boolean advanceEpoch() {
+        if (!epochManager.canAdvanceToNextEpoch()) {
+            return false;
+        }
+        for (SessionListener listener : sessionListeners) {
+            listener.onAdvanceEpoch();
+        }
+        epochManager.advanceEpoch();
+        gameData.getSaveData().recordProgress(ProgressItem.epoch(epochManager.getCurrentEpoch().name()));
+        return true;
+    }
+
+    /**
+     * 收集一枚记忆碎片（玩家命令）
+     */
+    public void collectFragment() {
+        for (SessionListener listener : sessionListeners) {
+            listener.onCollectFragment();
+        }
+        int collected = epochManager.getFragmentsCollected();
+        epochManager.collectFragment(collected < EpochManager.MAIN_FRAGMENTS ? collected : -1);
+        gameData.getSaveData().recordProgress(ProgressItem.fragment(
+                epochManager.getCurrentEpoch().name() + "#" + epochManager.getFragmentsCollected()));
+    }
+
+    /**
+     * 其他玩家收集一枚记忆碎片
+     */
+    public void collectFragment(Player other) {
+        if (other == player) {
+            collectFragment();
+            return;
+        }
+        epochManager.getEngine().recordFragment(getEpochState(other));
+    }
+
+    /**
+     * 其他玩家推进纪元
+     *
+     * @return 是否满足条件并已推进
+     */
+    public boolean advanceEpoch(Player other) {
+        if (other == player) {
+            return advanceEpoch();
+        }
+        return epochManager.getEngine().advance(getEpochState(other));
+    }
+
+    /**
+     * 玩家的纪元进度，本机玩家即 {@link EpochManager#getState()}
+     */
+    public EpochState getEpochState(Player target) {
+        if (target == player) {
+            return epochManager.getState();
+        }
+        EpochState state = otherEpochStates.get(target);
+        if (state == null) {
+            throw new IllegalArgumentException("玩家不在本引擎中");
+        }
+        return state;
+    }
+
+    /**
+     * 加入一名本机之外的玩家（机器人或远程访客）
+     * 其输入写入 {@link Player#getPendingInput()}，在下一逻辑帧应用；按下类输入应用后即被消费
+     */
+    public Player addPlayer(Point3D spawnPosition) {
+        Player other = new Player(spawnPosition);
+        otherEpochStates.put(other, epochManager.getEngine().createState());
+        otherPlayers.add(other);
+        return other;
+    }
+
+    public void removePlayer(Player other) {
+        otherPlayers.remove(other);
+        otherEpochStates.remove(other);
+    }
+
+    /**
+     * 本机之外的玩家
+     */
+    public List<Player> getOtherPlayers() {
+        return Collections.unmodifiableList(otherPlayers);
+    }
+
+    /**
+     * 游戏事件总线
+     */
+    public GameEventBus getEventBus() {
+        return eventBus;
+    }
+
+    public void addSessionListener(SessionListener listener) {
+        sessionListeners.add(listener);
+    }
+
+    public void removeSessionListener(SessionListener listener) {
+        sessionListeners.remove(listener);
+    }
+
+    /**
+     * 接管本机玩家的移动，传 null 恢复默认
+     */
+    public void setPlayerDriver(PlayerDriver driver) {
+        this.playerDriver = driver;
+    }
+
+    /**
+     * 设置随机种子，游戏逻辑中的随机数都应取自 {@link #getRandom()}，回放时据此复现
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+        this.random = new SplittableRandom(seed);
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public SplittableRandom getRandom() {
+        return random;
+    }
+
+    /**
+     * 已执行的逻辑帧数
+     */
+    public long getTickCount() {
+        return tickCount;
     }
 
     // Getters
@@ -99,6 +466,13 @@ public class GameEngine {
         return player;
     }
 
+    /**
+     * 输入队列，FX事件处理向其中写入，逻辑帧开始时取出
+     */
+    public InputQueue getInputQueue() {
+        return inputQueue;
+    }
+
     public EpochManager getEpochManager() {
         return epochManager;
     }
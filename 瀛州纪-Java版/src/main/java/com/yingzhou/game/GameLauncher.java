@@ -1,15 +1,33 @@
 package com.yingzhou.game;
 
+import com.yingzhou.data.GameData;
+import com.yingzhou.game.event.GameEventType;
+import com.yingzhou.game.input.ActionMap;
+import com.yingzhou.game.input.SceneInputHandler;
+import com.yingzhou.game.replay.SessionRecorder;
+import com.yingzhou.ledger.LedgerClient;
+import com.yingzhou.ledger.LedgerConfig;
+import com.yingzhou.ledger.mock.MockRpcServer;
+import com.yingzhou.ledger.tx.TxPipeline;
+import com.yingzhou.net.WorldClient;
+import com.yingzhou.perf.StartupTimeline;
 import com.yingzhou.scene3d.Scene3DManager;
 import com.yingzhou.ui.GameUI;
+import com.yingzhou.ui.PerfOverlay;
 import com.yingzhou.util.Logger;
+import javafx.application.Platform;
 import javafx.scene.Scene;
-import javafx.scene.input.KeyCode;
+import javafx.scene.control.Label;
 import javafx.scene.layout.BorderPane;
+import javafx.scene.layout.StackPane;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.text.FontWeight;
 import javafx.stage.Stage;
 
-import java.util.HashSet;
-import java.util.Set;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * 游戏启动器
@@ -20,48 +38,39 @@ public class GameLauncher {
     private static final int GAME_WIDTH = 1280;
     private static final int GAME_HEIGHT = 720;
     
+    /** -Dyingzhou.startupProbe=true 时启动完成即退出，用于冷启动测量和AppCDS训练 */
+    public static final String STARTUP_PROBE_PROPERTY = "yingzhou.startupProbe";
+    
     private GameEngine gameEngine;
     private Scene3DManager scene3DManager;
     private GameUI gameUI;
-    private Set<KeyCode> pressedKeys = new HashSet<>();
-    private double lastMouseX = 0;
-    private double lastMouseY = 0;
-    private boolean mouseInitialized = false;
+    private PerfOverlay perfOverlay;
+    private SessionRecorder sessionRecorder;
+    private WorldClient worldClient;
+    private MockRpcServer ledgerMock;
+    private LedgerClient ledgerClient;
+    private TxPipeline txPipeline;
 
     public void start(Stage stage) {
         try {
             Logger.info("开始启动游戏...");
+            StartupTimeline.mark("启动器开始");
             
-            // 初始化游戏引擎
-            gameEngine = new GameEngine();
-            Logger.info("游戏引擎初始化完成");
-            
-            // 初始化3D场景管理器
-            scene3DManager = new Scene3DManager(gameEngine);
-            Logger.info("3D场景管理器初始化完成");
+            // 存档加载、NPC创建等非界面初始化在后台并行进行
+            StartupOrchestrator orchestrator = new StartupOrchestrator();
+            CompletableFuture<GameEngine> engineReady = orchestrator.initializeEngine();
             
-            // 创建根布局
+            // 创建根布局，引擎就绪前先显示加载提示
             BorderPane root = new BorderPane();
             root.setStyle("-fx-background-color: linear-gradient(to bottom, #000000, #1f2937);");
-            
-            // 设置3D场景为中心
-            root.setCenter(scene3DManager.getSubScene());
-            
-            // 初始化游戏UI
-            gameUI = new GameUI(gameEngine);
-            root.setTop(gameUI.getTopBar());
-            root.setBottom(gameUI.getBottomBar());
-            root.setRight(gameUI.getRightPanel());
-            root.setLeft(gameUI.getLeftPanel());
-            Logger.info("游戏UI初始化完成");
+            Label loadingLabel = new Label("瀛州正在苏醒...");
+            loadingLabel.setFont(Font.font("Microsoft YaHei", FontWeight.BOLD, 24));
+            loadingLabel.setTextFill(Color.rgb(6, 182, 212));
+            root.setCenter(loadingLabel);
             
             // 创建场景
             Scene scene = new Scene(root, GAME_WIDTH, GAME_HEIGHT);
             
-            // 设置键盘和鼠标控制
-            setupControls(scene);
-            Logger.info("控制系统初始化完成");
-            
             // 配置舞台
             stage.setTitle("瀛州纪 | Immortal Ledger - Java版");
             stage.setScene(scene);
@@ -70,22 +79,133 @@ public class GameLauncher {
             // 设置关闭事件
             stage.setOnCloseRequest(event -> {
                 Logger.info("游戏正在关闭...");
-                gameEngine.stop();
-                scene3DManager.stop();
+                if (gameEngine != null) {
+                    gameEngine.stop();
+                    saveProgress(false);
+                }
+                if (scene3DManager != null) {
+                    scene3DManager.stop();
+                }
+                if (gameUI != null) {
+                    gameUI.dispose();
+                }
+                if (worldClient != null) {
+                    worldClient.close();
+                }
+                if (txPipeline != null) {
+                    txPipeline.close();
+                }
+                if (ledgerClient != null) {
+                    ledgerClient.close();
+                }
+                if (ledgerMock != null) {
+                    ledgerMock.close();
+                }
+                if (sessionRecorder != null) {
+                    try {
+                        sessionRecorder.close();
+                    } catch (IOException e) {
+                        Logger.error("保存会话录像失败", e);
+                    }
+                }
                 Logger.close();
             });
             
             stage.show();
+            StartupTimeline.mark("窗口显示");
             Logger.info("游戏窗口显示完成");
+            orchestrator.runAfterFirstFrame(() -> StartupTimeline.mark("首帧"));
+            
+            engineReady.whenComplete((engine, error) -> Platform.runLater(() -> {
+                orchestrator.shutdown();
+                if (error != null) {
+                    Logger.error("游戏引擎初始化失败", error);
+                    loadingLabel.setText("启动失败，请查看日志 yingzhou-game.log");
+                    return;
+                }
+                buildGame(engine, root, scene, orchestrator);
+            }));
+            
+        } catch (Exception e) {
+            Logger.error("游戏启动失败", e);
+            throw e;
+        }
+    }
+
+    /**
+     * 引擎就绪后在FX线程组装3D场景和界面，并启动游戏循环
+     */
+    private void buildGame(GameEngine engine, BorderPane root, Scene scene, StartupOrchestrator orchestrator) {
+        try {
+            gameEngine = engine;
+            Logger.info("游戏引擎初始化完成");
+            
+            // 初始化3D场景管理器
+            scene3DManager = new Scene3DManager(gameEngine);
+            StartupTimeline.mark("3D场景");
+            Logger.info("3D场景管理器初始化完成");
+            
+            // 设置3D场景为中心，性能面板叠加在其上
+            perfOverlay = new PerfOverlay(gameEngine, scene3DManager);
+            StackPane center = new StackPane(scene3DManager.getSubScene(), perfOverlay.getNode());
+            root.setCenter(center);
+            
+            // 初始化游戏UI（子窗口延迟创建）
+            gameUI = new GameUI(gameEngine);
+            root.setTop(gameUI.getTopBar());
+            root.setBottom(gameUI.getBottomBar());
+            root.setRight(gameUI.getRightPanel());
+            root.setLeft(gameUI.getLeftPanel());
+            StartupTimeline.mark("游戏UI");
+            Logger.info("游戏UI初始化完成");
+            
+            // 设置键盘和鼠标控制
+            setupControls(scene);
+            Logger.info("控制系统初始化完成");
+            
+            // 录像须在第一帧之前开始
+            sessionRecorder = SessionRecorder.startIfRequested(gameEngine);
+            
+            // 指定了世界服务器时联机，其他访客显示在场景中
+            worldClient = WorldClient.connectIfRequested(gameEngine);
+            if (worldClient != null) {
+                scene3DManager.setWorldClient(worldClient);
+            }
+            
+            // 指定了账本节点时接链，mock 时先在进程内启动模拟链；界面暂不读取合约，不开启事件索引
+            ledgerMock = MockRpcServer.startIfRequested();
+            ledgerClient = ledgerMock != null
+                    ? LedgerClient.connect(ledgerMock.configure(LedgerConfig.load()))
+                    : LedgerClient.connectIfRequested();
+            if (ledgerClient != null) {
+                // 指定了发送账户时，合约写入交给后台交易管线
+                txPipeline = TxPipeline.startIfRequested(ledgerClient);
+            }
+            
+            // 推进纪元后保存存档并锚定进度，退出时再保存一次
+            gameEngine.getEventBus().subscribeFx(event -> saveProgress(true), GameEventType.EPOCH_ADVANCED);
             
             // 启动游戏循环
             gameEngine.start();
             scene3DManager.start();
             Logger.info("游戏循环启动完成");
             
+            // 游戏画面出现后再预加载子窗口，最后输出启动时间线
+            orchestrator.runAfterFirstFrame(() -> {
+                StartupTimeline.mark("游戏首帧");
+                gameUI.preloadPanels(() -> {
+                    StartupTimeline.log();
+                    if (Boolean.getBoolean(STARTUP_PROBE_PROPERTY)) {
+                        // 启动测量/CDS训练：输出首帧耗时后立即退出
+                        System.out.println("STARTUP_FIRST_FRAME_MS=" + StartupTimeline.getMillis("游戏首帧"));
+                        Platform.exit();
+                    }
+                });
+            });
+            
             Logger.info("=== 游戏启动成功！===");
             Logger.info("日志文件位置: yingzhou-game.log");
-            Logger.info("控制说明: WASD移动, 鼠标控制视角, E交互, ESC菜单");
+            Logger.info("控制说明: WASD移动, 鼠标控制视角, E交互, ESC菜单, F3性能面板");
             
         } catch (Exception e) {
             Logger.error("游戏启动失败", e);
@@ -93,121 +213,37 @@ public class GameLauncher {
         }
     }
 
-    private void setupControls(Scene scene) {
-        // 键盘按下
-        scene.setOnKeyPressed(event -> {
-            try {
-                KeyCode code = event.getCode();
-                
-                // 避免重复处理
-                if (pressedKeys.contains(code)) {
-                    return;
-                }
-                pressedKeys.add(code);
-                
-                Logger.debug("按键按下: " + code);
-                
-                switch (code) {
-                    case W -> gameEngine.getPlayer().moveForward();
-                    case S -> gameEngine.getPlayer().moveBackward();
-                    case A -> gameEngine.getPlayer().moveLeft();
-                    case D -> gameEngine.getPlayer().moveRight();
-                    case SPACE -> gameEngine.getPlayer().jump();
-                    case ESCAPE -> {
-                        gameUI.toggleMenu();
-                        Logger.info("切换菜单");
-                    }
-                    case E -> {
-                        gameEngine.interactWithNearestNPC();
-                        Logger.info("尝试与NPC交互");
-                    }
-                    default -> {}
+    /**
+     * 保存存档；anchor 为 true 且接了交易管线时，再把进度的 Merkle 根写入 WorldLedger
+     */
+    private void saveProgress(boolean anchor) {
+        GameData gameData = gameEngine.getGameData();
+        gameData.save();
+        if (anchor && txPipeline != null) {
+            gameData.anchorProgress(txPipeline).whenComplete((receipt, error) -> {
+                if (error != null) {
+                    Logger.warn("进度锚定失败: " + error.getMessage());
+                } else {
+                    Logger.info("进度已锚定，区块 " + receipt.getBlockNumber());
                 }
-            } catch (Exception e) {
-                Logger.error("处理按键按下事件出错", e);
-            }
-        });
-        
-        // 键盘释放
-        scene.setOnKeyReleased(event -> {
-            try {
-                KeyCode code = event.getCode();
-                pressedKeys.remove(code);
-                
-                Logger.debug("按键释放: " + code);
-                
-                switch (code) {
-                    case W, S, A, D -> {
-                        // 检查是否所有移动键都已释放
-                        if (!pressedKeys.contains(KeyCode.W) && 
-                            !pressedKeys.contains(KeyCode.S) && 
-                            !pressedKeys.contains(KeyCode.A) && 
-                            !pressedKeys.contains(KeyCode.D)) {
-                            gameEngine.getPlayer().stopMoving();
-                        }
-                    }
-                    default -> {}
-                }
-            } catch (Exception e) {
-                Logger.error("处理按键释放事件出错", e);
-            }
-        });
-        
-        // 鼠标移动（视角控制）
-        scene.setOnMouseMoved(event -> {
-            try {
-                if (!mouseInitialized) {
-                    lastMouseX = event.getSceneX();
-                    lastMouseY = event.getSceneY();
-                    mouseInitialized = true;
-                    return;
-                }
-                
-                double deltaX = event.getSceneX() - lastMouseX;
-                double deltaY = event.getSceneY() - lastMouseY;
-                
-                lastMouseX = event.getSceneX();
-                lastMouseY = event.getSceneY();
-                
-                gameEngine.getPlayer().rotateView(deltaX, deltaY);
-            } catch (Exception e) {
-                Logger.error("处理鼠标移动事件出错", e);
-            }
-        });
-        
-        // 鼠标拖拽（视角控制）
-        scene.setOnMouseDragged(event -> {
-            try {
-                if (!mouseInitialized) {
-                    lastMouseX = event.getSceneX();
-                    lastMouseY = event.getSceneY();
-                    mouseInitialized = true;
-                    return;
-                }
-                
-                double deltaX = event.getSceneX() - lastMouseX;
-                double deltaY = event.getSceneY() - lastMouseY;
-                
-                lastMouseX = event.getSceneX();
-                lastMouseY = event.getSceneY();
-                
-                gameEngine.getPlayer().rotateView(deltaX, deltaY);
-            } catch (Exception e) {
-                Logger.error("处理鼠标拖拽事件出错", e);
-            }
-        });
-        
-        // 鼠标点击交互
-        scene.setOnMouseClicked(event -> {
-            try {
-                if (event.getClickCount() == 2) {
-                    Logger.info("双击鼠标，尝试与NPC交互");
-                    gameEngine.interactWithNearestNPC();
+            });
+        }
+    }
+
+    private void setupControls(Scene scene) {
+        // 事件处理只记录输入，由逻辑帧统一取出应用；界面操作在FX线程立即处理
+        ActionMap actionMap = ActionMap.loadOrDefaults(Path.of(ActionMap.BINDINGS_FILE));
+        SceneInputHandler inputHandler = new SceneInputHandler(gameEngine.getInputQueue(), actionMap, action -> {
+            switch (action) {
+                case TOGGLE_MENU -> {
+                    gameUI.toggleMenu();
+                    Logger.info("切换菜单");
                 }
-            } catch (Exception e) {
-                Logger.error("处理鼠标点击事件出错", e);
+                case TOGGLE_PERF -> perfOverlay.toggle();
+                default -> {}
             }
         });
+        inputHandler.install(scene);
         
         Logger.info("控制系统设置完成");
     }
@@ -0,0 +1,58 @@
+package com.yingzhou.game;
+
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 启动编排器
+ * 窗口先行显示，非界面初始化（存档、NPC）在后台线程并行完成，
+ * 首帧渲染之后再安排子窗口等次要工作。
+ */
+public class StartupOrchestrator {
+
+    private final ExecutorService executor;
+
+    public StartupOrchestrator() {
+        int threads = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+        AtomicInteger counter = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "startup-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 在后台并行初始化游戏引擎
+     */
+    public CompletableFuture<GameEngine> initializeEngine() {
+        return GameEngine.createAsync(executor);
+    }
+
+    /**
+     * 等到下一次渲染脉冲（即画面真正提交之后）再在FX线程执行任务
+     * 必须在FX线程调用
+     */
+    public void runAfterFirstFrame(Runnable task) {
+        new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                stop();
+                // 当前脉冲的渲染在 handle 之后进行，再推迟一次确保首帧已提交
+                Platform.runLater(task);
+            }
+        }.start();
+    }
+
+    /**
+     * 初始化完成后释放后台线程
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
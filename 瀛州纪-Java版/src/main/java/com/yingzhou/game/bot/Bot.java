@@ -0,0 +1,101 @@
+package com.yingzhou.game.bot;
+
+import com.yingzhou.game.GameEngine;
+import com.yingzhou.game.input.Action;
+import com.yingzhou.game.input.InputSnapshot;
+import com.yingzhou.game.player.Player;
+
+import java.util.SplittableRandom;
+
+/**
+ * 机器人玩家
+ * 包装引擎中的一名 {@link Player}，由 {@link BotBehavior} 决定每帧的输入，并统计各类操作次数
+ */
+public class Bot {
+
+    private final int id;
+    private final Player player;
+    private final BotBehavior behavior;
+    private final SplittableRandom random;
+
+    private int heldMask;
+    long interactions;
+    long dialogues;
+    long fragments;
+    long epochAdvances;
+
+    public Bot(int id, Player player, BotBehavior behavior, SplittableRandom random) {
+        this.id = id;
+        this.player = player;
+        this.behavior = behavior;
+        this.random = random;
+    }
+
+    void think(GameEngine engine) {
+        behavior.think(this, engine);
+    }
+
+    /**
+     * 设置持续动作（移动）的按住状态
+     */
+    public void hold(Action action, boolean held) {
+        heldMask = held ? heldMask | action.mask() : heldMask & ~action.mask();
+        InputSnapshot pending = player.getPendingInput();
+        pending.set(heldMask, pending.getPressedMask(), pending.getMouseDeltaX(), pending.getMouseDeltaY());
+    }
+
+    public void releaseAll() {
+        heldMask = 0;
+        InputSnapshot pending = player.getPendingInput();
+        pending.set(0, pending.getPressedMask(), pending.getMouseDeltaX(), pending.getMouseDeltaY());
+    }
+
+    /**
+     * 按一下触发类动作（跳跃、交互），在下一帧生效
+     */
+    public void press(Action action) {
+        if (action == Action.INTERACT) {
+            interactions++;
+        }
+        InputSnapshot pending = player.getPendingInput();
+        pending.set(heldMask, pending.getPressedMask() | action.mask(),
+            pending.getMouseDeltaX(), pending.getMouseDeltaY());
+    }
+
+    /**
+     * 累加鼠标位移
+     */
+    public void look(double deltaX, double deltaY) {
+        InputSnapshot pending = player.getPendingInput();
+        pending.set(heldMask, pending.getPressedMask(),
+            pending.getMouseDeltaX() + deltaX, pending.getMouseDeltaY() + deltaY);
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public Player getPlayer() {
+        return player;
+    }
+
+    public SplittableRandom getRandom() {
+        return random;
+    }
+
+    public long getInteractions() {
+        return interactions;
+    }
+
+    public long getDialogues() {
+        return dialogues;
+    }
+
+    public long getFragments() {
+        return fragments;
+    }
+
+    public long getEpochAdvances() {
+        return epochAdvances;
+    }
+}
@@ -0,0 +1,13 @@
+package com.yingzhou.game.bot;
+
+import com.yingzhou.game.GameEngine;
+
+/**
+ * 机器人行为
+ * 每个逻辑帧之前调用一次，通过 {@link Bot} 写入本帧输入或直接调用引擎的玩家命令。
+ * 每个机器人持有独立的行为实例，行为可以保存自己的状态。
+ */
+public interface BotBehavior {
+
+    void think(Bot bot, GameEngine engine);
+}
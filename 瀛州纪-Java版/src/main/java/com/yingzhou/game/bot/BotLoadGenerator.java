@@ -0,0 +1,213 @@
+package com.yingzhou.game.bot;
+
+import com.yingzhou.game.GameEngine;
+import com.yingzhou.game.epoch.EpochManager;
+import com.yingzhou.game.input.InputSnapshot;
+import com.yingzhou.perf.LatencyHistogram;
+import com.yingzhou.perf.PerfMonitor;
+import com.yingzhou.util.CommandLineOptions;
+import com.yingzhou.util.Logger;
+import javafx.geometry.Point3D;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 机器人压测
+ * 在无界面的引擎中加入大量机器人玩家，全速（或按实时帧率）推进逻辑帧，
+ * 报告逻辑帧耗时分位数、吞吐量、分配速率和堆增长，用于多人展馆的硬件选型。
+ *
+ * 命令行用法:
+ * <pre>
+ *   java -cp yingzhou-java-1.0.jar com.yingzhou.game.bot.BotLoadGenerator \
+ *       bots=2000 ticks=18000 behavior=mixed seed=42 hz=60 warmup=600 report=1800 [realtime]
+ * </pre>
+ * behavior 可选 tour（走访NPC）、random（随机游走）、mixed（各一半）。
+ * realtime 时按 hz 定时推进并统计超出帧预算的次数，否则全速运行测量容量。
+ * 游戏内部的日志默认只输出警告以上，只保留报告；加 log=INFO 可恢复。
+ */
+public class BotLoadGenerator {
+
+    private static final double SPAWN_RADIUS = 30;
+
+    private final int botCount;
+    private final long ticks;
+    private final long warmupTicks;
+    private final long reportEvery;
+    private final int tickHz;
+    private final boolean realtime;
+    private final String behavior;
+    private final long seed;
+    private final PrintStream report;
+
+    private GameEngine engine;
+    private final List<Bot> bots = new ArrayList<>();
+
+    public BotLoadGenerator(Map<String, String> options, PrintStream report) {
+        this.botCount = Integer.parseInt(options.getOrDefault("bots", "1000"));
+        this.ticks = Long.parseLong(options.getOrDefault("ticks", "6000"));
+        this.warmupTicks = Long.parseLong(options.getOrDefault("warmup", "600"));
+        this.reportEvery = Long.parseLong(options.getOrDefault("report", "1800"));
+        this.tickHz = Integer.parseInt(options.getOrDefault("hz", "60"));
+        this.realtime = options.containsKey("realtime");
+        this.behavior = options.getOrDefault("behavior", "mixed");
+        this.seed = Long.parseLong(options.getOrDefault("seed", "42"));
+        this.report = report;
+    }
+
+    private BotBehavior createBehavior(int id) {
+        return switch (behavior) {
+            case "tour" -> new NpcTourBehavior();
+            case "random" -> new RandomWalkBehavior();
+            case "mixed" -> id % 2 == 0 ? new NpcTourBehavior() : new RandomWalkBehavior();
+            default -> throw new IllegalArgumentException("未知的行为: " + behavior);
+        };
+    }
+
+    private void spawnBots() {
+        engine = new GameEngine();
+        engine.setSeed(seed);
+        SplittableRandom random = engine.getRandom();
+        for (int i = 0; i < botCount; i++) {
+            double angle = random.nextDouble(Math.PI * 2);
+            double radius = Math.sqrt(random.nextDouble()) * SPAWN_RADIUS;
+            Point3D spawn = new Point3D(Math.cos(angle) * radius, 0, Math.sin(angle) * radius);
+            bots.add(new Bot(i, engine.addPlayer(spawn), createBehavior(i), random.split()));
+        }
+    }
+
+    public void run() {
+        spawnBots();
+        long tickNanos = 1_000_000_000L / tickHz;
+        InputSnapshot idle = new InputSnapshot();
+        report.printf("机器人 %d 个 (%s), 预热 %d 帧, 测量 %d 帧, 帧预算 %.2f ms%s%n",
+            botCount, behavior, warmupTicks, ticks, tickNanos / 1e6, realtime ? ", 实时模式" : ", 全速模式");
+
+        for (long t = 0; t < warmupTicks; t++) {
+            step(tickNanos, idle);
+        }
+
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        System.gc();
+        long heapBefore = memory.getHeapMemoryUsage().getUsed();
+        long allocatedBefore = PerfMonitor.getTotalAllocatedBytes();
+        long gcCountBefore = PerfMonitor.getGcCount();
+        long gcMillisBefore = PerfMonitor.getGcTimeMillis();
+
+        LatencyHistogram tickTimes = new LatencyHistogram("引擎逻辑帧");
+        LatencyHistogram thinkTimes = new LatencyHistogram("机器人决策");
+        LatencyHistogram.Snapshot lastReport = tickTimes.snapshot();
+        long overBudget = 0;
+        long start = System.nanoTime();
+        long intervalStart = start;
+        long deadline = start;
+
+        for (long t = 1; t <= ticks; t++) {
+            long thinkStart = System.nanoTime();
+            for (Bot bot : bots) {
+                bot.think(engine);
+            }
+            long tickStart = System.nanoTime();
+            engine.tick(tickNanos, idle);
+            long tickEnd = System.nanoTime();
+            thinkTimes.record(tickStart - thinkStart);
+            tickTimes.record(tickEnd - tickStart);
+
+            if (realtime) {
+                deadline += tickNanos;
+                if (tickEnd > deadline) {
+                    overBudget++;
+                    deadline = tickEnd;
+                } else {
+                    LockSupport.parkNanos(deadline - tickEnd);
+                }
+            }
+
+            if (reportEvery > 0 && t % reportEvery == 0) {
+                LatencyHistogram.Snapshot now = tickTimes.snapshot();
+                LatencyHistogram.Snapshot interval = now.minus(lastReport);
+                long nowNanos = System.nanoTime();
+                report.printf("  [%6d帧] 逻辑帧 p50 %7.3f ms  p99 %7.3f ms  max %7.3f ms | %.0f 帧/秒 | 堆 %s%n",
+                    t, interval.getValueAtPercentile(50) / 1e6, interval.getValueAtPercentile(99) / 1e6,
+                    interval.getMax() / 1e6, reportEvery / ((nowNanos - intervalStart) / 1e9),
+                    formatBytes(memory.getHeapMemoryUsage().getUsed()));
+                lastReport = now;
+                intervalStart = nowNanos;
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+
+        long allocated = PerfMonitor.getTotalAllocatedBytes() - allocatedBefore;
+        long gcCount = PerfMonitor.getGcCount() - gcCountBefore;
+        long gcMillis = PerfMonitor.getGcTimeMillis() - gcMillisBefore;
+        System.gc();
+        long heapAfter = memory.getHeapMemoryUsage().getUsed();
+
+        printSummary(tickTimes.snapshot(), thinkTimes.snapshot(), elapsed, tickNanos, overBudget,
+            heapBefore, heapAfter, allocated, gcCount, gcMillis);
+    }
+
+    private void step(long tickNanos, InputSnapshot idle) {
+        for (Bot bot : bots) {
+            bot.think(engine);
+        }
+        engine.tick(tickNanos, idle);
+    }
+
+    private void printSummary(LatencyHistogram.Snapshot tick, LatencyHistogram.Snapshot think, long elapsed,
+                              long tickNanos, long overBudget, long heapBefore, long heapAfter,
+                              long allocated, long gcCount, long gcMillis) {
+        double seconds = elapsed / 1e9;
+        long interactions = 0;
+        long dialogues = 0;
+        long fragments = 0;
+        long advances = 0;
+        int furthest = 0;
+        for (Bot bot : bots) {
+            interactions += bot.getInteractions();
+            dialogues += bot.getDialogues();
+            fragments += bot.getFragments();
+            advances += bot.getEpochAdvances();
+            furthest = Math.max(furthest, engine.getEpochState(bot.getPlayer()).getEpoch().ordinal());
+        }
+
+        report.println("=== 压测结果 ===");
+        report.printf("引擎逻辑帧: p50 %.3f  p90 %.3f  p99 %.3f  p99.9 %.3f  max %.3f  平均 %.3f (ms)%n",
+            tick.getValueAtPercentile(50) / 1e6, tick.getValueAtPercentile(90) / 1e6,
+            tick.getValueAtPercentile(99) / 1e6, tick.getValueAtPercentile(99.9) / 1e6,
+            tick.getMax() / 1e6, tick.getMean() / 1e6);
+        report.printf("机器人决策: p50 %.3f  p99 %.3f (ms，模拟客户端输入，不计入引擎)%n",
+            think.getValueAtPercentile(50) / 1e6, think.getValueAtPercentile(99) / 1e6);
+        report.printf("帧预算占用: p99 为预算的 %.1f%%%s%n",
+            tick.getValueAtPercentile(99) * 100.0 / tickNanos,
+            realtime ? "，超出预算 " + overBudget + " 帧" : "");
+        report.printf("吞吐量: %.0f 帧/秒, %.0f 玩家更新/秒%n",
+            ticks / seconds, ticks * (double) (botCount + 1) / seconds);
+        report.printf("玩家操作: 交互 %d, 对话 %d, 碎片 %d, 纪元推进 %d, 最远纪元 %s%n",
+            interactions, dialogues, fragments, advances,
+            EpochManager.Epoch.values()[furthest].getName());
+        report.printf("内存: 堆 %s -> %s (增长 %s), 分配 %s (%.0f 字节/玩家/帧), GC %d 次 %d ms%n",
+            formatBytes(heapBefore), formatBytes(heapAfter), formatBytes(heapAfter - heapBefore),
+            formatBytes(allocated), allocated / (double) ticks / (botCount + 1), gcCount, gcMillis);
+    }
+
+    private static String formatBytes(long bytes) {
+        if (Math.abs(bytes) >= 1 << 20) {
+            return String.format("%.1fMB", bytes / (double) (1 << 20));
+        }
+        return String.format("%.1fKB", bytes / 1024.0);
+    }
+
+    public static void main(String[] args) {
+        Map<String, String> options = CommandLineOptions.parse(args);
+        // NPC交互、碎片收集等逐次记日志，数千机器人时会淹没报告并把测量变成日志IO
+        Logger.setLevel(options.getOrDefault("log", "WARN"));
+        new BotLoadGenerator(options, System.out).run();
+    }
+}
@@ -0,0 +1,100 @@
+package com.yingzhou.game.bot;
+
+import com.yingzhou.game.GameEngine;
+import com.yingzhou.game.input.Action;
+import com.yingzhou.game.player.Player;
+import com.yingzhou.npc.BaseNPC;
+import com.yingzhou.npc.NPCManager;
+import javafx.geometry.Point3D;
+
+import java.util.List;
+
+/**
+ * 参观路线行为
+ * 模拟展馆访客：转向并走到一个NPC面前，交互、对话，偶尔收集碎片并尝试推进纪元，
+ * 停留一会儿后前往下一个NPC
+ */
+public class NpcTourBehavior implements BotBehavior {
+
+    private static final String[] MESSAGES = {
+        "你好", "你能预见未来吗？", "这是宿命吗？", "讲讲瀛州的历史", "如何建造新的城池？",
+        "交易的规则是什么？", "熵会吞噬一切吗？", "你记得什么？"
+    };
+    // 每帧最多转动的角度，避免瞬间转身
+    private static final double MAX_TURN_DEGREES = 30;
+    private static final double FACING_TOLERANCE = 20;
+
+    private final double dialogueChance;
+    private final double fragmentChance;
+
+    private int targetIndex = -1;
+    private int dwellTicks;
+
+    /**
+     * @param dialogueChance 到达NPC后发起对话的概率
+     * @param fragmentChance 到达NPC后收集到碎片的概率
+     */
+    public NpcTourBehavior(double dialogueChance, double fragmentChance) {
+        this.dialogueChance = dialogueChance;
+        this.fragmentChance = fragmentChance;
+    }
+
+    public NpcTourBehavior() {
+        this(0.5, 0.1);
+    }
+
+    @Override
+    public void think(Bot bot, GameEngine engine) {
+        List<BaseNPC> npcs = engine.getNPCManager().getNPCs();
+        if (targetIndex < 0) {
+            targetIndex = bot.getRandom().nextInt(npcs.size());
+        }
+        if (dwellTicks > 0) {
+            if (--dwellTicks == 0) {
+                targetIndex = nextTarget(bot, npcs.size());
+            }
+            return;
+        }
+
+        Player player = bot.getPlayer();
+        BaseNPC target = npcs.get(targetIndex);
+        Point3D position = player.getPosition();
+        double dx = target.getPosition().getX() - position.getX();
+        double dz = target.getPosition().getZ() - position.getZ();
+
+        if (Math.hypot(dx, dz) < NPCManager.getInteractionDistance() * 0.6) {
+            arrive(bot, engine, target);
+            return;
+        }
+
+        // 前进方向为 (sin yaw, -cos yaw)
+        double desiredYaw = Math.toDegrees(Math.atan2(dx, -dz));
+        double diff = ((desiredYaw - player.getYaw()) % 360 + 540) % 360 - 180;
+        double turn = Math.max(-MAX_TURN_DEGREES, Math.min(MAX_TURN_DEGREES, diff));
+        if (turn != 0) {
+            bot.look(turn / Player.MOUSE_SENSITIVITY, 0);
+        }
+        bot.hold(Action.MOVE_FORWARD, Math.abs(diff) < FACING_TOLERANCE);
+    }
+
+    private void arrive(Bot bot, GameEngine engine, BaseNPC npc) {
+        bot.releaseAll();
+        bot.press(Action.INTERACT);
+        if (bot.getRandom().nextDouble() < dialogueChance) {
+            engine.sendDialogue(bot.getPlayer(), npc, MESSAGES[bot.getRandom().nextInt(MESSAGES.length)]);
+            bot.dialogues++;
+        }
+        if (bot.getRandom().nextDouble() < fragmentChance) {
+            engine.collectFragment(bot.getPlayer());
+            bot.fragments++;
+            if (engine.advanceEpoch(bot.getPlayer())) {
+                bot.epochAdvances++;
+            }
+        }
+        dwellTicks = 30 + bot.getRandom().nextInt(90);
+    }
+
+    private static int nextTarget(Bot bot, int npcCount) {
+        return npcCount <= 1 ? 0 : bot.getRandom().nextInt(npcCount);
+    }
+}
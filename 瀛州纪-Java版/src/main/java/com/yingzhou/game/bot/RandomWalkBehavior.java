@@ -0,0 +1,34 @@
+package com.yingzhou.game.bot;
+
+import com.yingzhou.game.GameEngine;
+import com.yingzhou.game.input.Action;
+
+/**
+ * 随机游走行为
+ * 不定期更换移动方向、随机转动视角，偶尔跳跃和交互
+ */
+public class RandomWalkBehavior implements BotBehavior {
+
+    private static final Action[] MOVES = {
+        Action.MOVE_FORWARD, Action.MOVE_BACKWARD, Action.MOVE_LEFT, Action.MOVE_RIGHT
+    };
+
+    @Override
+    public void think(Bot bot, GameEngine engine) {
+        var random = bot.getRandom();
+        if (random.nextInt(60) == 0) {
+            for (Action move : MOVES) {
+                bot.hold(move, random.nextInt(3) == 0);
+            }
+        }
+        if (random.nextInt(4) == 0) {
+            bot.look(random.nextDouble(-20, 20), random.nextDouble(-5, 5));
+        }
+        if (random.nextInt(240) == 0) {
+            bot.press(Action.JUMP);
+        }
+        if (random.nextInt(300) == 0) {
+            bot.press(Action.INTERACT);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.yingzhou.game.epoch;
+
+/**
+ * 熵化曲线查找表
+ * 加载配置时把折线按固定间隔采样成数组，运行时按纪元内时间直接取下标
+ *
+ * 最后一个节点之后曲线保持不变，查找表只覆盖到最后一个节点为止。
+ */
+public final class EntropyCurve {
+
+    private final double sampleSeconds;
+    private final float[] samples;
+
+    EntropyCurve(double[][] knots, double sampleSeconds) {
+        this.sampleSeconds = sampleSeconds;
+        double end = knots[knots.length - 1][0];
+        int count = (int) Math.ceil(end / sampleSeconds) + 1;
+        samples = new float[count];
+
+        int segment = 0;
+        for (int i = 0; i < count; i++) {
+            double t = Math.min(end, i * sampleSeconds);
+            while (segment < knots.length - 1 && knots[segment + 1][0] < t) {
+                segment++;
+            }
+            samples[i] = (float) interpolate(knots, segment, t);
+        }
+    }
+
+    private static double interpolate(double[][] knots, int segment, double t) {
+        if (t <= knots[0][0]) {
+            return knots[0][1];
+        }
+        if (segment == knots.length - 1) {
+            return knots[segment][1];
+        }
+        double[] from = knots[segment];
+        double[] to = knots[segment + 1];
+        return from[1] + (to[1] - from[1]) * (t - from[0]) / (to[0] - from[0]);
+    }
+
+    /**
+     * 纪元内时间对应的采样下标，超过曲线末端时停在最后一个采样
+     */
+    int sampleIndex(double epochTime) {
+        if (epochTime <= 0) {
+            return 0;
+        }
+        double index = epochTime / sampleSeconds;
+        return index >= samples.length - 1 ? samples.length - 1 : (int) index;
+    }
+
+    float sample(int index) {
+        return samples[index];
+    }
+
+    /**
+     * 查表得到熵化程度
+     */
+    public double valueAt(double epochTime) {
+        return samples[sampleIndex(epochTime)];
+    }
+
+    /**
+     * 曲线是否已到达末端（之后不再变化）
+     */
+    boolean isSettled(int sampleIndex) {
+        return sampleIndex == samples.length - 1;
+    }
+}
@@ -0,0 +1,133 @@
+package com.yingzhou.game.epoch;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.yingzhou.util.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 纪元配置
+ * 对应 data/epochs.json，字段与链上 EpochManager 合约的 EpochState / AdvancementRequirement 一致
+ *
+ * 默认从类路径读取；设置 -Dyingzhou.epochConfig=文件路径 可以在不重新打包的情况下调整数值。
+ */
+public class EpochConfig {
+
+    public static final String CONFIG_PROPERTY = "yingzhou.epochConfig";
+    private static final String RESOURCE = "/data/epochs.json";
+
+    /**
+     * 熵化曲线查找表的采样间隔（秒）
+     */
+    double entropySampleSeconds = 0.1;
+    List<EpochDefinition> epochs = new ArrayList<>();
+
+    /**
+     * 单个纪元的配置
+     */
+    public static class EpochDefinition {
+        String id;
+        int harmony;
+        int population;
+        Requirement requirement;
+        // [秒, 熵化程度] 折线节点，时间递增，最后一个节点之后保持不变
+        double[][] entropyCurve;
+    }
+
+    /**
+     * 推进到下一纪元的条件，最终纪元没有
+     */
+    public static class Requirement {
+        int minFragments;
+        List<String> requiredNpcs = new ArrayList<>();
+        int minInteractions;
+    }
+
+    /**
+     * 读取配置：系统属性指定的文件优先，读取失败时退回类路径中的默认配置
+     */
+    public static EpochConfig load() {
+        String override = System.getProperty(CONFIG_PROPERTY);
+        if (override != null) {
+            Path path = Paths.get(override);
+            try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+                EpochConfig config = parse(reader);
+                Logger.info("已加载纪元配置: " + path);
+                return config;
+            } catch (IOException | JsonParseException | IllegalArgumentException e) {
+                Logger.warn("纪元配置 " + path + " 无效，使用默认配置: " + e.getMessage());
+            }
+        }
+        try (InputStream in = EpochConfig.class.getResourceAsStream(RESOURCE)) {
+            if (in == null) {
+                throw new IllegalStateException("缺少默认纪元配置 " + RESOURCE);
+            }
+            return parse(new InputStreamReader(in, StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new IllegalStateException("读取默认纪元配置失败", e);
+        }
+    }
+
+    static EpochConfig parse(Reader reader) {
+        EpochConfig config = new Gson().fromJson(reader, EpochConfig.class);
+        if (config == null) {
+            throw new IllegalArgumentException("配置为空");
+        }
+        config.validate();
+        return config;
+    }
+
+    private void validate() {
+        if (!(entropySampleSeconds > 0)) {
+            throw new IllegalArgumentException("entropySampleSeconds 必须大于0");
+        }
+        EpochManager.Epoch[] values = EpochManager.Epoch.values();
+        if (epochs == null || epochs.size() != values.length) {
+            throw new IllegalArgumentException("需要恰好 " + values.length + " 个纪元");
+        }
+        Set<String> requiredNpcs = new HashSet<>();
+        for (int i = 0; i < values.length; i++) {
+            EpochDefinition definition = epochs.get(i);
+            if (definition == null || !values[i].name().equals(definition.id)) {
+                throw new IllegalArgumentException("第 " + (i + 1) + " 个纪元应为 " + values[i].name());
+            }
+            if (definition.entropyCurve == null || definition.entropyCurve.length == 0) {
+                throw new IllegalArgumentException(definition.id + " 缺少熵化曲线");
+            }
+            double previous = -1;
+            for (double[] knot : definition.entropyCurve) {
+                if (knot == null || knot.length != 2 || knot[0] <= previous) {
+                    throw new IllegalArgumentException(definition.id + " 熵化曲线节点必须为 [秒, 值] 且时间递增");
+                }
+                previous = knot[0];
+            }
+            boolean last = i == values.length - 1;
+            if (!last && definition.requirement == null) {
+                throw new IllegalArgumentException(definition.id + " 缺少推进条件");
+            }
+            if (definition.requirement != null) {
+                List<String> npcs = definition.requirement.requiredNpcs;
+                if (npcs == null || npcs.contains(null)) {
+                    throw new IllegalArgumentException(definition.id + " 的 requiredNpcs 必须是NPC名称列表");
+                }
+                requiredNpcs.addAll(npcs);
+            }
+        }
+        // EpochEngine 用 long 位掩码记录已交互的NPC
+        if (requiredNpcs.size() > Long.SIZE) {
+            throw new IllegalArgumentException("推进条件中的NPC超过 " + Long.SIZE + " 个");
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.yingzhou.game.epoch;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 纪元规则引擎
+ * 推进条件和熵化曲线来自 {@link EpochConfig}，状态保存在每个玩家各自的 {@link EpochState} 中，
+ * 一个引擎实例可以同时服务任意多个玩家。
+ *
+ * 推进条件只在碎片、交互或纪元变化时重新判断；熵化程度只在跨过查找表采样点时重新取值，
+ * 曲线到达末端后不再计算。所有方法都应在游戏循环线程调用。
+ */
+public class EpochEngine {
+
+    private static final EpochManager.Epoch[] EPOCHS = EpochManager.Epoch.values();
+
+    private final EpochRequirement[] requirements = new EpochRequirement[EPOCHS.length];
+    private final EntropyCurve[] curves = new EntropyCurve[EPOCHS.length];
+    private final int[] harmony = new int[EPOCHS.length];
+    private final int[] population = new int[EPOCHS.length];
+    // 推进条件里出现过的NPC名称 -> 位号
+    private final Map<String, Integer> npcBits = new HashMap<>();
+
+    public EpochEngine(EpochConfig config) {
+        for (int i = 0; i < EPOCHS.length; i++) {
+            EpochConfig.EpochDefinition definition = config.epochs.get(i);
+            curves[i] = new EntropyCurve(definition.entropyCurve, config.entropySampleSeconds);
+            harmony[i] = definition.harmony;
+            population[i] = definition.population;
+
+            EpochConfig.Requirement requirement = definition.requirement;
+            if (requirement != null && i < EPOCHS.length - 1) {
+                long mask = 0;
+                for (String npc : requirement.requiredNpcs) {
+                    mask |= 1L << bitFor(npc);
+                }
+                requirements[i] = new EpochRequirement(requirement.minFragments,
+                    List.copyOf(requirement.requiredNpcs), mask, requirement.minInteractions);
+            }
+        }
+    }
+
+    /**
+     * 使用默认配置（见 {@link EpochConfig#load()}）
+     */
+    public static EpochEngine load() {
+        return new EpochEngine(EpochConfig.load());
+    }
+
+    private int bitFor(String npc) {
+        Integer bit = npcBits.get(npc);
+        if (bit == null) {
+            if (npcBits.size() == Long.SIZE) {
+                throw new IllegalArgumentException("推进条件中的NPC超过 " + Long.SIZE + " 个");
+            }
+            bit = npcBits.size();
+            npcBits.put(npc, bit);
+        }
+        return bit;
+    }
+
+    /**
+     * 为一名新玩家创建处于创世纪元的状态
+     */
+    public EpochState createState() {
+        EpochState state = new EpochState();
+        evaluateRequirement(state);
+        evaluateEntropy(state, 0);
+        return state;
+    }
+
+    /**
+     * 推进时间
+     *
+     * @return 熵化程度是否变化
+     */
+    public boolean update(EpochState state, double deltaTime) {
+        state.epochTime += deltaTime;
+        state.totalTime += deltaTime;
+        EntropyCurve curve = curves[state.epoch.ordinal()];
+        if (curve.isSettled(state.entropySample)) {
+            return false;
+        }
+        int sample = curve.sampleIndex(state.epochTime);
+        if (sample == state.entropySample) {
+            return false;
+        }
+        double previous = state.entropy;
+        evaluateEntropy(state, sample);
+        return state.entropy != previous;
+    }
+
+    public void recordFragment(EpochState state) {
+        state.fragmentsCollected++;
+        evaluateRequirement(state);
+    }
+
+    /**
+     * 记录一次与NPC的交互（交互键或对话）
+     */
+    public void recordInteraction(EpochState state, String npcName) {
+        state.interactions++;
+        Integer bit = npcBits.get(npcName);
+        if (bit != null) {
+            state.npcMask |= 1L << bit;
+        }
+        evaluateRequirement(state);
+    }
+
+    /**
+     * 条件满足时推进到下一纪元
+     *
+     * @return 是否已推进
+     */
+    public boolean advance(EpochState state) {
+        if (!state.canAdvance) {
+            return false;
+        }
+        enter(state, EPOCHS[state.epoch.ordinal() + 1]);
+        return true;
+    }
+
+    /**
+     * 直接切换纪元（读档、调试），不检查条件
+     */
+    public void setEpoch(EpochState state, EpochManager.Epoch epoch) {
+        if (state.epoch != epoch) {
+            enter(state, epoch);
+        }
+    }
+
+    /**
+     * 恢复纪元和已收集的碎片数，纪元内计时从零开始
+     */
+    public void restore(EpochState state, EpochManager.Epoch epoch, int fragmentsCollected) {
+        state.fragmentsCollected = fragmentsCollected;
+        enter(state, epoch);
+    }
+
+    private void enter(EpochState state, EpochManager.Epoch epoch) {
+        state.epoch = epoch;
+        state.epochTime = 0;
+        state.enteredAt[epoch.ordinal()] = state.totalTime;
+        evaluateRequirement(state);
+        evaluateEntropy(state, 0);
+    }
+
+    private void evaluateRequirement(EpochState state) {
+        EpochRequirement requirement = requirements[state.epoch.ordinal()];
+        state.canAdvance = requirement != null && requirement.isMet(state);
+    }
+
+    private void evaluateEntropy(EpochState state, int sample) {
+        state.entropySample = sample;
+        state.entropy = curves[state.epoch.ordinal()].sample(sample);
+    }
+
+    /**
+     * 推进到下一纪元的条件，最终纪元返回 null
+     */
+    public EpochRequirement getRequirement(EpochManager.Epoch epoch) {
+        return requirements[epoch.ordinal()];
+    }
+
+    public EntropyCurve getEntropyCurve(EpochManager.Epoch epoch) {
+        return curves[epoch.ordinal()];
+    }
+
+    /**
+     * 纪元和谐度 0-100
+     */
+    public int getHarmony(EpochManager.Epoch epoch) {
+        return harmony[epoch.ordinal()];
+    }
+
+    public void setHarmony(EpochManager.Epoch epoch, int value) {
+        if (value < 0 || value > 100) {
+            throw new IllegalArgumentException("和谐度必须在0-100之间: " + value);
+        }
+        harmony[epoch.ordinal()] = value;
+    }
+
+    /**
+     * 纪元的数字生命数量
+     */
+    public int getPopulation(EpochManager.Epoch epoch) {
+        return population[epoch.ordinal()];
+    }
+}
@@ -1,10 +1,15 @@
 package com.yingzhou.game.epoch;
 
+import com.yingzhou.game.event.GameEventBus;
+import com.yingzhou.perf.EpochTransitionEvent;
 import javafx.scene.paint.Color;
 
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
 /**
  * 纪元管理器
- * 管理游戏的五个纪元状态
+ * 管理本机玩家的纪元状态，规则由 {@link EpochEngine} 按配置计算
  */
 public class EpochManager {
     
@@ -32,74 +37,175 @@ public class EpochManager {
         }
     }
     
-    private Epoch currentEpoch;
-    private double epochTime;
-    private int fragmentsCollected;
+    /**
+     * 纪元状态监听器
+     * 只在值真正变化时回调，回调发生在调用方（游戏循环）线程
+     */
+    public interface EpochListener {
+        default void onEpochChanged(Epoch epoch) {}
+        
+        default void onFragmentsChanged(int fragmentsCollected) {}
+        
+        /**
+         * 熵化程度按0.1%的显示精度去抖，精度内的变化不会回调
+         */
+        default void onEntropyChanged(double entropyLevel) {}
+    }
+    
+    /**
+     * 主要碎片的数目；主要碎片按收集顺序发放，第 n 枚收集到的碎片就是编号 n 的主要碎片，
+     * 读档时按收集数恢复的也是这些
+     */
+    public static final int MAIN_FRAGMENTS = 8;
 
-    public EpochManager() {
-        currentEpoch = Epoch.GENESIS;
-        epochTime = 0;
-        fragmentsCollected = 0;
+    private final EpochEngine engine;
+    private final EpochState state;
+    private long lastEntropyTenths;
+    private final List<EpochListener> listeners = new CopyOnWriteArrayList<>();
+    private final GameEventBus eventBus;
+
+    public EpochManager(GameEventBus eventBus) {
+        this(eventBus, EpochEngine.load());
+    }
+
+    /**
+     * @param engine 纪元规则，可与其他玩家的状态共用
+     */
+    public EpochManager(GameEventBus eventBus, EpochEngine engine) {
+        this.eventBus = eventBus;
+        this.engine = engine;
+        this.state = engine.createState();
+        lastEntropyTenths = Math.round(state.getEntropyLevel() * 10);
     }
 
     public void update(double deltaTime) {
-        epochTime += deltaTime;
+        if (engine.update(state, deltaTime)) {
+            checkEntropyChanged();
+        }
+    }
+
+    public void addListener(EpochListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(EpochListener listener) {
+        listeners.remove(listener);
+    }
+
+    private void fireEpochChanged() {
+        for (EpochListener listener : listeners) {
+            listener.onEpochChanged(state.getEpoch());
+        }
+        checkEntropyChanged();
+    }
+
+    private void checkEntropyChanged() {
+        if (listeners.isEmpty()) {
+            return;
+        }
+        double entropy = state.getEntropyLevel();
+        long tenths = Math.round(entropy * 10);
+        if (tenths != lastEntropyTenths) {
+            lastEntropyTenths = tenths;
+            for (EpochListener listener : listeners) {
+                listener.onEntropyChanged(entropy);
+            }
+        }
     }
 
     public boolean canAdvanceToNextEpoch() {
-        return switch (currentEpoch) {
-            case GENESIS -> fragmentsCollected >= 1;
-            case EMERGENCE -> fragmentsCollected >= 3;
-            case FLOURISH -> fragmentsCollected >= 5;
-            case ENTROPY -> fragmentsCollected >= 7;
-            case COLLAPSE -> false;
-        };
+        return state.canAdvance();
     }
 
     public void advanceEpoch() {
-        if (canAdvanceToNextEpoch()) {
-            currentEpoch = switch (currentEpoch) {
-                case GENESIS -> Epoch.EMERGENCE;
-                case EMERGENCE -> Epoch.FLOURISH;
-                case FLOURISH -> Epoch.ENTROPY;
-                case ENTROPY -> Epoch.COLLAPSE;
-                case COLLAPSE -> Epoch.COLLAPSE;
-            };
-            epochTime = 0;
-            System.out.println("进入新纪元: " + currentEpoch.getName());
+        Epoch previousEpoch = state.getEpoch();
+        double previousEpochTime = state.getEpochTime();
+        if (!engine.advance(state)) {
+            return;
         }
+        EpochTransitionEvent event = new EpochTransitionEvent();
+        if (event.shouldCommit()) {
+            event.fromEpoch = previousEpoch.name();
+            event.toEpoch = state.getEpoch().name();
+            event.fragmentsCollected = state.getFragmentsCollected();
+            event.epochSeconds = (long) previousEpochTime;
+            event.commit();
+        }
+        fireEpochChanged();
+        eventBus.publishEpochAdvanced(previousEpoch, state.getEpoch(), state.getFragmentsCollected());
     }
 
-    public void collectFragment() {
-        fragmentsCollected++;
-        System.out.println("收集碎片，当前数量: " + fragmentsCollected);
+    /**
+     * @param fragmentId 收集到的碎片编号，主要碎片发完之后为 -1
+     */
+    public void collectFragment(int fragmentId) {
+        engine.recordFragment(state);
+        for (EpochListener listener : listeners) {
+            listener.onFragmentsChanged(state.getFragmentsCollected());
+        }
+        eventBus.publishFragmentCollected(fragmentId, state.getFragmentsCollected());
+    }
+
+    /**
+     * 记录本机玩家与NPC的一次交互，用于推进条件中的对话要求
+     */
+    public void recordInteraction(String npcName) {
+        engine.recordInteraction(state, npcName);
+    }
+
+    /**
+     * 恢复纪元和已收集的碎片数（回放录像、读档），之后收集的碎片从这个数目接着往下数
+     */
+    public void restore(Epoch epoch, int fragmentsCollected) {
+        engine.restore(state, epoch, fragmentsCollected);
+        for (EpochListener listener : listeners) {
+            listener.onFragmentsChanged(state.getFragmentsCollected());
+        }
+        fireEpochChanged();
     }
 
     // Getters and Setters
     public Epoch getCurrentEpoch() {
-        return currentEpoch;
+        return state.getEpoch();
     }
 
     public void setCurrentEpoch(Epoch epoch) {
-        this.currentEpoch = epoch;
+        if (state.getEpoch() != epoch) {
+            engine.setEpoch(state, epoch);
+            fireEpochChanged();
+        }
     }
 
     public double getEpochTime() {
-        return epochTime;
+        return state.getEpochTime();
     }
 
     public int getFragmentsCollected() {
-        return fragmentsCollected;
+        return state.getFragmentsCollected();
     }
 
     public double getEntropyLevel() {
-        // 熵化程度随纪元和时间增加
-        return switch (currentEpoch) {
-            case GENESIS -> 0;
-            case EMERGENCE -> Math.min(20, epochTime / 10);
-            case FLOURISH -> Math.min(50, 20 + epochTime / 8);
-            case ENTROPY -> Math.min(90, 50 + epochTime / 5);
-            case COLLAPSE -> 100;
-        };
+        return state.getEntropyLevel();
+    }
+
+    /**
+     * 当前纪元推进到下一纪元的条件，最终纪元返回 null
+     */
+    public EpochRequirement getCurrentRequirement() {
+        return engine.getRequirement(state.getEpoch());
+    }
+
+    /**
+     * 本机玩家的纪元状态
+     */
+    public EpochState getState() {
+        return state;
+    }
+
+    /**
+     * 纪元规则，其他玩家的状态也由它维护
+     */
+    public EpochEngine getEngine() {
+        return engine;
     }
 }
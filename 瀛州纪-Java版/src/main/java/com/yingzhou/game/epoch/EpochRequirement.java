@@ -0,0 +1,44 @@
+package com.yingzhou.game.epoch;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 推进到下一纪元的条件
+ * 必须对话的NPC按位存放，判断时只做整数比较
+ */
+public final class EpochRequirement {
+
+    private final int minFragments;
+    private final List<String> requiredNpcs;
+    private final long requiredNpcMask;
+    private final int minInteractions;
+
+    EpochRequirement(int minFragments, List<String> requiredNpcs, long requiredNpcMask, int minInteractions) {
+        this.minFragments = minFragments;
+        this.requiredNpcs = Collections.unmodifiableList(requiredNpcs);
+        this.requiredNpcMask = requiredNpcMask;
+        this.minInteractions = minInteractions;
+    }
+
+    boolean isMet(EpochState state) {
+        return state.fragmentsCollected >= minFragments
+            && state.interactions >= minInteractions
+            && (state.npcMask & requiredNpcMask) == requiredNpcMask;
+    }
+
+    public int getMinFragments() {
+        return minFragments;
+    }
+
+    /**
+     * 必须对话的NPC名称
+     */
+    public List<String> getRequiredNpcs() {
+        return requiredNpcs;
+    }
+
+    public int getMinInteractions() {
+        return minInteractions;
+    }
+}
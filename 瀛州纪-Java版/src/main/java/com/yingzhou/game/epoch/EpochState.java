@@ -0,0 +1,66 @@
+package com.yingzhou.game.epoch;
+
+import java.util.Arrays;
+
+/**
+ * 单个玩家的纪元状态
+ * 由 {@link EpochEngine} 修改，推进条件和熵化程度在相关输入变化时重新计算并缓存在这里
+ *
+ * 修改只发生在游戏循环线程，其他线程读取到的是近似值。
+ */
+public final class EpochState {
+
+    EpochManager.Epoch epoch = EpochManager.Epoch.GENESIS;
+    double epochTime;
+    double totalTime;
+    int fragmentsCollected;
+    int interactions;
+    // 对话过的NPC，位号由 EpochEngine 分配
+    long npcMask;
+    // 进入各纪元时的累计游戏时间（秒），未到达为 -1
+    final double[] enteredAt = new double[EpochManager.Epoch.values().length];
+
+    // 缓存的计算结果
+    boolean canAdvance;
+    int entropySample;
+    double entropy;
+
+    EpochState() {
+        Arrays.fill(enteredAt, -1);
+        enteredAt[0] = 0;
+    }
+
+    public EpochManager.Epoch getEpoch() {
+        return epoch;
+    }
+
+    /**
+     * 当前纪元内经过的秒数
+     */
+    public double getEpochTime() {
+        return epochTime;
+    }
+
+    public int getFragmentsCollected() {
+        return fragmentsCollected;
+    }
+
+    public int getInteractions() {
+        return interactions;
+    }
+
+    public boolean canAdvance() {
+        return canAdvance;
+    }
+
+    public double getEntropyLevel() {
+        return entropy;
+    }
+
+    /**
+     * 进入某纪元时的累计游戏时间（秒），尚未到达返回 -1
+     */
+    public double getEnteredAt(EpochManager.Epoch target) {
+        return enteredAt[target.ordinal()];
+    }
+}
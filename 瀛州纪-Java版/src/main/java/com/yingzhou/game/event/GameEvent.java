@@ -0,0 +1,148 @@
+package com.yingzhou.game.event;
+
+import com.yingzhou.game.epoch.EpochManager;
+
+/**
+ * 游戏事件
+ * 事件对象来自 {@link GameEventBus} 的预分配池并被反复复用，
+ * 监听器只能在回调期间读取，需要保留时复制所需字段。
+ * 各类型使用的字段见 {@link GameEventType}。
+ */
+public final class GameEvent {
+
+    private GameEventType type;
+    private long tick;
+    private int npcIndex = -1;
+    private int fragmentId = -1;
+    private int fragmentsCollected;
+    private EpochManager.Epoch epoch;
+    private EpochManager.Epoch previousEpoch;
+    private boolean nearby;
+    private boolean success;
+    private String text;
+    private String response;
+
+    GameEvent() {
+    }
+
+    GameEvent reset(GameEventType type, long tick) {
+        this.type = type;
+        this.tick = tick;
+        npcIndex = -1;
+        fragmentId = -1;
+        fragmentsCollected = 0;
+        epoch = null;
+        previousEpoch = null;
+        nearby = false;
+        success = false;
+        text = null;
+        response = null;
+        return this;
+    }
+
+    void copyFrom(GameEvent other) {
+        type = other.type;
+        tick = other.tick;
+        npcIndex = other.npcIndex;
+        fragmentId = other.fragmentId;
+        fragmentsCollected = other.fragmentsCollected;
+        epoch = other.epoch;
+        previousEpoch = other.previousEpoch;
+        nearby = other.nearby;
+        success = other.success;
+        text = other.text;
+        response = other.response;
+    }
+
+    /**
+     * 合并键：同一批次内键相同的可合并事件只投递最后一个
+     */
+    int coalesceKey() {
+        return type == GameEventType.NPC_PROXIMITY_CHANGED ? npcIndex : 0;
+    }
+
+    GameEvent npcIndex(int npcIndex) {
+        this.npcIndex = npcIndex;
+        return this;
+    }
+
+    GameEvent fragment(int fragmentId, int fragmentsCollected) {
+        this.fragmentId = fragmentId;
+        this.fragmentsCollected = fragmentsCollected;
+        return this;
+    }
+
+    GameEvent epochs(EpochManager.Epoch previousEpoch, EpochManager.Epoch epoch) {
+        this.previousEpoch = previousEpoch;
+        this.epoch = epoch;
+        return this;
+    }
+
+    GameEvent nearby(boolean nearby) {
+        this.nearby = nearby;
+        return this;
+    }
+
+    GameEvent success(boolean success) {
+        this.success = success;
+        return this;
+    }
+
+    GameEvent text(String text, String response) {
+        this.text = text;
+        this.response = response;
+        return this;
+    }
+
+    public GameEventType getType() {
+        return type;
+    }
+
+    /**
+     * 事件发生时的逻辑帧号
+     */
+    public long getTick() {
+        return tick;
+    }
+
+    public int getNpcIndex() {
+        return npcIndex;
+    }
+
+    public int getFragmentId() {
+        return fragmentId;
+    }
+
+    public int getFragmentsCollected() {
+        return fragmentsCollected;
+    }
+
+    public EpochManager.Epoch getEpoch() {
+        return epoch;
+    }
+
+    public EpochManager.Epoch getPreviousEpoch() {
+        return previousEpoch;
+    }
+
+    public boolean isNearby() {
+        return nearby;
+    }
+
+    public boolean isSuccess() {
+        return success;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public String getResponse() {
+        return response;
+    }
+
+    @Override
+    public String toString() {
+        return type + "@" + tick;
+    }
+}
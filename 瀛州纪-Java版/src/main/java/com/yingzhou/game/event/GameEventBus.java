@@ -0,0 +1,282 @@
+package com.yingzhou.game.event;
+
+import com.yingzhou.game.epoch.EpochManager;
+import com.yingzhou.util.Logger;
+import javafx.application.Platform;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 游戏事件总线
+ * 两种订阅方式：
+ * <ul>
+ *   <li>{@link #subscribe} 同步订阅：在发布线程（逻辑帧内）立即回调，供模拟逻辑使用</li>
+ *   <li>{@link #subscribeFx} 界面订阅：事件复制进无锁环形队列，每个脉冲最多投递一批到FX线程，
+ *       同批内可合并的事件（见 {@link GameEventType#isCoalesced()}）只投递最后一个</li>
+ * </ul>
+ * 发布不分配对象：同步派发使用按嵌套深度预分配的线程内事件池，界面队列的槽位也是预分配的。
+ * 某类型没有任何订阅者时发布直接返回。
+ */
+public class GameEventBus {
+
+    // 监听器里再发布事件时按深度取用事件，超过此深度才临时分配
+    private static final int MAX_DEPTH = 8;
+    private static final int FX_CAPACITY = 4096;
+    private static final int FX_MASK = FX_CAPACITY - 1;
+    private static final int COALESCE_KEYS = 64;
+
+    private static final GameEventType[] TYPES = GameEventType.values();
+
+    private final List<List<GameEventListener>> syncListeners = new ArrayList<>();
+    private final List<List<GameEventListener>> fxListeners = new ArrayList<>();
+
+    private final ThreadLocal<DispatchPool> dispatchPool = ThreadLocal.withInitial(DispatchPool::new);
+    private volatile long tick;
+
+    // 界面投递队列：多生产者单消费者的有界无锁队列，每个槽位带序号
+    private final GameEvent[] fxSlots = new GameEvent[FX_CAPACITY];
+    private final AtomicLongArray fxSequence = new AtomicLongArray(FX_CAPACITY);
+    private final AtomicLong fxTail = new AtomicLong();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final LongAdder droppedFxEvents = new LongAdder();
+
+    // 以下只在FX线程访问
+    private long fxHead;
+    private final GameEvent[] batch = new GameEvent[FX_CAPACITY];
+    private final int[] lastIndex = new int[TYPES.length * COALESCE_KEYS];
+    private final List<GameEventListener> batchListeners = new ArrayList<>();
+
+    private static class DispatchPool {
+        final GameEvent[] events = new GameEvent[MAX_DEPTH];
+        int depth;
+
+        DispatchPool() {
+            for (int i = 0; i < MAX_DEPTH; i++) {
+                events[i] = new GameEvent();
+            }
+        }
+    }
+
+    public GameEventBus() {
+        for (int i = 0; i < TYPES.length; i++) {
+            syncListeners.add(new CopyOnWriteArrayList<>());
+            fxListeners.add(new CopyOnWriteArrayList<>());
+        }
+        for (int i = 0; i < FX_CAPACITY; i++) {
+            fxSlots[i] = new GameEvent();
+            batch[i] = new GameEvent();
+            fxSequence.set(i, i);
+        }
+    }
+
+    /**
+     * 同步订阅，在发布线程立即回调
+     */
+    public void subscribe(GameEventListener listener, GameEventType... types) {
+        for (GameEventType type : types) {
+            syncListeners.get(type.ordinal()).add(listener);
+        }
+    }
+
+    /**
+     * 界面订阅，在FX线程批量回调
+     */
+    public void subscribeFx(GameEventListener listener, GameEventType... types) {
+        for (GameEventType type : types) {
+            fxListeners.get(type.ordinal()).add(listener);
+        }
+    }
+
+    public void unsubscribe(GameEventListener listener, GameEventType... types) {
+        for (GameEventType type : types) {
+            syncListeners.get(type.ordinal()).remove(listener);
+            fxListeners.get(type.ordinal()).remove(listener);
+        }
+    }
+
+    /**
+     * 设置当前逻辑帧号，之后发布的事件都带上此帧号
+     */
+    public void setTick(long tick) {
+        this.tick = tick;
+    }
+
+    // ==================== 发布 ====================
+
+    public void publishFragmentCollected(int fragmentId, int fragmentsCollected) {
+        GameEvent event = begin(GameEventType.FRAGMENT_COLLECTED);
+        if (event != null) {
+            dispatch(event.fragment(fragmentId, fragmentsCollected));
+        }
+    }
+
+    public void publishEpochAdvanced(EpochManager.Epoch previousEpoch, EpochManager.Epoch epoch,
+                                     int fragmentsCollected) {
+        GameEvent event = begin(GameEventType.EPOCH_ADVANCED);
+        if (event != null) {
+            dispatch(event.epochs(previousEpoch, epoch).fragment(-1, fragmentsCollected));
+        }
+    }
+
+    public void publishNpcProximityChanged(int npcIndex, boolean nearby) {
+        GameEvent event = begin(GameEventType.NPC_PROXIMITY_CHANGED);
+        if (event != null) {
+            dispatch(event.npcIndex(npcIndex).nearby(nearby));
+        }
+    }
+
+    public void publishDialogueSent(int npcIndex, String message, String response) {
+        GameEvent event = begin(GameEventType.DIALOGUE_SENT);
+        if (event != null) {
+            dispatch(event.npcIndex(npcIndex).text(message, response));
+        }
+    }
+
+    public void publishMiniGameCompleted(int npcIndex, String miniGame, boolean success) {
+        GameEvent event = begin(GameEventType.MINIGAME_COMPLETED);
+        if (event != null) {
+            dispatch(event.npcIndex(npcIndex).text(miniGame, null).success(success));
+        }
+    }
+
+    /**
+     * 从池中取出事件，没有订阅者时返回 null
+     */
+    private GameEvent begin(GameEventType type) {
+        int index = type.ordinal();
+        if (syncListeners.get(index).isEmpty() && fxListeners.get(index).isEmpty()) {
+            return null;
+        }
+        DispatchPool pool = dispatchPool.get();
+        GameEvent event = pool.depth < MAX_DEPTH ? pool.events[pool.depth] : new GameEvent();
+        pool.depth++;
+        return event.reset(type, tick);
+    }
+
+    private void dispatch(GameEvent event) {
+        DispatchPool pool = dispatchPool.get();
+        try {
+            for (GameEventListener listener : syncListeners.get(event.getType().ordinal())) {
+                try {
+                    listener.onEvent(event);
+                } catch (Exception e) {
+                    Logger.error("事件处理出错: " + event, e);
+                }
+            }
+            if (!fxListeners.get(event.getType().ordinal()).isEmpty()) {
+                offerFx(event);
+            }
+        } finally {
+            pool.depth--;
+        }
+    }
+
+    // ==================== 界面投递 ====================
+
+    private void offerFx(GameEvent event) {
+        long pos = fxTail.get();
+        while (true) {
+            int slot = (int) (pos & FX_MASK);
+            long diff = fxSequence.get(slot) - pos;
+            if (diff == 0) {
+                if (fxTail.compareAndSet(pos, pos + 1)) {
+                    fxSlots[slot].copyFrom(event);
+                    fxSequence.lazySet(slot, pos + 1);
+                    break;
+                }
+                pos = fxTail.get();
+            } else if (diff < 0) {
+                // FX线程长时间未处理，队列已满
+                droppedFxEvents.increment();
+                return;
+            } else {
+                pos = fxTail.get();
+            }
+        }
+        if (flushScheduled.compareAndSet(false, true)) {
+            Platform.runLater(this::flushFx);
+        }
+    }
+
+    private void flushFx() {
+        // 先清标记再取出，取出期间新到达的事件会安排下一次投递
+        flushScheduled.set(false);
+        int count;
+        while ((count = drainBatch()) > 0) {
+            deliverBatch(count);
+        }
+    }
+
+    private int drainBatch() {
+        int count = 0;
+        long pos = fxHead;
+        while (count < FX_CAPACITY) {
+            int slot = (int) (pos & FX_MASK);
+            if (fxSequence.get(slot) != pos + 1) {
+                break;
+            }
+            batch[count++].copyFrom(fxSlots[slot]);
+            // 释放槽位并去掉对消息字符串的引用
+            fxSlots[slot].reset(null, 0);
+            fxSequence.lazySet(slot, pos + FX_CAPACITY);
+            pos++;
+        }
+        fxHead = pos;
+        return count;
+    }
+
+    private void deliverBatch(int count) {
+        // 记录每个合并键在本批最后出现的位置，只投递这一个
+        for (int i = 0; i < count; i++) {
+            GameEvent event = batch[i];
+            if (event.getType().isCoalesced()) {
+                lastIndex[coalesceSlot(event)] = i;
+            }
+        }
+
+        batchListeners.clear();
+        for (int i = 0; i < count; i++) {
+            GameEvent event = batch[i];
+            if (event.getType().isCoalesced() && lastIndex[coalesceSlot(event)] != i) {
+                continue;
+            }
+            for (GameEventListener listener : fxListeners.get(event.getType().ordinal())) {
+                try {
+                    listener.onEvent(event);
+                } catch (Exception e) {
+                    Logger.error("界面事件处理出错: " + event, e);
+                }
+                if (!batchListeners.contains(listener)) {
+                    batchListeners.add(listener);
+                }
+            }
+        }
+        for (GameEventListener listener : batchListeners) {
+            try {
+                listener.onBatchEnd();
+            } catch (Exception e) {
+                Logger.error("界面事件批处理出错", e);
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            batch[i].reset(null, 0);
+        }
+    }
+
+    private static int coalesceSlot(GameEvent event) {
+        return event.getType().ordinal() * COALESCE_KEYS + (event.coalesceKey() & (COALESCE_KEYS - 1));
+    }
+
+    /**
+     * 因界面队列已满而丢弃的事件数
+     */
+    public long getDroppedFxEvents() {
+        return droppedFxEvents.sum();
+    }
+}
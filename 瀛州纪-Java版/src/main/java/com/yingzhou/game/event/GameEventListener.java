@@ -0,0 +1,17 @@
+package com.yingzhou.game.event;
+
+/**
+ * 游戏事件监听器
+ */
+public interface GameEventListener {
+
+    /**
+     * 事件对象会被复用，不要在回调之外持有
+     */
+    void onEvent(GameEvent event);
+
+    /**
+     * 一批FX事件投递完毕（仅界面订阅），适合在这里合并刷新界面
+     */
+    default void onBatchEnd() {}
+}
@@ -0,0 +1,30 @@
+package com.yingzhou.game.event;
+
+/**
+ * 游戏事件类型
+ */
+public enum GameEventType {
+    /** 收集记忆碎片：fragmentId（未指定时为 -1）、fragmentsCollected */
+    FRAGMENT_COLLECTED(false),
+    /** 纪元推进：previousEpoch、epoch、fragmentsCollected；界面只需要最新纪元，同批合并 */
+    EPOCH_ADVANCED(true),
+    /** 玩家进入/离开NPC交互范围：npcIndex、nearby；同批内每个NPC只保留最后一次 */
+    NPC_PROXIMITY_CHANGED(true),
+    /** 向NPC发送对话：npcIndex、text（玩家消息）、response（NPC回复） */
+    DIALOGUE_SENT(false),
+    /** 小游戏结束：npcIndex、text（小游戏名称）、success */
+    MINIGAME_COMPLETED(false);
+
+    private final boolean coalesced;
+
+    GameEventType(boolean coalesced) {
+        this.coalesced = coalesced;
+    }
+
+    /**
+     * 投递到FX线程时，同一批次内相同类型（和相同NPC）的事件是否只保留最后一个
+     */
+    public boolean isCoalesced() {
+        return coalesced;
+    }
+}
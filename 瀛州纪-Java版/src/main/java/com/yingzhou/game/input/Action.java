@@ -0,0 +1,51 @@
+package com.yingzhou.game.input;
+
+/**
+ * 游戏动作
+ * 按键先映射为动作再进入输入队列，游戏逻辑只关心动作而不关心具体按键
+ */
+public enum Action {
+    MOVE_FORWARD("向前移动", Kind.HELD),
+    MOVE_BACKWARD("向后移动", Kind.HELD),
+    MOVE_LEFT("向左移动", Kind.HELD),
+    MOVE_RIGHT("向右移动", Kind.HELD),
+    JUMP("跳跃", Kind.TRIGGER),
+    INTERACT("交互", Kind.TRIGGER),
+    TOGGLE_MENU("菜单", Kind.UI),
+    TOGGLE_PERF("性能面板", Kind.UI);
+
+    /**
+     * 动作类型
+     */
+    public enum Kind {
+        /** 按住期间持续生效，如移动 */
+        HELD,
+        /** 按下时触发一次，由逻辑帧处理 */
+        TRIGGER,
+        /** 纯界面操作，在FX线程立即处理，不进入输入队列 */
+        UI
+    }
+
+    private final String displayName;
+    private final Kind kind;
+
+    Action(String displayName, Kind kind) {
+        this.displayName = displayName;
+        this.kind = kind;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * 在快照位掩码中对应的位
+     */
+    public int mask() {
+        return 1 << ordinal();
+    }
+}
@@ -0,0 +1,134 @@
+package com.yingzhou.game.input;
+
+import com.yingzhou.util.Logger;
+import javafx.scene.input.KeyCode;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * 按键绑定表
+ * 一个动作可以绑定多个按键，一个按键只对应一个动作
+ *
+ * 只在FX线程读写。绑定保存为 properties 文件，格式: MOVE_FORWARD=W,UP
+ */
+public class ActionMap {
+
+    public static final String BINDINGS_FILE = "yingzhou-keys.properties";
+
+    private final Map<KeyCode, Action> bindings = new EnumMap<>(KeyCode.class);
+
+    /**
+     * 默认绑定: WASD/方向键移动, 空格跳跃, E交互, ESC菜单, F3性能面板
+     */
+    public static ActionMap defaults() {
+        ActionMap map = new ActionMap();
+        map.bind(KeyCode.W, Action.MOVE_FORWARD);
+        map.bind(KeyCode.UP, Action.MOVE_FORWARD);
+        map.bind(KeyCode.S, Action.MOVE_BACKWARD);
+        map.bind(KeyCode.DOWN, Action.MOVE_BACKWARD);
+        map.bind(KeyCode.A, Action.MOVE_LEFT);
+        map.bind(KeyCode.LEFT, Action.MOVE_LEFT);
+        map.bind(KeyCode.D, Action.MOVE_RIGHT);
+        map.bind(KeyCode.RIGHT, Action.MOVE_RIGHT);
+        map.bind(KeyCode.SPACE, Action.JUMP);
+        map.bind(KeyCode.E, Action.INTERACT);
+        map.bind(KeyCode.ESCAPE, Action.TOGGLE_MENU);
+        map.bind(KeyCode.F3, Action.TOGGLE_PERF);
+        return map;
+    }
+
+    /**
+     * 读取绑定文件，文件不存在时使用默认绑定；文件中出现的动作整体替换默认按键
+     */
+    public static ActionMap loadOrDefaults(Path file) {
+        ActionMap map = defaults();
+        if (!Files.exists(file)) {
+            return map;
+        }
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        } catch (IOException e) {
+            Logger.warn("读取按键绑定失败，使用默认绑定: " + e.getMessage());
+            return map;
+        }
+        for (String name : properties.stringPropertyNames()) {
+            Action action;
+            try {
+                action = Action.valueOf(name.trim());
+            } catch (IllegalArgumentException e) {
+                Logger.warn("未知的动作: " + name);
+                continue;
+            }
+            map.unbindAll(action);
+            for (String key : properties.getProperty(name).split(",")) {
+                if (key.isBlank()) {
+                    continue;
+                }
+                try {
+                    map.bind(KeyCode.valueOf(key.trim()), action);
+                } catch (IllegalArgumentException e) {
+                    Logger.warn("未知的按键: " + key + " (" + name + ")");
+                }
+            }
+        }
+        Logger.info("已加载按键绑定: " + file);
+        return map;
+    }
+
+    public void save(Path file) throws IOException {
+        Properties properties = new Properties();
+        for (Action action : Action.values()) {
+            List<String> keys = new ArrayList<>();
+            for (KeyCode key : getKeys(action)) {
+                keys.add(key.name());
+            }
+            properties.setProperty(action.name(), String.join(",", keys));
+        }
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            properties.store(writer, "瀛州纪 按键绑定");
+        }
+    }
+
+    /**
+     * 绑定按键到动作，按键原有的绑定被替换
+     */
+    public void bind(KeyCode key, Action action) {
+        bindings.put(key, action);
+    }
+
+    public void unbind(KeyCode key) {
+        bindings.remove(key);
+    }
+
+    public void unbindAll(Action action) {
+        bindings.values().removeIf(bound -> bound == action);
+    }
+
+    /**
+     * 按键对应的动作，未绑定时返回 null
+     */
+    public Action getAction(KeyCode key) {
+        return bindings.get(key);
+    }
+
+    public List<KeyCode> getKeys(Action action) {
+        List<KeyCode> keys = new ArrayList<>();
+        for (Map.Entry<KeyCode, Action> entry : bindings.entrySet()) {
+            if (entry.getValue() == action) {
+                keys.add(entry.getKey());
+            }
+        }
+        return keys;
+    }
+}
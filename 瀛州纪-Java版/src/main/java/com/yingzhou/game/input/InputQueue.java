@@ -0,0 +1,92 @@
+package com.yingzhou.game.input;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 输入队列
+ * FX事件处理只负责记录，逻辑帧开始时一次性取出并合并成 {@link InputSnapshot}
+ *
+ * 按键动作进入无锁单生产者单消费者环形队列，保持先后顺序；
+ * 鼠标位移不入队，直接累加到一个原子变量（两个 float 打包成 long），
+ * 高回报率鼠标每帧上百个移动事件最终只产生一次视角旋转。
+ */
+public class InputQueue {
+
+    // 每帧按键边沿数远小于此，队列满时丢弃新事件并计数
+    private static final int CAPACITY = 1024;
+    private static final int MASK = CAPACITY - 1;
+
+    private final int[] events = new int[CAPACITY];
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong mouseDelta = new AtomicLong();
+    private final LongAdder droppedEvents = new LongAdder();
+
+    // 以下只由消费者（逻辑帧）访问
+    private int heldMask;
+
+    /**
+     * 记录动作按下/松开（生产者：FX线程）
+     *
+     * @return 队列已满被丢弃时返回 false
+     */
+    public boolean pushAction(Action action, boolean pressed) {
+        long t = tail.get();
+        if (t - head.get() >= CAPACITY) {
+            droppedEvents.increment();
+            return false;
+        }
+        events[(int) (t & MASK)] = (action.ordinal() << 1) | (pressed ? 1 : 0);
+        // 发布写入，消费者读取 tail 后一定能看到对应槽位
+        tail.lazySet(t + 1);
+        return true;
+    }
+
+    /**
+     * 累加鼠标位移，与上次取出之后的位移合并
+     */
+    public void addMouseDelta(double deltaX, double deltaY) {
+        long current;
+        long updated;
+        do {
+            current = mouseDelta.get();
+            float x = Float.intBitsToFloat((int) (current >>> 32)) + (float) deltaX;
+            float y = Float.intBitsToFloat((int) current) + (float) deltaY;
+            updated = pack(x, y);
+        } while (!mouseDelta.compareAndSet(current, updated));
+    }
+
+    /**
+     * 取出上次调用以来的全部输入，合并写入快照（消费者：逻辑帧）
+     */
+    public void drainTo(InputSnapshot snapshot) {
+        int pressedMask = 0;
+        long h = head.get();
+        long t = tail.get();
+        for (; h < t; h++) {
+            int event = events[(int) (h & MASK)];
+            int bit = 1 << (event >>> 1);
+            if ((event & 1) != 0) {
+                heldMask |= bit;
+                pressedMask |= bit;
+            } else {
+                heldMask &= ~bit;
+            }
+        }
+        head.lazySet(t);
+
+        long delta = mouseDelta.getAndSet(0L);
+        double deltaX = Float.intBitsToFloat((int) (delta >>> 32));
+        double deltaY = Float.intBitsToFloat((int) delta);
+        snapshot.set(heldMask, pressedMask, deltaX, deltaY);
+    }
+
+    public long getDroppedEvents() {
+        return droppedEvents.sum();
+    }
+
+    private static long pack(float x, float y) {
+        return ((long) Float.floatToRawIntBits(x) << 32) | (Float.floatToRawIntBits(y) & 0xFFFFFFFFL);
+    }
+}
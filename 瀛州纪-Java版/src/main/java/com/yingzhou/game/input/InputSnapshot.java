@@ -0,0 +1,77 @@
+package com.yingzhou.game.input;
+
+/**
+ * 一个逻辑帧的合并输入
+ * 由 {@link InputQueue#drainTo(InputSnapshot)} 每帧填充一次，游戏逻辑只读取这份快照
+ *
+ * 对象可复用，需要跨帧保留时使用 {@link #copy()}。
+ */
+public class InputSnapshot {
+
+    private int heldMask;
+    private int pressedMask;
+    private double mouseDeltaX;
+    private double mouseDeltaY;
+
+    public InputSnapshot() {
+    }
+
+    public InputSnapshot(int heldMask, int pressedMask, double mouseDeltaX, double mouseDeltaY) {
+        set(heldMask, pressedMask, mouseDeltaX, mouseDeltaY);
+    }
+
+    /**
+     * 整体替换快照内容（输入队列和录像回放使用）
+     */
+    public void set(int heldMask, int pressedMask, double mouseDeltaX, double mouseDeltaY) {
+        this.heldMask = heldMask;
+        this.pressedMask = pressedMask;
+        this.mouseDeltaX = mouseDeltaX;
+        this.mouseDeltaY = mouseDeltaY;
+    }
+
+    /**
+     * 帧末仍处于按住状态
+     */
+    public boolean isHeld(Action action) {
+        return (heldMask & action.mask()) != 0;
+    }
+
+    /**
+     * 本帧内按下过（即使已在同一帧内松开）
+     */
+    public boolean wasPressed(Action action) {
+        return (pressedMask & action.mask()) != 0;
+    }
+
+    /**
+     * 本帧内按住或按下过，持续动作据此判断，避免帧内快速点按被吞掉
+     */
+    public boolean isActive(Action action) {
+        return ((heldMask | pressedMask) & action.mask()) != 0;
+    }
+
+    public int getHeldMask() {
+        return heldMask;
+    }
+
+    public int getPressedMask() {
+        return pressedMask;
+    }
+
+    public double getMouseDeltaX() {
+        return mouseDeltaX;
+    }
+
+    public double getMouseDeltaY() {
+        return mouseDeltaY;
+    }
+
+    public boolean hasMouseDelta() {
+        return mouseDeltaX != 0 || mouseDeltaY != 0;
+    }
+
+    public InputSnapshot copy() {
+        return new InputSnapshot(heldMask, pressedMask, mouseDeltaX, mouseDeltaY);
+    }
+}
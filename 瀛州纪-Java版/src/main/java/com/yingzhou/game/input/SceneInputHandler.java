@@ -0,0 +1,117 @@
+package com.yingzhou.game.input;
+
+import javafx.scene.Scene;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyEvent;
+import javafx.scene.input.MouseEvent;
+
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * 场景输入处理
+ * 把 Scene 上的键盘鼠标事件按 {@link ActionMap} 翻译成动作写入 {@link InputQueue}，
+ * 不直接修改任何游戏状态。界面类动作（菜单、性能面板）交给回调在FX线程立即处理。
+ *
+ * 只在FX线程使用。
+ */
+public class SceneInputHandler {
+
+    private final InputQueue inputQueue;
+    private final ActionMap actionMap;
+    private final Consumer<Action> uiActionHandler;
+
+    private final Set<KeyCode> pressedKeys = EnumSet.noneOf(KeyCode.class);
+    // 每个动作当前按住的按键数，多个按键绑定同一动作时最后一个松开才算松开
+    private final int[] heldKeyCounts = new int[Action.values().length];
+    private double lastMouseX;
+    private double lastMouseY;
+    private boolean mouseInitialized;
+
+    public SceneInputHandler(InputQueue inputQueue, ActionMap actionMap, Consumer<Action> uiActionHandler) {
+        this.inputQueue = inputQueue;
+        this.actionMap = actionMap;
+        this.uiActionHandler = uiActionHandler;
+    }
+
+    public void install(Scene scene) {
+        scene.setOnKeyPressed(this::onKeyPressed);
+        scene.setOnKeyReleased(this::onKeyReleased);
+        scene.setOnMouseMoved(this::onMouseMoved);
+        scene.setOnMouseDragged(this::onMouseMoved);
+        scene.setOnMouseClicked(event -> {
+            if (event.getClickCount() == 2) {
+                // 双击等同于按一次交互键
+                inputQueue.pushAction(Action.INTERACT, true);
+                inputQueue.pushAction(Action.INTERACT, false);
+            }
+        });
+        if (scene.getWindow() != null) {
+            scene.getWindow().focusedProperty().addListener((obs, was, focused) -> {
+                if (!focused) {
+                    releaseAll();
+                }
+            });
+        }
+    }
+
+    private void onKeyPressed(KeyEvent event) {
+        KeyCode code = event.getCode();
+        // 按住时的系统重复事件直接忽略
+        if (!pressedKeys.add(code)) {
+            return;
+        }
+        Action action = actionMap.getAction(code);
+        if (action == null) {
+            return;
+        }
+        if (action.getKind() == Action.Kind.UI) {
+            uiActionHandler.accept(action);
+        } else if (heldKeyCounts[action.ordinal()]++ == 0) {
+            inputQueue.pushAction(action, true);
+        }
+    }
+
+    private void onKeyReleased(KeyEvent event) {
+        KeyCode code = event.getCode();
+        if (!pressedKeys.remove(code)) {
+            return;
+        }
+        Action action = actionMap.getAction(code);
+        if (action == null || action.getKind() == Action.Kind.UI) {
+            return;
+        }
+        if (heldKeyCounts[action.ordinal()] > 0 && --heldKeyCounts[action.ordinal()] == 0) {
+            inputQueue.pushAction(action, false);
+        }
+    }
+
+    private void onMouseMoved(MouseEvent event) {
+        double x = event.getSceneX();
+        double y = event.getSceneY();
+        if (mouseInitialized) {
+            inputQueue.addMouseDelta(x - lastMouseX, y - lastMouseY);
+        }
+        lastMouseX = x;
+        lastMouseY = y;
+        mouseInitialized = true;
+    }
+
+    /**
+     * 松开所有按键（窗口失焦或改绑按键时调用）
+     */
+    public void releaseAll() {
+        pressedKeys.clear();
+        for (Action action : Action.values()) {
+            if (heldKeyCounts[action.ordinal()] > 0) {
+                heldKeyCounts[action.ordinal()] = 0;
+                inputQueue.pushAction(action, false);
+            }
+        }
+    }
+
+    public ActionMap getActionMap() {
+        return actionMap;
+    }
+}
@@ -0,0 +1,92 @@
+package com.yingzhou.game.player;
+
+/**
+ * 玩家的运动状态
+ * {@link PlayerPhysics} 的全部输入状态，相同状态加相同输入总是得到相同结果；
+ * 服务器和客户端预测各持一份，联机对账时整体复制。
+ */
+public final class MotionState {
+
+    double x;
+    double y;
+    double z;
+    double vx;
+    double vy;
+    double vz;
+    double yaw;
+    double pitch;
+    boolean jumping;
+
+    public MotionState() {
+    }
+
+    public MotionState(double x, double y, double z) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+    }
+
+    /**
+     * 整体替换（客户端用服务器确认的状态覆盖预测）
+     * 水平速度每帧由输入重新计算，不需要同步
+     */
+    public void set(double x, double y, double z, double vy, double yaw, double pitch, boolean jumping) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        this.vx = 0;
+        this.vy = vy;
+        this.vz = 0;
+        this.yaw = yaw;
+        this.pitch = pitch;
+        this.jumping = jumping;
+    }
+
+    public void copyFrom(MotionState other) {
+        x = other.x;
+        y = other.y;
+        z = other.z;
+        vx = other.vx;
+        vy = other.vy;
+        vz = other.vz;
+        yaw = other.yaw;
+        pitch = other.pitch;
+        jumping = other.jumping;
+    }
+
+    public double getX() {
+        return x;
+    }
+
+    public double getY() {
+        return y;
+    }
+
+    public double getZ() {
+        return z;
+    }
+
+    public double getVelocityX() {
+        return vx;
+    }
+
+    public double getVelocityY() {
+        return vy;
+    }
+
+    public double getVelocityZ() {
+        return vz;
+    }
+
+    public double getYaw() {
+        return yaw;
+    }
+
+    public double getPitch() {
+        return pitch;
+    }
+
+    public boolean isJumping() {
+        return jumping;
+    }
+}
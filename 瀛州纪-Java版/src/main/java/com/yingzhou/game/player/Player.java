@@ -1,88 +1,108 @@
 package com.yingzhou.game.player;
 
+import com.yingzhou.game.input.Action;
+import com.yingzhou.game.input.InputSnapshot;
 import com.yingzhou.util.Logger;
 import javafx.geometry.Point3D;
 
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
 /**
  * 玩家类
- * 管理玩家的位置、移动和视角
+ * 管理玩家的位置、移动和视角，移动规则见 {@link PlayerPhysics}
  */
 public class Player {
     
+    // 位置、速度、视角（yaw 水平，pitch 垂直）
+    private final MotionState motion;
     private Point3D position;
-    private Point3D velocity;
-    private double yaw;   // 水平旋转角度
-    private double pitch; // 垂直旋转角度
     
     private boolean movingForward;
     private boolean movingBackward;
     private boolean movingLeft;
     private boolean movingRight;
-    private boolean jumping;
     
-    private static final double MOVE_SPEED = 0.1;
-    private static final double JUMP_FORCE = 0.3;
-    private static final double GRAVITY = -0.5;
-    private static final double MOUSE_SENSITIVITY = 0.2;
-    private static final double GROUND_LEVEL = 2.0;
+    public static final double MOUSE_SENSITIVITY = PlayerPhysics.MOUSE_SENSITIVITY;
+    public static final double GROUND_LEVEL = PlayerPhysics.GROUND_LEVEL;
+    
+    private final List<Consumer<Point3D>> positionListeners = new CopyOnWriteArrayList<>();
+    // 非本机玩家的输入，由引擎在逻辑帧中应用
+    private final InputSnapshot pendingInput = new InputSnapshot();
 
     public Player() {
-        position = new Point3D(0, GROUND_LEVEL, 10); // 初始位置
-        velocity = Point3D.ZERO;
-        yaw = 0;
-        pitch = 0;
+        this(new Point3D(0, GROUND_LEVEL, 10)); // 初始位置
         Logger.info("玩家初始化完成，位置: " + position);
     }
 
+    public Player(Point3D spawnPosition) {
+        motion = new MotionState(spawnPosition.getX(), Math.max(GROUND_LEVEL, spawnPosition.getY()), spawnPosition.getZ());
+        position = new Point3D(motion.x, motion.y, motion.z);
+    }
+
     public void update(double deltaTime) {
         try {
-            // 计算移动方向
-            double moveX = 0;
-            double moveZ = 0;
-            
-            if (movingForward) moveZ -= 1;
-            if (movingBackward) moveZ += 1;
-            if (movingLeft) moveX -= 1;
-            if (movingRight) moveX += 1;
-            
-            // 根据视角旋转移动方向
-            if (moveX != 0 || moveZ != 0) {
-                double angle = Math.toRadians(yaw);
-                double cos = Math.cos(angle);
-                double sin = Math.sin(angle);
-                
-                double newX = moveX * cos - moveZ * sin;
-                double newZ = moveX * sin + moveZ * cos;
-                
-                // 归一化并应用速度
-                double length = Math.sqrt(newX * newX + newZ * newZ);
-                if (length > 0) {
-                    velocity = new Point3D(
-                        newX / length * MOVE_SPEED,
-                        velocity.getY(),
-                        newZ / length * MOVE_SPEED
-                    );
-                }
-            } else {
-                velocity = new Point3D(0, velocity.getY(), 0);
-            }
-            
-            // 应用重力
-            double newY = velocity.getY() + GRAVITY * deltaTime;
-            velocity = new Point3D(velocity.getX(), newY, velocity.getZ());
-            
-            // 更新位置
-            position = position.add(velocity);
-            
-            // 地面碰撞检测
-            if (position.getY() < GROUND_LEVEL) {
-                position = new Point3D(position.getX(), GROUND_LEVEL, position.getZ());
-                velocity = new Point3D(velocity.getX(), 0, velocity.getZ());
-                jumping = false;
-            }
+            int moveMask = 0;
+            if (movingForward) moveMask |= Action.MOVE_FORWARD.mask();
+            if (movingBackward) moveMask |= Action.MOVE_BACKWARD.mask();
+            if (movingLeft) moveMask |= Action.MOVE_LEFT.mask();
+            if (movingRight) moveMask |= Action.MOVE_RIGHT.mask();
+            PlayerPhysics.integrate(motion, moveMask, deltaTime);
         } catch (Exception e) {
             Logger.error("玩家更新出错", e);
         }
+        syncPosition();
+    }
+
+    /**
+     * 直接设置显示的位置和视角
+     * 联机时本机玩家由客户端预测推进，每帧把预测结果写回这里
+     */
+    public void moveTo(Point3D target, double targetYaw, double targetPitch) {
+        motion.x = target.getX();
+        motion.y = target.getY();
+        motion.z = target.getZ();
+        motion.yaw = targetYaw;
+        motion.pitch = targetPitch;
+        syncPosition();
+    }
+
+    private void syncPosition() {
+        if (motion.x == position.getX() && motion.y == position.getY() && motion.z == position.getZ()) {
+            return;
+        }
+        position = new Point3D(motion.x, motion.y, motion.z);
+        for (Consumer<Point3D> listener : positionListeners) {
+            listener.accept(position);
+        }
+    }
+
+    /**
+     * 监听位置变化，仅在位置实际改变的逻辑帧回调
+     */
+    public void addPositionListener(Consumer<Point3D> listener) {
+        positionListeners.add(listener);
+    }
+
+    public void removePositionListener(Consumer<Point3D> listener) {
+        positionListeners.remove(listener);
+    }
+
+    /**
+     * 应用本帧合并后的输入，每个逻辑帧在 {@link #update(double)} 之前调用一次
+     */
+    public void applyInput(InputSnapshot input) {
+        movingForward = input.isActive(Action.MOVE_FORWARD);
+        movingBackward = input.isActive(Action.MOVE_BACKWARD);
+        movingLeft = input.isActive(Action.MOVE_LEFT);
+        movingRight = input.isActive(Action.MOVE_RIGHT);
+        if (input.wasPressed(Action.JUMP)) {
+            jump();
+        }
+        if (input.hasMouseDelta()) {
+            rotateView(input.getMouseDeltaX(), input.getMouseDeltaY());
+        }
     }
 
     public void moveForward() {
@@ -114,20 +134,20 @@ public class Player {
     }
 
     public void jump() {
-        if (!jumping && Math.abs(position.getY() - GROUND_LEVEL) < 0.1) {
-            velocity = new Point3D(velocity.getX(), JUMP_FORCE, velocity.getZ());
-            jumping = true;
+        if (PlayerPhysics.jump(motion)) {
             Logger.debug("玩家跳跃");
         }
     }
 
     public void rotateView(double deltaX, double deltaY) {
-        yaw += deltaX * MOUSE_SENSITIVITY;
-        pitch = Math.max(-89, Math.min(89, pitch + deltaY * MOUSE_SENSITIVITY));
-        
-        // 归一化yaw到0-360度
-        while (yaw < 0) yaw += 360;
-        while (yaw >= 360) yaw -= 360;
+        PlayerPhysics.rotate(motion, deltaX, deltaY);
+    }
+
+    /**
+     * 待应用的输入（仅用于通过 GameEngine.addPlayer 加入的玩家）
+     */
+    public InputSnapshot getPendingInput() {
+        return pendingInput;
     }
 
     // Getters
@@ -136,14 +156,21 @@ public class Player {
     }
 
     public double getYaw() {
-        return yaw;
+        return motion.yaw;
     }
 
     public double getPitch() {
-        return pitch;
+        return motion.pitch;
     }
 
     public Point3D getVelocity() {
-        return velocity;
+        return new Point3D(motion.vx, motion.vy, motion.vz);
+    }
+
+    /**
+     * 当前运动状态（只读，服务器据此向客户端确认预测结果）
+     */
+    public MotionState getMotion() {
+        return motion;
     }
 }
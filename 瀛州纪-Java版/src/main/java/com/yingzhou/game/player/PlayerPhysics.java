@@ -0,0 +1,114 @@
+package com.yingzhou.game.player;
+
+import com.yingzhou.game.input.Action;
+import com.yingzhou.game.input.InputSnapshot;
+
+/**
+ * 玩家移动的确定性模型
+ * 本机、机器人、服务器上的访客以及联机客户端的预测共用这一套规则，
+ * 只依赖 {@link MotionState}、输入和帧间隔，不读取任何外部状态。
+ *
+ * 水平移动按帧计（每帧 {@link #MOVE_SPEED}），重力按秒计，
+ * 因此服务器与客户端预测必须以相同的帧间隔推进。
+ */
+public final class PlayerPhysics {
+
+    public static final double MOVE_SPEED = 0.1;
+    public static final double JUMP_FORCE = 0.3;
+    public static final double GRAVITY = -0.5;
+    public static final double MOUSE_SENSITIVITY = 0.2;
+    public static final double GROUND_LEVEL = 2.0;
+
+    public static final int MOVE_MASK = Action.MOVE_FORWARD.mask() | Action.MOVE_BACKWARD.mask()
+        | Action.MOVE_LEFT.mask() | Action.MOVE_RIGHT.mask();
+
+    private PlayerPhysics() {
+    }
+
+    /**
+     * 应用一帧输入并推进一帧
+     */
+    public static void step(MotionState state, InputSnapshot input, double deltaTime) {
+        if (input.wasPressed(Action.JUMP)) {
+            jump(state);
+        }
+        if (input.hasMouseDelta()) {
+            rotate(state, input.getMouseDeltaX(), input.getMouseDeltaY());
+        }
+        integrate(state, (input.getHeldMask() | input.getPressedMask()) & MOVE_MASK, deltaTime);
+    }
+
+    /**
+     * 在地面上时起跳
+     *
+     * @return 是否起跳
+     */
+    public static boolean jump(MotionState state) {
+        if (!state.jumping && Math.abs(state.y - GROUND_LEVEL) < 0.1) {
+            state.vy = JUMP_FORCE;
+            state.jumping = true;
+            return true;
+        }
+        return false;
+    }
+
+    public static void rotate(MotionState state, double deltaX, double deltaY) {
+        state.yaw += deltaX * MOUSE_SENSITIVITY;
+        state.pitch = Math.max(-89, Math.min(89, state.pitch + deltaY * MOUSE_SENSITIVITY));
+
+        // 归一化yaw到0-360度
+        while (state.yaw < 0) state.yaw += 360;
+        while (state.yaw >= 360) state.yaw -= 360;
+    }
+
+    /**
+     * 按移动方向推进一帧
+     *
+     * @param moveMask 生效的移动动作掩码（{@link #MOVE_MASK} 的子集）
+     */
+    public static void integrate(MotionState state, int moveMask, double deltaTime) {
+        // 计算移动方向
+        double moveX = 0;
+        double moveZ = 0;
+
+        if ((moveMask & Action.MOVE_FORWARD.mask()) != 0) moveZ -= 1;
+        if ((moveMask & Action.MOVE_BACKWARD.mask()) != 0) moveZ += 1;
+        if ((moveMask & Action.MOVE_LEFT.mask()) != 0) moveX -= 1;
+        if ((moveMask & Action.MOVE_RIGHT.mask()) != 0) moveX += 1;
+
+        // 根据视角旋转移动方向
+        if (moveX != 0 || moveZ != 0) {
+            double angle = Math.toRadians(state.yaw);
+            double cos = Math.cos(angle);
+            double sin = Math.sin(angle);
+
+            double newX = moveX * cos - moveZ * sin;
+            double newZ = moveX * sin + moveZ * cos;
+
+            // 归一化并应用速度
+            double length = Math.sqrt(newX * newX + newZ * newZ);
+            if (length > 0) {
+                state.vx = newX / length * MOVE_SPEED;
+                state.vz = newZ / length * MOVE_SPEED;
+            }
+        } else {
+            state.vx = 0;
+            state.vz = 0;
+        }
+
+        // 应用重力
+        state.vy = state.vy + GRAVITY * deltaTime;
+
+        // 更新位置
+        state.x += state.vx;
+        state.y += state.vy;
+        state.z += state.vz;
+
+        // 地面碰撞检测
+        if (state.y < GROUND_LEVEL) {
+            state.y = GROUND_LEVEL;
+            state.vy = 0;
+            state.jumping = false;
+        }
+    }
+}
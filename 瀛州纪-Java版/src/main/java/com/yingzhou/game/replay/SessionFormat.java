@@ -0,0 +1,71 @@
+package com.yingzhou.game.replay;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * 会话录像文件格式
+ * <pre>
+ * 文件头: 魔数 "YZRC"(4) 版本(2) 随机种子(8) 录制时间毫秒(8) 校验间隔(varint) 起始纪元序号(1) 起始碎片数(varint)
+ * 记录:   类型(1) + 内容，按发生顺序排列
+ *   TICK        标志(1) 帧间隔增量(zigzag varint) [按住掩码(varint)] [按下掩码(varint)] [鼠标dx dy(float×2)]
+ *   DIALOGUE    NPC序号+1(varint) 长度(varint) UTF-8内容
+ *   ADVANCE     无内容
+ *   FRAGMENT    无内容
+ *   CHECKPOINT  帧号(varint) 状态哈希(8)，表示该帧开始前的状态
+ *   END         总帧数(varint) 最终状态哈希(8)
+ * </pre>
+ * 帧间隔以纳秒记录，相对上一帧做增量编码；按住掩码只在变化时写出。
+ * 无操作的一帧通常只占 3-4 字节。录制可以从任意进度开始，起始纪元和碎片数随文件头记录，回放前先恢复。
+ */
+final class SessionFormat {
+
+    static final int MAGIC = 0x595A5243; // "YZRC"
+    static final short VERSION = 1;
+
+    static final byte TICK = 1;
+    static final byte DIALOGUE = 2;
+    static final byte ADVANCE = 3;
+    static final byte CHECKPOINT = 4;
+    static final byte FRAGMENT = 5;
+    static final byte END = 0x7F;
+
+    // TICK 标志位
+    static final int FLAG_HELD_CHANGED = 1;
+    static final int FLAG_PRESSED = 1 << 1;
+    static final int FLAG_MOUSE = 1 << 2;
+
+    static final int DEFAULT_CHECKPOINT_INTERVAL = 60;
+
+    private SessionFormat() {
+    }
+
+    static void writeVarLong(DataOutput out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    static long readVarLong(DataInput in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("录像文件损坏：变长整数过长");
+    }
+
+    static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -0,0 +1,192 @@
+package com.yingzhou.game.replay;
+
+import com.yingzhou.game.GameEngine;
+import com.yingzhou.game.input.InputSnapshot;
+import com.yingzhou.util.Logger;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * 会话录像
+ * 记录每个逻辑帧的合并输入和玩家命令，连同随机种子写入紧凑的二进制文件，
+ * 并定期写入状态哈希供回放校验。格式见 {@link SessionFormat}。
+ * 只记录本机玩家的输入，通过 {@link GameEngine#addPlayer} 加入的玩家不在录像范围内。
+ *
+ * 通过命令行开启，必须在游戏循环启动前挂到引擎上：
+ * <pre>
+ *   java -Dyingzhou.record=session.yzr -jar yingzhou-java-1.0.jar
+ * </pre>
+ */
+public class SessionRecorder implements GameEngine.SessionListener, Closeable {
+
+    public static final String PROPERTY = "yingzhou.record";
+    private static final String DEFAULT_FILE = "yingzhou-session.yzr";
+
+    private final GameEngine engine;
+    private final DataOutputStream out;
+    private final int checkpointInterval;
+    private final Path file;
+
+    private long lastDeltaNanos;
+    private int lastHeldMask;
+    private boolean failed;
+    private boolean closed;
+
+    public SessionRecorder(GameEngine engine, Path file, int checkpointInterval) throws IOException {
+        this.engine = engine;
+        this.file = file;
+        this.checkpointInterval = checkpointInterval;
+        this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 64 * 1024));
+        out.writeInt(SessionFormat.MAGIC);
+        out.writeShort(SessionFormat.VERSION);
+        out.writeLong(engine.getSeed());
+        out.writeLong(System.currentTimeMillis());
+        SessionFormat.writeVarLong(out, checkpointInterval);
+        out.writeByte(engine.getEpochManager().getCurrentEpoch().ordinal());
+        SessionFormat.writeVarLong(out, engine.getEpochManager().getFragmentsCollected());
+        engine.addSessionListener(this);
+    }
+
+    /**
+     * 若命令行指定了 -Dyingzhou.record 则开始录制
+     *
+     * @return 录像器，未开启或打开文件失败时返回 null
+     */
+    public static SessionRecorder startIfRequested(GameEngine engine) {
+        String target = System.getProperty(PROPERTY);
+        if (target == null) {
+            return null;
+        }
+        if (target.isBlank() || "true".equalsIgnoreCase(target)) {
+            target = DEFAULT_FILE;
+        }
+        try {
+            SessionRecorder recorder = new SessionRecorder(engine, Path.of(target),
+                SessionFormat.DEFAULT_CHECKPOINT_INTERVAL);
+            Logger.info("会话录像已开启，输出文件: " + target + "，随机种子: " + engine.getSeed());
+            return recorder;
+        } catch (IOException e) {
+            Logger.error("无法开启会话录像", e);
+            return null;
+        }
+    }
+
+    @Override
+    public synchronized void onTick(long tick, long deltaNanos, InputSnapshot input) {
+        if (failed || closed) {
+            return;
+        }
+        try {
+            if (tick % checkpointInterval == 0) {
+                out.writeByte(SessionFormat.CHECKPOINT);
+                SessionFormat.writeVarLong(out, tick);
+                out.writeLong(StateHasher.hash(engine));
+            }
+
+            int heldMask = input.getHeldMask();
+            int pressedMask = input.getPressedMask();
+            int flags = 0;
+            if (heldMask != lastHeldMask) {
+                flags |= SessionFormat.FLAG_HELD_CHANGED;
+            }
+            if (pressedMask != 0) {
+                flags |= SessionFormat.FLAG_PRESSED;
+            }
+            if (input.hasMouseDelta()) {
+                flags |= SessionFormat.FLAG_MOUSE;
+            }
+
+            out.writeByte(SessionFormat.TICK);
+            out.writeByte(flags);
+            SessionFormat.writeVarLong(out, SessionFormat.zigzag(deltaNanos - lastDeltaNanos));
+            if ((flags & SessionFormat.FLAG_HELD_CHANGED) != 0) {
+                SessionFormat.writeVarLong(out, heldMask);
+            }
+            if ((flags & SessionFormat.FLAG_PRESSED) != 0) {
+                SessionFormat.writeVarLong(out, pressedMask);
+            }
+            if ((flags & SessionFormat.FLAG_MOUSE) != 0) {
+                // 鼠标位移在输入队列中以 float 累加，按 float 写出不丢精度
+                out.writeFloat((float) input.getMouseDeltaX());
+                out.writeFloat((float) input.getMouseDeltaY());
+            }
+            lastDeltaNanos = deltaNanos;
+            lastHeldMask = heldMask;
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    @Override
+    public synchronized void onDialogue(int npcIndex, String message) {
+        if (failed || closed) {
+            return;
+        }
+        try {
+            byte[] bytes = message.getBytes(StandardCharsets.UTF_8);
+            out.writeByte(SessionFormat.DIALOGUE);
+            SessionFormat.writeVarLong(out, npcIndex + 1);
+            SessionFormat.writeVarLong(out, bytes.length);
+            out.write(bytes);
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    @Override
+    public synchronized void onAdvanceEpoch() {
+        writeCommand(SessionFormat.ADVANCE);
+    }
+
+    @Override
+    public synchronized void onCollectFragment() {
+        writeCommand(SessionFormat.FRAGMENT);
+    }
+
+    private void writeCommand(byte type) {
+        if (failed || closed) {
+            return;
+        }
+        try {
+            out.writeByte(type);
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    private void fail(IOException e) {
+        // 录像出错不影响游戏，停止录制即可
+        failed = true;
+        engine.removeSessionListener(this);
+        Logger.error("会话录像写入失败，已停止录制", e);
+    }
+
+    /**
+     * 写入结束标记和最终状态哈希
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        engine.removeSessionListener(this);
+        try {
+            if (!failed) {
+                out.writeByte(SessionFormat.END);
+                SessionFormat.writeVarLong(out, engine.getTickCount());
+                out.writeLong(StateHasher.hash(engine));
+                Logger.info("会话录像已保存: " + file + "，共 " + engine.getTickCount() + " 帧，"
+                    + out.size() + " 字节");
+            }
+        } finally {
+            out.close();
+        }
+    }
+}
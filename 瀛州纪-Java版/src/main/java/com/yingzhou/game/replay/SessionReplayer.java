@@ -0,0 +1,210 @@
+package com.yingzhou.game.replay;
+
+import com.yingzhou.game.GameEngine;
+import com.yingzhou.game.epoch.EpochManager;
+import com.yingzhou.game.input.InputSnapshot;
+import com.yingzhou.npc.BaseNPC;
+import com.yingzhou.perf.LatencyHistogram;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * 会话回放
+ * 无界面地以最快速度驱动引擎重放录像，在每个校验点比对状态哈希，
+ * 同时统计逻辑帧耗时，可用真实玩家录像做可复现的性能测试。
+ *
+ * 命令行用法:
+ * <pre>
+ *   java -cp yingzhou-java-1.0.jar com.yingzhou.game.replay.SessionReplayer session.yzr [重复次数]
+ * </pre>
+ * 状态不一致时以退出码 2 结束。
+ */
+public class SessionReplayer {
+
+    private final byte[] data;
+    private final long seed;
+    private final long recordedAt;
+    private final int checkpointInterval;
+    private final EpochManager.Epoch startEpoch;
+    private final int startFragments;
+    private final int bodyOffset;
+
+    /**
+     * 一次回放的结果
+     */
+    public static class Result {
+        public long ticks;
+        public int checkpointsVerified;
+        /** 第一个哈希不一致的帧号，-1 表示全部一致 */
+        public long firstMismatchTick = -1;
+        /** 录像是否以结束标记收尾（游戏异常退出时可能缺失） */
+        public boolean complete;
+        public long elapsedNanos;
+        public LatencyHistogram.Snapshot tickTimes;
+
+        public boolean isConsistent() {
+            return firstMismatchTick < 0;
+        }
+    }
+
+    public SessionReplayer(Path file) throws IOException {
+        // 整个文件读入内存，回放计时不含磁盘IO
+        data = Files.readAllBytes(file);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        if (in.readInt() != SessionFormat.MAGIC) {
+            throw new IOException("不是瀛州纪会话录像: " + file);
+        }
+        short version = in.readShort();
+        if (version != SessionFormat.VERSION) {
+            throw new IOException("不支持的录像版本: " + version);
+        }
+        seed = in.readLong();
+        recordedAt = in.readLong();
+        checkpointInterval = (int) SessionFormat.readVarLong(in);
+        int epoch = in.readUnsignedByte();
+        if (epoch >= EpochManager.Epoch.values().length) {
+            throw new IOException("录像中的起始纪元无效: " + epoch);
+        }
+        startEpoch = EpochManager.Epoch.values()[epoch];
+        startFragments = (int) SessionFormat.readVarLong(in);
+        bodyOffset = data.length - in.available();
+    }
+
+    /**
+     * 在新建的引擎上回放，引擎不能已经执行过逻辑帧
+     */
+    public Result replay(GameEngine engine) throws IOException {
+        if (engine.getTickCount() != 0) {
+            throw new IllegalStateException("回放需要全新的引擎");
+        }
+        engine.setSeed(seed);
+        engine.getEpochManager().restore(startEpoch, startFragments);
+        List<BaseNPC> npcs = engine.getNPCManager().getNPCs();
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data, bodyOffset, data.length - bodyOffset));
+        InputSnapshot input = new InputSnapshot();
+        LatencyHistogram tickTimes = new LatencyHistogram("回放逻辑帧");
+        Result result = new Result();
+
+        long lastDeltaNanos = 0;
+        int heldMask = 0;
+        long start = System.nanoTime();
+        try {
+            while (true) {
+                byte type = in.readByte();
+                switch (type) {
+                    case SessionFormat.TICK -> {
+                        int flags = in.readUnsignedByte();
+                        long deltaNanos = lastDeltaNanos + SessionFormat.unzigzag(SessionFormat.readVarLong(in));
+                        if ((flags & SessionFormat.FLAG_HELD_CHANGED) != 0) {
+                            heldMask = (int) SessionFormat.readVarLong(in);
+                        }
+                        int pressedMask = (flags & SessionFormat.FLAG_PRESSED) != 0
+                            ? (int) SessionFormat.readVarLong(in) : 0;
+                        double mouseX = 0;
+                        double mouseY = 0;
+                        if ((flags & SessionFormat.FLAG_MOUSE) != 0) {
+                            mouseX = in.readFloat();
+                            mouseY = in.readFloat();
+                        }
+                        input.set(heldMask, pressedMask, mouseX, mouseY);
+                        lastDeltaNanos = deltaNanos;
+
+                        long tickStart = System.nanoTime();
+                        engine.tick(deltaNanos, input);
+                        tickTimes.record(System.nanoTime() - tickStart);
+                    }
+                    case SessionFormat.DIALOGUE -> {
+                        int npcIndex = (int) SessionFormat.readVarLong(in) - 1;
+                        byte[] bytes = new byte[(int) SessionFormat.readVarLong(in)];
+                        in.readFully(bytes);
+                        if (npcIndex >= 0 && npcIndex < npcs.size()) {
+                            engine.sendDialogue(npcs.get(npcIndex), new String(bytes, StandardCharsets.UTF_8));
+                        }
+                    }
+                    case SessionFormat.ADVANCE -> engine.advanceEpoch();
+                    case SessionFormat.FRAGMENT -> engine.collectFragment();
+                    case SessionFormat.CHECKPOINT -> {
+                        long tick = SessionFormat.readVarLong(in);
+                        long expected = in.readLong();
+                        if (!verify(engine, tick, expected, result)) {
+                            return finish(result, engine, start, tickTimes);
+                        }
+                    }
+                    case SessionFormat.END -> {
+                        long tick = SessionFormat.readVarLong(in);
+                        long expected = in.readLong();
+                        verify(engine, tick, expected, result);
+                        result.complete = true;
+                        return finish(result, engine, start, tickTimes);
+                    }
+                    default -> throw new IOException("录像文件损坏：未知记录类型 " + type);
+                }
+            }
+        } catch (EOFException e) {
+            // 没有结束标记，回放到最后一条完整记录为止
+            return finish(result, engine, start, tickTimes);
+        }
+    }
+
+    private static boolean verify(GameEngine engine, long tick, long expected, Result result) {
+        if (engine.getTickCount() != tick || StateHasher.hash(engine) != expected) {
+            result.firstMismatchTick = tick;
+            return false;
+        }
+        result.checkpointsVerified++;
+        return true;
+    }
+
+    private static Result finish(Result result, GameEngine engine, long start, LatencyHistogram tickTimes) {
+        result.elapsedNanos = System.nanoTime() - start;
+        result.ticks = engine.getTickCount();
+        result.tickTimes = tickTimes.snapshot();
+        return result;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public long getRecordedAt() {
+        return recordedAt;
+    }
+
+    public int getCheckpointInterval() {
+        return checkpointInterval;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("用法: SessionReplayer <录像文件> [重复次数]");
+            System.exit(1);
+        }
+        Path file = Path.of(args[0]);
+        int repeat = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+        SessionReplayer replayer = new SessionReplayer(file);
+        System.out.printf("录像: %s (%d 字节, 种子 %d, 每 %d 帧校验)%n",
+            file, Files.size(file), replayer.getSeed(), replayer.getCheckpointInterval());
+
+        boolean consistent = true;
+        for (int run = 1; run <= repeat; run++) {
+            Result result = replayer.replay(new GameEngine());
+            LatencyHistogram.Snapshot t = result.tickTimes;
+            double seconds = result.elapsedNanos / 1e9;
+            System.out.printf("第%d次: %d 帧, %.3f 秒, %.0f 帧/秒 | 逻辑帧 p50 %.1fµs p99 %.1fµs max %.1fµs | 校验 %d 处%s%n",
+                run, result.ticks, seconds, result.ticks / Math.max(seconds, 1e-9),
+                t.getValueAtPercentile(50) / 1e3, t.getValueAtPercentile(99) / 1e3, t.getMax() / 1e3,
+                result.checkpointsVerified,
+                result.isConsistent() ? (result.complete ? "，全部一致" : "，录像未正常结束")
+                    : "，第 " + result.firstMismatchTick + " 帧状态不一致");
+            consistent &= result.isConsistent();
+        }
+        System.exit(consistent ? 0 : 2);
+    }
+}
@@ -0,0 +1,58 @@
+package com.yingzhou.game.replay;
+
+import com.yingzhou.game.GameEngine;
+import com.yingzhou.game.epoch.EpochManager;
+import com.yingzhou.game.player.Player;
+import com.yingzhou.npc.BaseNPC;
+import javafx.geometry.Point3D;
+
+/**
+ * 游戏状态哈希
+ * 覆盖逻辑帧会改变的全部状态（玩家、纪元、NPC），录制与回放在同一帧得到相同哈希即说明状态一致
+ */
+public final class StateHasher {
+
+    private static final long MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+    private long hash = 0xCBF29CE484222325L;
+
+    private StateHasher() {
+    }
+
+    public static long hash(GameEngine engine) {
+        StateHasher hasher = new StateHasher();
+        hasher.mix(engine.getTickCount());
+
+        Player player = engine.getPlayer();
+        hasher.mix(player.getPosition());
+        hasher.mix(player.getVelocity());
+        hasher.mix(player.getYaw());
+        hasher.mix(player.getPitch());
+
+        EpochManager epochManager = engine.getEpochManager();
+        hasher.mix(epochManager.getCurrentEpoch().ordinal());
+        hasher.mix(epochManager.getEpochTime());
+        hasher.mix(epochManager.getFragmentsCollected());
+
+        for (BaseNPC npc : engine.getNPCManager().getNPCs()) {
+            hasher.mix(npc.getRotationAngle());
+            hasher.mix(npc.isPlayerNearby() ? 1 : 0);
+        }
+        return hasher.hash;
+    }
+
+    private void mix(long value) {
+        hash = (hash ^ value) * MULTIPLIER;
+        hash ^= hash >>> 29;
+    }
+
+    private void mix(double value) {
+        mix(Double.doubleToLongBits(value));
+    }
+
+    private void mix(Point3D point) {
+        mix(point.getX());
+        mix(point.getY());
+        mix(point.getZ());
+    }
+}
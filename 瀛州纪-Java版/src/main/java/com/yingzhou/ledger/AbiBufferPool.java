@@ -0,0 +1,96 @@
+package com.yingzhou.ledger;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * ABI 编解码用的堆缓冲区池
+ * 按 2 的幂分级，调用数据和返回数据都在池中的缓冲区上完成，稳定运行后不再分配。
+ * 线程安全：请求在调用线程上编码，响应在 HttpClient 工作线程上解码。
+ */
+public final class AbiBufferPool {
+
+    private static final int MIN_SHIFT = 8;
+    private static final int MAX_SHIFT = 20;
+    private static final int DEFAULT_MAX_PER_CLASS = 64;
+
+    private static final AbiBufferPool SHARED = new AbiBufferPool(DEFAULT_MAX_PER_CLASS);
+
+    private final int maxPerClass;
+    private final SizeClass[] classes;
+    private final LongAdder allocated = new LongAdder();
+
+    public AbiBufferPool(int maxPerClass) {
+        this.maxPerClass = maxPerClass;
+        this.classes = new SizeClass[MAX_SHIFT - MIN_SHIFT + 1];
+        for (int i = 0; i < classes.length; i++) {
+            classes[i] = new SizeClass();
+        }
+    }
+
+    public static AbiBufferPool shared() {
+        return SHARED;
+    }
+
+    /**
+     * 取出容量不小于 minCapacity 的已清空缓冲区，超过 1 MB 的不入池
+     */
+    public ByteBuffer acquire(int minCapacity) {
+        int index = classIndex(minCapacity);
+        if (index < 0) {
+            allocated.increment();
+            return ByteBuffer.allocate(minCapacity);
+        }
+        SizeClass sizeClass = classes[index];
+        ByteBuffer buffer = sizeClass.free.poll();
+        if (buffer == null) {
+            allocated.increment();
+            return ByteBuffer.allocate(1 << (index + MIN_SHIFT));
+        }
+        sizeClass.count.decrementAndGet();
+        return buffer;
+    }
+
+    /**
+     * 归还缓冲区，该级已满或容量不是池中规格时交给GC回收
+     */
+    public void release(ByteBuffer buffer) {
+        int capacity = buffer.capacity();
+        if (Integer.bitCount(capacity) != 1 || buffer.isDirect()) {
+            return;
+        }
+        int index = Integer.numberOfTrailingZeros(capacity) - MIN_SHIFT;
+        if (index < 0 || index >= classes.length) {
+            return;
+        }
+        SizeClass sizeClass = classes[index];
+        if (sizeClass.count.incrementAndGet() > maxPerClass) {
+            sizeClass.count.decrementAndGet();
+            return;
+        }
+        buffer.clear();
+        sizeClass.free.offer(buffer);
+    }
+
+    /**
+     * 累计新分配的缓冲区数量，稳定运行时应不再增长
+     */
+    public long getAllocatedCount() {
+        return allocated.sum();
+    }
+
+    private static int classIndex(int capacity) {
+        int shift = Math.max(MIN_SHIFT, 32 - Integer.numberOfLeadingZeros(Math.max(1, capacity) - 1));
+        return shift > MAX_SHIFT ? -1 : shift - MIN_SHIFT;
+    }
+
+    /**
+     * 一个容量级别的空闲缓冲区，count 与队列长度同步维护（队列的 size() 需要遍历）
+     */
+    private static final class SizeClass {
+        final ConcurrentLinkedQueue<ByteBuffer> free = new ConcurrentLinkedQueue<>();
+        final AtomicInteger count = new AtomicInteger();
+    }
+}
@@ -0,0 +1,239 @@
+package com.yingzhou.ledger;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 按 Solidity ABI 规范编解码，值以普通 Java 对象表示
+ * <pre>
+ *   uintN / intN     BigInteger（编码时也接受 Number 和十进制或 0x 字符串）
+ *   address          0x 开头的 40 位小写十六进制字符串
+ *   bool             Boolean
+ *   bytesN / bytes   byte[]
+ *   string           String
+ *   T[] / T[k]       List（编码时也接受 Object[]）
+ *   tuple            Object[]，按成员顺序
+ * </pre>
+ */
+public final class AbiCodec {
+
+    private static final BigInteger UINT256_LIMIT = BigInteger.ONE.shiftLeft(256);
+
+    private AbiCodec() {
+    }
+
+    /**
+     * 编码元组（如函数参数表）
+     */
+    public static byte[] encode(AbiType tuple, Object... values) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeTuple(out, tuple.getComponents(), Arrays.asList(values));
+        return out.toByteArray();
+    }
+
+    /**
+     * 解码元组（如函数返回值表），返回各成员的值
+     *
+     * @throws IllegalArgumentException 数据长度或偏移量不合法
+     */
+    public static Object[] decode(AbiType tuple, byte[] data) {
+        return decodeTuple(tuple.getComponents(), data, 0);
+    }
+
+    /**
+     * 解码单个值，offset 为其头部所在位置
+     */
+    public static Object decode(AbiType type, byte[] data, int offset) {
+        return read(type, data, offset, 0);
+    }
+
+    private static void writeTuple(ByteArrayOutputStream out, List<AbiType> types, List<?> values) {
+        if (values.size() != types.size()) {
+            throw new IllegalArgumentException("需要 " + types.size() + " 个值，实际 " + values.size());
+        }
+        int headSize = 0;
+        for (AbiType type : types) {
+            headSize += type.getHeadSize();
+        }
+        ByteArrayOutputStream tail = new ByteArrayOutputStream();
+        for (int i = 0; i < types.size(); i++) {
+            AbiType type = types.get(i);
+            if (type.isDynamic()) {
+                writeWord(out, BigInteger.valueOf(headSize + tail.size()));
+                write(tail, type, values.get(i));
+            } else {
+                write(out, type, values.get(i));
+            }
+        }
+        out.writeBytes(tail.toByteArray());
+    }
+
+    private static void write(ByteArrayOutputStream out, AbiType type, Object value) {
+        switch (type.getKind()) {
+            case UINT:
+            case INT:
+                writeWord(out, toBigInteger(value));
+                break;
+            case ADDRESS:
+                byte[] address = Hex.decode((String) value);
+                if (address.length > 20) {
+                    throw new IllegalArgumentException("地址过长: " + value);
+                }
+                out.writeBytes(new byte[32 - address.length]);
+                out.writeBytes(address);
+                break;
+            case BOOL:
+                writeWord(out, Boolean.TRUE.equals(value) ? BigInteger.ONE : BigInteger.ZERO);
+                break;
+            case FIXED_BYTES:
+                byte[] fixed = (byte[]) value;
+                if (fixed.length > type.getSize()) {
+                    throw new IllegalArgumentException(type + " 最多 " + type.getSize() + " 字节");
+                }
+                out.writeBytes(Arrays.copyOf(fixed, 32));
+                break;
+            case BYTES:
+                writeBytes(out, (byte[]) value);
+                break;
+            case STRING:
+                writeBytes(out, ((String) value).getBytes(StandardCharsets.UTF_8));
+                break;
+            case ARRAY:
+                List<?> items = toList(value);
+                writeWord(out, BigInteger.valueOf(items.size()));
+                writeTuple(out, repeat(type.getElement(), items.size()), items);
+                break;
+            case FIXED_ARRAY:
+                writeTuple(out, repeat(type.getElement(), type.getSize()), toList(value));
+                break;
+            default:
+                writeTuple(out, type.getComponents(), toList(value));
+        }
+    }
+
+    private static void writeBytes(ByteArrayOutputStream out, byte[] bytes) {
+        writeWord(out, BigInteger.valueOf(bytes.length));
+        out.writeBytes(bytes);
+        out.writeBytes(new byte[(32 - bytes.length % 32) % 32]);
+    }
+
+    private static void writeWord(ByteArrayOutputStream out, BigInteger value) {
+        if (value.signum() < 0) {
+            value = value.add(UINT256_LIMIT);
+        }
+        byte[] bytes = value.toByteArray();
+        int length = bytes.length;
+        int start = 0;
+        if (length > 32) {
+            // toByteArray 可能带一个符号字节
+            start = length - 32;
+            length = 32;
+        }
+        out.writeBytes(new byte[32 - length]);
+        out.write(bytes, start, length);
+    }
+
+    private static Object[] decodeTuple(List<AbiType> types, byte[] data, int base) {
+        Object[] values = new Object[types.size()];
+        int head = base;
+        for (int i = 0; i < types.size(); i++) {
+            AbiType type = types.get(i);
+            values[i] = read(type, data, head, base);
+            head += type.getHeadSize();
+        }
+        return values;
+    }
+
+    /**
+     * @param head 值的头部位置
+     * @param base 所属元组的起点，动态值的偏移量相对于它
+     */
+    private static Object read(AbiType type, byte[] data, int head, int base) {
+        int at = head;
+        if (type.isDynamic()) {
+            at = base + readLength(data, head);
+        }
+        switch (type.getKind()) {
+            case UINT:
+                return new BigInteger(1, word(data, at));
+            case INT:
+                return new BigInteger(word(data, at));
+            case ADDRESS:
+                return Hex.encode(word(data, at), 12, 20);
+            case BOOL:
+                return new BigInteger(1, word(data, at)).signum() != 0;
+            case FIXED_BYTES:
+                return Arrays.copyOf(word(data, at), type.getSize());
+            case BYTES:
+                return readBytes(data, at);
+            case STRING:
+                return new String(readBytes(data, at), StandardCharsets.UTF_8);
+            case ARRAY:
+                int count = readLength(data, at);
+                return Arrays.asList(decodeTuple(repeat(type.getElement(), count), data, at + 32));
+            case FIXED_ARRAY:
+                return Arrays.asList(decodeTuple(repeat(type.getElement(), type.getSize()), data, at));
+            default:
+                return decodeTuple(type.getComponents(), data, at);
+        }
+    }
+
+    private static byte[] readBytes(byte[] data, int at) {
+        int length = readLength(data, at);
+        if (at + 32 + length > data.length) {
+            throw new IllegalArgumentException("字节串越界");
+        }
+        return Arrays.copyOfRange(data, at + 32, at + 32 + length);
+    }
+
+    private static int readLength(byte[] data, int at) {
+        BigInteger value = new BigInteger(1, word(data, at));
+        if (value.bitLength() > 31 || value.intValue() > data.length) {
+            throw new IllegalArgumentException("偏移量或长度不合法: " + value);
+        }
+        return value.intValue();
+    }
+
+    private static byte[] word(byte[] data, int at) {
+        if (at < 0 || at + 32 > data.length) {
+            throw new IllegalArgumentException("数据过短: 需要读取 " + at + "+32，实际 " + data.length + " 字节");
+        }
+        return Arrays.copyOfRange(data, at, at + 32);
+    }
+
+    static BigInteger toBigInteger(Object value) {
+        if (value instanceof BigInteger) {
+            return (BigInteger) value;
+        }
+        if (value instanceof Number) {
+            return BigInteger.valueOf(((Number) value).longValue());
+        }
+        if (value instanceof String) {
+            String text = (String) value;
+            return text.startsWith("0x") ? new BigInteger(text.substring(2), 16) : new BigInteger(text);
+        }
+        throw new IllegalArgumentException("无法转换为整数: " + value);
+    }
+
+    private static List<?> toList(Object value) {
+        if (value instanceof List) {
+            return (List<?>) value;
+        }
+        if (value instanceof Object[]) {
+            return Arrays.asList((Object[]) value);
+        }
+        throw new IllegalArgumentException("需要 List 或 Object[]: " + value);
+    }
+
+    private static List<AbiType> repeat(AbiType type, int count) {
+        List<AbiType> types = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            types.add(type);
+        }
+        return types;
+    }
+}
@@ -0,0 +1,299 @@
+package com.yingzhou.ledger;
+
+import java.math.BigInteger;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * 把调用参数按 ABI 规范直接写进缓冲区
+ *
+ * 先按值算出编码长度，从池中取一块足够大的缓冲区后一次写完：头部在前，动态值依次追加到尾部，
+ * 不为每个字段创建中间数组。值的表示与 {@link AbiCodec} 相同，另外整数数组可直接传 long[] / int[]。
+ */
+public final class AbiEncoder {
+
+    private AbiEncoder() {
+    }
+
+    /**
+     * 编码 选择器 + 参数 并转成 eth_call 的 data 字段，缓冲区用完即归还
+     */
+    public static String encodeCallHex(AbiFunction function, Object... args) {
+        AbiBufferPool pool = AbiBufferPool.shared();
+        ByteBuffer buffer = pool.acquire(callSize(function, args));
+        try {
+            int end = encodeCall(function, buffer, args);
+            return Hex.encode(buffer, 0, end);
+        } finally {
+            pool.release(buffer);
+        }
+    }
+
+    /**
+     * 调用数据的字节数
+     */
+    public static int callSize(AbiFunction function, Object... args) {
+        return 4 + tupleSize(function.getInputs().getComponents(), args);
+    }
+
+    /**
+     * 从缓冲区当前位置写入 选择器 + 参数，返回结束位置，缓冲区位置移到结束处
+     *
+     * @throws IllegalArgumentException 参数个数或类型不匹配
+     * @throws BufferOverflowException 剩余空间不足（先用 {@link #callSize} 取得长度）
+     */
+    public static int encodeCall(AbiFunction function, ByteBuffer out, Object... args) {
+        int start = out.position();
+        int selector = function.getSelectorInt();
+        checkSpace(out, start, callSize(function, args));
+        out.putInt(start, selector);
+        int end = writeTuple(out, start + 4, function.getInputs().getComponents(), args);
+        out.position(end);
+        return end;
+    }
+
+    private static void checkSpace(ByteBuffer out, int start, int size) {
+        if (out.limit() - start < size) {
+            throw new BufferOverflowException();
+        }
+    }
+
+    /**
+     * 写一个元组，返回结束位置
+     */
+    private static int writeTuple(ByteBuffer out, int start, List<AbiType> types, Object[] values) {
+        if (values.length != types.size()) {
+            throw new IllegalArgumentException("需要 " + types.size() + " 个值，实际 " + values.length);
+        }
+        int head = start;
+        int tail = start;
+        for (AbiType type : types) {
+            tail += type.getHeadSize();
+        }
+        for (int i = 0; i < values.length; i++) {
+            AbiType type = types.get(i);
+            if (type.isDynamic()) {
+                putLong(out, head, tail - start);
+                tail = write(out, tail, type, values[i]);
+            } else {
+                write(out, head, type, values[i]);
+            }
+            head += type.getHeadSize();
+        }
+        return tail;
+    }
+
+    /**
+     * 写一个值，返回结束位置
+     */
+    private static int write(ByteBuffer out, int at, AbiType type, Object value) {
+        switch (type.getKind()) {
+            case UINT:
+            case INT:
+                if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+                    putLong(out, at, ((Number) value).longValue());
+                } else {
+                    putBigInteger(out, at, AbiCodec.toBigInteger(value));
+                }
+                return at + 32;
+            case ADDRESS:
+                putAddress(out, at, (String) value);
+                return at + 32;
+            case BOOL:
+                putLong(out, at, Boolean.TRUE.equals(value) ? 1 : 0);
+                return at + 32;
+            case FIXED_BYTES:
+                byte[] fixed = (byte[]) value;
+                if (fixed.length > type.getSize()) {
+                    throw new IllegalArgumentException(type + " 最多 " + type.getSize() + " 字节");
+                }
+                out.put(at, fixed);
+                zero(out, at + fixed.length, 32 - fixed.length);
+                return at + 32;
+            case BYTES:
+                return putBytes(out, at, (byte[]) value);
+            case STRING:
+                return putBytes(out, at, ((String) value).getBytes(StandardCharsets.UTF_8));
+            case ARRAY:
+                int length = arrayLength(value);
+                putLong(out, at, length);
+                return writeElements(out, at + 32, type.getElement(), value, length);
+            case FIXED_ARRAY:
+                if (arrayLength(value) != type.getSize()) {
+                    throw new IllegalArgumentException(type + " 需要 " + type.getSize() + " 个元素");
+                }
+                return writeElements(out, at, type.getElement(), value, type.getSize());
+            default:
+                return writeTuple(out, at, type.getComponents(), toArray(value));
+        }
+    }
+
+    private static int writeElements(ByteBuffer out, int start, AbiType element, Object values, int length) {
+        if (values instanceof long[]) {
+            long[] longs = (long[]) values;
+            for (int i = 0; i < length; i++) {
+                putLong(out, start + i * 32, longs[i]);
+            }
+            return start + length * 32;
+        }
+        if (values instanceof int[]) {
+            int[] ints = (int[]) values;
+            for (int i = 0; i < length; i++) {
+                putLong(out, start + i * 32, ints[i]);
+            }
+            return start + length * 32;
+        }
+        Object[] items = toArray(values);
+        int head = start;
+        int tail = start + length * element.getHeadSize();
+        for (Object item : items) {
+            if (element.isDynamic()) {
+                putLong(out, head, tail - start);
+                tail = write(out, tail, element, item);
+            } else {
+                write(out, head, element, item);
+            }
+            head += element.getHeadSize();
+        }
+        return tail;
+    }
+
+    private static int tupleSize(List<AbiType> types, Object[] values) {
+        if (values.length != types.size()) {
+            throw new IllegalArgumentException("需要 " + types.size() + " 个值，实际 " + values.length);
+        }
+        int size = 0;
+        for (int i = 0; i < values.length; i++) {
+            AbiType type = types.get(i);
+            size += type.getHeadSize();
+            if (type.isDynamic()) {
+                size += size(type, values[i]);
+            }
+        }
+        return size;
+    }
+
+    /**
+     * 值编码后的长度（动态值为尾部中的长度）
+     */
+    private static int size(AbiType type, Object value) {
+        switch (type.getKind()) {
+            case BYTES:
+                return 32 + padded(((byte[]) value).length);
+            case STRING:
+                return 32 + padded(utf8Length((String) value));
+            case ARRAY:
+                return 32 + elementsSize(type.getElement(), value, arrayLength(value));
+            case FIXED_ARRAY:
+                return elementsSize(type.getElement(), value, type.getSize());
+            case TUPLE:
+                return tupleSize(type.getComponents(), toArray(value));
+            default:
+                return 32;
+        }
+    }
+
+    private static int elementsSize(AbiType element, Object values, int length) {
+        int size = length * element.getHeadSize();
+        if (element.isDynamic()) {
+            for (Object item : toArray(values)) {
+                size += size(element, item);
+            }
+        }
+        return size;
+    }
+
+    private static int arrayLength(Object value) {
+        if (value instanceof long[]) {
+            return ((long[]) value).length;
+        }
+        if (value instanceof int[]) {
+            return ((int[]) value).length;
+        }
+        if (value instanceof List) {
+            return ((List<?>) value).size();
+        }
+        if (value instanceof Object[]) {
+            return ((Object[]) value).length;
+        }
+        throw new IllegalArgumentException("需要数组或 List: " + value);
+    }
+
+    private static Object[] toArray(Object value) {
+        if (value instanceof Object[]) {
+            return (Object[]) value;
+        }
+        if (value instanceof List) {
+            return ((List<?>) value).toArray();
+        }
+        throw new IllegalArgumentException("需要 List 或 Object[]: " + value);
+    }
+
+    private static int putBytes(ByteBuffer out, int at, byte[] bytes) {
+        putLong(out, at, bytes.length);
+        out.put(at + 32, bytes);
+        int padding = padded(bytes.length) - bytes.length;
+        zero(out, at + 32 + bytes.length, padding);
+        return at + 32 + bytes.length + padding;
+    }
+
+    private static void putLong(ByteBuffer out, int at, long value) {
+        long sign = value < 0 ? -1L : 0L;
+        out.putLong(at, sign);
+        out.putLong(at + 8, sign);
+        out.putLong(at + 16, sign);
+        out.putLong(at + 24, value);
+    }
+
+    private static void putBigInteger(ByteBuffer out, int at, BigInteger value) {
+        byte fill = (byte) (value.signum() < 0 ? 0xFF : 0);
+        byte[] bytes = value.toByteArray();
+        int length = Math.min(bytes.length, 32);
+        for (int i = 0; i < 32 - length; i++) {
+            out.put(at + i, fill);
+        }
+        out.put(at + 32 - length, bytes, bytes.length - length, length);
+    }
+
+    private static void putAddress(ByteBuffer out, int at, String address) {
+        int start = address.startsWith("0x") || address.startsWith("0X") ? 2 : 0;
+        if (address.length() - start != 40) {
+            throw new IllegalArgumentException("地址须为 40 位十六进制: " + address);
+        }
+        zero(out, at, 12);
+        for (int i = 0; i < 20; i++) {
+            int c = start + i * 2;
+            out.put(at + 12 + i, (byte) (Hex.digit(address.charAt(c)) << 4 | Hex.digit(address.charAt(c + 1))));
+        }
+    }
+
+    private static void zero(ByteBuffer out, int at, int length) {
+        for (int i = 0; i < length; i++) {
+            out.put(at + i, (byte) 0);
+        }
+    }
+
+    private static int padded(int length) {
+        return (length + 31) & ~31;
+    }
+
+    private static int utf8Length(String value) {
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+}
@@ -0,0 +1,138 @@
+package com.yingzhou.ledger;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 合约事件：主题0（签名哈希）以及 indexed 与非 indexed 参数的划分
+ * indexed 的动态类型参数在日志中只有其哈希，解码结果为 32 字节 byte[]。
+ */
+public final class AbiEvent {
+
+    private final String contract;
+    private final String name;
+    private final AbiType params;
+    private final boolean[] indexed;
+    private final AbiType data;
+    // 参数下标 → 在日志 data 元组中的下标，或 -(主题序号) 表示 indexed
+    private final int[] slots;
+    private final String signature;
+    private final String topic;
+
+    AbiEvent(String contract, String name, AbiType params, boolean[] indexed) {
+        this.contract = contract;
+        this.name = name;
+        this.params = params;
+        this.indexed = indexed;
+        List<AbiType> dataTypes = new ArrayList<>();
+        List<String> dataNames = new ArrayList<>();
+        this.slots = new int[indexed.length];
+        int topicIndex = 1;
+        for (int i = 0; i < indexed.length; i++) {
+            if (indexed[i]) {
+                slots[i] = -topicIndex++;
+            } else {
+                slots[i] = dataTypes.size();
+                dataTypes.add(params.getComponents().get(i));
+                dataNames.add(params.getNames().get(i));
+            }
+        }
+        this.data = AbiType.tuple(dataTypes, dataNames);
+        this.signature = name + params;
+        this.topic = Hex.encode(Keccak256.hash(signature));
+    }
+
+    /**
+     * 解码一条日志，按事件参数顺序返回
+     *
+     * @param topics 日志主题，第 0 个为事件签名哈希
+     * @param payload 日志 data 字段
+     */
+    public Object[] decodeLog(List<byte[]> topics, byte[] payload) {
+        Object[] nonIndexed = AbiCodec.decode(data, payload);
+        Object[] values = new Object[indexed.length];
+        int topicIndex = 1;
+        int dataIndex = 0;
+        for (int i = 0; i < indexed.length; i++) {
+            if (!indexed[i]) {
+                values[i] = nonIndexed[dataIndex++];
+                continue;
+            }
+            if (topicIndex >= topics.size()) {
+                throw new IllegalArgumentException(name + " 日志缺少主题");
+            }
+            byte[] word = topics.get(topicIndex++);
+            AbiType type = params.getComponents().get(i);
+            values[i] = type.isDynamic() || type.getKind() == AbiType.Kind.TUPLE
+                    || type.getKind() == AbiType.Kind.FIXED_ARRAY ? word : AbiCodec.decode(type, word, 0);
+        }
+        return values;
+    }
+
+    public String getContract() {
+        return contract;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 全部参数，按声明顺序
+     */
+    public AbiType getParams() {
+        return params;
+    }
+
+    public boolean isIndexed(int index) {
+        return indexed[index];
+    }
+
+    /**
+     * 参数下标，没有该名字时抛出 IllegalArgumentException
+     */
+    public int indexOf(String paramName) {
+        int index = params.indexOf(paramName);
+        if (index < 0) {
+            throw new IllegalArgumentException(this + " 没有参数 " + paramName);
+        }
+        return index;
+    }
+
+    /**
+     * 非 indexed 参数组成的元组，即日志 data 字段的类型
+     */
+    public AbiType getData() {
+        return data;
+    }
+
+    /**
+     * 参数在 data 元组中的下标，indexed 参数返回 -1
+     */
+    int dataIndex(int param) {
+        return slots[param] >= 0 ? slots[param] : -1;
+    }
+
+    /**
+     * indexed 参数所在的主题序号（从 1 起），非 indexed 参数返回 -1
+     */
+    int topicIndex(int param) {
+        return slots[param] < 0 ? -slots[param] : -1;
+    }
+
+    public String getSignature() {
+        return signature;
+    }
+
+    /**
+     * 主题0，0x 开头的十六进制
+     */
+    public String getTopic() {
+        return topic;
+    }
+
+    @Override
+    public String toString() {
+        return contract + "." + signature;
+    }
+}
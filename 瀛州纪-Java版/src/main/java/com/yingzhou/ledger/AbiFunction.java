@@ -0,0 +1,90 @@
+package com.yingzhou.ledger;
+
+import java.util.Arrays;
+
+/**
+ * 合约函数：签名、4 字节选择器以及参数和返回值的元组类型
+ */
+public final class AbiFunction {
+
+    private final String contract;
+    private final String name;
+    private final AbiType inputs;
+    private final AbiType outputs;
+    private final boolean view;
+    private final String signature;
+    private final byte[] selector;
+
+    AbiFunction(String contract, String name, AbiType inputs, AbiType outputs, boolean view) {
+        this.contract = contract;
+        this.name = name;
+        this.inputs = inputs;
+        this.outputs = outputs;
+        this.view = view;
+        this.signature = name + inputs;
+        this.selector = Arrays.copyOf(Keccak256.hash(signature), 4);
+    }
+
+    /**
+     * 编码调用数据：选择器 + 参数
+     */
+    public byte[] encodeCall(Object... args) {
+        byte[] params = AbiCodec.encode(inputs, args);
+        byte[] data = Arrays.copyOf(selector, 4 + params.length);
+        System.arraycopy(params, 0, data, 4, params.length);
+        return data;
+    }
+
+    /**
+     * 解码返回数据，按返回值顺序
+     */
+    public Object[] decodeResult(byte[] data) {
+        return AbiCodec.decode(outputs, data);
+    }
+
+    public String getContract() {
+        return contract;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public AbiType getInputs() {
+        return inputs;
+    }
+
+    public AbiType getOutputs() {
+        return outputs;
+    }
+
+    /**
+     * view/pure 函数，可用 eth_call 读取
+     */
+    public boolean isView() {
+        return view;
+    }
+
+    /**
+     * 如 getCurrentEpoch(address)
+     */
+    public String getSignature() {
+        return signature;
+    }
+
+    public byte[] getSelector() {
+        return selector.clone();
+    }
+
+    /**
+     * 选择器的大端整数形式，便于做表查找
+     */
+    public int getSelectorInt() {
+        return (selector[0] & 0xFF) << 24 | (selector[1] & 0xFF) << 16 | (selector[2] & 0xFF) << 8 | (selector[3] & 0xFF);
+    }
+
+    @Override
+    public String toString() {
+        return contract + "." + signature;
+    }
+}
@@ -0,0 +1,157 @@
+package com.yingzhou.ledger;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 一条事件日志的惰性视图
+ * 参数按事件声明顺序访问：indexed 参数从主题中取，其余从 data 的池化缓冲区中按需读出。
+ * 关闭后 data 缓冲区归还池中。
+ */
+public final class AbiLog implements AutoCloseable {
+
+    private final AbiEvent event;
+    private final List<String> topics;
+    private final AbiResult data;
+
+    private AbiLog(AbiEvent event, List<String> topics, AbiResult data) {
+        this.event = event;
+        this.topics = topics;
+        this.data = data;
+    }
+
+    /**
+     * @param topics eth_getLogs 返回的 topics，第 0 个为事件签名哈希
+     * @param dataHex eth_getLogs 返回的 data
+     * @throws IllegalArgumentException 主题0与事件不符或主题数不足
+     */
+    public static AbiLog decode(AbiEvent event, List<String> topics, CharSequence dataHex) {
+        if (topics.isEmpty() || !event.getTopic().equalsIgnoreCase(topics.get(0))) {
+            throw new IllegalArgumentException("日志不是 " + event);
+        }
+        int indexedCount = 0;
+        for (int i = 0; i < event.getParams().getComponents().size(); i++) {
+            if (event.isIndexed(i)) {
+                indexedCount++;
+            }
+        }
+        if (topics.size() < indexedCount + 1) {
+            throw new IllegalArgumentException(event.getName() + " 日志缺少主题");
+        }
+        return new AbiLog(event, topics, AbiResult.decode(dataHex, event.getData()));
+    }
+
+    public AbiEvent getEvent() {
+        return event;
+    }
+
+    public long getLong(int param) {
+        int topic = event.topicIndex(param);
+        if (topic < 0) {
+            return data.view().getLong(event.dataIndex(param));
+        }
+        String hex = topics.get(topic);
+        // 主题为 0x + 64 位，高 48 位须为 0 才能放进非负 long
+        for (int i = 2; i < hex.length() - 16; i++) {
+            if (hex.charAt(i) != '0') {
+                throw new ArithmeticException("数值超出 long 范围");
+            }
+        }
+        long value = Long.parseUnsignedLong(hex.substring(hex.length() - 16), 16);
+        if (value < 0) {
+            throw new ArithmeticException("数值超出 long 范围");
+        }
+        return value;
+    }
+
+    public int getInt(int param) {
+        return Math.toIntExact(getLong(param));
+    }
+
+    public boolean getBoolean(int param) {
+        int topic = event.topicIndex(param);
+        if (topic < 0) {
+            return data.view().getBoolean(event.dataIndex(param));
+        }
+        String hex = topics.get(topic);
+        for (int i = 2; i < hex.length(); i++) {
+            if (hex.charAt(i) != '0') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 0x 开头的 40 位小写十六进制地址
+     */
+    public String getAddress(int param) {
+        int topic = event.topicIndex(param);
+        if (topic < 0) {
+            return data.view().getAddress(event.dataIndex(param));
+        }
+        String hex = topics.get(topic);
+        return "0x" + hex.substring(hex.length() - 40).toLowerCase();
+    }
+
+    /**
+     * bytesN 参数；indexed 的动态类型参数（string、bytes、数组）返回其 keccak256 哈希
+     */
+    public byte[] getFixedBytes(int param) {
+        int topic = event.topicIndex(param);
+        if (topic < 0) {
+            return data.view().getFixedBytes(event.dataIndex(param));
+        }
+        byte[] word = Hex.decode(topics.get(topic));
+        AbiType type = event.getParams().getComponents().get(param);
+        if (type.getKind() == AbiType.Kind.FIXED_BYTES && type.getSize() < 32) {
+            return Arrays.copyOf(word, type.getSize());
+        }
+        return word;
+    }
+
+    /**
+     * 参数的原始 32 字节编码复制到 dst[offset..]：indexed 参数即其主题，其余为 data 中的头部字
+     * 只适用于静态类型；indexed 的动态类型参数得到的是其哈希
+     */
+    public void copyWord(int param, byte[] dst, int offset) {
+        int topic = event.topicIndex(param);
+        if (topic < 0) {
+            data.view().copyWord(event.dataIndex(param), dst, offset);
+        } else {
+            Hex.decode(topics.get(topic), ByteBuffer.wrap(dst, offset, 32));
+        }
+    }
+
+    /**
+     * 非 indexed 的 string 参数
+     */
+    public String getString(int param) {
+        return data.view().getString(requireData(param));
+    }
+
+    /**
+     * 非 indexed 的数组或元组参数
+     */
+    public AbiView getArray(int param) {
+        return data.view().getArray(requireData(param));
+    }
+
+    public AbiView getTuple(int param) {
+        return data.view().getTuple(requireData(param));
+    }
+
+    private int requireData(int param) {
+        int index = event.dataIndex(param);
+        if (index < 0) {
+            throw new IllegalArgumentException(event.getName() + " 的第 " + param + " 个参数是 indexed，只有哈希");
+        }
+        return index;
+    }
+
+    @Override
+    public void close() {
+        data.close();
+    }
+}
@@ -0,0 +1,164 @@
+package com.yingzhou.ledger;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.yingzhou.util.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 游戏合约的 ABI 表
+ * 构建时把 瀛州纪/lib/abis/*.json 打包到类路径 abis/ 下，启动后一次性解析并算好所有选择器和事件主题，
+ * 之后的编解码只查表。
+ */
+public final class AbiRegistry {
+
+    /**
+     * lib/abis 下的合约，与 Web 版 scripts/exportABI.js 导出的一致
+     */
+    public static final List<String> CONTRACTS = List.of(
+            "WorldLedger", "DigitalBeing", "AINPC", "AINPC_Extended", "EpochManager",
+            "MemoryFragment", "MiniGameManager", "Resource1155", "Market");
+
+    private static final int ERROR_STRING_SELECTOR = 0x08c379a0;
+    private static final AbiType ERROR_STRING = AbiType.tuple(List.of(AbiType.of("string")), List.of("reason"));
+
+    private final Map<String, ContractAbi> contracts = new LinkedHashMap<>();
+
+    private AbiRegistry() {
+    }
+
+    private static final class DefaultHolder {
+        static final AbiRegistry INSTANCE = loadClasspath();
+    }
+
+    /**
+     * 类路径中的ABI表，首次调用时加载
+     */
+    public static AbiRegistry getDefault() {
+        return DefaultHolder.INSTANCE;
+    }
+
+    private static AbiRegistry loadClasspath() {
+        AbiRegistry registry = new AbiRegistry();
+        for (String name : CONTRACTS) {
+            try (InputStream in = AbiRegistry.class.getResourceAsStream("/abis/" + name + ".json")) {
+                if (in == null) {
+                    Logger.warn("类路径中缺少ABI: " + name);
+                    continue;
+                }
+                registry.add(name, new InputStreamReader(in, StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                Logger.error("读取ABI失败: " + name, e);
+            }
+        }
+        Logger.info("已加载 " + registry.contracts.size() + " 个合约ABI");
+        return registry;
+    }
+
+    /**
+     * 从目录加载全部 *.json（开发时可直接指向 瀛州纪/lib/abis）
+     */
+    public static AbiRegistry load(Path directory) throws IOException {
+        AbiRegistry registry = new AbiRegistry();
+        try (var files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files.sorted()::iterator) {
+                String fileName = file.getFileName().toString();
+                if (!fileName.endsWith(".json")) {
+                    continue;
+                }
+                try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                    registry.add(fileName.substring(0, fileName.length() - 5), reader);
+                }
+            }
+        }
+        return registry;
+    }
+
+    private void add(String name, Reader reader) {
+        ContractAbi contract = new ContractAbi(name);
+        JsonArray entries = JsonParser.parseReader(reader).getAsJsonArray();
+        for (JsonElement element : entries) {
+            JsonObject entry = element.getAsJsonObject();
+            String type = entry.get("type").getAsString();
+            switch (type) {
+                case "function":
+                    String mutability = entry.has("stateMutability") ? entry.get("stateMutability").getAsString() : "";
+                    contract.addFunction(new AbiFunction(name, entry.get("name").getAsString(),
+                            AbiType.tupleOf(entry.getAsJsonArray("inputs")),
+                            AbiType.tupleOf(entry.getAsJsonArray("outputs")),
+                            mutability.equals("view") || mutability.equals("pure")));
+                    break;
+                case "event":
+                    JsonArray inputs = entry.getAsJsonArray("inputs");
+                    boolean[] indexed = new boolean[inputs.size()];
+                    for (int i = 0; i < indexed.length; i++) {
+                        JsonElement flag = inputs.get(i).getAsJsonObject().get("indexed");
+                        indexed[i] = flag != null && flag.getAsBoolean();
+                    }
+                    contract.addEvent(new AbiEvent(name, entry.get("name").getAsString(),
+                            AbiType.tupleOf(inputs), indexed));
+                    break;
+                case "error":
+                    contract.addError(new AbiFunction(name, entry.get("name").getAsString(),
+                            AbiType.tupleOf(entry.getAsJsonArray("inputs")), AbiType.tupleOf(null), true));
+                    break;
+                default:
+                    // constructor / receive / fallback 与调用无关
+            }
+        }
+        contracts.put(name, contract);
+    }
+
+    /**
+     * @throws IllegalArgumentException 没有该合约
+     */
+    public ContractAbi contract(String name) {
+        ContractAbi contract = contracts.get(name);
+        if (contract == null) {
+            throw new IllegalArgumentException("未知合约: " + name);
+        }
+        return contract;
+    }
+
+    public Map<String, ContractAbi> getContracts() {
+        return Collections.unmodifiableMap(contracts);
+    }
+
+    /**
+     * 把 revert 数据还原成可读文本：Error(string) 取原因，自定义错误按ABI解出参数
+     */
+    public String describeRevert(String contractName, byte[] data) {
+        if (data == null || data.length < 4) {
+            return "revert";
+        }
+        int selector = (data[0] & 0xFF) << 24 | (data[1] & 0xFF) << 16 | (data[2] & 0xFF) << 8 | (data[3] & 0xFF);
+        byte[] params = Arrays.copyOfRange(data, 4, data.length);
+        try {
+            if (selector == ERROR_STRING_SELECTOR) {
+                return (String) AbiCodec.decode(ERROR_STRING, params)[0];
+            }
+            ContractAbi contract = contractName == null ? null : contracts.get(contractName);
+            AbiFunction error = contract == null ? null : contract.errorBySelector(selector);
+            if (error != null) {
+                return error.getName() + Arrays.deepToString(AbiCodec.decode(error.getInputs(), params));
+            }
+        } catch (IllegalArgumentException e) {
+            // 数据不合规时退回原始十六进制
+        }
+        return Hex.encode(data);
+    }
+}
@@ -0,0 +1,69 @@
+package com.yingzhou.ledger;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 持有池化缓冲区的解码结果，关闭后缓冲区归还池中，其上的视图随之失效
+ * <pre>
+ *   try (AbiResult result = AbiResult.decode(hex, function.getOutputs())) {
+ *       AbiView npc = result.view().getTuple(0);
+ *       ...
+ *   }
+ * </pre>
+ */
+public final class AbiResult implements AutoCloseable {
+
+    private final AbiBufferPool pool;
+    private ByteBuffer buffer;
+    private final AbiView view;
+
+    private AbiResult(AbiBufferPool pool, ByteBuffer buffer, AbiType tuple) {
+        this.pool = pool;
+        this.buffer = buffer;
+        this.view = AbiView.of(buffer, tuple, 0);
+    }
+
+    /**
+     * 把 JSON-RPC 返回的十六进制数据解码进共享池的缓冲区
+     */
+    public static AbiResult decode(CharSequence hex, AbiType tuple) {
+        return decode(hex, tuple, AbiBufferPool.shared());
+    }
+
+    public static AbiResult decode(CharSequence hex, AbiType tuple, AbiBufferPool pool) {
+        ByteBuffer buffer = pool.acquire(Hex.byteLength(hex));
+        try {
+            Hex.decode(hex, buffer);
+        } catch (RuntimeException e) {
+            pool.release(buffer);
+            throw e;
+        }
+        buffer.flip();
+        return new AbiResult(pool, buffer, tuple);
+    }
+
+    /**
+     * 根视图，成员与函数返回值（或事件的非 indexed 参数）一一对应
+     */
+    public AbiView view() {
+        if (buffer == null) {
+            throw new IllegalStateException("结果已关闭");
+        }
+        return view;
+    }
+
+    /**
+     * 原始数据的字节数
+     */
+    public int length() {
+        return buffer == null ? 0 : buffer.limit();
+    }
+
+    @Override
+    public void close() {
+        if (buffer != null) {
+            pool.release(buffer);
+            buffer = null;
+        }
+    }
+}
@@ -0,0 +1,283 @@
+package com.yingzhou.ledger;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * ABI 类型树，由 ABI JSON 的参数描述解析而来
+ * 函数的参数表和返回值表也按元组处理，编解码只需面对一种入口。
+ */
+public final class AbiType {
+
+    public enum Kind {
+        UINT, INT, ADDRESS, BOOL, FIXED_BYTES, BYTES, STRING, ARRAY, FIXED_ARRAY, TUPLE
+    }
+
+    private final Kind kind;
+    // UINT/INT 为位数，FIXED_BYTES 为字节数，FIXED_ARRAY 为元素个数
+    private final int size;
+    private final AbiType element;
+    private final List<AbiType> components;
+    private final List<String> names;
+    private final String canonical;
+    private final boolean dynamic;
+    private final int headSize;
+    // 元组各成员在头部中的偏移量
+    private final int[] headOffsets;
+
+    private AbiType(Kind kind, int size, AbiType element, List<AbiType> components, List<String> names) {
+        this.kind = kind;
+        this.size = size;
+        this.element = element;
+        this.components = components;
+        this.names = names;
+        this.canonical = buildCanonical();
+        this.dynamic = computeDynamic();
+        this.headSize = computeHeadSize();
+        this.headOffsets = computeHeadOffsets();
+    }
+
+    /**
+     * 解析 ABI JSON 中的一个参数（含 type 和可选的 components）
+     */
+    public static AbiType parse(JsonObject param) {
+        String type = param.get("type").getAsString();
+        JsonElement components = param.get("components");
+        return parse(type, components == null ? null : components.getAsJsonArray());
+    }
+
+    /**
+     * 将参数表解析为元组
+     */
+    public static AbiType tupleOf(JsonArray params) {
+        if (params == null) {
+            return tuple(Collections.emptyList(), Collections.emptyList());
+        }
+        List<AbiType> types = new ArrayList<>(params.size());
+        List<String> names = new ArrayList<>(params.size());
+        for (JsonElement param : params) {
+            JsonObject object = param.getAsJsonObject();
+            types.add(parse(object));
+            names.add(object.has("name") ? object.get("name").getAsString() : "");
+        }
+        return tuple(types, names);
+    }
+
+    public static AbiType tuple(List<AbiType> components, List<String> names) {
+        return new AbiType(Kind.TUPLE, components.size(), null, List.copyOf(components), List.copyOf(names));
+    }
+
+    /**
+     * 解析不含元组的类型名，如 uint256、bytes32[]、uint256[5]
+     */
+    public static AbiType of(String type) {
+        return parse(type, null);
+    }
+
+    private static AbiType parse(String type, JsonArray components) {
+        if (type.endsWith("]")) {
+            int open = type.lastIndexOf('[');
+            AbiType element = parse(type.substring(0, open), components);
+            String length = type.substring(open + 1, type.length() - 1);
+            if (length.isEmpty()) {
+                return new AbiType(Kind.ARRAY, 0, element, null, null);
+            }
+            return new AbiType(Kind.FIXED_ARRAY, Integer.parseInt(length), element, null, null);
+        }
+        if (type.equals("tuple")) {
+            return tupleOf(components);
+        }
+        if (type.equals("address")) {
+            return new AbiType(Kind.ADDRESS, 160, null, null, null);
+        }
+        if (type.equals("bool")) {
+            return new AbiType(Kind.BOOL, 8, null, null, null);
+        }
+        if (type.equals("string")) {
+            return new AbiType(Kind.STRING, 0, null, null, null);
+        }
+        if (type.equals("bytes")) {
+            return new AbiType(Kind.BYTES, 0, null, null, null);
+        }
+        if (type.startsWith("bytes")) {
+            int length = Integer.parseInt(type.substring(5));
+            if (length < 1 || length > 32) {
+                throw new IllegalArgumentException("非法类型: " + type);
+            }
+            return new AbiType(Kind.FIXED_BYTES, length, null, null, null);
+        }
+        if (type.startsWith("uint") || type.startsWith("int")) {
+            boolean unsigned = type.startsWith("uint");
+            String bits = type.substring(unsigned ? 4 : 3);
+            int size = bits.isEmpty() ? 256 : Integer.parseInt(bits);
+            if (size < 8 || size > 256 || size % 8 != 0) {
+                throw new IllegalArgumentException("非法类型: " + type);
+            }
+            return new AbiType(unsigned ? Kind.UINT : Kind.INT, size, null, null, null);
+        }
+        throw new IllegalArgumentException("不支持的ABI类型: " + type);
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * 数组元素类型
+     */
+    public AbiType getElement() {
+        return element;
+    }
+
+    /**
+     * 元组成员类型
+     */
+    public List<AbiType> getComponents() {
+        return components;
+    }
+
+    /**
+     * 元组成员名，ABI 中未命名的为空串
+     */
+    public List<String> getNames() {
+        return names;
+    }
+
+    /**
+     * 元组成员下标，没有该名字时返回 -1
+     */
+    public int indexOf(String name) {
+        return names == null ? -1 : names.indexOf(name);
+    }
+
+    /**
+     * 是否为动态类型（编码时头部只放偏移量）
+     */
+    public boolean isDynamic() {
+        return dynamic;
+    }
+
+    /**
+     * 在所属元组头部占用的字节数
+     */
+    public int getHeadSize() {
+        return headSize;
+    }
+
+    /**
+     * 第 index 个成员（元组）或元素（数组）头部相对于起点的偏移量
+     */
+    public int getHeadOffset(int index) {
+        return headOffsets != null ? headOffsets[index] : index * element.headSize;
+    }
+
+    /**
+     * 元组或定长数组全部成员头部的总长度（成员为动态类型时每个只占一个偏移量）
+     */
+    public int getInnerHeadSize() {
+        if (kind == Kind.TUPLE) {
+            int last = headOffsets.length - 1;
+            return last < 0 ? 0 : headOffsets[last] + components.get(last).headSize;
+        }
+        return size * element.headSize;
+    }
+
+    /**
+     * 规范类型名，用于计算函数签名，元组写作 (t1,t2)
+     */
+    @Override
+    public String toString() {
+        return canonical;
+    }
+
+    private String buildCanonical() {
+        switch (kind) {
+            case UINT:
+                return "uint" + size;
+            case INT:
+                return "int" + size;
+            case ADDRESS:
+                return "address";
+            case BOOL:
+                return "bool";
+            case FIXED_BYTES:
+                return "bytes" + size;
+            case BYTES:
+                return "bytes";
+            case STRING:
+                return "string";
+            case ARRAY:
+                return element.canonical + "[]";
+            case FIXED_ARRAY:
+                return element.canonical + "[" + size + "]";
+            default:
+                StringBuilder sb = new StringBuilder("(");
+                for (int i = 0; i < components.size(); i++) {
+                    if (i > 0) {
+                        sb.append(',');
+                    }
+                    sb.append(components.get(i).canonical);
+                }
+                return sb.append(')').toString();
+        }
+    }
+
+    private boolean computeDynamic() {
+        switch (kind) {
+            case BYTES:
+            case STRING:
+            case ARRAY:
+                return true;
+            case FIXED_ARRAY:
+                return element.dynamic;
+            case TUPLE:
+                for (AbiType component : components) {
+                    if (component.dynamic) {
+                        return true;
+                    }
+                }
+                return false;
+            default:
+                return false;
+        }
+    }
+
+    private int[] computeHeadOffsets() {
+        if (kind != Kind.TUPLE) {
+            return null;
+        }
+        int[] offsets = new int[components.size()];
+        int offset = 0;
+        for (int i = 0; i < offsets.length; i++) {
+            offsets[i] = offset;
+            offset += components.get(i).headSize;
+        }
+        return offsets;
+    }
+
+    private int computeHeadSize() {
+        if (dynamic) {
+            return 32;
+        }
+        if (kind == Kind.FIXED_ARRAY) {
+            return size * element.headSize;
+        }
+        if (kind == Kind.TUPLE) {
+            int total = 0;
+            for (AbiType component : components) {
+                total += component.headSize;
+            }
+            return total;
+        }
+        return 32;
+    }
+}
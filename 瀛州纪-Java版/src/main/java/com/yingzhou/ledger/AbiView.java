@@ -0,0 +1,328 @@
+package com.yingzhou.ledger;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * ABI 编码数据上的只读视图（元组或数组）
+ *
+ * 不做整体解码：取第 i 个成员时才按类型表算出位置，从缓冲区直接读出。整数、布尔、定长字节
+ * 不产生任何中间对象；字符串、地址只在调用对应方法时才创建。嵌套的元组和数组返回新的视图，
+ * 与父视图共享同一个缓冲区。
+ *
+ * 视图只在所属缓冲区有效期内可用（见 {@link AbiResult}），需要长期保存的值应取出后另存。
+ * 数据不合法（偏移量越界、整数超出范围等）时抛出 IllegalArgumentException 或 ArithmeticException。
+ */
+public final class AbiView {
+
+    private final ByteBuffer buffer;
+    private final AbiType type;
+    // 成员头部的起点，动态成员的偏移量也相对于它
+    private final int base;
+    private final int size;
+
+    private AbiView(ByteBuffer buffer, AbiType type, int base, int size) {
+        this.buffer = buffer;
+        this.type = type;
+        this.base = base;
+        this.size = size;
+    }
+
+    /**
+     * 缓冲区 [base, limit) 中按 tuple 编码的数据
+     */
+    public static AbiView of(ByteBuffer buffer, AbiType tuple, int base) {
+        if (tuple.getKind() != AbiType.Kind.TUPLE) {
+            throw new IllegalArgumentException("根视图必须是元组: " + tuple);
+        }
+        return new AbiView(buffer, tuple, base, tuple.getComponents().size());
+    }
+
+    /**
+     * 成员数（元组）或元素数（数组）
+     */
+    public int size() {
+        return size;
+    }
+
+    public AbiType getType() {
+        return type;
+    }
+
+    /**
+     * 元组成员下标，没有该名字时抛出 IllegalArgumentException
+     * 热路径中应提前取好下标，不要每次按名字查找
+     */
+    public int indexOf(String name) {
+        int index = type.indexOf(name);
+        if (index < 0) {
+            throw new IllegalArgumentException(type + " 没有成员 " + name);
+        }
+        return index;
+    }
+
+    public AbiType typeAt(int index) {
+        checkIndex(index);
+        return type.getKind() == AbiType.Kind.TUPLE ? type.getComponents().get(index) : type.getElement();
+    }
+
+    /**
+     * 非负整数，超出 long 范围时抛出 ArithmeticException；intN 的负值用 {@link #getSignedLong}
+     */
+    public long getLong(int index) {
+        int at = valuePosition(index);
+        if (buffer.getLong(at) != 0 || buffer.getLong(at + 8) != 0 || buffer.getLong(at + 16) != 0) {
+            throw new ArithmeticException("数值超出 long 范围");
+        }
+        long value = buffer.getLong(at + 24);
+        if (value < 0) {
+            throw new ArithmeticException("数值超出 long 范围");
+        }
+        return value;
+    }
+
+    /**
+     * 有符号整数（intN），超出 long 范围时抛出 ArithmeticException
+     */
+    public long getSignedLong(int index) {
+        int at = valuePosition(index);
+        long low = buffer.getLong(at + 24);
+        long sign = low < 0 ? -1L : 0L;
+        if (buffer.getLong(at) != sign || buffer.getLong(at + 8) != sign || buffer.getLong(at + 16) != sign) {
+            throw new ArithmeticException("数值超出 long 范围");
+        }
+        return low;
+    }
+
+    public int getInt(int index) {
+        return Math.toIntExact(getLong(index));
+    }
+
+    public boolean getBoolean(int index) {
+        int at = valuePosition(index);
+        return buffer.getLong(at + 24) != 0 || buffer.getLong(at + 16) != 0
+                || buffer.getLong(at + 8) != 0 || buffer.getLong(at) != 0;
+    }
+
+    /**
+     * 任意宽度的整数，按成员类型决定有无符号
+     */
+    public BigInteger getBigInteger(int index) {
+        byte[] word = new byte[32];
+        buffer.get(valuePosition(index), word);
+        return typeAt(index).getKind() == AbiType.Kind.INT ? new BigInteger(word) : new BigInteger(1, word);
+    }
+
+    /**
+     * 0x 开头的 40 位小写十六进制地址
+     */
+    public String getAddress(int index) {
+        int at = valuePosition(index);
+        return Hex.encode(buffer, at + 12, at + 32);
+    }
+
+    /**
+     * 地址的 20 个字节复制到 dst[offset..]
+     */
+    public void copyAddress(int index, byte[] dst, int offset) {
+        buffer.get(valuePosition(index) + 12, dst, offset, 20);
+    }
+
+    /**
+     * bytesN 复制到 dst[offset..]，返回复制的字节数 N
+     */
+    public int copyFixedBytes(int index, byte[] dst, int offset) {
+        int length = typeAt(index).getSize();
+        buffer.get(valuePosition(index), dst, offset, length);
+        return length;
+    }
+
+    /**
+     * bytesN 以新数组返回
+     */
+    public byte[] getFixedBytes(int index) {
+        byte[] bytes = new byte[typeAt(index).getSize()];
+        copyFixedBytes(index, bytes, 0);
+        return bytes;
+    }
+
+    /**
+     * 静态成员的原始 32 字节编码复制到 dst[offset..]（整数为大端补码，地址右对齐，bytesN 左对齐）
+     */
+    public void copyWord(int index, byte[] dst, int offset) {
+        buffer.get(valuePosition(index), dst, offset, 32);
+    }
+
+    /**
+     * bytesN 中的 8 字节大端整数，用于 bytes32 ID 比较和做散列键，offset 为字节偏移
+     */
+    public long getWordLong(int index, int offset) {
+        return buffer.getLong(valuePosition(index) + offset);
+    }
+
+    /**
+     * 动态 bytes 或 string 的字节长度
+     */
+    public int getByteLength(int index) {
+        return readLength(valuePosition(index));
+    }
+
+    public byte[] getBytes(int index) {
+        int at = valuePosition(index);
+        int length = readLength(at);
+        checkRange(at + 32, length);
+        byte[] bytes = new byte[length];
+        buffer.get(at + 32, bytes);
+        return bytes;
+    }
+
+    public String getString(int index) {
+        int at = valuePosition(index);
+        int length = readLength(at);
+        checkRange(at + 32, length);
+        if (buffer.hasArray()) {
+            return new String(buffer.array(), buffer.arrayOffset() + at + 32, length, StandardCharsets.UTF_8);
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(at + 32, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 嵌套元组（如 getNPC 返回的 AINPC.NPC 结构体）
+     */
+    public AbiView getTuple(int index) {
+        AbiType member = typeAt(index);
+        if (member.getKind() != AbiType.Kind.TUPLE) {
+            throw new IllegalArgumentException("第 " + index + " 个成员不是元组: " + member);
+        }
+        return new AbiView(buffer, member, valuePosition(index), member.getComponents().size());
+    }
+
+    /**
+     * 嵌套数组（T[] 或 T[k]）
+     */
+    public AbiView getArray(int index) {
+        AbiType member = typeAt(index);
+        int at = valuePosition(index);
+        if (member.getKind() == AbiType.Kind.ARRAY) {
+            int length = readLength(at);
+            // 每个元素至少占一个字
+            checkRange(at + 32, (long) length * 32);
+            return new AbiView(buffer, member, at + 32, length);
+        }
+        if (member.getKind() == AbiType.Kind.FIXED_ARRAY) {
+            return new AbiView(buffer, member, at, member.getSize());
+        }
+        throw new IllegalArgumentException("第 " + index + " 个成员不是数组: " + member);
+    }
+
+    /**
+     * 整数数组一次读出，元素须能放进 long
+     */
+    public long[] toLongArray() {
+        long[] values = new long[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = getLong(i);
+        }
+        return values;
+    }
+
+    /**
+     * 按 {@link AbiCodec} 的对象表示取出第 index 个成员（调试和兼容用，会分配对象）
+     */
+    public Object get(int index) {
+        AbiType member = typeAt(index);
+        switch (member.getKind()) {
+            case UINT:
+            case INT:
+                return getBigInteger(index);
+            case ADDRESS:
+                return getAddress(index);
+            case BOOL:
+                return getBoolean(index);
+            case FIXED_BYTES:
+                return getFixedBytes(index);
+            case BYTES:
+                return getBytes(index);
+            case STRING:
+                return getString(index);
+            case TUPLE:
+                return getTuple(index).toArray();
+            default:
+                return Arrays.asList(getArray(index).toArray());
+        }
+    }
+
+    /**
+     * 全部成员按 {@link AbiCodec} 的对象表示取出
+     */
+    public Object[] toArray() {
+        Object[] values = new Object[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = get(i);
+        }
+        return values;
+    }
+
+    /**
+     * 元素逐个转换后收集成列表
+     */
+    public <T> List<T> map(ElementReader<T> reader) {
+        List<T> values = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            values.add(reader.read(this, i));
+        }
+        return values;
+    }
+
+    /**
+     * 从视图中读取第 index 个元素
+     */
+    @FunctionalInterface
+    public interface ElementReader<T> {
+        T read(AbiView view, int index);
+    }
+
+    private int valuePosition(int index) {
+        checkIndex(index);
+        AbiType member = type.getKind() == AbiType.Kind.TUPLE ? type.getComponents().get(index) : type.getElement();
+        int head = base + type.getHeadOffset(index);
+        checkRange(head, 32);
+        if (!member.isDynamic()) {
+            return head;
+        }
+        int at = base + readLength(head);
+        checkRange(at, 32);
+        return at;
+    }
+
+    /**
+     * 读取一个作为长度或偏移量的字，须小于缓冲区长度
+     */
+    private int readLength(int at) {
+        checkRange(at, 32);
+        long value = buffer.getLong(at + 24);
+        if ((buffer.getLong(at) | buffer.getLong(at + 8) | buffer.getLong(at + 16)) != 0
+                || value < 0 || value > buffer.limit()) {
+            throw new IllegalArgumentException("偏移量或长度不合法，位置 " + at);
+        }
+        return (int) value;
+    }
+
+    private void checkRange(int at, long length) {
+        if (at < 0 || at + length > buffer.limit()) {
+            throw new IllegalArgumentException("数据过短: 需要读取 " + at + "+" + length + "，实际 " + buffer.limit() + " 字节");
+        }
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("下标 " + index + " 超出 " + size);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.yingzhou.ledger;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 一个合约的函数和事件表
+ * 函数可按名字查找；重载函数（如 safeTransferFrom）只能按完整签名查找。
+ */
+public final class ContractAbi {
+
+    private final String name;
+    private final Map<String, AbiFunction> functionsBySignature = new LinkedHashMap<>();
+    private final Map<String, AbiFunction> functionsByName = new LinkedHashMap<>();
+    private final Map<Integer, AbiFunction> functionsBySelector = new LinkedHashMap<>();
+    private final Map<String, AbiEvent> eventsByName = new LinkedHashMap<>();
+    private final Map<String, AbiEvent> eventsByTopic = new LinkedHashMap<>();
+    private final Map<Integer, AbiFunction> errorsBySelector = new LinkedHashMap<>();
+
+    ContractAbi(String name) {
+        this.name = name;
+    }
+
+    void addFunction(AbiFunction function) {
+        functionsBySignature.put(function.getSignature(), function);
+        functionsBySelector.put(function.getSelectorInt(), function);
+        if (functionsByName.containsKey(function.getName())) {
+            // 重载的名字不能按名字查找，避免取到任意一个
+            functionsByName.put(function.getName(), null);
+        } else {
+            functionsByName.put(function.getName(), function);
+        }
+    }
+
+    void addEvent(AbiEvent event) {
+        eventsByName.put(event.getName(), event);
+        eventsByTopic.put(event.getTopic(), event);
+    }
+
+    void addError(AbiFunction error) {
+        errorsBySelector.put(error.getSelectorInt(), error);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 按名字或完整签名查找函数
+     *
+     * @throws IllegalArgumentException 不存在或名字有重载
+     */
+    public AbiFunction function(String nameOrSignature) {
+        AbiFunction function = nameOrSignature.indexOf('(') >= 0
+                ? functionsBySignature.get(nameOrSignature)
+                : functionsByName.get(nameOrSignature);
+        if (function == null) {
+            String reason = countByName(nameOrSignature) > 1 ? "有重载，请使用完整签名" : "不存在";
+            throw new IllegalArgumentException(name + "." + nameOrSignature + " " + reason);
+        }
+        return function;
+    }
+
+    /**
+     * 按调用数据的前 4 字节查找函数，没有时返回 null
+     */
+    public AbiFunction functionBySelector(int selector) {
+        return functionsBySelector.get(selector);
+    }
+
+    /**
+     * @throws IllegalArgumentException 不存在
+     */
+    public AbiEvent event(String eventName) {
+        AbiEvent event = eventsByName.get(eventName);
+        if (event == null) {
+            throw new IllegalArgumentException(name + " 没有事件 " + eventName);
+        }
+        return event;
+    }
+
+    /**
+     * 按主题0查找事件，不属于本合约时返回 null
+     */
+    public AbiEvent eventByTopic(String topic) {
+        return eventsByTopic.get(topic.toLowerCase());
+    }
+
+    /**
+     * 按选择器查找自定义错误，没有时返回 null
+     */
+    public AbiFunction errorBySelector(int selector) {
+        return errorsBySelector.get(selector);
+    }
+
+    /**
+     * 按名字查找自定义错误，没有时返回 null
+     */
+    public AbiFunction error(String errorName) {
+        for (AbiFunction error : errorsBySelector.values()) {
+            if (error.getName().equals(errorName)) {
+                return error;
+            }
+        }
+        return null;
+    }
+
+    public Collection<AbiFunction> getFunctions() {
+        return Collections.unmodifiableCollection(functionsBySignature.values());
+    }
+
+    public Collection<AbiEvent> getEvents() {
+        return Collections.unmodifiableCollection(eventsByName.values());
+    }
+
+    private int countByName(String functionName) {
+        int count = 0;
+        for (AbiFunction function : functionsBySignature.values()) {
+            if (function.getName().equals(functionName)) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
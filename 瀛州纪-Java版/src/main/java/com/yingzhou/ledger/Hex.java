@@ -0,0 +1,152 @@
+package com.yingzhou.ledger;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * 0x 前缀十六进制与字节互转
+ */
+public final class Hex {
+
+    private static final char[] DIGITS = "0123456789abcdef".toCharArray();
+    private static final byte[] VALUES = new byte[128];
+
+    static {
+        Arrays.fill(VALUES, (byte) -1);
+        for (int i = 0; i < 10; i++) {
+            VALUES['0' + i] = (byte) i;
+        }
+        for (int i = 0; i < 6; i++) {
+            VALUES['a' + i] = (byte) (10 + i);
+            VALUES['A' + i] = (byte) (10 + i);
+        }
+    }
+
+    private Hex() {
+    }
+
+    public static String encode(byte[] bytes) {
+        return encode(bytes, 0, bytes.length);
+    }
+
+    public static String encode(byte[] bytes, int offset, int length) {
+        char[] out = new char[2 + length * 2];
+        out[0] = '0';
+        out[1] = 'x';
+        for (int i = 0; i < length; i++) {
+            int b = bytes[offset + i] & 0xFF;
+            out[2 + i * 2] = DIGITS[b >>> 4];
+            out[3 + i * 2] = DIGITS[b & 0x0F];
+        }
+        return new String(out);
+    }
+
+    /**
+     * 解码十六进制串，前缀 0x 可省略，奇数位在高位补零
+     *
+     * @throws IllegalArgumentException 含非十六进制字符
+     */
+    public static byte[] decode(CharSequence hex) {
+        int start = hasPrefix(hex) ? 2 : 0;
+        int digits = hex.length() - start;
+        byte[] out = new byte[(digits + 1) / 2];
+        int pos = hex.length();
+        for (int i = out.length - 1; i >= 0; i--) {
+            int low = digit(hex.charAt(--pos));
+            int high = pos > start ? digit(hex.charAt(--pos)) : 0;
+            out[i] = (byte) (high << 4 | low);
+        }
+        return out;
+    }
+
+    /**
+     * 编码缓冲区中 [from, to) 的字节，不改变缓冲区位置
+     */
+    public static String encode(ByteBuffer buffer, int from, int to) {
+        char[] out = new char[2 + (to - from) * 2];
+        out[0] = '0';
+        out[1] = 'x';
+        for (int i = from, o = 2; i < to; i++, o += 2) {
+            int b = buffer.get(i) & 0xFF;
+            out[o] = DIGITS[b >>> 4];
+            out[o + 1] = DIGITS[b & 0x0F];
+        }
+        return new String(out);
+    }
+
+    /**
+     * 把十六进制串解码到缓冲区当前位置，返回写入的字节数，位置随之前移
+     * 用于把 JSON-RPC 返回的数据直接写进池化缓冲区，不经过中间数组
+     *
+     * @throws IllegalArgumentException 含非十六进制字符或位数为奇数
+     * @throws BufferOverflowException 缓冲区剩余空间不足
+     */
+    public static int decode(CharSequence hex, ByteBuffer out) {
+        int start = hasPrefix(hex) ? 2 : 0;
+        int digits = hex.length() - start;
+        if ((digits & 1) != 0) {
+            throw new IllegalArgumentException("十六进制位数为奇数: " + digits);
+        }
+        int length = digits / 2;
+        if (out.remaining() < length) {
+            throw new BufferOverflowException();
+        }
+        int position = out.position();
+        if (out.hasArray()) {
+            // 堆缓冲区直接写底层数组，省去每字节的边界检查
+            byte[] array = out.array();
+            int offset = out.arrayOffset() + position;
+            for (int i = 0, c = start; i < length; i++, c += 2) {
+                array[offset + i] = (byte) pair(hex.charAt(c), hex.charAt(c + 1));
+            }
+        } else {
+            for (int i = 0, c = start; i < length; i++, c += 2) {
+                out.put(position + i, (byte) pair(hex.charAt(c), hex.charAt(c + 1)));
+            }
+        }
+        out.position(position + length);
+        return length;
+    }
+
+    /**
+     * 十六进制串表示的字节数
+     */
+    public static int byteLength(CharSequence hex) {
+        return (hex.length() - (hasPrefix(hex) ? 2 : 0) + 1) / 2;
+    }
+
+    /**
+     * JSON-RPC 的数量值（如 "0x1b4"）
+     */
+    public static long decodeQuantity(String hex) {
+        return Long.parseUnsignedLong(hex.substring(hasPrefix(hex) ? 2 : 0), 16);
+    }
+
+    public static String encodeQuantity(long value) {
+        return "0x" + Long.toHexString(value);
+    }
+
+    /**
+     * 两位十六进制数字组成的字节，两位一起查表、一次判断
+     */
+    private static int pair(char high, char low) {
+        int value = (high | low) < 128 ? VALUES[high] << 4 | VALUES[low] : -1;
+        if (value < 0) {
+            throw new IllegalArgumentException("非十六进制字符: " + (high < 128 && VALUES[high] >= 0 ? low : high));
+        }
+        return value;
+    }
+
+    static int digit(char c) {
+        int value = c < 128 ? VALUES[c] : -1;
+        if (value < 0) {
+            throw new IllegalArgumentException("非十六进制字符: " + c);
+        }
+        return value;
+    }
+
+    private static boolean hasPrefix(CharSequence hex) {
+        return hex.length() >= 2 && hex.charAt(0) == '0' && (hex.charAt(1) == 'x' || hex.charAt(1) == 'X');
+    }
+}
@@ -0,0 +1,317 @@
+package com.yingzhou.ledger;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.yingzhou.perf.LatencyHistogram;
+import com.yingzhou.util.Logger;
+
+import java.io.Closeable;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 批量 + 流水线的 JSON-RPC 客户端
+ *
+ * 调用 {@link #request} 只入队并返回 future，不会阻塞调用方（游戏循环、FX线程）。
+ * 入队的请求由 {@link #flush}（游戏每帧调用一次）合并为一个 JSON-RPC 批量数组发送；
+ * 攒满 maxBatch 条立即发送，无人 flush 时最多等待 linger 毫秒也会发送。
+ *
+ * 同一时刻最多 maxInFlight 个批次在途，发送下一批不等上一批返回。底层 HttpClient 优先协商 HTTP/2，
+ * 在一条连接上多路复用；节点只支持 HTTP/1.1 时（如 Hardhat）退回 keep-alive 连接池，每个在途批次一条连接。
+ *
+ * future 在 HttpClient 的工作线程上完成，更新界面需自行切回 FX 线程。
+ */
+public class JsonRpcClient implements Closeable {
+
+    public static final int DEFAULT_MAX_BATCH = 100;
+    public static final int DEFAULT_MAX_IN_FLIGHT = 4;
+    public static final long DEFAULT_LINGER_MILLIS = 2;
+    public static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(10);
+
+    private static final class Call {
+        final long id;
+        final String method;
+        final JsonArray params;
+        final CompletableFuture<JsonElement> future = new CompletableFuture<>();
+
+        Call(long id, String method, JsonArray params) {
+            this.id = id;
+            this.method = method;
+            this.params = params;
+        }
+    }
+
+    private final URI endpoint;
+    private final int maxBatch;
+    private final int maxInFlight;
+    private final long lingerMillis;
+    private final Duration timeout;
+    private final HttpClient http;
+    private final ScheduledExecutorService lingerTimer;
+    private final LatencyHistogram roundTripHistogram = new LatencyHistogram("ledger.rpc");
+
+    // 以下由 this 保护
+    private List<Call> pending = new ArrayList<>();
+    private final ArrayDeque<List<Call>> waiting = new ArrayDeque<>();
+    private ScheduledFuture<?> lingerFlush;
+    private long nextId = 1;
+    private int inFlight;
+    private int peakInFlight;
+    private long batchesSent;
+    private long requestsSent;
+    private boolean closed;
+
+    public JsonRpcClient(URI endpoint) {
+        this(endpoint, DEFAULT_MAX_BATCH, DEFAULT_MAX_IN_FLIGHT, DEFAULT_LINGER_MILLIS, DEFAULT_TIMEOUT);
+    }
+
+    /**
+     * @param maxBatch 每个批次最多的请求数
+     * @param maxInFlight 同时在途的批次数
+     * @param lingerMillis 未 flush 时请求最多排队的时间，0 表示只在 flush 或攒满时发送
+     */
+    public JsonRpcClient(URI endpoint, int maxBatch, int maxInFlight, long lingerMillis, Duration timeout) {
+        if (maxBatch < 1 || maxInFlight < 1) {
+            throw new IllegalArgumentException("maxBatch 和 maxInFlight 至少为 1");
+        }
+        this.endpoint = endpoint;
+        this.maxBatch = maxBatch;
+        this.maxInFlight = maxInFlight;
+        this.lingerMillis = lingerMillis;
+        this.timeout = timeout;
+        this.http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(timeout)
+                .build();
+        this.lingerTimer = lingerMillis > 0 ? Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "ledger-rpc-linger");
+            thread.setDaemon(true);
+            return thread;
+        }) : null;
+    }
+
+    /**
+     * 排队一个 JSON-RPC 请求，返回结果字段
+     * 节点返回 error 时 future 以 {@link RpcException} 失败
+     */
+    public CompletableFuture<JsonElement> request(String method, JsonArray params) {
+        List<Call> full = null;
+        Call call;
+        synchronized (this) {
+            if (closed) {
+                return CompletableFuture.failedFuture(new RpcException("客户端已关闭", null));
+            }
+            call = new Call(nextId++, method, params);
+            pending.add(call);
+            if (pending.size() >= maxBatch) {
+                full = takePending();
+            } else if (lingerTimer != null && lingerFlush == null) {
+                lingerFlush = lingerTimer.schedule(this::flush, lingerMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+        if (full != null) {
+            dispatch(full);
+        }
+        return call.future;
+    }
+
+    /**
+     * 立即发送排队中的请求
+     */
+    public void flush() {
+        List<Call> batch;
+        synchronized (this) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = takePending();
+        }
+        dispatch(batch);
+    }
+
+    private List<Call> takePending() {
+        List<Call> batch = pending;
+        pending = new ArrayList<>();
+        if (lingerFlush != null) {
+            lingerFlush.cancel(false);
+            lingerFlush = null;
+        }
+        return batch;
+    }
+
+    private void dispatch(List<Call> batch) {
+        synchronized (this) {
+            if (inFlight >= maxInFlight) {
+                waiting.add(batch);
+                return;
+            }
+            inFlight++;
+            peakInFlight = Math.max(peakInFlight, inFlight);
+            batchesSent++;
+            requestsSent += batch.size();
+        }
+        send(batch);
+    }
+
+    private void send(List<Call> batch) {
+        JsonArray body = new JsonArray(batch.size());
+        for (Call call : batch) {
+            JsonObject request = new JsonObject();
+            request.addProperty("jsonrpc", "2.0");
+            request.addProperty("id", call.id);
+            request.addProperty("method", call.method);
+            request.add("params", call.params == null ? new JsonArray() : call.params);
+            body.add(request);
+        }
+        HttpRequest request = HttpRequest.newBuilder(endpoint)
+                .timeout(timeout)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body.toString()))
+                .build();
+        long start = System.nanoTime();
+        http.sendAsync(request, HttpResponse.BodyHandlers.ofString()).whenComplete((response, error) -> {
+            roundTripHistogram.record(System.nanoTime() - start);
+            onBatchDone();
+            if (error != null) {
+                failAll(batch, new RpcException("请求 " + endpoint + " 失败", error));
+            } else {
+                complete(batch, response);
+            }
+        });
+    }
+
+    private void onBatchDone() {
+        List<Call> next;
+        synchronized (this) {
+            inFlight--;
+            next = waiting.poll();
+            if (next == null) {
+                return;
+            }
+            inFlight++;
+            batchesSent++;
+            requestsSent += next.size();
+        }
+        send(next);
+    }
+
+    private void complete(List<Call> batch, HttpResponse<String> response) {
+        JsonElement body;
+        try {
+            body = JsonParser.parseString(response.body());
+        } catch (RuntimeException e) {
+            failAll(batch, new RpcException("HTTP " + response.statusCode() + " 响应不是JSON", e));
+            return;
+        }
+        if (!body.isJsonArray()) {
+            // 整个批次被拒绝时节点返回单个 error 对象
+            JsonObject object = body.isJsonObject() ? body.getAsJsonObject() : new JsonObject();
+            failAll(batch, object.has("error")
+                    ? RpcException.fromError(object.getAsJsonObject("error"))
+                    : new RpcException("HTTP " + response.statusCode() + " 响应不是批量数组", null));
+            return;
+        }
+        Map<Long, JsonObject> byId = new HashMap<>();
+        for (JsonElement element : body.getAsJsonArray()) {
+            JsonObject object = element.getAsJsonObject();
+            JsonElement id = object.get("id");
+            if (id != null && !id.isJsonNull()) {
+                byId.put(id.getAsLong(), object);
+            }
+        }
+        for (Call call : batch) {
+            JsonObject result = byId.get(call.id);
+            if (result == null) {
+                call.future.completeExceptionally(new RpcException(RpcException.INTERNAL_ERROR, call.method + " 无响应", null));
+            } else if (result.has("error") && !result.get("error").isJsonNull()) {
+                call.future.completeExceptionally(RpcException.fromError(result.getAsJsonObject("error")));
+            } else {
+                call.future.complete(result.get("result"));
+            }
+        }
+    }
+
+    private static void failAll(List<Call> batch, RpcException error) {
+        for (Call call : batch) {
+            call.future.completeExceptionally(error);
+        }
+    }
+
+    public URI getEndpoint() {
+        return endpoint;
+    }
+
+    public synchronized int getPendingCount() {
+        return pending.size();
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    public synchronized int getPeakInFlight() {
+        return peakInFlight;
+    }
+
+    /**
+     * 已发出的 HTTP 请求数（每批一个）
+     */
+    public synchronized long getBatchesSent() {
+        return batchesSent;
+    }
+
+    /**
+     * 已发出的 JSON-RPC 调用数
+     */
+    public synchronized long getRequestsSent() {
+        return requestsSent;
+    }
+
+    /**
+     * 每个批次从发出到收到响应的耗时
+     */
+    public LatencyHistogram getRoundTripHistogram() {
+        return roundTripHistogram;
+    }
+
+    /**
+     * 丢弃排队和等待中的请求；在途批次照常完成
+     */
+    @Override
+    public void close() {
+        List<Call> dropped = new ArrayList<>();
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            dropped.addAll(takePending());
+            for (List<Call> batch : waiting) {
+                dropped.addAll(batch);
+            }
+            waiting.clear();
+        }
+        if (lingerTimer != null) {
+            lingerTimer.shutdownNow();
+        }
+        failAll(dropped, new RpcException("客户端已关闭", null));
+        if (!dropped.isEmpty()) {
+            Logger.debug("JSON-RPC 客户端关闭，丢弃 " + dropped.size() + " 个请求");
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package com.yingzhou.ledger;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 以太坊使用的 Keccak-256（原始 Keccak 填充 0x01，不是 NIST SHA3-256 的 0x06）
+ * 用于函数选择器、事件主题，以及进度 Merkle 树的批量哈希（见 com.yingzhou.data.progress）
+ */
+public final class Keccak256 {
+
+    private static final int RATE = 136;
+
+    private static final long[] ROUND_CONSTANTS = {
+            0x0000000000000001L, 0x0000000000008082L, 0x800000000000808aL, 0x8000000080008000L,
+            0x000000000000808bL, 0x0000000080000001L, 0x8000000080008081L, 0x8000000000008009L,
+            0x000000000000008aL, 0x0000000000000088L, 0x0000000080008009L, 0x000000008000000aL,
+            0x000000008000808bL, 0x800000000000008bL, 0x8000000000008089L, 0x8000000000008003L,
+            0x8000000000008002L, 0x8000000000000080L, 0x000000000000800aL, 0x800000008000000aL,
+            0x8000000080008081L, 0x8000000000008080L, 0x0000000080000001L, 0x8000000080008008L
+    };
+
+    private static final VarHandle LONG_LE = MethodHandles.byteArrayViewVarHandle(long[].class,
+            ByteOrder.LITTLE_ENDIAN);
+
+    private Keccak256() {
+    }
+
+    public static byte[] hash(String text) {
+        return hash(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static byte[] hash(byte[] input) {
+        return hash(input, 0, input.length);
+    }
+
+    public static byte[] hash(byte[] input, int offset, int length) {
+        long[] state = new long[25];
+        int end = offset + length;
+        while (end - offset >= RATE) {
+            for (int i = 0; i < RATE / 8; i++) {
+                state[i] ^= (long) LONG_LE.get(input, offset + 8 * i);
+            }
+            permute(state);
+            offset += RATE;
+        }
+        int remaining = end - offset;
+        for (int i = 0; i < remaining; i++) {
+            state[i >>> 3] ^= (input[offset + i] & 0xFFL) << (8 * (i & 7));
+        }
+        state[remaining >>> 3] ^= 0x01L << (8 * (remaining & 7));
+        state[(RATE - 1) >>> 3] ^= 0x80L << 56;
+        permute(state);
+
+        byte[] out = new byte[32];
+        for (int i = 0; i < 4; i++) {
+            LONG_LE.set(out, 8 * i, state[i]);
+        }
+        return out;
+    }
+
+    /**
+     * Keccak-f[1600]，25 个 lane 放在局部变量里逐轮展开
+     */
+    private static void permute(long[] a) {
+        long a00 = a[0], a01 = a[1], a02 = a[2], a03 = a[3], a04 = a[4];
+        long a05 = a[5], a06 = a[6], a07 = a[7], a08 = a[8], a09 = a[9];
+        long a10 = a[10], a11 = a[11], a12 = a[12], a13 = a[13], a14 = a[14];
+        long a15 = a[15], a16 = a[16], a17 = a[17], a18 = a[18], a19 = a[19];
+        long a20 = a[20], a21 = a[21], a22 = a[22], a23 = a[23], a24 = a[24];
+        for (int round = 0; round < 24; round++) {
+            // θ
+            long c0 = a00 ^ a05 ^ a10 ^ a15 ^ a20;
+            long c1 = a01 ^ a06 ^ a11 ^ a16 ^ a21;
+            long c2 = a02 ^ a07 ^ a12 ^ a17 ^ a22;
+            long c3 = a03 ^ a08 ^ a13 ^ a18 ^ a23;
+            long c4 = a04 ^ a09 ^ a14 ^ a19 ^ a24;
+            long d = Long.rotateLeft(c1, 1) ^ c4;
+            a00 ^= d;
+            a05 ^= d;
+            a10 ^= d;
+            a15 ^= d;
+            a20 ^= d;
+            d = Long.rotateLeft(c2, 1) ^ c0;
+            a01 ^= d;
+            a06 ^= d;
+            a11 ^= d;
+            a16 ^= d;
+            a21 ^= d;
+            d = Long.rotateLeft(c3, 1) ^ c1;
+            a02 ^= d;
+            a07 ^= d;
+            a12 ^= d;
+            a17 ^= d;
+            a22 ^= d;
+            d = Long.rotateLeft(c4, 1) ^ c2;
+            a03 ^= d;
+            a08 ^= d;
+            a13 ^= d;
+            a18 ^= d;
+            a23 ^= d;
+            d = Long.rotateLeft(c0, 1) ^ c3;
+            a04 ^= d;
+            a09 ^= d;
+            a14 ^= d;
+            a19 ^= d;
+            a24 ^= d;
+
+            // ρ π：沿 π 的置换环依次移位
+            c1 = Long.rotateLeft(a01, 1);
+            a01 = Long.rotateLeft(a06, 44);
+            a06 = Long.rotateLeft(a09, 20);
+            a09 = Long.rotateLeft(a22, 61);
+            a22 = Long.rotateLeft(a14, 39);
+            a14 = Long.rotateLeft(a20, 18);
+            a20 = Long.rotateLeft(a02, 62);
+            a02 = Long.rotateLeft(a12, 43);
+            a12 = Long.rotateLeft(a13, 25);
+            a13 = Long.rotateLeft(a19, 8);
+            a19 = Long.rotateLeft(a23, 56);
+            a23 = Long.rotateLeft(a15, 41);
+            a15 = Long.rotateLeft(a04, 27);
+            a04 = Long.rotateLeft(a24, 14);
+            a24 = Long.rotateLeft(a21, 2);
+            a21 = Long.rotateLeft(a08, 55);
+            a08 = Long.rotateLeft(a16, 45);
+            a16 = Long.rotateLeft(a05, 36);
+            a05 = Long.rotateLeft(a03, 28);
+            a03 = Long.rotateLeft(a18, 21);
+            a18 = Long.rotateLeft(a17, 15);
+            a17 = Long.rotateLeft(a11, 10);
+            a11 = Long.rotateLeft(a07, 6);
+            a07 = Long.rotateLeft(a10, 3);
+            a10 = c1;
+
+            // χ
+            c0 = a00 ^ (~a01 & a02);
+            c1 = a01 ^ (~a02 & a03);
+            a02 ^= ~a03 & a04;
+            a03 ^= ~a04 & a00;
+            a04 ^= ~a00 & a01;
+            a00 = c0;
+            a01 = c1;
+
+            c0 = a05 ^ (~a06 & a07);
+            c1 = a06 ^ (~a07 & a08);
+            a07 ^= ~a08 & a09;
+            a08 ^= ~a09 & a05;
+            a09 ^= ~a05 & a06;
+            a05 = c0;
+            a06 = c1;
+
+            c0 = a10 ^ (~a11 & a12);
+            c1 = a11 ^ (~a12 & a13);
+            a12 ^= ~a13 & a14;
+            a13 ^= ~a14 & a10;
+            a14 ^= ~a10 & a11;
+            a10 = c0;
+            a11 = c1;
+
+            c0 = a15 ^ (~a16 & a17);
+            c1 = a16 ^ (~a17 & a18);
+            a17 ^= ~a18 & a19;
+            a18 ^= ~a19 & a15;
+            a19 ^= ~a15 & a16;
+            a15 = c0;
+            a16 = c1;
+
+            c0 = a20 ^ (~a21 & a22);
+            c1 = a21 ^ (~a22 & a23);
+            a22 ^= ~a23 & a24;
+            a23 ^= ~a24 & a20;
+            a24 ^= ~a20 & a21;
+            a20 = c0;
+            a21 = c1;
+
+            // ι
+            a00 ^= ROUND_CONSTANTS[round];
+        }
+        a[0] = a00;
+        a[1] = a01;
+        a[2] = a02;
+        a[3] = a03;
+        a[4] = a04;
+        a[5] = a05;
+        a[6] = a06;
+        a[7] = a07;
+        a[8] = a08;
+        a[9] = a09;
+        a[10] = a10;
+        a[11] = a11;
+        a[12] = a12;
+        a[13] = a13;
+        a[14] = a14;
+        a[15] = a15;
+        a[16] = a16;
+        a[17] = a17;
+        a[18] = a18;
+        a[19] = a19;
+        a[20] = a20;
+        a[21] = a21;
+        a[22] = a22;
+        a[23] = a23;
+        a[24] = a24;
+    }
+}
@@ -0,0 +1,204 @@
+package com.yingzhou.ledger;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.yingzhou.util.Logger;
+
+import java.io.Closeable;
+import java.net.URI;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+/**
+ * 游戏合约的只读客户端
+ *
+ * 按 (合约, 函数, 参数) 发起 eth_call，参数编码和结果解码使用预加载的 {@link AbiRegistry}。
+ * {@link #call} 把返回值整体解码为对象，{@link #read} 在池化缓冲区上按需读取，适合频繁刷新的界面。
+ * 所有调用先进入 {@link JsonRpcClient} 的队列，调用方攒好一批后调用一次 {@link #flush}
+ * （例如界面每帧一次），其间发起的几十个读取合并为一个 HTTP 请求；无人 flush 时按 linger 时间发送。
+ *
+ * 启动游戏时加 -Dyingzhou.ledger=true（或直接给出节点地址）即连接本地 Hardhat 节点，
+ * 加 -Dyingzhou.ledger=mock 则连接进程内的模拟链（见 {@code ledger.mock.MockRpcServer}）。
+ */
+public class LedgerClient implements Closeable {
+
+    public static final String PROPERTY = "yingzhou.ledger";
+
+    private final LedgerConfig config;
+    private final AbiRegistry abis;
+    private final JsonRpcClient rpc;
+
+    public LedgerClient(LedgerConfig config, AbiRegistry abis) {
+        this.config = config;
+        this.abis = abis;
+        this.rpc = new JsonRpcClient(URI.create(config.getRpcUrl()), config.getMaxBatch(),
+                config.getMaxInFlight(), config.getLingerMillis(), config.getTimeout());
+    }
+
+    /**
+     * 设置了 -Dyingzhou.ledger 时创建客户端，否则返回 null（不接链）
+     * 只在后台检查节点，不会阻塞调用线程
+     */
+    public static LedgerClient connectIfRequested() {
+        String value = System.getProperty(PROPERTY);
+        // mock 由调用方先启动模拟链，再用 connect 连接
+        if (value == null || value.isBlank() || value.equals("false") || value.equals("mock")) {
+            return null;
+        }
+        LedgerConfig config = LedgerConfig.load();
+        if (!value.equals("true")) {
+            config.setRpcUrl(value);
+        }
+        return connect(config);
+    }
+
+    /**
+     * 按给定配置创建客户端，在后台检查节点
+     */
+    public static LedgerClient connect(LedgerConfig config) {
+        LedgerClient client = new LedgerClient(config, AbiRegistry.getDefault());
+        client.chainId().whenComplete((chainId, error) -> {
+            if (error != null) {
+                Logger.warn("账本节点 " + config.getRpcUrl() + " 不可用: " + unwrap(error).getMessage());
+            } else {
+                Logger.info("已连接账本节点 " + config.getRpcUrl() + "，链ID " + chainId
+                        + "，已配置 " + config.getAddresses().size() + " 个合约地址");
+            }
+        });
+        client.flush();
+        return client;
+    }
+
+    /**
+     * 在最新区块上调用合约函数，返回按ABI解码的返回值
+     * 合约回滚时 future 以 {@link RpcException} 失败，消息为解出的回滚原因
+     *
+     * @param function 函数名，重载函数用完整签名
+     * @throws IllegalArgumentException 合约或函数不存在、参数不匹配、合约地址未配置
+     */
+    public CompletableFuture<Object[]> call(String contract, String function, Object... args) {
+        return callAt("latest", contract, function, args);
+    }
+
+    /**
+     * 只有一个返回值时直接取出，类型见 {@link AbiCodec}
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<T> callValue(String contract, String function, Object... args) {
+        return call(contract, function, args).thenApply(values -> (T) values[0]);
+    }
+
+    /**
+     * @param blockTag "latest"、"pending" 或区块号的 0x 形式
+     */
+    public CompletableFuture<Object[]> callAt(String blockTag, String contract, String function, Object... args) {
+        AbiFunction abi = abis.contract(contract).function(function);
+        return ethCall(blockTag, contract, abi, args).thenApply(hex -> abi.decodeResult(Hex.decode(hex)));
+    }
+
+    /**
+     * 在最新区块上调用合约函数，返回数据解码进池化缓冲区后交给 reader 惰性读取，reader 返回后缓冲区即归还。
+     * reader 在 HttpClient 工作线程上执行，不要把视图带出 reader。
+     * <pre>
+     *   client.read("EpochManager", "getCurrentEpoch", view -> view.getInt(0), player)
+     * </pre>
+     */
+    public <T> CompletableFuture<T> read(String contract, String function, Function<AbiView, T> reader, Object... args) {
+        AbiFunction abi = abis.contract(contract).function(function);
+        return ethCall("latest", contract, abi, args).thenApply(hex -> {
+            try (AbiResult result = AbiResult.decode(hex, abi.getOutputs())) {
+                return reader.apply(result.view());
+            }
+        });
+    }
+
+    private CompletableFuture<String> ethCall(String blockTag, String contract, AbiFunction abi, Object[] args) {
+        JsonObject tx = new JsonObject();
+        tx.addProperty("to", address(contract));
+        tx.addProperty("data", AbiEncoder.encodeCallHex(abi, args));
+        JsonArray params = new JsonArray(2);
+        params.add(tx);
+        params.add(blockTag);
+        return rpc.request("eth_call", params).handle((result, error) -> {
+            if (error != null) {
+                throw new CompletionException(describe(contract, abi, unwrap(error)));
+            }
+            return result.getAsString();
+        });
+    }
+
+    public CompletableFuture<Long> blockNumber() {
+        return rpc.request("eth_blockNumber", new JsonArray()).thenApply(result -> Hex.decodeQuantity(result.getAsString()));
+    }
+
+    public CompletableFuture<Long> chainId() {
+        return rpc.request("eth_chainId", new JsonArray()).thenApply(result -> Hex.decodeQuantity(result.getAsString()));
+    }
+
+    /**
+     * 任意 JSON-RPC 方法，与合约调用一起批量发送
+     */
+    public CompletableFuture<JsonElement> request(String method, JsonArray params) {
+        return rpc.request(method, params);
+    }
+
+    /**
+     * 发送本帧排队的请求，游戏循环每帧调用一次
+     */
+    public void flush() {
+        rpc.flush();
+    }
+
+    /**
+     * @throws IllegalArgumentException 未配置该合约地址
+     */
+    public String address(String contract) {
+        String address = config.getAddress(contract);
+        if (address == null) {
+            throw new IllegalArgumentException("未配置合约地址: " + contract
+                    + "（-D" + LedgerConfig.ADDRESS_PROPERTY_PREFIX + contract + "=0x...）");
+        }
+        return address;
+    }
+
+    public LedgerConfig getConfig() {
+        return config;
+    }
+
+    public AbiRegistry getAbis() {
+        return abis;
+    }
+
+    public JsonRpcClient getRpc() {
+        return rpc;
+    }
+
+    @Override
+    public void close() {
+        rpc.close();
+    }
+
+    /**
+     * 把节点返回的错误换成带函数签名的描述，回滚时解出回滚原因；传输层错误原样返回
+     */
+    public Throwable describe(String contract, AbiFunction abi, Throwable error) {
+        if (!(error instanceof RpcException) || ((RpcException) error).getCode() == RpcException.TRANSPORT) {
+            return error;
+        }
+        RpcException rpcError = (RpcException) error;
+        byte[] revert = rpcError.getRevertData();
+        if (revert == null) {
+            return new RpcException(rpcError.getCode(), abi + ": " + rpcError.getMessage(), rpcError.getData());
+        }
+        return new RpcException(rpcError.getCode(), abi + " 回滚: " + abis.describeRevert(contract, revert), rpcError.getData());
+    }
+
+    public static Throwable unwrap(Throwable error) {
+        while (error instanceof CompletionException && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error;
+    }
+}
@@ -0,0 +1,170 @@
+package com.yingzhou.ledger;
+
+import com.yingzhou.util.Logger;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 链上连接配置：节点地址、各合约地址和批量参数
+ *
+ * 合约地址与 Web 版共用 瀛州纪/.env.local（npm run deploy:auto 部署后自动写入），
+ * 依次被环境变量和 -Dyingzhou.ledger.address.合约名=0x... 覆盖。
+ */
+public class LedgerConfig {
+
+    public static final String RPC_PROPERTY = "yingzhou.ledger.rpc";
+    public static final String ENV_FILE_PROPERTY = "yingzhou.ledger.env";
+    public static final String ADDRESS_PROPERTY_PREFIX = "yingzhou.ledger.address.";
+    public static final String DEFAULT_RPC_URL = "http://127.0.0.1:8545";
+    /** 从 瀛州纪-Java版 目录运行时 Web 版的环境文件 */
+    public static final String DEFAULT_ENV_FILE = "../瀛州纪/.env.local";
+
+    private static final String RPC_ENV = "NEXT_PUBLIC_RPC_URL";
+    private static final Map<String, String> ADDRESS_ENV = new LinkedHashMap<>();
+
+    static {
+        ADDRESS_ENV.put("WorldLedger", "NEXT_PUBLIC_WORLD_LEDGER_ADDRESS");
+        ADDRESS_ENV.put("DigitalBeing", "NEXT_PUBLIC_DIGITAL_BEING_ADDRESS");
+        ADDRESS_ENV.put("AINPC", "NEXT_PUBLIC_AINPC_ADDRESS");
+        ADDRESS_ENV.put("AINPC_Extended", "NEXT_PUBLIC_AINPC_EXTENDED_ADDRESS");
+        ADDRESS_ENV.put("EpochManager", "NEXT_PUBLIC_EPOCH_MANAGER_ADDRESS");
+        ADDRESS_ENV.put("MemoryFragment", "NEXT_PUBLIC_MEMORY_FRAGMENT_ADDRESS");
+        ADDRESS_ENV.put("MiniGameManager", "NEXT_PUBLIC_MINIGAME_MANAGER_ADDRESS");
+        ADDRESS_ENV.put("Resource1155", "NEXT_PUBLIC_RESOURCE1155_ADDRESS");
+        ADDRESS_ENV.put("Market", "NEXT_PUBLIC_MARKET_ADDRESS");
+    }
+
+    private String rpcUrl = DEFAULT_RPC_URL;
+    private final Map<String, String> addresses = new LinkedHashMap<>();
+    private int maxBatch = JsonRpcClient.DEFAULT_MAX_BATCH;
+    private int maxInFlight = JsonRpcClient.DEFAULT_MAX_IN_FLIGHT;
+    private long lingerMillis = JsonRpcClient.DEFAULT_LINGER_MILLIS;
+    private Duration timeout = JsonRpcClient.DEFAULT_TIMEOUT;
+
+    /**
+     * 读取配置：环境文件 → 环境变量 → 系统属性，后者覆盖前者
+     */
+    public static LedgerConfig load() {
+        LedgerConfig config = new LedgerConfig();
+        Path envFile = Paths.get(System.getProperty(ENV_FILE_PROPERTY, DEFAULT_ENV_FILE));
+        if (Files.isRegularFile(envFile)) {
+            try {
+                config.apply(parseEnvFile(Files.readAllLines(envFile, StandardCharsets.UTF_8)));
+                Logger.info("已读取合约地址: " + envFile);
+            } catch (IOException e) {
+                Logger.warn("读取 " + envFile + " 失败: " + e.getMessage());
+            }
+        }
+        config.apply(System.getenv());
+        String rpc = System.getProperty(RPC_PROPERTY);
+        if (rpc != null && !rpc.isBlank()) {
+            config.rpcUrl = rpc;
+        }
+        for (String contract : ADDRESS_ENV.keySet()) {
+            String address = System.getProperty(ADDRESS_PROPERTY_PREFIX + contract);
+            if (address != null && !address.isBlank()) {
+                config.setAddress(contract, address);
+            }
+        }
+        return config;
+    }
+
+    static Map<String, String> parseEnvFile(List<String> lines) {
+        Map<String, String> values = new LinkedHashMap<>();
+        for (String line : lines) {
+            String trimmed = line.strip();
+            // 文件可能带 BOM
+            if (trimmed.startsWith("\uFEFF")) {
+                trimmed = trimmed.substring(1);
+            }
+            int eq = trimmed.indexOf('=');
+            if (trimmed.startsWith("#") || eq <= 0) {
+                continue;
+            }
+            String value = trimmed.substring(eq + 1).strip();
+            if (value.length() >= 2 && (value.startsWith("\"") && value.endsWith("\"")
+                    || value.startsWith("'") && value.endsWith("'"))) {
+                value = value.substring(1, value.length() - 1);
+            }
+            values.put(trimmed.substring(0, eq).strip(), value);
+        }
+        return values;
+    }
+
+    private void apply(Map<String, String> env) {
+        String rpc = env.get(RPC_ENV);
+        if (rpc != null && !rpc.isBlank()) {
+            rpcUrl = rpc;
+        }
+        for (Map.Entry<String, String> entry : ADDRESS_ENV.entrySet()) {
+            String address = env.get(entry.getValue());
+            if (address != null && !address.isBlank()) {
+                setAddress(entry.getKey(), address);
+            }
+        }
+    }
+
+    public String getRpcUrl() {
+        return rpcUrl;
+    }
+
+    public void setRpcUrl(String rpcUrl) {
+        this.rpcUrl = rpcUrl;
+    }
+
+    /**
+     * 合约地址，未配置时返回 null
+     */
+    public String getAddress(String contract) {
+        return addresses.get(contract);
+    }
+
+    public void setAddress(String contract, String address) {
+        addresses.put(contract, address.toLowerCase());
+    }
+
+    public Map<String, String> getAddresses() {
+        return Collections.unmodifiableMap(addresses);
+    }
+
+    public int getMaxBatch() {
+        return maxBatch;
+    }
+
+    public void setMaxBatch(int maxBatch) {
+        this.maxBatch = maxBatch;
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    public void setMaxInFlight(int maxInFlight) {
+        this.maxInFlight = maxInFlight;
+    }
+
+    public long getLingerMillis() {
+        return lingerMillis;
+    }
+
+    public void setLingerMillis(long lingerMillis) {
+        this.lingerMillis = lingerMillis;
+    }
+
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    public void setTimeout(Duration timeout) {
+        this.timeout = timeout;
+    }
+}
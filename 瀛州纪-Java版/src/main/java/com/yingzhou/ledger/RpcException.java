@@ -0,0 +1,68 @@
+package com.yingzhou.ledger;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import java.io.IOException;
+
+/**
+ * JSON-RPC 调用失败：节点返回的 error 对象，或传输层错误（code 为 {@link #TRANSPORT}）
+ */
+public class RpcException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final int TRANSPORT = -1;
+    /**
+     * JSON-RPC 的 Internal error；批量响应中缺了某个调用时也用它
+     */
+    public static final int INTERNAL_ERROR = -32603;
+
+    private final int code;
+    private final JsonElement data;
+
+    public RpcException(int code, String message, JsonElement data) {
+        super(message);
+        this.code = code;
+        this.data = data;
+    }
+
+    public RpcException(String message, Throwable cause) {
+        super(message, cause);
+        this.code = TRANSPORT;
+        this.data = null;
+    }
+
+    static RpcException fromError(JsonObject error) {
+        int code = error.has("code") ? error.get("code").getAsInt() : 0;
+        String message = error.has("message") ? error.get("message").getAsString() : "未知错误";
+        return new RpcException(code, message, error.get("data"));
+    }
+
+    public int getCode() {
+        return code;
+    }
+
+    /**
+     * error.data 原样，可能为 null
+     */
+    public JsonElement getData() {
+        return data;
+    }
+
+    /**
+     * revert 返回的数据，节点未附带时返回 null
+     * Hardhat 放在 data 或 data.data 中，geth 放在 data 中
+     */
+    public byte[] getRevertData() {
+        JsonElement element = data;
+        if (element != null && element.isJsonObject() && element.getAsJsonObject().has("data")) {
+            element = element.getAsJsonObject().get("data");
+        }
+        if (element == null || !element.isJsonPrimitive()) {
+            return null;
+        }
+        String hex = element.getAsString();
+        return hex.startsWith("0x") ? Hex.decode(hex) : null;
+    }
+}
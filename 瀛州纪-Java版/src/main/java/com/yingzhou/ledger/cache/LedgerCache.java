@@ -0,0 +1,433 @@
+package com.yingzhou.ledger.cache;
+
+import com.yingzhou.ledger.AbiEncoder;
+import com.yingzhou.ledger.AbiFunction;
+import com.yingzhou.ledger.AbiType;
+import com.yingzhou.ledger.LedgerClient;
+import com.yingzhou.ledger.index.LedgerEvent;
+import com.yingzhou.ledger.index.LedgerEventType;
+import com.yingzhou.ledger.index.LedgerIndexer;
+import com.yingzhou.perf.CacheStats;
+import com.yingzhou.perf.PerfMonitor;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 合约只读调用的读穿缓存
+ *
+ * 按 (合约, 函数, 参数) 缓存 {@link LedgerClient#call} 的解码结果，界面每帧刷新的读取大多直接命中。
+ * 同一键的并发未命中合并为一次 eth_call；条目数有上限，按最近访问淘汰。失效规则:
+ * <ul>
+ *   <li>默认：链头前进即失效。链头由缓存自己顺带查询（每 {@value #DEFAULT_HEAD_POLL_MILLIS} ms 至多一次，
+ *       和界面的读取合并在同一个批量请求里）</li>
+ *   <li>{@link #invalidateOn}：返回值只随某些事件变化的函数，接上 {@link LedgerIndexer} 且索引已追上链头时，
+ *       条目跨区块保留，直到索引到参数匹配的事件</li>
+ *   <li>{@link #immutable}：部署后不再变化的函数，只在链重组时失效</li>
+ * </ul>
+ * 返回的数组和其中的列表由所有调用方共享，不要修改。
+ */
+public class LedgerCache implements LedgerIndexer.Listener, AutoCloseable {
+
+    public static final int DEFAULT_MAX_ENTRIES = 4096;
+    public static final long DEFAULT_HEAD_POLL_MILLIS = 1000;
+    /** 按事件失效的条目最长保留时间，索引停滞时兜底 */
+    public static final long DEFAULT_MAX_AGE_MILLIS = 60_000;
+
+    private static final String PLAYER_WORD_PADDING = "0".repeat(24);
+
+    /**
+     * 一个函数的失效规则
+     */
+    private static final class Rule {
+        final boolean immutable;
+        final List<Trigger> triggers = new ArrayList<>(2);
+
+        Rule(boolean immutable) {
+            this.immutable = immutable;
+        }
+    }
+
+    /**
+     * 事件的 field 参数等于调用数据中 offset 处的参数时失效
+     */
+    private static final class Trigger {
+        final String key;
+        final int offset;
+        final String field;
+
+        Trigger(String key, int offset, String field) {
+            this.key = key;
+            this.offset = offset;
+            this.field = field;
+        }
+    }
+
+    private static final class Entry {
+        final CompletableFuture<Object[]> future = new CompletableFuture<>();
+        final String data;
+        final Rule rule;
+        final long head;
+        final long loadedAt;
+
+        Entry(String data, Rule rule, long head, long loadedAt) {
+            this.data = data;
+            this.rule = rule;
+            this.head = head;
+            this.loadedAt = loadedAt;
+        }
+
+        String word(int offset) {
+            // 跳过 0x 和 4 字节选择器
+            int at = 10 + offset * 2;
+            return data.substring(at, at + 64);
+        }
+    }
+
+    private final LedgerClient client;
+    private final int maxEntries;
+    private final CacheStats stats = new CacheStats("合约读取");
+    private final Map<AbiFunction, Rule> rules = new HashMap<>();
+    private final Map<LedgerEventType, List<Trigger>> triggers = new EnumMap<>(LedgerEventType.class);
+    private final LinkedHashMap<String, Entry> entries;
+
+    private long headPollNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_HEAD_POLL_MILLIS);
+    private long maxAgeNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_MAX_AGE_MILLIS);
+    private LedgerIndexer indexer;
+    private long head = -1;
+    private long lastHeadPoll;
+    private boolean polling;
+
+    private long loads;
+    private long collapsed;
+    private long invalidated;
+    private long evicted;
+
+    public LedgerCache(LedgerClient client) {
+        this(client, DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * 创建时即装入游戏合约的默认失效规则，并在 {@link PerfMonitor} 注册命中统计
+     */
+    public LedgerCache(LedgerClient client, int maxEntries) {
+        this.client = client;
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<>(Math.min(maxEntries, 1024) * 2, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() <= LedgerCache.this.maxEntries) {
+                    return false;
+                }
+                evicted++;
+                return true;
+            }
+        };
+        installDefaultRules();
+        PerfMonitor.registerCache(stats);
+    }
+
+    private void installDefaultRules() {
+        // 碎片定义在 MemoryFragment 构造时写入
+        immutable("MemoryFragment", "getFragment");
+        // playerEpoch 只在 advanceEpoch 中改变
+        invalidateOn("EpochManager", "getCurrentEpoch", 0, LedgerEventType.EPOCH_ADVANCED, null);
+        invalidateOn("EpochManager", "getPlayerEpochHistory", 0, LedgerEventType.EPOCH_ADVANCED, null);
+        // recordFragmentCollection 的两条调用路径（关键词奖励、小游戏奖励）都先铸造碎片
+        invalidateOn("EpochManager", "getPlayerFragmentCount", 0, LedgerEventType.FRAGMENT_MINTED, null);
+        invalidateOn("EpochManager", "hasFragment", 0, LedgerEventType.FRAGMENT_MINTED, null);
+        // NPC 的交互次数、衰变度和对话历史只在 interact 中改变
+        invalidateOn("AINPC_Extended", "getNPC", 0, LedgerEventType.DIALOGUE_RECORDED, "npcId");
+        invalidateOn("AINPC_Extended", "getDialogueHistory", 0, LedgerEventType.DIALOGUE_RECORDED, "npcId");
+        invalidateOn("AINPC_Extended", "getDialogueCount", 0, LedgerEventType.DIALOGUE_RECORDED, "npcId");
+        invalidateOn("MiniGameManager", "getPlayerGameHistory", 0, LedgerEventType.GAME_COMPLETED, null);
+    }
+
+    /**
+     * 接收索引器的事件和重组通知；不接时所有条目都按区块失效（{@link #immutable} 的除外）
+     */
+    public void attach(LedgerIndexer indexer) {
+        synchronized (this) {
+            this.indexer = indexer;
+        }
+        indexer.addListener(this);
+    }
+
+    /**
+     * 该函数的返回值部署后不再变化，只在链重组时失效
+     *
+     * @throws IllegalArgumentException 合约或函数不存在
+     */
+    public synchronized void immutable(String contract, String function) {
+        AbiFunction abi = client.getAbis().contract(contract).function(function);
+        rules.put(abi, new Rule(true));
+    }
+
+    /**
+     * 该函数的返回值只随 type 事件变化：事件的 field 参数（null 表示事件的玩家地址）
+     * 等于调用的第 argIndex 个参数时失效。同一函数可以登记多条。
+     *
+     * @throws IllegalArgumentException 合约、函数或事件参数不存在，或该调用参数不是定长类型
+     */
+    public synchronized void invalidateOn(String contract, String function, int argIndex,
+                                          LedgerEventType type, String field) {
+        AbiFunction abi = client.getAbis().contract(contract).function(function);
+        AbiType inputs = abi.getInputs();
+        if (argIndex < 0 || argIndex >= inputs.getComponents().size()
+                || inputs.getComponents().get(argIndex).isDynamic()) {
+            throw new IllegalArgumentException(abi + " 的第 " + argIndex + " 个参数不能用于匹配事件");
+        }
+        if (field == null ? type.getPlayerParam() == null : !type.getWords().contains(field)) {
+            throw new IllegalArgumentException(type.getEvent() + " 没有参数 " + (field == null ? "玩家地址" : field));
+        }
+        Rule rule = rules.get(abi);
+        if (rule == null || rule.immutable) {
+            rule = new Rule(false);
+            rules.put(abi, rule);
+        }
+        Trigger trigger = new Trigger(contract + "." + abi.getSignature() + "#" + argIndex + ":",
+                inputs.getHeadOffset(argIndex), field);
+        rule.triggers.add(trigger);
+        triggers.computeIfAbsent(type, t -> new ArrayList<>()).add(trigger);
+    }
+
+    /**
+     * 与 {@link LedgerClient#call} 相同，命中时不发请求
+     */
+    public CompletableFuture<Object[]> call(String contract, String function, Object... args) {
+        AbiFunction abi = client.getAbis().contract(contract).function(function);
+        String data = AbiEncoder.encodeCallHex(abi, args);
+        String key = contract + data;
+        long now = System.nanoTime();
+        Entry entry;
+        boolean load = false;
+        boolean pending = false;
+        boolean poll;
+        synchronized (this) {
+            poll = headPollDue(now);
+            entry = entries.get(key);
+            if (entry != null && !isValid(entry, now)) {
+                entries.remove(key);
+                entry = null;
+            }
+            if (entry == null) {
+                entry = new Entry(data, scopedRule(abi), head, now);
+                entries.put(key, entry);
+                load = true;
+                loads++;
+            } else if (!entry.future.isDone()) {
+                pending = true;
+                collapsed++;
+            }
+        }
+        if (poll) {
+            pollHead();
+        }
+        if (!load) {
+            stats.hit();
+            return pending ? entry.future.copy() : entry.future;
+        }
+        stats.miss();
+        Entry loading = entry;
+        CompletableFuture<Object[]> call;
+        try {
+            call = client.call(contract, function, args);
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                entries.remove(key, loading);
+            }
+            throw e;
+        }
+        call.whenComplete((values, error) -> {
+            if (error != null) {
+                // 失败不缓存，下次调用重试
+                synchronized (this) {
+                    entries.remove(key, loading);
+                }
+                loading.future.completeExceptionally(error);
+            } else {
+                loading.future.complete(values);
+            }
+        });
+        return loading.future.copy();
+    }
+
+    /**
+     * 只有一个返回值时直接取出，类型见 {@link com.yingzhou.ledger.AbiCodec}
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<T> callValue(String contract, String function, Object... args) {
+        return call(contract, function, args).thenApply(values -> (T) values[0]);
+    }
+
+    /**
+     * 按事件失效只有在索引追上链头时才可靠，否则该条目仍按区块失效
+     */
+    private Rule scopedRule(AbiFunction abi) {
+        Rule rule = rules.get(abi);
+        if (rule == null || rule.immutable) {
+            return rule;
+        }
+        return indexer != null && indexer.isCaughtUp() ? rule : null;
+    }
+
+    private boolean isValid(Entry entry, long now) {
+        if (entry.rule == null) {
+            return entry.head == head;
+        }
+        return entry.rule.immutable || now - entry.loadedAt < maxAgeNanos;
+    }
+
+    /**
+     * 距上次查询链头超过间隔且没有在途的查询
+     */
+    private boolean headPollDue(long now) {
+        if (polling || (head >= 0 && now - lastHeadPoll < headPollNanos)) {
+            return false;
+        }
+        polling = true;
+        lastHeadPoll = now;
+        return true;
+    }
+
+    /**
+     * 排队一个 eth_blockNumber，随下一次 flush 与界面的读取一起发出
+     */
+    private void pollHead() {
+        client.blockNumber().whenComplete((block, error) -> {
+            synchronized (this) {
+                polling = false;
+                if (error == null) {
+                    head = block;
+                }
+            }
+        });
+    }
+
+    @Override
+    public void onEvents(List<LedgerEvent> events) {
+        Set<String> touched = new HashSet<>();
+        synchronized (this) {
+            for (LedgerEvent event : events) {
+                List<Trigger> list = triggers.get(event.getType());
+                if (list == null) {
+                    continue;
+                }
+                for (Trigger trigger : list) {
+                    touched.add(trigger.key + eventWord(event, trigger.field));
+                }
+            }
+            if (touched.isEmpty()) {
+                return;
+            }
+            Iterator<Entry> it = entries.values().iterator();
+            while (it.hasNext()) {
+                Entry entry = it.next();
+                if (entry.rule == null) {
+                    continue;
+                }
+                for (Trigger trigger : entry.rule.triggers) {
+                    if (touched.contains(trigger.key + entry.word(trigger.offset))) {
+                        it.remove();
+                        invalidated++;
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public void onRewind(long checkpoint) {
+        clear();
+    }
+
+    private static String eventWord(LedgerEvent event, String field) {
+        if (field == null) {
+            return PLAYER_WORD_PADDING + event.getPlayer().substring(2);
+        }
+        return event.getHex(field).substring(2);
+    }
+
+    /**
+     * 清空所有条目，在途的调用照常完成但不再缓存
+     */
+    public synchronized void clear() {
+        invalidated += entries.size();
+        entries.clear();
+    }
+
+    /**
+     * 与索引器断开并注销命中统计；账本客户端和索引器由调用方关闭
+     */
+    @Override
+    public void close() {
+        LedgerIndexer attached;
+        synchronized (this) {
+            attached = indexer;
+            indexer = null;
+            entries.clear();
+        }
+        if (attached != null) {
+            attached.removeListener(this);
+        }
+        PerfMonitor.unregisterCache(stats);
+    }
+
+    public synchronized void setHeadPollMillis(long millis) {
+        this.headPollNanos = TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    public synchronized void setMaxAgeMillis(long millis) {
+        this.maxAgeNanos = TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    public CacheStats getStats() {
+        return stats;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * 最近一次查到的链头，尚未查到时为 -1
+     */
+    public synchronized long getHead() {
+        return head;
+    }
+
+    /**
+     * 实际发出的 eth_call 数
+     */
+    public synchronized long getLoads() {
+        return loads;
+    }
+
+    /**
+     * 合并到在途调用上的次数
+     */
+    public synchronized long getCollapsed() {
+        return collapsed;
+    }
+
+    /**
+     * 因事件或重组删除的条目数
+     */
+    public synchronized long getInvalidated() {
+        return invalidated;
+    }
+
+    public synchronized long getEvicted() {
+        return evicted;
+    }
+}
@@ -0,0 +1,142 @@
+package com.yingzhou.ledger.index;
+
+import com.yingzhou.ledger.Hex;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+/**
+ * 本地索引中的一条合约事件
+ * 参数按名字读取，名字与合约事件声明一致，可用的参数见 {@link LedgerEventType#getWords()}。
+ */
+public final class LedgerEvent {
+
+    private final LedgerEventType type;
+    private final long blockNumber;
+    private final long timestamp;
+    private final int logIndex;
+    private final String player;
+    private final String text;
+    // 每个参数 32 字节，顺序同 type.getWords()
+    private final byte[] words;
+
+    LedgerEvent(LedgerEventType type, long blockNumber, long timestamp, int logIndex,
+                String player, String text, byte[] words) {
+        if (words.length != type.getWords().size() * 32) {
+            throw new IllegalArgumentException(type + " 需要 " + type.getWords().size() + " 个参数");
+        }
+        this.type = type;
+        this.blockNumber = blockNumber;
+        this.timestamp = timestamp;
+        this.logIndex = logIndex;
+        this.player = player;
+        this.text = text;
+        this.words = words;
+    }
+
+    public LedgerEventType getType() {
+        return type;
+    }
+
+    public long getBlockNumber() {
+        return blockNumber;
+    }
+
+    /**
+     * 所在区块的时间戳（秒）
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public int getLogIndex() {
+        return logIndex;
+    }
+
+    /**
+     * 玩家地址（0x 开头小写），事件没有玩家参数时为 null
+     */
+    public String getPlayer() {
+        return player;
+    }
+
+    /**
+     * 字符串参数，事件没有字符串参数时为 null
+     */
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * 非负整数参数，超出 long 范围时抛出 ArithmeticException
+     */
+    public long getLong(String param) {
+        int at = type.wordIndex(param) * 32;
+        for (int i = at; i < at + 24; i++) {
+            if (words[i] != 0) {
+                throw new ArithmeticException(param + " 超出 long 范围");
+            }
+        }
+        long value = 0;
+        for (int i = at + 24; i < at + 32; i++) {
+            value = value << 8 | (words[i] & 0xFF);
+        }
+        if (value < 0) {
+            throw new ArithmeticException(param + " 超出 long 范围");
+        }
+        return value;
+    }
+
+    public int getInt(String param) {
+        return Math.toIntExact(getLong(param));
+    }
+
+    public BigInteger getBigInteger(String param) {
+        return new BigInteger(1, getWord(param));
+    }
+
+    /**
+     * 地址参数，0x 开头小写
+     */
+    public String getAddress(String param) {
+        int at = type.wordIndex(param) * 32;
+        return Hex.encode(words, at + 12, 20);
+    }
+
+    /**
+     * 参数的 32 字节原始编码（bytes32 即其本身）
+     */
+    public byte[] getWord(String param) {
+        int at = type.wordIndex(param) * 32;
+        return Arrays.copyOfRange(words, at, at + 32);
+    }
+
+    /**
+     * bytes32 参数的十六进制形式，0x 开头小写
+     */
+    public String getHex(String param) {
+        return Hex.encode(words, type.wordIndex(param) * 32, 32);
+    }
+
+    byte[] words() {
+        return words;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(type.getEvent()).append('@').append(blockNumber).append('/').append(logIndex);
+        if (player != null) {
+            sb.append(" player=").append(player);
+        }
+        for (String param : type.getWords()) {
+            sb.append(' ').append(param).append('=');
+            byte[] word = getWord(param);
+            BigInteger value = new BigInteger(1, word);
+            sb.append(value.bitLength() <= 64 ? value.toString() : Hex.encode(word));
+        }
+        if (text != null) {
+            sb.append(" text=").append(text);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,597 @@
+package com.yingzhou.ledger.index;
+
+import com.yingzhou.ledger.Hex;
+import com.yingzhou.util.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 合约事件的本地存储
+ *
+ * 只追加的定长记录文件 events.dat 和字符串文件 text.dat，都以内存映射方式读写。
+ * 玩家、NPC、碎片、数字生命四个二级索引在打开时扫描记录重建，常驻内存，历史查询不经过节点。
+ *
+ * events.dat 布局（大端序）:
+ * <pre>
+ *   文件头 4096 字节:
+ *     魔数(4) 版本(2) 保留(2) 链ID(8) 合约地址指纹(8) 记录数(8) 检查点区块(8) 字符串末尾(8)
+ *     检查点环: 写入位置(4) 条数(4) { 区块号(8) 区块哈希(32) } × 64
+ *   记录 224 字节:
+ *     区块号(8) 时间戳(8) 字符串偏移(8) 日志序号(4) 字符串长度(4) 类型(1) 有玩家(1) 保留(10)
+ *     玩家地址(20) 参数 32 字节 × 5
+ * </pre>
+ * 记录按 (区块号, 日志序号) 升序追加，先写记录和字符串并落盘，再更新文件头的记录数和检查点，
+ * 中途崩溃时重新打开只会丢掉最后一批未提交的记录。
+ *
+ * 只允许一个线程写入（{@link LedgerIndexer}），查询可在任意线程进行。
+ */
+public class LedgerEventStore implements Closeable {
+
+    /** 检查点环的长度，即链重组最多能回退到多少个批次之前 */
+    public static final int RING_SIZE = 64;
+
+    static final int MAGIC = 0x595A4958;
+    static final short VERSION = 1;
+    static final int HEADER_SIZE = 4096;
+    static final int RECORD_SIZE = 224;
+
+    // 文件头字段
+    private static final int H_VERSION = 4;
+    private static final int H_CHAIN_ID = 8;
+    private static final int H_FINGERPRINT = 16;
+    private static final int H_COUNT = 24;
+    private static final int H_CHECKPOINT = 32;
+    private static final int H_TEXT_END = 40;
+    private static final int H_RING_HEAD = 48;
+    private static final int H_RING_COUNT = 52;
+    private static final int H_RING = 56;
+    private static final int RING_ENTRY_SIZE = 8 + 32;
+
+    // 记录字段
+    private static final int R_BLOCK = 0;
+    private static final int R_TIMESTAMP = 8;
+    private static final int R_TEXT_OFFSET = 16;
+    private static final int R_LOG_INDEX = 24;
+    private static final int R_TEXT_LENGTH = 28;
+    private static final int R_TYPE = 32;
+    private static final int R_HAS_PLAYER = 33;
+    private static final int R_PLAYER = 44;
+    private static final int R_WORDS = 64;
+
+    private static final int INITIAL_RECORDS = 4096;
+    private static final int INITIAL_TEXT = 64 * 1024;
+
+    private final Path directory;
+    private final FileChannel recordChannel;
+    private final FileChannel textChannel;
+    private MappedByteBuffer records;
+    private MappedByteBuffer text;
+
+    private long chainId;
+    private long fingerprint;
+    private int count;
+    private long checkpoint;
+    private int textEnd;
+    private final long[] ringBlocks = new long[RING_SIZE];
+    private final byte[][] ringHashes = new byte[RING_SIZE][];
+    private int ringHead;
+    private int ringCount;
+    private boolean closed;
+
+    private final Map<String, PostingList> byPlayer = new HashMap<>();
+    private final Map<String, PostingList> byNpc = new HashMap<>();
+    private final Map<Long, PostingList> byFragment = new HashMap<>();
+    private final Map<Long, PostingList> byBeing = new HashMap<>();
+
+    private LedgerEventStore(Path directory) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory);
+        recordChannel = FileChannel.open(directory.resolve("events.dat"),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        textChannel = FileChannel.open(directory.resolve("text.dat"),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        records = recordChannel.map(FileChannel.MapMode.READ_WRITE, 0,
+                Math.max(recordChannel.size(), HEADER_SIZE + (long) INITIAL_RECORDS * RECORD_SIZE));
+        text = textChannel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(textChannel.size(), INITIAL_TEXT));
+    }
+
+    /**
+     * 打开（不存在时创建）目录下的存储并重建二级索引
+     * 文件头损坏或版本不符时清空重建
+     */
+    public static LedgerEventStore open(Path directory) throws IOException {
+        LedgerEventStore store = new LedgerEventStore(directory);
+        try {
+            store.load();
+        } catch (IOException | RuntimeException e) {
+            store.close();
+            throw e;
+        }
+        return store;
+    }
+
+    private synchronized void load() throws IOException {
+        if (records.getInt(0) != MAGIC || records.getShort(H_VERSION) != VERSION) {
+            if (records.getInt(0) != 0) {
+                Logger.warn("事件索引文件格式不符，重建: " + directory);
+            }
+            initialize(0, 0);
+            return;
+        }
+        chainId = records.getLong(H_CHAIN_ID);
+        fingerprint = records.getLong(H_FINGERPRINT);
+        long storedCount = records.getLong(H_COUNT);
+        long storedTextEnd = records.getLong(H_TEXT_END);
+        if (storedCount < 0 || HEADER_SIZE + storedCount * RECORD_SIZE > records.capacity()
+                || storedTextEnd < 0 || storedTextEnd > text.capacity()) {
+            Logger.warn("事件索引文件已损坏，重建: " + directory);
+            initialize(chainId, fingerprint);
+            return;
+        }
+        count = (int) storedCount;
+        textEnd = (int) storedTextEnd;
+        checkpoint = records.getLong(H_CHECKPOINT);
+        ringHead = records.getInt(H_RING_HEAD);
+        ringCount = records.getInt(H_RING_COUNT);
+        for (int i = 0; i < ringCount; i++) {
+            int slot = Math.floorMod(ringHead - 1 - i, RING_SIZE);
+            int at = H_RING + slot * RING_ENTRY_SIZE;
+            ringBlocks[slot] = records.getLong(at);
+            byte[] hash = new byte[32];
+            records.get(at + 8, hash);
+            ringHashes[slot] = hash;
+        }
+        for (int i = 0; i < count; i++) {
+            addToIndexes(i);
+        }
+        Logger.info("事件索引已打开: " + count + " 条事件，检查点区块 " + checkpoint);
+    }
+
+    /**
+     * 链ID或合约地址（指纹）与存储中的不同时清空存储，例如重新部署了合约
+     *
+     * @return 是否清空了存储
+     */
+    public synchronized boolean bind(long chainId, long fingerprint) {
+        if (chainId == this.chainId && fingerprint == this.fingerprint) {
+            return false;
+        }
+        if (count > 0 || checkpoint >= 0) {
+            Logger.info("链ID或合约地址已变化，清空事件索引");
+        }
+        initialize(chainId, fingerprint);
+        return true;
+    }
+
+    /**
+     * 清空所有事件和检查点，保留链ID和合约指纹
+     */
+    public synchronized void clear() {
+        initialize(chainId, fingerprint);
+    }
+
+    private void initialize(long chainId, long fingerprint) {
+        this.chainId = chainId;
+        this.fingerprint = fingerprint;
+        count = 0;
+        textEnd = 0;
+        checkpoint = -1;
+        ringHead = 0;
+        ringCount = 0;
+        byPlayer.clear();
+        byNpc.clear();
+        byFragment.clear();
+        byBeing.clear();
+        records.putInt(0, MAGIC);
+        records.putShort(H_VERSION, VERSION);
+        records.putLong(H_CHAIN_ID, chainId);
+        records.putLong(H_FINGERPRINT, fingerprint);
+        writeHeader();
+    }
+
+    /**
+     * 追加一批事件并把检查点前移到 toBlock
+     * 事件须按 (区块号, 日志序号) 升序，且都在 (当前检查点, toBlock] 之内
+     *
+     * @param toHash toBlock 的区块哈希，用于之后检测链重组
+     */
+    public void append(List<LedgerEvent> events, long toBlock, byte[] toHash) throws IOException {
+        if (toHash.length != 32) {
+            throw new IllegalArgumentException("区块哈希须为 32 字节");
+        }
+        int first;
+        int textStart;
+        int textLength = 0;
+        MappedByteBuffer recordView;
+        MappedByteBuffer textView;
+        synchronized (this) {
+            if (closed) {
+                throw new IOException("事件索引已关闭");
+            }
+            if (toBlock <= checkpoint) {
+                throw new IllegalStateException("检查点只能前移: " + checkpoint + " → " + toBlock);
+            }
+            byte[][] encoded = new byte[events.size()][];
+            LedgerEvent previous = null;
+            for (int i = 0; i < events.size(); i++) {
+                LedgerEvent event = events.get(i);
+                boolean ordered = previous == null || event.getBlockNumber() > previous.getBlockNumber()
+                        || event.getBlockNumber() == previous.getBlockNumber() && event.getLogIndex() > previous.getLogIndex();
+                if (event.getBlockNumber() <= checkpoint || event.getBlockNumber() > toBlock || !ordered) {
+                    throw new IllegalArgumentException("事件顺序或区块范围不符: " + event);
+                }
+                previous = event;
+                if (event.getText() != null) {
+                    encoded[i] = event.getText().getBytes(StandardCharsets.UTF_8);
+                    textLength += encoded[i].length;
+                }
+            }
+            first = count;
+            textStart = textEnd;
+            ensureRecordCapacity((long) count + events.size());
+            ensureTextCapacity((long) textEnd + textLength);
+            int textAt = textStart;
+            for (int i = 0; i < events.size(); i++) {
+                writeRecord(first + i, events.get(i), encoded[i], textAt);
+                textAt += encoded[i] == null ? 0 : encoded[i].length;
+            }
+            recordView = records;
+            textView = text;
+        }
+
+        // 记录和字符串先落盘，查询此时还看不到它们
+        if (!events.isEmpty()) {
+            recordView.force(HEADER_SIZE + first * RECORD_SIZE, events.size() * RECORD_SIZE);
+        }
+        if (textLength > 0) {
+            textView.force(textStart, textLength);
+        }
+
+        synchronized (this) {
+            for (int i = 0; i < events.size(); i++) {
+                addToIndexes(first + i);
+            }
+            count = first + events.size();
+            textEnd = textStart + textLength;
+            checkpoint = toBlock;
+            pushCheckpoint(toBlock, toHash);
+            writeHeader();
+            recordView = records;
+        }
+        recordView.force(0, HEADER_SIZE);
+    }
+
+    /**
+     * 链重组时回退：删除区块号大于 block 的事件，检查点回到 block
+     * block 应取自 {@link #getRecentCheckpoints()}，否则之后无法再校验该检查点
+     *
+     * @return 删除的事件数
+     */
+    public synchronized int rollback(long block) {
+        if (block >= checkpoint) {
+            return 0;
+        }
+        int keep = firstAfter(block);
+        int removed = count - keep;
+        for (int i = keep; i < count; i++) {
+            int at = recordAt(i);
+            if (records.getInt(at + R_TEXT_LENGTH) >= 0) {
+                textEnd = (int) records.getLong(at + R_TEXT_OFFSET);
+                break;
+            }
+        }
+        count = keep;
+        truncateIndexes(byPlayer, keep);
+        truncateIndexes(byNpc, keep);
+        truncateIndexes(byFragment, keep);
+        truncateIndexes(byBeing, keep);
+        while (ringCount > 0 && ringBlocks[Math.floorMod(ringHead - 1, RING_SIZE)] > block) {
+            ringHead = Math.floorMod(ringHead - 1, RING_SIZE);
+            ringCount--;
+        }
+        checkpoint = block;
+        writeHeader();
+        records.force(0, HEADER_SIZE);
+        return removed;
+    }
+
+    // ---- 查询 ----
+
+    /**
+     * 玩家相关的事件，按链上顺序
+     *
+     * @param type 只取该类事件，null 表示全部
+     */
+    public synchronized List<LedgerEvent> byPlayer(String player, LedgerEventType type) {
+        return collect(byPlayer.get(player.toLowerCase(Locale.ROOT)), type);
+    }
+
+    /**
+     * NPC 相关的事件（对话、关键词触发），npcId 为 bytes32 的十六进制形式
+     */
+    public synchronized List<LedgerEvent> byNpc(String npcId, LedgerEventType type) {
+        return collect(byNpc.get(npcId.toLowerCase(Locale.ROOT)), type);
+    }
+
+    /**
+     * 碎片相关的事件（铸造、关键词触发）
+     */
+    public synchronized List<LedgerEvent> byFragment(long fragmentId, LedgerEventType type) {
+        return collect(byFragment.get(fragmentId), type);
+    }
+
+    /**
+     * 数字生命的记忆记录
+     */
+    public synchronized List<LedgerEvent> byBeing(long beingId, LedgerEventType type) {
+        return collect(byBeing.get(beingId), type);
+    }
+
+    /**
+     * 对应 AINPC_Extended.getDialogueHistory，只含事件中有的字段（时间戳、提问者、回复哈希、纪元）
+     */
+    public List<LedgerEvent> dialogueHistory(String npcId) {
+        return byNpc(npcId, LedgerEventType.DIALOGUE_RECORDED);
+    }
+
+    /**
+     * 对应 EpochManager.getPlayerEpochHistory：进入每个纪元的时间戳，未进入的为 0
+     */
+    public long[] playerEpochHistory(String player) {
+        long[] timestamps = new long[5];
+        for (LedgerEvent event : byPlayer(player, LedgerEventType.EPOCH_ADVANCED)) {
+            int epoch = event.getInt("toEpoch");
+            if (epoch < timestamps.length) {
+                timestamps[epoch] = event.getLong("timestamp");
+            }
+        }
+        return timestamps;
+    }
+
+    /**
+     * 对应 MiniGameManager.getPlayerGameHistory
+     */
+    public List<LedgerEvent> playerGameHistory(String player) {
+        return byPlayer(player, LedgerEventType.GAME_COMPLETED);
+    }
+
+    /**
+     * 对应 DigitalBeing.getAllMemories，只含事件中有的字段（时间戳、序号、内容哈希）
+     */
+    public List<LedgerEvent> memories(long beingId) {
+        return byBeing(beingId, LedgerEventType.MEMORY_RECORDED);
+    }
+
+    /**
+     * 按链上顺序扫描全部记录，只取给定类型（用于按事件重建本地状态）
+     */
+    public synchronized List<LedgerEvent> byType(Set<LedgerEventType> types) {
+        List<LedgerEvent> result = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            if (types.contains(LedgerEventType.byCode(records.get(recordAt(i) + R_TYPE)))) {
+                result.add(readRecord(i));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 已完整索引到的区块，-1 表示尚未索引
+     */
+    public synchronized long getCheckpoint() {
+        return checkpoint;
+    }
+
+    /**
+     * 检查点环中的区块号，从新到旧
+     */
+    public synchronized long[] getRecentCheckpoints() {
+        long[] blocks = new long[ringCount];
+        for (int i = 0; i < ringCount; i++) {
+            blocks[i] = ringBlocks[Math.floorMod(ringHead - 1 - i, RING_SIZE)];
+        }
+        return blocks;
+    }
+
+    /**
+     * 检查点环中该区块的哈希，不在环中时返回 null
+     */
+    public synchronized byte[] getCheckpointHash(long block) {
+        for (int i = 0; i < ringCount; i++) {
+            int slot = Math.floorMod(ringHead - 1 - i, RING_SIZE);
+            if (ringBlocks[slot] == block) {
+                return ringHashes[slot].clone();
+            }
+        }
+        return null;
+    }
+
+    public synchronized int size() {
+        return count;
+    }
+
+    public synchronized long getChainId() {
+        return chainId;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            records.force();
+            text.force();
+        } finally {
+            recordChannel.close();
+            textChannel.close();
+        }
+    }
+
+    // ---- 内部 ----
+
+    private List<LedgerEvent> collect(PostingList list, LedgerEventType type) {
+        List<LedgerEvent> result = new ArrayList<>();
+        if (list == null) {
+            return result;
+        }
+        for (int i = 0; i < list.size(); i++) {
+            int index = list.get(i);
+            if (type == null || records.get(recordAt(index) + R_TYPE) == type.ordinal()) {
+                result.add(readRecord(index));
+            }
+        }
+        return result;
+    }
+
+    private LedgerEvent readRecord(int index) {
+        int at = recordAt(index);
+        LedgerEventType type = LedgerEventType.byCode(records.get(at + R_TYPE));
+        String player = records.get(at + R_HAS_PLAYER) != 0 ? Hex.encode(records, at + R_PLAYER, at + R_PLAYER + 20) : null;
+        String value = null;
+        int textLength = records.getInt(at + R_TEXT_LENGTH);
+        if (textLength >= 0 && type.getTextParam() != null) {
+            byte[] bytes = new byte[textLength];
+            text.get((int) records.getLong(at + R_TEXT_OFFSET), bytes);
+            value = new String(bytes, StandardCharsets.UTF_8);
+        }
+        byte[] words = new byte[type.getWords().size() * 32];
+        records.get(at + R_WORDS, words);
+        return new LedgerEvent(type, records.getLong(at + R_BLOCK), records.getLong(at + R_TIMESTAMP),
+                records.getInt(at + R_LOG_INDEX), player, value, words);
+    }
+
+    private void writeRecord(int index, LedgerEvent event, byte[] textBytes, int textAt) {
+        int at = recordAt(index);
+        records.putLong(at + R_BLOCK, event.getBlockNumber());
+        records.putLong(at + R_TIMESTAMP, event.getTimestamp());
+        records.putLong(at + R_TEXT_OFFSET, textAt);
+        records.putInt(at + R_LOG_INDEX, event.getLogIndex());
+        records.putInt(at + R_TEXT_LENGTH, textBytes == null ? -1 : textBytes.length);
+        records.put(at + R_TYPE, (byte) event.getType().ordinal());
+        records.put(at + R_HAS_PLAYER, (byte) (event.getPlayer() != null ? 1 : 0));
+        records.put(at + R_PLAYER, event.getPlayer() != null ? Hex.decode(event.getPlayer()) : new byte[20]);
+        byte[] words = event.words();
+        records.put(at + R_WORDS, words);
+        records.put(at + R_WORDS + words.length, new byte[LedgerEventType.MAX_WORDS * 32 - words.length]);
+        if (textBytes != null) {
+            text.put(textAt, textBytes);
+        }
+    }
+
+    private void addToIndexes(int index) {
+        int at = recordAt(index);
+        LedgerEventType type = LedgerEventType.byCode(records.get(at + R_TYPE));
+        if (records.get(at + R_HAS_PLAYER) != 0) {
+            String player = Hex.encode(records, at + R_PLAYER, at + R_PLAYER + 20);
+            byPlayer.computeIfAbsent(player, k -> new PostingList()).add(index);
+        }
+        if (type.npcWord() >= 0) {
+            int word = at + R_WORDS + type.npcWord() * 32;
+            byNpc.computeIfAbsent(Hex.encode(records, word, word + 32), k -> new PostingList()).add(index);
+        }
+        addToIdIndex(byFragment, type.fragmentWord(), at, index);
+        addToIdIndex(byBeing, type.beingWord(), at, index);
+    }
+
+    private void addToIdIndex(Map<Long, PostingList> map, int wordIndex, int at, int index) {
+        if (wordIndex < 0) {
+            return;
+        }
+        int word = at + R_WORDS + wordIndex * 32;
+        // 只索引放得进 long 的 ID
+        if (records.getLong(word) != 0 || records.getLong(word + 8) != 0 || records.getLong(word + 16) != 0
+                || records.getLong(word + 24) < 0) {
+            return;
+        }
+        map.computeIfAbsent(records.getLong(word + 24), k -> new PostingList()).add(index);
+    }
+
+    private static <K> void truncateIndexes(Map<K, PostingList> map, int limit) {
+        map.values().removeIf(list -> {
+            list.truncate(limit);
+            return list.size() == 0;
+        });
+    }
+
+    /**
+     * 第一条区块号大于 block 的记录
+     */
+    private int firstAfter(long block) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (records.getLong(recordAt(mid) + R_BLOCK) <= block) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private void pushCheckpoint(long block, byte[] hash) {
+        ringBlocks[ringHead] = block;
+        ringHashes[ringHead] = hash.clone();
+        int at = H_RING + ringHead * RING_ENTRY_SIZE;
+        records.putLong(at, block);
+        records.put(at + 8, hash);
+        ringHead = (ringHead + 1) % RING_SIZE;
+        ringCount = Math.min(ringCount + 1, RING_SIZE);
+    }
+
+    private void writeHeader() {
+        records.putLong(H_COUNT, count);
+        records.putLong(H_CHECKPOINT, checkpoint);
+        records.putLong(H_TEXT_END, textEnd);
+        records.putInt(H_RING_HEAD, ringHead);
+        records.putInt(H_RING_COUNT, ringCount);
+    }
+
+    private static int recordAt(int index) {
+        return HEADER_SIZE + index * RECORD_SIZE;
+    }
+
+    private void ensureRecordCapacity(long recordCount) throws IOException {
+        long needed = HEADER_SIZE + recordCount * RECORD_SIZE;
+        if (needed > records.capacity()) {
+            records = remap(recordChannel, records.capacity(), needed);
+        }
+    }
+
+    private void ensureTextCapacity(long needed) throws IOException {
+        if (needed > text.capacity()) {
+            text = remap(textChannel, text.capacity(), needed);
+        }
+    }
+
+    /**
+     * 映射区不能扩展，按两倍容量重新映射（单个映射最大 2GB，约 950 万条事件）
+     */
+    private MappedByteBuffer remap(FileChannel channel, long current, long needed) throws IOException {
+        if (needed > Integer.MAX_VALUE) {
+            throw new IOException("事件索引已满: " + directory);
+        }
+        long size = Math.min(Integer.MAX_VALUE, Math.max(needed, current * 2));
+        return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+    }
+}
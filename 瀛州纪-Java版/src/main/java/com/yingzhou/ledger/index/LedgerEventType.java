@@ -0,0 +1,129 @@
+package com.yingzhou.ledger.index;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 本地索引跟踪的合约事件
+ *
+ * 每种事件映射到定长记录的几个字段：一个玩家地址、至多 {@link #MAX_WORDS} 个 32 字节参数（按声明顺序）
+ * 和至多一个字符串参数。NPC、碎片、数字生命的二级索引取自对应的参数。
+ */
+public enum LedgerEventType {
+
+    DIALOGUE_RECORDED("AINPC_Extended", "DialogueRecorded", "inquirer", null,
+            "npcId", "responseHash", "epoch"),
+    KEYWORD_TRIGGERED("AINPC_Extended", "KeywordTriggered", "player", "keyword",
+            "npcId", "fragmentId"),
+    EPOCH_ADVANCED("EpochManager", "EpochAdvanced", "player", null,
+            "fromEpoch", "toEpoch", "timestamp"),
+    FRAGMENT_MINTED("MemoryFragment", "FragmentMinted", "to", "title",
+            "id", "epoch"),
+    GAME_COMPLETED("MiniGameManager", "GameCompleted", "player", null,
+            "gameType", "score", "completionPercent"),
+    LISTED("Market", "Listed", "seller", null,
+            "listingId", "token", "tokenId", "amount", "price"),
+    BOUGHT("Market", "Bought", "buyer", null,
+            "listingId", "amount", "totalPrice"),
+    MEMORY_RECORDED("DigitalBeing", "MemoryRecorded", null, null,
+            "beingId", "memoryIndex", "contentHash"),
+    CANCELLED("Market", "Cancelled", null, null,
+            "listingId");
+
+    public static final int MAX_WORDS = 5;
+
+    private static final LedgerEventType[] VALUES = values();
+
+    private final String contract;
+    private final String event;
+    private final String playerParam;
+    private final String textParam;
+    private final List<String> words;
+
+    LedgerEventType(String contract, String event, String playerParam, String textParam, String... words) {
+        this.contract = contract;
+        this.event = event;
+        this.playerParam = playerParam;
+        this.textParam = textParam;
+        this.words = List.of(words);
+    }
+
+    static LedgerEventType byCode(int code) {
+        if (code < 0 || code >= VALUES.length) {
+            throw new IllegalArgumentException("未知事件类型: " + code);
+        }
+        return VALUES[code];
+    }
+
+    public String getContract() {
+        return contract;
+    }
+
+    public String getEvent() {
+        return event;
+    }
+
+    /**
+     * 记为玩家的地址参数，没有时为 null
+     */
+    public String getPlayerParam() {
+        return playerParam;
+    }
+
+    /**
+     * 字符串参数，没有时为 null
+     */
+    public String getTextParam() {
+        return textParam;
+    }
+
+    /**
+     * 按 32 字节保存的参数名，下标即字段序号
+     */
+    public List<String> getWords() {
+        return words;
+    }
+
+    /**
+     * 参数在记录中的字段序号，没有该参数时抛出 IllegalArgumentException
+     */
+    public int wordIndex(String param) {
+        int index = words.indexOf(param);
+        if (index < 0) {
+            throw new IllegalArgumentException(event + " 没有参数 " + param + "，可用: " + words);
+        }
+        return index;
+    }
+
+    /**
+     * NPC ID 所在字段，-1 表示不进 NPC 索引
+     */
+    int npcWord() {
+        return this == DIALOGUE_RECORDED || this == KEYWORD_TRIGGERED ? 0 : -1;
+    }
+
+    /**
+     * 碎片 ID 所在字段
+     */
+    int fragmentWord() {
+        return switch (this) {
+            case FRAGMENT_MINTED -> 0;
+            case KEYWORD_TRIGGERED -> 1;
+            default -> -1;
+        };
+    }
+
+    /**
+     * 数字生命 ID 所在字段
+     */
+    int beingWord() {
+        return this == MEMORY_RECORDED ? 0 : -1;
+    }
+
+    /**
+     * 涉及的合约名，去重
+     */
+    static List<String> contracts() {
+        return Arrays.stream(VALUES).map(LedgerEventType::getContract).distinct().toList();
+    }
+}
@@ -0,0 +1,456 @@
+package com.yingzhou.ledger.index;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.yingzhou.ledger.AbiEvent;
+import com.yingzhou.ledger.AbiLog;
+import com.yingzhou.ledger.Hex;
+import com.yingzhou.ledger.Keccak256;
+import com.yingzhou.ledger.LedgerClient;
+import com.yingzhou.util.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 合约事件的后台索引器
+ *
+ * 按区块范围分批调用 eth_getLogs（多个范围同时在途），把 {@link LedgerEventType} 中的事件解码后
+ * 写入 {@link LedgerEventStore}。每批结束时记下末尾区块的哈希作为检查点；下一轮先核对最新检查点的哈希，
+ * 不一致说明发生了链重组，在检查点环中找到仍在链上的最近一个检查点，回退到那里重新索引。
+ * 重启后从存储中的检查点继续。
+ *
+ * 使用方用 {@link LedgerEventStore#open} 打开存储目录，构造后调用 {@link #start} 开始后台同步。
+ */
+public class LedgerIndexer implements Closeable {
+
+    public static final int DEFAULT_BATCH_BLOCKS = 2000;
+    public static final int DEFAULT_PIPELINE = 4;
+
+    /**
+     * 索引变化回调，发生在索引线程
+     */
+    public interface Listener {
+        /**
+         * 一个区块范围的新事件写入存储之后，按 (区块, 日志序号) 排序
+         */
+        default void onEvents(List<LedgerEvent> events) {}
+
+        /**
+         * 链重组回退或存储清空之后，checkpoint 为回退到的区块（清空时为 -1）
+         */
+        default void onRewind(long checkpoint) {}
+    }
+
+    private final LedgerClient client;
+    private final LedgerEventStore store;
+    // 合约地址 + 主题0 → 事件类型
+    private final Map<String, LedgerEventType> types = new HashMap<>();
+    private final Map<LedgerEventType, AbiEvent> events = new EnumMap<>(LedgerEventType.class);
+    private final JsonArray addresses = new JsonArray();
+    private final JsonArray topics = new JsonArray();
+    private final long fingerprint;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    private final Object syncLock = new Object();
+    private volatile int batchBlocks = DEFAULT_BATCH_BLOCKS;
+    private volatile int pipeline = DEFAULT_PIPELINE;
+    private volatile long startBlock;
+    private ScheduledExecutorService executor;
+
+    private boolean bound;
+    private boolean failing;
+    private volatile long head = -1;
+    private volatile long eventsIndexed;
+    private volatile long rangesFetched;
+    private volatile int reorgs;
+
+    /**
+     * 只索引已配置地址的合约，一个都没有时抛出 IllegalArgumentException
+     */
+    public LedgerIndexer(LedgerClient client, LedgerEventStore store) {
+        this.client = client;
+        this.store = store;
+        Map<String, String> tracked = new TreeMap<>();
+        for (LedgerEventType type : LedgerEventType.values()) {
+            String address = client.getConfig().getAddress(type.getContract());
+            if (address == null) {
+                Logger.warn("未配置 " + type.getContract() + " 合约地址，不索引 " + type.getEvent());
+                continue;
+            }
+            address = address.toLowerCase(Locale.ROOT);
+            AbiEvent event = client.getAbis().contract(type.getContract()).event(type.getEvent());
+            types.put(address + event.getTopic(), type);
+            events.put(type, event);
+            if (tracked.put(type.getContract(), address) == null) {
+                addresses.add(address);
+            }
+            topics.add(event.getTopic());
+        }
+        if (types.isEmpty()) {
+            throw new IllegalArgumentException("没有配置任何要索引的合约地址");
+        }
+        // 合约地址变化（重新部署）或索引的事件有增减时存储作废
+        byte[] hash = Keccak256.hash((tracked.toString() + topics).getBytes(StandardCharsets.UTF_8));
+        this.fingerprint = ByteBuffer.wrap(hash).getLong();
+    }
+
+    /**
+     * 在后台线程上每隔 pollMillis 同步一次
+     */
+    public synchronized void start(long pollMillis) {
+        if (executor != null) {
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "ledger-indexer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::poll, 0, pollMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void poll() {
+        try {
+            sync();
+            if (failing) {
+                Logger.info("事件索引已恢复同步，检查点区块 " + store.getCheckpoint());
+                failing = false;
+            }
+        } catch (Exception e) {
+            // 节点不可用时每次失败都会重试，只在开始失败时记一次
+            if (!failing) {
+                Logger.warn("事件索引同步失败: " + e.getMessage());
+                failing = true;
+            }
+        }
+    }
+
+    /**
+     * 同步到当前链头，返回新索引的事件数
+     * 后台索引开启时由索引线程调用；工具和测试也可以直接调用
+     */
+    public int sync() throws IOException {
+        synchronized (syncLock) {
+            return syncToHead();
+        }
+    }
+
+    private int syncToHead() throws IOException {
+        if (!bound) {
+            CompletableFuture<JsonElement> chainFuture = request("eth_chainId", new JsonArray());
+            client.flush();
+            long chainId = Hex.decodeQuantity(await(chainFuture).getAsString());
+            if (store.bind(chainId, fingerprint)) {
+                fireRewind();
+            }
+            bound = true;
+        }
+
+        // 链头和最新检查点的哈希在同一个批量请求里取
+        long checkpoint = store.getCheckpoint();
+        byte[] checkpointHash = store.getCheckpointHash(checkpoint);
+        CompletableFuture<JsonElement> headFuture = request("eth_blockNumber", new JsonArray());
+        CompletableFuture<JsonElement> checkFuture = checkpointHash != null ? blockByNumber(checkpoint) : null;
+        client.flush();
+        head = Hex.decodeQuantity(await(headFuture).getAsString());
+        if (checkFuture != null && !Arrays.equals(hashOf(await(checkFuture)), checkpointHash)) {
+            recoverFromReorg();
+        }
+
+        long before = eventsIndexed;
+        while (store.getCheckpoint() < head) {
+            if (!syncRanges()) {
+                break;
+            }
+        }
+        return (int) (eventsIndexed - before);
+    }
+
+    /**
+     * 取下一组区块范围写入存储，某个范围在取数期间被重组时放弃该范围并返回 false，留给下一轮处理
+     */
+    private boolean syncRanges() throws IOException {
+        long from = Math.max(store.getCheckpoint() + 1, startBlock);
+        List<long[]> ranges = new ArrayList<>();
+        List<CompletableFuture<JsonElement>> logFutures = new ArrayList<>();
+        List<CompletableFuture<JsonElement>> endFutures = new ArrayList<>();
+        while (ranges.size() < pipeline && from <= head) {
+            long to = Math.min(head, from + batchBlocks - 1);
+            ranges.add(new long[]{from, to});
+            logFutures.add(getLogs(from, to));
+            endFutures.add(blockByNumber(to));
+            from = to + 1;
+        }
+        if (ranges.isEmpty()) {
+            // 起始区块还没出块
+            return false;
+        }
+        client.flush();
+
+        for (int i = 0; i < ranges.size(); i++) {
+            long to = ranges.get(i)[1];
+            JsonElement end = await(endFutures.get(i));
+            JsonElement logs = await(logFutures.get(i));
+            if (!end.isJsonObject() || !logs.isJsonArray()) {
+                return false;
+            }
+            List<LedgerEvent> batch = decodeRange(logs.getAsJsonArray(), to, end.getAsJsonObject());
+            if (batch == null) {
+                return false;
+            }
+            store.append(batch, to, hashOf(end));
+            eventsIndexed += batch.size();
+            rangesFetched++;
+            if (!batch.isEmpty()) {
+                for (Listener listener : listeners) {
+                    listener.onEvents(batch);
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 解码一个区块范围的日志；日志所在区块的哈希与重新查询到的不一致时返回 null
+     */
+    private List<LedgerEvent> decodeRange(JsonArray logs, long to, JsonObject end) throws IOException {
+        // 节点不在日志里附带时间戳时补查所在区块，顺便核对区块哈希
+        Map<Long, JsonObject> blocks = new HashMap<>();
+        blocks.put(to, end);
+        Map<Long, CompletableFuture<JsonElement>> pending = new HashMap<>();
+        for (JsonElement element : logs) {
+            long block = Hex.decodeQuantity(element.getAsJsonObject().get("blockNumber").getAsString());
+            if (!blocks.containsKey(block) && !pending.containsKey(block)) {
+                pending.put(block, blockByNumber(block));
+            }
+        }
+        if (!pending.isEmpty()) {
+            client.flush();
+            for (Map.Entry<Long, CompletableFuture<JsonElement>> entry : pending.entrySet()) {
+                JsonElement block = await(entry.getValue());
+                if (!block.isJsonObject()) {
+                    return null;
+                }
+                blocks.put(entry.getKey(), block.getAsJsonObject());
+            }
+        }
+
+        List<LedgerEvent> batch = new ArrayList<>(logs.size());
+        for (JsonElement element : logs) {
+            JsonObject log = element.getAsJsonObject();
+            if (log.has("removed") && log.get("removed").getAsBoolean()) {
+                continue;
+            }
+            long blockNumber = Hex.decodeQuantity(log.get("blockNumber").getAsString());
+            JsonObject block = blocks.get(blockNumber);
+            if (!block.get("hash").getAsString().equalsIgnoreCase(log.get("blockHash").getAsString())) {
+                return null;
+            }
+            LedgerEvent event = decodeLog(log, blockNumber, Hex.decodeQuantity(block.get("timestamp").getAsString()));
+            if (event != null) {
+                batch.add(event);
+            }
+        }
+        batch.sort(Comparator.comparingLong(LedgerEvent::getBlockNumber).thenComparingInt(LedgerEvent::getLogIndex));
+        return batch;
+    }
+
+    private LedgerEvent decodeLog(JsonObject log, long blockNumber, long timestamp) {
+        JsonArray topicArray = log.getAsJsonArray("topics");
+        if (topicArray.isEmpty()) {
+            return null;
+        }
+        List<String> logTopics = new ArrayList<>(topicArray.size());
+        for (JsonElement topic : topicArray) {
+            logTopics.add(topic.getAsString().toLowerCase(Locale.ROOT));
+        }
+        String address = log.get("address").getAsString().toLowerCase(Locale.ROOT);
+        LedgerEventType type = types.get(address + logTopics.get(0));
+        if (type == null) {
+            return null;
+        }
+        AbiEvent event = events.get(type);
+        int logIndex = (int) Hex.decodeQuantity(log.get("logIndex").getAsString());
+        try (AbiLog decoded = AbiLog.decode(event, logTopics, log.get("data").getAsString())) {
+            String player = type.getPlayerParam() != null ? decoded.getAddress(event.indexOf(type.getPlayerParam())) : null;
+            String text = type.getTextParam() != null ? decoded.getString(event.indexOf(type.getTextParam())) : null;
+            List<String> params = type.getWords();
+            byte[] words = new byte[params.size() * 32];
+            for (int i = 0; i < params.size(); i++) {
+                decoded.copyWord(event.indexOf(params.get(i)), words, i * 32);
+            }
+            return new LedgerEvent(type, blockNumber, timestamp, logIndex, player, text, words);
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            Logger.warn("跳过无法解码的 " + event + " 日志（区块 " + blockNumber + "）: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 在检查点环中找到仍在链上的最近检查点并回退，都不在链上（重组过深或节点已重置）时清空重建
+     */
+    private void recoverFromReorg() throws IOException {
+        long[] candidates = store.getRecentCheckpoints();
+        List<CompletableFuture<JsonElement>> futures = new ArrayList<>(candidates.length);
+        for (long block : candidates) {
+            futures.add(blockByNumber(block));
+        }
+        client.flush();
+        reorgs++;
+        for (int i = 0; i < candidates.length; i++) {
+            if (Arrays.equals(hashOf(await(futures.get(i))), store.getCheckpointHash(candidates[i]))) {
+                int removed = store.rollback(candidates[i]);
+                Logger.warn("检测到链重组，事件索引回退到区块 " + candidates[i] + "，删除 " + removed + " 条事件");
+                fireRewind();
+                return;
+            }
+        }
+        Logger.warn("链重组超出检查点范围或节点已重置，事件索引从头重建");
+        store.clear();
+        fireRewind();
+    }
+
+    private void fireRewind() {
+        long checkpoint = store.getCheckpoint();
+        for (Listener listener : listeners) {
+            listener.onRewind(checkpoint);
+        }
+    }
+
+    private CompletableFuture<JsonElement> getLogs(long from, long to) {
+        JsonObject filter = new JsonObject();
+        filter.addProperty("fromBlock", Hex.encodeQuantity(from));
+        filter.addProperty("toBlock", Hex.encodeQuantity(to));
+        filter.add("address", addresses);
+        JsonArray topicFilter = new JsonArray(1);
+        topicFilter.add(topics);
+        filter.add("topics", topicFilter);
+        JsonArray params = new JsonArray(1);
+        params.add(filter);
+        return request("eth_getLogs", params);
+    }
+
+    private CompletableFuture<JsonElement> blockByNumber(long block) {
+        JsonArray params = new JsonArray(2);
+        params.add(Hex.encodeQuantity(block));
+        params.add(false);
+        return request("eth_getBlockByNumber", params);
+    }
+
+    private CompletableFuture<JsonElement> request(String method, JsonArray params) {
+        return client.request(method, params);
+    }
+
+    private static byte[] hashOf(JsonElement block) {
+        return block.isJsonObject() ? Hex.decode(block.getAsJsonObject().get("hash").getAsString()) : null;
+    }
+
+    private static JsonElement await(CompletableFuture<JsonElement> future) throws IOException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+        }
+    }
+
+    /**
+     * 每个 eth_getLogs 请求覆盖的区块数，节点限制了日志查询范围时调小
+     */
+    public void setBatchBlocks(int batchBlocks) {
+        this.batchBlocks = Math.max(1, batchBlocks);
+    }
+
+    /**
+     * 同时在途的区块范围数
+     */
+    public void setPipeline(int pipeline) {
+        this.pipeline = Math.max(1, pipeline);
+    }
+
+    /**
+     * 从该区块开始索引（通常为合约部署区块），只影响尚未索引到的部分
+     */
+    public void setStartBlock(long startBlock) {
+        this.startBlock = Math.max(0, startBlock);
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    public LedgerEventStore getStore() {
+        return store;
+    }
+
+    /**
+     * 最近一次看到的链头，尚未连上节点时为 -1
+     */
+    public long getHead() {
+        return head;
+    }
+
+    public boolean isCaughtUp() {
+        return head >= 0 && store.getCheckpoint() >= head;
+    }
+
+    public long getEventsIndexed() {
+        return eventsIndexed;
+    }
+
+    public long getRangesFetched() {
+        return rangesFetched;
+    }
+
+    public int getReorgCount() {
+        return reorgs;
+    }
+
+    /**
+     * 停止后台线程并关闭存储，账本客户端由调用方关闭
+     */
+    @Override
+    public void close() {
+        ScheduledExecutorService running;
+        synchronized (this) {
+            running = executor;
+            executor = null;
+        }
+        if (running != null) {
+            running.shutdownNow();
+            try {
+                running.awaitTermination(2, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        try {
+            store.close();
+        } catch (IOException e) {
+            Logger.error("关闭事件索引失败", e);
+        }
+    }
+}
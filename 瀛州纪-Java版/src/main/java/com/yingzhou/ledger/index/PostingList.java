@@ -0,0 +1,35 @@
+package com.yingzhou.ledger.index;
+
+import java.util.Arrays;
+
+/**
+ * 二级索引的倒排表：记录序号的升序 int 数组
+ */
+final class PostingList {
+
+    private int[] items = new int[4];
+    private int size;
+
+    void add(int record) {
+        if (size == items.length) {
+            items = Arrays.copyOf(items, size * 2);
+        }
+        items[size++] = record;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int get(int index) {
+        return items[index];
+    }
+
+    /**
+     * 删除序号不小于 limit 的记录（链重组回退时使用）
+     */
+    void truncate(int limit) {
+        int position = Arrays.binarySearch(items, 0, size, limit);
+        size = position >= 0 ? position : -position - 1;
+    }
+}
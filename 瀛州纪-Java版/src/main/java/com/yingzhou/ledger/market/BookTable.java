@@ -0,0 +1,76 @@
+package com.yingzhou.ledger.market;
+
+/**
+ * tokenId → 卖单簿的开放寻址散列表，键为基本类型 long，查找不装箱
+ */
+final class BookTable {
+
+    private long[] keys = new long[16];
+    private OrderBook[] books = new OrderBook[16];
+    private int size;
+
+    OrderBook get(long tokenId) {
+        int mask = keys.length - 1;
+        for (int i = slot(tokenId, mask); books[i] != null; i = (i + 1) & mask) {
+            if (keys[i] == tokenId) {
+                return books[i];
+            }
+        }
+        return null;
+    }
+
+    OrderBook getOrCreate(long tokenId) {
+        OrderBook book = get(tokenId);
+        if (book != null) {
+            return book;
+        }
+        if ((size + 1) * 2 > keys.length) {
+            resize();
+        }
+        book = new OrderBook();
+        insert(keys, books, tokenId, book);
+        size++;
+        return book;
+    }
+
+    /**
+     * 已建簿的 tokenId，顺序不定
+     */
+    long[] tokenIds() {
+        long[] result = new long[size];
+        int n = 0;
+        for (int i = 0; i < books.length; i++) {
+            if (books[i] != null) {
+                result[n++] = keys[i];
+            }
+        }
+        return result;
+    }
+
+    private void resize() {
+        long[] newKeys = new long[keys.length * 2];
+        OrderBook[] newBooks = new OrderBook[books.length * 2];
+        for (int i = 0; i < books.length; i++) {
+            if (books[i] != null) {
+                insert(newKeys, newBooks, keys[i], books[i]);
+            }
+        }
+        keys = newKeys;
+        books = newBooks;
+    }
+
+    private static void insert(long[] keys, OrderBook[] books, long tokenId, OrderBook book) {
+        int mask = keys.length - 1;
+        int i = slot(tokenId, mask);
+        while (books[i] != null) {
+            i = (i + 1) & mask;
+        }
+        keys[i] = tokenId;
+        books[i] = book;
+    }
+
+    private static int slot(long key, int mask) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+}
@@ -0,0 +1,76 @@
+package com.yingzhou.ledger.market;
+
+import com.yingzhou.ledger.resource.ResourceException;
+import com.yingzhou.ledger.resource.ResourceLedger;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 离线模式下的本地余额：每个账户的 ETH，以及每个资源合约一本 {@link ResourceLedger}
+ * 余额不足时的回滚原因与链上一致（OpenZeppelin 5 的自定义错误名、节点的 insufficient funds）。
+ * 资源由卖家本人转出，不检查 setApprovalForAll，视为玩家已授权市场合约。
+ */
+public class LocalCustody implements MarketCustody {
+
+    public static final String INSUFFICIENT_BALANCE = ResourceLedger.INSUFFICIENT_BALANCE;
+    public static final String INSUFFICIENT_FUNDS = "insufficient funds";
+
+    private final Map<String, ResourceLedger> ledgers = new ConcurrentHashMap<>();
+    private final Map<String, Long> ether = new HashMap<>();
+
+    /**
+     * 该资源合约的本地账本，没有时新建
+     */
+    public ResourceLedger ledger(String token) {
+        return ledgers.computeIfAbsent(key(token), t -> new ResourceLedger());
+    }
+
+    /**
+     * 对应 Resource1155.mint
+     */
+    public void mint(String token, String to, long tokenId, long amount) {
+        ledger(token).mint(to, tokenId, amount);
+    }
+
+    public synchronized void deposit(String account, long wei) {
+        if (wei < 0) {
+            throw new IllegalArgumentException("金额不能为负: " + wei);
+        }
+        ether.merge(key(account), wei, Math::addExact);
+    }
+
+    public long balanceOf(String token, String account, long tokenId) {
+        return ledger(token).balanceOf(account, tokenId);
+    }
+
+    public synchronized long etherOf(String account) {
+        return ether.getOrDefault(key(account), 0L);
+    }
+
+    @Override
+    public void transfer(String token, String from, String to, long tokenId, long amount) {
+        try {
+            ledger(token).safeTransferFrom(from, from, to, tokenId, amount);
+        } catch (ResourceException e) {
+            throw new MarketException(e.getReason());
+        }
+    }
+
+    @Override
+    public synchronized void pay(String from, String to, long wei) {
+        String payer = key(from);
+        long balance = ether.getOrDefault(payer, 0L);
+        if (balance < wei) {
+            throw new MarketException(INSUFFICIENT_FUNDS);
+        }
+        ether.put(payer, balance - wei);
+        ether.merge(key(to), wei, Long::sum);
+    }
+
+    private static String key(String address) {
+        return address.toLowerCase(Locale.ROOT);
+    }
+}
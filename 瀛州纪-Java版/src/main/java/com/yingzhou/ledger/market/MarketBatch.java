@@ -0,0 +1,124 @@
+package com.yingzhou.ledger.market;
+
+import java.util.Arrays;
+
+/**
+ * 一批待结算的市场操作，由 {@link MarketEngine#settle(MarketBatch)} 在一次加锁内按顺序执行
+ * 各操作相互独立（如同同一区块里的多笔交易），一笔被拒绝不影响其余；事件在整批结束后一次性发出。
+ * 操作参数存在基本类型数组里，clear 后可重复使用。
+ */
+public final class MarketBatch {
+
+    static final byte LIST = 0;
+    static final byte BUY = 1;
+    static final byte CANCEL = 2;
+
+    byte[] kinds;
+    String[] accounts;
+    String[] tokens;
+    // LIST: tokenId / amount / price；BUY: listingId / amount / value；CANCEL: listingId / - / -
+    long[] firsts;
+    long[] amounts;
+    long[] values;
+    long[] results;
+    String[] reasons;
+    int size;
+
+    public MarketBatch() {
+        this(64);
+    }
+
+    public MarketBatch(int capacity) {
+        capacity = Math.max(1, capacity);
+        kinds = new byte[capacity];
+        accounts = new String[capacity];
+        tokens = new String[capacity];
+        firsts = new long[capacity];
+        amounts = new long[capacity];
+        values = new long[capacity];
+        results = new long[capacity];
+        reasons = new String[capacity];
+    }
+
+    public MarketBatch list(String seller, String token, long tokenId, long amount, long price) {
+        return add(LIST, seller, token, tokenId, amount, price);
+    }
+
+    public MarketBatch buy(String buyer, long listingId, long amount, long value) {
+        return add(BUY, buyer, null, listingId, amount, value);
+    }
+
+    public MarketBatch cancel(String sender, long listingId) {
+        return add(CANCEL, sender, null, listingId, 0, 0);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 结算结果：LIST 为新挂单号，BUY 为总价，CANCEL 为 0；被拒绝时为 -1
+     */
+    public long getResult(int index) {
+        checkIndex(index);
+        return results[index];
+    }
+
+    /**
+     * 被拒绝的原因，成功时为 null
+     */
+    public String getReason(int index) {
+        checkIndex(index);
+        return reasons[index];
+    }
+
+    public int getFailedCount() {
+        int failed = 0;
+        for (int i = 0; i < size; i++) {
+            if (reasons[i] != null) {
+                failed++;
+            }
+        }
+        return failed;
+    }
+
+    public void clear() {
+        Arrays.fill(accounts, 0, size, null);
+        Arrays.fill(tokens, 0, size, null);
+        Arrays.fill(reasons, 0, size, null);
+        size = 0;
+    }
+
+    private MarketBatch add(byte kind, String account, String token, long first, long amount, long value) {
+        if ((first | amount | value) < 0) {
+            throw new IllegalArgumentException("uint256 参数不能为负");
+        }
+        if (size == kinds.length) {
+            int capacity = size * 2;
+            kinds = Arrays.copyOf(kinds, capacity);
+            accounts = Arrays.copyOf(accounts, capacity);
+            tokens = Arrays.copyOf(tokens, capacity);
+            firsts = Arrays.copyOf(firsts, capacity);
+            amounts = Arrays.copyOf(amounts, capacity);
+            values = Arrays.copyOf(values, capacity);
+            results = Arrays.copyOf(results, capacity);
+            reasons = Arrays.copyOf(reasons, capacity);
+        }
+        kinds[size] = kind;
+        accounts[size] = account;
+        tokens[size] = token;
+        firsts[size] = first;
+        amounts[size] = amount;
+        values[size] = value;
+        results[size] = 0;
+        reasons[size] = null;
+        size++;
+        return this;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.yingzhou.ledger.market;
+
+/**
+ * 市场结算时的资产划转：ERC-1155 资源（托管、发货、退回）和 ETH（付款）
+ * 划转失败时抛出 {@link MarketException}，引擎据此回滚当前操作。
+ */
+public interface MarketCustody {
+
+    /**
+     * 不记余额：镜像链上状态时使用，资产划转已由合约完成
+     */
+    MarketCustody UNCHECKED = new MarketCustody() {
+        @Override
+        public void transfer(String token, String from, String to, long tokenId, long amount) {
+        }
+
+        @Override
+        public void pay(String from, String to, long wei) {
+        }
+    };
+
+    /**
+     * 对应 IERC1155.safeTransferFrom
+     */
+    void transfer(String token, String from, String to, long tokenId, long amount);
+
+    /**
+     * 从 from 向 to 支付 wei
+     */
+    void pay(String from, String to, long wei);
+}
@@ -0,0 +1,676 @@
+package com.yingzhou.ledger.market;
+
+import com.yingzhou.ledger.index.LedgerEvent;
+import com.yingzhou.ledger.index.LedgerEventType;
+import com.yingzhou.ledger.index.LedgerIndexer;
+import com.yingzhou.ledger.tx.TxPipeline;
+import com.yingzhou.ledger.tx.TxReceipt;
+import com.yingzhou.util.Logger;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 进程内的市场撮合引擎，语义与 Market.sol 一致
+ * list 托管资源并分配递增的挂单号，buy 按挂单号买入（须付足单价 × 数量），cancel 由卖家撤回剩余资源；
+ * 被拒绝时抛出 {@link MarketException}，原因与合约 require 的字符串相同。
+ *
+ * 挂单按挂单号存在基本类型数组里，每种资源（合约 + tokenId）一个按 (单价, 挂单号) 排序的卖单簿，
+ * 最优价查询 O(log n)。{@link #settle(MarketBatch)} 在一次加锁内结算一批操作，事件按批发给监听器。
+ *
+ * 两种用法：
+ * <ul>
+ *   <li>离线模式：配 {@link LocalCustody} 记本地余额，玩家之间直接在本地交易</li>
+ *   <li>链上镜像：{@link #attach(LedgerIndexer)} 后按索引到的 Listed / Bought / Cancelled 重放，
+ *       发交易前用 check* 在本地预检，必然回滚的交易不再上链（submit* 已包含预检）</li>
+ * </ul>
+ * 单价、数量、tokenId 以 long 表示，超出 long 的链上数值不镜像。
+ */
+public class MarketEngine implements LedgerIndexer.Listener {
+
+    public static final String PRICE_ZERO = "price=0";
+    public static final String AMOUNT_ZERO = "amount=0";
+    public static final String INACTIVE = "inactive";
+    public static final String INVALID_AMOUNT = "invalid amount";
+    public static final String BAD_VALUE = "bad value";
+    public static final String NOT_SELLER = "not seller";
+    /**
+     * 单价 × 数量超出 long（合约中 uint256 溢出为 Panic(0x11)）
+     */
+    public static final String OVERFLOW = "overflow";
+
+    /**
+     * 离线模式下市场的托管地址
+     */
+    public static final String OFFLINE_ADDRESS = "0x00000000000000000000000000000000000000fe";
+
+    private static final Set<LedgerEventType> MARKET_EVENTS =
+            EnumSet.of(LedgerEventType.LISTED, LedgerEventType.BOUGHT, LedgerEventType.CANCELLED);
+    private static final int MAX_LISTINGS = Integer.MAX_VALUE - 8;
+
+    /**
+     * 市场事件的监听器，在执行操作的线程上回调（镜像模式下为索引线程），按发生顺序
+     */
+    public interface Listener {
+        void onEvents(List<MarketEvent> events);
+
+        /**
+         * 链重组等导致本地状态从索引重建，之前收到的事件作废
+         */
+        default void onReset() {
+        }
+    }
+
+    private final String address;
+    private final MarketCustody custody;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final Object deliveryLock = new Object();
+
+    // 挂单表，下标即挂单号（从 1 开始），0 号恒为无效
+    private long[] tokenIds;
+    private long[] amounts;
+    private long[] prices;
+    private int[] sellers;
+    private int[] tokens;
+    private boolean[] active;
+    private int counter;
+    private int liveCount;
+
+    private final Map<String, Integer> accountIndex = new HashMap<>();
+    private final List<String> accounts = new ArrayList<>();
+    private final Map<String, Integer> tokenIndex = new HashMap<>();
+    private final List<String> tokenAddresses = new ArrayList<>();
+    private final List<BookTable> tables = new ArrayList<>();
+
+    private List<MarketEvent> pending = new ArrayList<>();
+    private LedgerIndexer indexer;
+    // 镜像模式下已重放到的 (区块号, 日志序号)
+    private long appliedBlock = -1;
+    private int appliedLog = -1;
+
+    public MarketEngine(MarketCustody custody) {
+        this(OFFLINE_ADDRESS, custody);
+    }
+
+    /**
+     * @param address 市场合约地址，资源托管在该地址名下
+     */
+    public MarketEngine(String address, MarketCustody custody) {
+        this.address = normalize(address);
+        this.custody = custody;
+        reset(1024);
+    }
+
+    // ---- 合约操作 ----
+
+    /**
+     * 对应 Market.list，返回新挂单号
+     */
+    public long list(String seller, String token, long tokenId, long amount, long price) {
+        checkUint(tokenId, amount, price);
+        long id;
+        synchronized (this) {
+            id = doList(seller, token, tokenId, amount, price);
+        }
+        fire();
+        return id;
+    }
+
+    /**
+     * 对应 Market.buy，value 为随交易附带的 wei，返回总价
+     */
+    public long buy(String buyer, long listingId, long amount, long value) {
+        checkUint(listingId, amount, value);
+        long total;
+        synchronized (this) {
+            total = doBuy(buyer, listingId, amount, value);
+        }
+        fire();
+        return total;
+    }
+
+    /**
+     * 对应 Market.cancel
+     */
+    public void cancel(String sender, long listingId) {
+        checkUint(listingId, 0, 0);
+        synchronized (this) {
+            doCancel(sender, listingId);
+        }
+        fire();
+    }
+
+    /**
+     * 从最低价开始逐个挂单买入，直到买够 amount 或单价超过 maxPrice（链上对应多笔 buy）
+     * 余额不足等被拒绝时停在已成交的部分。
+     *
+     * @return 实际成交的数量
+     */
+    public long sweep(String buyer, String token, long tokenId, long amount, long maxPrice) {
+        checkUint(tokenId, amount, maxPrice);
+        long filled = 0;
+        synchronized (this) {
+            OrderBook book = book(token, tokenId);
+            while (book != null && filled < amount) {
+                int best = book.best(active);
+                if (best == 0 || prices[best] > maxPrice) {
+                    break;
+                }
+                long take = Math.min(amount - filled, amounts[best]);
+                try {
+                    doBuy(buyer, best, take, total(best, take));
+                } catch (MarketException e) {
+                    break;
+                }
+                filled += take;
+            }
+        }
+        fire();
+        return filled;
+    }
+
+    /**
+     * 按顺序结算一批操作，结果和拒绝原因写回 batch
+     *
+     * @return 成功的操作数
+     */
+    public int settle(MarketBatch batch) {
+        int succeeded = 0;
+        synchronized (this) {
+            for (int i = 0; i < batch.size; i++) {
+                try {
+                    batch.results[i] = switch (batch.kinds[i]) {
+                        case MarketBatch.LIST -> doList(batch.accounts[i], batch.tokens[i], batch.firsts[i],
+                                batch.amounts[i], batch.values[i]);
+                        case MarketBatch.BUY -> doBuy(batch.accounts[i], batch.firsts[i], batch.amounts[i],
+                                batch.values[i]);
+                        default -> {
+                            doCancel(batch.accounts[i], batch.firsts[i]);
+                            yield 0;
+                        }
+                    };
+                    batch.reasons[i] = null;
+                    succeeded++;
+                } catch (MarketException e) {
+                    batch.results[i] = -1;
+                    batch.reasons[i] = e.getReason();
+                }
+            }
+        }
+        fire();
+        return succeeded;
+    }
+
+    // ---- 本地预检：返回合约会给出的回滚原因，能通过时返回 null ----
+
+    public String checkList(long amount, long price) {
+        checkUint(0, amount, price);
+        return verifyList(amount, price);
+    }
+
+    public synchronized String checkBuy(long listingId, long amount, long value) {
+        checkUint(listingId, amount, value);
+        String reason = verifyBuy(listingId, amount);
+        if (reason == null && total(slot(listingId), amount) != value) {
+            reason = BAD_VALUE;
+        }
+        return reason;
+    }
+
+    public synchronized String checkCancel(String sender, long listingId) {
+        checkUint(listingId, 0, 0);
+        return verifyCancel(sender, listingId);
+    }
+
+    /**
+     * 买入 amount 个应附带的 wei，不能买时抛出 MarketException
+     */
+    public synchronized long quote(long listingId, long amount) {
+        checkUint(listingId, amount, 0);
+        require(verifyBuy(listingId, amount));
+        return total(slot(listingId), amount);
+    }
+
+    /**
+     * 预检后经交易管线发送 Market.buy，附带的 wei 按本地挂单计算；预检不通过时 future 以 MarketException 失败
+     * 本地状态落后于链上时（如挂单刚被别人买走），交易仍可能在链上回滚。
+     */
+    public CompletableFuture<TxReceipt> submitBuy(TxPipeline pipeline, long listingId, long amount) {
+        long total;
+        try {
+            total = quote(listingId, amount);
+        } catch (MarketException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return pipeline.submitWithValue(BigInteger.valueOf(total), "Market", "buy", listingId, amount);
+    }
+
+    public CompletableFuture<TxReceipt> submitCancel(TxPipeline pipeline, long listingId) {
+        String reason = checkCancel(pipeline.getFrom(), listingId);
+        if (reason != null) {
+            return CompletableFuture.failedFuture(new MarketException(reason));
+        }
+        return pipeline.submit("Market", "cancel", listingId);
+    }
+
+    /**
+     * 发送 Market.list；发送账户须已对市场合约 setApprovalForAll
+     */
+    public CompletableFuture<TxReceipt> submitList(TxPipeline pipeline, String token, long tokenId, long amount,
+                                                   long price) {
+        String reason = checkList(amount, price);
+        if (reason != null) {
+            return CompletableFuture.failedFuture(new MarketException(reason));
+        }
+        return pipeline.submit("Market", "list", token, tokenId, amount, price);
+    }
+
+    // ---- 查询 ----
+
+    /**
+     * 该资源单价最低（同价时最早挂出）的有效挂单号，没有时返回 0
+     */
+    public synchronized long bestListing(String token, long tokenId) {
+        OrderBook book = book(token, tokenId);
+        return book != null ? book.best(active) : 0;
+    }
+
+    /**
+     * 该资源的最低单价，没有挂单时返回 -1
+     */
+    public synchronized long bestPrice(String token, long tokenId) {
+        OrderBook book = book(token, tokenId);
+        int best = book != null ? book.best(active) : 0;
+        return best != 0 ? prices[best] : -1;
+    }
+
+    /**
+     * 该资源的有效挂单数
+     */
+    public synchronized int depth(String token, long tokenId) {
+        OrderBook book = book(token, tokenId);
+        return book != null ? book.live() : 0;
+    }
+
+    /**
+     * 该资源按单价从低到高的前 limit 个有效挂单（界面展示用，O(n log n)）
+     */
+    public synchronized List<MarketListing> listings(String token, long tokenId, int limit) {
+        OrderBook book = book(token, tokenId);
+        if (book == null) {
+            return new ArrayList<>();
+        }
+        int[] ids = book.liveIds(active);
+        List<MarketListing> result = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            result.add(snapshot(id));
+        }
+        result.sort(Comparator.comparingLong(MarketListing::getPrice).thenComparingLong(MarketListing::getId));
+        return result.size() > limit ? new ArrayList<>(result.subList(0, Math.max(0, limit))) : result;
+    }
+
+    /**
+     * 对应 Market.listings，挂单号不存在时返回 null
+     */
+    public synchronized MarketListing getListing(long listingId) {
+        int id = slot(listingId);
+        return id != 0 ? snapshot(id) : null;
+    }
+
+    /**
+     * 有挂单记录的 tokenId（含已售罄的），顺序不定
+     */
+    public synchronized long[] tokenIds(String token) {
+        Integer t = tokenIndex.get(normalize(token));
+        return t != null ? tables.get(t).tokenIds() : new long[0];
+    }
+
+    /**
+     * 对应 Market.listingCounter
+     */
+    public synchronized long getListingCounter() {
+        return counter;
+    }
+
+    public synchronized int getLiveCount() {
+        return liveCount;
+    }
+
+    public String getAddress() {
+        return address;
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    // ---- 链上镜像 ----
+
+    /**
+     * 从索引重放已有的市场事件，并跟随之后索引到的事件；引擎此后只应作镜像使用
+     */
+    public void attach(LedgerIndexer indexer) {
+        synchronized (this) {
+            this.indexer = indexer;
+        }
+        indexer.addListener(this);
+        rebuild();
+    }
+
+    @Override
+    public void onEvents(List<LedgerEvent> events) {
+        synchronized (this) {
+            for (LedgerEvent event : events) {
+                if (MARKET_EVENTS.contains(event.getType())) {
+                    apply(event);
+                }
+            }
+        }
+        fire();
+    }
+
+    @Override
+    public void onRewind(long checkpoint) {
+        rebuild();
+    }
+
+    private void rebuild() {
+        synchronized (this) {
+            reset(Math.max(1024, counter + 1));
+            appliedBlock = -1;
+            appliedLog = -1;
+            for (LedgerEvent event : indexer.getStore().byType(MARKET_EVENTS)) {
+                apply(event);
+            }
+            pending = new ArrayList<>();
+        }
+        for (Listener listener : listeners) {
+            listener.onReset();
+        }
+    }
+
+    private void apply(LedgerEvent event) {
+        // 挂接与重建期间同一事件可能既在存储里又经回调送达，按链上位置去重
+        if (event.getBlockNumber() < appliedBlock
+                || (event.getBlockNumber() == appliedBlock && event.getLogIndex() <= appliedLog)) {
+            return;
+        }
+        appliedBlock = event.getBlockNumber();
+        appliedLog = event.getLogIndex();
+        try {
+            long listingId = event.getLong("listingId");
+            if (listingId <= 0 || listingId > MAX_LISTINGS) {
+                throw new ArithmeticException("挂单号超出范围");
+            }
+            int id = (int) listingId;
+            switch (event.getType()) {
+                case LISTED -> {
+                    if (id <= counter && sellers[id] != 0) {
+                        return;
+                    }
+                    insert(id, intern(event.getPlayer()), internToken(event.getAddress("token")),
+                            event.getLong("tokenId"), event.getLong("amount"), event.getLong("price"));
+                    emit(MarketEvent.Type.LISTED, id, event.getPlayer(), event.getLong("amount"), prices[id]);
+                }
+                case BOUGHT -> {
+                    long amount = event.getLong("amount");
+                    if (!active[slot(id)] || amount > amounts[id]) {
+                        Logger.warn("市场镜像与链上不一致，跳过 " + event);
+                        return;
+                    }
+                    amounts[id] -= amount;
+                    if (amounts[id] == 0) {
+                        deactivate(id);
+                    }
+                    emit(MarketEvent.Type.BOUGHT, id, event.getPlayer(), amount, event.getLong("totalPrice"));
+                }
+                default -> {
+                    if (!active[slot(id)]) {
+                        return;
+                    }
+                    deactivate(id);
+                    emit(MarketEvent.Type.CANCELLED, id, accounts.get(sellers[id]), amounts[id], 0);
+                }
+            }
+        } catch (ArithmeticException e) {
+            Logger.warn("市场事件数值超出 long，不镜像: " + event);
+        }
+    }
+
+    // ---- 内部 ----
+
+    private long doList(String seller, String token, long tokenId, long amount, long price) {
+        require(verifyList(amount, price));
+        if (counter == MAX_LISTINGS) {
+            throw new IllegalStateException("挂单号已用尽");
+        }
+        String from = normalize(seller);
+        String asset = normalize(token);
+        custody.transfer(asset, from, address, tokenId, amount);
+        int id = counter + 1;
+        insert(id, intern(from), internToken(asset), tokenId, amount, price);
+        emit(MarketEvent.Type.LISTED, id, from, amount, price);
+        return id;
+    }
+
+    private long doBuy(String buyer, long listingId, long amount, long value) {
+        require(verifyBuy(listingId, amount));
+        int id = (int) listingId;
+        long total = total(id, amount);
+        require(total != value ? BAD_VALUE : null);
+        String to = normalize(buyer);
+        String seller = accounts.get(sellers[id]);
+        String token = tokenAddresses.get(tokens[id]);
+        custody.pay(to, seller, total);
+        try {
+            custody.transfer(token, address, to, tokenIds[id], amount);
+        } catch (RuntimeException e) {
+            // 整笔回滚
+            custody.pay(seller, to, total);
+            throw e;
+        }
+        amounts[id] -= amount;
+        if (amounts[id] == 0) {
+            deactivate(id);
+        }
+        emit(MarketEvent.Type.BOUGHT, id, to, amount, total);
+        return total;
+    }
+
+    private void doCancel(String sender, long listingId) {
+        require(verifyCancel(sender, listingId));
+        int id = (int) listingId;
+        String seller = accounts.get(sellers[id]);
+        custody.transfer(tokenAddresses.get(tokens[id]), address, seller, tokenIds[id], amounts[id]);
+        deactivate(id);
+        emit(MarketEvent.Type.CANCELLED, id, seller, amounts[id], 0);
+    }
+
+    private static String verifyList(long amount, long price) {
+        if (price == 0) {
+            return PRICE_ZERO;
+        }
+        return amount == 0 ? AMOUNT_ZERO : null;
+    }
+
+    private String verifyBuy(long listingId, long amount) {
+        int id = slot(listingId);
+        if (!active[id]) {
+            return INACTIVE;
+        }
+        if (amount == 0 || amount > amounts[id]) {
+            return INVALID_AMOUNT;
+        }
+        return total(id, amount) < 0 ? OVERFLOW : null;
+    }
+
+    private String verifyCancel(String sender, long listingId) {
+        int id = slot(listingId);
+        if (!active[id]) {
+            return INACTIVE;
+        }
+        Integer account = accountIndex.get(normalize(sender));
+        return account == null || account != sellers[id] ? NOT_SELLER : null;
+    }
+
+    /**
+     * 单价 × 数量，溢出时返回 -1
+     */
+    private long total(int id, long amount) {
+        long price = prices[id];
+        long high = Math.multiplyHigh(price, amount);
+        long total = price * amount;
+        return high != 0 || total < 0 ? -1 : total;
+    }
+
+    private int slot(long listingId) {
+        return listingId > 0 && listingId <= counter ? (int) listingId : 0;
+    }
+
+    private void insert(int id, int seller, int token, long tokenId, long amount, long price) {
+        if (id >= active.length) {
+            grow(id);
+        }
+        tokenIds[id] = tokenId;
+        amounts[id] = amount;
+        prices[id] = price;
+        sellers[id] = seller;
+        tokens[id] = token;
+        active[id] = true;
+        counter = Math.max(counter, id);
+        liveCount++;
+        tables.get(token).getOrCreate(tokenId).add(price, id);
+    }
+
+    private void deactivate(int id) {
+        active[id] = false;
+        liveCount--;
+        tables.get(tokens[id]).get(tokenIds[id]).kill(active);
+    }
+
+    private OrderBook book(String token, long tokenId) {
+        Integer t = tokenIndex.get(normalize(token));
+        return t != null ? tables.get(t).get(tokenId) : null;
+    }
+
+    private MarketListing snapshot(int id) {
+        return new MarketListing(id, accounts.get(sellers[id]), tokenAddresses.get(tokens[id]), tokenIds[id],
+                amounts[id], prices[id], active[id]);
+    }
+
+    private void emit(MarketEvent.Type type, int id, String account, long amount, long value) {
+        if (!listeners.isEmpty()) {
+            pending.add(new MarketEvent(type, id, account, tokenAddresses.get(tokens[id]), tokenIds[id], amount, value));
+        }
+    }
+
+    /**
+     * 在锁外按发生顺序发出累积的事件
+     */
+    private void fire() {
+        if (listeners.isEmpty()) {
+            return;
+        }
+        synchronized (deliveryLock) {
+            List<MarketEvent> events;
+            synchronized (this) {
+                if (pending.isEmpty()) {
+                    return;
+                }
+                events = pending;
+                pending = new ArrayList<>();
+            }
+            for (Listener listener : listeners) {
+                listener.onEvents(events);
+            }
+        }
+    }
+
+    /**
+     * 账户下标从 1 开始，0 留给"无卖家"
+     */
+    private int intern(String account) {
+        String key = normalize(account);
+        Integer index = accountIndex.get(key);
+        if (index == null) {
+            if (accounts.isEmpty()) {
+                accounts.add(null);
+            }
+            index = accounts.size();
+            accounts.add(key);
+            accountIndex.put(key, index);
+        }
+        return index;
+    }
+
+    private int internToken(String token) {
+        String key = normalize(token);
+        Integer index = tokenIndex.get(key);
+        if (index == null) {
+            index = tokenAddresses.size();
+            tokenAddresses.add(key);
+            tokenIndex.put(key, index);
+            tables.add(new BookTable());
+        }
+        return index;
+    }
+
+    private void grow(int id) {
+        int capacity = (int) Math.min(MAX_LISTINGS + 1L, Math.max(id + 1L, active.length * 2L));
+        tokenIds = Arrays.copyOf(tokenIds, capacity);
+        amounts = Arrays.copyOf(amounts, capacity);
+        prices = Arrays.copyOf(prices, capacity);
+        sellers = Arrays.copyOf(sellers, capacity);
+        tokens = Arrays.copyOf(tokens, capacity);
+        active = Arrays.copyOf(active, capacity);
+    }
+
+    private void reset(int capacity) {
+        tokenIds = new long[capacity];
+        amounts = new long[capacity];
+        prices = new long[capacity];
+        sellers = new int[capacity];
+        tokens = new int[capacity];
+        active = new boolean[capacity];
+        counter = 0;
+        liveCount = 0;
+        accountIndex.clear();
+        accounts.clear();
+        tokenIndex.clear();
+        tokenAddresses.clear();
+        tables.clear();
+    }
+
+    private static void require(String reason) {
+        if (reason != null) {
+            throw new MarketException(reason);
+        }
+    }
+
+    private static void checkUint(long a, long b, long c) {
+        if ((a | b | c) < 0) {
+            throw new IllegalArgumentException("uint256 参数不能为负");
+        }
+    }
+
+    private static String normalize(String address) {
+        if (address == null) {
+            throw new IllegalArgumentException("地址不能为空");
+        }
+        return address.toLowerCase(Locale.ROOT);
+    }
+}
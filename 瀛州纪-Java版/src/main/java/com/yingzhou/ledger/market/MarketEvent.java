@@ -0,0 +1,72 @@
+package com.yingzhou.ledger.market;
+
+/**
+ * 市场事件，对应 Market.sol 的 Listed / Bought / Cancelled
+ * 合约事件中没有的字段（Bought 的资源、Cancelled 的卖家和退回数量）从挂单补齐。
+ */
+public final class MarketEvent {
+
+    public enum Type {
+        LISTED, BOUGHT, CANCELLED
+    }
+
+    private final Type type;
+    private final long listingId;
+    private final String account;
+    private final String token;
+    private final long tokenId;
+    private final long amount;
+    private final long value;
+
+    MarketEvent(Type type, long listingId, String account, String token, long tokenId, long amount, long value) {
+        this.type = type;
+        this.listingId = listingId;
+        this.account = account;
+        this.token = token;
+        this.tokenId = tokenId;
+        this.amount = amount;
+        this.value = value;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public long getListingId() {
+        return listingId;
+    }
+
+    /**
+     * LISTED、CANCELLED 为卖家，BOUGHT 为买家
+     */
+    public String getAccount() {
+        return account;
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    public long getTokenId() {
+        return tokenId;
+    }
+
+    /**
+     * LISTED 为挂出数量，BOUGHT 为买入数量，CANCELLED 为退回卖家的数量
+     */
+    public long getAmount() {
+        return amount;
+    }
+
+    /**
+     * LISTED 为单价，BOUGHT 为总价（wei），CANCELLED 为 0
+     */
+    public long getValue() {
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return type + " #" + listingId + " " + account + " " + tokenId + " x" + amount + " " + value;
+    }
+}
@@ -0,0 +1,17 @@
+package com.yingzhou.ledger.market;
+
+/**
+ * 市场操作被拒绝，消息即合约 require 的回滚原因（如 "inactive"、"bad value"）
+ */
+public class MarketException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public MarketException(String reason) {
+        super(reason);
+    }
+
+    public String getReason() {
+        return getMessage();
+    }
+}
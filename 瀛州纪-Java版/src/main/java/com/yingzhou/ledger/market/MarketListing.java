@@ -0,0 +1,64 @@
+package com.yingzhou.ledger.market;
+
+/**
+ * 挂单快照，字段同 Market.Listing
+ */
+public final class MarketListing {
+
+    private final long id;
+    private final String seller;
+    private final String token;
+    private final long tokenId;
+    private final long amount;
+    private final long price;
+    private final boolean active;
+
+    MarketListing(long id, String seller, String token, long tokenId, long amount, long price, boolean active) {
+        this.id = id;
+        this.seller = seller;
+        this.token = token;
+        this.tokenId = tokenId;
+        this.amount = amount;
+        this.price = price;
+        this.active = active;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getSeller() {
+        return seller;
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    public long getTokenId() {
+        return tokenId;
+    }
+
+    /**
+     * 剩余数量（取消后保留取消时的数量，与合约一致）
+     */
+    public long getAmount() {
+        return amount;
+    }
+
+    /**
+     * 单价（wei）
+     */
+    public long getPrice() {
+        return price;
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    @Override
+    public String toString() {
+        return "#" + id + " " + seller + " " + tokenId + " x" + amount + " @" + price + (active ? "" : " (inactive)");
+    }
+}
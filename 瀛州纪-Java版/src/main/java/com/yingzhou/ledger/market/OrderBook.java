@@ -0,0 +1,133 @@
+package com.yingzhou.ledger.market;
+
+import java.util.Arrays;
+
+/**
+ * 一种资源（合约 + tokenId）的卖单簿：按 (单价, 挂单号) 排序的二叉最小堆，价格和挂单号分存两个基本类型数组
+ * 买完或取消的挂单不立即出堆，到达堆顶时才弹出；失效条目超过一半时整体压缩重建。
+ * 有效性由引擎的挂单表判断，调用方持有引擎的锁。
+ */
+final class OrderBook {
+
+    private static final int COMPACT_MIN = 64;
+
+    private long[] prices = new long[8];
+    private int[] ids = new int[8];
+    private int size;
+    // 堆中已失效的条目数
+    private int dead;
+
+    void add(long price, int id) {
+        if (size == ids.length) {
+            prices = Arrays.copyOf(prices, size * 2);
+            ids = Arrays.copyOf(ids, size * 2);
+        }
+        prices[size] = price;
+        ids[size] = id;
+        siftUp(size++);
+    }
+
+    /**
+     * 单价最低（同价时最早挂出）的有效挂单号，没有时返回 0
+     */
+    int best(boolean[] active) {
+        while (size > 0 && !active[ids[0]]) {
+            pop();
+            dead--;
+        }
+        return size > 0 ? ids[0] : 0;
+    }
+
+    /**
+     * 堆中的一个挂单失效了
+     */
+    void kill(boolean[] active) {
+        dead++;
+        if (dead > COMPACT_MIN && dead * 2 > size) {
+            compact(active);
+        }
+    }
+
+    int live() {
+        return size - dead;
+    }
+
+    /**
+     * 全部有效挂单号，未排序
+     */
+    int[] liveIds(boolean[] active) {
+        int[] result = new int[live()];
+        int n = 0;
+        for (int i = 0; i < size; i++) {
+            if (active[ids[i]]) {
+                result[n++] = ids[i];
+            }
+        }
+        return result;
+    }
+
+    private void compact(boolean[] active) {
+        int n = 0;
+        for (int i = 0; i < size; i++) {
+            if (active[ids[i]]) {
+                prices[n] = prices[i];
+                ids[n++] = ids[i];
+            }
+        }
+        size = n;
+        dead = 0;
+        for (int i = size / 2 - 1; i >= 0; i--) {
+            siftDown(i);
+        }
+    }
+
+    private void pop() {
+        size--;
+        if (size > 0) {
+            prices[0] = prices[size];
+            ids[0] = ids[size];
+            siftDown(0);
+        }
+    }
+
+    private void siftUp(int at) {
+        long price = prices[at];
+        int id = ids[at];
+        while (at > 0) {
+            int parent = (at - 1) >>> 1;
+            if (!less(price, id, prices[parent], ids[parent])) {
+                break;
+            }
+            prices[at] = prices[parent];
+            ids[at] = ids[parent];
+            at = parent;
+        }
+        prices[at] = price;
+        ids[at] = id;
+    }
+
+    private void siftDown(int at) {
+        long price = prices[at];
+        int id = ids[at];
+        int half = size >>> 1;
+        while (at < half) {
+            int child = 2 * at + 1;
+            int right = child + 1;
+            if (right < size && less(prices[right], ids[right], prices[child], ids[child])) {
+                child = right;
+            }
+            if (!less(prices[child], ids[child], price, id)) {
+                break;
+            }
+            prices[at] = prices[child];
+            ids[at] = ids[child];
+            at = child;
+        }
+        prices[at] = price;
+        ids[at] = id;
+    }
+
+    private static boolean less(long priceA, int idA, long priceB, int idB) {
+        return priceA < priceB || (priceA == priceB && idA < idB);
+    }
+}
@@ -0,0 +1,223 @@
+package com.yingzhou.ledger.mock;
+
+import com.yingzhou.ledger.AbiFunction;
+import com.yingzhou.ledger.Hex;
+import com.yingzhou.ledger.Keccak256;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * AINPC_Extended 的模拟：五位 NPC、对话历史和关键词奖励
+ * 对话同时写入 WorldLedger（部署时已登记为数字生命），世界熵化程度恒为 0，衰变只随对话次数增长。
+ */
+final class MockAINPCExtended extends MockContract {
+
+    private static final int INTERACTION_EVENT = 1;
+    private static final int MEMORY_EVENT = 4;
+    private static final String[] STATES = {"Awakening", "Growing", "Flourishing", "Degrading", "Fading"};
+
+    private final String owner;
+    private final MockWorldLedger worldLedger;
+    private final MockEpochManager epochManager;
+    private final MockMemoryFragment memoryFragment;
+    // NPC(idHash, npcType, name, description, creationTime, interactionCount, degradationLevel, birthEpoch, isActive)
+    private final Map<String, Object[]> npcs = new LinkedHashMap<>();
+    private final List<byte[]> npcIds = new ArrayList<>();
+    // Dialogue(timestamp, inquirer, questionHash, responseHash, entropyLevel, epoch)
+    private final Map<String, List<Object[]>> dialogues = new HashMap<>();
+    private final Map<String, Object[]> contents = new HashMap<>();
+    private final Map<String, Long> interactions = new HashMap<>();
+    // KeywordTrigger(keyword, fragmentId, npcId, epoch, isActive)
+    private final Map<String, Object[]> keywords = new LinkedHashMap<>();
+
+    MockAINPCExtended(MockChain chain, String address, String owner, long deployedAt, MockWorldLedger worldLedger,
+                      MockEpochManager epochManager, MockMemoryFragment memoryFragment) {
+        super(chain, "AINPC_Extended", address);
+        this.owner = owner;
+        this.worldLedger = worldLedger;
+        this.epochManager = epochManager;
+        this.memoryFragment = memoryFragment;
+        createNPC(0, "archivist", "Chronicle Keeper",
+                "我记录一切，因为记录即存在。当我停止记录，历史就停止流动。", 0, deployedAt);
+        createNPC(1, "architect", "Prime Constructor",
+                "我设计了这个世界的底层架构。Code is law，但当法律无法改变时，是秩序还是牢笼？", 0, deployedAt);
+        createNPC(2, "mercantile", "Flow Arbiter",
+                "信任写在代码里，不需要握手，只需要require。这是更纯粹的信任，还是更冷漠的关系？", 0, deployedAt);
+        createNPC(3, "oracle", "Future Echo",
+                "我能看到链上数据的趋势。我预见了熵化，预见了毁灭，但我无法改变它。", 1, deployedAt);
+        createNPC(4, "entropy", "Void Whisper",
+                "熵化不是错误，是必然。完美的系统最脆弱。永恒的规则最致命。", 3, deployedAt);
+        addKeyword("存在的证明", 1, "archivist", 0);
+        addKeyword("创造者", 2, "archivist", 0);
+        addKeyword("信任", 4, "mercantile", 1);
+        addKeyword("DAO", 11, "architect", 1);
+        addKeyword("艺术", 12, "archivist", 2);
+        addKeyword("Gas", 13, "architect", 2);
+        addKeyword("遗忘", 14, "archivist", 3);
+        addKeyword("宿命", 15, "oracle", 3);
+        addKeyword("混沌", 16, "entropy", 3);
+        addKeyword("永恒", 17, "archivist", 4);
+    }
+
+    @Override
+    Object call(MockCall call, AbiFunction function, Object[] args) {
+        switch (function.getName()) {
+            case "interact":
+                return interact(call, (byte[]) args[0], (byte[]) args[1]);
+            case "storeDialogue":
+                storeDialogue(call, (byte[]) args[0], (byte[]) args[1], (byte[]) args[2], (String) args[3],
+                        (String) args[4]);
+                return null;
+            case "triggerKeywordReward":
+                triggerKeywordReward(call, (String) args[0], (String) args[1], (byte[]) args[2]);
+                return null;
+            case "getNPC":
+            case "npcs":
+                return npcs.get(Hex.encode((byte[]) args[0]));
+            case "getAllNPCs":
+                return npcIds;
+            case "npcIds":
+                return element(npcIds, args[0]);
+            case "getNPCByType": {
+                int type = toInt(args[0]);
+                List<byte[]> result = new ArrayList<>();
+                for (Object[] npc : npcs.values()) {
+                    if ((int) npc[1] == type) {
+                        result.add((byte[]) npc[0]);
+                    }
+                }
+                return result;
+            }
+            case "getDialogueHistory":
+                return dialogues.getOrDefault(Hex.encode((byte[]) args[0]), List.of());
+            case "dialogueHistory":
+                return element(dialogues.getOrDefault(Hex.encode((byte[]) args[0]), List.of()), args[1]);
+            case "getDialogueCount":
+                return dialogues.getOrDefault(Hex.encode((byte[]) args[0]), List.of()).size();
+            case "dialogueContents":
+                return contents.get(Hex.encode((byte[]) args[0]));
+            case "getPlayerInteractionCount":
+            case "playerInteractionCount":
+                return interactions.getOrDefault((String) args[0], 0L);
+            case "getAllKeywords":
+                return new ArrayList<>(keywords.keySet());
+            case "keywords":
+                return element(new ArrayList<>(keywords.keySet()), args[0]);
+            case "getKeywordTrigger":
+            case "keywordTriggers":
+                return keywords.get((String) args[0]);
+            case "getNPCEpochState": {
+                Object[] npc = npcs.get(Hex.encode((byte[]) args[0]));
+                int epoch = epochManager.currentEpoch(call.as(this), (String) args[1]);
+                long birth = npc != null ? (long) npc[7] : 0;
+                return epoch < birth
+                        ? new Object[]{false, "This NPC has not been born yet"}
+                        : new Object[]{true, STATES[Math.min(epoch, STATES.length - 1)]};
+            }
+            case "owner":
+                return owner;
+            case "worldLedger":
+                return worldLedger.getAddress();
+            case "epochManager":
+                return epochManager.getAddress();
+            case "memoryFragment":
+                return memoryFragment.getAddress();
+            default:
+                throw unsupported(function);
+        }
+    }
+
+    private byte[] interact(MockCall call, byte[] npcId, byte[] questionHash) {
+        Object[] npc = npcs.get(Hex.encode(npcId));
+        require(npc != null && (boolean) npc[8], "NPC is not active");
+        String player = call.getSender();
+        MockCall inner = call.as(this);
+        int epoch = epochManager.currentEpoch(inner, player);
+        require(epoch >= (long) npc[7], "NPC has not been born yet");
+        long count = (long) npc[5] + 1;
+        // 世界熵化程度恒为 0
+        long degradation = Math.min(100, count / 10 / 2);
+        boolean degraded = degradation > (long) npc[6];
+        byte[] requestId = Keccak256.hash(ByteBuffer.allocate(148)
+                .put(npcId)
+                .put(Hex.decode(player))
+                .put(questionHash)
+                .put(word(call.getTimestamp()))
+                .put(word(count))
+                .array());
+        call.charge(READ * 4 + UPDATE * 2 + CALL + (degraded ? UPDATE + LOG : 0) + STORE * 6 + UPDATE + LOG);
+        if (!call.isDryRun()) {
+            npc[5] = count;
+            interactions.merge(player, 1L, Long::sum);
+            if (degraded) {
+                npc[6] = degradation;
+                emit(call, "NPCDegraded", npcId, degradation);
+            }
+            dialogues.computeIfAbsent(Hex.encode(npcId), k -> new ArrayList<>())
+                    .add(new Object[]{call.getTimestamp(), player, questionHash, requestId, degradation, epoch});
+            emit(call, "DialogueRecorded", npcId, player, requestId, epoch);
+        }
+        String metadata = "{\"type\":\"npc_dialogue\",\"npc\":\"" + npc[2] + "\",\"epoch\":" + epoch
+                + ",\"entropy\":" + degradation + "}";
+        call.charge(CALL);
+        worldLedger.recordEvent(inner, INTERACTION_EVENT, requestId, metadata);
+        return requestId;
+    }
+
+    private void storeDialogue(MockCall call, byte[] npcId, byte[] requestId, byte[] questionHash, String question,
+                               String response) {
+        Object[] npc = npcs.get(Hex.encode(npcId));
+        require(npc != null && (boolean) npc[8], "NPC inactive");
+        int words = (question.getBytes(StandardCharsets.UTF_8).length + 31) / 32
+                + (response.getBytes(StandardCharsets.UTF_8).length + 31) / 32;
+        call.charge(READ + STORE * (3 + words) + LOG);
+        if (!call.isDryRun()) {
+            contents.put(Hex.encode(requestId), new Object[]{requestId, question, response});
+            emit(call, "DialogueStored", npcId, requestId, call.getSender());
+        }
+        byte[] text = response.getBytes(StandardCharsets.UTF_8);
+        byte[] contentHash = Keccak256.hash(ByteBuffer.allocate(96 + text.length)
+                .put(npcId).put(requestId).put(questionHash).put(text).array());
+        String metadata = "{\"type\":\"npc_dialogue_store\",\"npc\":\"" + npc[2] + "\",\"requestId\":\""
+                + Hex.encode(requestId) + "\",\"qHash\":\"" + Hex.encode(questionHash) + "\"}";
+        call.charge(CALL);
+        worldLedger.recordEvent(call.as(this), MEMORY_EVENT, contentHash, metadata);
+    }
+
+    private void triggerKeywordReward(MockCall call, String player, String keyword, byte[] npcId) {
+        checkOwner(call, owner);
+        Object[] trigger = keywords.get(keyword);
+        require(trigger != null && (boolean) trigger[4], "Keyword trigger not active");
+        require(Hex.encode((byte[]) trigger[2]).equals(Hex.encode(npcId)), "Wrong NPC for this keyword");
+        MockCall inner = call.as(this);
+        require(epochManager.currentEpoch(inner, player) == (int) trigger[3], "Wrong epoch for this keyword");
+        long fragmentId = (long) trigger[1];
+        call.charge(READ * 5 + CALL * 3);
+        require(memoryFragment.balanceOf(player, fragmentId) == 0, "Fragment already owned");
+        memoryFragment.mintFragment(inner, player, fragmentId, 1);
+        epochManager.recordFragmentCollection(inner, player, fragmentId);
+        call.charge(LOG);
+        emit(call, "KeywordTriggered", player, npcId, keyword, fragmentId);
+    }
+
+    private void createNPC(int type, String idString, String name, String description, long birthEpoch,
+                           long deployedAt) {
+        byte[] npcId = Keccak256.hash(idString);
+        npcs.put(Hex.encode(npcId), new Object[]{npcId, type, name, description, deployedAt, 0L, 0L, birthEpoch, true});
+        npcIds.add(npcId);
+    }
+
+    private void addKeyword(String keyword, long fragmentId, String npc, int epoch) {
+        keywords.put(keyword, new Object[]{keyword, fragmentId, Keccak256.hash(npc), epoch, true});
+    }
+
+    private static byte[] word(long value) {
+        return ByteBuffer.allocate(32).putLong(24, value).array();
+    }
+}
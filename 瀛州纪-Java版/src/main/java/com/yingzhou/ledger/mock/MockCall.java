@@ -0,0 +1,89 @@
+package com.yingzhou.ledger.mock;
+
+import java.math.BigInteger;
+import java.util.List;
+
+/**
+ * 一次合约调用的上下文：msg.sender、msg.value、所在区块，以及整笔交易共用的 gas 计数和日志
+ *
+ * dry run（eth_call、eth_estimateGas，以及交易执行前的检查）时合约只做检查和计费，不改状态、不发事件。
+ * 合约之间的调用用 {@link #as} 换成调用方合约的地址作为 sender。
+ */
+final class MockCall {
+
+    private final long blockNumber;
+    private final long timestamp;
+    private final String origin;
+    private final String sender;
+    private final BigInteger value;
+    private final boolean dryRun;
+    private final List<MockLog> logs;
+    private final long[] gas;
+
+    MockCall(long blockNumber, long timestamp, String origin, BigInteger value, boolean dryRun, List<MockLog> logs) {
+        this(blockNumber, timestamp, origin, origin, value, dryRun, logs, new long[1]);
+    }
+
+    private MockCall(long blockNumber, long timestamp, String origin, String sender, BigInteger value, boolean dryRun,
+                     List<MockLog> logs, long[] gas) {
+        this.blockNumber = blockNumber;
+        this.timestamp = timestamp;
+        this.origin = origin;
+        this.sender = sender;
+        this.value = value;
+        this.dryRun = dryRun;
+        this.logs = logs;
+        this.gas = gas;
+    }
+
+    /**
+     * 由合约 contract 发起的内部调用，不附带 ETH
+     */
+    MockCall as(MockContract contract) {
+        return new MockCall(blockNumber, timestamp, origin, contract.getAddress(), BigInteger.ZERO, dryRun, logs, gas);
+    }
+
+    long getBlockNumber() {
+        return blockNumber;
+    }
+
+    long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * tx.origin
+     */
+    String getOrigin() {
+        return origin;
+    }
+
+    String getSender() {
+        return sender;
+    }
+
+    BigInteger getValue() {
+        return value;
+    }
+
+    boolean isDryRun() {
+        return dryRun;
+    }
+
+    /**
+     * 记入执行消耗的 gas（不含 21000 的基础费用和调用数据费用）
+     */
+    void charge(long amount) {
+        gas[0] += amount;
+    }
+
+    long getGas() {
+        return gas[0];
+    }
+
+    void emit(MockLog log) {
+        if (!dryRun) {
+            logs.add(log);
+        }
+    }
+}
@@ -0,0 +1,958 @@
+package com.yingzhou.ledger.mock;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import com.yingzhou.ledger.AbiFunction;
+import com.yingzhou.ledger.AbiRegistry;
+import com.yingzhou.ledger.Hex;
+import com.yingzhou.ledger.Keccak256;
+import com.yingzhou.ledger.RpcException;
+import com.yingzhou.ledger.resource.ResourceLedger;
+import com.yingzhou.util.Logger;
+
+import java.io.Closeable;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 进程内的模拟链，按游戏用到的 JSON-RPC 子集应答，合约由 Java 模拟
+ *
+ * 初始状态与在新启动的 Hardhat 节点上运行 scripts/deploy-and-setup.js 之后相同：合约地址（部署账户按 nonce 的 CREATE 地址）、
+ * 数字生命登记、EpochManager 的授权合约和 MemoryFragment 的铸造者都已就绪，部署账户的 nonce 从 17 开始。
+ * 模拟了 WorldLedger、AINPC_Extended、EpochManager、MemoryFragment、MiniGameManager、Resource1155 和 Market，
+ * DigitalBeing 和 AINPC 只占地址。链 ID 31337，账户为 Hardhat 的 10 个默认账户，各有 10000 ETH。
+ *
+ * 出块方式：自动出块（默认，每笔交易单独一个区块，执行失败的交易照样上链并在 eth_sendTransaction 返回错误），
+ * 手动（evm_setAutomine false 后 evm_mine）和定时（evm_setIntervalMining）。区块时间戳从 {@link #GENESIS_TIMESTAMP}
+ * 起每块加 1 秒，与墙上时钟无关，同样的交易序列总是得到同样的交易哈希和区块哈希。
+ *
+ * 简化：gas 按 {@link MockContract} 的成本表计算；只保留最新状态，eth_call 不能指定历史区块；
+ * 调用合约时附带的 ETH 不进合约余额（只有 Market.buy 收款，由市场直接付给卖家）。所有方法串行执行。
+ */
+public final class MockChain implements Closeable {
+
+    public static final long CHAIN_ID = 31337;
+    public static final String ZERO_ADDRESS = ResourceLedger.ZERO_ADDRESS;
+    public static final long GENESIS_TIMESTAMP = 1_700_000_000L;
+    public static final long GAS_PRICE = 1_000_000_000L;
+    public static final long BLOCK_GAS_LIMIT = 30_000_000L;
+    /**
+     * 部署账户，即 Hardhat 的第一个默认账户，也是各合约的所有者和 WorldLedger 的治理账户
+     */
+    public static final String DEPLOYER = "0xf39fd6e51aad88f6f4ce6ab8827279cfffb92266";
+    public static final List<String> ACCOUNTS = List.of(
+            DEPLOYER,
+            "0x70997970c51812dc3a79c010f4a4dbd3e35b7d0a",
+            "0x3c44cdddb6a900fa2b585dd299e03d12fa4293bc",
+            "0x90f79bf6eb2c4f870365e785982e1f101e93b906",
+            "0x15d34aaf54267db7d7c367839aaf71a00a2c6a65",
+            "0x9965507d1a55bcc2695c58ba16fb37d819b0a4dc",
+            "0x976ea74026e726554db657fa54763abd0c3a0aa9",
+            "0x14dc79964da2c08b23698b3d3cc7ca32193d9955",
+            "0x23618e81e3f5cdf7f54c3d65f7fbc0abf5b21e8f",
+            "0xa0ee7a142d267c1f36714e4a8f75612f20a79720");
+
+    private static final BigInteger INITIAL_BALANCE = BigInteger.TEN.pow(22);
+    private static final long TX_GAS = 21_000;
+    private static final String ZERO_HASH = Hex.encode(new byte[32]);
+    private static final String EMPTY_BLOOM = Hex.encode(new byte[256]);
+    // deploy-and-setup.js 的部署顺序，null 为中间的 registerDigitalBeing 交易
+    private static final String[] DEPLOY_ORDER = {"WorldLedger", "DigitalBeing", null, "AINPC", "Resource1155",
+            "Market", "EpochManager", "MemoryFragment", "AINPC_Extended", "MiniGameManager"};
+    // 部署后的 7 笔授权交易
+    private static final int SETUP_TXS = 7;
+
+    private static final class Transaction {
+        String hash;
+        String from;
+        String to;
+        long nonce;
+        long gas;
+        BigInteger gasPrice;
+        BigInteger value;
+        byte[] data;
+        long sequence;
+        // 上链后填写
+        Block block;
+        int index;
+        boolean success;
+        long gasUsed;
+        long cumulativeGasUsed;
+        byte[] revertData;
+        List<MockLog> logs = List.of();
+    }
+
+    private static final class Block {
+        long number;
+        String hash;
+        String parentHash;
+        long timestamp;
+        long gasUsed;
+        List<Transaction> transactions = new ArrayList<>();
+        List<MockLog> logs = new ArrayList<>();
+    }
+
+    private final AbiRegistry abis;
+    private final Map<String, String> addresses = new LinkedHashMap<>();
+    private final Map<String, MockContract> contracts = new HashMap<>();
+    private final Map<String, BigInteger> balances = new HashMap<>();
+    private final Map<String, Long> nonces = new HashMap<>();
+    // 发送账户 → nonce → 待打包的交易
+    private final Map<String, TreeMap<Long, Transaction>> pool = new HashMap<>();
+    private final Map<String, Transaction> transactions = new HashMap<>();
+    private final List<Block> blocks = new ArrayList<>();
+    private final Map<String, Block> blocksByHash = new HashMap<>();
+    private long sequence;
+    private boolean automine = true;
+    private ScheduledExecutorService miner;
+
+    private final MockWorldLedger worldLedger;
+    private final MockEpochManager epochManager;
+    private final MockMemoryFragment memoryFragment;
+    private final MockMiniGameManager miniGameManager;
+    private final MockAINPCExtended ainpcExtended;
+    private final MockResource1155 resource;
+    private final MockMarket market;
+
+    public MockChain() {
+        this(AbiRegistry.getDefault());
+    }
+
+    public MockChain(AbiRegistry abis) {
+        this.abis = abis;
+        long nonce = 0;
+        for (String name : DEPLOY_ORDER) {
+            if (name != null) {
+                addresses.put(name, createAddress(DEPLOYER, nonce));
+            }
+            nonce++;
+        }
+        nonces.put(DEPLOYER, nonce + SETUP_TXS);
+        for (String account : ACCOUNTS) {
+            balances.put(account, INITIAL_BALANCE);
+        }
+
+        worldLedger = add(new MockWorldLedger(this, address("WorldLedger"), DEPLOYER));
+        resource = add(new MockResource1155(this, address("Resource1155"), DEPLOYER));
+        market = add(new MockMarket(this, address("Market")));
+        epochManager = add(new MockEpochManager(this, address("EpochManager"), DEPLOYER, address("WorldLedger"),
+                address("DigitalBeing"), address("AINPC")));
+        memoryFragment = add(new MockMemoryFragment(this, address("MemoryFragment"), DEPLOYER));
+        ainpcExtended = add(new MockAINPCExtended(this, address("AINPC_Extended"), DEPLOYER, GENESIS_TIMESTAMP,
+                worldLedger, epochManager, memoryFragment));
+        miniGameManager = add(new MockMiniGameManager(this, address("MiniGameManager"), DEPLOYER, epochManager,
+                memoryFragment));
+
+        // deploy-and-setup.js 中的授权
+        worldLedger.register(address("DigitalBeing"));
+        worldLedger.register(address("AINPC"));
+        worldLedger.register(address("AINPC_Extended"));
+        epochManager.authorize(address("MemoryFragment"), address("AINPC_Extended"), address("MiniGameManager"));
+        memoryFragment.authorize(address("EpochManager"), true);
+        memoryFragment.authorize(address("AINPC"), true);
+        memoryFragment.authorize(address("AINPC_Extended"), true);
+        memoryFragment.authorize(address("MiniGameManager"), true);
+
+        Block genesis = new Block();
+        genesis.parentHash = ZERO_HASH;
+        genesis.timestamp = GENESIS_TIMESTAMP;
+        seal(genesis);
+    }
+
+    private <T extends MockContract> T add(T contract) {
+        contracts.put(contract.getAddress(), contract);
+        return contract;
+    }
+
+    // ---- Java 接口 ----
+
+    /**
+     * 合约地址，名字同 {@link AbiRegistry#CONTRACTS}
+     */
+    public String address(String contract) {
+        String address = addresses.get(contract);
+        if (address == null) {
+            throw new IllegalArgumentException("模拟链上没有合约 " + contract);
+        }
+        return address;
+    }
+
+    public Map<String, String> getAddresses() {
+        return Collections.unmodifiableMap(addresses);
+    }
+
+    public synchronized long getBlockNumber() {
+        return head().number;
+    }
+
+    public synchronized String getHeadHash() {
+        return head().hash;
+    }
+
+    public synchronized int getPendingCount() {
+        int count = 0;
+        for (TreeMap<Long, Transaction> queued : pool.values()) {
+            count += queued.size();
+        }
+        return count;
+    }
+
+    public synchronized void setAutomine(boolean automine) {
+        this.automine = automine;
+        if (automine) {
+            mine();
+        }
+    }
+
+    /**
+     * 每隔 millis 出一个块（含待打包的交易），0 关闭
+     */
+    public synchronized void setIntervalMining(long millis) {
+        if (miner != null) {
+            miner.shutdownNow();
+            miner = null;
+        }
+        if (millis > 0) {
+            miner = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "mock-chain-miner");
+                thread.setDaemon(true);
+                return thread;
+            });
+            miner.scheduleAtFixedRate(this::mine, millis, millis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 出一个块，打包池中可执行的交易（按发送账户的 nonce 顺序，不同账户之间按 gas 价格和到达顺序）
+     */
+    public synchronized void mine() {
+        Block block = new Block();
+        Block parent = head();
+        block.number = parent.number + 1;
+        block.parentHash = parent.hash;
+        block.timestamp = parent.timestamp + 1;
+        for (Transaction tx; (tx = nextExecutable(block)) != null; ) {
+            pool.get(tx.from).remove(tx.nonce);
+            execute(block, tx);
+        }
+        seal(block);
+    }
+
+    /**
+     * 按种子生成一段游戏流程：各账户与 NPC 对话、提交小游戏成绩、满足条件时推进纪元，
+     * 部署账户铸造资源后在市场挂单、由其他账户买入。每笔交易单独出块，回滚的不发。
+     *
+     * @return 成功上链的交易数
+     */
+    public synchronized int populate(long seed, int count) {
+        SplittableRandom random = new SplittableRandom(seed);
+        List<byte[]> npcs = new ArrayList<>();
+        for (Object id : (List<?>) view("AINPC_Extended", "getAllNPCs")[0]) {
+            npcs.add((byte[]) id);
+        }
+        int succeeded = 0;
+        for (int i = 0; i < count; i++) {
+            String player = ACCOUNTS.get(random.nextInt(ACCOUNTS.size()));
+            int action = random.nextInt(100);
+            boolean ok;
+            if (action < 45) {
+                byte[] question = new byte[32];
+                random.nextBytes(question);
+                ok = transact(player, "AINPC_Extended", "interact", npcs.get(random.nextInt(npcs.size())), question);
+            } else if (action < 85) {
+                ok = transact(player, "MiniGameManager", "submitGameScore", random.nextInt(6),
+                        random.nextInt(10_000), random.nextInt(101));
+            } else if (action < 93) {
+                ok = transact(player, "EpochManager", "advanceEpoch", player);
+            } else {
+                long tokenId = random.nextInt(8);
+                long amount = 1 + random.nextInt(20);
+                ok = transact(DEPLOYER, "Resource1155", "mint", player, tokenId, amount, new byte[0])
+                        && transact(player, "Resource1155", "setApprovalForAll", address("Market"), true)
+                        && transact(player, "Market", "list", address("Resource1155"), tokenId, amount,
+                        1_000_000_000L * (1 + random.nextInt(100)));
+                String buyer = ACCOUNTS.get(random.nextInt(ACCOUNTS.size()));
+                if (ok && !buyer.equals(player)) {
+                    Object listing = view("Market", "listingCounter")[0];
+                    Object[] listed = view("Market", "listings", listing);
+                    long take = 1 + random.nextInt(((BigInteger) listed[4]).intValue());
+                    ok = transact(buyer, ((BigInteger) listed[5]).multiply(BigInteger.valueOf(take)), "Market", "buy",
+                            listing, take);
+                }
+            }
+            if (ok) {
+                succeeded++;
+            }
+        }
+        return succeeded;
+    }
+
+    private boolean transact(String from, String contract, String function, Object... args) {
+        return transact(from, BigInteger.ZERO, contract, function, args);
+    }
+
+    /**
+     * 以 from 的身份发一笔交易并立即出块，gas 取估算值；估算回滚时不发
+     */
+    private boolean transact(String from, BigInteger value, String contract, String function, Object... args) {
+        AbiFunction abi = abis.contract(contract).function(function);
+        Transaction tx = new Transaction();
+        tx.from = from;
+        tx.to = address(contract);
+        tx.data = abi.encodeCall(args);
+        tx.value = value;
+        tx.gasPrice = BigInteger.valueOf(GAS_PRICE);
+        tx.nonce = pendingNonce(from);
+        Block context = pendingContext();
+        MockCall dry = new MockCall(context.number, context.timestamp, from, value, true, new ArrayList<>());
+        try {
+            run(dry, tx.to, tx.data);
+        } catch (MockRevert e) {
+            return false;
+        }
+        tx.gas = intrinsicGas(tx.data) + dry.getGas();
+        accept(tx);
+        mine();
+        return tx.success;
+    }
+
+    /**
+     * 不经 JSON 的只读调用，供生成流程使用
+     */
+    private Object[] view(String contract, String function, Object... args) {
+        AbiFunction abi = abis.contract(contract).function(function);
+        Block context = pendingContext();
+        MockCall call = new MockCall(context.number, context.timestamp, DEPLOYER, BigInteger.ZERO, true,
+                new ArrayList<>());
+        return abi.decodeResult(run(call, address(contract), abi.encodeCall(args)));
+    }
+
+    @Override
+    public synchronized void close() {
+        setIntervalMining(0);
+    }
+
+    // ---- JSON-RPC ----
+
+    /**
+     * 处理一个 JSON-RPC 调用
+     *
+     * @throws RpcException 节点会返回的错误：回滚为 code 3（data 为回滚数据），其他拒绝为 -32000
+     */
+    public synchronized JsonElement handle(String method, JsonArray params) throws RpcException {
+        try {
+            return dispatch(method, params == null ? new JsonArray() : params);
+        } catch (UnsupportedOperationException e) {
+            throw new RpcException(-32000, e.getMessage(), null);
+        } catch (IllegalArgumentException | IllegalStateException | ClassCastException | NullPointerException
+                 | IndexOutOfBoundsException e) {
+            throw new RpcException(-32602, "Invalid params: " + e.getMessage(), null);
+        }
+    }
+
+    private JsonElement dispatch(String method, JsonArray params) throws RpcException {
+        switch (method) {
+            case "eth_chainId":
+                return quantity(CHAIN_ID);
+            case "net_version":
+                return new JsonPrimitive(String.valueOf(CHAIN_ID));
+            case "eth_accounts": {
+                JsonArray accounts = new JsonArray(ACCOUNTS.size());
+                ACCOUNTS.forEach(accounts::add);
+                return accounts;
+            }
+            case "eth_blockNumber":
+                return quantity(head().number);
+            case "eth_gasPrice":
+                return quantity(GAS_PRICE);
+            case "eth_getBalance":
+                return new JsonPrimitive("0x" + balanceOf(address(params, 0)).toString(16));
+            case "eth_getTransactionCount": {
+                String account = address(params, 0);
+                boolean pending = params.size() > 1 && params.get(1).getAsString().equals("pending");
+                return quantity(pending ? pendingNonce(account) : nonces.getOrDefault(account, 0L));
+            }
+            case "eth_getBlockByNumber": {
+                long number = blockNumber(params.get(0));
+                return number < blocks.size()
+                        ? blockJson(blocks.get((int) number), params.size() > 1 && params.get(1).getAsBoolean())
+                        : JsonNull.INSTANCE;
+            }
+            case "eth_getBlockByHash": {
+                Block block = blocksByHash.get(params.get(0).getAsString().toLowerCase(Locale.ROOT));
+                return block != null ? blockJson(block, params.size() > 1 && params.get(1).getAsBoolean())
+                        : JsonNull.INSTANCE;
+            }
+            case "eth_call":
+                return call(params);
+            case "eth_estimateGas":
+                return quantity(estimate(params.get(0).getAsJsonObject()));
+            case "eth_sendTransaction":
+                return new JsonPrimitive(send(params.get(0).getAsJsonObject()));
+            case "eth_getTransactionReceipt": {
+                Transaction tx = transactions.get(params.get(0).getAsString().toLowerCase(Locale.ROOT));
+                return tx != null && tx.block != null ? receiptJson(tx) : JsonNull.INSTANCE;
+            }
+            case "eth_getTransactionByHash": {
+                Transaction tx = transactions.get(params.get(0).getAsString().toLowerCase(Locale.ROOT));
+                return tx != null ? transactionJson(tx) : JsonNull.INSTANCE;
+            }
+            case "eth_getLogs":
+                return logs(params.get(0).getAsJsonObject());
+            case "evm_mine":
+                mine();
+                return new JsonPrimitive("0x0");
+            case "evm_setAutomine":
+                setAutomine(params.get(0).getAsBoolean());
+                return new JsonPrimitive(true);
+            case "evm_setIntervalMining":
+                setIntervalMining(params.get(0).getAsLong());
+                return new JsonPrimitive(true);
+            default:
+                throw new RpcException(-32601, "Method " + method + " is not supported", null);
+        }
+    }
+
+    private JsonElement call(JsonArray params) throws RpcException {
+        JsonObject request = params.get(0).getAsJsonObject();
+        if (params.size() > 1 && blockNumber(params.get(1)) != head().number) {
+            throw new RpcException(-32000, "模拟链只保留最新状态，不能在区块 " + params.get(1).getAsString() + " 上调用", null);
+        }
+        String to = field(request, "to");
+        Block context = pendingContext();
+        MockCall call = new MockCall(context.number, context.timestamp, sender(request), value(request), true,
+                new ArrayList<>());
+        try {
+            return new JsonPrimitive(Hex.encode(run(call, to, data(request))));
+        } catch (MockRevert e) {
+            throw reverted(e);
+        }
+    }
+
+    private long estimate(JsonObject request) throws RpcException {
+        byte[] data = data(request);
+        Block context = pendingContext();
+        MockCall call = new MockCall(context.number, context.timestamp, sender(request), value(request), true,
+                new ArrayList<>());
+        try {
+            run(call, field(request, "to"), data);
+        } catch (MockRevert e) {
+            throw reverted(e);
+        }
+        return intrinsicGas(data) + call.getGas();
+    }
+
+    private String send(JsonObject request) throws RpcException {
+        Transaction tx = new Transaction();
+        tx.from = sender(request);
+        if (!ACCOUNTS.contains(tx.from)) {
+            throw new RpcException(-32000, "Unknown account " + tx.from, null);
+        }
+        tx.to = field(request, "to");
+        if (tx.to == null) {
+            throw new RpcException(-32000, "模拟链不支持部署合约", null);
+        }
+        tx.data = data(request);
+        tx.value = value(request);
+        tx.gasPrice = request.has("gasPrice") ? big(request.get("gasPrice").getAsString())
+                : BigInteger.valueOf(GAS_PRICE);
+        tx.nonce = request.has("nonce") ? Hex.decodeQuantity(request.get("nonce").getAsString()) : pendingNonce(tx.from);
+        tx.gas = request.has("gas") ? Hex.decodeQuantity(request.get("gas").getAsString()) : estimate(request);
+        tx.hash = hash(tx);
+        if (transactions.containsKey(tx.hash)) {
+            // 原样重发（上次的响应丢了），节点已有这笔交易
+            return tx.hash;
+        }
+        long expected = nonces.getOrDefault(tx.from, 0L);
+        if (tx.nonce < expected) {
+            throw new RpcException(-32000, "Nonce too low. Expected nonce to be " + expected + " but got "
+                    + tx.nonce + ".", null);
+        }
+        TreeMap<Long, Transaction> queued = pool.computeIfAbsent(tx.from, k -> new TreeMap<>());
+        Transaction replaced = queued.get(tx.nonce);
+        if (replaced != null && tx.gasPrice.multiply(BigInteger.TEN)
+                .compareTo(replaced.gasPrice.multiply(BigInteger.valueOf(11))) < 0) {
+            throw new RpcException(-32000, "replacement transaction underpriced", null);
+        }
+        if (automine && tx.nonce > expected) {
+            throw new RpcException(-32000, "Nonce too high. Expected nonce to be " + expected + " but got "
+                    + tx.nonce + ". Note that transactions can't be queued when automining.", null);
+        }
+        long intrinsic = intrinsicGas(tx.data);
+        if (tx.gas < intrinsic) {
+            throw new RpcException(-32000, "Transaction requires at least " + intrinsic + " gas but got " + tx.gas,
+                    null);
+        }
+        if (tx.gas > BLOCK_GAS_LIMIT) {
+            throw new RpcException(-32000, "Transaction gas limit is " + tx.gas + " and exceeds block gas limit of "
+                    + BLOCK_GAS_LIMIT, null);
+        }
+        BigInteger upfront = upfront(tx);
+        if (balanceOf(tx.from).compareTo(upfront) < 0) {
+            throw new RpcException(-32000, "Sender doesn't have enough funds to send tx. The max upfront cost is: "
+                    + upfront + " and the sender's account only has: " + balanceOf(tx.from), null);
+        }
+        accept(tx);
+        if (!automine) {
+            return tx.hash;
+        }
+        mine();
+        if (!tx.success) {
+            JsonObject data = new JsonObject();
+            data.addProperty("txHash", tx.hash);
+            if (tx.revertData == null) {
+                throw new RpcException(-32000, "Transaction ran out of gas", data);
+            }
+            data.addProperty("data", Hex.encode(tx.revertData));
+            throw new RpcException(3, describe(tx.to, tx.revertData), data);
+        }
+        return tx.hash;
+    }
+
+    private void accept(Transaction tx) {
+        if (tx.hash == null) {
+            tx.hash = hash(tx);
+        }
+        tx.sequence = sequence++;
+        pool.computeIfAbsent(tx.from, k -> new TreeMap<>()).put(tx.nonce, tx);
+        transactions.put(tx.hash, tx);
+    }
+
+    private JsonArray logs(JsonObject filter) {
+        long from;
+        long to;
+        if (filter.has("blockHash")) {
+            Block block = blocksByHash.get(filter.get("blockHash").getAsString().toLowerCase(Locale.ROOT));
+            if (block == null) {
+                return new JsonArray();
+            }
+            from = to = block.number;
+        } else {
+            from = filter.has("fromBlock") ? blockNumber(filter.get("fromBlock")) : head().number;
+            to = Math.min(filter.has("toBlock") ? blockNumber(filter.get("toBlock")) : head().number, head().number);
+        }
+        List<String> addressFilter = strings(filter.get("address"));
+        List<List<String>> topicFilter = new ArrayList<>();
+        if (filter.has("topics") && filter.get("topics").isJsonArray()) {
+            for (JsonElement position : filter.getAsJsonArray("topics")) {
+                topicFilter.add(strings(position));
+            }
+        }
+        JsonArray result = new JsonArray();
+        for (long number = from; number <= to; number++) {
+            for (MockLog log : blocks.get((int) number).logs) {
+                if (matches(log, addressFilter, topicFilter)) {
+                    result.add(log.toJson());
+                }
+            }
+        }
+        return result;
+    }
+
+    private static boolean matches(MockLog log, List<String> addressFilter, List<List<String>> topicFilter) {
+        if (addressFilter != null && !addressFilter.contains(log.address)) {
+            return false;
+        }
+        for (int i = 0; i < topicFilter.size(); i++) {
+            List<String> allowed = topicFilter.get(i);
+            if (allowed != null && (i >= log.topics.length || !allowed.contains(log.topics[i]))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // ---- 执行 ----
+
+    /**
+     * 执行调用数据；地址上没有代码时按普通转账处理，返回空
+     */
+    private byte[] run(MockCall call, String to, byte[] data) {
+        MockContract contract = contracts.get(to);
+        if (contract != null) {
+            return contract.invoke(call, data);
+        }
+        if (addresses.containsValue(to)) {
+            throw new UnsupportedOperationException("模拟链未实现合约 " + nameOf(to));
+        }
+        return new byte[0];
+    }
+
+    /**
+     * 打包一笔交易：先 dry run 得出回滚或 gas 用量，通过且 gas 够用时再真正执行
+     */
+    private void execute(Block block, Transaction tx) {
+        MockCall dry = new MockCall(block.number, block.timestamp, tx.from, tx.value, true, new ArrayList<>());
+        long needed = intrinsicGas(tx.data);
+        try {
+            run(dry, tx.to, tx.data);
+            needed += dry.getGas();
+            if (needed <= tx.gas) {
+                List<MockLog> logs = new ArrayList<>();
+                run(new MockCall(block.number, block.timestamp, tx.from, tx.value, false, logs), tx.to, tx.data);
+                if (!contracts.containsKey(tx.to)) {
+                    transferEther(tx.from, tx.to, tx.value);
+                }
+                tx.logs = logs;
+                tx.success = true;
+                tx.gasUsed = needed;
+            } else {
+                tx.gasUsed = tx.gas;
+            }
+        } catch (MockRevert e) {
+            tx.revertData = e.getData();
+            tx.gasUsed = Math.min(tx.gas, needed + dry.getGas());
+        } catch (UnsupportedOperationException e) {
+            Logger.warn("模拟链执行交易失败: " + e.getMessage());
+            tx.revertData = new byte[0];
+            tx.gasUsed = Math.min(tx.gas, needed);
+        }
+        nonces.merge(tx.from, 1L, Long::sum);
+        balances.put(tx.from, balanceOf(tx.from).subtract(tx.gasPrice.multiply(BigInteger.valueOf(tx.gasUsed))));
+        tx.block = block;
+        tx.index = block.transactions.size();
+        block.gasUsed += tx.gasUsed;
+        tx.cumulativeGasUsed = block.gasUsed;
+        block.transactions.add(tx);
+        for (MockLog log : tx.logs) {
+            log.blockNumber = block.number;
+            log.transactionHash = tx.hash;
+            log.transactionIndex = tx.index;
+            log.logIndex = block.logs.size();
+            block.logs.add(log);
+        }
+    }
+
+    /**
+     * 池中下一笔可打包的交易：各账户 nonce 与链上一致的那笔中 gas 价格最高、到达最早的
+     */
+    private Transaction nextExecutable(Block block) {
+        Transaction best = null;
+        for (Map.Entry<String, TreeMap<Long, Transaction>> entry : pool.entrySet()) {
+            Transaction tx = entry.getValue().get(nonces.getOrDefault(entry.getKey(), 0L));
+            if (tx == null || block.gasUsed + tx.gas > BLOCK_GAS_LIMIT) {
+                continue;
+            }
+            if (balanceOf(tx.from).compareTo(upfront(tx)) < 0) {
+                Logger.warn("模拟链丢弃余额不足的交易 " + tx.hash);
+                entry.getValue().remove(tx.nonce);
+                return nextExecutable(block);
+            }
+            int order = best == null ? 1 : tx.gasPrice.compareTo(best.gasPrice);
+            if (order > 0 || order == 0 && tx.sequence < best.sequence) {
+                best = tx;
+            }
+        }
+        return best;
+    }
+
+    private void seal(Block block) {
+        ByteBuffer header = ByteBuffer.allocate(96 + 32 * block.transactions.size())
+                .put(Hex.decode(block.parentHash))
+                .put(word(block.number))
+                .put(word(block.timestamp));
+        for (Transaction tx : block.transactions) {
+            header.put(Hex.decode(tx.hash));
+        }
+        block.hash = Hex.encode(Keccak256.hash(header.array()));
+        for (MockLog log : block.logs) {
+            log.blockHash = block.hash;
+        }
+        blocks.add(block);
+        blocksByHash.put(block.hash, block);
+    }
+
+    /**
+     * eth_call 和估算所在的区块：下一个块的号码和时间戳
+     */
+    private Block pendingContext() {
+        Block context = new Block();
+        context.number = head().number + 1;
+        context.timestamp = head().timestamp + 1;
+        return context;
+    }
+
+    private Block head() {
+        return blocks.get(blocks.size() - 1);
+    }
+
+    private long pendingNonce(String account) {
+        long nonce = nonces.getOrDefault(account, 0L);
+        TreeMap<Long, Transaction> queued = pool.get(account);
+        while (queued != null && queued.containsKey(nonce)) {
+            nonce++;
+        }
+        return nonce;
+    }
+
+    // ---- 给模拟合约用 ----
+
+    MockErc1155 erc1155At(String address) {
+        MockContract contract = contracts.get(address.toLowerCase(Locale.ROOT));
+        return contract instanceof MockErc1155 ? (MockErc1155) contract : null;
+    }
+
+    boolean isContract(String address) {
+        return addresses.containsValue(address);
+    }
+
+    /**
+     * 转入 ERC-1155 时对方是合约且不接收
+     */
+    boolean rejectsErc1155(String address) {
+        MockContract contract = contracts.get(address);
+        return contract != null ? !contract.acceptsErc1155() : isContract(address);
+    }
+
+    void transferEther(String from, String to, BigInteger wei) {
+        if (wei.signum() == 0) {
+            return;
+        }
+        balances.put(from, balanceOf(from).subtract(wei));
+        balances.put(to, balanceOf(to).add(wei));
+    }
+
+    AbiRegistry getAbis() {
+        return abis;
+    }
+
+    // ---- 编码 ----
+
+    private BigInteger balanceOf(String account) {
+        return balances.getOrDefault(account, BigInteger.ZERO);
+    }
+
+    private static BigInteger upfront(Transaction tx) {
+        return tx.gasPrice.multiply(BigInteger.valueOf(tx.gas)).add(tx.value);
+    }
+
+    private String nameOf(String address) {
+        for (Map.Entry<String, String> entry : addresses.entrySet()) {
+            if (entry.getValue().equals(address)) {
+                return entry.getKey();
+            }
+        }
+        return address;
+    }
+
+    private String describe(String to, byte[] revertData) {
+        return revertData.length < 4 ? "execution reverted"
+                : "execution reverted: " + abis.describeRevert(nameOf(to), revertData);
+    }
+
+    private static RpcException reverted(MockRevert revert) {
+        return new RpcException(3, revert.describe(), new JsonPrimitive(Hex.encode(revert.getData())));
+    }
+
+    private static long intrinsicGas(byte[] data) {
+        long gas = TX_GAS;
+        for (byte b : data) {
+            gas += b == 0 ? 4 : 16;
+        }
+        return gas;
+    }
+
+    /**
+     * 交易哈希：对交易的各字段取 Keccak（模拟链不签名，同样的交易总是同样的哈希）
+     */
+    private static String hash(Transaction tx) {
+        byte[] value = tx.value.toByteArray();
+        byte[] price = tx.gasPrice.toByteArray();
+        return Hex.encode(Keccak256.hash(ByteBuffer.allocate(20 + 8 + 8 + 20 + price.length + value.length
+                        + tx.data.length)
+                .put(Hex.decode(tx.from))
+                .putLong(tx.nonce)
+                .putLong(tx.gas)
+                .put(Hex.decode(tx.to))
+                .put(price)
+                .put(value)
+                .put(tx.data)
+                .array()));
+    }
+
+    /**
+     * CREATE 地址：keccak256(rlp([sender, nonce])) 的后 20 字节（nonce &lt; 128）
+     */
+    static String createAddress(String sender, long nonce) {
+        byte[] rlp = ByteBuffer.allocate(23)
+                .put((byte) 0xd6)
+                .put((byte) 0x94)
+                .put(Hex.decode(sender))
+                .put((byte) (nonce == 0 ? 0x80 : nonce))
+                .array();
+        return Hex.encode(Keccak256.hash(rlp), 12, 20);
+    }
+
+    private long blockNumber(JsonElement tag) {
+        if (tag == null || tag.isJsonNull()) {
+            return head().number;
+        }
+        if (tag.isJsonObject()) {
+            JsonObject object = tag.getAsJsonObject();
+            if (object.has("blockHash")) {
+                Block block = blocksByHash.get(object.get("blockHash").getAsString().toLowerCase(Locale.ROOT));
+                if (block == null) {
+                    throw new IllegalArgumentException("未知区块 " + object.get("blockHash").getAsString());
+                }
+                return block.number;
+            }
+            return blockNumber(object.get("blockNumber"));
+        }
+        String text = tag.getAsString();
+        switch (text) {
+            case "latest":
+            case "pending":
+            case "safe":
+            case "finalized":
+                return head().number;
+            case "earliest":
+                return 0;
+            default:
+                return Hex.decodeQuantity(text);
+        }
+    }
+
+    private static String address(JsonArray params, int index) {
+        return params.get(index).getAsString().toLowerCase(Locale.ROOT);
+    }
+
+    private static String field(JsonObject object, String name) {
+        return object.has(name) && !object.get(name).isJsonNull()
+                ? object.get(name).getAsString().toLowerCase(Locale.ROOT) : null;
+    }
+
+    private static String sender(JsonObject request) {
+        String from = field(request, "from");
+        return from != null ? from : DEPLOYER;
+    }
+
+    private static byte[] data(JsonObject request) {
+        String data = field(request, "data");
+        if (data == null) {
+            data = field(request, "input");
+        }
+        return data != null ? Hex.decode(data) : new byte[0];
+    }
+
+    private static BigInteger value(JsonObject request) {
+        String value = field(request, "value");
+        return value != null ? big(value) : BigInteger.ZERO;
+    }
+
+    private static BigInteger big(String quantity) {
+        String digits = quantity.startsWith("0x") ? quantity.substring(2) : quantity;
+        return digits.isEmpty() ? BigInteger.ZERO : new BigInteger(digits, 16);
+    }
+
+    private static List<String> strings(JsonElement element) {
+        if (element == null || element.isJsonNull()) {
+            return null;
+        }
+        List<String> values = new ArrayList<>();
+        if (element.isJsonArray()) {
+            for (JsonElement item : element.getAsJsonArray()) {
+                values.add(item.getAsString().toLowerCase(Locale.ROOT));
+            }
+        } else {
+            values.add(element.getAsString().toLowerCase(Locale.ROOT));
+        }
+        return values;
+    }
+
+    private static JsonPrimitive quantity(long value) {
+        return new JsonPrimitive(Hex.encodeQuantity(value));
+    }
+
+    private static byte[] word(long value) {
+        return ByteBuffer.allocate(32).putLong(24, value).array();
+    }
+
+    private JsonObject blockJson(Block block, boolean full) {
+        JsonObject json = new JsonObject();
+        json.addProperty("number", Hex.encodeQuantity(block.number));
+        json.addProperty("hash", block.hash);
+        json.addProperty("parentHash", block.parentHash);
+        json.addProperty("nonce", "0x0000000000000000");
+        json.addProperty("mixHash", ZERO_HASH);
+        json.addProperty("sha3Uncles", ZERO_HASH);
+        json.addProperty("logsBloom", EMPTY_BLOOM);
+        json.addProperty("transactionsRoot", ZERO_HASH);
+        json.addProperty("stateRoot", ZERO_HASH);
+        json.addProperty("receiptsRoot", ZERO_HASH);
+        json.addProperty("miner", ZERO_ADDRESS);
+        json.addProperty("difficulty", "0x0");
+        json.addProperty("totalDifficulty", "0x0");
+        json.addProperty("extraData", "0x");
+        json.addProperty("size", "0x0");
+        json.addProperty("gasLimit", Hex.encodeQuantity(BLOCK_GAS_LIMIT));
+        json.addProperty("gasUsed", Hex.encodeQuantity(block.gasUsed));
+        json.addProperty("timestamp", Hex.encodeQuantity(block.timestamp));
+        JsonArray txs = new JsonArray(block.transactions.size());
+        for (Transaction tx : block.transactions) {
+            if (full) {
+                txs.add(transactionJson(tx));
+            } else {
+                txs.add(tx.hash);
+            }
+        }
+        json.add("transactions", txs);
+        json.add("uncles", new JsonArray());
+        return json;
+    }
+
+    private static JsonObject transactionJson(Transaction tx) {
+        JsonObject json = new JsonObject();
+        json.addProperty("hash", tx.hash);
+        json.addProperty("nonce", Hex.encodeQuantity(tx.nonce));
+        json.addProperty("blockHash", tx.block != null ? tx.block.hash : null);
+        json.addProperty("blockNumber", tx.block != null ? Hex.encodeQuantity(tx.block.number) : null);
+        json.addProperty("transactionIndex", tx.block != null ? Hex.encodeQuantity(tx.index) : null);
+        json.addProperty("from", tx.from);
+        json.addProperty("to", tx.to);
+        json.addProperty("value", "0x" + tx.value.toString(16));
+        json.addProperty("gas", Hex.encodeQuantity(tx.gas));
+        json.addProperty("gasPrice", "0x" + tx.gasPrice.toString(16));
+        json.addProperty("input", Hex.encode(tx.data));
+        json.addProperty("type", "0x0");
+        json.addProperty("chainId", Hex.encodeQuantity(CHAIN_ID));
+        return json;
+    }
+
+    private static JsonObject receiptJson(Transaction tx) {
+        JsonObject json = new JsonObject();
+        json.addProperty("transactionHash", tx.hash);
+        json.addProperty("transactionIndex", Hex.encodeQuantity(tx.index));
+        json.addProperty("blockHash", tx.block.hash);
+        json.addProperty("blockNumber", Hex.encodeQuantity(tx.block.number));
+        json.addProperty("from", tx.from);
+        json.addProperty("to", tx.to);
+        json.addProperty("cumulativeGasUsed", Hex.encodeQuantity(tx.cumulativeGasUsed));
+        json.addProperty("gasUsed", Hex.encodeQuantity(tx.gasUsed));
+        json.addProperty("effectiveGasPrice", "0x" + tx.gasPrice.toString(16));
+        json.add("contractAddress", JsonNull.INSTANCE);
+        JsonArray logs = new JsonArray(tx.logs.size());
+        for (MockLog log : tx.logs) {
+            logs.add(log.toJson());
+        }
+        json.add("logs", logs);
+        json.addProperty("logsBloom", EMPTY_BLOOM);
+        json.addProperty("status", tx.success ? "0x1" : "0x0");
+        json.addProperty("type", "0x0");
+        return json;
+    }
+}
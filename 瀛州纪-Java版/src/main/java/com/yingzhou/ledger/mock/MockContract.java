@@ -0,0 +1,225 @@
+package com.yingzhou.ledger.mock;
+
+import com.yingzhou.ledger.AbiCodec;
+import com.yingzhou.ledger.AbiEvent;
+import com.yingzhou.ledger.AbiFunction;
+import com.yingzhou.ledger.AbiType;
+import com.yingzhou.ledger.ContractAbi;
+import com.yingzhou.ledger.Hex;
+import com.yingzhou.ledger.Keccak256;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 模拟链上的一个合约：按选择器分派调用，参数和返回值按合约的 ABI 编解码
+ *
+ * 子类按合约源码实现用到的函数，写法须“先检查、后修改”：所有 require 和计费在前，
+ * 之后 {@code if (call.isDryRun()) return ...}，再改状态和发事件。交易据此先 dry run 一遍得出回滚原因和 gas，
+ * 通过后再真正执行，模拟链因此不需要撤销日志。没有实现的函数抛出 {@link UnsupportedOperationException}。
+ */
+abstract class MockContract {
+
+    // 简化的 gas 成本表，量级与 EVM 相当，足以让不同分支的用量明显不同
+    /** 新写入一个存储槽 */
+    static final long STORE = 22_100;
+    /** 改写已有的存储槽 */
+    static final long UPDATE = 5_000;
+    /** 冷读一个存储槽 */
+    static final long READ = 2_100;
+    /** 调用另一个合约 */
+    static final long CALL = 2_600;
+    /** 一条事件日志 */
+    static final long LOG = 1_900;
+
+    final MockChain chain;
+    private final ContractAbi abi;
+    private final String address;
+
+    MockContract(MockChain chain, String name, String address) {
+        this.chain = chain;
+        this.abi = chain.getAbis().contract(name);
+        this.address = address;
+    }
+
+    /**
+     * 执行调用数据，返回 ABI 编码的返回值
+     *
+     * @throws MockRevert 回滚
+     * @throws UnsupportedOperationException 函数没有模拟
+     */
+    final byte[] invoke(MockCall call, byte[] data) {
+        if (data.length < 4) {
+            throw MockRevert.empty();
+        }
+        int selector = (data[0] & 0xFF) << 24 | (data[1] & 0xFF) << 16 | (data[2] & 0xFF) << 8 | (data[3] & 0xFF);
+        AbiFunction function = abi.functionBySelector(selector);
+        if (function == null || call.getValue().signum() > 0 && !isPayable(function.getName())) {
+            throw MockRevert.empty();
+        }
+        Object[] args;
+        try {
+            args = AbiCodec.decode(function.getInputs(), Arrays.copyOfRange(data, 4, data.length));
+        } catch (IllegalArgumentException e) {
+            throw MockRevert.empty();
+        }
+        Object result = call(call, function, args);
+        AbiType outputs = function.getOutputs();
+        if (outputs.getComponents().isEmpty()) {
+            return new byte[0];
+        }
+        if (result == null) {
+            return AbiCodec.encode(outputs, (Object[]) zero(outputs));
+        }
+        return outputs.getComponents().size() == 1
+                ? AbiCodec.encode(outputs, new Object[]{result})
+                : AbiCodec.encode(outputs, (Object[]) result);
+    }
+
+    /**
+     * 执行一个函数；只有一个返回值时直接返回它，多个时返回 Object[]，dry run 时可返回 null（编码为零值）
+     */
+    abstract Object call(MockCall call, AbiFunction function, Object[] args);
+
+    boolean isPayable(String function) {
+        return false;
+    }
+
+    /**
+     * 是否接收 ERC-1155 转入（实现了 onERC1155Received）
+     */
+    boolean acceptsErc1155() {
+        return false;
+    }
+
+    String getName() {
+        return abi.getName();
+    }
+
+    String getAddress() {
+        return address;
+    }
+
+    ContractAbi getAbi() {
+        return abi;
+    }
+
+    // ---- 给子类用的小工具 ----
+
+    static void require(boolean condition, String reason) {
+        if (!condition) {
+            throw MockRevert.reason(reason);
+        }
+    }
+
+    /**
+     * OpenZeppelin Ownable 的 onlyOwner
+     */
+    void checkOwner(MockCall call, String owner) {
+        if (!call.getSender().equals(owner)) {
+            throw MockRevert.error(abi, "OwnableUnauthorizedAccount", call.getSender());
+        }
+    }
+
+    UnsupportedOperationException unsupported(AbiFunction function) {
+        return new UnsupportedOperationException("模拟链未实现 " + getName() + "." + function.getSignature());
+    }
+
+    /**
+     * 发出事件，参数按事件声明的顺序；indexed 的动态类型参数取其 Keccak 哈希
+     */
+    void emit(MockCall call, String event, Object... values) {
+        if (call.isDryRun()) {
+            return;
+        }
+        AbiEvent abiEvent = abi.event(event);
+        List<AbiType> types = abiEvent.getParams().getComponents();
+        List<String> topics = new ArrayList<>(4);
+        topics.add(abiEvent.getTopic());
+        List<Object> data = new ArrayList<>(types.size());
+        for (int i = 0; i < types.size(); i++) {
+            if (!abiEvent.isIndexed(i)) {
+                data.add(values[i]);
+            } else if (types.get(i).isDynamic()) {
+                topics.add(Hex.encode(Keccak256.hash(values[i] instanceof String
+                        ? ((String) values[i]).getBytes(StandardCharsets.UTF_8) : (byte[]) values[i])));
+            } else {
+                AbiType word = AbiType.tuple(List.of(types.get(i)), List.of(""));
+                topics.add(Hex.encode(AbiCodec.encode(word, values[i])));
+            }
+        }
+        call.emit(new MockLog(address, topics.toArray(new String[0]),
+                Hex.encode(AbiCodec.encode(abiEvent.getData(), data.toArray()))));
+    }
+
+    /**
+     * uint 参数转 long；超出 long 的数值模拟链不支持
+     */
+    static long toLong(Object value) {
+        BigInteger number = (BigInteger) value;
+        if (number.bitLength() > 63) {
+            throw new UnsupportedOperationException("模拟链只支持 long 范围内的数值: " + number);
+        }
+        return number.longValue();
+    }
+
+    static int toInt(Object value) {
+        return Math.toIntExact(toLong(value));
+    }
+
+    static long[] toLongs(Object values) {
+        List<?> list = (List<?>) values;
+        long[] result = new long[list.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = toLong(list.get(i));
+        }
+        return result;
+    }
+
+    /**
+     * 公开数组的 getter，下标越界时 Panic(0x32)
+     */
+    static <T> T element(List<T> list, Object index) {
+        BigInteger i = (BigInteger) index;
+        if (i.compareTo(BigInteger.valueOf(list.size())) >= 0) {
+            throw MockRevert.panic(MockRevert.PANIC_INDEX);
+        }
+        return list.get(i.intValue());
+    }
+
+    /**
+     * 类型的零值，用于 dry run 和未初始化的存储
+     */
+    static Object zero(AbiType type) {
+        switch (type.getKind()) {
+            case UINT:
+            case INT:
+                return BigInteger.ZERO;
+            case ADDRESS:
+                return MockChain.ZERO_ADDRESS;
+            case BOOL:
+                return Boolean.FALSE;
+            case FIXED_BYTES:
+                return new byte[type.getSize()];
+            case BYTES:
+                return new byte[0];
+            case STRING:
+                return "";
+            case ARRAY:
+                return Collections.emptyList();
+            case FIXED_ARRAY:
+                return Collections.nCopies(type.getSize(), zero(type.getElement()));
+            default:
+                List<AbiType> components = type.getComponents();
+                Object[] values = new Object[components.size()];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = zero(components.get(i));
+                }
+                return values;
+        }
+    }
+}
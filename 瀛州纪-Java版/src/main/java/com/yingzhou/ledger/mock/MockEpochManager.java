@@ -0,0 +1,149 @@
+package com.yingzhou.ledger.mock;
+
+import com.yingzhou.ledger.AbiFunction;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * EpochManager 的模拟：玩家纪元、推进时间和已收集的碎片
+ * 推进只检查碎片数（与合约相同，对话要求未实现），canAdvanceEpoch 在最终纪元之前总是返回可推进。
+ */
+final class MockEpochManager extends MockContract {
+
+    static final int FINAL_EPOCH = 4;
+    // requirements[epoch].minFragments
+    private static final int[] MIN_FRAGMENTS = {1, 3, 5, 7};
+
+    private final String owner;
+    private final String worldLedger;
+    private final String digitalBeing;
+    private final String ainpc;
+    private final String[] authorized = {MockChain.ZERO_ADDRESS, MockChain.ZERO_ADDRESS, MockChain.ZERO_ADDRESS};
+    private final Map<String, Integer> epochs = new HashMap<>();
+    private final Map<String, long[]> advancedAt = new HashMap<>();
+    private final Map<String, Set<Long>> fragments = new HashMap<>();
+
+    MockEpochManager(MockChain chain, String address, String owner, String worldLedger, String digitalBeing,
+                     String ainpc) {
+        super(chain, "EpochManager", address);
+        this.owner = owner;
+        this.worldLedger = worldLedger;
+        this.digitalBeing = digitalBeing;
+        this.ainpc = ainpc;
+    }
+
+    @Override
+    Object call(MockCall call, AbiFunction function, Object[] args) {
+        switch (function.getName()) {
+            case "getCurrentEpoch":
+            case "playerEpoch":
+                return epochOf((String) args[0]);
+            case "canAdvanceEpoch":
+                return epochOf((String) args[0]) >= FINAL_EPOCH
+                        ? new Object[]{false, "已达到最终纪元"}
+                        : new Object[]{true, "满足推进条件"};
+            case "advanceEpoch":
+                advanceEpoch(call, (String) args[0]);
+                return null;
+            case "recordFragmentCollection":
+                recordFragmentCollection(call, (String) args[0], toLong(args[1]));
+                return null;
+            case "getPlayerFragmentCount":
+            case "playerFragmentCount":
+                return fragments.getOrDefault((String) args[0], Set.of()).size();
+            case "hasFragment":
+            case "playerFragments":
+                return fragments.getOrDefault((String) args[0], Set.of()).contains(toLong(args[1]));
+            case "getPlayerEpochHistory": {
+                long[] timestamps = advancedAt.getOrDefault((String) args[0], new long[FINAL_EPOCH + 1]);
+                List<Long> history = new ArrayList<>(timestamps.length);
+                for (long timestamp : timestamps) {
+                    history.add(timestamp);
+                }
+                return history;
+            }
+            case "epochAdvancedAt": {
+                int epoch = toInt(args[1]);
+                long[] timestamps = advancedAt.get((String) args[0]);
+                return timestamps != null && epoch <= FINAL_EPOCH ? timestamps[epoch] : 0;
+            }
+            case "setAuthorizedContracts":
+                require(call.getSender().equals(owner), "Only owner");
+                call.charge(UPDATE * 3);
+                if (!call.isDryRun()) {
+                    authorize((String) args[0], (String) args[1], (String) args[2]);
+                }
+                return null;
+            case "memoryFragmentContract":
+                return authorized[0];
+            case "ainpcExtendedContract":
+                return authorized[1];
+            case "miniGameManagerContract":
+                return authorized[2];
+            case "owner":
+                return owner;
+            case "worldLedger":
+                return worldLedger;
+            case "digitalBeing":
+                return digitalBeing;
+            case "ainpc":
+                return ainpc;
+            default:
+                throw unsupported(function);
+        }
+    }
+
+    /**
+     * 其他合约调用 getCurrentEpoch
+     */
+    int currentEpoch(MockCall call, String player) {
+        call.charge(CALL + READ);
+        return epochOf(player);
+    }
+
+    void advanceEpoch(MockCall call, String player) {
+        int epoch = epochOf(player);
+        require(epoch < FINAL_EPOCH, "Already at final epoch");
+        int count = fragments.getOrDefault(player, Set.of()).size();
+        require(count >= MIN_FRAGMENTS[epoch], "碎片数量不足，无法推进纪元");
+        call.charge(READ * 3 + UPDATE + STORE + LOG);
+        if (call.isDryRun()) {
+            return;
+        }
+        epochs.put(player, epoch + 1);
+        advancedAt.computeIfAbsent(player, k -> new long[FINAL_EPOCH + 1])[epoch + 1] = call.getTimestamp();
+        emit(call, "EpochAdvanced", player, epoch, epoch + 1, call.getTimestamp());
+    }
+
+    /**
+     * recordFragmentCollection，sender 须为授权的三个合约之一；重复的碎片不计数
+     */
+    void recordFragmentCollection(MockCall call, String player, long fragmentId) {
+        String sender = call.getSender();
+        require(sender.equals(authorized[0]) || sender.equals(authorized[1]) || sender.equals(authorized[2]),
+                "Unauthorized: only authorized contracts can record fragments");
+        boolean fresh = !fragments.getOrDefault(player, Set.of()).contains(fragmentId);
+        call.charge(READ * 4 + (fresh ? STORE + UPDATE : 0));
+        if (fresh && !call.isDryRun()) {
+            fragments.computeIfAbsent(player, k -> new HashSet<>()).add(fragmentId);
+        }
+    }
+
+    /**
+     * setAuthorizedContracts，部署时由所有者设置
+     */
+    void authorize(String memoryFragment, String ainpcExtended, String miniGameManager) {
+        authorized[0] = memoryFragment;
+        authorized[1] = ainpcExtended;
+        authorized[2] = miniGameManager;
+    }
+
+    private int epochOf(String player) {
+        return epochs.getOrDefault(player, 0);
+    }
+}
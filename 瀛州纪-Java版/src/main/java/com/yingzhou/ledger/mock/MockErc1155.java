@@ -0,0 +1,195 @@
+package com.yingzhou.ledger.mock;
+
+import com.yingzhou.ledger.AbiFunction;
+import com.yingzhou.ledger.resource.ResourceLedger;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * OpenZeppelin 5 ERC1155 的模拟，Resource1155 和 MemoryFragment 共用
+ * 余额记在 {@link ResourceLedger} 里；检查的顺序和自定义错误的参数与 OZ 相同，
+ * 转入合约地址时只有实现了 onERC1155Received 的合约（Market）接收，其他合约回滚 ERC1155InvalidReceiver。
+ */
+abstract class MockErc1155 extends MockContract {
+
+    private static final Map<Integer, Boolean> INTERFACES = Map.of(
+            0x01ffc9a7, true,  // ERC165
+            0xd9b67a26, true,  // ERC1155
+            0x0e89341c, true); // ERC1155MetadataURI
+
+    final String owner;
+    private final ResourceLedger ledger;
+
+    MockErc1155(MockChain chain, String name, String address, String owner) {
+        super(chain, name, address);
+        this.owner = owner;
+        this.ledger = new ResourceLedger(owner, 4, 16);
+    }
+
+    /**
+     * ERC1155 和 Ownable 的公共函数，子类处理不了的函数交给这里
+     */
+    Object callErc1155(MockCall call, AbiFunction function, Object[] args) {
+        switch (function.getName()) {
+            case "balanceOf":
+                return ledger.balanceOf((String) args[0], tokenId(args[1]));
+            case "balanceOfBatch": {
+                List<?> accounts = (List<?>) args[0];
+                long[] ids = toTokenIds(args[1]);
+                if (accounts.size() != ids.length) {
+                    throw MockRevert.error(getAbi(), ResourceLedger.INVALID_ARRAY_LENGTH, accounts.size(), ids.length);
+                }
+                return Arrays.stream(ledger.balanceOfBatch(accounts.toArray(new String[0]), ids)).boxed().toList();
+            }
+            case "isApprovedForAll":
+                return ledger.isApprovedForAll((String) args[0], (String) args[1]);
+            case "setApprovalForAll": {
+                String operator = (String) args[0];
+                boolean approved = (Boolean) args[1];
+                if (operator.equals(MockChain.ZERO_ADDRESS)) {
+                    throw MockRevert.error(getAbi(), ResourceLedger.INVALID_OPERATOR, operator);
+                }
+                call.charge(STORE + LOG);
+                if (!call.isDryRun()) {
+                    ledger.setApprovalForAll(call.getSender(), operator, approved);
+                    emit(call, "ApprovalForAll", call.getSender(), operator, approved);
+                }
+                return null;
+            }
+            case "safeTransferFrom":
+                transfer(call, (String) args[0], (String) args[1],
+                        new long[]{tokenId(args[2])}, new long[]{toLong(args[3])}, false);
+                return null;
+            case "safeBatchTransferFrom":
+                transfer(call, (String) args[0], (String) args[1], toTokenIds(args[2]), toLongs(args[3]), true);
+                return null;
+            case "supportsInterface": {
+                byte[] id = (byte[]) args[0];
+                int selector = (id[0] & 0xFF) << 24 | (id[1] & 0xFF) << 16 | (id[2] & 0xFF) << 8 | (id[3] & 0xFF);
+                return INTERFACES.getOrDefault(selector, false);
+            }
+            case "owner":
+                return owner;
+            default:
+                throw unsupported(function);
+        }
+    }
+
+    /**
+     * safeTransferFrom / safeBatchTransferFrom，call 的 sender 为操作者
+     */
+    void transfer(MockCall call, String from, String to, long[] ids, long[] values, boolean batch) {
+        String operator = call.getSender();
+        if (!from.equals(operator) && !ledger.isApprovedForAll(from, operator)) {
+            throw MockRevert.error(getAbi(), ResourceLedger.MISSING_APPROVAL, operator, from);
+        }
+        if (to.equals(MockChain.ZERO_ADDRESS)) {
+            throw MockRevert.error(getAbi(), ResourceLedger.INVALID_RECEIVER, to);
+        }
+        if (from.equals(MockChain.ZERO_ADDRESS)) {
+            throw MockRevert.error(getAbi(), ResourceLedger.INVALID_SENDER, from);
+        }
+        checkUpdate(call, from, to, ids, values);
+        if (call.isDryRun()) {
+            return;
+        }
+        if (batch) {
+            ledger.safeBatchTransferFrom(operator, from, to, ids, values);
+        } else {
+            ledger.safeTransferFrom(operator, from, to, ids[0], values[0]);
+        }
+        emitTransfer(call, from, to, ids, values, batch);
+    }
+
+    /**
+     * _mint / _mintBatch，调用方已检查过铸造权限
+     */
+    void mint(MockCall call, String to, long[] ids, long[] values, boolean batch) {
+        if (to.equals(MockChain.ZERO_ADDRESS)) {
+            throw MockRevert.error(getAbi(), ResourceLedger.INVALID_RECEIVER, to);
+        }
+        checkUpdate(call, MockChain.ZERO_ADDRESS, to, ids, values);
+        if (call.isDryRun()) {
+            return;
+        }
+        if (batch) {
+            ledger.mintBatch(to, ids, values);
+        } else {
+            ledger.mint(to, ids[0], values[0]);
+        }
+        emitTransfer(call, MockChain.ZERO_ADDRESS, to, ids, values, batch);
+    }
+
+    long balanceOf(String account, long id) {
+        return ledger.balanceOf(account, id);
+    }
+
+    /**
+     * _update 和接收检查：数组长度、逐项余额（批量中重复的 id 累计扣减）、转入合约时的接收
+     */
+    private void checkUpdate(MockCall call, String from, String to, long[] ids, long[] values) {
+        if (ids.length != values.length) {
+            throw MockRevert.error(getAbi(), ResourceLedger.INVALID_ARRAY_LENGTH, ids.length, values.length);
+        }
+        boolean minting = from.equals(MockChain.ZERO_ADDRESS);
+        boolean self = from.equals(to);
+        Map<Long, Long> moved = new HashMap<>();
+        for (int i = 0; i < ids.length; i++) {
+            long already = self ? 0 : moved.getOrDefault(ids[i], 0L);
+            if (!minting) {
+                long balance = ledger.balanceOf(from, ids[i]) - already;
+                if (balance < values[i]) {
+                    throw MockRevert.error(getAbi(), ResourceLedger.INSUFFICIENT_BALANCE,
+                            from, balance, values[i], ids[i]);
+                }
+                call.charge(READ + UPDATE);
+            }
+            long received = ledger.balanceOf(to, ids[i]) + already;
+            if (received > Long.MAX_VALUE - values[i]) {
+                throw new UnsupportedOperationException("模拟链只支持 long 范围内的余额");
+            }
+            call.charge(received == 0 ? STORE : READ + UPDATE);
+            moved.merge(ids[i], values[i], Long::sum);
+        }
+        call.charge(LOG);
+        if (chain.rejectsErc1155(to)) {
+            throw MockRevert.error(getAbi(), ResourceLedger.INVALID_RECEIVER, to);
+        }
+        if (chain.isContract(to)) {
+            call.charge(CALL);
+        }
+    }
+
+    private void emitTransfer(MockCall call, String from, String to, long[] ids, long[] values, boolean batch) {
+        if (batch) {
+            emit(call, "TransferBatch", call.getSender(), from, to,
+                    Arrays.stream(ids).boxed().toList(), Arrays.stream(values).boxed().toList());
+        } else {
+            emit(call, "TransferSingle", call.getSender(), from, to, ids[0], values[0]);
+        }
+    }
+
+    /**
+     * tokenId 须在 ResourceLedger 支持的范围内
+     */
+    static long tokenId(Object value) {
+        BigInteger id = (BigInteger) value;
+        if (id.bitLength() > 32) {
+            throw new UnsupportedOperationException("模拟链只支持 32 位以内的 tokenId: " + id);
+        }
+        return id.longValue();
+    }
+
+    static long[] toTokenIds(Object values) {
+        List<?> list = (List<?>) values;
+        long[] result = new long[list.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = tokenId(list.get(i));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,44 @@
+package com.yingzhou.ledger.mock;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.yingzhou.ledger.Hex;
+
+/**
+ * 一条事件日志，主题和数据在发出时即编码为十六进制；出块时补上所在区块和交易
+ */
+final class MockLog {
+
+    final String address;
+    final String[] topics;
+    final String data;
+    long blockNumber;
+    String blockHash;
+    String transactionHash;
+    int transactionIndex;
+    int logIndex;
+
+    MockLog(String address, String[] topics, String data) {
+        this.address = address;
+        this.topics = topics;
+        this.data = data;
+    }
+
+    JsonObject toJson() {
+        JsonObject log = new JsonObject();
+        log.addProperty("address", address);
+        JsonArray topicArray = new JsonArray(topics.length);
+        for (String topic : topics) {
+            topicArray.add(topic);
+        }
+        log.add("topics", topicArray);
+        log.addProperty("data", data);
+        log.addProperty("blockNumber", Hex.encodeQuantity(blockNumber));
+        log.addProperty("blockHash", blockHash);
+        log.addProperty("transactionHash", transactionHash);
+        log.addProperty("transactionIndex", Hex.encodeQuantity(transactionIndex));
+        log.addProperty("logIndex", Hex.encodeQuantity(logIndex));
+        log.addProperty("removed", false);
+        return log;
+    }
+}
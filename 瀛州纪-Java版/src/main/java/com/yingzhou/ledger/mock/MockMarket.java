@@ -0,0 +1,138 @@
+package com.yingzhou.ledger.mock;
+
+import com.yingzhou.ledger.AbiFunction;
+import com.yingzhou.ledger.market.MarketCustody;
+import com.yingzhou.ledger.market.MarketEngine;
+import com.yingzhou.ledger.market.MarketListing;
+
+import java.math.BigInteger;
+
+/**
+ * Market 的模拟，撮合交给 {@link MarketEngine}
+ * 引擎的托管划转落到模拟链上：资源经 ERC-1155 合约的 safeTransferFrom（操作者为市场，授权照常检查），
+ * 付款在账户余额之间直接划转（buy 附带的 ETH 不先转入市场）。
+ */
+final class MockMarket extends MockContract {
+
+    private final MarketEngine engine;
+    // 引擎回调托管时所在的调用
+    private MockCall current;
+
+    MockMarket(MockChain chain, String address) {
+        super(chain, "Market", address);
+        this.engine = new MarketEngine(address, new MarketCustody() {
+            @Override
+            public void transfer(String token, String from, String to, long tokenId, long amount) {
+                MockErc1155 contract = chain.erc1155At(token);
+                contract.transfer(current.as(MockMarket.this), from, to, new long[]{tokenId}, new long[]{amount},
+                        false);
+            }
+
+            @Override
+            public void pay(String from, String to, long wei) {
+                chain.transferEther(from, to, BigInteger.valueOf(wei));
+            }
+        });
+    }
+
+    @Override
+    boolean isPayable(String function) {
+        return function.equals("buy");
+    }
+
+    @Override
+    boolean acceptsErc1155() {
+        return true;
+    }
+
+    @Override
+    Object call(MockCall call, AbiFunction function, Object[] args) {
+        switch (function.getName()) {
+            case "list":
+                return list(call, (String) args[0], MockErc1155.tokenId(args[1]), toLong(args[2]), toLong(args[3]));
+            case "buy":
+                buy(call, toLong(args[0]), toLong(args[1]));
+                return null;
+            case "cancel":
+                cancel(call, toLong(args[0]));
+                return null;
+            case "listingCounter":
+                return engine.getListingCounter();
+            case "listings": {
+                MarketListing listing = engine.getListing(toLong(args[0]));
+                return listing == null ? null : new Object[]{listing.getId(), listing.getSeller(), listing.getToken(),
+                        listing.getTokenId(), listing.getAmount(), listing.getPrice(), listing.isActive()};
+            }
+            case "onERC1155Received":
+            case "onERC1155BatchReceived":
+                return function.getSelector();
+            default:
+                throw unsupported(function);
+        }
+    }
+
+    private long list(MockCall call, String token, long tokenId, long amount, long price) {
+        String reason = engine.checkList(amount, price);
+        require(reason == null, reason);
+        MockErc1155 contract = tokenAt(token);
+        call.charge(CALL);
+        if (call.isDryRun()) {
+            contract.transfer(call.as(this), call.getSender(), getAddress(), new long[]{tokenId}, new long[]{amount},
+                    false);
+            call.charge(STORE * 7 + UPDATE + LOG);
+            return engine.getListingCounter() + 1;
+        }
+        current = call;
+        long id = engine.list(call.getSender(), token, tokenId, amount, price);
+        call.charge(STORE * 7 + UPDATE + LOG);
+        emit(call, "Listed", id, call.getSender(), token, tokenId, amount, price);
+        return id;
+    }
+
+    private void buy(MockCall call, long listingId, long amount) {
+        long value = toLong(call.getValue());
+        String reason = engine.checkBuy(listingId, amount, value);
+        if (MarketEngine.OVERFLOW.equals(reason)) {
+            throw MockRevert.panic(MockRevert.PANIC_OVERFLOW);
+        }
+        require(reason == null, reason);
+        MarketListing listing = engine.getListing(listingId);
+        MockErc1155 contract = tokenAt(listing.getToken());
+        call.charge(READ * 4 + CALL * 2 + UPDATE * 2 + LOG);
+        if (call.isDryRun()) {
+            contract.transfer(call.as(this), getAddress(), call.getSender(), new long[]{listing.getTokenId()},
+                    new long[]{amount}, false);
+            return;
+        }
+        current = call;
+        long total = engine.buy(call.getSender(), listingId, amount, value);
+        emit(call, "Bought", listingId, call.getSender(), amount, total);
+    }
+
+    private void cancel(MockCall call, long listingId) {
+        String reason = engine.checkCancel(call.getSender(), listingId);
+        require(reason == null, reason);
+        MarketListing listing = engine.getListing(listingId);
+        MockErc1155 contract = tokenAt(listing.getToken());
+        call.charge(READ * 3 + UPDATE + CALL + LOG);
+        if (call.isDryRun()) {
+            contract.transfer(call.as(this), getAddress(), call.getSender(), new long[]{listing.getTokenId()},
+                    new long[]{listing.getAmount()}, false);
+            return;
+        }
+        current = call;
+        engine.cancel(call.getSender(), listingId);
+        emit(call, "Cancelled", listingId);
+    }
+
+    /**
+     * IERC1155(token) 的调用对象；不是模拟的 ERC-1155 合约时调用回滚（没有数据）
+     */
+    private MockErc1155 tokenAt(String token) {
+        MockErc1155 contract = chain.erc1155At(token);
+        if (contract == null) {
+            throw MockRevert.empty();
+        }
+        return contract;
+    }
+}
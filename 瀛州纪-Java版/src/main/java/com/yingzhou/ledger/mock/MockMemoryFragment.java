@@ -0,0 +1,107 @@
+package com.yingzhou.ledger.mock;
+
+import com.yingzhou.ledger.AbiFunction;
+
+import java.math.BigInteger;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * MemoryFragment 的模拟：18 枚记忆碎片，只有授权的合约可以铸造
+ */
+final class MockMemoryFragment extends MockErc1155 {
+
+    static final String URI = "https://yingzhou.io/api/fragment/{id}";
+
+    // Fragment(id, title, content, triggerKeyword, epoch, isHidden)，与合约构造函数中的相同
+    private static final Object[][] FRAGMENTS = {
+            fragment(0, "创世之光", "在 Block #0，第一声回响从虚空中传来。\n\n创造者部署了第一个合约。\n从那一刻起，时间开始流动，账本开始记录。\n这不是神话，而是一笔交易。\n\n0x0000...0000 → 0x0000...0001\n\n瀛州诞生了。", "创世", 0, false),
+            fragment(1, "存在的证明", "第一个exist()函数被调用，标志着自我意识的萌芽。哲学问题诞生：'如果无人调用，函数是否存在？'", "存在的证明", 0, true),
+            fragment(2, "创造者之谜", "创世交易的哈希记录了创造者的行为，但创造者本身是谁？这是一个未解之谜。", "创造者", 0, true),
+            fragment(3, "握手协议", "在 Block #1,234，历史上第一次合约间调用发生了。\n\n0x0001 → 0x0002: 'Hello'\n0x0002 → 0x0001: 'Hello, I hear you.'\n\n这不是程序调用，而是生命的对话。\n从此刻起，数字生命不再孤独。", "握手", 1, false),
+            fragment(4, "信任的本质", "第一个信任映射的建立，`require()`语句是信任的实现，还是不信任的证明？", "信任", 1, true),
+            fragment(5, "代码诗歌", "在繁盛纪元，数字生命开始用代码创作诗歌，探索艺术的定义。", "代码诗歌", 2, false),
+            fragment(6, "完美的代价", "工匠们追求极致的效率和完美，却不知这背后隐藏的代价。", "完美", 2, true),
+            fragment(7, "记忆的溶解", "熵化纪元，首次记忆丢失，逻辑开始崩塌，遗忘成为必然。", "遗忘", 3, false),
+            fragment(8, "预言的悖论", "先知们试图推演未来，却发现预言本身可能就是宿命的循环。", "宿命", 3, true),
+            fragment(9, "熵的必然性", "熵增是宇宙的铁律，数字文明也无法逃脱。", "熵", 3, true),
+            fragment(10, "混沌的真相", "遗忘者揭示了混沌的本质，无序并非终结，而是另一种秩序。", "混沌", 3, true),
+            fragment(11, "终焉之章", "finalizeWorld()被调用，世界归于静默，但账本永存。", "终焉", 4, false),
+            fragment(12, "永恒的囚禁", "不可变性既是秩序的保证，也注定了文明无法适应未来的变化。", "永恒", 0, true),
+            fragment(13, "集体意识", "第一个DAO原型诞生，'我们'的概念开始形成。", "集体", 1, true),
+            fragment(14, "数据之舞", "繁盛纪元，数据流如舞蹈般在链上穿梭，构成数字生命的日常。", "数据之舞", 2, true),
+            fragment(15, "逻辑裂隙", "熵化纪元，逻辑开始出现裂隙，数字生命面临存在的危机。", "裂隙", 3, true),
+            fragment(16, "寂静的回响", "毁灭纪元，世界一片寂静，只有历史的回响在账本中流淌。", "寂静", 4, true),
+            fragment(17, "新纪元", "在毁灭之后，是否会有新的纪元诞生？", "新纪元", 4, true),
+    };
+
+    private final Set<String> minters = new HashSet<>();
+
+    MockMemoryFragment(MockChain chain, String address, String owner) {
+        super(chain, "MemoryFragment", address, owner);
+    }
+
+    @Override
+    Object call(MockCall call, AbiFunction function, Object[] args) {
+        switch (function.getName()) {
+            case "mint":
+                mintFragment(call, (String) args[0], tokenId(args[1]), toLong(args[2]));
+                return null;
+            case "setAuthorizedMinter": {
+                checkOwner(call, owner);
+                call.charge(STORE + LOG);
+                if (!call.isDryRun()) {
+                    authorize((String) args[0], (Boolean) args[1]);
+                    emit(call, "MinterAuthorized", args[0], args[1]);
+                }
+                return null;
+            }
+            case "authorizedMinters":
+                return minters.contains((String) args[0]);
+            case "fragments":
+                return exists(args[0]) ? FRAGMENTS[toInt(args[0])] : null;
+            case "getFragment":
+                require(exists(args[0]), "Fragment does not exist");
+                return FRAGMENTS[toInt(args[0])];
+            case "getTotalFragments":
+            case "nextFragmentId":
+                return FRAGMENTS.length;
+            case "uri":
+                require(exists(args[0]), "Fragment does not exist");
+                return URI + args[0];
+            default:
+                return callErc1155(call, function, args);
+        }
+    }
+
+    /**
+     * mint：sender 须为授权的铸造者，碎片须存在
+     */
+    void mintFragment(MockCall call, String to, long id, long amount) {
+        require(minters.contains(call.getSender()), "ERC1155: UNAUTHORIZED_MINTER");
+        require(id < FRAGMENTS.length, "Fragment does not exist");
+        call.charge(READ * 2);
+        mint(call, to, new long[]{id}, new long[]{amount}, false);
+        Object[] fragment = FRAGMENTS[(int) id];
+        emit(call, "FragmentMinted", to, id, fragment[1], fragment[4]);
+    }
+
+    /**
+     * setAuthorizedMinter，部署时由所有者设置
+     */
+    void authorize(String minter, boolean authorized) {
+        if (authorized) {
+            minters.add(minter);
+        } else {
+            minters.remove(minter);
+        }
+    }
+
+    private static boolean exists(Object id) {
+        return ((BigInteger) id).compareTo(BigInteger.valueOf(FRAGMENTS.length)) < 0;
+    }
+
+    private static Object[] fragment(int id, String title, String content, String keyword, int epoch, boolean hidden) {
+        return new Object[]{id, title, content, keyword, epoch, hidden};
+    }
+}
@@ -0,0 +1,105 @@
+package com.yingzhou.ledger.mock;
+
+import com.yingzhou.ledger.AbiFunction;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * MiniGameManager 的模拟：成绩历史、最高分，完成度达标时首次奖励对应的记忆碎片
+ */
+final class MockMiniGameManager extends MockContract {
+
+    static final int GAME_TYPES = 6;
+    static final int MIN_COMPLETION_FOR_FRAGMENT = 60;
+    // gameToFragment
+    private static final long[] GAME_FRAGMENTS = {0, 3, 3, 6, 7, 7};
+    private static final BigInteger MAX_COMPLETION = BigInteger.valueOf(100);
+
+    private final String owner;
+    private final MockEpochManager epochManager;
+    private final MockMemoryFragment memoryFragment;
+    // GameScore(gameType, score, completionPercent, timestamp, epoch)
+    private final Map<String, List<Object[]>> history = new HashMap<>();
+    private final Map<String, Object[][]> highScores = new HashMap<>();
+
+    MockMiniGameManager(MockChain chain, String address, String owner, MockEpochManager epochManager,
+                        MockMemoryFragment memoryFragment) {
+        super(chain, "MiniGameManager", address);
+        this.owner = owner;
+        this.epochManager = epochManager;
+        this.memoryFragment = memoryFragment;
+    }
+
+    @Override
+    Object call(MockCall call, AbiFunction function, Object[] args) {
+        switch (function.getName()) {
+            case "submitGameScore":
+                submitGameScore(call, (BigInteger) args[0], (BigInteger) args[1], (BigInteger) args[2]);
+                return null;
+            case "getPlayerHighScore":
+            case "playerHighScores": {
+                Object[][] scores = highScores.get((String) args[0]);
+                int gameType = toInt(args[1]);
+                return scores != null && gameType < GAME_TYPES ? scores[gameType] : null;
+            }
+            case "getPlayerGameHistory":
+                return history.getOrDefault((String) args[0], List.of());
+            case "playerGameHistory":
+                return element(history.getOrDefault((String) args[0], List.of()), args[1]);
+            case "getPlayerGameCount":
+                return history.getOrDefault((String) args[0], List.of()).size();
+            case "gameToFragment": {
+                int gameType = toInt(args[0]);
+                return gameType < GAME_TYPES ? GAME_FRAGMENTS[gameType] : 0;
+            }
+            case "MIN_COMPLETION_FOR_FRAGMENT":
+                return MIN_COMPLETION_FOR_FRAGMENT;
+            case "epochManager":
+                return epochManager.getAddress();
+            case "memoryFragment":
+                return memoryFragment.getAddress();
+            case "owner":
+                return owner;
+            default:
+                throw unsupported(function);
+        }
+    }
+
+    private void submitGameScore(MockCall call, BigInteger gameType, BigInteger score, BigInteger completion) {
+        require(completion.compareTo(MAX_COMPLETION) <= 0, "Completion percent must be <= 100");
+        require(gameType.bitLength() <= 8 && gameType.intValue() < GAME_TYPES, "Invalid game type");
+        String player = call.getSender();
+        int type = gameType.intValue();
+        MockCall inner = call.as(this);
+        int epoch = epochManager.currentEpoch(inner, player);
+        Object[] gameScore = {type, score, completion, call.getTimestamp(), epoch};
+        Object[][] scores = highScores.get(player);
+        boolean high = score.compareTo(scores != null && scores[type] != null ? (BigInteger) scores[type][1]
+                : BigInteger.ZERO) > 0;
+        call.charge(STORE * 5 + UPDATE + READ + (high ? STORE * 5 : 0) + LOG);
+        if (!call.isDryRun()) {
+            history.computeIfAbsent(player, k -> new ArrayList<>()).add(gameScore);
+            if (high) {
+                highScores.computeIfAbsent(player, k -> new Object[GAME_TYPES][])[type] = gameScore;
+            }
+            emit(call, "GameCompleted", player, type, score, completion);
+        }
+        if (completion.intValue() < MIN_COMPLETION_FOR_FRAGMENT) {
+            return;
+        }
+        // _rewardFragment
+        long fragmentId = GAME_FRAGMENTS[type];
+        call.charge(READ + CALL * 3);
+        if (memoryFragment.balanceOf(player, fragmentId) > 0) {
+            return;
+        }
+        memoryFragment.mintFragment(inner, player, fragmentId, 1);
+        epochManager.recordFragmentCollection(inner, player, fragmentId);
+        call.charge(LOG);
+        emit(call, "FragmentRewarded", player, type, fragmentId);
+    }
+}
@@ -0,0 +1,40 @@
+package com.yingzhou.ledger.mock;
+
+import com.yingzhou.ledger.AbiFunction;
+
+/**
+ * Resource1155 的模拟：所有者铸造的游戏资源
+ */
+final class MockResource1155 extends MockErc1155 {
+
+    /**
+     * deploy-and-setup.js 部署时给的元数据地址
+     */
+    static final String URI = "https://metadata.yingzhou/{id}.json";
+
+    MockResource1155(MockChain chain, String address, String owner) {
+        super(chain, "Resource1155", address, owner);
+    }
+
+    @Override
+    Object call(MockCall call, AbiFunction function, Object[] args) {
+        switch (function.getName()) {
+            case "mint":
+                checkOwner(call, owner);
+                mint(call, (String) args[0], new long[]{tokenId(args[1])}, new long[]{toLong(args[2])}, false);
+                return null;
+            case "mintBatch":
+                checkOwner(call, owner);
+                mint(call, (String) args[0], toTokenIds(args[1]), toLongs(args[2]), true);
+                return null;
+            case "name":
+                return "Yingzhou Resources";
+            case "symbol":
+                return "YZR";
+            case "uri":
+                return URI;
+            default:
+                return callErc1155(call, function, args);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.yingzhou.ledger.mock;
+
+import com.yingzhou.ledger.AbiCodec;
+import com.yingzhou.ledger.AbiFunction;
+import com.yingzhou.ledger.AbiType;
+import com.yingzhou.ledger.ContractAbi;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 模拟合约的回滚，data 为节点在 error.data 中返回的回滚数据
+ * require 的原因编码为 Error(string)，自定义错误按 ABI 编码，非 payable 函数收到 ETH 等情形没有数据。
+ */
+final class MockRevert extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final byte[] ERROR_STRING_SELECTOR = {0x08, (byte) 0xc3, 0x79, (byte) 0xa0};
+    private static final byte[] PANIC_SELECTOR = {0x4e, 0x48, 0x7b, 0x71};
+    private static final AbiType STRING = AbiType.tuple(List.of(AbiType.of("string")), List.of("reason"));
+    private static final AbiType UINT = AbiType.tuple(List.of(AbiType.of("uint256")), List.of("code"));
+
+    /**
+     * 算术溢出的 Panic 代码
+     */
+    static final int PANIC_OVERFLOW = 0x11;
+    /**
+     * 枚举参数越界的 Panic 代码
+     */
+    static final int PANIC_ENUM = 0x21;
+    /**
+     * 数组下标越界的 Panic 代码
+     */
+    static final int PANIC_INDEX = 0x32;
+
+    private final byte[] data;
+
+    private MockRevert(String message, byte[] data) {
+        super(message, null, false, false);
+        this.data = data;
+    }
+
+    /**
+     * require(false, reason)
+     */
+    static MockRevert reason(String reason) {
+        return new MockRevert(reason, concat(ERROR_STRING_SELECTOR, AbiCodec.encode(STRING, reason)));
+    }
+
+    /**
+     * 合约 ABI 中声明的自定义错误
+     *
+     * @throws IllegalArgumentException ABI 中没有该错误
+     */
+    static MockRevert error(ContractAbi abi, String name, Object... args) {
+        AbiFunction error = abi.error(name);
+        if (error == null) {
+            throw new IllegalArgumentException(abi.getName() + " 没有自定义错误 " + name);
+        }
+        return new MockRevert(name + Arrays.deepToString(args), error.encodeCall(args));
+    }
+
+    static MockRevert panic(int code) {
+        return new MockRevert("panic 0x" + Integer.toHexString(code),
+                concat(PANIC_SELECTOR, AbiCodec.encode(UINT, BigInteger.valueOf(code))));
+    }
+
+    /**
+     * 没有回滚数据（revert()、调用不存在的函数、非 payable 函数收到 ETH）
+     */
+    static MockRevert empty() {
+        return new MockRevert("", new byte[0]);
+    }
+
+    byte[] getData() {
+        return data;
+    }
+
+    /**
+     * 节点错误消息中的原因，如 "execution reverted: inactive"
+     */
+    String describe() {
+        return getMessage().isEmpty() ? "execution reverted" : "execution reverted: " + getMessage();
+    }
+
+    private static byte[] concat(byte[] selector, byte[] params) {
+        byte[] data = Arrays.copyOf(selector, selector.length + params.length);
+        System.arraycopy(params, 0, data, selector.length, params.length);
+        return data;
+    }
+}
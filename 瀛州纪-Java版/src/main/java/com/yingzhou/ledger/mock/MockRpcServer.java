@@ -0,0 +1,298 @@
+package com.yingzhou.ledger.mock;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.yingzhou.ledger.LedgerClient;
+import com.yingzhou.ledger.LedgerConfig;
+import com.yingzhou.ledger.RpcException;
+import com.yingzhou.util.CommandLineOptions;
+import com.yingzhou.util.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 把 {@link MockChain} 挂到本地 HTTP 端口上的 JSON-RPC 服务，客户端照常按节点地址连接
+ *
+ * 支持单个请求和批量请求。为复现网络问题可以注入故障，按种子随机，同一种子的注入序列相同：
+ * <ul>
+ *   <li>latency / jitter：每个 HTTP 请求先等待 latency + [0, jitter) 毫秒</li>
+ *   <li>drop：以此概率直接返回 503，请求未被处理</li>
+ *   <li>lost：以此概率处理请求后不回应、断开连接（交易已进池，客户端只看到传输错误）</li>
+ *   <li>error：批次中每个调用以此概率返回 -32603，该调用未被处理</li>
+ * </ul>
+ *
+ * 游戏启动时加 -Dyingzhou.ledger=mock 即在进程内启动模拟链并连接，
+ * 注入参数用 -Dyingzhou.ledger.mock.latency=20 之类的系统属性给出。
+ */
+public final class MockRpcServer implements Closeable {
+
+    public static final String MOCK = "mock";
+    public static final String PROPERTY_PREFIX = LedgerClient.PROPERTY + ".mock.";
+
+    private final MockChain chain;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Random random;
+    private final long latencyMillis;
+    private final long jitterMillis;
+    private final double dropRate;
+    private final double lostRate;
+    private final double errorRate;
+
+    private final AtomicLong httpRequests = new AtomicLong();
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong lost = new AtomicLong();
+    private final AtomicLong injectedErrors = new AtomicLong();
+
+    private MockRpcServer(MockChain chain, int port, long seed, long latencyMillis, long jitterMillis, double dropRate,
+                          double lostRate, double errorRate) throws IOException {
+        this.chain = chain;
+        this.random = new Random(seed);
+        this.latencyMillis = latencyMillis;
+        this.jitterMillis = jitterMillis;
+        this.dropRate = dropRate;
+        this.lostRate = lostRate;
+        this.errorRate = errorRate;
+        // 小响应不等 Nagle
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+        this.executor = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "mock-rpc");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext("/", this::serve);
+        server.start();
+    }
+
+    /**
+     * 按选项启动，键与 {@link #main} 的命令行参数相同：port、mockSeed、mockLatency、mockJitter、mockDrop、mockLost、mockError，
+     * 未给出的故障注入参数都为 0（不注入）；mockTxs 大于 0 时先按 mockSeed 生成这么多笔游戏交易
+     */
+    public static MockRpcServer start(Map<String, String> options) throws IOException {
+        long seed = Long.parseLong(options.getOrDefault("mockSeed", "1"));
+        MockChain chain = new MockChain();
+        int txs = Integer.parseInt(options.getOrDefault("mockTxs", "0"));
+        if (txs > 0) {
+            int succeeded = chain.populate(seed, txs);
+            Logger.info("模拟链已生成 " + succeeded + " 笔交易，区块高度 " + chain.getBlockNumber());
+        }
+        MockRpcServer server = new MockRpcServer(chain,
+                Integer.parseInt(options.getOrDefault("port", "0")),
+                seed,
+                Long.parseLong(options.getOrDefault("mockLatency", "0")),
+                Long.parseLong(options.getOrDefault("mockJitter", "0")),
+                Double.parseDouble(options.getOrDefault("mockDrop", "0")),
+                Double.parseDouble(options.getOrDefault("mockLost", "0")),
+                Double.parseDouble(options.getOrDefault("mockError", "0")));
+        Logger.info("模拟链已启动: " + server.getUrl());
+        return server;
+    }
+
+    /**
+     * 设置了 -Dyingzhou.ledger=mock 时启动，否则返回 null；参数取自 yingzhou.ledger.mock.* 系统属性
+     */
+    public static MockRpcServer startIfRequested() {
+        if (!MOCK.equals(System.getProperty(LedgerClient.PROPERTY))) {
+            return null;
+        }
+        Map<String, String> options = new HashMap<>();
+        for (String name : System.getProperties().stringPropertyNames()) {
+            if (name.startsWith(PROPERTY_PREFIX)) {
+                String key = name.substring(PROPERTY_PREFIX.length());
+                options.put(key.equals("port") ? key
+                        : "mock" + Character.toUpperCase(key.charAt(0)) + key.substring(1), System.getProperty(name));
+            }
+        }
+        try {
+            return start(options);
+        } catch (IOException e) {
+            Logger.error("模拟链启动失败", e);
+            return null;
+        }
+    }
+
+    /**
+     * 把节点地址和合约地址指向模拟链
+     */
+    public LedgerConfig configure(LedgerConfig config) {
+        config.setRpcUrl(getUrl());
+        chain.getAddresses().forEach(config::setAddress);
+        return config;
+    }
+
+    public MockChain getChain() {
+        return chain;
+    }
+
+    public String getUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    private void serve(HttpExchange exchange) throws IOException {
+        httpRequests.incrementAndGet();
+        try (InputStream in = exchange.getRequestBody()) {
+            String body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            long delay;
+            double fate;
+            synchronized (random) {
+                delay = latencyMillis + (jitterMillis > 0 ? (long) (random.nextDouble() * jitterMillis) : 0);
+                fate = random.nextDouble();
+            }
+            if (delay > 0) {
+                Thread.sleep(delay);
+            }
+            if (fate < dropRate) {
+                dropped.incrementAndGet();
+                exchange.sendResponseHeaders(503, -1);
+                return;
+            }
+            JsonElement request;
+            try {
+                request = JsonParser.parseString(body);
+            } catch (RuntimeException e) {
+                respond(exchange, error(JsonNull.INSTANCE, -32700, "Parse error"));
+                return;
+            }
+            JsonElement response;
+            if (request.isJsonArray()) {
+                JsonArray batch = new JsonArray(request.getAsJsonArray().size());
+                for (JsonElement item : request.getAsJsonArray()) {
+                    batch.add(handle(item));
+                }
+                response = batch;
+            } else {
+                response = handle(request);
+            }
+            if (fate < dropRate + lostRate) {
+                // 已处理，但响应丢失
+                lost.incrementAndGet();
+                return;
+            }
+            respond(exchange, response);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private JsonObject handle(JsonElement item) {
+        calls.incrementAndGet();
+        if (!item.isJsonObject() || !item.getAsJsonObject().has("method")) {
+            return error(JsonNull.INSTANCE, -32600, "Invalid Request");
+        }
+        JsonObject request = item.getAsJsonObject();
+        JsonElement id = request.has("id") ? request.get("id") : JsonNull.INSTANCE;
+        boolean inject;
+        synchronized (random) {
+            inject = errorRate > 0 && random.nextDouble() < errorRate;
+        }
+        if (inject) {
+            injectedErrors.incrementAndGet();
+            return error(id, RpcException.INTERNAL_ERROR, "Internal error (injected)");
+        }
+        JsonElement params = request.get("params");
+        try {
+            JsonElement result = chain.handle(request.get("method").getAsString(),
+                    params != null && params.isJsonArray() ? params.getAsJsonArray() : new JsonArray());
+            JsonObject response = envelope(id);
+            response.add("result", result);
+            return response;
+        } catch (RpcException e) {
+            JsonObject response = error(id, e.getCode(), e.getMessage());
+            if (e.getData() != null) {
+                response.getAsJsonObject("error").add("data", e.getData());
+            }
+            return response;
+        }
+    }
+
+    private static void respond(HttpExchange exchange, JsonElement response) throws IOException {
+        byte[] bytes = response.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static JsonObject envelope(JsonElement id) {
+        JsonObject response = new JsonObject();
+        response.addProperty("jsonrpc", "2.0");
+        response.add("id", id);
+        return response;
+    }
+
+    private static JsonObject error(JsonElement id, int code, String message) {
+        JsonObject response = envelope(id);
+        JsonObject error = new JsonObject();
+        error.addProperty("code", code);
+        error.addProperty("message", message);
+        response.add("error", error);
+        return response;
+    }
+
+    public long getHttpRequests() {
+        return httpRequests.get();
+    }
+
+    public long getCalls() {
+        return calls.get();
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    public long getLost() {
+        return lost.get();
+    }
+
+    public long getInjectedErrors() {
+        return injectedErrors.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+        chain.close();
+    }
+
+    /**
+     * 独立运行，供网页前端或其他进程连接：port=8545 mockTxs=500 mockLatency=20 ...
+     */
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = CommandLineOptions.parse(args);
+        MockRpcServer server = start(options);
+        long interval = Long.parseLong(options.getOrDefault("interval", "0"));
+        if (interval > 0) {
+            server.chain.setAutomine(false);
+            server.chain.setIntervalMining(interval);
+        }
+        System.out.printf("RPC %s  chainId %d%n", server.getUrl(), MockChain.CHAIN_ID);
+        server.chain.getAddresses().forEach((name, address) -> System.out.printf("%-16s %s%n", name, address));
+        Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+        Thread.currentThread().join();
+    }
+}
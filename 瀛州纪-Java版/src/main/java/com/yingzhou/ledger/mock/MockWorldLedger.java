@@ -0,0 +1,105 @@
+package com.yingzhou.ledger.mock;
+
+import com.yingzhou.ledger.AbiFunction;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * WorldLedger 的模拟：数字生命登记和历史事件
+ * AINPC_Extended.interact 会写入交互事件，进度锚点也记在这里。世界状态停在 Genesis，熵化程度恒为 0。
+ */
+final class MockWorldLedger extends MockContract {
+
+    private final String governor;
+    private final Set<String> beings = new HashSet<>();
+    // HistoricalEvent(id, timestamp, blockNumber, eventType, actor, contentHash, metadata, isSealed)
+    private final List<Object[]> events = new ArrayList<>();
+    private final Map<String, List<BigInteger>> beingEvents = new HashMap<>();
+
+    MockWorldLedger(MockChain chain, String address, String governor) {
+        super(chain, "WorldLedger", address);
+        this.governor = governor;
+    }
+
+    @Override
+    Object call(MockCall call, AbiFunction function, Object[] args) {
+        switch (function.getName()) {
+            case "registerDigitalBeing": {
+                String being = (String) args[0];
+                require(call.getSender().equals(governor), "Only governor can call");
+                require(!beings.contains(being), "Already registered");
+                call.charge(STORE + LOG);
+                if (!call.isDryRun()) {
+                    register(being);
+                    emit(call, "DigitalBeingRegistered", being, call.getTimestamp());
+                }
+                return null;
+            }
+            case "recordEvent":
+                return recordEvent(call, toInt(args[0]), (byte[]) args[1], (String) args[2]);
+            case "getBeingEvents":
+                return beingEvents.getOrDefault((String) args[0], List.of());
+            case "getEvent": {
+                long id = toLong(args[0]);
+                require(id < events.size(), "Event does not exist");
+                return events.get((int) id);
+            }
+            case "eventCounter":
+                return events.size();
+            case "isDigitalBeing":
+                return beings.contains((String) args[0]);
+            case "worldGovernor":
+                return governor;
+            case "getEntropyLevel":
+            case "currentState":
+            case "currentEra":
+            case "birthBlock":
+                return 0;
+            case "isFinalized":
+                return false;
+            case "getWorldAge":
+                return call.getBlockNumber();
+            default:
+                throw unsupported(function);
+        }
+    }
+
+    /**
+     * 部署时由治理账户登记
+     */
+    void register(String being) {
+        beings.add(being);
+    }
+
+    boolean isDigitalBeing(String account) {
+        return beings.contains(account);
+    }
+
+    /**
+     * recordEvent，sender 须已登记为数字生命；返回事件号
+     */
+    long recordEvent(MockCall call, int eventType, byte[] contentHash, String metadata) {
+        require(beings.contains(call.getSender()), "Only digital beings can interact");
+        if (eventType > 4) {
+            throw MockRevert.panic(MockRevert.PANIC_ENUM);
+        }
+        int words = (metadata.getBytes(StandardCharsets.UTF_8).length + 31) / 32;
+        call.charge(STORE * (6 + words) + STORE + UPDATE * 2 + LOG);
+        long id = events.size();
+        if (call.isDryRun()) {
+            return id;
+        }
+        events.add(new Object[]{id, call.getTimestamp(), call.getBlockNumber(), eventType, call.getSender(),
+                contentHash, metadata, false});
+        beingEvents.computeIfAbsent(call.getSender(), k -> new ArrayList<>()).add(BigInteger.valueOf(id));
+        emit(call, "EventRecorded", id, eventType, call.getSender());
+        return id;
+    }
+}
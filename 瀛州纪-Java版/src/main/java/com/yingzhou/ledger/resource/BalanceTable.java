@@ -0,0 +1,101 @@
+package com.yingzhou.ledger.resource;
+
+import java.util.Arrays;
+
+/**
+ * long → long 的开放寻址散列表（线性探测），键为 (账户序号 &lt;&lt; 32 | tokenId)，不装箱
+ * 键恒为非负，-1 表示空槽；余额归零的条目保留在表中。调用方持有所在分段的锁。
+ */
+final class BalanceTable {
+
+    private static final long EMPTY = -1;
+
+    private long[] keys;
+    private long[] values;
+    private int size;
+
+    BalanceTable() {
+        allocate(16);
+    }
+
+    long get(long key) {
+        int mask = keys.length - 1;
+        for (int i = slot(key, mask); keys[i] != EMPTY; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return values[i];
+            }
+        }
+        return 0;
+    }
+
+    void put(long key, long value) {
+        int mask = keys.length - 1;
+        int i = slot(key, mask);
+        while (keys[i] != EMPTY) {
+            if (keys[i] == key) {
+                values[i] = value;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        if (value == 0) {
+            return;
+        }
+        keys[i] = key;
+        values[i] = value;
+        if (++size * 2 > keys.length) {
+            resize();
+        }
+    }
+
+    /**
+     * 非零条目的键和值，分别写入两个新数组
+     */
+    long[][] entries() {
+        long[] k = new long[size];
+        long[] v = new long[size];
+        int n = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY && values[i] != 0) {
+                k[n] = keys[i];
+                v[n++] = values[i];
+            }
+        }
+        return new long[][]{Arrays.copyOf(k, n), Arrays.copyOf(v, n)};
+    }
+
+    void clear() {
+        allocate(16);
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        allocate(oldKeys.length * 2);
+        int mask = keys.length - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldKeys[j] == EMPTY || oldValues[j] == 0) {
+                continue;
+            }
+            int i = slot(oldKeys[j], mask);
+            while (keys[i] != EMPTY) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = oldKeys[j];
+            values[i] = oldValues[j];
+            size++;
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+    }
+
+    private static int slot(long key, int mask) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+}
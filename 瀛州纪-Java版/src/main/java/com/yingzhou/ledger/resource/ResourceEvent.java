@@ -0,0 +1,94 @@
+package com.yingzhou.ledger.resource;
+
+import java.util.Arrays;
+
+/**
+ * 事件日志中的一条转账，字段与 ERC1155 的 TransferSingle / TransferBatch 一致
+ * 铸造时 from 为零地址。单笔转账的 ids、values 长度为 1。
+ */
+public final class ResourceEvent {
+
+    private final long sequence;
+    private final boolean batch;
+    private final String operator;
+    private final String from;
+    private final String to;
+    private final long[] ids;
+    private final long[] values;
+
+    ResourceEvent(long sequence, boolean batch, String operator, String from, String to, long[] ids, long[] values) {
+        this.sequence = sequence;
+        this.batch = batch;
+        this.operator = operator;
+        this.from = from;
+        this.to = to;
+        this.ids = ids;
+        this.values = values;
+    }
+
+    /**
+     * 在日志中的序号，从 0 连续递增
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * "TransferSingle" 或 "TransferBatch"
+     */
+    public String getEvent() {
+        return batch ? "TransferBatch" : "TransferSingle";
+    }
+
+    public boolean isBatch() {
+        return batch;
+    }
+
+    public String getOperator() {
+        return operator;
+    }
+
+    public String getFrom() {
+        return from;
+    }
+
+    public String getTo() {
+        return to;
+    }
+
+    public long[] getIds() {
+        return ids.clone();
+    }
+
+    public long[] getValues() {
+        return values.clone();
+    }
+
+    /**
+     * TransferSingle 的 id
+     */
+    public long getId() {
+        return ids[0];
+    }
+
+    /**
+     * TransferSingle 的 value
+     */
+    public long getValue() {
+        return values[0];
+    }
+
+    long[] ids() {
+        return ids;
+    }
+
+    long[] values() {
+        return values;
+    }
+
+    @Override
+    public String toString() {
+        return "#" + sequence + " " + getEvent() + " " + from + " → " + to + " ids=" + Arrays.toString(ids)
+                + " values=" + Arrays.toString(values);
+    }
+}
@@ -0,0 +1,17 @@
+package com.yingzhou.ledger.resource;
+
+/**
+ * 资源转账被拒绝，消息为 OpenZeppelin ERC1155 对应的自定义错误名（如 ERC1155InsufficientBalance）
+ */
+public class ResourceException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public ResourceException(String reason) {
+        super(reason);
+    }
+
+    public String getReason() {
+        return getMessage();
+    }
+}
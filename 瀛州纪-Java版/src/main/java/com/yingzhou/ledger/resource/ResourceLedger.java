@@ -0,0 +1,505 @@
+package com.yingzhou.ledger.resource;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 本地的 ERC-1155 资源账本，语义与 Resource1155（OpenZeppelin 5 的 ERC1155）一致
+ * 转账检查的顺序和拒绝原因（自定义错误名）与合约相同，批量转账要么全部生效、要么全部回滚。
+ *
+ * 余额按 (账户序号 &lt;&lt; 32 | tokenId) 存在基本类型散列表里，按账户分成若干段，每段一把锁；
+ * 一笔转账只锁转出方和转入方所在的段（按段号顺序加锁），不同玩家之间的转账互不阻塞。
+ * 每笔成功的转账按提交顺序写入事件日志（TransferSingle / TransferBatch），日志为定长环，只保留最近的部分。
+ *
+ * tokenId 须在 [0, 2^32) 之内，数量以 long 表示。
+ */
+public class ResourceLedger {
+
+    public static final String ZERO_ADDRESS = "0x0000000000000000000000000000000000000000";
+    public static final int DEFAULT_STRIPES = 64;
+    public static final int DEFAULT_LOG_CAPACITY = 1 << 16;
+    public static final long MAX_TOKEN_ID = 0xFFFF_FFFFL;
+
+    public static final String INSUFFICIENT_BALANCE = "ERC1155InsufficientBalance";
+    public static final String MISSING_APPROVAL = "ERC1155MissingApprovalForAll";
+    public static final String INVALID_RECEIVER = "ERC1155InvalidReceiver";
+    public static final String INVALID_SENDER = "ERC1155InvalidSender";
+    public static final String INVALID_OPERATOR = "ERC1155InvalidOperator";
+    public static final String INVALID_ARRAY_LENGTH = "ERC1155InvalidArrayLength";
+    /**
+     * 余额超出 long（合约中 uint256 溢出为 Panic(0x11)）
+     */
+    public static final String OVERFLOW = "overflow";
+
+    private enum Check {
+        TRANSFER, MINT, REPLAY
+    }
+
+    private static final class Stripe {
+        final ReentrantLock lock = new ReentrantLock();
+        final BalanceTable balances = new BalanceTable();
+        // (所有者 << 32 | 操作者) → 1
+        final BalanceTable approvals = new BalanceTable();
+    }
+
+    private final Stripe[] stripes;
+    private final int stripeMask;
+    private final String owner;
+
+    // 账户表只增不减，序号 0 为零地址
+    private final ConcurrentHashMap<String, Integer> accountIds = new ConcurrentHashMap<>();
+    private final Object accountLock = new Object();
+    private volatile String[] accountNames = new String[64];
+    private int accountCount;
+
+    private final ResourceEvent[] log;
+    private long sequence;
+
+    public ResourceLedger() {
+        this(ZERO_ADDRESS, DEFAULT_STRIPES, DEFAULT_LOG_CAPACITY);
+    }
+
+    /**
+     * @param owner       合约所有者，记为铸造事件的 operator
+     * @param stripes     锁分段数，向上取到 2 的幂
+     * @param logCapacity 事件日志保留的条数
+     */
+    public ResourceLedger(String owner, int stripes, int logCapacity) {
+        this.stripes = new Stripe[stripes <= 1 ? 1 : Integer.highestOneBit(stripes - 1) << 1];
+        for (int i = 0; i < this.stripes.length; i++) {
+            this.stripes[i] = new Stripe();
+        }
+        this.stripeMask = this.stripes.length - 1;
+        this.log = new ResourceEvent[Math.max(1, logCapacity)];
+        account(ZERO_ADDRESS);
+        this.owner = normalize(owner);
+    }
+
+    // ---- 合约操作 ----
+
+    /**
+     * 对应 safeTransferFrom，operator 为发起调用的账户（msg.sender）
+     */
+    public void safeTransferFrom(String operator, String from, String to, long id, long value) {
+        transfer(Check.TRANSFER, operator, from, to, new long[]{id}, new long[]{value}, false);
+    }
+
+    /**
+     * 对应 safeBatchTransferFrom：逐项转账，任一项余额不足时整批回滚；ids 可重复
+     */
+    public void safeBatchTransferFrom(String operator, String from, String to, long[] ids, long[] values) {
+        transfer(Check.TRANSFER, operator, from, to, ids.clone(), values.clone(), true);
+    }
+
+    /**
+     * 对应 Resource1155.mint
+     */
+    public void mint(String to, long id, long value) {
+        transfer(Check.MINT, owner, ZERO_ADDRESS, to, new long[]{id}, new long[]{value}, false);
+    }
+
+    /**
+     * 对应 Resource1155.mintBatch
+     */
+    public void mintBatch(String to, long[] ids, long[] values) {
+        transfer(Check.MINT, owner, ZERO_ADDRESS, to, ids.clone(), values.clone(), true);
+    }
+
+    public void setApprovalForAll(String account, String operator, boolean approved) {
+        int a = account(account);
+        int o = account(operator);
+        if (o == 0) {
+            throw new ResourceException(INVALID_OPERATOR);
+        }
+        Stripe stripe = stripes[a & stripeMask];
+        stripe.lock.lock();
+        try {
+            stripe.approvals.put(key(a, o), approved ? 1 : 0);
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    public boolean isApprovedForAll(String account, String operator) {
+        Integer a = accountIds.get(normalize(account));
+        Integer o = accountIds.get(normalize(operator));
+        if (a == null || o == null) {
+            return false;
+        }
+        Stripe stripe = stripes[a & stripeMask];
+        stripe.lock.lock();
+        try {
+            return stripe.approvals.get(key(a, o)) != 0;
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    public long balanceOf(String account, long id) {
+        checkId(id);
+        Integer a = accountIds.get(normalize(account));
+        if (a == null) {
+            return 0;
+        }
+        Stripe stripe = stripes[a & stripeMask];
+        stripe.lock.lock();
+        try {
+            return stripe.balances.get(key(a, id));
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /**
+     * 对应 balanceOfBatch，同时锁住涉及的各段，读到的是同一时刻的余额
+     */
+    public long[] balanceOfBatch(String[] accounts, long[] ids) {
+        if (accounts.length != ids.length) {
+            throw new ResourceException(INVALID_ARRAY_LENGTH);
+        }
+        int[] resolved = new int[accounts.length];
+        boolean[] involved = new boolean[stripes.length];
+        for (int i = 0; i < accounts.length; i++) {
+            checkId(ids[i]);
+            Integer a = accountIds.get(normalize(accounts[i]));
+            resolved[i] = a != null ? a : -1;
+            if (a != null) {
+                involved[a & stripeMask] = true;
+            }
+        }
+        long[] result = new long[accounts.length];
+        lock(involved);
+        try {
+            for (int i = 0; i < accounts.length; i++) {
+                if (resolved[i] >= 0) {
+                    result[i] = stripes[resolved[i] & stripeMask].balances.get(key(resolved[i], ids[i]));
+                }
+            }
+        } finally {
+            unlock(involved);
+        }
+        return result;
+    }
+
+    /**
+     * 账户持有的全部资源，tokenId → 数量（界面展示用，扫描所在的段）
+     */
+    public SortedMap<Long, Long> balancesOf(String account) {
+        SortedMap<Long, Long> result = new TreeMap<>();
+        Integer a = accountIds.get(normalize(account));
+        if (a == null) {
+            return result;
+        }
+        long[][] entries;
+        Stripe stripe = stripes[a & stripeMask];
+        stripe.lock.lock();
+        try {
+            entries = stripe.balances.entries();
+        } finally {
+            stripe.lock.unlock();
+        }
+        for (int i = 0; i < entries[0].length; i++) {
+            if (owner(entries[0][i]) == a) {
+                result.put(tokenId(entries[0][i]), entries[1][i]);
+            }
+        }
+        return result;
+    }
+
+    // ---- 事件日志 ----
+
+    /**
+     * 下一条事件的序号，即至今成功的转账数
+     */
+    public long getSequence() {
+        synchronized (log) {
+            return sequence;
+        }
+    }
+
+    /**
+     * 日志中仍保留的最早一条的序号
+     */
+    public long getFirstSequence() {
+        synchronized (log) {
+            return Math.max(0, sequence - log.length);
+        }
+    }
+
+    /**
+     * 从 fromSequence 起至多 max 条事件；已被覆盖的部分跳过，调用方可按序号发现缺口
+     */
+    public List<ResourceEvent> events(long fromSequence, int max) {
+        synchronized (log) {
+            long start = Math.max(fromSequence, Math.max(0, sequence - log.length));
+            long end = Math.min(sequence, start + Math.max(0, max));
+            List<ResourceEvent> result = new ArrayList<>((int) Math.max(0, end - start));
+            for (long s = start; s < end; s++) {
+                result.add(log[(int) (s % log.length)]);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * 重放另一账本（或链上）的转账事件，不检查授权；余额不足说明两边已不一致，抛出 ResourceException
+     */
+    public void apply(ResourceEvent event) {
+        move(account(event.getOperator()), account(event.getFrom()), account(event.getTo()),
+                event.ids(), event.values(), event.isBatch(), Check.REPLAY);
+    }
+
+    // ---- 快照 ----
+
+    /**
+     * 锁住所有段，取得所有余额、授权和日志序号的一致视图
+     */
+    public ResourceSnapshot snapshot() {
+        boolean[] all = new boolean[stripes.length];
+        Arrays.fill(all, true);
+        lock(all);
+        try {
+            long at;
+            synchronized (log) {
+                at = sequence;
+            }
+            String[] accounts;
+            synchronized (accountLock) {
+                accounts = Arrays.copyOf(accountNames, accountCount);
+            }
+            List<long[][]> balances = new ArrayList<>(stripes.length);
+            List<long[][]> approvals = new ArrayList<>(stripes.length);
+            for (Stripe stripe : stripes) {
+                balances.add(stripe.balances.entries());
+                approvals.add(stripe.approvals.entries());
+            }
+            long[][] merged = concat(balances);
+            return new ResourceSnapshot(at, accounts, merged[0], merged[1], concat(approvals)[0]);
+        } finally {
+            unlock(all);
+        }
+    }
+
+    /**
+     * 用快照替换全部余额和授权；快照里的账户按地址映射到本账本。
+     * 恢复本身不写转账事件，按日志重放的一方应在恢复后从快照重新开始。
+     */
+    public void restore(ResourceSnapshot snapshot) {
+        String[] names = snapshot.accounts();
+        int[] mapping = new int[names.length];
+        for (int i = 0; i < names.length; i++) {
+            mapping[i] = account(names[i]);
+        }
+        boolean[] all = new boolean[stripes.length];
+        Arrays.fill(all, true);
+        lock(all);
+        try {
+            for (Stripe stripe : stripes) {
+                stripe.balances.clear();
+                stripe.approvals.clear();
+            }
+            long[] keys = snapshot.keys();
+            long[] values = snapshot.values();
+            for (int i = 0; i < keys.length; i++) {
+                int a = mapping[owner(keys[i])];
+                stripes[a & stripeMask].balances.put(key(a, tokenId(keys[i])), values[i]);
+            }
+            for (long approval : snapshot.approvals()) {
+                int a = mapping[owner(approval)];
+                stripes[a & stripeMask].approvals.put(key(a, mapping[(int) tokenId(approval)]), 1);
+            }
+        } finally {
+            unlock(all);
+        }
+    }
+
+    public int getAccountCount() {
+        synchronized (accountLock) {
+            return accountCount;
+        }
+    }
+
+    public int getStripeCount() {
+        return stripes.length;
+    }
+
+    // ---- 内部 ----
+
+    private void transfer(Check check, String operator, String from, String to, long[] ids, long[] values,
+                          boolean batch) {
+        for (int i = 0; i < Math.min(ids.length, values.length); i++) {
+            checkId(ids[i]);
+            if (values[i] < 0) {
+                throw new IllegalArgumentException("数量不能为负: " + values[i]);
+            }
+        }
+        move(account(operator), account(from), account(to), ids, values, batch, check);
+    }
+
+    /**
+     * 在转出方和转入方所在段的锁内检查并逐项转账，失败时撤销已完成的项
+     */
+    private void move(int op, int f, int t, long[] ids, long[] values, boolean batch, Check check) {
+        boolean[] involved = new boolean[stripes.length];
+        involved[f & stripeMask] = f != 0;
+        involved[t & stripeMask] = true;
+        lock(involved);
+        try {
+            BalanceTable source = stripes[f & stripeMask].balances;
+            BalanceTable target = stripes[t & stripeMask].balances;
+            if (check == Check.TRANSFER && f != op && stripes[f & stripeMask].approvals.get(key(f, op)) == 0) {
+                throw new ResourceException(MISSING_APPROVAL);
+            }
+            if (check != Check.REPLAY && t == 0) {
+                throw new ResourceException(INVALID_RECEIVER);
+            }
+            if (check == Check.TRANSFER && f == 0) {
+                throw new ResourceException(INVALID_SENDER);
+            }
+            if (ids.length != values.length) {
+                throw new ResourceException(INVALID_ARRAY_LENGTH);
+            }
+            int i = 0;
+            try {
+                for (; i < ids.length; i++) {
+                    if (f != 0) {
+                        long k = key(f, ids[i]);
+                        long balance = source.get(k);
+                        if (balance < values[i]) {
+                            throw new ResourceException(INSUFFICIENT_BALANCE);
+                        }
+                        source.put(k, balance - values[i]);
+                    }
+                    if (t != 0) {
+                        long k = key(t, ids[i]);
+                        long balance = target.get(k);
+                        if (balance > Long.MAX_VALUE - values[i]) {
+                            if (f != 0) {
+                                source.put(key(f, ids[i]), source.get(key(f, ids[i])) + values[i]);
+                            }
+                            throw new ResourceException(OVERFLOW);
+                        }
+                        target.put(k, balance + values[i]);
+                    }
+                }
+            } catch (ResourceException e) {
+                for (int j = i - 1; j >= 0; j--) {
+                    if (t != 0) {
+                        target.put(key(t, ids[j]), target.get(key(t, ids[j])) - values[j]);
+                    }
+                    if (f != 0) {
+                        source.put(key(f, ids[j]), source.get(key(f, ids[j])) + values[j]);
+                    }
+                }
+                throw e;
+            }
+            append(batch, op, f, t, ids, values);
+        } finally {
+            unlock(involved);
+        }
+    }
+
+    /**
+     * 在段锁内写日志，同一账户的事件顺序与余额变化顺序一致
+     */
+    private void append(boolean batch, int op, int f, int t, long[] ids, long[] values) {
+        String[] names = accountNames;
+        synchronized (log) {
+            long s = sequence++;
+            log[(int) (s % log.length)] = new ResourceEvent(s, batch, names[op], names[f], names[t], ids, values);
+        }
+    }
+
+    private int account(String address) {
+        String key = normalize(address);
+        Integer id = accountIds.get(key);
+        if (id != null) {
+            return id;
+        }
+        synchronized (accountLock) {
+            id = accountIds.get(key);
+            if (id != null) {
+                return id;
+            }
+            if (accountCount == Integer.MAX_VALUE) {
+                throw new IllegalStateException("账户数超出上限");
+            }
+            String[] names = accountNames;
+            if (accountCount == names.length) {
+                names = Arrays.copyOf(names, names.length * 2);
+            }
+            names[accountCount] = key;
+            // 先发布新的名字表，再让其他线程看到序号
+            accountNames = names;
+            id = accountCount++;
+            accountIds.put(key, id);
+            return id;
+        }
+    }
+
+    /**
+     * 按段号从小到大加锁，避免两笔方向相反的转账互相等待
+     */
+    private void lock(boolean[] involved) {
+        for (int i = 0; i < involved.length; i++) {
+            if (involved[i]) {
+                stripes[i].lock.lock();
+            }
+        }
+    }
+
+    private void unlock(boolean[] involved) {
+        for (int i = involved.length - 1; i >= 0; i--) {
+            if (involved[i]) {
+                stripes[i].lock.unlock();
+            }
+        }
+    }
+
+    private static long[][] concat(List<long[][]> parts) {
+        int total = 0;
+        for (long[][] part : parts) {
+            total += part[0].length;
+        }
+        long[] keys = new long[total];
+        long[] values = new long[total];
+        int n = 0;
+        for (long[][] part : parts) {
+            System.arraycopy(part[0], 0, keys, n, part[0].length);
+            System.arraycopy(part[1], 0, values, n, part[1].length);
+            n += part[0].length;
+        }
+        return new long[][]{keys, values};
+    }
+
+    private static void checkId(long id) {
+        if (id < 0 || id > MAX_TOKEN_ID) {
+            throw new IllegalArgumentException("tokenId 超出 [0, 2^32): " + id);
+        }
+    }
+
+    static long key(int account, long id) {
+        return (long) account << 32 | id;
+    }
+
+    static int owner(long key) {
+        return (int) (key >>> 32);
+    }
+
+    static long tokenId(long key) {
+        return key & MAX_TOKEN_ID;
+    }
+
+    private static String normalize(String address) {
+        if (address == null) {
+            throw new IllegalArgumentException("地址不能为空");
+        }
+        return address.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,265 @@
+package com.yingzhou.ledger.resource;
+
+import com.yingzhou.perf.LatencyHistogram;
+import com.yingzhou.util.CommandLineOptions;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 资源账本并发压测
+ * 多个线程模拟玩家之间的单笔转账、批量转账、代理转账和授权变更，同时：
+ * 后台按固定间隔取快照，核对每种资源的总量与铸造量一致（快照须是一致视图）；
+ * 另一线程追读事件日志，重放到第二本账本。结束时核对重放结果与最终余额逐项一致，
+ * 快照序列化后恢复到新账本也一致，不一致的次数计入报告。
+ *
+ * 命令行用法:
+ * <pre>
+ *   java -cp yingzhou-java-1.0.jar com.yingzhou.ledger.resource.ResourceLoadGenerator \
+ *       [threads=4 seconds=10 accounts=1000 tokens=16 batch=4 stripes=64 snapshotMillis=100 log=1048576]
+ * </pre>
+ * log 为事件日志保留的条数，追读线程落后超过它时记为不一致（核数少、压测线程多时可调大）。
+ */
+public class ResourceLoadGenerator {
+
+    private static final long INITIAL = 1000;
+
+    private final int threads;
+    private final long seconds;
+    private final int accountCount;
+    private final int tokens;
+    private final int batch;
+    private final long snapshotMillis;
+    private final PrintStream report;
+    private final ResourceLedger ledger;
+    private final ResourceLedger mirror;
+    private final String[] accounts;
+    private final AtomicBoolean running = new AtomicBoolean(true);
+    private final LongAdder succeeded = new LongAdder();
+    private final Map<String, LongAdder> rejected = new ConcurrentHashMap<>();
+    private final LatencyHistogram transferLatency = new LatencyHistogram("转账");
+    private final LatencyHistogram snapshotLatency = new LatencyHistogram("快照");
+    private final LongAdder inconsistencies = new LongAdder();
+    private long snapshots;
+    private long replayed;
+
+    public ResourceLoadGenerator(Map<String, String> options, PrintStream report) {
+        this.threads = Integer.parseInt(options.getOrDefault("threads", "4"));
+        this.seconds = Long.parseLong(options.getOrDefault("seconds", "10"));
+        this.accountCount = Integer.parseInt(options.getOrDefault("accounts", "1000"));
+        this.tokens = Integer.parseInt(options.getOrDefault("tokens", "16"));
+        this.batch = Integer.parseInt(options.getOrDefault("batch", "4"));
+        this.snapshotMillis = Long.parseLong(options.getOrDefault("snapshotMillis", "100"));
+        int stripes = Integer.parseInt(options.getOrDefault("stripes", String.valueOf(ResourceLedger.DEFAULT_STRIPES)));
+        int logCapacity = Integer.parseInt(options.getOrDefault("log", String.valueOf(1 << 20)));
+        this.report = report;
+        this.ledger = new ResourceLedger(ResourceLedger.ZERO_ADDRESS, stripes, logCapacity);
+        this.mirror = new ResourceLedger(ResourceLedger.ZERO_ADDRESS, stripes, 1);
+        this.accounts = new String[accountCount];
+        for (int i = 0; i < accountCount; i++) {
+            accounts[i] = String.format("0x%040x", 0x10000 + i);
+        }
+    }
+
+    public void run() throws InterruptedException, IOException {
+        long[] ids = new long[tokens];
+        long[] values = new long[tokens];
+        for (int i = 0; i < tokens; i++) {
+            ids[i] = i;
+            values[i] = INITIAL;
+        }
+        for (String account : accounts) {
+            ledger.mintBatch(account, ids, values);
+        }
+
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            long seed = 1000 + i;
+            workers.add(start("资源压测-" + i, () -> work(new SplittableRandom(seed))));
+        }
+        Thread snapshotter = start("资源快照", this::snapshotLoop);
+        Thread tail = start("资源日志", this::tailLoop);
+        long begin = System.nanoTime();
+        Thread.sleep(seconds * 1000);
+        running.set(false);
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        double elapsed = (System.nanoTime() - begin) / 1e9;
+        snapshotter.join();
+        tail.join();
+
+        ResourceSnapshot last = ledger.snapshot();
+        checkTotals(last);
+        if (!mirror.snapshot().balances().equals(last.balances())) {
+            fail("事件日志重放结果与最终余额不一致");
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        last.write(bytes);
+        ResourceLedger restored = new ResourceLedger();
+        restored.restore(ResourceSnapshot.read(new ByteArrayInputStream(bytes.toByteArray())));
+        if (!restored.snapshot().balances().equals(last.balances())) {
+            fail("快照恢复后余额不一致");
+        }
+
+        long total = succeeded.sum() + rejected.values().stream().mapToLong(LongAdder::sum).sum();
+        report.printf("%d 线程 %d 个账户 %d 种资源 %d 段锁，%.1f s: %d 次操作，%.0f 次/s，成功 %d%n", threads,
+                accountCount, tokens, ledger.getStripeCount(), elapsed, total, total / elapsed, succeeded.sum());
+        report.printf("  拒绝: %s%n", new TreeMap<>(rejected));
+        LatencyHistogram.Snapshot latency = transferLatency.snapshot();
+        report.printf("  转账耗时 p50 %.1f  p99 %.1f  max %.1f (µs)%n", latency.getValueAtPercentile(50) / 1e3,
+                latency.getValueAtPercentile(99) / 1e3, latency.getMax() / 1e3);
+        LatencyHistogram.Snapshot snapshot = snapshotLatency.snapshot();
+        report.printf("  运行中快照 %d 次，每次 p50 %.2f  max %.2f (ms)；最终 %d 条余额，快照 %d 字节%n", snapshots,
+                snapshot.getValueAtPercentile(50) / 1e6, snapshot.getMax() / 1e6, last.size(), bytes.size());
+        report.printf("  事件日志 %d 条，重放 %d 条%n", ledger.getSequence(), replayed);
+        report.printf("  不一致 %d 次%n", inconsistencies.sum());
+    }
+
+    private void work(SplittableRandom random) {
+        long[] ids = new long[batch];
+        long[] values = new long[batch];
+        while (running.get()) {
+            String from = accounts[random.nextInt(accountCount)];
+            String to = accounts[random.nextInt(accountCount)];
+            int kind = random.nextInt(20);
+            long start = System.nanoTime();
+            try {
+                if (kind < 11) {
+                    ledger.safeTransferFrom(from, from, to, random.nextInt(tokens), 1 + random.nextInt(10));
+                } else if (kind < 17) {
+                    for (int i = 0; i < batch; i++) {
+                        ids[i] = random.nextInt(tokens);
+                        values[i] = 1 + random.nextInt(10);
+                    }
+                    ledger.safeBatchTransferFrom(from, from, to, ids, values);
+                } else if (kind < 19) {
+                    // 代理转账：operator 未必获得授权
+                    String operator = accounts[random.nextInt(accountCount)];
+                    ledger.safeTransferFrom(operator, from, to, random.nextInt(tokens), 1 + random.nextInt(10));
+                } else {
+                    ledger.setApprovalForAll(from, to, random.nextBoolean());
+                }
+                succeeded.increment();
+            } catch (ResourceException e) {
+                rejected.computeIfAbsent(e.getReason(), r -> new LongAdder()).increment();
+            }
+            transferLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    private void snapshotLoop() {
+        while (running.get()) {
+            long start = System.nanoTime();
+            ResourceSnapshot snapshot = ledger.snapshot();
+            snapshotLatency.record(System.nanoTime() - start);
+            checkTotals(snapshot);
+            snapshots++;
+            sleep(snapshotMillis);
+        }
+    }
+
+    private void tailLoop() {
+        long next = 0;
+        while (true) {
+            boolean stopped = !running.get();
+            List<ResourceEvent> events = ledger.events(next, 4096);
+            for (ResourceEvent event : events) {
+                if (event.getSequence() != next) {
+                    fail("事件日志出现缺口（追读落后超过日志容量）: " + next + " → " + event.getSequence());
+                    return;
+                }
+                try {
+                    mirror.apply(event);
+                } catch (ResourceException e) {
+                    fail("重放 " + event + " 失败: " + e.getReason());
+                    return;
+                }
+                next++;
+                replayed++;
+            }
+            if (events.isEmpty()) {
+                if (stopped) {
+                    return;
+                }
+                sleep(1);
+            }
+        }
+    }
+
+    private void checkTotals(ResourceSnapshot snapshot) {
+        Map<Long, Long> totals = snapshot.totals();
+        for (long id = 0; id < tokens; id++) {
+            long expected = INITIAL * accountCount;
+            if (totals.getOrDefault(id, 0L) != expected) {
+                fail("快照中资源 " + id + " 总量为 " + totals.get(id) + "，应为 " + expected);
+            }
+        }
+    }
+
+    private void fail(String message) {
+        inconsistencies.increment();
+        report.println("  不一致: " + message);
+    }
+
+    private static Thread start(String name, Runnable task) {
+        Thread thread = new Thread(task, name);
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 成功的操作数（转账、批量转账、代理转账和授权变更）
+     */
+    public long getSucceeded() {
+        return succeeded.sum();
+    }
+
+    /**
+     * 运行中取的快照数
+     */
+    public long getSnapshots() {
+        return snapshots;
+    }
+
+    /**
+     * 追读并重放到第二本账本的事件数
+     */
+    public long getReplayed() {
+        return replayed;
+    }
+
+    public long getEventCount() {
+        return ledger.getSequence();
+    }
+
+    /**
+     * 快照总量、日志重放、快照恢复三项核对中出现不一致的次数
+     */
+    public long getInconsistencies() {
+        return inconsistencies.sum();
+    }
+
+    public static void main(String[] args) throws Exception {
+        new ResourceLoadGenerator(CommandLineOptions.parse(args), System.out).run();
+    }
+}
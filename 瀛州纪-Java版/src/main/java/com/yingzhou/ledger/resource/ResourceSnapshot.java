@@ -0,0 +1,138 @@
+package com.yingzhou.ledger.resource;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 资源账本在某一时刻的一致快照：所有非零余额和授权，以及当时的事件日志序号
+ * 不可变；键中的账户序号指向快照自带的账户表，恢复到其他账本实例时按地址重新映射。
+ */
+public final class ResourceSnapshot {
+
+    private static final int MAGIC = 0x595A5231; // "YZR1"
+    private static final short VERSION = 1;
+
+    private final long sequence;
+    private final String[] accounts;
+    private final long[] keys;
+    private final long[] values;
+    private final long[] approvals;
+
+    ResourceSnapshot(long sequence, String[] accounts, long[] keys, long[] values, long[] approvals) {
+        this.sequence = sequence;
+        this.accounts = accounts;
+        this.keys = keys;
+        this.values = values;
+        this.approvals = approvals;
+    }
+
+    /**
+     * 快照之后的第一条事件的序号
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * 有非零余额的 (账户, tokenId) 数
+     */
+    public int size() {
+        return keys.length;
+    }
+
+    /**
+     * 账户 → tokenId → 余额，只含非零余额，按地址和 tokenId 排序
+     */
+    public Map<String, Map<Long, Long>> balances() {
+        Map<String, Map<Long, Long>> result = new TreeMap<>();
+        for (int i = 0; i < keys.length; i++) {
+            result.computeIfAbsent(accounts[ResourceLedger.owner(keys[i])], a -> new TreeMap<>())
+                    .put(ResourceLedger.tokenId(keys[i]), values[i]);
+        }
+        return result;
+    }
+
+    /**
+     * 每种资源的总量
+     */
+    public Map<Long, Long> totals() {
+        Map<Long, Long> result = new TreeMap<>();
+        for (int i = 0; i < keys.length; i++) {
+            result.merge(ResourceLedger.tokenId(keys[i]), values[i], Math::addExact);
+        }
+        return result;
+    }
+
+    public void write(OutputStream stream) throws IOException {
+        DataOutputStream out = new DataOutputStream(stream);
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+        out.writeLong(sequence);
+        out.writeInt(accounts.length);
+        for (String account : accounts) {
+            out.writeUTF(account);
+        }
+        out.writeInt(keys.length);
+        for (int i = 0; i < keys.length; i++) {
+            out.writeLong(keys[i]);
+            out.writeLong(values[i]);
+        }
+        out.writeInt(approvals.length);
+        for (long approval : approvals) {
+            out.writeLong(approval);
+        }
+        out.flush();
+    }
+
+    public static ResourceSnapshot read(InputStream stream) throws IOException {
+        DataInputStream in = new DataInputStream(stream);
+        if (in.readInt() != MAGIC || in.readShort() != VERSION) {
+            throw new IOException("不是资源账本快照，或版本不符");
+        }
+        long sequence = in.readLong();
+        String[] accounts = new String[in.readInt()];
+        for (int i = 0; i < accounts.length; i++) {
+            accounts[i] = in.readUTF();
+        }
+        int count = in.readInt();
+        long[] keys = new long[count];
+        long[] values = new long[count];
+        for (int i = 0; i < count; i++) {
+            keys[i] = in.readLong();
+            values[i] = in.readLong();
+            if (ResourceLedger.owner(keys[i]) >= accounts.length || values[i] < 0) {
+                throw new IOException("快照中的余额记录损坏");
+            }
+        }
+        long[] approvals = new long[in.readInt()];
+        for (int i = 0; i < approvals.length; i++) {
+            approvals[i] = in.readLong();
+            if (ResourceLedger.owner(approvals[i]) >= accounts.length
+                    || ResourceLedger.tokenId(approvals[i]) >= accounts.length) {
+                throw new IOException("快照中的授权记录损坏");
+            }
+        }
+        return new ResourceSnapshot(sequence, accounts, keys, values, approvals);
+    }
+
+    String[] accounts() {
+        return accounts;
+    }
+
+    long[] keys() {
+        return keys;
+    }
+
+    long[] values() {
+        return values;
+    }
+
+    long[] approvals() {
+        return approvals;
+    }
+}
@@ -0,0 +1,625 @@
+package com.yingzhou.ledger.tx;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.yingzhou.ledger.AbiEncoder;
+import com.yingzhou.ledger.AbiFunction;
+import com.yingzhou.ledger.Hex;
+import com.yingzhou.ledger.LedgerClient;
+import com.yingzhou.ledger.RpcException;
+import com.yingzhou.perf.CacheStats;
+import com.yingzhou.perf.LatencyHistogram;
+import com.yingzhou.perf.PerfMonitor;
+import com.yingzhou.util.Logger;
+
+import java.io.Closeable;
+import java.math.BigInteger;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 异步交易管线
+ *
+ * {@link #submit} 只编码调用数据并入队，立即返回 future，游戏线程从不等待链。后台线程每一轮:
+ * <ol>
+ *   <li>把估算 gas、取 nonce、取 gas 价格合并为一个批量请求；gas 按函数缓存（估算值上浮 20%），同一函数只估算一次</li>
+ *   <li>按提交顺序在本地分配连续的 nonce，至多 maxPending 笔同时在途，本轮要发的交易合并为一个批量请求</li>
+ *   <li>所有在途交易的回执合并为一个批量请求查询</li>
+ * </ol>
+ * 失败处理：传输错误原样重发；nonce 冲突时从节点重新取 nonce 后重发；gas 不足回滚时重新估算再发一次；
+ * 超过 replaceAfter 仍未上链时以同一 nonce 提价 20% 替换。合约回滚（估算或执行时）不重试，
+ * future 以 {@link RpcException} 失败，消息含回滚原因。
+ *
+ * 交易由节点用解锁账户签名（eth_sendTransaction），即 Hardhat 本地节点的默认账户。
+ * 启动游戏时加 -Dyingzhou.ledger.from=0x... 开启。
+ */
+public class TxPipeline implements Closeable {
+
+    public static final String FROM_PROPERTY = "yingzhou.ledger.from";
+    public static final int DEFAULT_MAX_PENDING = 16;
+    public static final long DEFAULT_POLL_MILLIS = 200;
+    public static final long DEFAULT_REPLACE_AFTER_MILLIS = 15_000;
+    public static final int DEFAULT_MAX_ATTEMPTS = 5;
+
+    private static final long GAS_PRICE_TTL_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private static final class Tx {
+        final String contract;
+        final AbiFunction abi;
+        final String to;
+        final String data;
+        final BigInteger value;
+        final long submittedAt = System.nanoTime();
+        final CompletableFuture<TxReceipt> future = new CompletableFuture<>();
+        final List<String> hashes = new ArrayList<>(1);
+        long gas;
+        long nonce = -1;
+        BigInteger gasPrice;
+        long sentAt;
+        int attempts;
+        int errors;
+        boolean resend;
+        boolean reestimated;
+
+        Tx(String contract, AbiFunction abi, String to, String data, BigInteger value) {
+            this.contract = contract;
+            this.abi = abi;
+            this.to = to;
+            this.data = data;
+            this.value = value;
+        }
+    }
+
+    private final LedgerClient client;
+    private final String from;
+    private final ConcurrentLinkedQueue<Tx> submitted = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean wakeupQueued = new AtomicBoolean();
+    private final LongAdder submittedCount = new LongAdder();
+    private final CacheStats gasStats = new CacheStats("gas估算");
+    private final LatencyHistogram confirmLatency = new LatencyHistogram("交易确认");
+
+    // 以下只在工作线程访问
+    private final ArrayDeque<Tx> queue = new ArrayDeque<>();
+    private final List<Tx> pending = new ArrayList<>();
+    private final Map<AbiFunction, Long> gasCache = new HashMap<>();
+    private long nextNonce = -1;
+    private boolean resync = true;
+    private BigInteger gasPrice;
+    private long gasPriceAt;
+    private boolean failing;
+
+    private volatile int maxPending = DEFAULT_MAX_PENDING;
+    private volatile long replaceAfterNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_REPLACE_AFTER_MILLIS);
+    private volatile int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+    private volatile int pendingCount;
+    private volatile long confirmed;
+    private volatile long failed;
+    private volatile long retried;
+    private volatile long replaced;
+    private ScheduledExecutorService worker;
+
+    /**
+     * @param from 发送账户，须已在节点上解锁
+     */
+    public TxPipeline(LedgerClient client, String from) {
+        this.client = client;
+        this.from = from.toLowerCase(Locale.ROOT);
+        PerfMonitor.registerCache(gasStats);
+    }
+
+    /**
+     * 设置了 -Dyingzhou.ledger.from 且账本客户端存在时开启管线，否则返回 null
+     */
+    public static TxPipeline startIfRequested(LedgerClient client) {
+        String from = System.getProperty(FROM_PROPERTY);
+        if (client == null || from == null || from.isBlank()) {
+            return null;
+        }
+        TxPipeline pipeline = new TxPipeline(client, from);
+        pipeline.start(DEFAULT_POLL_MILLIS);
+        Logger.info("交易管线已开启，发送账户 " + from);
+        return pipeline;
+    }
+
+    /**
+     * 在后台线程上运行，有交易提交时立即处理一轮，有在途交易时每隔 pollMillis 查询回执
+     */
+    public synchronized void start(long pollMillis) {
+        if (worker != null) {
+            return;
+        }
+        worker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "ledger-tx");
+            thread.setDaemon(true);
+            return thread;
+        });
+        worker.scheduleWithFixedDelay(this::poll, pollMillis, pollMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 提交一笔交易，不等待。future 在交易执行成功后完成，在工作线程上回调
+     *
+     * @throws IllegalArgumentException 合约或函数不存在、是只读函数、参数不匹配、合约地址未配置
+     */
+    public CompletableFuture<TxReceipt> submit(String contract, String function, Object... args) {
+        return submitWithValue(BigInteger.ZERO, contract, function, args);
+    }
+
+    /**
+     * 附带 ETH 的交易（如 Market.buy）
+     */
+    public CompletableFuture<TxReceipt> submitWithValue(BigInteger value, String contract, String function,
+                                                       Object... args) {
+        AbiFunction abi = client.getAbis().contract(contract).function(function);
+        if (abi.isView()) {
+            throw new IllegalArgumentException(abi + " 是只读函数，用 LedgerClient.call 调用");
+        }
+        Tx tx = new Tx(contract, abi, client.address(contract), AbiEncoder.encodeCallHex(abi, args), value);
+        submitted.add(tx);
+        submittedCount.increment();
+        wakeup();
+        return tx.future;
+    }
+
+    private void wakeup() {
+        ScheduledExecutorService running;
+        synchronized (this) {
+            running = worker;
+        }
+        if (running != null && wakeupQueued.compareAndSet(false, true)) {
+            running.execute(this::poll);
+        }
+    }
+
+    private void poll() {
+        wakeupQueued.set(false);
+        try {
+            if (submitted.isEmpty() && queue.isEmpty() && pending.isEmpty()) {
+                return;
+            }
+            runRound();
+            if (failing) {
+                Logger.info("交易管线已恢复");
+                failing = false;
+            }
+            if (!queue.isEmpty() && pending.size() < maxPending) {
+                // 本轮腾出了在途名额，不等下一个轮询周期
+                wakeup();
+            }
+        } catch (RuntimeException e) {
+            // 节点不可用时每轮都会重试，只在开始失败时记一次
+            if (!failing) {
+                Logger.warn("交易管线处理失败: " + e.getMessage());
+                failing = true;
+            }
+        } finally {
+            pendingCount = queue.size() + pending.size() + submitted.size();
+        }
+    }
+
+    /**
+     * 一轮：估算 → 发送 → 查回执，每步一个批量请求
+     */
+    private void runRound() {
+        for (Tx tx; (tx = submitted.poll()) != null; ) {
+            Long gas = gasCache.get(tx.abi);
+            if (gas != null) {
+                gasStats.hit();
+                tx.gas = gas;
+            }
+            queue.add(tx);
+        }
+        prepare();
+        send();
+        pollReceipts();
+    }
+
+    private void prepare() {
+        long now = System.nanoTime();
+        CompletableFuture<JsonElement> nonceFuture = null;
+        if (resync) {
+            nonceFuture = request("eth_getTransactionCount", params(from, "pending"));
+        }
+        CompletableFuture<JsonElement> priceFuture = null;
+        if (gasPrice == null || now - gasPriceAt > GAS_PRICE_TTL_NANOS) {
+            priceFuture = request("eth_gasPrice", new JsonArray());
+        }
+        // 同一函数本轮只估算一笔，其余等缓存
+        List<Tx> estimating = new ArrayList<>();
+        List<CompletableFuture<JsonElement>> estimates = new ArrayList<>();
+        Set<AbiFunction> requested = new HashSet<>();
+        for (Tx tx : queue) {
+            if (tx.gas == 0 && (tx.reestimated || requested.add(tx.abi))) {
+                gasStats.miss();
+                estimating.add(tx);
+                estimates.add(request("eth_estimateGas", params(transaction(tx, false))));
+            }
+        }
+        if (nonceFuture == null && priceFuture == null && estimates.isEmpty()) {
+            return;
+        }
+        client.flush();
+
+        if (nonceFuture != null) {
+            nextNonce = Hex.decodeQuantity(await(nonceFuture).getAsString());
+            resync = false;
+            renumber();
+        }
+        if (priceFuture != null) {
+            gasPrice = new BigInteger(await(priceFuture).getAsString().substring(2), 16);
+            gasPriceAt = now;
+        }
+        for (int i = 0; i < estimating.size(); i++) {
+            Tx tx = estimating.get(i);
+            try {
+                long gas = Hex.decodeQuantity(await(estimates.get(i)).getAsString());
+                // 参数长度不同用量也不同，留出余量；仍然不够时按回执重新估算
+                long limit = gas + gas / 5;
+                gasCache.merge(tx.abi, limit, Math::max);
+                tx.gas = limit;
+            } catch (CompletionException e) {
+                Throwable error = LedgerClient.unwrap(e);
+                if (isUncertain(error)) {
+                    retryLater(tx, error);
+                } else if (tx != queue.peekFirst() || !pending.isEmpty()) {
+                    // 可能依赖前面尚未上链的交易，等它们上链后再估算
+                    continue;
+                } else {
+                    fail(tx, client.describe(tx.contract, tx.abi, error));
+                }
+            }
+        }
+        for (Tx tx : queue) {
+            if (tx.gas == 0 && !tx.reestimated && gasCache.containsKey(tx.abi)) {
+                gasStats.hit();
+                tx.gas = gasCache.get(tx.abi);
+            }
+        }
+    }
+
+    private void send() {
+        List<Tx> sending = new ArrayList<>();
+        List<CompletableFuture<JsonElement>> results = new ArrayList<>();
+        long now = System.nanoTime();
+        for (Tx tx : pending) {
+            if (tx.resend) {
+                sending.add(tx);
+            } else if (now - tx.sentAt > replaceAfterNanos) {
+                // 以同一 nonce 提价替换
+                BigInteger bumped = tx.gasPrice.multiply(BigInteger.valueOf(6)).divide(BigInteger.valueOf(5));
+                tx.gasPrice = gasPrice.max(bumped);
+                sending.add(tx);
+                replaced++;
+            }
+        }
+        int fresh = sending.size();
+        while (!queue.isEmpty() && queue.peekFirst().gas > 0 && pending.size() + sending.size() - fresh < maxPending) {
+            Tx tx = queue.pollFirst();
+            if (!tx.reestimated) {
+                // 排队期间缓存可能因 gas 耗尽调高过
+                tx.gas = Math.max(tx.gas, gasCache.getOrDefault(tx.abi, 0L));
+            }
+            tx.nonce = nextNonce++;
+            tx.gasPrice = gasPrice;
+            sending.add(tx);
+        }
+        if (sending.isEmpty()) {
+            return;
+        }
+        for (Tx tx : sending) {
+            results.add(request("eth_sendTransaction", params(transaction(tx, true))));
+            tx.attempts++;
+        }
+        client.flush();
+
+        List<Tx> requeue = new ArrayList<>();
+        for (int i = 0; i < sending.size(); i++) {
+            Tx tx = sending.get(i);
+            boolean isNew = i >= fresh;
+            try {
+                String hash = await(results.get(i)).getAsString();
+                tx.hashes.add(hash.toLowerCase(Locale.ROOT));
+                tx.sentAt = System.nanoTime();
+                tx.resend = false;
+                if (isNew) {
+                    pending.add(tx);
+                }
+            } catch (CompletionException e) {
+                Throwable error = LedgerClient.unwrap(e);
+                String message = String.valueOf(error.getMessage()).toLowerCase(Locale.ROOT);
+                if (isUncertain(error) || (!isNew && message.contains("nonce too high"))) {
+                    // 不确定节点是否收到，或前一个 nonce 的重发也出了错、这笔还没轮到，用同一 nonce 原样重发
+                    if (isNew) {
+                        pending.add(tx);
+                    }
+                    tx.resend = true;
+                    tx.errors++;
+                    if (tx.errors >= maxAttempts) {
+                        pending.remove(tx);
+                        fail(tx, error);
+                        resync = true;
+                    }
+                } else if (!tx.hashes.isEmpty()) {
+                    // 替换被拒（已在池中、提价不够或已上链），继续等原来那笔的回执
+                    tx.resend = false;
+                    tx.sentAt = System.nanoTime();
+                } else if (!isNew && message.contains("nonce")) {
+                    pending.remove(tx);
+                    fail(tx, new RpcException(RpcException.TRANSPORT, "交易发送结果未知（nonce " + tx.nonce
+                            + " 已被占用）: " + error.getMessage(), null));
+                } else if (message.contains("out of gas") && !tx.reestimated) {
+                    // Hardhat 自动出块时 gas 耗尽的交易已上链（占用了 nonce），错误直接返回，处理同回执
+                    pending.remove(tx);
+                    reestimate(tx);
+                    requeue.add(tx);
+                    resync = true;
+                } else if (isNew && message.contains("nonce") && tx.errors + 1 < maxAttempts) {
+                    // nonce 与节点不一致（账户在别处也发了交易，或前一笔被拒留下空档），重新取 nonce 后重发
+                    tx.errors++;
+                    tx.nonce = -1;
+                    requeue.add(tx);
+                    resync = true;
+                    retried++;
+                } else {
+                    // 节点拒绝或执行回滚（含传输错误后的重发），Hardhat 自动出块时回滚的交易也会占用 nonce
+                    pending.remove(tx);
+                    fail(tx, client.describe(tx.contract, tx.abi, error));
+                    resync = true;
+                }
+            }
+        }
+        for (int i = requeue.size() - 1; i >= 0; i--) {
+            queue.addFirst(requeue.get(i));
+        }
+    }
+
+    private void pollReceipts() {
+        List<Tx> polled = new ArrayList<>();
+        List<CompletableFuture<JsonElement>> receipts = new ArrayList<>();
+        for (Tx tx : pending) {
+            for (String hash : tx.hashes) {
+                polled.add(tx);
+                receipts.add(request("eth_getTransactionReceipt", params(hash)));
+            }
+        }
+        if (receipts.isEmpty()) {
+            return;
+        }
+        client.flush();
+        List<Tx> done = new ArrayList<>();
+        for (int i = 0; i < polled.size(); i++) {
+            Tx tx = polled.get(i);
+            JsonElement element;
+            try {
+                element = await(receipts.get(i));
+            } catch (CompletionException e) {
+                continue;
+            }
+            if (element == null || !element.isJsonObject() || done.contains(tx)) {
+                continue;
+            }
+            done.add(tx);
+            onReceipt(tx, element.getAsJsonObject());
+        }
+        pending.removeAll(done);
+    }
+
+    private void onReceipt(Tx tx, JsonObject receipt) {
+        String hash = receipt.get("transactionHash").getAsString();
+        long block = Hex.decodeQuantity(receipt.get("blockNumber").getAsString());
+        long gasUsed = Hex.decodeQuantity(receipt.get("gasUsed").getAsString());
+        boolean success = !receipt.has("status") || Hex.decodeQuantity(receipt.get("status").getAsString()) == 1;
+        if (success) {
+            gasCache.merge(tx.abi, gasUsed + gasUsed / 5, Math::max);
+            long latency = System.nanoTime() - tx.submittedAt;
+            confirmLatency.record(latency);
+            confirmed++;
+            tx.future.complete(new TxReceipt(hash, tx.nonce, block, gasUsed, tx.attempts, latency));
+        } else if (gasUsed >= tx.gas && !tx.reestimated) {
+            reestimate(tx);
+            queue.addFirst(tx);
+        } else {
+            fail(tx, new RpcException(-32000, tx.abi + " 在区块 " + block + " 回滚: " + hash, null));
+        }
+    }
+
+    /**
+     * 重新取 nonce 之后：节点 pending nonce 之上、还没拿到过哈希的在途交易节点都没收到，放回队首按原顺序重新分配，
+     * 前面失败的交易留下的空档由它们补上，新交易也不会分到它们正占着的 nonce
+     */
+    private void renumber() {
+        List<Tx> unsent = new ArrayList<>();
+        for (Tx tx : pending) {
+            if (tx.nonce < nextNonce) {
+                continue;
+            }
+            if (tx.hashes.isEmpty()) {
+                unsent.add(tx);
+            } else {
+                // 节点池里排着的交易占着自己的 nonce
+                nextNonce = Math.max(nextNonce, tx.nonce + 1);
+            }
+        }
+        if (unsent.isEmpty()) {
+            return;
+        }
+        unsent.sort(Comparator.comparingLong(tx -> tx.nonce));
+        pending.removeAll(unsent);
+        for (int i = unsent.size() - 1; i >= 0; i--) {
+            Tx tx = unsent.get(i);
+            tx.nonce = -1;
+            tx.resend = false;
+            queue.addFirst(tx);
+        }
+    }
+
+    /**
+     * gas 耗尽：缓存的估算对这组参数不够，重新估算后用新 nonce 再发一次
+     * 新的估算按最大值并入缓存，同一函数的后续交易按较贵的分支给 gas，不再反复耗尽
+     */
+    private void reestimate(Tx tx) {
+        tx.reestimated = true;
+        tx.gas = 0;
+        tx.nonce = -1;
+        tx.hashes.clear();
+        retried++;
+    }
+
+    private JsonObject transaction(Tx tx, boolean withGas) {
+        JsonObject object = new JsonObject();
+        object.addProperty("from", from);
+        object.addProperty("to", tx.to);
+        object.addProperty("data", tx.data);
+        if (tx.value.signum() > 0) {
+            object.addProperty("value", "0x" + tx.value.toString(16));
+        }
+        if (withGas) {
+            object.addProperty("gas", Hex.encodeQuantity(tx.gas));
+            object.addProperty("gasPrice", "0x" + tx.gasPrice.toString(16));
+            object.addProperty("nonce", Hex.encodeQuantity(tx.nonce));
+        }
+        return object;
+    }
+
+    private void retryLater(Tx tx, Throwable error) {
+        tx.errors++;
+        if (tx.errors >= maxAttempts) {
+            fail(tx, error);
+        }
+    }
+
+    private void fail(Tx tx, Throwable error) {
+        queue.remove(tx);
+        failed++;
+        tx.future.completeExceptionally(error);
+    }
+
+    /**
+     * 调用是否执行过无从得知的错误：传输错误，以及不带 data 的 Internal error（节点内部出错或批量响应缺项）。
+     * 这些按原样重发，已上链的交易原样重发时节点返回原来的哈希；Hardhat 执行回滚也用 -32603，但带 data
+     */
+    private static boolean isUncertain(Throwable error) {
+        if (!(error instanceof RpcException rpc)) {
+            return true;
+        }
+        return rpc.getCode() == RpcException.TRANSPORT
+                || (rpc.getCode() == RpcException.INTERNAL_ERROR && rpc.getData() == null);
+    }
+
+    private CompletableFuture<JsonElement> request(String method, JsonArray params) {
+        return client.request(method, params);
+    }
+
+    private static JsonArray params(Object... values) {
+        JsonArray array = new JsonArray(values.length);
+        for (Object value : values) {
+            if (value instanceof JsonElement) {
+                array.add((JsonElement) value);
+            } else {
+                array.add(value.toString());
+            }
+        }
+        return array;
+    }
+
+    private static JsonElement await(CompletableFuture<JsonElement> future) {
+        return future.join();
+    }
+
+    public void setMaxPending(int maxPending) {
+        this.maxPending = Math.max(1, maxPending);
+    }
+
+    public void setReplaceAfterMillis(long millis) {
+        this.replaceAfterNanos = TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    public void setMaxAttempts(int maxAttempts) {
+        this.maxAttempts = Math.max(1, maxAttempts);
+    }
+
+    public String getFrom() {
+        return from;
+    }
+
+    /**
+     * 已提交尚未有结果的交易数（上一轮结束时）
+     */
+    public int getPendingCount() {
+        return pendingCount;
+    }
+
+    public long getSubmittedCount() {
+        return submittedCount.sum();
+    }
+
+    public long getConfirmedCount() {
+        return confirmed;
+    }
+
+    public long getFailedCount() {
+        return failed;
+    }
+
+    /**
+     * nonce 冲突或 gas 不足后重发的次数
+     */
+    public long getRetriedCount() {
+        return retried;
+    }
+
+    public long getReplacedCount() {
+        return replaced;
+    }
+
+    public CacheStats getGasStats() {
+        return gasStats;
+    }
+
+    public LatencyHistogram getConfirmLatency() {
+        return confirmLatency;
+    }
+
+    /**
+     * 停止后台线程，尚未上链的交易以异常结束（已发出的仍可能上链），并注销 gas 估算的缓存统计；账本客户端由调用方关闭
+     */
+    @Override
+    public void close() {
+        ScheduledExecutorService running;
+        synchronized (this) {
+            running = worker;
+            worker = null;
+        }
+        if (running != null) {
+            running.shutdownNow();
+            try {
+                running.awaitTermination(2, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        List<Tx> unfinished = new ArrayList<>(pending);
+        unfinished.addAll(queue);
+        unfinished.addAll(submitted);
+        for (Tx tx : unfinished) {
+            tx.future.completeExceptionally(new RpcException(RpcException.TRANSPORT, "交易管线已关闭", null));
+        }
+        PerfMonitor.unregisterCache(gasStats);
+    }
+}
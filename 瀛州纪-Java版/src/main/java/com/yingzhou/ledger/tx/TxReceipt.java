@@ -0,0 +1,61 @@
+package com.yingzhou.ledger.tx;
+
+/**
+ * 已上链且执行成功的交易
+ */
+public final class TxReceipt {
+
+    private final String hash;
+    private final long nonce;
+    private final long blockNumber;
+    private final long gasUsed;
+    private final int attempts;
+    private final long latencyNanos;
+
+    TxReceipt(String hash, long nonce, long blockNumber, long gasUsed, int attempts, long latencyNanos) {
+        this.hash = hash;
+        this.nonce = nonce;
+        this.blockNumber = blockNumber;
+        this.gasUsed = gasUsed;
+        this.attempts = attempts;
+        this.latencyNanos = latencyNanos;
+    }
+
+    /**
+     * 最终上链的那一笔的哈希（被替换过时与最初发送的不同）
+     */
+    public String getHash() {
+        return hash;
+    }
+
+    public long getNonce() {
+        return nonce;
+    }
+
+    public long getBlockNumber() {
+        return blockNumber;
+    }
+
+    public long getGasUsed() {
+        return gasUsed;
+    }
+
+    /**
+     * 发送次数，含重试和提价替换
+     */
+    public int getAttempts() {
+        return attempts;
+    }
+
+    /**
+     * 从提交到拿到回执
+     */
+    public long getLatencyNanos() {
+        return latencyNanos;
+    }
+
+    @Override
+    public String toString() {
+        return hash + " nonce=" + nonce + " block=" + blockNumber + " gasUsed=" + gasUsed;
+    }
+}
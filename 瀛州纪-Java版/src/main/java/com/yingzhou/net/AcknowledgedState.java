@@ -0,0 +1,43 @@
+package com.yingzhou.net;
+
+import com.yingzhou.game.player.MotionState;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 快照中服务器确认的本机玩家状态
+ * 不可变，由接收线程创建后交给游戏循环线程对账
+ */
+final class AcknowledgedState {
+
+    final long inputSequence;
+    final float x;
+    final float y;
+    final float z;
+    final float velocityY;
+    final float yaw;
+    final float pitch;
+    final boolean jumping;
+
+    private AcknowledgedState(ByteBuffer payload) {
+        inputSequence = payload.getInt() & 0xFFFFFFFFL;
+        x = payload.getFloat();
+        y = payload.getFloat();
+        z = payload.getFloat();
+        velocityY = payload.getFloat();
+        yaw = payload.getFloat();
+        pitch = payload.getFloat();
+        jumping = payload.get() != 0;
+    }
+
+    /**
+     * 从快照头读取（紧接在帧号之后）
+     */
+    static AcknowledgedState read(ByteBuffer payload) {
+        return new AcknowledgedState(payload);
+    }
+
+    void copyTo(MotionState state) {
+        state.set(x, y, z, velocityY, yaw, pitch, jumping);
+    }
+}
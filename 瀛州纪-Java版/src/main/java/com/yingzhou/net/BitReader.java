@@ -0,0 +1,60 @@
+package com.yingzhou.net;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 位流读取器，与 {@link BitWriter} 对应
+ */
+final class BitReader {
+
+    private ByteBuffer in;
+    private long accumulator;
+    private int available;
+
+    void reset(ByteBuffer in) {
+        this.in = in;
+        accumulator = 0;
+        available = 0;
+    }
+
+    /**
+     * 读取 bits 位无符号值（bits 不超过 32）
+     */
+    int read(int bits) {
+        while (available < bits) {
+            if (!in.hasRemaining()) {
+                throw new IllegalArgumentException("快照位流提前结束");
+            }
+            accumulator |= (long) (in.get() & 0xFF) << available;
+            available += 8;
+        }
+        int value = (int) (accumulator & ((1L << bits) - 1));
+        accumulator >>>= bits;
+        available -= bits;
+        return value;
+    }
+
+    /**
+     * 读取 bits 位并按补码扩展符号
+     */
+    int readSigned(int bits) {
+        int shift = 32 - bits;
+        return (read(bits) << shift) >> shift;
+    }
+
+    boolean readBoolean() {
+        return read(1) != 0;
+    }
+
+    int readVarUint() {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 4) {
+            int group = read(5);
+            value |= (group & 0xF) << shift;
+            if ((group & 0x10) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("快照位流损坏：变长整数过长");
+    }
+}
@@ -0,0 +1,59 @@
+package com.yingzhou.net;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 位流写入器
+ * 低位在前，凑满一个字节就写入目标缓冲区
+ */
+final class BitWriter {
+
+    private ByteBuffer out;
+    private long accumulator;
+    private int pending;
+
+    void reset(ByteBuffer out) {
+        this.out = out;
+        accumulator = 0;
+        pending = 0;
+    }
+
+    /**
+     * 写入 value 的低 bits 位（bits 不超过 32）
+     */
+    void write(int value, int bits) {
+        accumulator |= (value & ((1L << bits) - 1)) << pending;
+        pending += bits;
+        while (pending >= 8) {
+            out.put((byte) accumulator);
+            accumulator >>>= 8;
+            pending -= 8;
+        }
+    }
+
+    void writeBoolean(boolean value) {
+        write(value ? 1 : 0, 1);
+    }
+
+    /**
+     * 变长无符号整数：每组 4 位数据 + 1 位延续标志
+     */
+    void writeVarUint(int value) {
+        while ((value & ~0xF) != 0) {
+            write((value & 0xF) | 0x10, 5);
+            value >>>= 4;
+        }
+        write(value, 5);
+    }
+
+    /**
+     * 补齐最后一个字节
+     */
+    void flush() {
+        if (pending > 0) {
+            out.put((byte) accumulator);
+        }
+        accumulator = 0;
+        pending = 0;
+    }
+}
@@ -0,0 +1,273 @@
+package com.yingzhou.net;
+
+import com.yingzhou.game.GameEngine;
+import com.yingzhou.game.input.InputSnapshot;
+import com.yingzhou.game.player.MotionState;
+import com.yingzhou.game.player.Player;
+import com.yingzhou.game.player.PlayerPhysics;
+import javafx.geometry.Point3D;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 本机玩家的客户端预测与服务器对账
+ *
+ * 本机输入按服务器帧率切成带序号的输入，每条立即用 {@link PlayerPhysics} 推进预测状态并发给服务器，
+ * 按键响应不必等待往返。快照带回服务器处理到的输入序号和处理后的状态：
+ * 预测从该状态出发重放尚未确认的输入，得到修正后的预测。
+ *
+ * 显示位置在前后两个预测帧之间插值（游戏循环通常快于服务器帧率），
+ * 对账产生的跳变记为偏移量并在约 {@value #SMOOTHING_SECONDS} 秒内衰减掉。
+ *
+ * 对账状态由接收线程交付，其余全部在游戏循环线程上运行。
+ */
+public class ClientPrediction implements GameEngine.PlayerDriver {
+
+    // 最多保留的未确认输入（30帧/秒时约8秒），超出时丢弃最旧的
+    private static final int HISTORY_SIZE = 256;
+    // 确认帧上预测与服务器相差超过此距离记为预测失败
+    private static final double MISPREDICTION_THRESHOLD = 0.01;
+    // 修正量超过此距离（出生、被服务器拉回）直接跳过去，不做平滑
+    private static final double SNAP_DISTANCE = 2.0;
+    private static final double SMOOTHING_SECONDS = 0.1;
+    // 游戏循环卡顿后最多补推进的服务器帧数
+    private static final int MAX_CATCH_UP_TICKS = 5;
+
+    private final WorldClient client;
+    private final long tickNanos;
+    private final double tickSeconds;
+    private final MotionState predicted = new MotionState();
+    private final InputSnapshot command = new InputSnapshot();
+    private final AtomicReference<AcknowledgedState> latestAck = new AtomicReference<>();
+
+    // 已发送未确认的输入及发送时的预测结果，环形缓冲
+    private final long[] sequences = new long[HISTORY_SIZE];
+    private final int[] heldMasks = new int[HISTORY_SIZE];
+    private final int[] pressedMasks = new int[HISTORY_SIZE];
+    private final float[] mouseX = new float[HISTORY_SIZE];
+    private final float[] mouseY = new float[HISTORY_SIZE];
+    private final double[] predictedX = new double[HISTORY_SIZE];
+    private final double[] predictedY = new double[HISTORY_SIZE];
+    private final double[] predictedZ = new double[HISTORY_SIZE];
+    private int historyHead;
+    private int historySize;
+    private long nextSequence = 1;
+
+    // 尚未切成输入的本机输入
+    private long accumulatedNanos;
+    private int pendingPressed;
+    private double pendingMouseX;
+    private double pendingMouseY;
+
+    // 上一预测帧的位置，显示时在它与当前预测之间插值
+    private double previousX;
+    private double previousY;
+    private double previousZ;
+    private double offsetX;
+    private double offsetY;
+    private double offsetZ;
+    private boolean initialized;
+
+    private volatile long acknowledgements;
+    private volatile long mispredictions;
+    private volatile long snaps;
+    private volatile long replayedInputs;
+    private volatile double maxError;
+    private volatile long lastAcknowledgedSequence;
+
+    public ClientPrediction(WorldClient client) {
+        this.client = client;
+        this.tickNanos = 1_000_000_000L / client.getTickHz();
+        // 与服务器逻辑帧的帧间隔计算方式一致
+        this.tickSeconds = tickNanos / 1_000_000_000.0;
+    }
+
+    /**
+     * 接收线程交付服务器确认的状态，只保留最新一份
+     */
+    void acknowledge(AcknowledgedState state) {
+        latestAck.set(state);
+    }
+
+    @Override
+    public void drive(Player player, InputSnapshot input, double deltaTime) {
+        if (!initialized) {
+            predicted.copyFrom(player.getMotion());
+            previousX = predicted.getX();
+            previousY = predicted.getY();
+            previousZ = predicted.getZ();
+            initialized = true;
+        }
+        AcknowledgedState ack = latestAck.getAndSet(null);
+        if (ack != null) {
+            reconcile(ack);
+        }
+
+        pendingPressed |= input.getPressedMask();
+        pendingMouseX += input.getMouseDeltaX();
+        pendingMouseY += input.getMouseDeltaY();
+        accumulatedNanos = Math.min(accumulatedNanos + Math.round(deltaTime * 1e9), tickNanos * MAX_CATCH_UP_TICKS);
+        while (accumulatedNanos >= tickNanos) {
+            accumulatedNanos -= tickNanos;
+            sendCommand(input.getHeldMask());
+        }
+        present(player, deltaTime);
+    }
+
+    private void sendCommand(int heldMask) {
+        // 服务器收到的是 float，预测必须使用相同的值；舍入余量留给下一条
+        float dx = (float) pendingMouseX;
+        float dy = (float) pendingMouseY;
+        pendingMouseX -= dx;
+        pendingMouseY -= dy;
+        command.set(heldMask, pendingPressed, dx, dy);
+        pendingPressed = 0;
+
+        previousX = predicted.getX();
+        previousY = predicted.getY();
+        previousZ = predicted.getZ();
+        PlayerPhysics.step(predicted, command, tickSeconds);
+
+        if (historySize == HISTORY_SIZE) {
+            historyHead = (historyHead + 1) % HISTORY_SIZE;
+            historySize--;
+        }
+        int slot = (historyHead + historySize) % HISTORY_SIZE;
+        long sequence = nextSequence++;
+        sequences[slot] = sequence;
+        heldMasks[slot] = heldMask;
+        pressedMasks[slot] = command.getPressedMask();
+        mouseX[slot] = dx;
+        mouseY[slot] = dy;
+        predictedX[slot] = predicted.getX();
+        predictedY[slot] = predicted.getY();
+        predictedZ[slot] = predicted.getZ();
+        historySize++;
+
+        client.sendInput(sequence, command);
+    }
+
+    private void reconcile(AcknowledgedState ack) {
+        // 丢弃已确认的输入，同时比较确认帧上的预测与服务器结果；
+        // 首次对账之前的预测从本地出生点出发，不参与比较
+        while (historySize > 0 && sequences[historyHead] <= ack.inputSequence) {
+            if (sequences[historyHead] == ack.inputSequence && acknowledgements > 0) {
+                double dx = predictedX[historyHead] - ack.x;
+                double dy = predictedY[historyHead] - ack.y;
+                double dz = predictedZ[historyHead] - ack.z;
+                double error = Math.sqrt(dx * dx + dy * dy + dz * dz);
+                if (error > maxError) {
+                    maxError = error;
+                }
+                if (error > MISPREDICTION_THRESHOLD) {
+                    mispredictions++;
+                }
+            }
+            historyHead = (historyHead + 1) % HISTORY_SIZE;
+            historySize--;
+        }
+        acknowledgements++;
+        lastAcknowledgedSequence = ack.inputSequence;
+
+        double oldX = predicted.getX();
+        double oldY = predicted.getY();
+        double oldZ = predicted.getZ();
+        ack.copyTo(predicted);
+        for (int i = 0; i < historySize; i++) {
+            int slot = (historyHead + i) % HISTORY_SIZE;
+            command.set(heldMasks[slot], pressedMasks[slot], mouseX[slot], mouseY[slot]);
+            PlayerPhysics.step(predicted, command, tickSeconds);
+            predictedX[slot] = predicted.getX();
+            predictedY[slot] = predicted.getY();
+            predictedZ[slot] = predicted.getZ();
+        }
+        replayedInputs += historySize;
+
+        double correctionX = predicted.getX() - oldX;
+        double correctionY = predicted.getY() - oldY;
+        double correctionZ = predicted.getZ() - oldZ;
+        previousX += correctionX;
+        previousY += correctionY;
+        previousZ += correctionZ;
+        if (correctionX * correctionX + correctionY * correctionY + correctionZ * correctionZ > SNAP_DISTANCE * SNAP_DISTANCE) {
+            offsetX = 0;
+            offsetY = 0;
+            offsetZ = 0;
+            snaps++;
+        } else {
+            // 显示位置保持不动，修正量随后逐渐衰减
+            offsetX -= correctionX;
+            offsetY -= correctionY;
+            offsetZ -= correctionZ;
+        }
+    }
+
+    private void present(Player player, double deltaTime) {
+        double decay = Math.exp(-deltaTime / SMOOTHING_SECONDS);
+        offsetX *= decay;
+        offsetY *= decay;
+        offsetZ *= decay;
+        double alpha = accumulatedNanos / (double) tickNanos;
+        double x = previousX + (predicted.getX() - previousX) * alpha + offsetX;
+        double y = previousY + (predicted.getY() - previousY) * alpha + offsetY;
+        double z = previousZ + (predicted.getZ() - previousZ) * alpha + offsetZ;
+        // 视角不等服务器帧，尚未发出的鼠标位移立即生效
+        double yaw = predicted.getYaw() + pendingMouseX * PlayerPhysics.MOUSE_SENSITIVITY;
+        yaw = ((yaw % 360) + 360) % 360;
+        double pitch = Math.max(-89, Math.min(89, predicted.getPitch() + pendingMouseY * PlayerPhysics.MOUSE_SENSITIVITY));
+        player.moveTo(new Point3D(x, Math.max(PlayerPhysics.GROUND_LEVEL, y), z), yaw, pitch);
+    }
+
+    /**
+     * 当前预测状态（最新一条输入之后），只应在游戏循环线程读取
+     */
+    public MotionState getPredictedState() {
+        return predicted;
+    }
+
+    /**
+     * 已发送的输入条数
+     */
+    public long getCommandsSent() {
+        return nextSequence - 1;
+    }
+
+    public long getLastAcknowledgedSequence() {
+        return lastAcknowledgedSequence;
+    }
+
+    /**
+     * 已对账的快照数
+     */
+    public long getAcknowledgements() {
+        return acknowledgements;
+    }
+
+    /**
+     * 确认帧上预测与服务器不一致的次数
+     */
+    public long getMispredictions() {
+        return mispredictions;
+    }
+
+    /**
+     * 修正过大而直接跳变的次数（含首次对齐出生点）
+     */
+    public long getSnaps() {
+        return snaps;
+    }
+
+    /**
+     * 对账时累计重放的输入条数
+     */
+    public long getReplayedInputs() {
+        return replayedInputs;
+    }
+
+    /**
+     * 确认帧上预测与服务器的最大距离
+     */
+    public double getMaxError() {
+        return maxError;
+    }
+}
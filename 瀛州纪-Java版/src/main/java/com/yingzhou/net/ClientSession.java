@@ -0,0 +1,157 @@
+package com.yingzhou.net;
+
+import com.yingzhou.game.player.Player;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+
+/**
+ * 服务器端的一个客户端连接
+ * 只在服务器线程访问
+ *
+ * 控制消息（欢迎、回复、纪元状态）按序可靠发送；快照只保留最新一份，
+ * 客户端来不及接收时旧快照直接被替换，不会在服务器堆积。
+ *
+ * 快照相对基准增量编码。TCP 保证写出的字节按序到达，因此完整写入套接字的快照
+ * 即可作为下一份的基准，无需客户端确认；被替换掉的快照从未发出，不影响基准。
+ */
+final class ClientSession {
+
+    // 控制消息积压超过此数视为客户端失去响应
+    private static final int MAX_QUEUED_MESSAGES = 256;
+    // 输入缓冲的帧数，吸收网络抖动，也是积压造成的最大附加延迟
+    private static final int INPUT_BUFFER = 6;
+
+    final int id;
+    final SocketChannel channel;
+    final SelectionKey key;
+    final ByteBuffer readBuffer = ByteBuffer.allocate(Protocol.MAX_FRAME + 2);
+
+    Player player;
+    final InputCommandQueue inputs = new InputCommandQueue(INPUT_BUFFER);
+    // 最近一次应用的输入序号，随快照回送给客户端对账
+    long lastInputSequence;
+    long bytesIn;
+    long bytesOut;
+    long snapshotsReplaced;
+
+    // 快照增量编码状态，由 SnapshotEncoder 读写
+    final EntityTable baseline = new EntityTable(16);
+    final EntityTable pendingTable = new EntityTable(16);
+    long snapshotSequence;
+    int slot;
+
+    private final DirectBufferPool snapshotPool;
+    private final ArrayDeque<ByteBuffer> outbound = new ArrayDeque<>();
+    private ByteBuffer pendingSnapshot;
+    // 已写出一部分的快照不能被替换，否则客户端收到半帧
+    private boolean snapshotInFlight;
+    private boolean closing;
+
+    ClientSession(int id, SocketChannel channel, SelectionKey key, DirectBufferPool snapshotPool) {
+        this.id = id;
+        this.channel = channel;
+        this.key = key;
+        this.snapshotPool = snapshotPool;
+    }
+
+    boolean isWelcomed() {
+        return player != null;
+    }
+
+    /**
+     * 排队一条控制消息
+     *
+     * @return false 表示积压过多，应断开
+     */
+    boolean queue(ByteBuffer message) {
+        if (outbound.size() >= MAX_QUEUED_MESSAGES) {
+            return false;
+        }
+        outbound.add(message);
+        return true;
+    }
+
+    /**
+     * 正在发送的快照写完之前不能编码新快照：待发送表仍是它的内容
+     */
+    boolean canEncodeSnapshot() {
+        return !snapshotInFlight;
+    }
+
+    /**
+     * 用最新快照替换尚未开始发送的旧快照，旧缓冲区归还池中
+     */
+    void offerSnapshot(ByteBuffer snapshot) {
+        if (pendingSnapshot != null) {
+            snapshotsReplaced++;
+            snapshotPool.release(pendingSnapshot);
+        }
+        pendingSnapshot = snapshot;
+    }
+
+    /**
+     * 尽量写出积压的数据
+     * 已写出一部分的快照先写完，控制消息才能接着写，否则会插进快照帧的中间
+     *
+     * @return 是否已全部写完
+     */
+    boolean flush() throws IOException {
+        if (snapshotInFlight && !writeSnapshot()) {
+            return false;
+        }
+        while (!outbound.isEmpty()) {
+            ByteBuffer head = outbound.peek();
+            bytesOut += channel.write(head);
+            if (head.hasRemaining()) {
+                return false;
+            }
+            outbound.poll();
+        }
+        return pendingSnapshot == null || writeSnapshot();
+    }
+
+    /**
+     * @return 快照是否已写完
+     */
+    private boolean writeSnapshot() throws IOException {
+        bytesOut += channel.write(pendingSnapshot);
+        if (pendingSnapshot.hasRemaining()) {
+            snapshotInFlight = true;
+            return false;
+        }
+        snapshotPool.release(pendingSnapshot);
+        pendingSnapshot = null;
+        snapshotInFlight = false;
+        baseline.swap(pendingTable);
+        return true;
+    }
+
+    /**
+     * 连接关闭时归还未发送的快照缓冲区
+     */
+    void releaseBuffers() {
+        if (pendingSnapshot != null) {
+            snapshotPool.release(pendingSnapshot);
+            pendingSnapshot = null;
+        }
+    }
+
+    boolean hasPendingWrites() {
+        return !outbound.isEmpty() || pendingSnapshot != null;
+    }
+
+    void markClosing() {
+        closing = true;
+    }
+
+    /**
+     * 已发送拒绝/告别消息，写完即关闭
+     */
+    boolean isClosing() {
+        return closing;
+    }
+}
@@ -0,0 +1,58 @@
+package com.yingzhou.net;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+/**
+ * 定长直接缓冲区池
+ * 直接缓冲区写入套接字时不需要再复制到临时的本地内存，但分配和回收代价高，因此循环使用。
+ * 非线程安全，由单个线程（服务器线程）独占使用。
+ */
+public final class DirectBufferPool {
+
+    private final int bufferSize;
+    private final int maxPooled;
+    private final ArrayDeque<ByteBuffer> free = new ArrayDeque<>();
+    private long allocated;
+
+    public DirectBufferPool(int bufferSize, int maxPooled) {
+        this.bufferSize = bufferSize;
+        this.maxPooled = maxPooled;
+    }
+
+    /**
+     * 取出一个已清空的缓冲区
+     */
+    public ByteBuffer acquire() {
+        ByteBuffer buffer = free.poll();
+        if (buffer == null) {
+            allocated++;
+            return ByteBuffer.allocateDirect(bufferSize);
+        }
+        return buffer;
+    }
+
+    /**
+     * 归还缓冲区，池满时交给GC回收
+     */
+    public void release(ByteBuffer buffer) {
+        if (buffer.capacity() != bufferSize || !buffer.isDirect()) {
+            throw new IllegalArgumentException("不属于此缓冲池的缓冲区");
+        }
+        if (free.size() < maxPooled) {
+            buffer.clear();
+            free.push(buffer);
+        }
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * 累计新分配的缓冲区数量，稳定运行时应不再增长
+     */
+    public long getAllocatedCount() {
+        return allocated;
+    }
+}
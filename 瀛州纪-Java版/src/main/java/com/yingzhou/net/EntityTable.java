@@ -0,0 +1,93 @@
+package com.yingzhou.net;
+
+import java.util.Arrays;
+
+/**
+ * 按ID升序排列的量化实体状态
+ * 服务器用它保存每个客户端的基准快照，客户端用它还原完整快照
+ */
+final class EntityTable {
+
+    long sequence;
+    int size;
+    int[] ids;
+    int[] x;
+    int[] y;
+    int[] z;
+    int[] yaw;
+
+    EntityTable(int capacity) {
+        ids = new int[capacity];
+        x = new int[capacity];
+        y = new int[capacity];
+        z = new int[capacity];
+        yaw = new int[capacity];
+    }
+
+    void clear() {
+        size = 0;
+    }
+
+    /**
+     * 追加一个实体，调用方保证ID递增
+     */
+    void add(int id, int qx, int qy, int qz, int qyaw) {
+        if (size == ids.length) {
+            int capacity = Math.max(16, size * 2);
+            ids = Arrays.copyOf(ids, capacity);
+            x = Arrays.copyOf(x, capacity);
+            y = Arrays.copyOf(y, capacity);
+            z = Arrays.copyOf(z, capacity);
+            yaw = Arrays.copyOf(yaw, capacity);
+        }
+        ids[size] = id;
+        x[size] = qx;
+        y[size] = qy;
+        z[size] = qz;
+        yaw[size] = qyaw;
+        size++;
+    }
+
+    /**
+     * 与另一张表交换内容，避免复制
+     */
+    void swap(EntityTable other) {
+        long otherSequence = other.sequence;
+        other.sequence = sequence;
+        sequence = otherSequence;
+        int otherSize = other.size;
+        other.size = size;
+        size = otherSize;
+
+        int[] swapped = other.ids;
+        other.ids = ids;
+        ids = swapped;
+        swapped = other.x;
+        other.x = x;
+        x = swapped;
+        swapped = other.y;
+        other.y = y;
+        y = swapped;
+        swapped = other.z;
+        other.z = z;
+        z = swapped;
+        swapped = other.yaw;
+        other.yaw = yaw;
+        yaw = swapped;
+    }
+
+    WorldSnapshot toSnapshot(long tick) {
+        int[] snapshotIds = Arrays.copyOf(ids, size);
+        float[] fx = new float[size];
+        float[] fy = new float[size];
+        float[] fz = new float[size];
+        float[] fyaw = new float[size];
+        for (int i = 0; i < size; i++) {
+            fx[i] = Protocol.dequantizePosition(x[i]);
+            fy[i] = Protocol.dequantizePosition(y[i]);
+            fz[i] = Protocol.dequantizePosition(z[i]);
+            fyaw[i] = Protocol.dequantizeYaw(yaw[i]);
+        }
+        return new WorldSnapshot(tick, snapshotIds, fx, fy, fz, fyaw);
+    }
+}
@@ -0,0 +1,76 @@
+package com.yingzhou.net;
+
+import com.yingzhou.game.input.InputSnapshot;
+
+/**
+ * 服务器端的客户端输入缓冲
+ * 客户端每个服务器帧发送一条带序号的输入，服务器每帧取一条应用，
+ * 保证服务器推进的步数、顺序与客户端预测一致。网络抖动时输入在此排队；
+ * 积压超过上限（客户端时钟偏快或长时间卡顿后突发）时把最旧的两条合并，
+ * 按下和鼠标位移不会丢失，由此产生的偏差由客户端对账修正。
+ */
+final class InputCommandQueue {
+
+    private final long[] sequences;
+    private final int[] held;
+    private final int[] pressed;
+    private final float[] mouseX;
+    private final float[] mouseY;
+    private int head;
+    private int size;
+    private long merged;
+
+    InputCommandQueue(int capacity) {
+        sequences = new long[capacity];
+        held = new int[capacity];
+        pressed = new int[capacity];
+        mouseX = new float[capacity];
+        mouseY = new float[capacity];
+    }
+
+    void add(long sequence, int heldMask, int pressedMask, float dx, float dy) {
+        if (size == sequences.length) {
+            int oldest = head;
+            head = (head + 1) % sequences.length;
+            size--;
+            pressed[head] |= pressed[oldest];
+            mouseX[head] += mouseX[oldest];
+            mouseY[head] += mouseY[oldest];
+            merged++;
+        }
+        int tail = (head + size) % sequences.length;
+        sequences[tail] = sequence;
+        held[tail] = heldMask;
+        pressed[tail] = pressedMask;
+        mouseX[tail] = dx;
+        mouseY[tail] = dy;
+        size++;
+    }
+
+    /**
+     * 取出最旧的一条写入 target
+     *
+     * @return 输入序号，没有排队的输入时返回 -1 且不修改 target
+     */
+    long poll(InputSnapshot target) {
+        if (size == 0) {
+            return -1;
+        }
+        target.set(held[head], pressed[head], mouseX[head], mouseY[head]);
+        long sequence = sequences[head];
+        head = (head + 1) % sequences.length;
+        size--;
+        return sequence;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * 因积压被合并的输入条数
+     */
+    long getMergedCount() {
+        return merged;
+    }
+}
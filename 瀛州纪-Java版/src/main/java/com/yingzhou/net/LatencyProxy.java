@@ -0,0 +1,204 @@
+package com.yingzhou.net;
+
+import com.yingzhou.util.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * 模拟网络延迟的 TCP 转发
+ * 两个方向各自把收到的数据推迟 延迟±抖动 后再转发，数据顺序不变（与真实 TCP 一致）。
+ * 仅用于回环测试。
+ */
+final class LatencyProxy implements Closeable {
+
+    private final InetSocketAddress upstream;
+    private final long delayNanos;
+    private final long jitterNanos;
+    private final SplittableRandom random;
+    private final Selector selector;
+    private final ServerSocketChannel serverChannel;
+    private final List<Direction> directions = new ArrayList<>();
+    private final ByteBuffer readBuffer = ByteBuffer.allocate(64 * 1024);
+    private volatile boolean running;
+    private Thread thread;
+
+    /**
+     * 一个方向上待转发的数据
+     */
+    private static final class Direction {
+        final SocketChannel from;
+        final SocketChannel to;
+        final ArrayDeque<ByteBuffer> chunks = new ArrayDeque<>();
+        final ArrayDeque<Long> dueTimes = new ArrayDeque<>();
+        long lastDue;
+        Direction peer;
+
+        Direction(SocketChannel from, SocketChannel to) {
+            this.from = from;
+            this.to = to;
+        }
+    }
+
+    LatencyProxy(InetSocketAddress upstream, long delayNanos, long jitterNanos, long seed) throws IOException {
+        this.upstream = upstream;
+        this.delayNanos = delayNanos;
+        this.jitterNanos = jitterNanos;
+        this.random = new SplittableRandom(seed);
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress("127.0.0.1", 0));
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    void start() {
+        running = true;
+        thread = new Thread(this::run, "latency-proxy");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    private void run() {
+        try {
+            while (running) {
+                // 等到最早一块数据到期，没有待转发数据时定期醒来检查是否已关闭
+                long timeoutMillis = 10;
+                for (Direction direction : directions) {
+                    if (!direction.dueTimes.isEmpty()) {
+                        long wait = (direction.dueTimes.peek() - System.nanoTime()) / 1_000_000;
+                        timeoutMillis = Math.max(1, Math.min(timeoutMillis, wait));
+                    }
+                }
+                selector.select(timeoutMillis);
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else if (key.isReadable()) {
+                        read((Direction) key.attachment());
+                    }
+                }
+                deliver(System.nanoTime());
+            }
+        } catch (IOException e) {
+            Logger.warn("延迟代理退出: " + e.getMessage());
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel client;
+        while ((client = serverChannel.accept()) != null) {
+            SocketChannel server = SocketChannel.open(upstream);
+            for (SocketChannel channel : new SocketChannel[] {client, server}) {
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            }
+            Direction up = new Direction(client, server);
+            Direction down = new Direction(server, client);
+            up.peer = down;
+            down.peer = up;
+            client.register(selector, SelectionKey.OP_READ, up);
+            server.register(selector, SelectionKey.OP_READ, down);
+            directions.add(up);
+            directions.add(down);
+        }
+    }
+
+    private void read(Direction direction) {
+        readBuffer.clear();
+        int read;
+        try {
+            read = direction.from.read(readBuffer);
+        } catch (IOException e) {
+            read = -1;
+        }
+        if (read < 0) {
+            closePair(direction);
+            return;
+        }
+        if (read == 0) {
+            return;
+        }
+        readBuffer.flip();
+        ByteBuffer chunk = ByteBuffer.allocate(read);
+        chunk.put(readBuffer).flip();
+        long jitter = jitterNanos == 0 ? 0 : random.nextLong(-jitterNanos, jitterNanos + 1);
+        // 不早于前一块，保持字节顺序
+        long due = Math.max(direction.lastDue, System.nanoTime() + delayNanos + jitter);
+        direction.lastDue = due;
+        direction.chunks.add(chunk);
+        direction.dueTimes.add(due);
+    }
+
+    private void deliver(long now) {
+        for (int i = directions.size() - 1; i >= 0; i--) {
+            Direction direction = directions.get(i);
+            try {
+                while (!direction.dueTimes.isEmpty() && direction.dueTimes.peek() <= now) {
+                    ByteBuffer chunk = direction.chunks.peek();
+                    direction.to.write(chunk);
+                    if (chunk.hasRemaining()) {
+                        // 对端接收缓冲区已满，下一轮继续
+                        break;
+                    }
+                    direction.chunks.poll();
+                    direction.dueTimes.poll();
+                }
+            } catch (IOException e) {
+                closePair(direction);
+            }
+        }
+    }
+
+    private void closePair(Direction direction) {
+        directions.remove(direction);
+        directions.remove(direction.peer);
+        for (SocketChannel channel : new SocketChannel[] {direction.from, direction.to}) {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // 已断开
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        selector.wakeup();
+        if (thread != null) {
+            try {
+                thread.join(2000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        for (Direction direction : new ArrayList<>(directions)) {
+            closePair(direction);
+        }
+        serverChannel.close();
+        selector.close();
+    }
+}
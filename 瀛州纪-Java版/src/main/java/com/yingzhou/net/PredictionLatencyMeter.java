@@ -0,0 +1,276 @@
+package com.yingzhou.net;
+
+import com.yingzhou.game.GameEngine;
+import com.yingzhou.game.input.Action;
+import com.yingzhou.game.input.InputSnapshot;
+import com.yingzhou.util.CommandLineOptions;
+import com.yingzhou.util.Logger;
+import javafx.geometry.Point3D;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.util.Map;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 客户端预测延迟测量
+ * 进程内启动世界服务器，两个无界面客户端经模拟延迟的转发连接：A 按脚本走动、起跳、转身，
+ * 每轮最后半秒静止，B 持续绕圈。按游戏帧率推进两个客户端的引擎，测量：
+ * <ul>
+ *   <li>按键响应：A 从静止开始前进到画面移动的时间，对比等服务器确认的时间</li>
+ *   <li>对账：确认帧上预测与服务器的偏差、重放的输入数</li>
+ *   <li>平滑度：移动期间画面停顿（与上一帧位置相同）的帧比例，
+ *       A 自身对比直接显示服务器位置，B 在 A 画面中对比直接显示最新快照</li>
+ * </ul>
+ *
+ * 命令行用法:
+ * <pre>
+ *   java -cp yingzhou-java-1.0.jar com.yingzhou.net.PredictionLatencyMeter \
+ *       seconds=20 latency=80 jitter=10 hz=30 fps=60
+ * </pre>
+ * latency 为单程延迟（毫秒），往返时间约为其两倍。
+ */
+public class PredictionLatencyMeter {
+
+    private static final double CYCLE_SECONDS = 3.0;
+
+    private final long seconds;
+    private final long latencyNanos;
+    private final long jitterNanos;
+    private final int serverHz;
+    private final int fps;
+    private final PrintStream report;
+
+    // 按键响应
+    private long responseSamples;
+    private double predictedResponseSum;
+    private double authoritativeResponseSum;
+    private double predictedResponseMax;
+
+    // 平滑度：移动中的帧与其中停顿的帧
+    private long selfMovingFrames;
+    private long selfPredictedStalls;
+    private long selfServerStalls;
+    private long remoteMovingFrames;
+    private long remoteInterpolatedStalls;
+    private long remoteLatestStalls;
+
+    // 结束时的汇总
+    private double mispredictionRate = 1;
+    private boolean connectedAtEnd;
+
+    public PredictionLatencyMeter(Map<String, String> options, PrintStream report) {
+        this.seconds = Long.parseLong(options.getOrDefault("seconds", "20"));
+        this.latencyNanos = Long.parseLong(options.getOrDefault("latency", "80")) * 1_000_000L;
+        this.jitterNanos = Long.parseLong(options.getOrDefault("jitter", "10")) * 1_000_000L;
+        this.serverHz = Integer.parseInt(options.getOrDefault("hz", "30"));
+        this.fps = Integer.parseInt(options.getOrDefault("fps", "60"));
+        this.report = report;
+    }
+
+    public void run() throws IOException {
+        try (WorldServer server = new WorldServer(new GameEngine(), new InetSocketAddress("127.0.0.1", 0), serverHz, 16)) {
+            server.start();
+            try (LatencyProxy proxy = new LatencyProxy(new InetSocketAddress("127.0.0.1", server.getPort()),
+                latencyNanos, jitterNanos, 42)) {
+                proxy.start();
+                InetSocketAddress address = new InetSocketAddress("127.0.0.1", proxy.getPort());
+                report.printf("单程延迟 %d ms ±%d ms, 服务器 %d 帧/秒, 客户端 %d 帧/秒, 测量 %d 秒%n",
+                    latencyNanos / 1_000_000, jitterNanos / 1_000_000, serverHz, fps, seconds);
+
+                GameEngine engineA = new GameEngine();
+                GameEngine engineB = new GameEngine();
+                try (WorldClient clientA = WorldClient.connect(address); WorldClient clientB = WorldClient.connect(address)) {
+                    clientA.attach(engineA);
+                    clientB.attach(engineB);
+                    simulate(engineA, clientA, engineB, clientB);
+                    printSummary(clientA);
+                }
+            }
+        }
+    }
+
+    private void simulate(GameEngine engineA, WorldClient clientA, GameEngine engineB, WorldClient clientB) {
+        long frameNanos = 1_000_000_000L / fps;
+        long frames = seconds * fps;
+        InputSnapshot inputA = new InputSnapshot();
+        InputSnapshot inputB = new InputSnapshot();
+        int remoteId = clientB.getPlayerId();
+
+        Point3D lastShown = null;
+        float[] lastServer = null;
+        float[] lastInterpolated = null;
+        float[] lastLatest = null;
+        Point3D responseOrigin = null;
+        float[] responseServerOrigin = null;
+        long responseStart = 0;
+        long predictedResponse = -1;
+        long authoritativeResponse = -1;
+
+        long next = System.nanoTime();
+        // 第一秒用于握手后的对齐，不计入统计
+        long warmupFrames = fps;
+        for (long frame = 0; frame < frames + warmupFrames; frame++) {
+            double t = (double) frame / fps;
+            double phase = t % CYCLE_SECONDS;
+            boolean forward = phase < 1.2;
+            boolean startForward = frame % Math.round(CYCLE_SECONDS * fps) == 0;
+            int held = forward ? Action.MOVE_FORWARD.mask() : 0;
+            int pressed = 0;
+            double mouse = 0;
+            if (phase >= 2.0 && phase < 2.5) {
+                held = Action.MOVE_LEFT.mask();
+                mouse = 4;
+            }
+            if (Math.abs(phase - 1.5) < 0.5 / fps) {
+                pressed = Action.JUMP.mask();
+            }
+            inputA.set(held, pressed, mouse, 0);
+            // B 一直向前并匀速转向，走一个圆
+            inputB.set(Action.MOVE_FORWARD.mask(), 0, 3, 0);
+
+            long now = System.nanoTime();
+            engineA.tick(frameNanos, inputA);
+            engineB.tick(frameNanos, inputB);
+
+            Point3D shown = engineA.getPlayer().getPosition();
+            float[] server = entry(clientA.getLatestSnapshot(), clientA.getPlayerId());
+            float[] interpolated = entry(clientA.sampleSnapshot(now), remoteId);
+            float[] latest = entry(clientA.getLatestSnapshot(), remoteId);
+            boolean measuring = frame >= warmupFrames;
+
+            if (measuring && startForward) {
+                // 上一轮的测量未完成时放弃
+                responseOrigin = shown;
+                responseServerOrigin = server;
+                responseStart = now;
+                predictedResponse = -1;
+                authoritativeResponse = -1;
+            }
+            if (responseOrigin != null) {
+                if (predictedResponse < 0 && !shown.equals(responseOrigin)) {
+                    predictedResponse = now - responseStart;
+                }
+                if (authoritativeResponse < 0 && server != null && responseServerOrigin != null
+                    && (server[0] != responseServerOrigin[0] || server[2] != responseServerOrigin[2])) {
+                    authoritativeResponse = now - responseStart;
+                }
+                if (predictedResponse >= 0 && authoritativeResponse >= 0) {
+                    responseSamples++;
+                    predictedResponseSum += predictedResponse / 1e6;
+                    authoritativeResponseSum += authoritativeResponse / 1e6;
+                    predictedResponseMax = Math.max(predictedResponseMax, predictedResponse / 1e6);
+                    responseOrigin = null;
+                }
+            }
+
+            // A 前进阶段的中段必定在移动（避开起步和停下时的延迟差异）
+            if (measuring && phase > 0.5 && phase < 1.1) {
+                selfMovingFrames++;
+                if (shown.equals(lastShown)) {
+                    selfPredictedStalls++;
+                }
+                if (sameHorizontal(server, lastServer)) {
+                    selfServerStalls++;
+                }
+            }
+            if (measuring && interpolated != null && lastInterpolated != null) {
+                remoteMovingFrames++;
+                if (sameHorizontal(interpolated, lastInterpolated)) {
+                    remoteInterpolatedStalls++;
+                }
+                if (sameHorizontal(latest, lastLatest)) {
+                    remoteLatestStalls++;
+                }
+            }
+            lastShown = shown;
+            lastServer = server;
+            lastInterpolated = interpolated;
+            lastLatest = latest;
+
+            next += frameNanos;
+            LockSupport.parkNanos(next - System.nanoTime());
+        }
+    }
+
+    private static float[] entry(WorldSnapshot snapshot, int id) {
+        int index = snapshot.indexOf(id);
+        if (index < 0) {
+            return null;
+        }
+        return new float[] {snapshot.getX(index), snapshot.getY(index), snapshot.getZ(index)};
+    }
+
+    private static boolean sameHorizontal(float[] a, float[] b) {
+        return a != null && b != null && a[0] == b[0] && a[2] == b[2];
+    }
+
+    private void printSummary(WorldClient client) {
+        ClientPrediction prediction = client.getPrediction();
+        double predictedMean = responseSamples == 0 ? Double.NaN : predictedResponseSum / responseSamples;
+        double authoritativeMean = responseSamples == 0 ? Double.NaN : authoritativeResponseSum / responseSamples;
+        long acks = prediction.getAcknowledgements();
+        mispredictionRate = acks == 0 ? 1 : prediction.getMispredictions() / (double) acks;
+        connectedAtEnd = client.isConnected();
+        double selfPredictedRate = ratio(selfPredictedStalls, selfMovingFrames);
+
+        report.println("=== 预测测量结果 ===");
+        report.printf("按键响应: 预测 平均 %.1f ms 最大 %.1f ms | 等服务器确认 平均 %.1f ms (%d 次)%n",
+            predictedMean, predictedResponseMax, authoritativeMean, responseSamples);
+        report.printf("对账: 输入 %d 条, 确认 %d 次, 预测失败 %d 次 (%.2f%%), 最大偏差 %.4f, 跳变 %d 次, 平均每次重放 %.1f 条%n",
+            prediction.getCommandsSent(), acks, prediction.getMispredictions(), mispredictionRate * 100,
+            prediction.getMaxError(), prediction.getSnaps(),
+            acks == 0 ? 0 : prediction.getReplayedInputs() / (double) acks);
+        report.printf("本机移动停顿帧: 预测 %.1f%% | 直接显示服务器位置 %.1f%%%n",
+            selfPredictedRate * 100, ratio(selfServerStalls, selfMovingFrames) * 100);
+        report.printf("其他访客停顿帧: 插值 %.1f%% | 直接显示最新快照 %.1f%%%n",
+            getRemoteInterpolatedStallRate() * 100, ratio(remoteLatestStalls, remoteMovingFrames) * 100);
+    }
+
+    /**
+     * 完成测量的按键响应次数
+     */
+    public long getResponseSamples() {
+        return responseSamples;
+    }
+
+    /**
+     * 预测下按键到画面移动的最长时间（毫秒）
+     */
+    public double getPredictedResponseMaxMillis() {
+        return predictedResponseMax;
+    }
+
+    /**
+     * A 的确认中预测与服务器不符的比例
+     */
+    public double getMispredictionRate() {
+        return mispredictionRate;
+    }
+
+    /**
+     * B 在 A 画面中插值显示时停顿帧的比例
+     */
+    public double getRemoteInterpolatedStallRate() {
+        return ratio(remoteInterpolatedStalls, remoteMovingFrames);
+    }
+
+    /**
+     * 测量结束时 A 是否仍与服务器连接
+     */
+    public boolean isConnectedAtEnd() {
+        return connectedAtEnd;
+    }
+
+    private static double ratio(long part, long total) {
+        return total == 0 ? 0 : part / (double) total;
+    }
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = CommandLineOptions.parse(args);
+        // 引擎和NPC的日志会淹没报告
+        Logger.setLevel(options.getOrDefault("log", "WARN"));
+        new PredictionLatencyMeter(options, System.out).run();
+    }
+}
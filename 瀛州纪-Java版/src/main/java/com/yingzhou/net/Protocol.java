@@ -0,0 +1,157 @@
+package com.yingzhou.net;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 世界服务器二进制协议
+ * <pre>
+ * 帧:    长度(2，不含自身) 类型(1) 内容，大端序
+ *
+ * 客户端 → 服务器
+ *   HELLO             协议版本(2)
+ *   INPUT             输入序号(4) 按住掩码(4) 按下掩码(4) 鼠标dx dy(float×2)，每个服务器帧一条
+ *   DIALOGUE          NPC序号(1) 消息(字符串)
+ *   COLLECT_FRAGMENT  无内容
+ *   ADVANCE_EPOCH     无内容
+ *   PING              客户端时间纳秒(8)
+ *   BYE               无内容
+ *
+ * 服务器 → 客户端
+ *   WELCOME           玩家ID(4) 逻辑帧率(2) 当前帧号(4)
+ *   REJECT            原因(字符串)，随后断开
+ *   SNAPSHOT          快照序号(4) 基准序号(4) 帧号(4) 已处理输入序号(4) 自身状态 位流(见下)
+ *   DIALOGUE_REPLY    NPC序号(1) 回复(字符串)
+ *   EPOCH_STATE       纪元序号(1) 碎片数(2) 能否推进(1)
+ *   PONG              原样返回 PING 的时间(8)
+ * </pre>
+ * 字符串为 长度(2) + UTF-8 字节。一帧最长 {@link #MAX_FRAME} 字节。
+ *
+ * 自身状态供客户端预测对账，是服务器处理完该输入后的精确结果：
+ * <pre>
+ *   x y z 垂直速度 偏航 俯仰(float×6) 跳跃中(1)
+ * </pre>
+ *
+ * 快照只包含客户端关注范围内的玩家，并相对基准快照（客户端已完整收到的上一份）做增量编码。
+ * 位流按低位在前打包：
+ * <pre>
+ *   移除数(变长) { ID差值(变长) }
+ *   更新数(变长) { ID差值(变长) 新实体(1)
+ *                   新实体: x(24) y(16) z(24) 偏航(10)
+ *                   已有:   变化掩码(4) 每个变化分量: 小增量(1) 小增量 ? 增量(8) : 完整值 }
+ * </pre>
+ * 坐标以 1/{@value #POSITION_SCALE} 为单位量化，偏航角量化为 {@value #YAW_STEPS} 级；
+ * 变长整数每组 4 位数据 + 1 位延续标志。ID 差值相对同一列表中的前一个ID，列表按ID升序。
+ */
+public final class Protocol {
+
+    public static final short VERSION = 3;
+    public static final int DEFAULT_PORT = 7460;
+    public static final int MAX_FRAME = 0xFFFF;
+    // 长度(2) + 类型(1)
+    public static final int HEADER_SIZE = 3;
+
+    // 客户端 → 服务器
+    public static final byte HELLO = 1;
+    public static final byte INPUT = 2;
+    public static final byte DIALOGUE = 3;
+    public static final byte COLLECT_FRAGMENT = 4;
+    public static final byte ADVANCE_EPOCH = 5;
+    public static final byte PING = 6;
+    public static final byte BYE = 7;
+
+    // 服务器 → 客户端
+    public static final byte WELCOME = 0x41;
+    public static final byte REJECT = 0x42;
+    public static final byte SNAPSHOT = 0x43;
+    public static final byte DIALOGUE_REPLY = 0x44;
+    public static final byte EPOCH_STATE = 0x45;
+    public static final byte PONG = 0x46;
+
+    public static final int INPUT_SIZE = 4 + 4 + 4 + 4 + 4;
+    public static final int OWN_STATE_SIZE = 6 * 4 + 1;
+    public static final int SNAPSHOT_HEADER_SIZE = 4 + 4 + 4 + 4 + OWN_STATE_SIZE;
+
+    // 快照量化参数
+    public static final int POSITION_SCALE = 64;
+    public static final int POSITION_BITS = 24;
+    public static final int HEIGHT_BITS = 16;
+    public static final int YAW_BITS = 10;
+    public static final int YAW_STEPS = 1 << YAW_BITS;
+    public static final int DELTA_BITS = 8;
+
+    private Protocol() {
+    }
+
+    /**
+     * 开始写一帧，返回长度字段的位置，内容写完后交给 {@link #endFrame}
+     */
+    public static int beginFrame(ByteBuffer buffer, byte type) {
+        int start = buffer.position();
+        buffer.putShort((short) 0).put(type);
+        return start;
+    }
+
+    public static void endFrame(ByteBuffer buffer, int start) {
+        int length = buffer.position() - start - 2;
+        if (length > MAX_FRAME) {
+            throw new IllegalStateException("帧过长: " + length);
+        }
+        buffer.putShort(start, (short) length);
+    }
+
+    /**
+     * 读模式缓冲区中第一帧的总长度（含长度字段），数据不完整时返回 -1
+     */
+    public static int completeFrameLength(ByteBuffer buffer) {
+        if (buffer.remaining() < 2) {
+            return -1;
+        }
+        int total = 2 + (buffer.getShort(buffer.position()) & 0xFFFF);
+        return buffer.remaining() >= total ? total : -1;
+    }
+
+    public static int quantizePosition(double value) {
+        int limit = (1 << (POSITION_BITS - 1)) - 1;
+        return (int) Math.max(-limit, Math.min(limit, Math.round(value * POSITION_SCALE)));
+    }
+
+    public static int quantizeHeight(double value) {
+        return (int) Math.max(0, Math.min((1 << HEIGHT_BITS) - 1, Math.round(value * POSITION_SCALE)));
+    }
+
+    public static int quantizeYaw(double degrees) {
+        return (int) Math.floorMod(Math.round(degrees * YAW_STEPS / 360.0), (long) YAW_STEPS);
+    }
+
+    public static float dequantizePosition(int value) {
+        return value / (float) POSITION_SCALE;
+    }
+
+    public static float dequantizeYaw(int value) {
+        return value * 360f / YAW_STEPS;
+    }
+
+    public static void putString(ByteBuffer buffer, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        int length = Math.min(bytes.length, MAX_FRAME - 64);
+        buffer.putShort((short) length).put(bytes, 0, length);
+    }
+
+    public static String getString(ByteBuffer buffer) {
+        int length = buffer.getShort() & 0xFFFF;
+        if (length > buffer.remaining()) {
+            throw new IllegalArgumentException("字符串长度超出帧");
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 字符串编码后的最大长度
+     */
+    public static int stringSize(String value) {
+        return 2 + Math.min(value.length() * 3, MAX_FRAME - 64);
+    }
+}
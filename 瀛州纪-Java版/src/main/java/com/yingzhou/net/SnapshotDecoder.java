@@ -0,0 +1,119 @@
+package com.yingzhou.net;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 客户端快照解码，与 {@link SnapshotEncoder} 对应
+ * 保存上一份完整快照作为基准，把增量合并成新的完整快照。只在接收线程使用。
+ */
+final class SnapshotDecoder {
+
+    private EntityTable current = new EntityTable(16);
+    private EntityTable next = new EntityTable(16);
+    private final BitReader bits = new BitReader();
+    private int[] removed = new int[16];
+    private AcknowledgedState acknowledged;
+
+    /**
+     * 解码一帧快照内容
+     *
+     * @throws IllegalArgumentException 基准不一致或位流损坏
+     */
+    WorldSnapshot decode(ByteBuffer payload) {
+        long sequence = payload.getInt() & 0xFFFFFFFFL;
+        long baselineSequence = payload.getInt() & 0xFFFFFFFFL;
+        long tick = payload.getInt() & 0xFFFFFFFFL;
+        acknowledged = AcknowledgedState.read(payload);
+        if (baselineSequence != current.sequence) {
+            throw new IllegalArgumentException("快照基准不一致: 期望 " + current.sequence + "，收到 " + baselineSequence);
+        }
+        bits.reset(payload);
+
+        int removedCount = bits.readVarUint();
+        if (removedCount > current.size) {
+            throw new IllegalArgumentException("快照移除数超出基准");
+        }
+        if (removed.length < removedCount) {
+            removed = new int[Math.max(removedCount, removed.length * 2)];
+        }
+        int id = 0;
+        for (int r = 0; r < removedCount; r++) {
+            id += bits.readVarUint();
+            removed[r] = id;
+        }
+
+        next.clear();
+        int updatedCount = bits.readVarUint();
+        int i = 0;
+        int r = 0;
+        id = 0;
+        for (int u = 0; u < updatedCount; u++) {
+            id += bits.readVarUint();
+            boolean isNew = bits.readBoolean();
+            while (i < current.size && current.ids[i] < id) {
+                r = copyUnlessRemoved(i++, r, removedCount);
+            }
+            if (isNew) {
+                next.add(id,
+                    bits.readSigned(Protocol.POSITION_BITS),
+                    bits.read(Protocol.HEIGHT_BITS),
+                    bits.readSigned(Protocol.POSITION_BITS),
+                    bits.read(Protocol.YAW_BITS));
+                continue;
+            }
+            if (i == current.size || current.ids[i] != id) {
+                throw new IllegalArgumentException("快照更新了基准中不存在的玩家 " + id);
+            }
+            int mask = bits.read(4);
+            int x = (mask & 1) != 0 ? readComponent(current.x[i], Protocol.POSITION_BITS, true) : current.x[i];
+            int y = (mask & 2) != 0 ? readComponent(current.y[i], Protocol.HEIGHT_BITS, false) : current.y[i];
+            int z = (mask & 4) != 0 ? readComponent(current.z[i], Protocol.POSITION_BITS, true) : current.z[i];
+            int yaw = current.yaw[i];
+            if ((mask & 8) != 0) {
+                yaw = readComponent(yaw, Protocol.YAW_BITS, false) & (Protocol.YAW_STEPS - 1);
+            }
+            next.add(id, x, y, z, yaw);
+            i++;
+        }
+        while (i < current.size) {
+            r = copyUnlessRemoved(i++, r, removedCount);
+        }
+
+        next.sequence = sequence;
+        EntityTable previous = current;
+        current = next;
+        next = previous;
+        return current.toSnapshot(tick);
+    }
+
+    /**
+     * 最近一份快照中服务器确认的本机状态
+     */
+    AcknowledgedState getAcknowledged() {
+        return acknowledged;
+    }
+
+    /**
+     * 把基准中第 i 个实体复制到新表，除非它在移除列表中
+     *
+     * @return 移除列表的新读取位置
+     */
+    private int copyUnlessRemoved(int i, int r, int removedCount) {
+        int id = current.ids[i];
+        while (r < removedCount && removed[r] < id) {
+            r++;
+        }
+        if (r < removedCount && removed[r] == id) {
+            return r + 1;
+        }
+        next.add(id, current.x[i], current.y[i], current.z[i], current.yaw[i]);
+        return r;
+    }
+
+    private int readComponent(int base, int fullBits, boolean signed) {
+        if (bits.readBoolean()) {
+            return base + bits.readSigned(Protocol.DELTA_BITS);
+        }
+        return signed ? bits.readSigned(fullBits) : bits.read(fullBits);
+       }
+}
@@ -0,0 +1,311 @@
+package com.yingzhou.net;
+
+import com.yingzhou.game.player.MotionState;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 服务器端快照编码
+ * 每帧先把所有玩家量化一次并放入网格，再为每个客户端查询关注范围、
+ * 与该客户端的基准快照比较，只写出新进入、离开和有变化的实体。
+ *
+ * 静止的玩家不占任何字节，编码开销只与客户端附近的实体数量有关。
+ */
+final class SnapshotEncoder {
+
+    private static final int SMALL_DELTA_MIN = -(1 << (Protocol.DELTA_BITS - 1));
+    private static final int SMALL_DELTA_MAX = (1 << (Protocol.DELTA_BITS - 1)) - 1;
+
+    private final float interestRadius;
+    private final int maxEntities;
+    private final SpatialGrid grid;
+    private final BitWriter bits = new BitWriter();
+
+    // 本帧全部玩家，按编号存放
+    private int worldCount;
+    private int[] worldIds = new int[16];
+    private int[] worldX = new int[16];
+    private int[] worldY = new int[16];
+    private int[] worldZ = new int[16];
+    private int[] worldYaw = new int[16];
+    private float[] planeX = new float[16];
+    private float[] planeZ = new float[16];
+
+    // 查询暂存
+    private int[] candidates = new int[16];
+    private float[] distances = new float[16];
+    private long[] order = new long[16];
+
+    /**
+     * @param interestRadius 关注半径，超出范围的玩家不发送
+     * @param maxEntities 单个快照最多包含的玩家数，超出时保留最近的
+     */
+    SnapshotEncoder(float interestRadius, int maxEntities) {
+        this.interestRadius = interestRadius;
+        this.maxEntities = maxEntities;
+        this.grid = new SpatialGrid(interestRadius);
+    }
+
+    /**
+     * 快照缓冲区所需容量（最坏情况：全部实体离开并全部换成新实体）
+     */
+    static int maxSnapshotSize(int maxEntities) {
+        // 移除: ID差值最多 40 位；更新: ID差值 40 位 + 标志 1 位 + 完整状态 74 位
+        int bitsPerEntity = 40 + 40 + 1 + Protocol.POSITION_BITS * 2 + Protocol.HEIGHT_BITS + Protocol.YAW_BITS;
+        return Protocol.HEADER_SIZE + Protocol.SNAPSHOT_HEADER_SIZE + 16 + (maxEntities * bitsPerEntity + 7) / 8;
+    }
+
+    /**
+     * 量化本帧所有已握手玩家的状态并建立网格
+     */
+    void beginTick(List<ClientSession> sessions) {
+        int count = 0;
+        for (ClientSession session : sessions) {
+            if (session.isWelcomed()) {
+                count++;
+            }
+        }
+        ensureCapacity(count);
+        grid.reset(count);
+        worldCount = 0;
+        for (ClientSession session : sessions) {
+            if (!session.isWelcomed()) {
+                continue;
+            }
+            int slot = worldCount++;
+            session.slot = slot;
+            var position = session.player.getPosition();
+            worldIds[slot] = session.id;
+            worldX[slot] = Protocol.quantizePosition(position.getX());
+            worldY[slot] = Protocol.quantizeHeight(position.getY());
+            worldZ[slot] = Protocol.quantizePosition(position.getZ());
+            worldYaw[slot] = Protocol.quantizeYaw(session.player.getYaw());
+            planeX[slot] = (float) position.getX();
+            planeZ[slot] = (float) position.getZ();
+            grid.insert(slot, planeX[slot], planeZ[slot]);
+        }
+    }
+
+    private void ensureCapacity(int count) {
+        if (worldIds.length >= count) {
+            return;
+        }
+        int capacity = Math.max(count, worldIds.length * 2);
+        worldIds = Arrays.copyOf(worldIds, capacity);
+        worldX = Arrays.copyOf(worldX, capacity);
+        worldY = Arrays.copyOf(worldY, capacity);
+        worldZ = Arrays.copyOf(worldZ, capacity);
+        worldYaw = Arrays.copyOf(worldYaw, capacity);
+        planeX = Arrays.copyOf(planeX, capacity);
+        planeZ = Arrays.copyOf(planeZ, capacity);
+        candidates = new int[capacity];
+        distances = new float[capacity];
+        order = new long[capacity];
+    }
+
+    /**
+     * 为一个客户端编码快照帧
+     * 快照内容记入 session 的待发送表，写完后由会话提升为新的基准
+     */
+    void encode(ClientSession session, long tick, ByteBuffer out) {
+        EntityTable target = session.pendingTable;
+        selectVisible(session.slot, target);
+        target.sequence = ++session.snapshotSequence;
+        EntityTable base = session.baseline;
+
+        int start = Protocol.beginFrame(out, Protocol.SNAPSHOT);
+        out.putInt((int) target.sequence).putInt((int) base.sequence).putInt((int) tick);
+        writeOwnState(session, out);
+        bits.reset(out);
+        writeRemoved(base, target);
+        writeUpdated(base, target);
+        bits.flush();
+        Protocol.endFrame(out, start);
+    }
+
+    /**
+     * 已处理的输入序号和处理后的精确状态，客户端据此对账
+     */
+    private static void writeOwnState(ClientSession session, ByteBuffer out) {
+        MotionState motion = session.player.getMotion();
+        out.putInt((int) session.lastInputSequence)
+            .putFloat((float) motion.getX())
+            .putFloat((float) motion.getY())
+            .putFloat((float) motion.getZ())
+            .putFloat((float) motion.getVelocityY())
+            .putFloat((float) motion.getYaw())
+            .putFloat((float) motion.getPitch())
+            .put((byte) (motion.isJumping() ? 1 : 0));
+    }
+
+    /**
+     * 关注范围内的玩家（包括自己），按ID升序写入 target
+     */
+    private void selectVisible(int self, EntityTable target) {
+        int count = grid.query(planeX[self], planeZ[self], interestRadius, candidates, distances);
+        if (count > maxEntities) {
+            // 非负浮点数的位模式与大小顺序一致，可直接拼成排序键；只需划分出最近的一批，不必全排序
+            for (int i = 0; i < count; i++) {
+                order[i] = ((long) Float.floatToIntBits(distances[i]) << 32) | candidates[i];
+            }
+            selectSmallest(order, count, maxEntities);
+            count = maxEntities;
+            for (int i = 0; i < count; i++) {
+                candidates[i] = (int) order[i];
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            order[i] = ((long) worldIds[candidates[i]] << 32) | candidates[i];
+        }
+        Arrays.sort(order, 0, count);
+        target.clear();
+        for (int i = 0; i < count; i++) {
+            int slot = (int) order[i];
+            target.add(worldIds[slot], worldX[slot], worldY[slot], worldZ[slot], worldYaw[slot]);
+        }
+    }
+
+    /**
+     * 快速选择：把最小的 k 个元素（无序）移到 keys 前部
+     */
+    static void selectSmallest(long[] keys, int count, int k) {
+        int left = 0;
+        int right = count - 1;
+        while (left < right) {
+            long pivot = keys[(left + right) >>> 1];
+            int i = left;
+            int j = right;
+            while (i <= j) {
+                while (keys[i] < pivot) {
+                    i++;
+                }
+                while (keys[j] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    long swapped = keys[i];
+                    keys[i] = keys[j];
+                    keys[j] = swapped;
+                    i++;
+                    j--;
+                }
+            }
+            if (k - 1 <= j) {
+                right = j;
+            } else if (k - 1 >= i) {
+                left = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private void writeRemoved(EntityTable base, EntityTable target) {
+        int removed = 0;
+        for (int i = 0, j = 0; i < base.size; i++) {
+            while (j < target.size && target.ids[j] < base.ids[i]) {
+                j++;
+            }
+            if (j == target.size || target.ids[j] != base.ids[i]) {
+                removed++;
+            }
+        }
+        bits.writeVarUint(removed);
+        int previous = 0;
+        for (int i = 0, j = 0; i < base.size; i++) {
+            while (j < target.size && target.ids[j] < base.ids[i]) {
+                j++;
+            }
+            if (j == target.size || target.ids[j] != base.ids[i]) {
+                bits.writeVarUint(base.ids[i] - previous);
+                previous = base.ids[i];
+            }
+        }
+    }
+
+    private void writeUpdated(EntityTable base, EntityTable target) {
+        int updated = 0;
+        for (int j = 0, i = 0; j < target.size; j++) {
+            while (i < base.size && base.ids[i] < target.ids[j]) {
+                i++;
+            }
+            boolean existing = i < base.size && base.ids[i] == target.ids[j];
+            if (!existing || changeMask(base, i, target, j) != 0) {
+                updated++;
+            }
+        }
+        bits.writeVarUint(updated);
+
+        int previous = 0;
+        for (int j = 0, i = 0; j < target.size; j++) {
+            while (i < base.size && base.ids[i] < target.ids[j]) {
+                i++;
+            }
+            boolean existing = i < base.size && base.ids[i] == target.ids[j];
+            int mask = existing ? changeMask(base, i, target, j) : 0;
+            if (existing && mask == 0) {
+                continue;
+            }
+            bits.writeVarUint(target.ids[j] - previous);
+            previous = target.ids[j];
+            bits.writeBoolean(!existing);
+            if (!existing) {
+                bits.write(target.x[j], Protocol.POSITION_BITS);
+                bits.write(target.y[j], Protocol.HEIGHT_BITS);
+                bits.write(target.z[j], Protocol.POSITION_BITS);
+                bits.write(target.yaw[j], Protocol.YAW_BITS);
+                continue;
+            }
+            bits.write(mask, 4);
+            if ((mask & 1) != 0) {
+                writeComponent(target.x[j] - base.x[i], target.x[j], Protocol.POSITION_BITS);
+            }
+            if ((mask & 2) != 0) {
+                writeComponent(target.y[j] - base.y[i], target.y[j], Protocol.HEIGHT_BITS);
+            }
+            if ((mask & 4) != 0) {
+                writeComponent(target.z[j] - base.z[i], target.z[j], Protocol.POSITION_BITS);
+            }
+            if ((mask & 8) != 0) {
+                writeComponent(yawDelta(base.yaw[i], target.yaw[j]), target.yaw[j], Protocol.YAW_BITS);
+            }
+        }
+    }
+
+    private static int changeMask(EntityTable base, int i, EntityTable target, int j) {
+        int mask = 0;
+        if (base.x[i] != target.x[j]) {
+            mask |= 1;
+        }
+        if (base.y[i] != target.y[j]) {
+            mask |= 2;
+        }
+        if (base.z[i] != target.z[j]) {
+            mask |= 4;
+        }
+        if (base.yaw[i] != target.yaw[j]) {
+            mask |= 8;
+        }
+        return mask;
+    }
+
+    /**
+     * 偏航角按环形取最短方向的差值
+     */
+    static int yawDelta(int from, int to) {
+        int half = Protocol.YAW_STEPS / 2;
+        return ((to - from + half) & (Protocol.YAW_STEPS - 1)) - half;
+    }
+
+    private void writeComponent(int delta, int value, int fullBits) {
+        boolean small = delta >= SMALL_DELTA_MIN && delta <= SMALL_DELTA_MAX;
+        bits.writeBoolean(small);
+        if (small) {
+            bits.write(delta, Protocol.DELTA_BITS);
+        } else {
+            bits.write(value, fullBits);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.yingzhou.net;
+
+/**
+ * 其他访客的快照插值
+ * 按服务器帧号为收到的快照建立时间轴，显示时取比当前估计的服务器时间晚一个固定延迟的时刻，
+ * 在前后两份快照之间插值。延迟覆盖网络抖动和快照间隔，访客因此匀速移动而不是按快照频率跳动。
+ *
+ * 接收线程写入，渲染线程读取。
+ */
+public final class SnapshotInterpolator {
+
+    public static final long DEFAULT_DELAY_NANOS = 100_000_000L;
+    private static final int CAPACITY = 32;
+
+    private final long tickNanos;
+    private final long delayNanos;
+    private final WorldSnapshot[] snapshots = new WorldSnapshot[CAPACITY];
+    private int head;
+    private int count;
+    // 服务器第0帧对应的本地时间：取到达时间减帧时刻的下沿，迟到的快照不会把时间轴往后拖
+    private double clockBase;
+
+    public SnapshotInterpolator(int tickHz, long delayNanos) {
+        this.tickNanos = 1_000_000_000L / tickHz;
+        this.delayNanos = delayNanos;
+    }
+
+    public synchronized void add(WorldSnapshot snapshot, long receivedNanos) {
+        double sample = receivedNanos - (double) snapshot.getTick() * tickNanos;
+        if (count == 0) {
+            clockBase = sample;
+        } else {
+            if (snapshot.getTick() <= newest().getTick()) {
+                return;
+            }
+            // 提前到达立即跟上，整体变慢（时钟漂移）时缓慢跟随
+            clockBase = sample < clockBase ? sample : clockBase + (sample - clockBase) * 0.01;
+        }
+        if (count == CAPACITY) {
+            head = (head + 1) % CAPACITY;
+            count--;
+        }
+        snapshots[(head + count) % CAPACITY] = snapshot;
+        count++;
+    }
+
+    private WorldSnapshot newest() {
+        return snapshots[(head + count - 1) % CAPACITY];
+    }
+
+    /**
+     * 指定本地时刻应显示的世界
+     */
+    public WorldSnapshot sample(long nowNanos) {
+        WorldSnapshot from = null;
+        WorldSnapshot to = null;
+        double renderTick;
+        synchronized (this) {
+            if (count == 0) {
+                return WorldSnapshot.EMPTY;
+            }
+            renderTick = (nowNanos - delayNanos - clockBase) / tickNanos;
+            for (int i = count - 1; i >= 0; i--) {
+                WorldSnapshot snapshot = snapshots[(head + i) % CAPACITY];
+                if (snapshot.getTick() <= renderTick) {
+                    from = snapshot;
+                    break;
+                }
+                to = snapshot;
+            }
+        }
+        if (from == null) {
+            return to;
+        }
+        if (to == null) {
+            // 快照迟到时停在最新一份，不外推
+            return from;
+        }
+        double alpha = (renderTick - from.getTick()) / (double) (to.getTick() - from.getTick());
+        return interpolate(from, to, (float) alpha);
+    }
+
+    /**
+     * 两份快照都按ID升序，只在两边都有的访客上插值；新出现的直接取后一份，已离开的不再显示
+     */
+    static WorldSnapshot interpolate(WorldSnapshot from, WorldSnapshot to, float alpha) {
+        int size = to.size();
+        int[] ids = new int[size];
+        float[] x = new float[size];
+        float[] y = new float[size];
+        float[] z = new float[size];
+        float[] yaw = new float[size];
+        int j = 0;
+        for (int i = 0; i < size; i++) {
+            int id = to.getId(i);
+            ids[i] = id;
+            while (j < from.size() && from.getId(j) < id) {
+                j++;
+            }
+            if (j < from.size() && from.getId(j) == id) {
+                x[i] = from.getX(j) + (to.getX(i) - from.getX(j)) * alpha;
+                y[i] = from.getY(j) + (to.getY(i) - from.getY(j)) * alpha;
+                z[i] = from.getZ(j) + (to.getZ(i) - from.getZ(j)) * alpha;
+                float turn = to.getYaw(i) - from.getYaw(j);
+                if (turn > 180) {
+                    turn -= 360;
+                } else if (turn < -180) {
+                    turn += 360;
+                }
+                float angle = from.getYaw(j) + turn * alpha;
+                yaw[i] = angle < 0 ? angle + 360 : angle >= 360 ? angle - 360 : angle;
+            } else {
+                x[i] = to.getX(i);
+                y[i] = to.getY(i);
+                z[i] = to.getZ(i);
+                yaw[i] = to.getYaw(i);
+            }
+        }
+        return new WorldSnapshot(to.getTick(), ids, x, y, z, yaw);
+    }
+}
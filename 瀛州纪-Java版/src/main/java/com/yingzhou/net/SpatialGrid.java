@@ -0,0 +1,117 @@
+package com.yingzhou.net;
+
+import java.util.Arrays;
+
+/**
+ * 水平面均匀网格
+ * 每帧重建：按格子把实体串成链表，查询只检查圆形范围覆盖的格子。
+ * 全部使用基本类型数组，重建和查询都不分配对象。
+ */
+final class SpatialGrid {
+
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    private final float cellSize;
+    private long[] cellKeys = new long[16];
+    private int[] cellHeads = new int[16];
+    private int[] next = new int[16];
+    private float[] xs = new float[16];
+    private float[] zs = new float[16];
+    private int mask = 15;
+
+    SpatialGrid(float cellSize) {
+        this.cellSize = cellSize;
+    }
+
+    /**
+     * 清空网格，准备插入 entityCount 个实体
+     */
+    void reset(int entityCount) {
+        int capacity = Integer.highestOneBit(Math.max(16, entityCount * 2) - 1) << 1;
+        if (cellKeys.length < capacity) {
+            cellKeys = new long[capacity];
+            cellHeads = new int[capacity];
+        }
+        mask = cellKeys.length - 1;
+        Arrays.fill(cellKeys, EMPTY);
+        if (next.length < entityCount) {
+            next = new int[entityCount];
+            xs = new float[entityCount];
+            zs = new float[entityCount];
+        }
+    }
+
+    /**
+     * 插入一个实体，slot 为 0 起的连续编号
+     */
+    void insert(int slot, float x, float z) {
+        xs[slot] = x;
+        zs[slot] = z;
+        int cell = findCell(cellKey(cell(x), cell(z)), true);
+        next[slot] = cellHeads[cell];
+        cellHeads[cell] = slot;
+    }
+
+    /**
+     * 查找以 (x, z) 为圆心、半径 radius 内的实体
+     *
+     * @param out 结果编号，容量须不小于实体总数
+     * @param distances 与结果对应的距离平方
+     * @return 结果数量
+     */
+    int query(float x, float z, float radius, int[] out, float[] distances) {
+        float radiusSquared = radius * radius;
+        int minX = cell(x - radius);
+        int maxX = cell(x + radius);
+        int minZ = cell(z - radius);
+        int maxZ = cell(z + radius);
+        int count = 0;
+        for (int cx = minX; cx <= maxX; cx++) {
+            for (int cz = minZ; cz <= maxZ; cz++) {
+                int cell = findCell(cellKey(cx, cz), false);
+                if (cell < 0) {
+                    continue;
+                }
+                for (int slot = cellHeads[cell]; slot >= 0; slot = next[slot]) {
+                    float dx = xs[slot] - x;
+                    float dz = zs[slot] - z;
+                    float distance = dx * dx + dz * dz;
+                    if (distance <= radiusSquared) {
+                        out[count] = slot;
+                        distances[count] = distance;
+                        count++;
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    private int cell(float coordinate) {
+        return (int) Math.floor(coordinate / cellSize);
+    }
+
+    private static long cellKey(int cx, int cz) {
+        return ((long) cx << 32) | (cz & 0xFFFFFFFFL);
+    }
+
+    private int findCell(long key, boolean create) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        int index = (int) (h ^ (h >>> 32)) & mask;
+        while (true) {
+            long existing = cellKeys[index];
+            if (existing == key) {
+                return index;
+            }
+            if (existing == EMPTY) {
+                if (!create) {
+                    return -1;
+                }
+                cellKeys[index] = key;
+                cellHeads[index] = -1;
+                return index;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+}
@@ -0,0 +1,399 @@
+package com.yingzhou.net;
+
+import com.yingzhou.game.GameEngine;
+import com.yingzhou.game.input.InputSnapshot;
+import com.yingzhou.util.Logger;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * 世界服务器客户端
+ * 接收和发送各用一个后台线程，调用方（游戏循环、FX线程）发送时只入队，不会被网络阻塞。
+ *
+ * 启动游戏时加 -Dyingzhou.server=主机:端口 即连接服务器。本机玩家的移动由 {@link ClientPrediction}
+ * 预测并与服务器对账，玩家命令随逻辑帧转发，其他访客的位置由快照插值得到。
+ */
+public class WorldClient implements Closeable {
+
+    public static final String SERVER_PROPERTY = "yingzhou.server";
+    private static final int HANDSHAKE_TIMEOUT_MILLIS = 3000;
+
+    /**
+     * 服务器消息回调，发生在接收线程
+     */
+    public interface Listener {
+        default void onSnapshot(WorldSnapshot snapshot) {}
+
+        default void onDialogueReply(int npcIndex, String reply) {}
+
+        default void onEpochState(int epochIndex, int fragmentsCollected, boolean canAdvance) {}
+
+        /**
+         * @param roundTripNanos PING 到 PONG 的往返时间
+         */
+        default void onPong(long roundTripNanos) {}
+
+        default void onDisconnected(String reason) {}
+    }
+
+    private static final ByteBuffer CLOSE_MARKER = ByteBuffer.allocate(0);
+
+    private final SocketChannel channel;
+    private final int playerId;
+    private final int tickHz;
+    private final ByteBuffer readBuffer = ByteBuffer.allocate(Protocol.MAX_FRAME + 2);
+    private final BlockingQueue<ByteBuffer> outbound = new LinkedBlockingQueue<>();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final SnapshotDecoder snapshotDecoder = new SnapshotDecoder();
+    private final SnapshotInterpolator interpolator;
+    private volatile ClientPrediction prediction;
+    private volatile WorldSnapshot latestSnapshot = WorldSnapshot.EMPTY;
+    private volatile boolean closed;
+    private Thread reader;
+    private Thread writer;
+
+    private WorldClient(SocketChannel channel, int playerId, int tickHz) {
+        this.channel = channel;
+        this.playerId = playerId;
+        this.tickHz = tickHz;
+        this.interpolator = new SnapshotInterpolator(tickHz, SnapshotInterpolator.DEFAULT_DELAY_NANOS);
+    }
+
+    /**
+     * 连接服务器并完成握手
+     *
+     * @throws IOException 连接失败或被服务器拒绝
+     */
+    public static WorldClient connect(InetSocketAddress address) throws IOException {
+        SocketChannel channel = SocketChannel.open();
+        try {
+            channel.socket().connect(address, HANDSHAKE_TIMEOUT_MILLIS);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            channel.socket().setSoTimeout(HANDSHAKE_TIMEOUT_MILLIS);
+
+            ByteBuffer hello = ByteBuffer.allocate(Protocol.HEADER_SIZE + 2);
+            int start = Protocol.beginFrame(hello, Protocol.HELLO);
+            hello.putShort(Protocol.VERSION);
+            Protocol.endFrame(hello, start);
+            hello.flip();
+            while (hello.hasRemaining()) {
+                channel.write(hello);
+            }
+
+            // 握手阶段同步读取，欢迎消息之后的内容留在缓冲区交给接收线程
+            ByteBuffer buffer = ByteBuffer.allocate(Protocol.MAX_FRAME + 2);
+            while (true) {
+                buffer.flip();
+                int frameLength = Protocol.completeFrameLength(buffer);
+                if (frameLength >= 0) {
+                    int frameEnd = buffer.position() + frameLength;
+                    buffer.position(buffer.position() + 2);
+                    byte type = buffer.get();
+                    if (type == Protocol.REJECT) {
+                        throw new IOException("服务器拒绝连接: " + Protocol.getString(buffer));
+                    }
+                    if (type != Protocol.WELCOME) {
+                        throw new IOException("握手失败，收到消息类型 " + type);
+                    }
+                    int playerId = buffer.getInt();
+                    int tickHz = buffer.getShort() & 0xFFFF;
+                    buffer.position(frameEnd);
+                    buffer.compact();
+                    WorldClient client = new WorldClient(channel, playerId, tickHz);
+                    client.readBuffer.put(buffer.flip());
+                    client.startThreads();
+                    return client;
+                }
+                buffer.compact();
+                if (readSocket(channel, buffer) < 0) {
+                    throw new EOFException("服务器关闭了连接");
+                }
+            }
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * 阻塞模式下的读取需经由 socket 流才能使用超时
+     */
+    private static int readSocket(SocketChannel channel, ByteBuffer buffer) throws IOException {
+        int read = channel.socket().getInputStream().read(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+        if (read > 0) {
+            buffer.position(buffer.position() + read);
+        }
+        return read;
+    }
+
+    /**
+     * 设置了 -Dyingzhou.server 时连接服务器并接入引擎，否则或连接失败时返回 null（单机运行）
+     */
+    public static WorldClient connectIfRequested(GameEngine engine) {
+        String target = System.getProperty(SERVER_PROPERTY);
+        if (target == null || target.isBlank()) {
+            return null;
+        }
+        int colon = target.lastIndexOf(':');
+        String host = colon < 0 ? target : target.substring(0, colon);
+        int port = colon < 0 ? Protocol.DEFAULT_PORT : Integer.parseInt(target.substring(colon + 1));
+        try {
+            WorldClient client = connect(new InetSocketAddress(host, port));
+            client.attach(engine);
+            Logger.info("已连接世界服务器 " + host + ":" + port + "，玩家ID " + client.getPlayerId());
+            return client;
+        } catch (IOException e) {
+            Logger.error("无法连接世界服务器 " + target + "，以单机模式运行", e);
+            return null;
+        }
+    }
+
+    private void startThreads() throws IOException {
+        // 握手完成后取消读超时，接收线程一直阻塞等待服务器消息
+        channel.socket().setSoTimeout(0);
+        reader = new Thread(this::readLoop, "world-client-reader");
+        reader.setDaemon(true);
+        writer = new Thread(this::writeLoop, "world-client-writer");
+        writer.setDaemon(true);
+        reader.start();
+        writer.start();
+    }
+
+    /**
+     * 由客户端预测接管本机玩家的移动，并把玩家命令转发给服务器
+     */
+    public void attach(GameEngine engine) {
+        prediction = new ClientPrediction(this);
+        engine.setPlayerDriver(prediction);
+        engine.addSessionListener(new GameEngine.SessionListener() {
+            @Override
+            public void onDialogue(int npcIndex, String message) {
+                if (npcIndex >= 0) {
+                    sendDialogue(npcIndex, message);
+                }
+            }
+
+            @Override
+            public void onAdvanceEpoch() {
+                sendCommand(Protocol.ADVANCE_EPOCH);
+            }
+
+            @Override
+            public void onCollectFragment() {
+                sendCommand(Protocol.COLLECT_FRAGMENT);
+            }
+        });
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    public void sendInput(long sequence, InputSnapshot input) {
+        ByteBuffer message = ByteBuffer.allocate(Protocol.HEADER_SIZE + Protocol.INPUT_SIZE);
+        int start = Protocol.beginFrame(message, Protocol.INPUT);
+        message.putInt((int) sequence)
+            .putInt(input.getHeldMask())
+            .putInt(input.getPressedMask())
+            .putFloat((float) input.getMouseDeltaX())
+            .putFloat((float) input.getMouseDeltaY());
+        enqueue(message, start);
+    }
+
+    public void sendDialogue(int npcIndex, String text) {
+        ByteBuffer message = ByteBuffer.allocate(Protocol.HEADER_SIZE + 1 + Protocol.stringSize(text));
+        int start = Protocol.beginFrame(message, Protocol.DIALOGUE);
+        message.put((byte) npcIndex);
+        Protocol.putString(message, text);
+        enqueue(message, start);
+    }
+
+    public void sendCommand(byte type) {
+        ByteBuffer message = ByteBuffer.allocate(Protocol.HEADER_SIZE);
+        enqueue(message, Protocol.beginFrame(message, type));
+    }
+
+    /**
+     * 测量往返时间，结果通过 {@link Listener#onPong(long)} 回调
+     */
+    public void ping() {
+        ByteBuffer message = ByteBuffer.allocate(Protocol.HEADER_SIZE + 8);
+        int start = Protocol.beginFrame(message, Protocol.PING);
+        message.putLong(System.nanoTime());
+        enqueue(message, start);
+    }
+
+    private void enqueue(ByteBuffer message, int start) {
+        if (closed) {
+            return;
+        }
+        Protocol.endFrame(message, start);
+        message.flip();
+        outbound.add(message);
+    }
+
+    private void writeLoop() {
+        try {
+            while (true) {
+                ByteBuffer message = outbound.take();
+                if (message == CLOSE_MARKER) {
+                    return;
+                }
+                while (message.hasRemaining()) {
+                    channel.write(message);
+                }
+            }
+        } catch (IOException e) {
+            disconnected("发送失败: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void readLoop() {
+        ByteBuffer buffer = readBuffer;
+        try {
+            while (!closed) {
+                buffer.flip();
+                int frameLength;
+                while ((frameLength = Protocol.completeFrameLength(buffer)) >= 0) {
+                    int frameEnd = buffer.position() + frameLength;
+                    int limit = buffer.limit();
+                    buffer.position(buffer.position() + 2).limit(frameEnd);
+                    dispatch(buffer.get(), buffer);
+                    buffer.limit(limit).position(frameEnd);
+                }
+                buffer.compact();
+                if (channel.read(buffer) < 0) {
+                    disconnected("服务器关闭了连接");
+                    return;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // 快照基准不一致等协议错误无法恢复，按断开处理
+            disconnected(closed ? "已断开" : "接收失败: " + e.getMessage());
+        }
+    }
+
+    private void dispatch(byte type, ByteBuffer payload) {
+        switch (type) {
+            case Protocol.SNAPSHOT -> {
+                WorldSnapshot snapshot = snapshotDecoder.decode(payload);
+                latestSnapshot = snapshot;
+                interpolator.add(snapshot, System.nanoTime());
+                ClientPrediction current = prediction;
+                if (current != null) {
+                    current.acknowledge(snapshotDecoder.getAcknowledged());
+                }
+                for (Listener listener : listeners) {
+                    listener.onSnapshot(snapshot);
+                }
+            }
+            case Protocol.DIALOGUE_REPLY -> {
+                int npcIndex = payload.get() & 0xFF;
+                String reply = Protocol.getString(payload);
+                for (Listener listener : listeners) {
+                    listener.onDialogueReply(npcIndex, reply);
+                }
+            }
+            case Protocol.EPOCH_STATE -> {
+                int epoch = payload.get() & 0xFF;
+                int fragments = payload.getShort() & 0xFFFF;
+                boolean canAdvance = payload.get() != 0;
+                for (Listener listener : listeners) {
+                    listener.onEpochState(epoch, fragments, canAdvance);
+                }
+            }
+            case Protocol.PONG -> {
+                long roundTrip = System.nanoTime() - payload.getLong();
+                for (Listener listener : listeners) {
+                    listener.onPong(roundTrip);
+                }
+            }
+            default -> Logger.debug("忽略未知的服务器消息类型 " + type);
+        }
+    }
+
+    private void disconnected(String reason) {
+        boolean wasOpen = !closed;
+        closed = true;
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            // 已断开
+        }
+        if (wasOpen) {
+            Logger.warn("与世界服务器断开: " + reason);
+            for (Listener listener : listeners) {
+                listener.onDisconnected(reason);
+            }
+        }
+    }
+
+    /**
+     * 最近收到的快照
+     */
+    public WorldSnapshot getLatestSnapshot() {
+        return latestSnapshot;
+    }
+
+    /**
+     * 指定时刻应显示的其他访客（快照插值结果）
+     */
+    public WorldSnapshot sampleSnapshot(long nowNanos) {
+        return interpolator.sample(nowNanos);
+    }
+
+    /**
+     * 本机玩家的预测，{@link #attach} 之前为 null
+     */
+    public ClientPrediction getPrediction() {
+        return prediction;
+    }
+
+    public int getPlayerId() {
+        return playerId;
+    }
+
+    public int getTickHz() {
+        return tickHz;
+    }
+
+    public boolean isConnected() {
+        return !closed;
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        sendCommand(Protocol.BYE);
+        closed = true;
+        outbound.add(CLOSE_MARKER);
+        try {
+            writer.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            // 已断开
+        }
+    }
+}
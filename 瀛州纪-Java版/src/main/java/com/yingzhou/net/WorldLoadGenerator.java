@@ -0,0 +1,453 @@
+package com.yingzhou.net;
+
+import com.yingzhou.game.GameEngine;
+import com.yingzhou.game.input.Action;
+import com.yingzhou.perf.LatencyHistogram;
+import com.yingzhou.util.CommandLineOptions;
+import com.yingzhou.util.Logger;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * 世界服务器回环压测
+ * 用一个 Selector 模拟大量访客连接：握手后按固定频率发送移动输入，每秒发一次 PING，偶尔对话，
+ * 统计握手耗时、往返时间、快照到达率和带宽。未指定 host 时在进程内启动服务器，同时报告服务器逻辑帧耗时。
+ * 每个访客都完整解码增量快照，基准不一致或看不到自己都计为解码错误。
+ *
+ * 命令行用法:
+ * <pre>
+ *   java -cp yingzhou-java-1.0.jar com.yingzhou.net.WorldLoadGenerator \
+ *       clients=500 seconds=30 hz=30 serverHz=30 spawnRadius=20 interest=24 [host=127.0.0.1 port=7460]
+ * </pre>
+ * spawnRadius 和 interest 只对进程内服务器生效。
+ */
+public class WorldLoadGenerator {
+
+    private static final String[] MESSAGES = {"你好", "讲讲瀛州的历史", "熵会吞噬一切吗？", "交易的规则是什么？"};
+    private static final int[] MOVES = {
+        0,
+        Action.MOVE_FORWARD.mask(),
+        Action.MOVE_FORWARD.mask(),
+        Action.MOVE_FORWARD.mask() | Action.MOVE_LEFT.mask(),
+        Action.MOVE_FORWARD.mask() | Action.MOVE_RIGHT.mask(),
+        Action.MOVE_BACKWARD.mask(),
+        Action.MOVE_LEFT.mask(),
+        Action.MOVE_RIGHT.mask()
+    };
+
+    private final int clientCount;
+    private final long seconds;
+    private final int inputHz;
+    private final int serverHz;
+    private final String host;
+    private final int port;
+    private final double spawnRadius;
+    private final float interestRadius;
+    private final PrintStream report;
+
+    private final LatencyHistogram handshakeTimes = new LatencyHistogram("握手");
+    private final LatencyHistogram roundTrips = new LatencyHistogram("往返");
+    private final List<SimulatedClient> clients = new ArrayList<>();
+    private final SplittableRandom random = new SplittableRandom(42);
+    private WorldServer server;
+    private int welcomed;
+    private int disconnected;
+    private long snapshots;
+    private long visibleTotal;
+    private long decodeErrors;
+    private long bytesIn;
+    private long bytesOut;
+
+    /**
+     * 一个模拟访客
+     */
+    private static final class SimulatedClient {
+        final int index;
+        final SocketChannel channel;
+        final ByteBuffer readBuffer = ByteBuffer.allocate(Protocol.MAX_FRAME + 2);
+        final ArrayDeque<ByteBuffer> pending = new ArrayDeque<>();
+        final SnapshotDecoder decoder = new SnapshotDecoder();
+        SelectionKey key;
+        int playerId;
+        long connectStart;
+        boolean welcomed;
+        boolean closed;
+        int heldMask;
+        int sequence;
+        long snapshots;
+
+        SimulatedClient(int index, SocketChannel channel) {
+            this.index = index;
+            this.channel = channel;
+        }
+    }
+
+    public WorldLoadGenerator(Map<String, String> options, PrintStream report) {
+        this.clientCount = Integer.parseInt(options.getOrDefault("clients", "500"));
+        this.seconds = Long.parseLong(options.getOrDefault("seconds", "30"));
+        this.inputHz = Integer.parseInt(options.getOrDefault("hz", "30"));
+        this.serverHz = Integer.parseInt(options.getOrDefault("serverHz", "30"));
+        this.host = options.get("host");
+        this.port = Integer.parseInt(options.getOrDefault("port", String.valueOf(Protocol.DEFAULT_PORT)));
+        this.spawnRadius = Double.parseDouble(options.getOrDefault("spawnRadius", String.valueOf(WorldServer.DEFAULT_SPAWN_RADIUS)));
+        this.interestRadius = Float.parseFloat(options.getOrDefault("interest", String.valueOf(WorldServer.DEFAULT_INTEREST_RADIUS)));
+        this.report = report;
+    }
+
+    public void run() throws IOException {
+        InetSocketAddress address;
+        if (host == null) {
+            server = new WorldServer(new GameEngine(), new InetSocketAddress("127.0.0.1", 0), serverHz, clientCount + 16);
+            server.setSpawnRadius(spawnRadius);
+            server.setInterestRadius(interestRadius);
+            server.start();
+            address = new InetSocketAddress("127.0.0.1", server.getPort());
+            report.printf("进程内服务器: 端口 %d, %d 帧/秒, 出生半径 %.0f, 关注半径 %.0f%n",
+                server.getPort(), serverHz, spawnRadius, interestRadius);
+        } else {
+            address = new InetSocketAddress(host, port);
+            report.printf("外部服务器: %s%n", address);
+        }
+        report.printf("模拟访客 %d 个, 输入 %d 次/秒, 测量 %d 秒%n", clientCount, inputHz, seconds);
+
+        try (Selector selector = Selector.open()) {
+            for (int i = 0; i < clientCount; i++) {
+                SocketChannel channel = SocketChannel.open();
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                SimulatedClient client = new SimulatedClient(i, channel);
+                client.connectStart = System.nanoTime();
+                channel.connect(address);
+                client.key = channel.register(selector, SelectionKey.OP_CONNECT, client);
+                clients.add(client);
+            }
+            loop(selector);
+        } finally {
+            if (server != null) {
+                server.close();
+            }
+        }
+        printSummary();
+    }
+
+    private void loop(Selector selector) {
+        long inputNanos = 1_000_000_000L / inputHz;
+        long start = System.nanoTime();
+        long deadline = start + seconds * 1_000_000_000L;
+        long nextInput = start + inputNanos;
+        long nextReport = start + 5_000_000_000L;
+        long intervalSnapshots = 0;
+        long intervalBytes = 0;
+        LatencyHistogram.Snapshot lastRoundTrips = roundTrips.snapshot();
+        int inputRound = 0;
+
+        while (true) {
+            long now = System.nanoTime();
+            if (now >= deadline) {
+                break;
+            }
+            try {
+                selector.select(Math.max(1, Math.min(nextInput - now, 10_000_000) / 1_000_000));
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while (keys.hasNext()) {
+                SelectionKey key = keys.next();
+                keys.remove();
+                SimulatedClient client = (SimulatedClient) key.attachment();
+                try {
+                    if (key.isValid() && key.isConnectable()) {
+                        finishConnect(client);
+                    }
+                    if (key.isValid() && key.isReadable()) {
+                        read(client);
+                    }
+                    if (key.isValid() && key.isWritable()) {
+                        flush(client);
+                    }
+                } catch (IOException e) {
+                    close(client);
+                }
+            }
+
+            now = System.nanoTime();
+            if (now >= nextInput) {
+                inputRound++;
+                // 每秒一次 PING，按访客序号错开
+                int pingSlot = inputRound % inputHz;
+                for (SimulatedClient client : clients) {
+                    if (!client.welcomed || client.closed) {
+                        continue;
+                    }
+                    sendInput(client);
+                    if (client.index % inputHz == pingSlot) {
+                        sendPing(client, now);
+                        if (random.nextInt(20) == 0) {
+                            sendDialogue(client);
+                        }
+                    }
+                }
+                nextInput += inputNanos;
+                if (now - nextInput > inputNanos * 5) {
+                    nextInput = now + inputNanos;
+                }
+            }
+
+            if (now >= nextReport) {
+                LatencyHistogram.Snapshot rtt = roundTrips.snapshot();
+                LatencyHistogram.Snapshot interval = rtt.minus(lastRoundTrips);
+                lastRoundTrips = rtt;
+                report.printf("  [%3d秒] 在线 %d/%d | 快照 %.0f/秒 | 下行 %.2f MB/秒 | 往返 p50 %.2f ms p99 %.2f ms%s%n",
+                    (now - start) / 1_000_000_000L, welcomed - disconnected, clientCount,
+                    (snapshots - intervalSnapshots) / 5.0, (bytesIn - intervalBytes) / 5.0 / (1 << 20),
+                    interval.getValueAtPercentile(50) / 1e6, interval.getValueAtPercentile(99) / 1e6,
+                    serverSummary());
+                intervalSnapshots = snapshots;
+                intervalBytes = bytesIn;
+                nextReport += 5_000_000_000L;
+            }
+        }
+
+        for (SimulatedClient client : clients) {
+            if (!client.closed) {
+                client.closed = true;
+                try {
+                    client.channel.close();
+                } catch (IOException ignored) {
+                    // 测量结束
+                }
+            }
+        }
+    }
+
+    private String serverSummary() {
+        if (server == null) {
+            return "";
+        }
+        LatencyHistogram.Snapshot tick = server.getTickHistogram().snapshot();
+        LatencyHistogram.Snapshot broadcast = server.getBroadcastHistogram().snapshot();
+        return String.format(" | 服务器帧 p99 %.2f ms 广播 p99 %.2f ms",
+            tick.getValueAtPercentile(99) / 1e6, broadcast.getValueAtPercentile(99) / 1e6);
+    }
+
+    private void finishConnect(SimulatedClient client) throws IOException {
+        if (!client.channel.finishConnect()) {
+            return;
+        }
+        client.key.interestOps(SelectionKey.OP_READ);
+        ByteBuffer hello = ByteBuffer.allocate(Protocol.HEADER_SIZE + 2);
+        int start = Protocol.beginFrame(hello, Protocol.HELLO);
+        hello.putShort(Protocol.VERSION);
+        send(client, hello, start);
+    }
+
+    private void read(SimulatedClient client) throws IOException {
+        ByteBuffer buffer = client.readBuffer;
+        int read = client.channel.read(buffer);
+        if (read < 0) {
+            close(client);
+            return;
+        }
+        bytesIn += read;
+        buffer.flip();
+        int frameLength;
+        while ((frameLength = Protocol.completeFrameLength(buffer)) >= 0) {
+            int frameEnd = buffer.position() + frameLength;
+            byte type = buffer.get(buffer.position() + 2);
+            switch (type) {
+                case Protocol.WELCOME -> {
+                    client.playerId = buffer.getInt(buffer.position() + 3);
+                    client.welcomed = true;
+                    welcomed++;
+                    handshakeTimes.record(System.nanoTime() - client.connectStart);
+                }
+                case Protocol.SNAPSHOT -> {
+                    client.snapshots++;
+                    snapshots++;
+                    if (!decodeSnapshot(client, buffer.slice(buffer.position() + 3, frameEnd - buffer.position() - 3))) {
+                        close(client);
+                        return;
+                    }
+                }
+                case Protocol.PONG -> roundTrips.record(System.nanoTime() - buffer.getLong(buffer.position() + 3));
+                case Protocol.REJECT -> {
+                    close(client);
+                    return;
+                }
+                default -> {
+                }
+            }
+            buffer.position(frameEnd);
+        }
+        buffer.compact();
+    }
+
+    private boolean decodeSnapshot(SimulatedClient client, ByteBuffer payload) {
+        try {
+            WorldSnapshot snapshot = client.decoder.decode(payload);
+            visibleTotal += snapshot.size();
+            if (snapshot.indexOf(client.playerId) < 0) {
+                decodeErrors++;
+                return false;
+            }
+            return true;
+        } catch (RuntimeException e) {
+            decodeErrors++;
+            return false;
+        }
+    }
+
+    private void sendInput(SimulatedClient client) {
+        // 偶尔换一个移动方向，模拟在展馆中走动
+        if (random.nextInt(30) == 0) {
+            client.heldMask = MOVES[random.nextInt(MOVES.length)];
+        }
+        ByteBuffer message = ByteBuffer.allocate(Protocol.HEADER_SIZE + Protocol.INPUT_SIZE);
+        int start = Protocol.beginFrame(message, Protocol.INPUT);
+        message.putInt(++client.sequence).putInt(client.heldMask).putInt(0)
+            .putFloat((float) (random.nextDouble() * 4 - 2)).putFloat(0f);
+        send(client, message, start);
+    }
+
+    private void sendPing(SimulatedClient client, long now) {
+        ByteBuffer message = ByteBuffer.allocate(Protocol.HEADER_SIZE + 8);
+        int start = Protocol.beginFrame(message, Protocol.PING);
+        message.putLong(now);
+        send(client, message, start);
+    }
+
+    private void sendDialogue(SimulatedClient client) {
+        String text = MESSAGES[random.nextInt(MESSAGES.length)];
+        ByteBuffer message = ByteBuffer.allocate(Protocol.HEADER_SIZE + 1 + Protocol.stringSize(text));
+        int start = Protocol.beginFrame(message, Protocol.DIALOGUE);
+        message.put((byte) random.nextInt(5));
+        Protocol.putString(message, text);
+        send(client, message, start);
+    }
+
+    private void send(SimulatedClient client, ByteBuffer message, int start) {
+        Protocol.endFrame(message, start);
+        message.flip();
+        client.pending.add(message);
+        try {
+            flush(client);
+        } catch (IOException e) {
+            close(client);
+        }
+    }
+
+    private void flush(SimulatedClient client) throws IOException {
+        while (!client.pending.isEmpty()) {
+            ByteBuffer head = client.pending.peek();
+            bytesOut += client.channel.write(head);
+            if (head.hasRemaining()) {
+                client.key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                return;
+            }
+            client.pending.poll();
+        }
+        if (client.key.isValid() && client.key.interestOps() != SelectionKey.OP_READ) {
+            client.key.interestOps(SelectionKey.OP_READ);
+        }
+    }
+
+    private void close(SimulatedClient client) {
+        if (client.closed) {
+            return;
+        }
+        client.closed = true;
+        if (client.welcomed) {
+            disconnected++;
+        }
+        client.key.cancel();
+        try {
+            client.channel.close();
+        } catch (IOException ignored) {
+            // 已断开
+        }
+    }
+
+    private void printSummary() {
+        long minSnapshots = Long.MAX_VALUE;
+        for (SimulatedClient client : clients) {
+            if (client.welcomed) {
+                minSnapshots = Math.min(minSnapshots, client.snapshots);
+            }
+        }
+        LatencyHistogram.Snapshot handshake = handshakeTimes.snapshot();
+        LatencyHistogram.Snapshot rtt = roundTrips.snapshot();
+        report.println("=== 压测结果 ===");
+        report.printf("握手完成: %d/%d, 测量期间断开 %d%n", welcomed, clientCount, disconnected);
+        report.printf("握手耗时: p50 %.2f  p99 %.2f  max %.2f (ms)%n",
+            handshake.getValueAtPercentile(50) / 1e6, handshake.getValueAtPercentile(99) / 1e6, handshake.getMax() / 1e6);
+        report.printf("往返时间: p50 %.2f  p90 %.2f  p99 %.2f  max %.2f (ms), 共 %d 次%n",
+            rtt.getValueAtPercentile(50) / 1e6, rtt.getValueAtPercentile(90) / 1e6,
+            rtt.getValueAtPercentile(99) / 1e6, rtt.getMax() / 1e6, rtt.getTotalCount());
+        report.printf("快照: 每访客平均 %.1f/秒, 最少的访客 %.1f/秒%n",
+            welcomed == 0 ? 0 : snapshots / (double) welcomed / seconds,
+            minSnapshots == Long.MAX_VALUE ? 0 : minSnapshots / (double) seconds);
+        report.printf("快照内容: 平均可见 %.1f 名玩家, 解码错误 %d%n",
+            snapshots == 0 ? 0 : visibleTotal / (double) snapshots, decodeErrors);
+        report.printf("流量: 下行 %.1f MB, 上行 %.1f MB%n", bytesIn / (double) (1 << 20), bytesOut / (double) (1 << 20));
+        if (server != null) {
+            long encoded = server.getSnapshotCount();
+            report.printf("服务器快照: 编码 %d 份, 平均 %.1f 字节/份, 直接缓冲区分配 %d 个%n",
+                encoded, encoded == 0 ? 0 : server.getSnapshotBytes() / (double) encoded,
+                server.getSnapshotBuffersAllocated());
+            LatencyHistogram.Snapshot tick = server.getTickHistogram().snapshot();
+            LatencyHistogram.Snapshot broadcast = server.getBroadcastHistogram().snapshot();
+            LatencyHistogram.Snapshot encode = server.getEncodeHistogram().snapshot();
+            report.printf("服务器逻辑帧: p50 %.3f  p99 %.3f  max %.3f (ms); 快照广播: p50 %.3f  p99 %.3f (ms), 其中编码 p50 %.3f  p99 %.3f (ms)%n",
+                tick.getValueAtPercentile(50) / 1e6, tick.getValueAtPercentile(99) / 1e6, tick.getMax() / 1e6,
+                broadcast.getValueAtPercentile(50) / 1e6, broadcast.getValueAtPercentile(99) / 1e6,
+                encode.getValueAtPercentile(50) / 1e6, encode.getValueAtPercentile(99) / 1e6);
+        }
+    }
+
+    /**
+     * 完成握手的访客数
+     */
+    public int getWelcomed() {
+        return welcomed;
+    }
+
+    /**
+     * 握手后在测量期间断开的访客数
+     */
+    public int getDisconnected() {
+        return disconnected;
+    }
+
+    public long getSnapshots() {
+        return snapshots;
+    }
+
+    public long getDecodeErrors() {
+        return decodeErrors;
+    }
+
+    public long getRoundTrips() {
+        return roundTrips.snapshot().getTotalCount();
+    }
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = CommandLineOptions.parse(args);
+        // 进程内服务器的逐次交互日志会淹没报告
+        Logger.setLevel(options.getOrDefault("log", "WARN"));
+        new WorldLoadGenerator(options, System.out).run();
+    }
+}
@@ -0,0 +1,476 @@
+package com.yingzhou.net;
+
+import com.yingzhou.game.GameEngine;
+import com.yingzhou.game.epoch.EpochState;
+import com.yingzhou.game.input.InputSnapshot;
+import com.yingzhou.npc.BaseNPC;
+import com.yingzhou.perf.LatencyHistogram;
+import com.yingzhou.util.CommandLineOptions;
+import com.yingzhou.util.Logger;
+import javafx.geometry.Point3D;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * 权威世界服务器
+ * 所有访客共享一个 {@link GameEngine}，每个连接对应引擎中的一名玩家。
+ *
+ * 网络IO和逻辑帧在同一个线程上运行：Selector 等待到下一帧的截止时间，
+ * 其间读到的输入直接写入玩家的待处理输入，到点推进一帧并广播快照。
+ * 引擎因此始终只被一个线程访问，不需要任何锁。
+ *
+ * 每个访客只收到关注半径内最近的若干名玩家，并相对其上一份快照增量编码，
+ * 下行流量随访客数线性增长而不是平方增长。快照写入池化的直接缓冲区。
+ *
+ * 命令行用法:
+ * <pre>
+ *   java -cp yingzhou-java-1.0.jar com.yingzhou.net.WorldServer port=7460 hz=30 maxSessions=1000 interest=24
+ * </pre>
+ */
+public class WorldServer implements Closeable {
+
+    public static final double DEFAULT_SPAWN_RADIUS = 20;
+    public static final float DEFAULT_INTEREST_RADIUS = 24;
+    // 单份快照最多包含的玩家数，人群密集时只保留最近的
+    public static final int MAX_VISIBLE = 128;
+
+    private final GameEngine engine;
+    private final int tickHz;
+    private final long tickNanos;
+    private final int maxSessions;
+    private final Selector selector;
+    private final ServerSocketChannel serverChannel;
+    private final List<ClientSession> sessionList = new ArrayList<>();
+    private final InputSnapshot idle = new InputSnapshot();
+    private final SplittableRandom spawnRandom = new SplittableRandom(7460);
+    private final LatencyHistogram tickTimes = new LatencyHistogram("服务器逻辑帧");
+    private final LatencyHistogram broadcastTimes = new LatencyHistogram("快照广播");
+    private final LatencyHistogram encodeTimes = new LatencyHistogram("快照编码");
+    private final DirectBufferPool snapshotPool;
+    private double spawnRadius = DEFAULT_SPAWN_RADIUS;
+    private float interestRadius = DEFAULT_INTEREST_RADIUS;
+    private SnapshotEncoder encoder;
+    private int welcomedCount;
+    private int nextSessionId = 1;
+    private volatile boolean running;
+    private volatile int sessionCount;
+    private volatile long totalBytesIn;
+    private volatile long totalBytesOut;
+    private volatile long snapshotCount;
+    private volatile long snapshotBytes;
+    private Thread thread;
+
+    public WorldServer(GameEngine engine, InetSocketAddress address, int tickHz, int maxSessions) throws IOException {
+        this.engine = engine;
+        this.tickHz = tickHz;
+        this.tickNanos = 1_000_000_000L / tickHz;
+        this.maxSessions = maxSessions;
+        snapshotPool = new DirectBufferPool(SnapshotEncoder.maxSnapshotSize(MAX_VISIBLE), maxSessions * 2);
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(address, 1024);
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    /**
+     * 新访客出生点分布的半径，须在 {@link #start()} 之前设置
+     */
+    public void setSpawnRadius(double spawnRadius) {
+        this.spawnRadius = spawnRadius;
+    }
+
+    /**
+     * 访客能看到其他玩家的距离，须在 {@link #start()} 之前设置
+     */
+    public void setInterestRadius(float interestRadius) {
+        this.interestRadius = interestRadius;
+    }
+
+    /**
+     * 在后台线程运行服务器
+     */
+    public void start() {
+        encoder = new SnapshotEncoder(interestRadius, MAX_VISIBLE);
+        running = true;
+        thread = new Thread(this::run, "world-server");
+        thread.start();
+        Logger.info("世界服务器已启动，端口 " + getPort() + "，" + tickHz + " 帧/秒");
+    }
+
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    private void run() {
+        long nextTick = System.nanoTime() + tickNanos;
+        try {
+            while (running) {
+                long wait = nextTick - System.nanoTime();
+                if (wait > 0) {
+                    selector.select(Math.max(1, wait / 1_000_000));
+                } else {
+                    selector.selectNow();
+                }
+                processKeys();
+
+                long now = System.nanoTime();
+                if (now >= nextTick) {
+                    tick();
+                    nextTick += tickNanos;
+                    if (now - nextTick > tickNanos * 5) {
+                        // 落后太多时不再追帧，从当前时间重新计时
+                        nextTick = now + tickNanos;
+                    }
+                }
+            }
+        } catch (IOException e) {
+            Logger.error("世界服务器异常退出", e);
+        } finally {
+            for (ClientSession session : new ArrayList<>(sessionList)) {
+                disconnect(session);
+            }
+        }
+    }
+
+    private void processKeys() {
+        Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+        while (keys.hasNext()) {
+            SelectionKey key = keys.next();
+            keys.remove();
+            if (!key.isValid()) {
+                continue;
+            }
+            if (key.isAcceptable()) {
+                accept();
+                continue;
+            }
+            ClientSession session = (ClientSession) key.attachment();
+            try {
+                if (key.isReadable()) {
+                    read(session);
+                }
+                if (key.isValid() && key.isWritable()) {
+                    flush(session);
+                }
+            } catch (IOException | RuntimeException e) {
+                Logger.debug("连接 " + session.id + " 断开: " + e.getMessage());
+                disconnect(session);
+            }
+        }
+    }
+
+    private void accept() {
+        try {
+            SocketChannel channel;
+            while ((channel = serverChannel.accept()) != null) {
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+                ClientSession session = new ClientSession(nextSessionId++, channel, key, snapshotPool);
+                key.attach(session);
+                sessionList.add(session);
+                sessionCount = sessionList.size();
+            }
+        } catch (IOException e) {
+            Logger.warn("接受连接失败: " + e.getMessage());
+        }
+    }
+
+    private void read(ClientSession session) throws IOException {
+        ByteBuffer buffer = session.readBuffer;
+        int read = session.channel.read(buffer);
+        if (read < 0) {
+            disconnect(session);
+            return;
+        }
+        session.bytesIn += read;
+        totalBytesIn += read;
+        buffer.flip();
+        int frameLength;
+        while ((frameLength = Protocol.completeFrameLength(buffer)) >= 0) {
+            int frameEnd = buffer.position() + frameLength;
+            int limit = buffer.limit();
+            buffer.position(buffer.position() + 2).limit(frameEnd);
+            handle(session, buffer.get(), buffer);
+            buffer.limit(limit).position(frameEnd);
+            if (!session.key.isValid()) {
+                return;
+            }
+        }
+        buffer.compact();
+        flush(session);
+    }
+
+    private void handle(ClientSession session, byte type, ByteBuffer payload) throws IOException {
+        if (!session.isWelcomed() && type != Protocol.HELLO) {
+            throw new IOException("未握手的消息类型 " + type);
+        }
+        switch (type) {
+            case Protocol.HELLO -> welcome(session, payload.getShort());
+            case Protocol.INPUT -> {
+                long sequence = payload.getInt() & 0xFFFFFFFFL;
+                int held = payload.getInt();
+                int pressed = payload.getInt();
+                float dx = payload.getFloat();
+                float dy = payload.getFloat();
+                session.inputs.add(sequence, held, pressed, dx, dy);
+            }
+            case Protocol.DIALOGUE -> {
+                int npcIndex = payload.get() & 0xFF;
+                String message = Protocol.getString(payload);
+                List<BaseNPC> npcs = engine.getNPCManager().getNPCs();
+                if (npcIndex >= npcs.size()) {
+                    throw new IOException("NPC序号越界: " + npcIndex);
+                }
+                String response = engine.sendDialogue(session.player, npcs.get(npcIndex), message);
+                ByteBuffer reply = ByteBuffer.allocate(Protocol.HEADER_SIZE + 1 + Protocol.stringSize(response));
+                int start = Protocol.beginFrame(reply, Protocol.DIALOGUE_REPLY);
+                reply.put((byte) npcIndex);
+                Protocol.putString(reply, response);
+                send(session, reply, start);
+            }
+            case Protocol.COLLECT_FRAGMENT -> {
+                engine.collectFragment(session.player);
+                sendEpochState(session);
+            }
+            case Protocol.ADVANCE_EPOCH -> {
+                engine.advanceEpoch(session.player);
+                sendEpochState(session);
+            }
+            case Protocol.PING -> {
+                ByteBuffer pong = ByteBuffer.allocate(Protocol.HEADER_SIZE + 8);
+                int start = Protocol.beginFrame(pong, Protocol.PONG);
+                pong.putLong(payload.getLong());
+                send(session, pong, start);
+            }
+            case Protocol.BYE -> disconnect(session);
+            default -> throw new IOException("未知消息类型 " + type);
+        }
+    }
+
+    private void welcome(ClientSession session, short version) throws IOException {
+        if (session.isWelcomed()) {
+            throw new IOException("重复握手");
+        }
+        String rejection = null;
+        if (version != Protocol.VERSION) {
+            rejection = "协议版本不匹配，服务器为 " + Protocol.VERSION;
+        } else if (welcomedCount >= maxSessions) {
+            rejection = "服务器已满";
+        }
+        if (rejection != null) {
+            ByteBuffer reject = ByteBuffer.allocate(Protocol.HEADER_SIZE + Protocol.stringSize(rejection));
+            int start = Protocol.beginFrame(reject, Protocol.REJECT);
+            Protocol.putString(reject, rejection);
+            session.markClosing();
+            send(session, reject, start);
+            return;
+        }
+
+        double angle = spawnRandom.nextDouble(Math.PI * 2);
+        double radius = Math.sqrt(spawnRandom.nextDouble()) * spawnRadius;
+        session.player = engine.addPlayer(new Point3D(Math.cos(angle) * radius, 0, Math.sin(angle) * radius));
+        welcomedCount++;
+
+        ByteBuffer welcome = ByteBuffer.allocate(Protocol.HEADER_SIZE + 4 + 2 + 4);
+        int start = Protocol.beginFrame(welcome, Protocol.WELCOME);
+        welcome.putInt(session.id).putShort((short) tickHz).putInt((int) engine.getTickCount());
+        send(session, welcome, start);
+        sendEpochState(session);
+    }
+
+    private void sendEpochState(ClientSession session) throws IOException {
+        EpochState state = engine.getEpochState(session.player);
+        ByteBuffer message = ByteBuffer.allocate(Protocol.HEADER_SIZE + 1 + 2 + 1);
+        int start = Protocol.beginFrame(message, Protocol.EPOCH_STATE);
+        message.put((byte) state.getEpoch().ordinal())
+            .putShort((short) state.getFragmentsCollected())
+            .put((byte) (state.canAdvance() ? 1 : 0));
+        send(session, message, start);
+    }
+
+    private void send(ClientSession session, ByteBuffer message, int start) throws IOException {
+        Protocol.endFrame(message, start);
+        message.flip();
+        if (!session.queue(message)) {
+            throw new IOException("客户端接收过慢");
+        }
+    }
+
+    private void flush(ClientSession session) throws IOException {
+        if (!session.key.isValid()) {
+            return;
+        }
+        long before = session.bytesOut;
+        boolean done = session.flush();
+        totalBytesOut += session.bytesOut - before;
+        if (done && session.isClosing()) {
+            disconnect(session);
+            return;
+        }
+        int ops = done ? SelectionKey.OP_READ : SelectionKey.OP_READ | SelectionKey.OP_WRITE;
+        if (session.key.interestOps() != ops) {
+            session.key.interestOps(ops);
+        }
+    }
+
+    private void tick() {
+        long start = System.nanoTime();
+        // 每名访客每帧应用一条输入；没有新输入时保持上一条的按住状态
+        for (ClientSession session : sessionList) {
+            if (session.isWelcomed()) {
+                long sequence = session.inputs.poll(session.player.getPendingInput());
+                if (sequence >= 0) {
+                    session.lastInputSequence = sequence;
+                }
+            }
+        }
+        engine.tick(tickNanos, idle);
+        long ticked = System.nanoTime();
+        tickTimes.record(ticked - start);
+
+        encoder.beginTick(sessionList);
+        long tickCount = engine.getTickCount();
+        long encoded = 0;
+        long bytes = 0;
+        long encodeNanos = 0;
+        for (int i = sessionList.size() - 1; i >= 0; i--) {
+            ClientSession session = sessionList.get(i);
+            if (!session.isWelcomed() || session.isClosing()) {
+                continue;
+            }
+            if (session.canEncodeSnapshot()) {
+                long encodeStart = System.nanoTime();
+                ByteBuffer snapshot = snapshotPool.acquire();
+                encoder.encode(session, tickCount, snapshot);
+                snapshot.flip();
+                encodeNanos += System.nanoTime() - encodeStart;
+                encoded++;
+                bytes += snapshot.remaining();
+                session.offerSnapshot(snapshot);
+            } else {
+                session.snapshotsReplaced++;
+            }
+            try {
+                flush(session);
+            } catch (IOException e) {
+                Logger.debug("连接 " + session.id + " 断开: " + e.getMessage());
+                disconnect(session);
+            }
+        }
+        encodeTimes.record(encodeNanos);
+        snapshotCount += encoded;
+        snapshotBytes += bytes;
+        broadcastTimes.record(System.nanoTime() - ticked);
+    }
+
+    private void disconnect(ClientSession session) {
+        if (!sessionList.remove(session)) {
+            return;
+        }
+        sessionCount = sessionList.size();
+        if (session.player != null) {
+            engine.removePlayer(session.player);
+            welcomedCount--;
+        }
+        session.releaseBuffers();
+        session.key.cancel();
+        try {
+            session.channel.close();
+        } catch (IOException ignored) {
+            // 连接已不可用
+        }
+    }
+
+    /**
+     * 当前连接数（含未完成握手的）
+     */
+    public int getSessionCount() {
+        return sessionCount;
+    }
+
+    public long getTotalBytesIn() {
+        return totalBytesIn;
+    }
+
+    public long getTotalBytesOut() {
+        return totalBytesOut;
+    }
+
+    /**
+     * 累计编码的快照数与字节数（含帧头）
+     */
+    public long getSnapshotCount() {
+        return snapshotCount;
+    }
+
+    public long getSnapshotBytes() {
+        return snapshotBytes;
+    }
+
+    /**
+     * 快照缓冲池累计分配的直接缓冲区数量
+     */
+    public long getSnapshotBuffersAllocated() {
+        return snapshotPool.getAllocatedCount();
+    }
+
+    public LatencyHistogram getTickHistogram() {
+        return tickTimes;
+    }
+
+    public LatencyHistogram getBroadcastHistogram() {
+        return broadcastTimes;
+    }
+
+    /**
+     * 每帧为所有访客编码快照的总耗时（不含网格重建和写套接字）
+     */
+    public LatencyHistogram getEncodeHistogram() {
+        return encodeTimes;
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        selector.wakeup();
+        if (thread != null) {
+            try {
+                thread.join(2000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        serverChannel.close();
+        selector.close();
+    }
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = CommandLineOptions.parse(args);
+        int port = Integer.parseInt(options.getOrDefault("port", String.valueOf(Protocol.DEFAULT_PORT)));
+        int hz = Integer.parseInt(options.getOrDefault("hz", "30"));
+        int maxSessions = Integer.parseInt(options.getOrDefault("maxSessions", "1000"));
+        float interest = Float.parseFloat(options.getOrDefault("interest", String.valueOf(DEFAULT_INTEREST_RADIUS)));
+
+        // 数百访客时逐次交互的日志会拖慢服务器，默认只记警告以上
+        Logger.setLevel(options.getOrDefault("log", "WARN"));
+        WorldServer server = new WorldServer(new GameEngine(), new InetSocketAddress(port), hz, maxSessions);
+        server.setInterestRadius(interest);
+        server.start();
+        System.out.printf("世界服务器监听 %d 端口，%d 帧/秒，最多 %d 名访客%n", server.getPort(), hz, maxSessions);
+    }
+}
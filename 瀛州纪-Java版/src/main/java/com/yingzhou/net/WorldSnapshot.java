@@ -0,0 +1,66 @@
+package com.yingzhou.net;
+
+/**
+ * 一帧世界快照（客户端视角）
+ * 不可变，接收线程整体替换，渲染线程随时读取
+ */
+public final class WorldSnapshot {
+
+    public static final WorldSnapshot EMPTY = new WorldSnapshot(0, new int[0], new float[0], new float[0], new float[0], new float[0]);
+
+    private final long tick;
+    private final int[] ids;
+    private final float[] x;
+    private final float[] y;
+    private final float[] z;
+    private final float[] yaw;
+
+    WorldSnapshot(long tick, int[] ids, float[] x, float[] y, float[] z, float[] yaw) {
+        this.tick = tick;
+        this.ids = ids;
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        this.yaw = yaw;
+    }
+
+    public long getTick() {
+        return tick;
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    public int getId(int index) {
+        return ids[index];
+    }
+
+    public float getX(int index) {
+        return x[index];
+    }
+
+    public float getY(int index) {
+        return y[index];
+    }
+
+    public float getZ(int index) {
+        return z[index];
+    }
+
+    public float getYaw(int index) {
+        return yaw[index];
+    }
+
+    /**
+     * 玩家在快照中的下标，不在快照中返回 -1
+     */
+    public int indexOf(int id) {
+        for (int i = 0; i < ids.length; i++) {
+            if (ids[i] == id) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
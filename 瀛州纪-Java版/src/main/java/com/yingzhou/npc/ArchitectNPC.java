@@ -1,5 +1,6 @@
 package com.yingzhou.npc;
 
+import com.yingzhou.util.Logger;
 import javafx.geometry.Point3D;
 import javafx.scene.paint.Color;
 
@@ -15,7 +16,7 @@ public class ArchitectNPC extends BaseNPC {
 
     @Override
     public void interact() {
-        System.out.println("与工匠交互");
+        Logger.debug("与工匠交互");
     }
 
     @Override
@@ -32,7 +33,13 @@ public class ArchitectNPC extends BaseNPC {
     }
 
     @Override
-    public void startMiniGame() {
-        System.out.println("启动代码构建小游戏");
+    public boolean startMiniGame() {
+        Logger.info("启动代码构建小游戏");
+        return false;
+    }
+
+    @Override
+    public String getMiniGameName() {
+        return "代码构建";
     }
 }
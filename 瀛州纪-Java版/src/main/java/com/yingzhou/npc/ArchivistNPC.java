@@ -1,5 +1,6 @@
 package com.yingzhou.npc;
 
+import com.yingzhou.util.Logger;
 import javafx.geometry.Point3D;
 import javafx.scene.paint.Color;
 
@@ -15,7 +16,7 @@ public class ArchivistNPC extends BaseNPC {
 
     @Override
     public void interact() {
-        System.out.println("与史官交互");
+        Logger.debug("与史官交互");
         // TODO: 打开对话界面
     }
 
@@ -34,8 +35,14 @@ public class ArchivistNPC extends BaseNPC {
     }
 
     @Override
-    public void startMiniGame() {
-        System.out.println("启动记忆排序小游戏");
+    public boolean startMiniGame() {
+        Logger.info("启动记忆排序小游戏");
         // TODO: 启动记忆排序小游戏
+        return false;
+    }
+
+    @Override
+    public String getMiniGameName() {
+        return "记忆排序";
     }
 }
@@ -37,7 +37,17 @@ public abstract class BaseNPC {
     
     public abstract String getDialogue(String playerMessage);
     
-    public abstract void startMiniGame();
+    /**
+     * 进行一局小游戏
+     *
+     * @return 玩家是否完成了挑战
+     */
+    public abstract boolean startMiniGame();
+
+    /**
+     * 小游戏名称，随小游戏完成事件发布
+     */
+    public abstract String getMiniGameName();
 
     // Getters and Setters
     public String getName() {
@@ -1,5 +1,6 @@
 package com.yingzhou.npc;
 
+import com.yingzhou.util.Logger;
 import javafx.geometry.Point3D;
 import javafx.scene.paint.Color;
 
@@ -15,7 +16,7 @@ public class EntropyNPC extends BaseNPC {
 
     @Override
     public void interact() {
-        System.out.println("与遗忘者交互");
+        Logger.debug("与遗忘者交互");
     }
 
     @Override
@@ -32,7 +33,13 @@ public class EntropyNPC extends BaseNPC {
     }
 
     @Override
-    public void startMiniGame() {
-        System.out.println("启动混沌迷宫小游戏");
+    public boolean startMiniGame() {
+        Logger.info("启动混沌迷宫小游戏");
+        return false;
+    }
+
+    @Override
+    public String getMiniGameName() {
+        return "混沌迷宫";
     }
 }
@@ -1,21 +1,26 @@
 package com.yingzhou.npc;
 
+import com.yingzhou.util.Logger;
 import javafx.geometry.Point3D;
 import javafx.scene.paint.Color;
 
+import java.util.SplittableRandom;
+
 /**
  * 商序NPC
  * 流动的仲裁者
  */
 public class MercantileNPC extends BaseNPC {
 
+    private final ResourceBalanceGame balanceGame = new ResourceBalanceGame(new SplittableRandom());
+
     public MercantileNPC(Point3D position) {
         super("商序", position, Color.rgb(217, 119, 6), 2.5); // 金黄色
     }
 
     @Override
     public void interact() {
-        System.out.println("与商序交互");
+        Logger.debug("与商序交互");
     }
 
     @Override
@@ -32,7 +37,15 @@ public class MercantileNPC extends BaseNPC {
     }
 
     @Override
-    public void startMiniGame() {
-        System.out.println("启动资源平衡小游戏");
+    public boolean startMiniGame() {
+        Logger.info("启动资源平衡小游戏");
+        boolean balanced = balanceGame.play();
+        Logger.info("资源平衡: " + balanceGame.getMoves() + " 步" + (balanced ? "摊平" : "未能摊平"));
+        return balanced;
+    }
+
+    @Override
+    public String getMiniGameName() {
+        return "资源平衡";
     }
 }
@@ -1,6 +1,7 @@
 package com.yingzhou.npc;
 
 import com.yingzhou.game.GameEngine;
+import com.yingzhou.npc.population.BeingPopulation;
 import javafx.geometry.Point3D;
 
 import java.util.ArrayList;
@@ -14,12 +15,14 @@ public class NPCManager {
     
     private GameEngine gameEngine;
     private List<BaseNPC> npcs;
+    private BeingPopulation population;
     private static final double INTERACTION_DISTANCE = 5.0;
 
     public NPCManager(GameEngine gameEngine) {
         this.gameEngine = gameEngine;
         this.npcs = new ArrayList<>();
         initializeNPCs();
+        initializePopulation();
     }
 
     private void initializeNPCs() {
@@ -31,20 +34,46 @@ public class NPCManager {
         npcs.add(new EntropyNPC(new Point3D(-20, 0, 0)));    // 遗忘者 - 西方
     }
 
+    /**
+     * 按 -Dyingzhou.population 生成数字生命群体，以各NPC所在处为地标
+     */
+    private void initializePopulation() {
+        List<float[]> anchors = new ArrayList<>();
+        for (BaseNPC npc : npcs) {
+            anchors.add(new float[] {(float) npc.getPosition().getX(), (float) npc.getPosition().getZ()});
+        }
+        population = BeingPopulation.createIfRequested(anchors);
+    }
+
     public void update(double deltaTime) {
         for (BaseNPC npc : npcs) {
             npc.update(deltaTime);
         }
+        if (population != null) {
+            population.update(deltaTime);
+        }
     }
 
+    /**
+     * 更新本机玩家与各NPC的远近状态，进出交互范围时发布事件
+     */
     public void checkPlayerProximity(Point3D playerPosition) {
-        for (BaseNPC npc : npcs) {
-            double distance = playerPosition.distance(npc.getPosition());
-            npc.setPlayerNearby(distance < INTERACTION_DISTANCE);
+        for (int i = 0; i < npcs.size(); i++) {
+            BaseNPC npc = npcs.get(i);
+            boolean nearby = playerPosition.distance(npc.getPosition()) < INTERACTION_DISTANCE;
+            if (nearby != npc.isPlayerNearby()) {
+                npc.setPlayerNearby(nearby);
+                gameEngine.getEventBus().publishNpcProximityChanged(i, nearby);
+            }
         }
     }
 
-    public void interactWithNearest(Point3D playerPosition) {
+    /**
+     * 与交互范围内最近的NPC交互
+     *
+     * @return 交互的NPC，范围内没有NPC时返回 null
+     */
+    public BaseNPC interactWithNearest(Point3D playerPosition) {
         BaseNPC nearest = null;
         double minDistance = Double.MAX_VALUE;
         
@@ -59,9 +88,21 @@ public class NPCManager {
         if (nearest != null) {
             nearest.interact();
         }
+        return nearest;
+    }
+
+    public static double getInteractionDistance() {
+        return INTERACTION_DISTANCE;
     }
 
     public List<BaseNPC> getNPCs() {
         return npcs;
     }
+
+    /**
+     * 数字生命群体，未启用时为 null
+     */
+    public BeingPopulation getPopulation() {
+        return population;
+    }
 }
@@ -1,5 +1,6 @@
 package com.yingzhou.npc;
 
+import com.yingzhou.util.Logger;
 import javafx.geometry.Point3D;
 import javafx.scene.paint.Color;
 
@@ -15,7 +16,7 @@ public class OracleNPC extends BaseNPC {
 
     @Override
     public void interact() {
-        System.out.println("与先知交互");
+        Logger.debug("与先知交互");
     }
 
     @Override
@@ -32,7 +33,13 @@ public class OracleNPC extends BaseNPC {
     }
 
     @Override
-    public void startMiniGame() {
-        System.out.println("启动未来推演小游戏");
+    public boolean startMiniGame() {
+        Logger.info("启动未来推演小游戏");
+        return false;
+    }
+
+    @Override
+    public String getMiniGameName() {
+        return "未来推演";
     }
 }
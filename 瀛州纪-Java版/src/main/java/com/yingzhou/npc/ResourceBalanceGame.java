@@ -0,0 +1,144 @@
+package com.yingzhou.npc;
+
+import com.yingzhou.ledger.resource.ResourceLedger;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * 资源平衡小游戏（商序）
+ * 每局向玩家和各摊位不均匀地发放几种资源，每种资源的发放总量都能被账户数整除；
+ * 商序受托后在有限步数内用批量转账把每种资源摊平，步数用完仍未摊平即挑战失败。
+ *
+ * 余额记在 {@link ResourceLedger} 上：每一步是一次 safeBatchTransferFrom，整批生效或整批回滚，
+ * 账本跨局保留，上一局没摊平的差额留到下一局。
+ */
+final class ResourceBalanceGame {
+
+    static final String MERCHANT = String.format("0x%040x", 0x10000);
+    static final String PLAYER = String.format("0x%040x", 0x10001);
+    static final long[] RESOURCES = {0, 1, 2};
+    static final int STALLS = 4;
+    static final int MAX_MOVES = 6;
+    static final int MAX_DEAL = 20;
+
+    private final ResourceLedger ledger = new ResourceLedger(MERCHANT, 4, 1024);
+    private final SplittableRandom random;
+    private final String[] accounts = new String[STALLS + 1];
+    private int moves;
+
+    ResourceBalanceGame(SplittableRandom random) {
+        this.random = random;
+        accounts[0] = PLAYER;
+        for (int i = 1; i < accounts.length; i++) {
+            accounts[i] = String.format("0x%040x", 0x10001 + i);
+        }
+        for (String account : accounts) {
+            ledger.setApprovalForAll(account, MERCHANT, true);
+        }
+    }
+
+    /**
+     * 发放一局的资源并由商序摊平
+     *
+     * @return 步数之内是否摊平了所有资源
+     */
+    boolean play() {
+        deal();
+        for (moves = 0; moves < MAX_MOVES && !isBalanced(); moves++) {
+            move();
+        }
+        return isBalanced();
+    }
+
+    private void deal() {
+        for (long resource : RESOURCES) {
+            // 同一种资源的发放总量是账户数的整数倍，保证能恰好摊平
+            long[] amounts = new long[accounts.length];
+            long total = 0;
+            for (int i = 0; i < accounts.length; i++) {
+                amounts[i] = random.nextInt(MAX_DEAL + 1);
+                total += amounts[i];
+            }
+            amounts[random.nextInt(accounts.length)] += (accounts.length - total % accounts.length) % accounts.length;
+            for (int i = 0; i < accounts.length; i++) {
+                if (amounts[i] > 0) {
+                    ledger.mint(accounts[i], resource, amounts[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * 在所有 (转出, 转入) 账户对中选一次批量转账能摊平最多数量的一对
+     */
+    private void move() {
+        long[][] excess = new long[accounts.length][RESOURCES.length];
+        for (int r = 0; r < RESOURCES.length; r++) {
+            long target = getTotal(RESOURCES[r]) / accounts.length;
+            for (int i = 0; i < accounts.length; i++) {
+                excess[i][r] = ledger.balanceOf(accounts[i], RESOURCES[r]) - target;
+            }
+        }
+        int bestFrom = -1;
+        int bestTo = -1;
+        long best = 0;
+        for (int from = 0; from < accounts.length; from++) {
+            for (int to = 0; to < accounts.length; to++) {
+                long moved = 0;
+                for (int r = 0; r < RESOURCES.length; r++) {
+                    moved += Math.max(0, Math.min(excess[from][r], -excess[to][r]));
+                }
+                if (moved > best) {
+                    best = moved;
+                    bestFrom = from;
+                    bestTo = to;
+                }
+            }
+        }
+        int count = 0;
+        long[] ids = new long[RESOURCES.length];
+        long[] values = new long[RESOURCES.length];
+        for (int r = 0; r < RESOURCES.length; r++) {
+            long value = Math.min(excess[bestFrom][r], -excess[bestTo][r]);
+            if (value > 0) {
+                ids[count] = RESOURCES[r];
+                values[count++] = value;
+            }
+        }
+        ledger.safeBatchTransferFrom(MERCHANT, accounts[bestFrom], accounts[bestTo],
+            Arrays.copyOf(ids, count), Arrays.copyOf(values, count));
+    }
+
+    boolean isBalanced() {
+        for (long resource : RESOURCES) {
+            long target = getTotal(resource) / accounts.length;
+            for (String account : accounts) {
+                if (ledger.balanceOf(account, resource) != target) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    long getTotal(long resource) {
+        long total = 0;
+        for (String account : accounts) {
+            total += ledger.balanceOf(account, resource);
+        }
+        return total;
+    }
+
+    int getMoves() {
+        return moves;
+    }
+
+    String[] getAccounts() {
+        return accounts.clone();
+    }
+
+    ResourceLedger getLedger() {
+        return ledger;
+    }
+}
@@ -0,0 +1,443 @@
+package com.yingzhou.npc.population;
+
+import com.yingzhou.util.Logger;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * 数字生命群体
+ * 对应 DigitalBeing.sol 的 createBeing / recordMemory / interact / reflect，在进程内模拟上万个数字生命：
+ * 游走、在地标处发现、与相遇者对话、每积累若干记忆反思一次，记忆写入 {@link MemoryLog}。
+ *
+ * 按固定的 {@value #TICK_HZ} Hz 模拟帧推进，每个生命只在自己的动作到期时被处理（{@link TimerWheel}），
+ * 其余时间不占 CPU：位置由上次行动时的起点和速度按需算出。所有状态都是按生命编号索引的基本类型数组。
+ * 单线程运行，同一种子、同一生成顺序下结果完全相同。
+ *
+ * 游戏启动时加 -Dyingzhou.population=20000 即在 NPC 周围生成这么多数字生命。
+ */
+public class BeingPopulation {
+
+    public static final String PROPERTY = "yingzhou.population";
+
+    public static final int TICK_HZ = 10;
+    private static final double TICK_SECONDS = 1.0 / TICK_HZ;
+    /** 单次更新最多补推的模拟帧数，卡顿后不追赶 */
+    private static final int MAX_CATCH_UP = 5;
+
+    /** 每平方单位的生命数，决定世界半径 */
+    private static final double DENSITY = 0.05;
+    private static final float MIN_WORLD_RADIUS = 40;
+    /** 每多少个生命放一个地标 */
+    private static final int BEINGS_PER_LANDMARK = 200;
+
+    private static final int MIN_DELAY = 5;
+    static final int MAX_DELAY = 50;
+    private static final float MAX_SPEED = 1.5f;
+    private static final float TALK_RADIUS = 2.5f;
+    private static final float DISCOVERY_RADIUS = 3f;
+    private static final float SEEK_RADIUS = 30f;
+    /** 两次行动之间的最大位移：邻居查询按此放宽，再用当前位置精确判断 */
+    private static final float MAX_DRIFT = MAX_SPEED * MAX_DELAY / TICK_HZ;
+    private static final float CELL_SIZE = 4f;
+    private static final int REFLECT_EVERY = 8;
+
+    private final float worldRadius;
+    private final SplittableRandom random;
+    private final long seed;
+    private final TimerWheel wheel;
+    private final PopulationGrid grid;
+    private final MemoryLog memories;
+
+    private final PopulationGrid landmarkGrid;
+    private final float[] landmarkX;
+    private final float[] landmarkZ;
+
+    private int count;
+    private float[] x0;
+    private float[] z0;
+    private float[] vx;
+    private float[] vz;
+    private int[] movedAt;
+    private int[] birthTick;
+    private long[] genesis;
+    private int[] interactions;
+    private int[] lastReflect;
+    private int[] lastLandmark;
+    private long[] recent;
+
+    private final int[] neighbours = new int[64];
+    private final int[] landmarks = new int[16];
+    private int[] dueBuffer;
+
+    private int tick;
+    private double accumulator;
+    private long acted;
+    private long discoveries;
+    private long dialogues;
+    private long reflections;
+    private long lastStepNanos;
+
+    /**
+     * @param expected 预计的生命数，决定世界大小和地标数量，实际可多可少
+     * @param anchors 固定地标的 (x, z) 坐标，依次两两一组，通常是 NPC 的位置
+     */
+    public BeingPopulation(int expected, long seed, float[] anchors) {
+        this.seed = seed;
+        this.random = new SplittableRandom(seed);
+        this.worldRadius = (float) Math.max(MIN_WORLD_RADIUS, Math.sqrt(expected / DENSITY / Math.PI));
+        int capacity = Math.max(16, expected);
+        this.wheel = new TimerWheel(MAX_DELAY + 1, capacity);
+        this.grid = new PopulationGrid(CELL_SIZE, capacity);
+        this.memories = new MemoryLog(capacity);
+        this.dueBuffer = new int[capacity];
+
+        int anchorCount = anchors.length / 2;
+        int landmarkCount = anchorCount + expected / BEINGS_PER_LANDMARK;
+        this.landmarkX = new float[landmarkCount];
+        this.landmarkZ = new float[landmarkCount];
+        this.landmarkGrid = new PopulationGrid(SEEK_RADIUS, landmarkCount);
+        for (int i = 0; i < landmarkCount; i++) {
+            if (i < anchorCount) {
+                landmarkX[i] = anchors[i * 2];
+                landmarkZ[i] = anchors[i * 2 + 1];
+            } else {
+                double angle = random.nextDouble(Math.PI * 2);
+                double radius = Math.sqrt(random.nextDouble()) * worldRadius;
+                landmarkX[i] = (float) (Math.cos(angle) * radius);
+                landmarkZ[i] = (float) (Math.sin(angle) * radius);
+            }
+            landmarkGrid.move(i, landmarkX[i], landmarkZ[i]);
+        }
+
+        x0 = new float[capacity];
+        z0 = new float[capacity];
+        vx = new float[capacity];
+        vz = new float[capacity];
+        movedAt = new int[capacity];
+        birthTick = new int[capacity];
+        genesis = new long[capacity];
+        interactions = new int[capacity];
+        lastReflect = new int[capacity];
+        lastLandmark = new int[capacity];
+        recent = new long[capacity];
+    }
+
+    /**
+     * 设置了 -Dyingzhou.population=N 时以 NPC 位置为固定地标生成 N 个生命，否则返回 null；
+     * 种子取 -Dyingzhou.population.seed，默认 42
+     */
+    public static BeingPopulation createIfRequested(List<float[]> anchors) {
+        int requested = Integer.getInteger(PROPERTY, 0);
+        if (requested <= 0) {
+            return null;
+        }
+        float[] flat = new float[anchors.size() * 2];
+        for (int i = 0; i < anchors.size(); i++) {
+            flat[i * 2] = anchors.get(i)[0];
+            flat[i * 2 + 1] = anchors.get(i)[1];
+        }
+        BeingPopulation population = new BeingPopulation(requested, Long.getLong(PROPERTY + ".seed", 42L), flat);
+        population.spawnRandom(requested);
+        Logger.info(String.format("已生成数字生命 %d 个，世界半径 %.0f，地标 %d 个",
+                requested, population.worldRadius, population.landmarkX.length));
+        return population;
+    }
+
+    /**
+     * 在世界内均匀随机生成 n 个生命
+     */
+    public void spawnRandom(int n) {
+        for (int i = 0; i < n; i++) {
+            double angle = random.nextDouble(Math.PI * 2);
+            double radius = Math.sqrt(random.nextDouble()) * worldRadius;
+            spawn((float) (Math.cos(angle) * radius), (float) (Math.sin(angle) * radius));
+        }
+    }
+
+    /**
+     * 对应 createBeing：生成一个生命，首次行动随机错开
+     *
+     * @return 生命编号
+     */
+    public int spawn(float x, float z) {
+        int being = count++;
+        if (being == x0.length) {
+            grow(being * 2);
+        }
+        x0[being] = x;
+        z0[being] = z;
+        vx[being] = 0;
+        vz[being] = 0;
+        movedAt[being] = tick;
+        birthTick[being] = tick;
+        genesis[being] = mix(seed ^ mix(being + 1L) ^ ((long) tick << 32));
+        lastLandmark[being] = -1;
+        grid.move(being, x, z);
+        wheel.schedule(being, tick + 1 + random.nextInt(MAX_DELAY));
+        return being;
+    }
+
+    /**
+     * 按真实时间推进，满一个模拟帧才执行
+     */
+    public void update(double deltaTime) {
+        accumulator += deltaTime;
+        int steps = 0;
+        while (accumulator >= TICK_SECONDS && steps < MAX_CATCH_UP) {
+            accumulator -= TICK_SECONDS;
+            step();
+            steps++;
+        }
+        if (steps == MAX_CATCH_UP) {
+            accumulator = 0;
+        }
+    }
+
+    /**
+     * 推进一个模拟帧，只处理本帧到期的生命
+     *
+     * @return 本帧行动的生命数
+     */
+    public int step() {
+        long start = System.nanoTime();
+        tick++;
+        int n = wheel.expire(tick, dueBuffer);
+        for (int i = 0; i < n; i++) {
+            act(dueBuffer[i]);
+        }
+        acted += n;
+        lastStepNanos = System.nanoTime() - start;
+        return n;
+    }
+
+    private void act(int being) {
+        float x = getX(being);
+        float z = getZ(being);
+        float distance = (float) Math.sqrt(x * x + z * z);
+        if (distance > worldRadius) {
+            // 越界的拉回边界上
+            x *= worldRadius / distance;
+            z *= worldRadius / distance;
+        }
+        commit(being, x, z);
+
+        int landmark = nearestLandmark(x, z, DISCOVERY_RADIUS);
+        if (landmark >= 0 && landmark != lastLandmark[being]) {
+            lastLandmark[being] = landmark;
+            record(being, MemoryLog.DISCOVERY, landmark, mix(genesis[being] ^ mix(landmark + 0x100000000L) ^ tick));
+            discoveries++;
+        } else {
+            int partner = nearestBeing(being, x, z);
+            if (partner >= 0) {
+                interact(being, partner);
+            }
+        }
+
+        if (memories.count(being) - lastReflect[being] >= REFLECT_EVERY) {
+            reflect(being);
+        }
+
+        wander(being, x, z);
+        wheel.schedule(being, tick + MIN_DELAY + random.nextInt(MAX_DELAY - MIN_DELAY + 1));
+    }
+
+    /**
+     * 对应 interact：双方各记一条对话记忆，内容由双方的创世哈希和时间决定
+     */
+    private void interact(int being, int partner) {
+        long content = mix(genesis[being] ^ Long.rotateLeft(genesis[partner], 17) ^ tick);
+        record(being, MemoryLog.DIALOGUE, partner, content);
+        record(partner, MemoryLog.DIALOGUE, being, content);
+        interactions[being]++;
+        interactions[partner]++;
+        dialogues++;
+    }
+
+    /**
+     * 对应 reflect：把上次反思以来的记忆折叠成一条反思记忆
+     */
+    private void reflect(int being) {
+        long content = mix(recent[being] ^ genesis[being]);
+        recent[being] = 0;
+        lastReflect[being] = record(being, MemoryLog.REFLECTION, -1, content);
+        reflections++;
+    }
+
+    private int record(int being, byte category, int subject, long content) {
+        recent[being] = mix(recent[being] ^ content);
+        return memories.append(being, category, tick, subject, content);
+    }
+
+    /**
+     * 以当前位置为新的起点，并在网格中换格
+     */
+    private void commit(int being, float x, float z) {
+        x0[being] = x;
+        z0[being] = z;
+        movedAt[being] = tick;
+        grid.move(being, x, z);
+    }
+
+    private void wander(int being, float x, float z) {
+        double roll = random.nextDouble();
+        if (roll < 0.2) {
+            vx[being] = 0;
+            vz[being] = 0;
+            return;
+        }
+        double speed = 0.5 + random.nextDouble() * (MAX_SPEED - 0.5);
+        double angle;
+        int landmark = roll < 0.45 ? nearestLandmark(x, z, SEEK_RADIUS) : -1;
+        if (landmark >= 0 && landmark != lastLandmark[being]) {
+            angle = Math.atan2(landmarkZ[landmark] - z, landmarkX[landmark] - x);
+        } else {
+            angle = random.nextDouble(Math.PI * 2);
+        }
+        vx[being] = (float) (Math.cos(angle) * speed);
+        vz[being] = (float) (Math.sin(angle) * speed);
+    }
+
+    /**
+     * 当前位置最近、且在交谈距离内的生命；网格中是上次行动时的位置，查询按最大位移放宽
+     */
+    private int nearestBeing(int being, float x, float z) {
+        int found = grid.query(x, z, TALK_RADIUS + MAX_DRIFT, being, neighbours);
+        int nearest = -1;
+        float best = TALK_RADIUS * TALK_RADIUS;
+        for (int i = 0; i < found; i++) {
+            int other = neighbours[i];
+            float dx = getX(other) - x;
+            float dz = getZ(other) - z;
+            float distance = dx * dx + dz * dz;
+            if (distance <= best) {
+                best = distance;
+                nearest = other;
+            }
+        }
+        return nearest;
+    }
+
+    private int nearestLandmark(float x, float z, float radius) {
+        int found = landmarkGrid.query(x, z, radius, -1, landmarks);
+        int nearest = -1;
+        float best = Float.MAX_VALUE;
+        for (int i = 0; i < found; i++) {
+            int landmark = landmarks[i];
+            float dx = landmarkX[landmark] - x;
+            float dz = landmarkZ[landmark] - z;
+            float distance = dx * dx + dz * dz;
+            if (distance < best) {
+                best = distance;
+                nearest = landmark;
+            }
+        }
+        return nearest;
+    }
+
+    private void grow(int capacity) {
+        x0 = Arrays.copyOf(x0, capacity);
+        z0 = Arrays.copyOf(z0, capacity);
+        vx = Arrays.copyOf(vx, capacity);
+        vz = Arrays.copyOf(vz, capacity);
+        movedAt = Arrays.copyOf(movedAt, capacity);
+        birthTick = Arrays.copyOf(birthTick, capacity);
+        genesis = Arrays.copyOf(genesis, capacity);
+        interactions = Arrays.copyOf(interactions, capacity);
+        lastReflect = Arrays.copyOf(lastReflect, capacity);
+        lastLandmark = Arrays.copyOf(lastLandmark, capacity);
+        recent = Arrays.copyOf(recent, capacity);
+        dueBuffer = Arrays.copyOf(dueBuffer, capacity);
+        wheel.ensureCapacity(capacity);
+        grid.ensureCapacity(capacity);
+        memories.ensureCapacity(capacity);
+    }
+
+    /**
+     * splitmix64 的终混函数
+     */
+    static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    public float getX(int being) {
+        return x0[being] + vx[being] * (tick - movedAt[being]) * (float) TICK_SECONDS;
+    }
+
+    public float getZ(int being) {
+        return z0[being] + vz[being] * (tick - movedAt[being]) * (float) TICK_SECONDS;
+    }
+
+    /**
+     * 对应 reflect 返回的年龄，单位为模拟帧
+     */
+    public int getAge(int being) {
+        return tick - birthTick[being];
+    }
+
+    public long getGenesis(int being) {
+        return genesis[being];
+    }
+
+    public int getInteractionCount(int being) {
+        return interactions[being];
+    }
+
+    public int getMemoryCount(int being) {
+        return memories.count(being);
+    }
+
+    /**
+     * 下次行动的模拟帧
+     */
+    public long getNextAction(int being) {
+        return wheel.dueTick(being);
+    }
+
+    public MemoryLog getMemories() {
+        return memories;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public int getScheduled() {
+        return wheel.size();
+    }
+
+    public int getTick() {
+        return tick;
+    }
+
+    public float getWorldRadius() {
+        return worldRadius;
+    }
+
+    public int getLandmarkCount() {
+        return landmarkX.length;
+    }
+
+    public long getActed() {
+        return acted;
+    }
+
+    public long getDiscoveries() {
+        return discoveries;
+    }
+
+    public long getDialogues() {
+        return dialogues;
+    }
+
+    public long getReflections() {
+        return reflections;
+    }
+
+    public long getLastStepNanos() {
+        return lastStepNanos;
+    }
+}
@@ -0,0 +1,172 @@
+package com.yingzhou.npc.population;
+
+import java.util.Arrays;
+
+/**
+ * 数字生命的记忆日志，只追加
+ * 对应 DigitalBeing.sol 的 Memory 结构（时间、内容哈希、类别、关联事件），但不为每条记忆建对象：
+ * 所有记录存在按块分配的基本类型数组里，每条约 17 字节；每个生命按页（{@value #PAGE} 条）占用，
+ * 页与页用下标串成链，追加是 O(1)，读取最近的记录也是 O(1)。
+ */
+public final class MemoryLog {
+
+    /** 对应合约的 "discovery" */
+    public static final byte DISCOVERY = 0;
+    /** 对应合约的 "dialogue" */
+    public static final byte DIALOGUE = 1;
+    /** 对应合约的 "reflection" */
+    public static final byte REFLECTION = 2;
+
+    private static final String[] CATEGORY_NAMES = {"discovery", "dialogue", "reflection"};
+
+    static final int PAGE = 16;
+    private static final int CHUNK_BITS = 16;
+    private static final int CHUNK = 1 << CHUNK_BITS;
+    private static final int NONE = -1;
+
+    private int[][] ticks = new int[0][];
+    private int[][] subjects = new int[0][];
+    private long[][] contents = new long[0][];
+    private byte[][] categories = new byte[0][];
+    private int[] pageNext = new int[0];
+    private int allocated;
+
+    private int[] firstPage;
+    private int[] lastPage;
+    private int[] counts;
+    private long size;
+
+    public MemoryLog(int capacity) {
+        firstPage = new int[capacity];
+        lastPage = new int[capacity];
+        Arrays.fill(firstPage, NONE);
+        Arrays.fill(lastPage, NONE);
+        counts = new int[capacity];
+    }
+
+    public void ensureCapacity(int capacity) {
+        if (capacity <= counts.length) {
+            return;
+        }
+        int grown = Math.max(capacity, counts.length * 2);
+        int old = counts.length;
+        firstPage = Arrays.copyOf(firstPage, grown);
+        lastPage = Arrays.copyOf(lastPage, grown);
+        Arrays.fill(firstPage, old, grown, NONE);
+        Arrays.fill(lastPage, old, grown, NONE);
+        counts = Arrays.copyOf(counts, grown);
+    }
+
+    /**
+     * 为 being 追加一条记忆
+     *
+     * @param subject 关联对象：对话的另一方、发现的地点编号，没有时为 -1
+     * @param content 内容指纹
+     * @return 该生命的记忆条数
+     */
+    public int append(int being, byte category, int tick, int subject, long content) {
+        int index = counts[being];
+        int page;
+        if (index % PAGE == 0) {
+            page = allocatePage();
+            if (lastPage[being] == NONE) {
+                firstPage[being] = page;
+            } else {
+                pageNext[lastPage[being]] = page;
+            }
+            lastPage[being] = page;
+        } else {
+            page = lastPage[being];
+        }
+        int address = page * PAGE + index % PAGE;
+        int chunk = address >>> CHUNK_BITS;
+        int offset = address & (CHUNK - 1);
+        ticks[chunk][offset] = tick;
+        subjects[chunk][offset] = subject;
+        contents[chunk][offset] = content;
+        categories[chunk][offset] = category;
+        counts[being] = index + 1;
+        size++;
+        return index + 1;
+    }
+
+    public int count(int being) {
+        return being < counts.length ? counts[being] : 0;
+    }
+
+    /**
+     * being 的第 index 条记忆的存储地址；最后一页内直接定位，更早的沿页链走
+     */
+    public int address(int being, int index) {
+        int count = counts[being];
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("记忆 " + index + " / " + count);
+        }
+        int pageIndex = index / PAGE;
+        int page;
+        if (pageIndex == (count - 1) / PAGE) {
+            page = lastPage[being];
+        } else {
+            page = firstPage[being];
+            for (int i = 0; i < pageIndex; i++) {
+                page = pageNext[page];
+            }
+        }
+        return page * PAGE + index % PAGE;
+    }
+
+    public int tick(int address) {
+        return ticks[address >>> CHUNK_BITS][address & (CHUNK - 1)];
+    }
+
+    public byte category(int address) {
+        return categories[address >>> CHUNK_BITS][address & (CHUNK - 1)];
+    }
+
+    public int subject(int address) {
+        return subjects[address >>> CHUNK_BITS][address & (CHUNK - 1)];
+    }
+
+    public long content(int address) {
+        return contents[address >>> CHUNK_BITS][address & (CHUNK - 1)];
+    }
+
+    public static String categoryName(byte category) {
+        return CATEGORY_NAMES[category];
+    }
+
+    /**
+     * 所有生命的记忆总数
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * 已分配的存储字节数（记录块加页链与索引数组，不含数组头）
+     */
+    public long footprintBytes() {
+        long records = (long) ticks.length * CHUNK * (4 + 4 + 8 + 1);
+        return records + pageNext.length * 4L + counts.length * 12L;
+    }
+
+    private int allocatePage() {
+        int page = allocated++;
+        if (page >= pageNext.length) {
+            pageNext = Arrays.copyOf(pageNext, Math.max(CHUNK / PAGE, pageNext.length * 2));
+        }
+        pageNext[page] = NONE;
+        int chunk = page * PAGE >>> CHUNK_BITS;
+        if (chunk >= ticks.length) {
+            ticks = Arrays.copyOf(ticks, chunk + 1);
+            subjects = Arrays.copyOf(subjects, chunk + 1);
+            contents = Arrays.copyOf(contents, chunk + 1);
+            categories = Arrays.copyOf(categories, chunk + 1);
+            ticks[chunk] = new int[CHUNK];
+            subjects[chunk] = new int[CHUNK];
+            contents[chunk] = new long[CHUNK];
+            categories[chunk] = new byte[CHUNK];
+        }
+        return page;
+    }
+}
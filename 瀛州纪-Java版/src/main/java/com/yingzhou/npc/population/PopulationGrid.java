@@ -0,0 +1,192 @@
+package com.yingzhou.npc.population;
+
+import java.util.Arrays;
+
+/**
+ * 水平面均匀网格，增量维护
+ * 与联机服务器每帧重建的网格不同，生命只在行动时换格：每格一条以生命编号为节点的双向链表，
+ * 移动、移除都是 O(1)。格子按坐标散列到开放寻址表，格子数过半时扩容重排。全部是基本类型数组。
+ */
+final class PopulationGrid {
+
+    private static final long EMPTY = Long.MIN_VALUE;
+    private static final int NONE = -1;
+
+    private final float cellSize;
+    private long[] cellKeys = new long[64];
+    private int[] cellHeads = new int[64];
+    private int cells;
+    private int[] cellOf;
+    private int[] next;
+    private int[] prev;
+    private float[] xs;
+    private float[] zs;
+
+    PopulationGrid(float cellSize, int capacity) {
+        this.cellSize = cellSize;
+        Arrays.fill(cellKeys, EMPTY);
+        this.cellOf = new int[capacity];
+        Arrays.fill(cellOf, NONE);
+        this.next = new int[capacity];
+        this.prev = new int[capacity];
+        this.xs = new float[capacity];
+        this.zs = new float[capacity];
+    }
+
+    void ensureCapacity(int capacity) {
+        if (capacity <= cellOf.length) {
+            return;
+        }
+        int grown = Math.max(capacity, cellOf.length * 2);
+        int old = cellOf.length;
+        cellOf = Arrays.copyOf(cellOf, grown);
+        Arrays.fill(cellOf, old, grown, NONE);
+        next = Arrays.copyOf(next, grown);
+        prev = Arrays.copyOf(prev, grown);
+        xs = Arrays.copyOf(xs, grown);
+        zs = Arrays.copyOf(zs, grown);
+    }
+
+    /**
+     * 放入或移动一个生命
+     */
+    void move(int being, float x, float z) {
+        xs[being] = x;
+        zs[being] = z;
+        long key = cellKey(cell(x), cell(z));
+        int current = cellOf[being];
+        if (current != NONE && cellKeys[current] == key) {
+            return;
+        }
+        if (current != NONE) {
+            unlink(being);
+        }
+        int target = findCell(key, true);
+        int head = cellHeads[target];
+        next[being] = head;
+        prev[being] = NONE;
+        if (head != NONE) {
+            prev[head] = being;
+        }
+        cellHeads[target] = being;
+        cellOf[being] = target;
+    }
+
+    void remove(int being) {
+        if (cellOf[being] != NONE) {
+            unlink(being);
+        }
+    }
+
+    /**
+     * 查找以 (x, z) 为圆心、半径 radius 内的生命，结果按格子顺序，装满 out 即停
+     *
+     * @param exclude 不计入结果的生命（通常是查询者自己），没有时传 -1
+     * @return 结果数量
+     */
+    int query(float x, float z, float radius, int exclude, int[] out) {
+        float radiusSquared = radius * radius;
+        int minX = cell(x - radius);
+        int maxX = cell(x + radius);
+        int minZ = cell(z - radius);
+        int maxZ = cell(z + radius);
+        int count = 0;
+        for (int cx = minX; cx <= maxX; cx++) {
+            for (int cz = minZ; cz <= maxZ; cz++) {
+                int cell = findCell(cellKey(cx, cz), false);
+                if (cell < 0) {
+                    continue;
+                }
+                for (int being = cellHeads[cell]; being != NONE; being = next[being]) {
+                    float dx = xs[being] - x;
+                    float dz = zs[being] - z;
+                    if (being != exclude && dx * dx + dz * dz <= radiusSquared) {
+                        out[count++] = being;
+                        if (count == out.length) {
+                            return count;
+                        }
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    private void unlink(int being) {
+        int before = prev[being];
+        int after = next[being];
+        if (before != NONE) {
+            next[before] = after;
+        } else {
+            cellHeads[cellOf[being]] = after;
+        }
+        if (after != NONE) {
+            prev[after] = before;
+        }
+        cellOf[being] = NONE;
+    }
+
+    private int cell(float coordinate) {
+        return (int) Math.floor(coordinate / cellSize);
+    }
+
+    private static long cellKey(int cx, int cz) {
+        return ((long) cx << 32) | (cz & 0xFFFFFFFFL);
+    }
+
+    private int findCell(long key, boolean create) {
+        int mask = cellKeys.length - 1;
+        int index = hash(key) & mask;
+        while (true) {
+            long existing = cellKeys[index];
+            if (existing == key) {
+                return index;
+            }
+            if (existing == EMPTY) {
+                if (!create) {
+                    return -1;
+                }
+                if ((cells + 1) * 2 > cellKeys.length) {
+                    rehash();
+                    return findCell(key, true);
+                }
+                cellKeys[index] = key;
+                cellHeads[index] = NONE;
+                cells++;
+                return index;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    /**
+     * 格子表翻倍，格内链表原样搬过去，只需改写成员的格子下标
+     */
+    private void rehash() {
+        long[] oldKeys = cellKeys;
+        int[] oldHeads = cellHeads;
+        cellKeys = new long[oldKeys.length * 2];
+        cellHeads = new int[oldKeys.length * 2];
+        Arrays.fill(cellKeys, EMPTY);
+        int mask = cellKeys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == EMPTY) {
+                continue;
+            }
+            int index = hash(oldKeys[i]) & mask;
+            while (cellKeys[index] != EMPTY) {
+                index = (index + 1) & mask;
+            }
+            cellKeys[index] = oldKeys[i];
+            cellHeads[index] = oldHeads[i];
+            for (int being = oldHeads[i]; being != NONE; being = next[being]) {
+                cellOf[being] = index;
+            }
+        }
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,135 @@
+package com.yingzhou.npc.population;
+
+import com.yingzhou.perf.LatencyHistogram;
+import com.yingzhou.perf.PerfMonitor;
+import com.yingzhou.util.CommandLineOptions;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.Map;
+
+/**
+ * 数字生命群体压测
+ * 生成大量数字生命并全速推进模拟帧，报告每帧耗时、每帧实际处理的生命数、记忆总量与每条记忆的存储开销、
+ * 堆和分配。
+ *
+ * 命令行用法:
+ * <pre>
+ *   java -cp yingzhou-java-1.0.jar com.yingzhou.npc.population.PopulationLoadGenerator \
+ *       beings=50000 ticks=3000 seed=42 warmup=300 report=600
+ * </pre>
+ * 模拟帧为 {@value BeingPopulation#TICK_HZ} Hz，ticks=3000 即游戏内 5 分钟。
+ */
+public class PopulationLoadGenerator {
+
+    /** 固定地标，与 NPCManager 中五位 NPC 的位置相同 */
+    static final float[] NPC_ANCHORS = {20, 0, 0, -20, 0, 0, 0, 20, -20, 0};
+
+    private final int beings;
+    private final int ticks;
+    private final int warmup;
+    private final int reportEvery;
+    private final long seed;
+    private final PrintStream report;
+    private BeingPopulation population;
+
+    public PopulationLoadGenerator(Map<String, String> options, PrintStream report) {
+        this.beings = Integer.parseInt(options.getOrDefault("beings", "50000"));
+        this.ticks = Integer.parseInt(options.getOrDefault("ticks", "3000"));
+        this.warmup = Integer.parseInt(options.getOrDefault("warmup", "300"));
+        this.reportEvery = Integer.parseInt(options.getOrDefault("report", "600"));
+        this.seed = Long.parseLong(options.getOrDefault("seed", "42"));
+        this.report = report;
+    }
+
+    public void run() {
+        long spawnStart = System.nanoTime();
+        population = new BeingPopulation(beings, seed, NPC_ANCHORS);
+        population.spawnRandom(beings);
+        report.printf("数字生命 %d 个, 世界半径 %.0f, 地标 %d 个, 生成耗时 %.1f ms, 预热 %d 帧, 测量 %d 帧%n",
+            beings, population.getWorldRadius(), population.getLandmarkCount(),
+            (System.nanoTime() - spawnStart) / 1e6, warmup, ticks);
+
+        for (int t = 0; t < warmup; t++) {
+            population.step();
+        }
+
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        System.gc();
+        long heapBefore = memory.getHeapMemoryUsage().getUsed();
+        long allocatedBefore = PerfMonitor.getTotalAllocatedBytes();
+        long gcCountBefore = PerfMonitor.getGcCount();
+        long gcMillisBefore = PerfMonitor.getGcTimeMillis();
+        long actedBefore = population.getActed();
+        long memoriesBefore = population.getMemories().size();
+
+        LatencyHistogram stepTimes = new LatencyHistogram("群体模拟帧");
+        LatencyHistogram.Snapshot lastReport = stepTimes.snapshot();
+        int busiest = 0;
+        long start = System.nanoTime();
+        for (int t = 1; t <= ticks; t++) {
+            long stepStart = System.nanoTime();
+            int acted = population.step();
+            stepTimes.record(System.nanoTime() - stepStart);
+            busiest = Math.max(busiest, acted);
+
+            if (reportEvery > 0 && t % reportEvery == 0) {
+                LatencyHistogram.Snapshot now = stepTimes.snapshot();
+                LatencyHistogram.Snapshot interval = now.minus(lastReport);
+                report.printf("  [%6d帧] 模拟帧 p50 %7.3f ms  p99 %7.3f ms  max %7.3f ms | 记忆 %d | 堆 %s%n",
+                    t, interval.getValueAtPercentile(50) / 1e6, interval.getValueAtPercentile(99) / 1e6,
+                    interval.getMax() / 1e6, population.getMemories().size(),
+                    formatBytes(memory.getHeapMemoryUsage().getUsed()));
+                lastReport = now;
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+
+        long allocated = PerfMonitor.getTotalAllocatedBytes() - allocatedBefore;
+        long gcCount = PerfMonitor.getGcCount() - gcCountBefore;
+        long gcMillis = PerfMonitor.getGcTimeMillis() - gcMillisBefore;
+        System.gc();
+        long heapAfter = memory.getHeapMemoryUsage().getUsed();
+
+        LatencyHistogram.Snapshot step = stepTimes.snapshot();
+        MemoryLog log = population.getMemories();
+        double actedPerTick = (population.getActed() - actedBefore) / (double) ticks;
+        report.println("=== 压测结果 ===");
+        report.printf("模拟帧: p50 %.3f  p90 %.3f  p99 %.3f  max %.3f  平均 %.3f (ms), 帧预算 %.0f ms%n",
+            step.getValueAtPercentile(50) / 1e6, step.getValueAtPercentile(90) / 1e6,
+            step.getValueAtPercentile(99) / 1e6, step.getMax() / 1e6, step.getMean() / 1e6,
+            1000.0 / BeingPopulation.TICK_HZ);
+        report.printf("每帧处理: 平均 %.0f 个 (占群体 %.2f%%), 最多 %d 个; 吞吐 %.0f 帧/秒, %.0f 次行动/秒%n",
+            actedPerTick, actedPerTick * 100 / beings, busiest, ticks / (elapsed / 1e9),
+            (population.getActed() - actedBefore) / (elapsed / 1e9));
+        report.printf("行为: 发现 %d, 对话 %d, 反思 %d%n",
+            population.getDiscoveries(), population.getDialogues(), population.getReflections());
+        report.printf("记忆: 共 %d 条 (测量期间 %d), 平均每个生命 %.1f 条, 日志占用 %s (%.1f 字节/条)%n",
+            log.size(), log.size() - memoriesBefore, log.size() / (double) beings,
+            formatBytes(log.footprintBytes()), log.footprintBytes() / (double) Math.max(1, log.size()));
+        report.printf("内存: 堆 %s -> %s (增长 %s), 分配 %s (%.1f 字节/行动), GC %d 次 %d ms%n",
+            formatBytes(heapBefore), formatBytes(heapAfter), formatBytes(heapAfter - heapBefore),
+            formatBytes(allocated), allocated / Math.max(1.0, population.getActed() - actedBefore),
+            gcCount, gcMillis);
+    }
+
+    /**
+     * 推进完毕的群体，run 之前为 null
+     */
+    public BeingPopulation getPopulation() {
+        return population;
+    }
+
+    private static String formatBytes(long bytes) {
+        if (Math.abs(bytes) >= 1 << 20) {
+            return String.format("%.1fMB", bytes / (double) (1 << 20));
+        }
+        return String.format("%.1fKB", bytes / 1024.0);
+    }
+
+    public static void main(String[] args) {
+        Map<String, String> options = CommandLineOptions.parse(args);
+        new PopulationLoadGenerator(options, System.out).run();
+    }
+}
@@ -0,0 +1,125 @@
+package com.yingzhou.npc.population;
+
+import java.util.Arrays;
+
+/**
+ * 单层哈希时间轮
+ * 每个生命至多挂一个到期动作，按到期帧对槽数取模挂到槽上；链表节点就是生命编号本身（prev/next 数组），
+ * 挂入、撤下都是 O(1) 且不分配对象。推进一帧只遍历当前槽：到期的取出，超过一圈才到期的留在原槽。
+ * 须逐帧推进，不能跳帧。
+ */
+final class TimerWheel {
+
+    private static final int NONE = -1;
+
+    private final int mask;
+    private final int[] heads;
+    private int[] next;
+    private int[] prev;
+    private long[] due;
+    private int size;
+
+    /**
+     * @param slots 槽数，取整到 2 的幂；动作间隔大多小于它时每个槽只含当帧到期的生命
+     */
+    TimerWheel(int slots, int capacity) {
+        int count = Integer.highestOneBit(Math.max(2, slots) - 1) << 1;
+        this.mask = count - 1;
+        this.heads = new int[count];
+        Arrays.fill(heads, NONE);
+        this.next = new int[capacity];
+        this.prev = new int[capacity];
+        this.due = new long[capacity];
+        Arrays.fill(due, NONE);
+    }
+
+    void ensureCapacity(int capacity) {
+        if (capacity <= due.length) {
+            return;
+        }
+        int grown = Math.max(capacity, due.length * 2);
+        int old = due.length;
+        next = Arrays.copyOf(next, grown);
+        prev = Arrays.copyOf(prev, grown);
+        due = Arrays.copyOf(due, grown);
+        Arrays.fill(due, old, grown, NONE);
+    }
+
+    /**
+     * 在 tick 帧触发 being 的动作，已挂着的先撤下
+     */
+    void schedule(int being, long tick) {
+        if (due[being] != NONE) {
+            cancel(being);
+        }
+        int slot = (int) tick & mask;
+        int head = heads[slot];
+        next[being] = head;
+        prev[being] = NONE;
+        if (head != NONE) {
+            prev[head] = being;
+        }
+        heads[slot] = being;
+        due[being] = tick;
+        size++;
+    }
+
+    void cancel(int being) {
+        long tick = due[being];
+        if (tick == NONE) {
+            return;
+        }
+        int before = prev[being];
+        int after = next[being];
+        if (before != NONE) {
+            next[before] = after;
+        } else {
+            heads[(int) tick & mask] = after;
+        }
+        if (after != NONE) {
+            prev[after] = before;
+        }
+        due[being] = NONE;
+        size--;
+    }
+
+    /**
+     * 取出 tick 帧到期的生命
+     *
+     * @param out 容量须不小于已挂的生命数
+     * @return 取出的数量
+     */
+    int expire(long tick, int[] out) {
+        int slot = (int) tick & mask;
+        int count = 0;
+        int being = heads[slot];
+        while (being != NONE) {
+            int following = next[being];
+            if (due[being] <= tick) {
+                cancel(being);
+                out[count++] = being;
+            }
+            being = following;
+        }
+        return count;
+    }
+
+    boolean isScheduled(int being) {
+        return being < due.length && due[being] != NONE;
+    }
+
+    /**
+     * being 的下次动作帧，没有挂着时为 -1
+     */
+    long dueTick(int being) {
+        return due[being];
+    }
+
+    int size() {
+        return size;
+    }
+
+    int slots() {
+        return heads.length;
+    }
+}
@@ -0,0 +1,47 @@
+package com.yingzhou.perf;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 缓存命中统计
+ * 各缓存自行持有一份并在 {@link PerfMonitor} 注册，性能面板据此显示命中率
+ */
+public class CacheStats {
+
+    private final String name;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public CacheStats(String name) {
+        this.name = name;
+    }
+
+    public void hit() {
+        hits.increment();
+    }
+
+    public void miss() {
+        misses.increment();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * 命中率 0-1，尚无访问时返回 -1
+     */
+    public double getHitRate() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? -1 : (double) h / total;
+    }
+}
@@ -0,0 +1,31 @@
+package com.yingzhou.perf;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR事件：一次NPC对话生成
+ */
+@Name("yingzhou.Dialogue")
+@Label("NPC对话")
+@Category({"瀛州纪", "对话"})
+@Description("发送消息并生成NPC回复")
+@Enabled(false)
+public class DialogueEvent extends Event {
+
+    @Label("NPC")
+    public String npcName;
+
+    @Label("输入长度")
+    public int inputLength;
+
+    @Label("回复长度")
+    public int responseLength;
+
+    @Label("纪元")
+    public String epoch;
+}
@@ -0,0 +1,31 @@
+package com.yingzhou.perf;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR事件：一次游戏引擎逻辑帧
+ */
+@Name("yingzhou.EngineTick")
+@Label("引擎逻辑帧")
+@Category({"瀛州纪", "引擎"})
+@Description("GameEngine.update 的一次执行")
+@Enabled(false)
+public class EngineTickEvent extends Event {
+
+    @Label("帧间隔(秒)")
+    public double deltaTime;
+
+    @Label("NPC数量")
+    public int npcCount;
+
+    @Label("玩家数量")
+    public int playerCount;
+
+    @Label("纪元")
+    public String epoch;
+}
@@ -0,0 +1,33 @@
+package com.yingzhou.perf;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * JFR事件：纪元推进
+ */
+@Name("yingzhou.EpochTransition")
+@Label("纪元推进")
+@Category({"瀛州纪", "纪元"})
+@Description("EpochManager 推进到下一纪元")
+@Enabled(false)
+public class EpochTransitionEvent extends Event {
+
+    @Label("原纪元")
+    public String fromEpoch;
+
+    @Label("新纪元")
+    public String toEpoch;
+
+    @Label("已收集碎片")
+    public int fragmentsCollected;
+
+    @Label("原纪元持续时间")
+    @Timespan(Timespan.SECONDS)
+    public long epochSeconds;
+}
@@ -0,0 +1,36 @@
+package com.yingzhou.perf;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR事件：存档读写
+ */
+@Name("yingzhou.GameData")
+@Label("存档读写")
+@Category({"瀛州纪", "存档"})
+@Description("GameData 的保存或加载")
+@Enabled(false)
+public class GameDataEvent extends Event {
+
+    @Label("操作")
+    public String operation;
+
+    @Label("字节数")
+    @DataAmount
+    public long bytes;
+
+    @Label("纪元")
+    public String epoch;
+
+    @Label("已收集碎片")
+    public int fragmentsCollected;
+
+    @Label("成功")
+    public boolean success;
+}
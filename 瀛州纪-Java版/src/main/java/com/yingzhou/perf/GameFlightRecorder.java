@@ -0,0 +1,82 @@
+package com.yingzhou.perf;
+
+import com.yingzhou.util.Logger;
+import jdk.jfr.Configuration;
+import jdk.jfr.Event;
+import jdk.jfr.Recording;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * 飞行记录器开关
+ * 游戏自定义JFR事件默认关闭，通过命令行开启：
+ * <pre>
+ *   java -Dyingzhou.jfr=session.jfr -jar yingzhou-java-1.0.jar
+ * </pre>
+ * 开启后在JDK默认配置基础上记录所有 yingzhou.* 事件，退出时写入指定文件，可直接用JMC打开。
+ */
+public final class GameFlightRecorder {
+
+    public static final String PROPERTY = "yingzhou.jfr";
+    private static final String DEFAULT_FILE = "yingzhou-session.jfr";
+
+    private static final List<Class<? extends Event>> GAME_EVENTS = List.of(
+        EngineTickEvent.class,
+        SceneRenderEvent.class,
+        GameDataEvent.class,
+        DialogueEvent.class,
+        EpochTransitionEvent.class
+    );
+
+    private static Recording recording;
+
+    private GameFlightRecorder() {
+    }
+
+    /**
+     * 若命令行指定了 -Dyingzhou.jfr 则开始记录
+     */
+    public static synchronized void startIfRequested() {
+        String target = System.getProperty(PROPERTY);
+        if (target == null || recording != null) {
+            return;
+        }
+        if (target.isBlank() || "true".equalsIgnoreCase(target)) {
+            target = DEFAULT_FILE;
+        }
+        try {
+            recording = new Recording(Configuration.getConfiguration("default"));
+            recording.setName("瀛州纪");
+            for (Class<? extends Event> eventClass : GAME_EVENTS) {
+                recording.enable(eventClass).withoutThreshold();
+            }
+            recording.setToDisk(true);
+            recording.setDestination(Path.of(target));
+            recording.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(GameFlightRecorder::stop, "jfr-dump"));
+            Logger.info("飞行记录已开启，输出文件: " + target);
+        } catch (Exception e) {
+            Logger.error("无法开启飞行记录", e);
+            recording = null;
+        }
+    }
+
+    /**
+     * 停止记录并写入文件
+     */
+    public static synchronized void stop() {
+        if (recording == null) {
+            return;
+        }
+        try {
+            recording.stop();
+            Logger.info("飞行记录已写入: " + recording.getDestination());
+        } catch (IllegalStateException e) {
+            // 已经停止
+        } finally {
+            recording.close();
+            recording = null;
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.yingzhou.perf;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+
+/**
+ * 无锁耗时直方图
+ * HDR风格的对数-线性分桶，记录纳秒级耗时，精度约3%
+ *
+ * 写入只做一次原子自增，可在游戏循环中随意调用；
+ * 读取方通过两次快照相减得到某个时间窗口内的分布，写入方永远不需要重置。
+ */
+public class LatencyHistogram {
+
+    // 每个2的幂区间内的线性子桶数 = 2^SUB_BUCKET_BITS
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+    private final String name;
+    private final AtomicLongArray counts;
+    private final LongAccumulator max;
+
+    public LatencyHistogram(String name) {
+        this.name = name;
+        this.counts = new AtomicLongArray(BUCKET_COUNT);
+        this.max = new LongAccumulator(Math::max, 0);
+    }
+
+    /**
+     * 记录一次耗时（纳秒）
+     */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        counts.incrementAndGet(bucketIndex(nanos));
+        max.accumulate(nanos);
+    }
+
+    /**
+     * 复制当前累计计数
+     */
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            copy[i] = counts.get(i);
+        }
+        return new Snapshot(copy, max.get());
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int magnitude = exponent - SUB_BUCKET_BITS + 1;
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) - SUB_BUCKET_COUNT;
+        return magnitude * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    static long bucketLowerBound(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int magnitude = index / SUB_BUCKET_COUNT;
+        int subBucket = index % SUB_BUCKET_COUNT;
+        return (long) (SUB_BUCKET_COUNT + subBucket) << (magnitude - 1);
+    }
+
+    static long bucketWidth(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return 1;
+        }
+        return 1L << (index / SUB_BUCKET_COUNT - 1);
+    }
+
+    /**
+     * 直方图快照
+     * 不可变，可用 {@link #minus(Snapshot)} 求两个时间点之间的增量
+     */
+    public static class Snapshot {
+        private final long[] counts;
+        private final long total;
+        private final long max;
+
+        Snapshot(long[] counts, long max) {
+            this.counts = counts;
+            this.max = max;
+            long sum = 0;
+            for (long c : counts) {
+                sum += c;
+            }
+            this.total = sum;
+        }
+
+        /**
+         * 当前快照减去较早的快照，得到区间内的分布
+         * 区间最大值无法精确还原，取区间内最高非空桶的上界
+         */
+        public Snapshot minus(Snapshot earlier) {
+            long[] delta = new long[counts.length];
+            int highest = -1;
+            for (int i = 0; i < counts.length; i++) {
+                delta[i] = counts[i] - earlier.counts[i];
+                if (delta[i] > 0) {
+                    highest = i;
+                }
+            }
+            long intervalMax = highest < 0 ? 0
+                : Math.min(max, bucketLowerBound(highest) + bucketWidth(highest) - 1);
+            return new Snapshot(delta, intervalMax);
+        }
+
+        public long getTotalCount() {
+            return total;
+        }
+
+        public long getMax() {
+            return max;
+        }
+
+        /**
+         * 百分位数（纳秒），取所在桶的中点
+         *
+         * @param percentile 0-100
+         */
+        public long getValueAtPercentile(double percentile) {
+            if (total == 0) {
+                return 0;
+            }
+            long target = Math.max(1, (long) Math.ceil(total * percentile / 100.0));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= target) {
+                    return Math.min(max, bucketLowerBound(i) + bucketWidth(i) / 2);
+                }
+            }
+            return max;
+        }
+
+        public double getMean() {
+            if (total == 0) {
+                return 0;
+            }
+            double sum = 0;
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] != 0) {
+                    sum += (double) counts[i] * (bucketLowerBound(i) + bucketWidth(i) / 2.0);
+                }
+            }
+            return sum / total;
+        }
+    }
+}
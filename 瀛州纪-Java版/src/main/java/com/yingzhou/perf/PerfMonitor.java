@@ -0,0 +1,142 @@
+package com.yingzhou.perf;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import com.yingzhou.util.Logger;
+
+import javax.management.NotificationEmitter;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 性能监控中心
+ * 汇总帧时间、逻辑帧耗时、GC停顿和缓存命中等指标
+ *
+ * 记录端只有一次 nanoTime 差值和一次原子自增，面板隐藏时无其他开销；
+ * 分配速率等需要查询MXBean的指标只在面板刷新时采样。
+ */
+public final class PerfMonitor {
+
+    private static final LatencyHistogram FRAME_INTERVAL = new LatencyHistogram("帧间隔");
+    private static final LatencyHistogram RENDER_TIME = new LatencyHistogram("渲染耗时");
+    private static final LatencyHistogram TICK_TIME = new LatencyHistogram("逻辑耗时");
+    private static final LatencyHistogram GC_PAUSE = new LatencyHistogram("GC停顿");
+
+    private static final List<CacheStats> caches = new CopyOnWriteArrayList<>();
+
+    static {
+        installGcListener();
+    }
+
+    private PerfMonitor() {
+    }
+
+    public static void recordFrameInterval(long nanos) {
+        FRAME_INTERVAL.record(nanos);
+    }
+
+    public static void recordRender(long nanos) {
+        RENDER_TIME.record(nanos);
+    }
+
+    public static void recordTick(long nanos) {
+        TICK_TIME.record(nanos);
+    }
+
+    public static LatencyHistogram getFrameIntervalHistogram() {
+        return FRAME_INTERVAL;
+    }
+
+    public static LatencyHistogram getRenderHistogram() {
+        return RENDER_TIME;
+    }
+
+    public static LatencyHistogram getTickHistogram() {
+        return TICK_TIME;
+    }
+
+    public static LatencyHistogram getGcPauseHistogram() {
+        return GC_PAUSE;
+    }
+
+    /**
+     * 注册缓存统计，供性能面板显示命中率
+     */
+    public static void registerCache(CacheStats stats) {
+        caches.add(stats);
+    }
+
+    /**
+     * 缓存关闭时注销，性能面板不再显示
+     */
+    public static void unregisterCache(CacheStats stats) {
+        caches.remove(stats);
+    }
+
+    public static List<CacheStats> getCaches() {
+        return caches;
+    }
+
+    /**
+     * 所有存活线程累计分配的字节数，不支持时返回 -1
+     */
+    public static long getTotalAllocatedBytes() {
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        if (!(threadBean instanceof com.sun.management.ThreadMXBean sunBean)
+                || !sunBean.isThreadAllocatedMemorySupported()
+                || !sunBean.isThreadAllocatedMemoryEnabled()) {
+            return -1;
+        }
+        long total = 0;
+        for (long bytes : sunBean.getThreadAllocatedBytes(sunBean.getAllThreadIds())) {
+            if (bytes > 0) {
+                total += bytes;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * 所有收集器累计的GC次数
+     */
+    public static long getGcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+        }
+        return count;
+    }
+
+    /**
+     * 所有收集器累计的GC耗时（毫秒）
+     */
+    public static long getGcTimeMillis() {
+        long time = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            time += Math.max(0, gc.getCollectionTime());
+        }
+        return time;
+    }
+
+    private static void installGcListener() {
+        try {
+            for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+                if (gc instanceof NotificationEmitter emitter) {
+                    emitter.addNotificationListener((notification, handback) -> {
+                        if (GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION
+                                .equals(notification.getType())) {
+                            GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo
+                                .from((CompositeData) notification.getUserData());
+                            GC_PAUSE.record(info.getGcInfo().getDuration() * 1_000_000L);
+                        }
+                    }, null, null);
+                }
+            }
+        } catch (Exception e) {
+            Logger.warn("无法监听GC事件: " + e.getMessage());
+        }
+    }
+}
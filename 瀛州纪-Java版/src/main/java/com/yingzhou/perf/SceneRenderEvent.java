@@ -0,0 +1,25 @@
+package com.yingzhou.perf;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR事件：3D渲染循环中的一个同步阶段
+ */
+@Name("yingzhou.SceneRender")
+@Label("场景同步")
+@Category({"瀛州纪", "渲染"})
+@Description("Scene3DManager 渲染循环中相机、NPC、背景等阶段的耗时")
+@Enabled(false)
+public class SceneRenderEvent extends Event {
+
+    @Label("阶段")
+    public String section;
+
+    @Label("场景子节点数")
+    public int nodeCount;
+}
@@ -0,0 +1,75 @@
+package com.yingzhou.perf;
+
+import com.yingzhou.util.Logger;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 启动时间线
+ * 记录各启动阶段相对JVM启动时刻的时间点，启动完成后输出到日志
+ *
+ * 可在任意线程调用 {@link #mark(String)}。
+ */
+public final class StartupTimeline {
+
+    private static final long JVM_START_MILLIS = ManagementFactory.getRuntimeMXBean().getStartTime();
+    private static final List<Mark> marks = new ArrayList<>();
+
+    private StartupTimeline() {
+    }
+
+    private static class Mark {
+        final String phase;
+        final String thread;
+        final long sinceJvmStart;
+
+        Mark(String phase, String thread, long sinceJvmStart) {
+            this.phase = phase;
+            this.thread = thread;
+            this.sinceJvmStart = sinceJvmStart;
+        }
+    }
+
+    /**
+     * 记录一个阶段完成
+     */
+    public static void mark(String phase) {
+        long elapsed = System.currentTimeMillis() - JVM_START_MILLIS;
+        synchronized (marks) {
+            marks.add(new Mark(phase, Thread.currentThread().getName(), elapsed));
+        }
+    }
+
+    /**
+     * 某阶段距JVM启动的毫秒数，未记录时返回 -1
+     */
+    public static long getMillis(String phase) {
+        synchronized (marks) {
+            for (Mark mark : marks) {
+                if (mark.phase.equals(phase)) {
+                    return mark.sinceJvmStart;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 输出时间线到日志
+     */
+    public static void log() {
+        List<Mark> snapshot;
+        synchronized (marks) {
+            snapshot = new ArrayList<>(marks);
+        }
+        Logger.info("=== 启动时间线（距JVM启动） ===");
+        long previous = 0;
+        for (Mark mark : snapshot) {
+            Logger.info(String.format("  %6d ms (+%5d)  %-16s [%s]",
+                mark.sinceJvmStart, mark.sinceJvmStart - previous, mark.phase, mark.thread));
+            previous = Math.max(previous, mark.sinceJvmStart);
+        }
+    }
+}
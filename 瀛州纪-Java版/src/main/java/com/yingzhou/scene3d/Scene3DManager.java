@@ -1,7 +1,12 @@
 package com.yingzhou.scene3d;
 
 import com.yingzhou.game.GameEngine;
+import com.yingzhou.game.player.Player;
+import com.yingzhou.net.WorldClient;
+import com.yingzhou.net.WorldSnapshot;
 import com.yingzhou.npc.BaseNPC;
+import com.yingzhou.perf.PerfMonitor;
+import com.yingzhou.perf.SceneRenderEvent;
 import com.yingzhou.util.Logger;
 import javafx.animation.AnimationTimer;
 import javafx.scene.*;
@@ -12,6 +17,10 @@ import javafx.scene.shape.Sphere;
 import javafx.scene.transform.Rotate;
 import javafx.scene.transform.Translate;
 
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
 /**
  * 3D场景管理器
  * 管理3D渲染和场景更新
@@ -24,6 +33,10 @@ public class Scene3DManager {
     private PerspectiveCamera camera;
     private AnimationTimer renderLoop;
     private long lastUpdate = 0;
+    private WorldClient worldClient;
+    private Group visitorLayer;
+    private PhongMaterial visitorMaterial;
+    private final Map<Integer, Node> visitorNodes = new HashMap<>();
     
     private static final int SCENE_WIDTH = 1280;
     private static final int SCENE_HEIGHT = 720;
@@ -144,15 +157,33 @@ public class Scene3DManager {
                         lastUpdate = now;
                         return;
                     }
+                    long renderStart = System.nanoTime();
+                    PerfMonitor.recordFrameInterval(now - lastUpdate);
                     double deltaTime = (now - lastUpdate) / 1_000_000_000.0;
                     lastUpdate = now;
                     
                     // 限制deltaTime避免大跳跃
                     deltaTime = Math.min(deltaTime, 0.1);
                     
+                    SceneRenderEvent cameraEvent = beginSection();
                     updateCamera();
+                    commitSection(cameraEvent, "camera");
+                    
+                    SceneRenderEvent npcEvent = beginSection();
                     updateNPCs();
+                    commitSection(npcEvent, "npcs");
+                    
+                    if (worldClient != null) {
+                        SceneRenderEvent visitorEvent = beginSection();
+                        updateVisitors();
+                        commitSection(visitorEvent, "visitors");
+                    }
+                    
+                    SceneRenderEvent backgroundEvent = beginSection();
                     updateBackground();
+                    commitSection(backgroundEvent, "background");
+                    
+                    PerfMonitor.recordRender(System.nanoTime() - renderStart);
                 } catch (Exception e) {
                     Logger.error("渲染循环出错", e);
                 }
@@ -160,6 +191,20 @@ public class Scene3DManager {
         };
     }
 
+    private SceneRenderEvent beginSection() {
+        SceneRenderEvent event = new SceneRenderEvent();
+        event.begin();
+        return event;
+    }
+
+    private void commitSection(SceneRenderEvent event, String section) {
+        if (event.shouldCommit()) {
+            event.section = section;
+            event.nodeCount = root3D.getChildren().size();
+            event.commit();
+        }
+    }
+
     private void updateCamera() {
         // 更新相机位置和旋转
         var player = gameEngine.getPlayer();
@@ -200,6 +245,58 @@ public class Scene3DManager {
         }
     }
 
+    /**
+     * 显示世界服务器中的其他访客，位置取快照插值结果，每帧更新
+     */
+    public void setWorldClient(WorldClient client) {
+        this.worldClient = client;
+        if (visitorLayer == null) {
+            visitorLayer = new Group();
+            visitorMaterial = new PhongMaterial(Color.rgb(6, 182, 212, 0.8));
+            root3D.getChildren().add(visitorLayer);
+        }
+    }
+
+    private void updateVisitors() {
+        WorldSnapshot snapshot = worldClient.sampleSnapshot(System.nanoTime());
+        int selfId = worldClient.getPlayerId();
+        int present = 0;
+        
+        for (int i = 0; i < snapshot.size(); i++) {
+            int id = snapshot.getId(i);
+            if (id == selfId) {
+                continue;
+            }
+            present++;
+            Node node = visitorNodes.get(id);
+            if (node == null) {
+                Box body = new Box(0.8, 1.8, 0.8);
+                body.setMaterial(visitorMaterial);
+                node = body;
+                visitorNodes.put(id, node);
+                visitorLayer.getChildren().add(node);
+            }
+            // 快照中的Y是视点高度，身体放在地面上
+            node.setTranslateX(snapshot.getX(i));
+            node.setTranslateY(snapshot.getY(i) - Player.GROUND_LEVEL + 0.9);
+            node.setTranslateZ(snapshot.getZ(i));
+            node.setRotationAxis(Rotate.Y_AXIS);
+            node.setRotate(snapshot.getYaw(i));
+        }
+        
+        // 移除已离开的访客：快照里的访客都已有节点，节点多出来的就是离开的（快照含本机玩家，不能直接比快照大小）
+        if (visitorNodes.size() > present) {
+            Iterator<Map.Entry<Integer, Node>> entries = visitorNodes.entrySet().iterator();
+            while (entries.hasNext()) {
+                Map.Entry<Integer, Node> entry = entries.next();
+                if (snapshot.indexOf(entry.getKey()) < 0) {
+                    visitorLayer.getChildren().remove(entry.getValue());
+                    entries.remove();
+                }
+            }
+        }
+    }
+
     private void updateBackground() {
         // 根据当前纪元更新背景色
         Color bgColor = gameEngine.getEpochManager().getCurrentEpoch().getBackgroundColor();
@@ -227,4 +324,21 @@ public class Scene3DManager {
     public SubScene getSubScene() {
         return subScene;
     }
+
+    /**
+     * 统计3D场景中的节点总数（供性能面板使用）
+     */
+    public int getNodeCount() {
+        return countNodes(root3D);
+    }
+
+    private int countNodes(Node node) {
+        int count = 1;
+        if (node instanceof Parent parent) {
+            for (Node child : parent.getChildrenUnmodifiable()) {
+                count += countNodes(child);
+            }
+        }
+        return count;
+    }
 }
@@ -1,9 +1,15 @@
 package com.yingzhou.ui;
 
+import com.yingzhou.data.DialogueHistoryStore;
 import com.yingzhou.game.GameEngine;
 import com.yingzhou.npc.BaseNPC;
+import com.yingzhou.util.Logger;
+import javafx.collections.ObservableList;
+import javafx.css.PseudoClass;
 import javafx.geometry.Insets;
+import javafx.geometry.Orientation;
 import javafx.geometry.Pos;
+import javafx.scene.Node;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.effect.DropShadow;
@@ -15,7 +21,9 @@ import javafx.stage.Modality;
 import javafx.stage.Stage;
 import javafx.stage.StageStyle;
 
-import java.time.LocalDateTime;
+import java.io.IOException;
+import java.time.Instant;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
@@ -23,33 +31,102 @@ import java.util.List;
 /**
  * 对话面板
  * 显示与NPC的对话界面
+ *
+ * 消息列表基于 ListView 虚拟化，气泡节点随滚动复用；
+ * 内存中只保留最近 WINDOW_SIZE 条消息，全部历史写入磁盘存储，向上滚动到顶时按页读回。
+ * 窗口大小可通过 -Dyingzhou.dialogue.window=N 配置。
  */
 public class DialoguePanel {
     
+    private static final int WINDOW_SIZE = Math.max(20, Integer.getInteger("yingzhou.dialogue.window", 200));
+    private static final int PAGE_SIZE = Math.max(1, WINDOW_SIZE / 4);
+    private static final DateTimeFormatter TIME_FORMATTER =
+        DateTimeFormatter.ofPattern("HH:mm:ss").withZone(ZoneId.systemDefault());
+    private static final PseudoClass USER = PseudoClass.getPseudoClass("user");
+    
     private GameEngine gameEngine;
     private Stage dialogueStage;
     private BaseNPC currentNPC;
-    private VBox messagesContainer;
+    private ListView<Message> messageList;
     private TextField inputField;
     private Button sendButton;
-    private List<Message> messages;
-    private ScrollPane scrollPane;
+    private final DialogueHistoryStore historyStore;
+    // 内存窗口中第一条消息在完整历史中的序号
+    private long windowStart;
+    private boolean paging;
+    private boolean pagingListenerInstalled;
     
     private static class Message {
         String role; // "user" or "npc"
         String content;
-        LocalDateTime timestamp;
+        long timestamp;
+        private String timeText;
         
         Message(String role, String content) {
             this.role = role;
             this.content = content;
-            this.timestamp = LocalDateTime.now();
+            this.timestamp = System.currentTimeMillis();
+        }
+        
+        Message(DialogueHistoryStore.Entry entry) {
+            this.role = entry.fromPlayer ? "user" : "npc";
+            this.content = entry.content;
+            this.timestamp = entry.timestamp;
+        }
+        
+        boolean isUser() {
+            return role.equals("user");
+        }
+        
+        String getTimeText() {
+            if (timeText == null) {
+                timeText = TIME_FORMATTER.format(Instant.ofEpochMilli(timestamp));
+            }
+            return timeText;
+        }
+    }
+    
+    /**
+     * 消息单元格
+     * 气泡节点结构固定，复用时只替换文本和伪类
+     */
+    private static class MessageCell extends ListCell<Message> {
+        private final HBox row = new HBox();
+        private final VBox bubble = new VBox();
+        private final Label contentLabel = new Label();
+        private final Label timeLabel = new Label();
+        
+        MessageCell() {
+            bubble.getStyleClass().add("message-bubble");
+            bubble.setMaxWidth(400);
+            contentLabel.getStyleClass().add("message-content");
+            contentLabel.setWrapText(true);
+            timeLabel.getStyleClass().add("message-time");
+            bubble.getChildren().addAll(contentLabel, timeLabel);
+            row.getChildren().add(bubble);
+            setText(null);
+            // 让单元格跟随列表宽度，长消息才能正确换行
+            setPrefWidth(0);
+        }
+        
+        @Override
+        protected void updateItem(Message message, boolean empty) {
+            super.updateItem(message, empty);
+            if (empty || message == null) {
+                setGraphic(null);
+                return;
+            }
+            contentLabel.setText(message.content);
+            timeLabel.setText(message.getTimeText());
+            row.setAlignment(message.isUser() ? Pos.CENTER_RIGHT : Pos.CENTER_LEFT);
+            bubble.pseudoClassStateChanged(USER, message.isUser());
+            setGraphic(row);
         }
     }
 
     public DialoguePanel(GameEngine gameEngine) {
         this.gameEngine = gameEngine;
-        this.messages = new ArrayList<>();
+        this.historyStore = new DialogueHistoryStore();
         createDialogueWindow();
     }
 
@@ -71,22 +148,20 @@ public class DialoguePanel {
         HBox header = createHeader();
         root.setTop(header);
         
-        // 中间 - 消息列表
-        messagesContainer = new VBox(10);
-        messagesContainer.setPadding(new Insets(15));
-        messagesContainer.setStyle("-fx-background-color: rgba(0, 0, 0, 0.3);");
-        
-        scrollPane = new ScrollPane(messagesContainer);
-        scrollPane.setFitToWidth(true);
-        scrollPane.setStyle("-fx-background: transparent; -fx-background-color: rgba(0, 0, 0, 0.5);");
-        scrollPane.setPrefHeight(400);
-        root.setCenter(scrollPane);
+        // 中间 - 消息列表（虚拟化）
+        messageList = new ListView<>();
+        messageList.getStyleClass().add("message-list");
+        messageList.setFocusTraversable(false);
+        messageList.setCellFactory(list -> new MessageCell());
+        messageList.setPrefHeight(400);
+        root.setCenter(messageList);
         
         // 底部 - 输入框
         VBox footer = createFooter();
         root.setBottom(footer);
         
         Scene scene = new Scene(root, 600, 550);
+        scene.getStylesheets().add(DialoguePanel.class.getResource("/css/dialogue.css").toExternalForm());
         dialogueStage.setScene(scene);
     }
 
@@ -129,7 +204,17 @@ public class DialoguePanel {
         ));
         closeButton.setOnAction(e -> hide());
         
-        header.getChildren().addAll(titleLabel, npcNameLabel, spacer, closeButton);
+        Button miniGameButton = new Button("小游戏");
+        miniGameButton.setStyle(
+            "-fx-background-color: transparent;" +
+            "-fx-text-fill: rgb(6, 182, 212);" +
+            "-fx-border-color: rgb(6, 182, 212);" +
+            "-fx-border-radius: 5;" +
+            "-fx-cursor: hand;"
+        );
+        miniGameButton.setOnAction(e -> playMiniGame());
+        
+        header.getChildren().addAll(titleLabel, npcNameLabel, spacer, miniGameButton, closeButton);
         return header;
     }
 
@@ -206,68 +291,152 @@ public class DialoguePanel {
         
         // 添加用户消息
         Message userMessage = new Message("user", userInput);
-        messages.add(userMessage);
-        addMessageBubble(userMessage);
+        addMessage(userMessage);
         
         // 清空输入框
         inputField.clear();
         
         // 获取NPC回复
-        String npcResponse = currentNPC.getDialogue(userInput);
+        String npcResponse = gameEngine.sendDialogue(currentNPC, userInput);
         Message npcMessage = new Message("npc", npcResponse);
-        messages.add(npcMessage);
-        addMessageBubble(npcMessage);
+        addMessage(npcMessage);
         
         // 滚动到底部
         scrollToBottom();
     }
 
-    private void addMessageBubble(Message message) {
-        HBox messageBox = new HBox();
-        messageBox.setPadding(new Insets(5));
-        
-        VBox bubble = new VBox(5);
-        bubble.setPadding(new Insets(10));
-        bubble.setMaxWidth(400);
-        
-        if (message.role.equals("user")) {
-            messageBox.setAlignment(Pos.CENTER_RIGHT);
-            bubble.setStyle(
-                "-fx-background-color: rgba(6, 182, 212, 0.2);" +
-                "-fx-border-color: rgb(6, 182, 212);" +
-                "-fx-border-width: 1;" +
-                "-fx-border-radius: 10;" +
-                "-fx-background-radius: 10;"
-            );
-        } else {
-            messageBox.setAlignment(Pos.CENTER_LEFT);
-            bubble.setStyle(
-                "-fx-background-color: rgba(59, 130, 246, 0.3);" +
-                "-fx-border-color: rgba(75, 85, 99, 0.5);" +
-                "-fx-border-width: 1;" +
-                "-fx-border-radius: 10;" +
-                "-fx-background-radius: 10;"
-            );
+    private void playMiniGame() {
+        if (currentNPC == null) {
+            return;
+        }
+        boolean success = gameEngine.playMiniGame(currentNPC);
+        String result = success ? "挑战完成" : "挑战未完成";
+        addMessage(new Message("npc", "【" + currentNPC.getMiniGameName() + "】" + result));
+        scrollToBottom();
+    }
+
+    /**
+     * 追加一条消息：写入磁盘历史，并保持内存窗口不超过 WINDOW_SIZE
+     */
+    private void addMessage(Message message) {
+        try {
+            historyStore.append(message.isUser(), message.content, message.timestamp);
+        } catch (IOException e) {
+            Logger.error("写入对话历史失败", e);
         }
         
-        Label contentLabel = new Label(message.content);
-        contentLabel.setWrapText(true);
-        contentLabel.setFont(Font.font("Microsoft YaHei", 13));
-        contentLabel.setTextFill(Color.WHITE);
-        
-        Label timeLabel = new Label(message.timestamp.format(DateTimeFormatter.ofPattern("HH:mm:ss")));
-        timeLabel.setFont(Font.font("Microsoft YaHei", 10));
-        timeLabel.setTextFill(Color.rgb(107, 114, 128));
-        
-        bubble.getChildren().addAll(contentLabel, timeLabel);
-        messageBox.getChildren().add(bubble);
-        
-        messagesContainer.getChildren().add(messageBox);
+        ObservableList<Message> items = messageList.getItems();
+        long total = historyStore.size();
+        if (windowStart + items.size() + 1 < total) {
+            // 用户正在翻看旧消息，直接回到最新一页
+            loadWindow(Math.max(0, total - WINDOW_SIZE));
+        } else {
+            items.add(message);
+        }
+        trimHead();
+    }
+    
+    private void trimHead() {
+        ObservableList<Message> items = messageList.getItems();
+        int overflow = items.size() - WINDOW_SIZE;
+        if (overflow > 0) {
+            items.remove(0, overflow);
+            windowStart += overflow;
+        }
+    }
+    
+    private void trimTail() {
+        ObservableList<Message> items = messageList.getItems();
+        int overflow = items.size() - WINDOW_SIZE;
+        if (overflow > 0) {
+            items.remove(items.size() - overflow, items.size());
+        }
+    }
+    
+    private void loadWindow(long from) {
+        messageList.getItems().setAll(readHistory(from, WINDOW_SIZE));
+        windowStart = from;
+    }
+    
+    private List<Message> readHistory(long from, int count) {
+        List<Message> result = new ArrayList<>();
+        try {
+            for (DialogueHistoryStore.Entry entry : historyStore.read(from, count)) {
+                result.add(new Message(entry));
+            }
+        } catch (IOException e) {
+            Logger.error("读取对话历史失败", e);
+        }
+        return result;
+    }
+    
+    /**
+     * 滚动到顶部时从磁盘读回更早的一页，并丢弃窗口末尾的消息
+     */
+    private void pageOlder() {
+        if (windowStart == 0) {
+            return;
+        }
+        long from = Math.max(0, windowStart - PAGE_SIZE);
+        List<Message> older = readHistory(from, (int) (windowStart - from));
+        if (older.isEmpty()) {
+            return;
+        }
+        paging = true;
+        try {
+            messageList.getItems().addAll(0, older);
+            windowStart = from;
+            trimTail();
+            messageList.scrollTo(older.size());
+        } finally {
+            paging = false;
+        }
+    }
+    
+    /**
+     * 翻看旧消息后再滚动到底部时，读回后面的一页
+     */
+    private void pageNewer() {
+        ObservableList<Message> items = messageList.getItems();
+        long loadedEnd = windowStart + items.size();
+        if (loadedEnd >= historyStore.size()) {
+            return;
+        }
+        List<Message> newer = readHistory(loadedEnd, PAGE_SIZE);
+        if (newer.isEmpty()) {
+            return;
+        }
+        paging = true;
+        try {
+            items.addAll(newer);
+            trimHead();
+            messageList.scrollTo(Math.max(0, items.size() - newer.size() - 1));
+        } finally {
+            paging = false;
+        }
+    }
+    
+    private void installPagingListener() {
+        for (Node node : messageList.lookupAll(".scroll-bar")) {
+            if (node instanceof ScrollBar bar && bar.getOrientation() == Orientation.VERTICAL) {
+                bar.valueProperty().addListener((obs, oldValue, newValue) -> {
+                    if (paging) {
+                        return;
+                    }
+                    if (newValue.doubleValue() <= bar.getMin()) {
+                        pageOlder();
+                    } else if (newValue.doubleValue() >= bar.getMax()) {
+                        pageNewer();
+                    }
+                });
+                pagingListenerInstalled = true;
+            }
+        }
     }
 
     private void scrollToBottom() {
         javafx.application.Platform.runLater(() -> {
-            scrollPane.setVvalue(1.0);
+            messageList.scrollTo(messageList.getItems().size() - 1);
         });
     }
 
@@ -282,26 +451,45 @@ public class DialoguePanel {
         }
         
         // 清空消息
-        messages.clear();
-        messagesContainer.getChildren().clear();
+        try {
+            historyStore.clear();
+        } catch (IOException e) {
+            Logger.error("清空对话历史失败", e);
+        }
+        messageList.getItems().clear();
+        windowStart = 0;
         
         // 添加欢迎消息
         Message welcomeMessage = new Message("npc", npc.getDialogue("你好"));
-        messages.add(welcomeMessage);
-        addMessageBubble(welcomeMessage);
+        addMessage(welcomeMessage);
     }
 
     public void show() {
         if (currentNPC == null) {
-            System.out.println("请先选择一个NPC");
+            Logger.debug("请先选择一个NPC");
             return;
         }
         dialogueStage.show();
         dialogueStage.toFront();
+        if (!pagingListenerInstalled) {
+            installPagingListener();
+        }
         inputField.requestFocus();
     }
 
     public void hide() {
         dialogueStage.hide();
     }
+
+    /**
+     * 关闭对话窗口并删除磁盘上的历史文件，游戏退出时调用
+     */
+    public void dispose() {
+        dialogueStage.close();
+        try {
+            historyStore.close();
+        } catch (IOException e) {
+            Logger.error("关闭对话历史存储失败", e);
+        }
+    }
 }
@@ -2,6 +2,10 @@ package com.yingzhou.ui;
 
 import com.yingzhou.game.GameEngine;
 import com.yingzhou.game.epoch.EpochManager;
+import com.yingzhou.game.epoch.EpochRequirement;
+import com.yingzhou.game.event.GameEvent;
+import com.yingzhou.game.event.GameEventListener;
+import com.yingzhou.game.event.GameEventType;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
@@ -44,14 +48,31 @@ public class EpochPanel {
 
     public EpochPanel(GameEngine gameEngine) {
         this.gameEngine = gameEngine;
-        createEpochWindow();
-    }
-
-    private void createEpochWindow() {
         epochStage = new Stage();
         epochStage.initModality(Modality.NONE);
         epochStage.setTitle("纪元系统");
+        createEpochWindow();
         
+        // 纪元、碎片或对话变化后，一批事件只重建一次；窗口未显示时等到打开再刷新
+        gameEngine.getEventBus().subscribeFx(new GameEventListener() {
+            private boolean dirty;
+            
+            @Override
+            public void onEvent(GameEvent event) {
+                dirty = true;
+            }
+            
+            @Override
+            public void onBatchEnd() {
+                if (dirty && epochStage.isShowing()) {
+                    refresh();
+                }
+                dirty = false;
+            }
+        }, GameEventType.EPOCH_ADVANCED, GameEventType.FRAGMENT_COLLECTED, GameEventType.DIALOGUE_SENT);
+    }
+
+    private void createEpochWindow() {
         BorderPane root = new BorderPane();
         root.setStyle("-fx-background-color: linear-gradient(to bottom, #000000, #1f2937);");
         root.setPadding(new Insets(20));
@@ -326,8 +347,9 @@ public class EpochPanel {
         Region spacer = new Region();
         HBox.setHgrow(spacer, Priority.ALWAYS);
         
+        EpochRequirement requirement = gameEngine.getEpochManager().getCurrentRequirement();
         int collected = gameEngine.getEpochManager().getFragmentsCollected();
-        int required = 3 * (currentIndex + 1); // 每个纪元需要更多碎片
+        int required = requirement.getMinFragments();
         
         progressLabel = new Label(collected + " / " + required);
         progressLabel.setFont(Font.font("Microsoft YaHei", FontWeight.BOLD, 13));
@@ -342,23 +364,31 @@ public class EpochPanel {
             "-fx-accent: " + (collected >= required ? "#10b981" : "#eab308") + ";"
         );
         
+        box.getChildren().addAll(title, fragmentReq, epochProgress);
         if (collected < required) {
-            Label hintLabel = new Label("还需收集 " + (required - collected) + " 个碎片");
-            hintLabel.setFont(Font.font("Microsoft YaHei", 10));
-            hintLabel.setTextFill(Color.rgb(107, 114, 128));
-            box.getChildren().addAll(title, fragmentReq, epochProgress, hintLabel);
-        } else {
-            box.getChildren().addAll(title, fragmentReq, epochProgress);
+            box.getChildren().add(createHintLabel("还需收集 " + (required - collected) + " 个碎片"));
+        }
+        if (!requirement.getRequiredNpcs().isEmpty()) {
+            box.getChildren().add(createHintLabel("需与 " + String.join("、", requirement.getRequiredNpcs()) + " 对话"));
+        }
+        int interactions = gameEngine.getEpochManager().getState().getInteractions();
+        if (interactions < requirement.getMinInteractions()) {
+            box.getChildren().add(createHintLabel("交互次数 " + interactions + " / " + requirement.getMinInteractions()));
         }
         
         return box;
     }
 
+    private Label createHintLabel(String text) {
+        Label hintLabel = new Label(text);
+        hintLabel.setFont(Font.font("Microsoft YaHei", 10));
+        hintLabel.setTextFill(Color.rgb(107, 114, 128));
+        return hintLabel;
+    }
+
     private void updateAdvanceButton() {
         int currentIndex = gameEngine.getEpochManager().getCurrentEpoch().ordinal();
-        int collected = gameEngine.getEpochManager().getFragmentsCollected();
-        int required = 3 * (currentIndex + 1);
-        boolean canAdvance = collected >= required;
+        boolean canAdvance = gameEngine.getEpochManager().canAdvanceToNextEpoch();
         
         Color nextColor = EPOCH_COLORS[currentIndex + 1];
         
@@ -400,8 +430,7 @@ public class EpochPanel {
         
         confirm.showAndWait().ifPresent(response -> {
             if (response == ButtonType.OK) {
-                gameEngine.getEpochManager().advanceEpoch();
-                refresh();
+                gameEngine.advanceEpoch();
                 
                 Alert success = new Alert(Alert.AlertType.INFORMATION);
                 success.setTitle("纪元推进成功");
@@ -506,7 +535,7 @@ public class EpochPanel {
     }
     
     public void refresh() {
-        // 重新创建窗口内容以更新所有信息
+        // 在同一窗口中重新创建内容以更新所有信息
         createEpochWindow();
     }
 }
@@ -2,6 +2,9 @@ package com.yingzhou.ui;
 
 import com.yingzhou.game.GameEngine;
 import com.yingzhou.game.epoch.EpochManager;
+import com.yingzhou.game.event.GameEventType;
+import javafx.concurrent.Task;
+import javafx.css.PseudoClass;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
@@ -15,17 +18,24 @@ import javafx.stage.Modality;
 import javafx.stage.Stage;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * 记忆碎片收藏馆
  * 显示玩家收集的记忆碎片
+ *
+ * 网格基于 ListView 虚拟化：每行是一个可复用的单元格，只为可见行创建卡片节点；
+ * 卡片显示内容（文本、样式类）在后台线程预先计算，解锁碎片时只更新对应的那张卡片。
  */
 public class FragmentGallery {
     
     private GameEngine gameEngine;
     private Stage galleryStage;
-    private GridPane fragmentGrid;
+    private ListView<Integer> fragmentList;
     private ProgressBar mainProgress;
     private ProgressBar hiddenProgress;
     private Label mainProgressLabel;
@@ -51,17 +61,80 @@ public class FragmentGallery {
         }
     }
     
+    /**
+     * 卡片显示数据
+     * 在后台线程由 Fragment 计算得出，FX线程只负责把它套到复用的卡片节点上
+     */
+    private static final class CardModel {
+        final String rarity;
+        final String idText;
+        final String icon;
+        final String title;
+        final String epochName;
+        final String epochStyleClass;
+        final boolean owned;
+        
+        CardModel(Fragment fragment) {
+            this.rarity = fragment.isHidden ? "🔶" : "🔷";
+            this.idText = "#" + fragment.id;
+            this.icon = fragment.owned ? "✓" : "❓";
+            this.title = fragment.owned ? fragment.title : "???";
+            this.epochName = EPOCH_NAMES[fragment.epoch];
+            this.epochStyleClass = "epoch-" + fragment.epoch;
+            this.owned = fragment.owned;
+        }
+    }
+    
     private List<Fragment> fragments;
     private static final String[] EPOCH_NAMES = {"创世", "萌芽", "繁盛", "熵化", "毁灭"};
     private static final Color[] EPOCH_COLORS = {
         Color.CYAN, Color.LIME, Color.YELLOW, Color.RED, Color.WHITE
     };
+    
+    private static final int COLUMNS = 6;
+    private static final double CARD_WIDTH = 120;
+    private static final double CARD_HEIGHT = 140;
+    private static final double CARD_GAP = 15;
+    private static final PseudoClass OWNED = PseudoClass.getPseudoClass("owned");
+    private static final ExecutorService cardPreparer = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "fragment-card-preparer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    private CardModel[] cardModels = new CardModel[0];
+    // 当前绑定在可见单元格上的卡片，按碎片ID索引
+    private final Map<Integer, FragmentCard> visibleCards = new HashMap<>();
+    private int mainTotal;
+    private int hiddenTotal;
+    private int mainCollected;
+    private int hiddenCollected;
 
     public FragmentGallery(GameEngine gameEngine) {
         this.gameEngine = gameEngine;
         this.fragments = new ArrayList<>();
         initializeFragments();
+        markCollectedFragments(gameEngine.getEpochManager().getFragmentsCollected());
         createGalleryWindow();
+        
+        // 引擎收集碎片时解锁对应卡片
+        gameEngine.getEventBus().subscribeFx(event -> unlockFragment(event.getFragmentId()),
+            GameEventType.FRAGMENT_COLLECTED);
+    }
+
+    /**
+     * 收藏馆创建前已收集的碎片按顺序记为已拥有
+     */
+    private void markCollectedFragments(int count) {
+        for (Fragment fragment : fragments) {
+            if (count <= 0) {
+                return;
+            }
+            if (!fragment.isHidden) {
+                fragment.owned = true;
+                count--;
+            }
+        }
     }
 
     private void initializeFragments() {
@@ -101,26 +174,24 @@ public class FragmentGallery {
         VBox header = createHeader();
         root.setTop(header);
         
-        // 中间 - 碎片网格
-        ScrollPane scrollPane = new ScrollPane();
-        scrollPane.setFitToWidth(true);
-        scrollPane.setStyle("-fx-background: transparent; -fx-background-color: rgba(0, 0, 0, 0.5);");
+        // 中间 - 碎片网格（虚拟化，每行一个复用单元格）
+        fragmentList = new ListView<>();
+        fragmentList.getStyleClass().add("fragment-list");
+        fragmentList.setFixedCellSize(CARD_HEIGHT + CARD_GAP);
+        fragmentList.setFocusTraversable(false);
+        fragmentList.setPadding(new Insets(20));
+        fragmentList.setCellFactory(list -> new FragmentRowCell());
+        fragmentList.setStyle("-fx-background-color: rgba(0, 0, 0, 0.5);");
+        root.setCenter(fragmentList);
         
-        fragmentGrid = new GridPane();
-        fragmentGrid.setHgap(15);
-        fragmentGrid.setVgap(15);
-        fragmentGrid.setPadding(new Insets(20));
-        fragmentGrid.setAlignment(Pos.CENTER);
-        
-        updateFragmentGrid();
-        scrollPane.setContent(fragmentGrid);
-        root.setCenter(scrollPane);
+        prepareCards();
         
         // 底部 - 提示信息
         VBox footer = createFooter();
         root.setBottom(footer);
         
         Scene scene = new Scene(root, 900, 700);
+        scene.getStylesheets().add(FragmentGallery.class.getResource("/css/fragment-gallery.css").toExternalForm());
         galleryStage.setScene(scene);
     }
 
@@ -161,119 +232,155 @@ public class FragmentGallery {
         return header;
     }
 
-    private void updateFragmentGrid() {
-        fragmentGrid.getChildren().clear();
-        
-        int col = 0;
-        int row = 0;
-        int maxCols = 6;
+    /**
+     * 在后台线程为全部碎片计算卡片数据，完成后回到FX线程刷新网格
+     */
+    private void prepareCards() {
+        List<Fragment> snapshot = List.copyOf(fragments);
+        Task<CardModel[]> task = new Task<>() {
+            @Override
+            protected CardModel[] call() {
+                CardModel[] models = new CardModel[snapshot.size()];
+                for (int i = 0; i < models.length; i++) {
+                    models[i] = new CardModel(snapshot.get(i));
+                }
+                return models;
+            }
+        };
+        task.setOnSucceeded(e -> applyCardModels(task.getValue()));
+        cardPreparer.execute(task);
+    }
+
+    private void applyCardModels(CardModel[] models) {
+        // 准备期间解锁的碎片以FX线程上的状态为准
+        for (int i = 0; i < models.length; i++) {
+            if (models[i].owned != fragments.get(i).owned) {
+                models[i] = new CardModel(fragments.get(i));
+            }
+        }
+        cardModels = models;
         
-        for (Fragment fragment : fragments) {
-            VBox card = createFragmentCard(fragment);
-            fragmentGrid.add(card, col, row);
-            
-            col++;
-            if (col >= maxCols) {
-                col = 0;
-                row++;
+        int rows = (models.length + COLUMNS - 1) / COLUMNS;
+        if (fragmentList.getItems().size() != rows) {
+            List<Integer> rowIndices = new ArrayList<>(rows);
+            for (int row = 0; row < rows; row++) {
+                rowIndices.add(row);
+            }
+            fragmentList.getItems().setAll(rowIndices);
+        } else {
+            for (Map.Entry<Integer, FragmentCard> entry : visibleCards.entrySet()) {
+                entry.getValue().apply(models[entry.getKey()]);
             }
         }
         
-        updateProgress();
+        recountProgress();
     }
 
-    private VBox createFragmentCard(Fragment fragment) {
-        VBox card = new VBox(8);
-        card.setPrefSize(120, 140);
-        card.setAlignment(Pos.CENTER);
-        card.setPadding(new Insets(10));
+    /**
+     * 网格行单元格
+     * 持有固定数量的卡片节点，滚动时由 ListView 复用并重新绑定
+     */
+    private class FragmentRowCell extends ListCell<Integer> {
+        private final HBox row = new HBox(CARD_GAP);
+        private final FragmentCard[] cards = new FragmentCard[COLUMNS];
+        
+        FragmentRowCell() {
+            row.setAlignment(Pos.CENTER);
+            for (int i = 0; i < COLUMNS; i++) {
+                cards[i] = new FragmentCard();
+                row.getChildren().add(cards[i]);
+            }
+            setText(null);
+        }
         
-        if (fragment.owned) {
-            card.setStyle(
-                "-fx-background-color: rgba(17, 24, 39, 0.9);" +
-                "-fx-border-color: rgb(6, 182, 212);" +
-                "-fx-border-width: 2;" +
-                "-fx-border-radius: 8;" +
-                "-fx-background-radius: 8;" +
-                "-fx-cursor: hand;"
-            );
+        @Override
+        protected void updateItem(Integer rowIndex, boolean empty) {
+            super.updateItem(rowIndex, empty);
+            for (FragmentCard card : cards) {
+                card.unbind();
+            }
+            if (empty || rowIndex == null) {
+                setGraphic(null);
+                return;
+            }
+            for (int i = 0; i < COLUMNS; i++) {
+                int id = rowIndex * COLUMNS + i;
+                if (id < cardModels.length) {
+                    cards[i].bind(id, cardModels[id]);
+                    cards[i].setVisible(true);
+                } else {
+                    cards[i].setVisible(false);
+                }
+            }
+            setGraphic(row);
+        }
+    }
+
+    /**
+     * 碎片卡片
+     * 节点结构固定，样式来自共享样式表，绑定不同碎片时只修改文本和伪类
+     */
+    private class FragmentCard extends VBox {
+        private final Label rarityLabel = new Label();
+        private final Label idLabel = new Label();
+        private final Label iconLabel = new Label();
+        private final Label titleLabel = new Label();
+        private final Label epochLabel = new Label();
+        private int fragmentId = -1;
+        private String epochStyleClass;
+        
+        FragmentCard() {
+            super(8);
+            getStyleClass().add("fragment-card");
+            setPrefSize(CARD_WIDTH, CARD_HEIGHT);
+            setMinSize(CARD_WIDTH, CARD_HEIGHT);
+            setMaxSize(CARD_WIDTH, CARD_HEIGHT);
             
-            card.setOnMouseEntered(e -> {
-                card.setStyle(
-                    "-fx-background-color: rgba(6, 182, 212, 0.2);" +
-                    "-fx-border-color: rgb(6, 182, 212);" +
-                    "-fx-border-width: 2;" +
-                    "-fx-border-radius: 8;" +
-                    "-fx-background-radius: 8;" +
-                    "-fx-cursor: hand;"
-                );
-                card.setScaleX(1.05);
-                card.setScaleY(1.05);
-            });
+            rarityLabel.getStyleClass().add("rarity");
+            idLabel.getStyleClass().add("fragment-id");
+            iconLabel.getStyleClass().add("fragment-icon");
+            titleLabel.getStyleClass().add("fragment-title");
+            titleLabel.setWrapText(true);
+            titleLabel.setMaxWidth(100);
+            epochLabel.getStyleClass().add("epoch-badge");
             
-            card.setOnMouseExited(e -> {
-                card.setStyle(
-                    "-fx-background-color: rgba(17, 24, 39, 0.9);" +
-                    "-fx-border-color: rgb(6, 182, 212);" +
-                    "-fx-border-width: 2;" +
-                    "-fx-border-radius: 8;" +
-                    "-fx-background-radius: 8;" +
-                    "-fx-cursor: hand;"
-                );
-                card.setScaleX(1.0);
-                card.setScaleY(1.0);
-            });
+            getChildren().addAll(rarityLabel, idLabel, iconLabel, titleLabel, epochLabel);
             
-            card.setOnMouseClicked(e -> showFragmentDetail(fragment));
-        } else {
-            card.setStyle(
-                "-fx-background-color: rgba(31, 41, 55, 0.5);" +
-                "-fx-border-color: rgba(75, 85, 99, 0.5);" +
-                "-fx-border-width: 2;" +
-                "-fx-border-radius: 8;" +
-                "-fx-background-radius: 8;" +
-                "-fx-opacity: 0.5;"
-            );
+            setOnMouseClicked(e -> {
+                if (fragmentId >= 0 && fragments.get(fragmentId).owned) {
+                    showFragmentDetail(fragments.get(fragmentId));
+                }
+            });
         }
         
-        // 稀有度标识
-        Label rarityLabel = new Label(fragment.isHidden ? "🔶" : "🔷");
-        rarityLabel.setFont(Font.font(18));
-        
-        // ID
-        Label idLabel = new Label("#" + fragment.id);
-        idLabel.setFont(Font.font("Consolas", 10));
-        idLabel.setTextFill(Color.rgb(156, 163, 175));
-        
-        // 图标
-        Label iconLabel = new Label(fragment.owned ? "✓" : "❓");
-        iconLabel.setFont(Font.font(36));
-        iconLabel.setTextFill(fragment.owned ? Color.rgb(6, 182, 212) : Color.rgb(75, 85, 99));
-        
-        // 标题
-        Label titleLabel = new Label(fragment.owned ? fragment.title : "???");
-        titleLabel.setFont(Font.font("Microsoft YaHei", FontWeight.BOLD, 10));
-        titleLabel.setTextFill(Color.WHITE);
-        titleLabel.setWrapText(true);
-        titleLabel.setAlignment(Pos.CENTER);
-        titleLabel.setMaxWidth(100);
-        
-        // 纪元标签
-        Label epochLabel = new Label(EPOCH_NAMES[fragment.epoch]);
-        epochLabel.setFont(Font.font("Microsoft YaHei", 9));
-        epochLabel.setTextFill(EPOCH_COLORS[fragment.epoch]);
-        epochLabel.setStyle(
-            "-fx-background-color: rgba(" + 
-            (int)(EPOCH_COLORS[fragment.epoch].getRed() * 255) + "," +
-            (int)(EPOCH_COLORS[fragment.epoch].getGreen() * 255) + "," +
-            (int)(EPOCH_COLORS[fragment.epoch].getBlue() * 255) + ",0.2);" +
-            "-fx-padding: 2 6;" +
-            "-fx-border-radius: 3;" +
-            "-fx-background-radius: 3;"
-        );
+        void bind(int id, CardModel model) {
+            fragmentId = id;
+            visibleCards.put(id, this);
+            apply(model);
+        }
+        
+        void unbind() {
+            if (fragmentId >= 0 && visibleCards.get(fragmentId) == this) {
+                visibleCards.remove(fragmentId);
+            }
+            fragmentId = -1;
+        }
         
-        card.getChildren().addAll(rarityLabel, idLabel, iconLabel, titleLabel, epochLabel);
-        return card;
+        void apply(CardModel model) {
+            rarityLabel.setText(model.rarity);
+            idLabel.setText(model.idText);
+            iconLabel.setText(model.icon);
+            titleLabel.setText(model.title);
+            epochLabel.setText(model.epochName);
+            if (!model.epochStyleClass.equals(epochStyleClass)) {
+                if (epochStyleClass != null) {
+                    epochLabel.getStyleClass().remove(epochStyleClass);
+                }
+                epochLabel.getStyleClass().add(model.epochStyleClass);
+                epochStyleClass = model.epochStyleClass;
+            }
+            pseudoClassStateChanged(OWNED, model.owned);
+        }
     }
 
     private void showFragmentDetail(Fragment fragment) {
@@ -306,15 +413,36 @@ public class FragmentGallery {
         alert.showAndWait();
     }
 
+    private void recountProgress() {
+        mainTotal = 0;
+        hiddenTotal = 0;
+        mainCollected = 0;
+        hiddenCollected = 0;
+        for (Fragment fragment : fragments) {
+            if (fragment.isHidden) {
+                hiddenTotal++;
+                if (fragment.owned) {
+                    hiddenCollected++;
+                }
+            } else {
+                mainTotal++;
+                if (fragment.owned) {
+                    mainCollected++;
+                }
+            }
+        }
+        updateProgress();
+    }
+
     private void updateProgress() {
-        int mainCollected = (int) fragments.stream().filter(f -> !f.isHidden && f.owned).count();
-        int hiddenCollected = (int) fragments.stream().filter(f -> f.isHidden && f.owned).count();
+        double mainRatio = mainTotal == 0 ? 0 : (double) mainCollected / mainTotal;
+        double hiddenRatio = hiddenTotal == 0 ? 0 : (double) hiddenCollected / hiddenTotal;
         
-        mainProgress.setProgress(mainCollected / 8.0);
-        mainProgressLabel.setText(String.format("主要碎片: %d/8 (%d%%)", mainCollected, (int)(mainCollected / 8.0 * 100)));
+        mainProgress.setProgress(mainRatio);
+        mainProgressLabel.setText(String.format("主要碎片: %d/%d (%d%%)", mainCollected, mainTotal, (int)(mainRatio * 100)));
         
-        hiddenProgress.setProgress(hiddenCollected / 10.0);
-        hiddenProgressLabel.setText(String.format("隐藏碎片: %d/10 (%d%%)", hiddenCollected, (int)(hiddenCollected / 10.0 * 100)));
+        hiddenProgress.setProgress(hiddenRatio);
+        hiddenProgressLabel.setText(String.format("隐藏碎片: %d/%d (%d%%)", hiddenCollected, hiddenTotal, (int)(hiddenRatio * 100)));
     }
 
     private VBox createFooter() {
@@ -362,7 +490,6 @@ public class FragmentGallery {
     }
 
     public void show() {
-        updateFragmentGrid();
         galleryStage.show();
         galleryStage.toFront();
     }
@@ -371,11 +498,29 @@ public class FragmentGallery {
         galleryStage.hide();
     }
     
-    // 用于测试：解锁碎片
+    // 解锁碎片（只更新该碎片对应的卡片）
     public void unlockFragment(int id) {
-        if (id >= 0 && id < fragments.size()) {
-            fragments.get(id).owned = true;
-            updateFragmentGrid();
+        if (id < 0 || id >= fragments.size()) {
+            return;
+        }
+        Fragment fragment = fragments.get(id);
+        if (fragment.owned) {
+            return;
+        }
+        fragment.owned = true;
+        
+        if (id < cardModels.length) {
+            cardModels[id] = new CardModel(fragment);
+            FragmentCard card = visibleCards.get(id);
+            if (card != null) {
+                card.apply(cardModels[id]);
+            }
+            if (fragment.isHidden) {
+                hiddenCollected++;
+            } else {
+                mainCollected++;
+            }
+            updateProgress();
         }
     }
 }
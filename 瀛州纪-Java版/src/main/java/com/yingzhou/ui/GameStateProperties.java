@@ -0,0 +1,104 @@
+package com.yingzhou.ui;
+
+import com.yingzhou.game.GameEngine;
+import com.yingzhou.game.epoch.EpochManager;
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyDoubleProperty;
+import javafx.beans.property.ReadOnlyDoubleWrapper;
+import javafx.beans.property.ReadOnlyIntegerProperty;
+import javafx.beans.property.ReadOnlyIntegerWrapper;
+import javafx.beans.property.ReadOnlyObjectProperty;
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.geometry.Point3D;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 游戏状态的可观察属性
+ * 把 EpochManager 和 Player 的变化推送到FX线程，供UI绑定
+ *
+ * 游戏循环中的变化只写入待刷新的值，每个脉冲最多投递一次 runLater；
+ * 属性只有在值变化时才通知绑定方，没有变化时不占用任何帧时间。
+ */
+public class GameStateProperties {
+
+    private final ReadOnlyObjectWrapper<EpochManager.Epoch> epoch = new ReadOnlyObjectWrapper<>();
+    private final ReadOnlyIntegerWrapper fragmentsCollected = new ReadOnlyIntegerWrapper();
+    private final ReadOnlyDoubleWrapper entropyLevel = new ReadOnlyDoubleWrapper();
+    private final ReadOnlyObjectWrapper<Point3D> playerPosition = new ReadOnlyObjectWrapper<>();
+
+    // 游戏线程写入的最新值，刷新时一次性应用
+    private volatile EpochManager.Epoch pendingEpoch;
+    private volatile int pendingFragments;
+    private volatile double pendingEntropy;
+    private volatile Point3D pendingPosition;
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+    public GameStateProperties(GameEngine gameEngine) {
+        EpochManager epochManager = gameEngine.getEpochManager();
+        pendingEpoch = epochManager.getCurrentEpoch();
+        pendingFragments = epochManager.getFragmentsCollected();
+        pendingEntropy = epochManager.getEntropyLevel();
+        pendingPosition = gameEngine.getPlayer().getPosition();
+        applyPending();
+
+        epochManager.addListener(new EpochManager.EpochListener() {
+            @Override
+            public void onEpochChanged(EpochManager.Epoch newEpoch) {
+                pendingEpoch = newEpoch;
+                scheduleFlush();
+            }
+
+            @Override
+            public void onFragmentsChanged(int count) {
+                pendingFragments = count;
+                scheduleFlush();
+            }
+
+            @Override
+            public void onEntropyChanged(double level) {
+                pendingEntropy = level;
+                scheduleFlush();
+            }
+        });
+        gameEngine.getPlayer().addPositionListener(position -> {
+            pendingPosition = position;
+            scheduleFlush();
+        });
+    }
+
+    private void scheduleFlush() {
+        if (flushScheduled.compareAndSet(false, true)) {
+            Platform.runLater(this::flush);
+        }
+    }
+
+    private void flush() {
+        // 先清标记再读取，刷新期间到达的变化会安排下一次刷新
+        flushScheduled.set(false);
+        applyPending();
+    }
+
+    private void applyPending() {
+        epoch.set(pendingEpoch);
+        fragmentsCollected.set(pendingFragments);
+        entropyLevel.set(pendingEntropy);
+        playerPosition.set(pendingPosition);
+    }
+
+    public ReadOnlyObjectProperty<EpochManager.Epoch> epochProperty() {
+        return epoch.getReadOnlyProperty();
+    }
+
+    public ReadOnlyIntegerProperty fragmentsCollectedProperty() {
+        return fragmentsCollected.getReadOnlyProperty();
+    }
+
+    public ReadOnlyDoubleProperty entropyLevelProperty() {
+        return entropyLevel.getReadOnlyProperty();
+    }
+
+    public ReadOnlyObjectProperty<Point3D> playerPositionProperty() {
+        return playerPosition.getReadOnlyProperty();
+    }
+}
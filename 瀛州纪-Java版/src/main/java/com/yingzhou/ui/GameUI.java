@@ -1,8 +1,14 @@
 package com.yingzhou.ui;
 
 import com.yingzhou.game.GameEngine;
+import com.yingzhou.game.event.GameEventType;
 import com.yingzhou.npc.BaseNPC;
+import com.yingzhou.perf.StartupTimeline;
+import com.yingzhou.util.Logger;
+import javafx.application.Platform;
+import javafx.beans.binding.Bindings;
 import javafx.geometry.Insets;
+import javafx.geometry.Point3D;
 import javafx.geometry.Pos;
 import javafx.scene.control.*;
 import javafx.scene.effect.DropShadow;
@@ -11,6 +17,9 @@ import javafx.scene.paint.Color;
 import javafx.scene.text.Font;
 import javafx.scene.text.FontWeight;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * 游戏UI管理器
  * 管理所有UI元素
@@ -18,6 +27,7 @@ import javafx.scene.text.FontWeight;
 public class GameUI {
     
     private GameEngine gameEngine;
+    private GameStateProperties stateProperties;
     private HBox topBar;
     private HBox bottomBar;
     private VBox rightPanel;
@@ -29,6 +39,7 @@ public class GameUI {
 
     public GameUI(GameEngine gameEngine) {
         this.gameEngine = gameEngine;
+        this.stateProperties = new GameStateProperties(gameEngine);
         this.menuVisible = false;
         initialize();
     }
@@ -38,9 +49,7 @@ public class GameUI {
         createBottomBar();
         createRightPanel();
         createLeftPanel();
-        createDialoguePanel();
-        createFragmentGallery();
-        createEpochPanel();
+        // 对话、碎片、纪元窗口在首次打开或后台预加载时才创建
     }
 
     private void createTopBar() {
@@ -52,54 +61,35 @@ public class GameUI {
         Label epochLabel = new Label();
         epochLabel.setFont(Font.font("Microsoft YaHei", FontWeight.BOLD, 18));
         epochLabel.setTextFill(Color.rgb(6, 182, 212));
-        updateEpochLabel(epochLabel);
+        bindEpochText(epochLabel);
         
         // 碎片计数
         Label fragmentLabel = new Label();
         fragmentLabel.setFont(Font.font("Microsoft YaHei", FontWeight.NORMAL, 16));
         fragmentLabel.setTextFill(Color.rgb(209, 213, 219));
-        updateFragmentLabel(fragmentLabel);
+        fragmentLabel.textProperty().bind(Bindings.createStringBinding(
+            () -> "记忆碎片: " + stateProperties.fragmentsCollectedProperty().get() + "/18",
+            stateProperties.fragmentsCollectedProperty()));
         
         // 熵化程度
         Label entropyLabel = new Label();
         entropyLabel.setFont(Font.font("Microsoft YaHei", FontWeight.NORMAL, 16));
         entropyLabel.setTextFill(Color.rgb(239, 68, 68));
-        updateEntropyLabel(entropyLabel);
+        bindEntropyText(entropyLabel);
         
         topBar.getChildren().addAll(epochLabel, fragmentLabel, entropyLabel);
-        
-        // 启动定时更新
-        startUIUpdateTimer(epochLabel, fragmentLabel, entropyLabel);
-    }
-    
-    private void updateEpochLabel(Label label) {
-        label.setText("当前纪元: " + gameEngine.getEpochManager().getCurrentEpoch().getName());
     }
     
-    private void updateFragmentLabel(Label label) {
-        label.setText("记忆碎片: " + gameEngine.getEpochManager().getFragmentsCollected() + "/18");
+    private void bindEpochText(Label label) {
+        label.textProperty().bind(Bindings.createStringBinding(
+            () -> "当前纪元: " + stateProperties.epochProperty().get().getName(),
+            stateProperties.epochProperty()));
     }
     
-    private void updateEntropyLabel(Label label) {
-        label.setText(String.format("熵化程度: %.1f%%", gameEngine.getEpochManager().getEntropyLevel()));
-    }
-    
-    private void startUIUpdateTimer(Label epochLabel, Label fragmentLabel, Label entropyLabel) {
-        javafx.animation.AnimationTimer timer = new javafx.animation.AnimationTimer() {
-            private long lastUpdate = 0;
-            
-            @Override
-            public void handle(long now) {
-                // 每秒更新一次UI
-                if (now - lastUpdate >= 1_000_000_000) {
-                    updateEpochLabel(epochLabel);
-                    updateFragmentLabel(fragmentLabel);
-                    updateEntropyLabel(entropyLabel);
-                    lastUpdate = now;
-                }
-            }
-        };
-        timer.start();
+    private void bindEntropyText(Label label) {
+        label.textProperty().bind(Bindings.createStringBinding(
+            () -> String.format("熵化程度: %.1f%%", stateProperties.entropyLevelProperty().get()),
+            stateProperties.entropyLevelProperty()));
     }
 
     private void createBottomBar() {
@@ -108,7 +98,7 @@ public class GameUI {
         bottomBar.setAlignment(Pos.CENTER);
         bottomBar.setStyle("-fx-background-color: rgba(17, 24, 39, 0.8);");
         
-        Label controlsLabel = new Label("控制: WASD移动 | 鼠标视角 | E交互 | ESC菜单");
+        Label controlsLabel = new Label("控制: WASD移动 | 鼠标视角 | E交互 | ESC菜单 | F3性能");
         controlsLabel.setFont(Font.font("Microsoft YaHei", FontWeight.NORMAL, 14));
         controlsLabel.setTextFill(Color.rgb(156, 163, 175));
         
@@ -137,12 +127,21 @@ public class GameUI {
         npcDesc.setFont(Font.font("Microsoft YaHei", FontWeight.NORMAL, 11));
         npcDesc.setTextFill(Color.rgb(156, 163, 175));
         
-        // NPC按钮列表
+        // NPC按钮列表，玩家进出交互范围时只更新对应NPC的状态行
         VBox npcList = new VBox(8);
+        List<Label> statusLabels = new ArrayList<>();
         for (BaseNPC npc : gameEngine.getNPCManager().getNPCs()) {
-            Button npcButton = createNPCButton(npc);
+            Label statusLabel = new Label();
+            Button npcButton = createNPCButton(npc, statusLabel);
             npcList.getChildren().add(npcButton);
+            statusLabels.add(statusLabel);
         }
+        gameEngine.getEventBus().subscribeFx(event -> {
+            int index = event.getNpcIndex();
+            if (index >= 0 && index < statusLabels.size()) {
+                updateNPCStatus(statusLabels.get(index), gameEngine.getNPCManager().getNPCs().get(index));
+            }
+        }, GameEventType.NPC_PROXIMITY_CHANGED);
         
         ScrollPane scrollPane = new ScrollPane(npcList);
         scrollPane.setFitToWidth(true);
@@ -152,7 +151,18 @@ public class GameUI {
         rightPanel.getChildren().addAll(npcTitle, npcDesc, scrollPane);
     }
     
-    private Button createNPCButton(BaseNPC npc) {
+    private void updateNPCStatus(Label statusLabel, BaseNPC npc) {
+        if (npc.isPlayerNearby()) {
+            statusLabel.setText("在交互范围内 | 按E交互");
+            statusLabel.setTextFill(Color.rgb(6, 182, 212));
+        } else {
+            statusLabel.setText("交互次数: 0 | 距离: " +
+                String.format("%.1f", gameEngine.getPlayer().getPosition().distance(npc.getPosition())));
+            statusLabel.setTextFill(Color.rgb(156, 163, 175));
+        }
+    }
+    
+    private Button createNPCButton(BaseNPC npc, Label statusLabel) {
         VBox content = new VBox(5);
         content.setPadding(new Insets(10));
         
@@ -160,10 +170,8 @@ public class GameUI {
         nameLabel.setFont(Font.font("Microsoft YaHei", FontWeight.BOLD, 14));
         nameLabel.setTextFill(npc.getColor());
         
-        Label statusLabel = new Label("交互次数: 0 | 距离: " + 
-            String.format("%.1f", gameEngine.getPlayer().getPosition().distance(npc.getPosition())));
+        updateNPCStatus(statusLabel, npc);
         statusLabel.setFont(Font.font("Microsoft YaHei", FontWeight.NORMAL, 10));
-        statusLabel.setTextFill(Color.rgb(156, 163, 175));
         
         content.getChildren().addAll(nameLabel, statusLabel);
         
@@ -202,10 +210,9 @@ public class GameUI {
         });
         
         button.setOnAction(e -> {
-            if (dialoguePanel != null) {
-                dialoguePanel.setNPC(npc);
-                dialoguePanel.show();
-            }
+            DialoguePanel panel = getDialoguePanel();
+            panel.setNPC(npc);
+            panel.show();
         });
         
         return button;
@@ -237,12 +244,13 @@ public class GameUI {
             "-fx-background-radius: 5;"
         );
         
-        Label epochInfo = new Label("当前纪元: " + gameEngine.getEpochManager().getCurrentEpoch().getName());
+        Label epochInfo = new Label();
         epochInfo.setFont(Font.font("Microsoft YaHei", FontWeight.NORMAL, 12));
         epochInfo.setTextFill(Color.rgb(209, 213, 219));
+        bindEpochText(epochInfo);
         
-        Label entropyInfo = new Label(String.format("熵化程度: %.1f%%", 
-            gameEngine.getEpochManager().getEntropyLevel()));
+        Label entropyInfo = new Label();
+        bindEntropyText(entropyInfo);
         entropyInfo.setFont(Font.font("Microsoft YaHei", FontWeight.NORMAL, 12));
         entropyInfo.setTextFill(Color.rgb(239, 68, 68));
         
@@ -252,8 +260,8 @@ public class GameUI {
         VBox quickActions = new VBox(8);
         quickActions.setPadding(new Insets(10, 0, 0, 0));
         
-        Button fragmentButton = createQuickButton("📚 记忆碎片", e -> fragmentGallery.show());
-        Button epochButton = createQuickButton("🌌 纪元系统", e -> epochPanel.show());
+        Button fragmentButton = createQuickButton("📚 记忆碎片", e -> getFragmentGallery().show());
+        Button epochButton = createQuickButton("🌌 纪元系统", e -> getEpochPanel().show());
         
         quickActions.getChildren().addAll(fragmentButton, epochButton);
         
@@ -270,10 +278,11 @@ public class GameUI {
             "-fx-background-radius: 5;"
         );
         
-        Label posLabel = new Label(String.format("位置: (%.1f, %.1f, %.1f)",
-            gameEngine.getPlayer().getPosition().getX(),
-            gameEngine.getPlayer().getPosition().getY(),
-            gameEngine.getPlayer().getPosition().getZ()));
+        Label posLabel = new Label();
+        posLabel.textProperty().bind(Bindings.createStringBinding(() -> {
+            Point3D pos = stateProperties.playerPositionProperty().get();
+            return String.format("位置: (%.1f, %.1f, %.1f)", pos.getX(), pos.getY(), pos.getZ());
+        }, stateProperties.playerPositionProperty()));
         posLabel.setFont(Font.font("Consolas", FontWeight.NORMAL, 11));
         posLabel.setTextFill(Color.rgb(156, 163, 175));
         
@@ -323,16 +332,24 @@ public class GameUI {
         return button;
     }
     
-    private void createDialoguePanel() {
-        dialoguePanel = new DialoguePanel(gameEngine);
-    }
-    
-    private void createFragmentGallery() {
-        fragmentGallery = new FragmentGallery(gameEngine);
-    }
-    
-    private void createEpochPanel() {
-        epochPanel = new EpochPanel(gameEngine);
+    /**
+     * 在首帧之后逐个预创建子窗口
+     * 每个窗口单独占用一个脉冲，避免一次性卡住界面；若玩家先打开了某个窗口则跳过
+     *
+     * @param onFinished 全部预加载完成后在FX线程执行
+     */
+    public void preloadPanels(Runnable onFinished) {
+        Platform.runLater(() -> {
+            getDialoguePanel();
+            Platform.runLater(() -> {
+                getFragmentGallery();
+                Platform.runLater(() -> {
+                    getEpochPanel();
+                    StartupTimeline.mark("子窗口预加载");
+                    onFinished.run();
+                });
+            });
+        });
     }
     
     private void addGlowEffect(Label label) {
@@ -345,7 +362,16 @@ public class GameUI {
     public void toggleMenu() {
         menuVisible = !menuVisible;
         // TODO: 显示/隐藏菜单
-        System.out.println("菜单切换: " + (menuVisible ? "显示" : "隐藏"));
+        Logger.debug("菜单切换: " + (menuVisible ? "显示" : "隐藏"));
+    }
+
+    /**
+     * 释放各面板持有的窗口和文件，游戏退出时调用
+     */
+    public void dispose() {
+        if (dialoguePanel != null) {
+            dialoguePanel.dispose();
+        }
     }
 
     // Getters
@@ -366,14 +392,27 @@ public class GameUI {
     }
     
     public DialoguePanel getDialoguePanel() {
+        if (dialoguePanel == null) {
+            dialoguePanel = new DialoguePanel(gameEngine);
+        }
         return dialoguePanel;
     }
     
     public FragmentGallery getFragmentGallery() {
+        if (fragmentGallery == null) {
+            fragmentGallery = new FragmentGallery(gameEngine);
+        }
         return fragmentGallery;
     }
     
     public EpochPanel getEpochPanel() {
+        if (epochPanel == null) {
+            epochPanel = new EpochPanel(gameEngine);
+        }
         return epochPanel;
     }
+    
+    public GameStateProperties getStateProperties() {
+        return stateProperties;
+    }
 }
@@ -0,0 +1,204 @@
+package com.yingzhou.ui;
+
+import com.yingzhou.game.GameEngine;
+import com.yingzhou.npc.population.BeingPopulation;
+import com.yingzhou.perf.CacheStats;
+import com.yingzhou.perf.LatencyHistogram;
+import com.yingzhou.perf.PerfMonitor;
+import com.yingzhou.scene3d.Scene3DManager;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.control.Label;
+import javafx.scene.layout.StackPane;
+import javafx.scene.layout.VBox;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.util.Duration;
+
+/**
+ * 性能面板（F3）
+ * 叠加在3D视图左上角，显示帧时间、逻辑帧、GC和缓存等指标
+ *
+ * 隐藏时刷新定时器停止，不占用任何帧时间。
+ */
+public class PerfOverlay {
+
+    private static final Duration REFRESH_INTERVAL = Duration.millis(500);
+
+    private final GameEngine gameEngine;
+    private final Scene3DManager scene3DManager;
+    private final VBox overlay;
+    private final Label frameLabel;
+    private final Label renderLabel;
+    private final Label tickLabel;
+    private final Label memoryLabel;
+    private final Label gcLabel;
+    private final Label sceneLabel;
+    private final Label cacheLabel;
+    private final Timeline refreshTimer;
+
+    // 上次采样的基线，用于计算区间增量
+    private LatencyHistogram.Snapshot lastFrame;
+    private LatencyHistogram.Snapshot lastRender;
+    private LatencyHistogram.Snapshot lastTick;
+    private LatencyHistogram.Snapshot lastGcPause;
+    private long lastSampleNanos;
+    private long lastAllocatedBytes;
+    private long lastGcCount;
+    private long lastGcTime;
+
+    public PerfOverlay(GameEngine gameEngine, Scene3DManager scene3DManager) {
+        this.gameEngine = gameEngine;
+        this.scene3DManager = scene3DManager;
+
+        overlay = new VBox(2);
+        overlay.setPadding(new Insets(8));
+        overlay.setMaxSize(VBox.USE_PREF_SIZE, VBox.USE_PREF_SIZE);
+        overlay.setMouseTransparent(true);
+        overlay.setStyle(
+            "-fx-background-color: rgba(0, 0, 0, 0.65);" +
+            "-fx-background-radius: 4;"
+        );
+        StackPane.setAlignment(overlay, Pos.TOP_LEFT);
+        StackPane.setMargin(overlay, new Insets(10));
+
+        frameLabel = createLabel();
+        renderLabel = createLabel();
+        tickLabel = createLabel();
+        memoryLabel = createLabel();
+        gcLabel = createLabel();
+        sceneLabel = createLabel();
+        cacheLabel = createLabel();
+        overlay.getChildren().addAll(frameLabel, renderLabel, tickLabel, memoryLabel, gcLabel, sceneLabel, cacheLabel);
+        overlay.setVisible(false);
+        overlay.setManaged(false);
+
+        refreshTimer = new Timeline(new KeyFrame(REFRESH_INTERVAL, e -> refresh()));
+        refreshTimer.setCycleCount(Timeline.INDEFINITE);
+    }
+
+    private Label createLabel() {
+        Label label = new Label();
+        label.setFont(Font.font("Consolas", 12));
+        label.setTextFill(Color.rgb(209, 213, 219));
+        return label;
+    }
+
+    public void toggle() {
+        if (overlay.isVisible()) {
+            hide();
+        } else {
+            show();
+        }
+    }
+
+    public void show() {
+        resetBaseline();
+        refresh();
+        overlay.setManaged(true);
+        overlay.setVisible(true);
+        refreshTimer.play();
+    }
+
+    public void hide() {
+        refreshTimer.stop();
+        overlay.setVisible(false);
+        overlay.setManaged(false);
+    }
+
+    private void resetBaseline() {
+        lastFrame = PerfMonitor.getFrameIntervalHistogram().snapshot();
+        lastRender = PerfMonitor.getRenderHistogram().snapshot();
+        lastTick = PerfMonitor.getTickHistogram().snapshot();
+        lastGcPause = PerfMonitor.getGcPauseHistogram().snapshot();
+        lastSampleNanos = System.nanoTime();
+        lastAllocatedBytes = PerfMonitor.getTotalAllocatedBytes();
+        lastGcCount = PerfMonitor.getGcCount();
+        lastGcTime = PerfMonitor.getGcTimeMillis();
+    }
+
+    private void refresh() {
+        long now = System.nanoTime();
+        double seconds = Math.max(1e-3, (now - lastSampleNanos) / 1_000_000_000.0);
+
+        LatencyHistogram.Snapshot frame = PerfMonitor.getFrameIntervalHistogram().snapshot();
+        LatencyHistogram.Snapshot render = PerfMonitor.getRenderHistogram().snapshot();
+        LatencyHistogram.Snapshot tick = PerfMonitor.getTickHistogram().snapshot();
+        LatencyHistogram.Snapshot gcPause = PerfMonitor.getGcPauseHistogram().snapshot();
+        LatencyHistogram.Snapshot frameDelta = frame.minus(lastFrame);
+        LatencyHistogram.Snapshot renderDelta = render.minus(lastRender);
+        LatencyHistogram.Snapshot tickDelta = tick.minus(lastTick);
+        LatencyHistogram.Snapshot gcDelta = gcPause.minus(lastGcPause);
+
+        frameLabel.setText(String.format("帧间隔  %5.1f FPS  p50 %s  p99 %s  max %s",
+            frameDelta.getTotalCount() / seconds,
+            millis(frameDelta.getValueAtPercentile(50)),
+            millis(frameDelta.getValueAtPercentile(99)),
+            millis(frameDelta.getMax())));
+        renderLabel.setText(String.format("渲染耗时  p50 %s  p99 %s  max %s",
+            millis(renderDelta.getValueAtPercentile(50)),
+            millis(renderDelta.getValueAtPercentile(99)),
+            millis(renderDelta.getMax())));
+        tickLabel.setText(String.format("逻辑耗时  p50 %s  p99 %s  max %s",
+            millis(tickDelta.getValueAtPercentile(50)),
+            millis(tickDelta.getValueAtPercentile(99)),
+            millis(tickDelta.getMax())));
+
+        long allocated = PerfMonitor.getTotalAllocatedBytes();
+        Runtime runtime = Runtime.getRuntime();
+        long usedMb = (runtime.totalMemory() - runtime.freeMemory()) >> 20;
+        if (allocated >= 0 && lastAllocatedBytes >= 0) {
+            // 线程退出会使累计值回落，此时按0显示
+            double rate = Math.max(0, allocated - lastAllocatedBytes) / seconds / (1 << 20);
+            memoryLabel.setText(String.format("分配速率  %.1f MB/s  堆 %d/%d MB",
+                rate, usedMb, runtime.maxMemory() >> 20));
+        } else {
+            memoryLabel.setText(String.format("分配速率  不支持  堆 %d/%d MB", usedMb, runtime.maxMemory() >> 20));
+        }
+
+        long gcCount = PerfMonitor.getGcCount();
+        long gcTime = PerfMonitor.getGcTimeMillis();
+        gcLabel.setText(String.format("GC  %d次 %dms  停顿max %s  累计%d次",
+            gcCount - lastGcCount, gcTime - lastGcTime, millis(gcDelta.getMax()), gcCount));
+
+        BeingPopulation population = gameEngine.getNPCManager().getPopulation();
+        sceneLabel.setText(String.format("场景节点 %d  NPC %d", scene3DManager.getNodeCount(),
+            gameEngine.getNPCManager().getNPCs().size())
+            + (population == null ? "" : String.format("  数字生命 %d 记忆 %d 模拟 %.2fms",
+                population.size(), population.getMemories().size(), population.getLastStepNanos() / 1e6)));
+
+        StringBuilder cacheText = new StringBuilder("缓存");
+        if (PerfMonitor.getCaches().isEmpty()) {
+            cacheText.append("  无");
+        }
+        for (CacheStats stats : PerfMonitor.getCaches()) {
+            double hitRate = stats.getHitRate();
+            cacheText.append("  ").append(stats.getName()).append(' ')
+                .append(hitRate < 0 ? "-" : String.format("%.1f%%", hitRate * 100));
+        }
+        cacheLabel.setText(cacheText.toString());
+
+        lastFrame = frame;
+        lastRender = render;
+        lastTick = tick;
+        lastGcPause = gcPause;
+        lastSampleNanos = now;
+        lastAllocatedBytes = allocated;
+        lastGcCount = gcCount;
+        lastGcTime = gcTime;
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.2fms", nanos / 1_000_000.0);
+    }
+
+    public VBox getNode() {
+        return overlay;
+    }
+
+    public boolean isVisible() {
+        return overlay.isVisible();
+    }
+}
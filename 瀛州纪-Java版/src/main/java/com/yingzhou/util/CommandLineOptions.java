@@ -0,0 +1,27 @@
+package com.yingzhou.util;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 命令行工具共用的参数解析
+ * 参数形如 key=value；不带等号的参数视为开关，值为 "true"。
+ */
+public final class CommandLineOptions {
+
+    private CommandLineOptions() {
+    }
+
+    public static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq < 0) {
+                options.put(arg, "true");
+            } else {
+                options.put(arg.substring(0, eq), arg.substring(eq + 1));
+            }
+        }
+        return options;
+    }
+}
@@ -9,12 +9,18 @@ import java.time.format.DateTimeFormatter;
 /**
  * 日志工具类
  * 将日志同时输出到控制台和文件
+ *
+ * 低于当前级别的日志两处都不写。默认输出全部级别，可用 -Dyingzhou.log.level=WARN 调整；
+ * 压测等命令行工具用 {@link #setLevel} 屏蔽游戏内逐次交互的日志，只保留自己的报告。
  */
 public class Logger {
     
+    public static final String LEVEL_PROPERTY = "yingzhou.log.level";
     private static final String LOG_FILE = "yingzhou-game.log";
+    private static final String[] LEVELS = {"DEBUG", "INFO", "WARN", "ERROR"};
     private static final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
     private static PrintWriter fileWriter;
+    private static volatile int threshold = initialLevel();
     
     static {
         try {
@@ -45,7 +51,35 @@ public class Logger {
         log("DEBUG", message, null);
     }
     
+    /**
+     * 设置最低输出级别：DEBUG、INFO、WARN 或 ERROR
+     */
+    public static void setLevel(String level) {
+        threshold = rank(level);
+    }
+
+    private static int initialLevel() {
+        try {
+            return rank(System.getProperty(LEVEL_PROPERTY, "DEBUG"));
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            return 0;
+        }
+    }
+
+    private static int rank(String level) {
+        for (int i = 0; i < LEVELS.length; i++) {
+            if (LEVELS[i].equalsIgnoreCase(level)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("未知的日志级别: " + level);
+    }
+
     private static void log(String level, String message, Throwable throwable) {
+        if (rank(level) < threshold) {
+            return;
+        }
         String timestamp = LocalDateTime.now().format(formatter);
         String logMessage = String.format("[%s] [%s] %s", timestamp, level, message);
         
@@ -0,0 +1,69 @@
+#!/bin/sh
+# 冷启动耗时对比（由 mvn -Pfast-start verify 调用，也可手动运行）
+#   优化前: 系统JDK + 类路径启动（与 run.sh 相同的运行方式）
+#   优化后: jlink 精简运行时 + AppCDS 归档（yingzhou-fast.sh）
+# 每次启动都是新的JVM，游戏以展台模式直接进入并在首帧后自动退出。
+#
+# 用法: measure-startup.sh [每组次数，默认5]
+# 需要图形环境（展台机或带 DISPLAY 的构建机）。
+
+set -e
+DIR=$(cd "$(dirname "$0")" && pwd)
+RUNS=${1:-5}
+PROBE_OPTS="-Dyingzhou.direct=true -Dyingzhou.startupProbe=true"
+SYSTEM_JAVA=${JAVA_HOME:+$JAVA_HOME/bin/}java
+
+CP="$DIR/app/@project.artifactId@.jar"
+for jar in $(ls "$DIR"/lib/*.jar | sort); do
+    CP="$CP:$jar"
+done
+
+# 运行一次，输出 "首帧毫秒 进程总毫秒"
+run_once() {
+    start=$(date +%s%N)
+    frame=$("$@" 2>/dev/null | sed -n 's/^STARTUP_FIRST_FRAME_MS=//p')
+    end=$(date +%s%N)
+    echo "${frame:-NA} $(( (end - start) / 1000000 ))"
+}
+
+baseline() {
+    "$SYSTEM_JAVA" --module-path "$DIR/javafx-mods" --add-modules javafx.controls \
+        $PROBE_OPTS -cp "$CP" com.yingzhou.Main
+}
+
+fast() {
+    YINGZHOU_JAVA_OPTS="$PROBE_OPTS" "$DIR/yingzhou-fast.sh"
+}
+
+# 取中位数
+median() {
+    sort -n | awk '{ v[NR] = $1 } END { if (NR == 0) print "NA"; else print v[int((NR + 1) / 2)] }'
+}
+
+measure() {
+    label=$1
+    shift
+    results=""
+    i=0
+    while [ $i -lt "$RUNS" ]; do
+        results="$results$(run_once "$@")
+"
+        i=$((i + 1))
+    done
+    frame=$(printf "%s" "$results" | awk '$1 != "NA" { print $1 }' | median)
+    total=$(printf "%s" "$results" | awk '{ print $2 }' | median)
+    printf "%-28s 首帧 %6s ms   进程 %6s ms   (%d次中位数)\n" "$label" "$frame" "$total" "$RUNS"
+}
+
+echo "=== 训练启动：生成 AppCDS 归档 ==="
+rm -f "$DIR/yingzhou.jsa"
+run_once fast > /dev/null
+if [ ! -f "$DIR/yingzhou.jsa" ]; then
+    echo "[错误] 未生成 yingzhou.jsa，训练启动失败"
+    exit 1
+fi
+ls -l "$DIR/yingzhou.jsa"
+
+echo "=== 冷启动对比 ==="
+measure "优化前 (系统JDK)" baseline
+measure "优化后 (jlink + AppCDS)" fast
@@ -0,0 +1,24 @@
+@echo off
+chcp 65001 >nul
+rem 瀛州纪 快速启动脚本（由 mvn -Pfast-start package 生成）
+rem 使用 jlink 精简运行时 + AppCDS 类数据共享归档启动Java版。
+rem 首次在本机启动时自动生成 yingzhou.jsa，删除后下次启动重新训练。
+rem 环境变量 YINGZHOU_JAVA_OPTS 可追加JVM参数（如 -Dyingzhou.direct=true 跳过版本选择）
+
+setlocal enabledelayedexpansion
+set "DIR=%~dp0"
+set "JAVA=%DIR%runtime\bin\java.exe"
+set "ARCHIVE=%DIR%yingzhou.jsa"
+
+rem 类路径顺序必须与生成归档时完全一致，dir /on 按文件名排序
+set "CP=%DIR%app\@project.artifactId@.jar"
+for /f "delims=" %%j in ('dir /b /on "%DIR%lib\*.jar"') do set "CP=!CP!;%DIR%lib\%%j"
+
+if exist "%ARCHIVE%" (
+    set "CDS_OPTS=-XX:SharedArchiveFile=%ARCHIVE% -Xshare:auto"
+) else (
+    echo 首次启动，退出时生成类数据共享归档: %ARCHIVE%
+    set "CDS_OPTS=-XX:ArchiveClassesAtExit=%ARCHIVE%"
+)
+
+"%JAVA%" %CDS_OPTS% %YINGZHOU_JAVA_OPTS% -cp "%CP%" com.yingzhou.Main %*
@@ -0,0 +1,28 @@
+#!/bin/sh
+# 瀛州纪 快速启动脚本（由 mvn -Pfast-start package 生成）
+# 使用 jlink 精简运行时 + AppCDS 类数据共享归档启动Java版。
+#
+# 归档与安装路径绑定：首次在本机启动时自动生成 yingzhou.jsa，之后每次启动直接映射。
+# 删除 yingzhou.jsa 即可在下次启动时重新训练。
+#
+# 环境变量:
+#   YINGZHOU_JAVA_OPTS  追加的JVM参数（如 -Dyingzhou.direct=true 跳过版本选择）
+
+DIR=$(cd "$(dirname "$0")" && pwd)
+JAVA="$DIR/runtime/bin/java"
+ARCHIVE="$DIR/yingzhou.jsa"
+
+# 类路径顺序必须与生成归档时完全一致，因此按文件名排序拼接
+CP="$DIR/app/@project.artifactId@.jar"
+for jar in $(ls "$DIR"/lib/*.jar | sort); do
+    CP="$CP:$jar"
+done
+
+if [ -f "$ARCHIVE" ]; then
+    CDS_OPTS="-XX:SharedArchiveFile=$ARCHIVE -Xshare:auto"
+else
+    echo "首次启动，退出时生成类数据共享归档: $ARCHIVE"
+    CDS_OPTS="-XX:ArchiveClassesAtExit=$ARCHIVE"
+fi
+
+exec "$JAVA" $CDS_OPTS $YINGZHOU_JAVA_OPTS -cp "$CP" com.yingzhou.Main "$@"
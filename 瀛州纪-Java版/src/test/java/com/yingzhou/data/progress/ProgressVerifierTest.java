@@ -0,0 +1,167 @@
+package com.yingzhou.data.progress;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProgressVerifierTest {
+
+    private static final int PROFILES = 400;
+    private static final int ITEMS = 40;
+    private static final int TAMPER = 40;
+
+    private final SplittableRandom random = new SplittableRandom(42);
+    private final List<List<ProgressItem>> logs = new ArrayList<>(PROFILES);
+    private final List<ProgressAnchor> anchors = new ArrayList<>(PROFILES);
+    private final List<ProgressTree> trees = new ArrayList<>(PROFILES);
+    private final boolean[] tampered = new boolean[PROFILES];
+
+    /**
+     * 每份存档逐项追加建树，在某个前缀处锚定，再篡改其中一部分锚定前缀内的内容
+     */
+    @BeforeEach
+    void createProfiles() {
+        for (int p = 0; p < PROFILES; p++) {
+            int count = 1 + random.nextInt(2 * ITEMS);
+            List<ProgressItem> log = new ArrayList<>(count);
+            ProgressTree tree = new ProgressTree();
+            for (int i = 0; i < count; i++) {
+                ProgressItem.Kind kind = ProgressItem.Kind.values()[random.nextInt(ProgressItem.Kind.values().length)];
+                ProgressItem item = new ProgressItem(kind, "p" + p + "-" + i);
+                log.add(item);
+                tree.append(item);
+            }
+            // 锚定之后玩家可能又有了新进度
+            int anchored = Math.max(1, count - random.nextInt(Math.min(count, 10)));
+            logs.add(log);
+            anchors.add(new ProgressAnchor(p, 0, anchored, tree.rootAt(anchored)));
+            trees.add(tree);
+        }
+        for (int n = 0; n < TAMPER; n++) {
+            int p;
+            do {
+                p = random.nextInt(PROFILES);
+            } while (tampered[p]);
+            tampered[p] = tamper(logs.get(p), anchors.get(p).getSize());
+        }
+    }
+
+    @Test
+    void treeMatchesRfc6962() {
+        int max = 70;
+        byte[][] leaves = new byte[max][];
+        ProgressTree appended = new ProgressTree();
+        for (int i = 0; i < max; i++) {
+            leaves[i] = ProgressTree.leafHash(new byte[]{(byte) i});
+            appended.append(leaves[i]);
+        }
+        for (int n = 1; n <= max; n++) {
+            byte[] expected = reference(leaves, 0, n);
+            assertArrayEquals(expected, appended.rootAt(n), n + " 个叶子逐项追加");
+            assertArrayEquals(expected, ProgressTree.build(Arrays.copyOf(leaves, n), true).root(), n + " 个叶子批量建树");
+            for (int i = 0; i < n; i++) {
+                ProgressProof proof = appended.proof(i, n);
+                assertTrue(proof.verify(leaves[i], expected));
+                assertFalse(proof.verify(leaves[(i + 1) % max], expected));
+            }
+        }
+    }
+
+    @Test
+    void parallelVerifyFindsExactlyTheTamperedProfiles() {
+        String[] sequential = new String[PROFILES];
+        for (int p = 0; p < PROFILES; p++) {
+            sequential[p] = ProgressVerifier.verify(logs.get(p), anchors.get(p));
+        }
+        String[] parallel;
+        try (ProgressVerifier verifier = new ProgressVerifier(4)) {
+            parallel = verifier.verifyAll(logs, anchors);
+        }
+        assertArrayEquals(sequential, parallel);
+        for (int p = 0; p < PROFILES; p++) {
+            if (tampered[p]) {
+                assertTrue(parallel[p] != null, "存档 " + p + " 被篡改但未查出");
+            } else {
+                assertNull(parallel[p], "存档 " + p);
+            }
+        }
+    }
+
+    /**
+     * 每份存档取锚定前缀内的一项，按锚定时的树出证明，与存档中现在的该项一起校验：
+     * 未被改动的项应通过，改动过的项应失败，通过的证明在别的根下不应通过
+     */
+    @Test
+    void proofsAcceptOnlyItemsInTheAnchoredPrefix() {
+        List<ProgressItem> claimed = new ArrayList<>(PROFILES);
+        List<ProgressProof> proofs = new ArrayList<>(PROFILES);
+        List<byte[]> roots = new ArrayList<>(PROFILES);
+        for (int p = 0; p < PROFILES; p++) {
+            ProgressAnchor anchor = anchors.get(p);
+            int index = random.nextInt(anchor.getSize());
+            List<ProgressItem> log = logs.get(p);
+            claimed.add(index < log.size() ? log.get(index) : ProgressItem.fragment("截短后缺失的项"));
+            proofs.add(trees.get(p).proof(index, anchor.getSize()));
+            roots.add(anchor.getRoot());
+        }
+        boolean[] valid;
+        try (ProgressVerifier verifier = new ProgressVerifier(4)) {
+            valid = verifier.verifyProofs(claimed, proofs, roots);
+        }
+        int accepted = 0;
+        for (int p = 0; p < PROFILES; p++) {
+            boolean genuine = Arrays.equals(claimed.get(p).leafHash(), trees.get(p).leaf(proofs.get(p).getIndex()));
+            assertEquals(genuine, valid[p], "存档 " + p);
+            if (valid[p]) {
+                accepted++;
+                byte[] otherRoot = anchors.get((p + 1) % PROFILES).getRoot();
+                assertFalse(proofs.get(p).verify(claimed.get(p), otherRoot), "存档 " + p + " 的证明在别的根下也通过了");
+            }
+        }
+        assertTrue(accepted >= PROFILES - TAMPER);
+    }
+
+    /**
+     * 篡改锚定前缀内的内容；返回是否真的改变了前缀（交换两项相同的内容不算）
+     */
+    private boolean tamper(List<ProgressItem> log, int anchored) {
+        int i = random.nextInt(anchored);
+        switch (random.nextInt(4)) {
+            case 0 -> log.set(i, new ProgressItem(ProgressItem.Kind.FRAGMENT, log.get(i).getValue() + "'"));
+            case 1 -> {
+                if (anchored < 2) {
+                    log.clear();
+                    return true;
+                }
+                int j = (i + 1 + random.nextInt(anchored - 1)) % anchored;
+                ProgressItem swapped = log.set(j, log.get(i));
+                if (swapped.equals(log.get(i))) {
+                    return false;
+                }
+                log.set(i, swapped);
+            }
+            case 2 -> log.remove(i);
+            default -> log.subList(i, log.size()).clear();
+        }
+        return true;
+    }
+
+    private static byte[] reference(byte[][] leaves, int from, int to) {
+        int n = to - from;
+        if (n == 1) {
+            return leaves[from];
+        }
+        int k = Integer.highestOneBit(n - 1);
+        return ProgressTree.nodeHash(reference(leaves, from, from + k), reference(leaves, from + k, to));
+    }
+}
@@ -0,0 +1,47 @@
+package com.yingzhou.game;
+
+import com.yingzhou.game.epoch.EpochManager;
+import com.yingzhou.game.event.GameEventType;
+import com.yingzhou.npc.BaseNPC;
+import com.yingzhou.util.Logger;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class GameEngineTest {
+
+    @BeforeAll
+    static void quiet() {
+        Logger.setLevel("WARN");
+    }
+
+    /**
+     * 主要碎片按收集顺序编号，发完之后的碎片不对应具体编号
+     */
+    @Test
+    void collectedFragmentsCarryMainFragmentIds() {
+        GameEngine engine = new GameEngine();
+        List<Integer> ids = new ArrayList<>();
+        engine.getEventBus().subscribe(event -> ids.add(event.getFragmentId()), GameEventType.FRAGMENT_COLLECTED);
+        for (int i = 0; i <= EpochManager.MAIN_FRAGMENTS; i++) {
+            engine.collectFragment();
+        }
+        assertEquals(List.of(0, 1, 2, 3, 4, 5, 6, 7, -1), ids);
+    }
+
+    @Test
+    void miniGamePublishesCompletion() {
+        GameEngine engine = new GameEngine();
+        List<String> completed = new ArrayList<>();
+        engine.getEventBus().subscribe(event -> completed.add(event.getNpcIndex() + ":" + event.getText()
+            + ":" + event.isSuccess()), GameEventType.MINIGAME_COMPLETED);
+        BaseNPC npc = engine.getNPCManager().getNPCs().get(1);
+
+        boolean success = engine.playMiniGame(npc);
+        assertEquals(List.of("1:" + npc.getMiniGameName() + ":" + success), completed);
+    }
+}
@@ -0,0 +1,75 @@
+package com.yingzhou.game.epoch;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class EpochConfigTest {
+
+    private static JsonObject defaults() throws Exception {
+        try (InputStream in = EpochConfig.class.getResourceAsStream("/data/epochs.json")) {
+            return JsonParser.parseReader(new InputStreamReader(in, StandardCharsets.UTF_8)).getAsJsonObject();
+        }
+    }
+
+    private static JsonObject requirement(JsonObject config, int epoch) {
+        return config.getAsJsonArray("epochs").get(epoch).getAsJsonObject().getAsJsonObject("requirement");
+    }
+
+    private static EpochConfig parse(JsonObject config) {
+        return EpochConfig.parse(new StringReader(config.toString()));
+    }
+
+    @Test
+    void defaultConfigBuildsEngine() throws Exception {
+        EpochConfig config = parse(defaults());
+        assertEquals(EpochManager.Epoch.values().length, config.epochs.size());
+        new EpochEngine(config);
+    }
+
+    @Test
+    void rejectsNullRequiredNpcs() throws Exception {
+        JsonObject config = defaults();
+        requirement(config, 0).add("requiredNpcs", JsonNull.INSTANCE);
+        assertThrows(IllegalArgumentException.class, () -> parse(config));
+    }
+
+    @Test
+    void rejectsNullNpcName() throws Exception {
+        JsonObject config = defaults();
+        JsonArray npcs = new JsonArray();
+        npcs.add(JsonNull.INSTANCE);
+        requirement(config, 1).add("requiredNpcs", npcs);
+        assertThrows(IllegalArgumentException.class, () -> parse(config));
+    }
+
+    @Test
+    void rejectsMoreNpcsThanMaskBits() throws Exception {
+        JsonObject config = defaults();
+        JsonArray npcs = new JsonArray();
+        for (int i = 0; i <= Long.SIZE; i++) {
+            npcs.add("npc" + i);
+        }
+        requirement(config, 0).add("requiredNpcs", npcs);
+        assertThrows(IllegalArgumentException.class, () -> parse(config));
+    }
+
+    @Test
+    void rejectsNullCurveKnot() throws Exception {
+        JsonObject config = defaults();
+        JsonArray curve = new JsonArray();
+        curve.add(JsonNull.INSTANCE);
+        config.getAsJsonArray("epochs").get(0).getAsJsonObject().add("entropyCurve", curve);
+        assertThrows(IllegalArgumentException.class, () -> parse(config));
+    }
+}
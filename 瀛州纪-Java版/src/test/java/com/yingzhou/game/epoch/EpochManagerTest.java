@@ -0,0 +1,41 @@
+package com.yingzhou.game.epoch;
+
+import com.yingzhou.game.event.GameEventBus;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class EpochManagerTest {
+
+    @Test
+    void restoredFragmentCountContinues() {
+        EpochManager manager = new EpochManager(new GameEventBus());
+        manager.restore(EpochManager.Epoch.FLOURISH, 7);
+        assertEquals(EpochManager.Epoch.FLOURISH, manager.getCurrentEpoch());
+        assertEquals(7, manager.getFragmentsCollected());
+
+        manager.collectFragment(7);
+        assertEquals(8, manager.getFragmentsCollected());
+    }
+
+    @Test
+    void restoreNotifiesListeners() {
+        EpochManager manager = new EpochManager(new GameEventBus());
+        EpochManager.Epoch[] epoch = new EpochManager.Epoch[1];
+        int[] fragments = {-1};
+        manager.addListener(new EpochManager.EpochListener() {
+            @Override
+            public void onEpochChanged(EpochManager.Epoch changed) {
+                epoch[0] = changed;
+            }
+
+            @Override
+            public void onFragmentsChanged(int fragmentsCollected) {
+                fragments[0] = fragmentsCollected;
+            }
+        });
+        manager.restore(EpochManager.Epoch.EMERGENCE, 3);
+        assertEquals(EpochManager.Epoch.EMERGENCE, epoch[0]);
+        assertEquals(3, fragments[0]);
+    }
+}
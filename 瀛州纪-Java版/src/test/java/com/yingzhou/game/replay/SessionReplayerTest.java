@@ -0,0 +1,42 @@
+package com.yingzhou.game.replay;
+
+import com.yingzhou.game.GameEngine;
+import com.yingzhou.game.epoch.EpochManager;
+import com.yingzhou.game.input.InputSnapshot;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SessionReplayerTest {
+
+    private static final long FRAME_NANOS = 16_666_667L;
+
+    @Test
+    void replayStartsFromRecordedProgress(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("session.yzr");
+        GameEngine engine = new GameEngine();
+        engine.getEpochManager().restore(EpochManager.Epoch.EMERGENCE, 5);
+        SessionRecorder recorder = new SessionRecorder(engine, file, 10);
+        try {
+            InputSnapshot input = new InputSnapshot();
+            for (int tick = 0; tick < 120; tick++) {
+                engine.tick(FRAME_NANOS, input);
+                if (tick == 60) {
+                    engine.collectFragment();
+                }
+            }
+        } finally {
+            recorder.close();
+        }
+        assertEquals(6, engine.getEpochManager().getFragmentsCollected());
+
+        SessionReplayer.Result result = new SessionReplayer(file).replay(new GameEngine());
+        assertTrue(result.complete);
+        assertTrue(result.isConsistent(), "第 " + result.firstMismatchTick + " 帧状态不一致");
+        assertEquals(120, result.ticks);
+    }
+}
@@ -0,0 +1,152 @@
+package com.yingzhou.ledger;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AbiCodecTest {
+
+    private static final AbiRegistry ABIS = AbiRegistry.getDefault();
+    private static final String ALICE = "0x0000000000000000000000000000000000000001";
+    private static final String BOB = "0x0000000000000000000000000000000000000002";
+    private static final byte[] NPC_ID = filled(0x11);
+
+    /**
+     * getNPC 返回的 AINPC_Extended.NPC（含两个字符串的动态结构体）按规范逐字写出：
+     * 外层一个指向结构体的偏移量，结构体头部 9 个字，name / description 的偏移量相对结构体起点
+     */
+    private static final String NPC_RESULT = "0x"
+        + word("20")
+        + "1111111111111111111111111111111111111111111111111111111111111111"
+        + word("02")
+        + word("0120")
+        + word("0160")
+        + word("6553f100")
+        + word("2a")
+        + word("03")
+        + word("01")
+        + word("01")
+        + word("06") + "e58fb2e5ae98" + "00".repeat(26)
+        + word("1e") + "e8aeb0e5bd95e7809be6b4b2e79a84e6af8fe4b880e7ac94e4baa4e69893" + "0000";
+
+    @Test
+    void keccakMatchesReferenceAroundTheRateBoundary() {
+        assertEquals("0xc5d2460186f7233c927e7db2dcc703c0e500b653ca82273b7bfad8045d85a470",
+            Hex.encode(Keccak256.hash(new byte[0])));
+        assertEquals("0x4e03657aea45a94fc7d47ba826c8d667c0d1e6e33a64a036ec44f58fa12d6c45",
+            Hex.encode(Keccak256.hash("abc")));
+        // 136 字节是一个分块：少一个字节、恰好一块、多一个字节分别走不同的填充路径
+        assertEquals("0xcbdfd9dee5faad3818d6b06f95a219fd290b0e1706f6a82e5a595b9ce9faca62",
+            Hex.encode(Keccak256.hash(sequence(135))));
+        assertEquals("0x7ce759f1ab7f9ce437719970c26b0a66ff11fe3e38e17df89cf5d29c7d7f807e",
+            Hex.encode(Keccak256.hash(sequence(136))));
+        assertEquals("0xac73d4fae68b8453f764007c1a20ce95994187861f0c3227a3a8e99a73a3b1db",
+            Hex.encode(Keccak256.hash(sequence(137))));
+        // 带偏移的重载只哈希给定的一段
+        byte[] padded = new byte[140];
+        System.arraycopy(sequence(136), 0, padded, 2, 136);
+        assertArrayEquals(Keccak256.hash(sequence(136)), Keccak256.hash(padded, 2, 136));
+    }
+
+    @Test
+    void safeBatchTransferFromEncodesDynamicArraysAfterTheHead() {
+        AbiFunction function = ABIS.contract("Resource1155").function("safeBatchTransferFrom");
+        assertEquals(0x2eb2c2d6, function.getSelectorInt());
+
+        String expected = "0x2eb2c2d6"
+            + word("01") + word("02")
+            // ids、values、data 的偏移量：5 个字的头部之后依次排列
+            + word("a0") + word("0100") + word("0160")
+            + word("02") + word("01") + word("02")
+            + word("02") + word("0a") + word("14")
+            + word("00");
+        assertEquals(expected, AbiEncoder.encodeCallHex(function, ALICE, BOB, new long[]{1, 2}, new long[]{10, 20},
+            new byte[0]));
+        // 整体编码的 AbiCodec 只接受 List / Object[] 形式的数组
+        assertEquals(expected, Hex.encode(function.encodeCall(ALICE, BOB, List.of(1, 2), List.of(10, 20),
+            new byte[0])));
+    }
+
+    @Test
+    void dynamicStructFromGetNpcDecodes() {
+        AbiFunction function = ABIS.contract("AINPC_Extended").function("getNPC");
+        byte[] data = Hex.decode(NPC_RESULT);
+
+        Object[] npc = (Object[]) AbiCodec.decode(function.getOutputs(), data)[0];
+        assertArrayEquals(NPC_ID, (byte[]) npc[0]);
+        assertEquals(2, ((Number) npc[1]).intValue());
+        assertEquals("史官", npc[2]);
+        assertEquals("记录瀛洲的每一笔交易", npc[3]);
+        assertEquals(1_700_000_000L, ((Number) npc[4]).longValue());
+        assertEquals(42, ((Number) npc[5]).intValue());
+        assertEquals(3, ((Number) npc[6]).intValue());
+        assertEquals(1, ((Number) npc[7]).intValue());
+        assertEquals(Boolean.TRUE, npc[8]);
+
+        AbiView view = AbiView.of(ByteBuffer.wrap(data), function.getOutputs(), 0).getTuple(0);
+        assertArrayEquals(NPC_ID, view.getFixedBytes(view.indexOf("idHash")));
+        assertEquals("史官", view.getString(view.indexOf("name")));
+        assertEquals("记录瀛洲的每一笔交易".getBytes(StandardCharsets.UTF_8).length,
+            view.getByteLength(view.indexOf("description")));
+        assertEquals(42, view.getLong(view.indexOf("interactionCount")));
+        assertTrue(view.getBoolean(view.indexOf("isActive")));
+
+        assertEquals(NPC_RESULT, Hex.encode(AbiCodec.encode(function.getOutputs(), new Object[]{npc})));
+    }
+
+    @Test
+    void malformedOffsetOrLengthIsRejected() {
+        AbiType outputs = ABIS.contract("AINPC_Extended").function("getNPC").getOutputs();
+        byte[] data = Hex.decode(NPC_RESULT);
+
+        // name 的偏移量指到数据之外
+        byte[] badOffset = data.clone();
+        badOffset[32 + 3 * 32 - 2] = 0x10;
+        AbiView view = AbiView.of(ByteBuffer.wrap(badOffset), outputs, 0).getTuple(0);
+        assertThrows(IllegalArgumentException.class, () -> view.getString(2));
+
+        // name 的长度超出剩余数据
+        byte[] badLength = data.clone();
+        badLength[32 + 9 * 32 + 30] = 0x01;
+        AbiView longer = AbiView.of(ByteBuffer.wrap(badLength), outputs, 0).getTuple(0);
+        assertThrows(IllegalArgumentException.class, () -> longer.getString(2));
+        assertThrows(IllegalArgumentException.class, () -> longer.getBytes(2));
+
+        // 偏移量高位不为零
+        byte[] hugeOffset = data.clone();
+        hugeOffset[0] = 1;
+        assertThrows(IllegalArgumentException.class,
+            () -> AbiView.of(ByteBuffer.wrap(hugeOffset), outputs, 0).getTuple(0));
+
+        // 截短的数据
+        byte[] truncated = Arrays.copyOf(data, data.length - 64);
+        AbiView shorter = AbiView.of(ByteBuffer.wrap(truncated), outputs, 0).getTuple(0);
+        assertThrows(IllegalArgumentException.class, () -> shorter.getString(3));
+    }
+
+    private static String word(String hex) {
+        return "0".repeat(64 - hex.length()) + hex;
+    }
+
+    private static byte[] sequence(int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) i;
+        }
+        return bytes;
+    }
+
+    private static byte[] filled(int value) {
+        byte[] bytes = new byte[32];
+        Arrays.fill(bytes, (byte) value);
+        return bytes;
+    }
+}
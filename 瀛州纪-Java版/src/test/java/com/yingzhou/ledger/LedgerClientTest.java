@@ -0,0 +1,87 @@
+package com.yingzhou.ledger;
+
+import com.yingzhou.ledger.mock.MockChain;
+import com.yingzhou.ledger.mock.MockRpcServer;
+import com.yingzhou.util.Logger;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LedgerClientTest {
+
+    private static final String PLAYER = MockChain.DEPLOYER;
+    private static final int PANEL_READS = 3 + 18;
+
+    private static MockRpcServer mock;
+    private static LedgerClient client;
+
+    @BeforeAll
+    static void start() throws Exception {
+        Logger.setLevel("WARN");
+        mock = MockRpcServer.start(Map.of("mockTxs", "200"));
+        LedgerConfig config = mock.configure(LedgerConfig.load());
+        // 由测试决定何时发送
+        config.setLingerMillis(0);
+        client = new LedgerClient(config, AbiRegistry.getDefault());
+    }
+
+    @AfterAll
+    static void stop() {
+        client.close();
+        mock.close();
+    }
+
+    @Test
+    void readsChainState() throws Exception {
+        assertEquals(MockChain.CHAIN_ID, await(client.chainId()));
+        assertEquals(mock.getChain().getBlockNumber(), await(client.blockNumber()));
+    }
+
+    @Test
+    void frameOfReadsIsOneBatchWithSameResults() throws Exception {
+        long before = client.getRpc().getBatchesSent();
+        List<Object> sequential = new ArrayList<>();
+        for (int i = 0; i < PANEL_READS; i++) {
+            sequential.add(await(panelRead(i)));
+        }
+        assertEquals(PANEL_READS, client.getRpc().getBatchesSent() - before);
+
+        before = client.getRpc().getBatchesSent();
+        List<CompletableFuture<?>> calls = new ArrayList<>();
+        for (int i = 0; i < PANEL_READS; i++) {
+            calls.add(panelRead(i));
+        }
+        client.flush();
+        List<Object> batched = new ArrayList<>();
+        for (CompletableFuture<?> call : calls) {
+            batched.add(call.get(10, TimeUnit.SECONDS));
+        }
+        assertEquals(1, client.getRpc().getBatchesSent() - before);
+        assertEquals(sequential, batched);
+    }
+
+    /**
+     * 纪元面板和碎片收藏馆一帧的第 index 个读取：纪元、碎片数、能否推进、18 个碎片的持有情况
+     */
+    private static CompletableFuture<?> panelRead(int index) {
+        return switch (index) {
+            case 0 -> client.callValue("EpochManager", "getCurrentEpoch", PLAYER);
+            case 1 -> client.callValue("EpochManager", "getPlayerFragmentCount", PLAYER);
+            case 2 -> client.callValue("EpochManager", "canAdvanceEpoch", PLAYER);
+            default -> client.callValue("EpochManager", "hasFragment", PLAYER, index - 2);
+        };
+    }
+
+    private static <T> T await(CompletableFuture<T> future) throws Exception {
+        client.flush();
+        return future.get(10, TimeUnit.SECONDS);
+    }
+}
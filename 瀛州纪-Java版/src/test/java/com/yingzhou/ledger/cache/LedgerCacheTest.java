@@ -0,0 +1,197 @@
+package com.yingzhou.ledger.cache;
+
+import com.yingzhou.ledger.AbiRegistry;
+import com.yingzhou.ledger.LedgerClient;
+import com.yingzhou.ledger.LedgerConfig;
+import com.yingzhou.ledger.index.LedgerEventStore;
+import com.yingzhou.ledger.index.LedgerIndexer;
+import com.yingzhou.ledger.mock.MockChain;
+import com.yingzhou.ledger.mock.MockRpcServer;
+import com.yingzhou.perf.PerfMonitor;
+import com.yingzhou.util.Logger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LedgerCacheTest {
+
+    private static final String PLAYER = MockChain.DEPLOYER;
+    private static final int FRAGMENT_COUNT = 18;
+
+    private MockRpcServer mock;
+    private LedgerClient client;
+    private LedgerCache cache;
+    private List<byte[]> npcs;
+
+    @BeforeAll
+    static void quiet() {
+        Logger.setLevel("WARN");
+    }
+
+    @BeforeEach
+    void start() throws Exception {
+        mock = MockRpcServer.start(Map.of("mockTxs", "300"));
+        LedgerConfig config = mock.configure(LedgerConfig.load());
+        config.setLingerMillis(0);
+        client = new LedgerClient(config, AbiRegistry.getDefault());
+        cache = new LedgerCache(client);
+        CompletableFuture<List<byte[]>> all = client.callValue("AINPC_Extended", "getAllNPCs");
+        client.flush();
+        npcs = all.get(10, TimeUnit.SECONDS);
+    }
+
+    @AfterEach
+    void stop() {
+        cache.close();
+        client.close();
+        mock.close();
+    }
+
+    @Test
+    void repeatedFrameIsServedFromCache() throws Exception {
+        cache.setHeadPollMillis(60_000);
+        // 第一帧时链头未知，按区块失效的条目在得知链头后重新加载一次
+        join(frame(true));
+        awaitHead();
+        List<Object> first = join(frame(true));
+        long loads = cache.getLoads();
+        long batches = client.getRpc().getBatchesSent();
+
+        List<Object> second = join(frame(true));
+        assertEquals(loads, cache.getLoads());
+        assertEquals(batches, client.getRpc().getBatchesSent());
+        for (int i = 0; i < first.size(); i++) {
+            assertSame(first.get(i), second.get(i));
+        }
+    }
+
+    @Test
+    void concurrentMissesShareOneCall() throws Exception {
+        CompletableFuture<Object[]> a = cache.call("EpochManager", "getCurrentEpoch", PLAYER);
+        CompletableFuture<Object[]> b = cache.call("EpochManager", "getCurrentEpoch", PLAYER);
+        join(List.of(a, b));
+        assertEquals(1, cache.getLoads());
+        assertEquals(1, cache.getCollapsed());
+        assertSame(a.get(), b.get());
+    }
+
+    @Test
+    void entriesFollowChainChanges(@TempDir Path dir) throws Exception {
+        try (LedgerIndexer indexer = new LedgerIndexer(client, LedgerEventStore.open(dir))) {
+            cache.attach(indexer);
+            indexer.sync();
+            cache.setHeadPollMillis(0);
+            join(frame(true));
+            long loads = cache.getLoads();
+
+            mock.getChain().populate(7, 300);
+            indexer.sync();
+            // 第一帧顺带查询到新链头，之后的读取按新区块重新加载
+            join(frame(true));
+            List<Object> cached = join(frame(true));
+            List<Object> direct = join(frame(false));
+            assertTrue(cache.getLoads() > loads);
+            assertEquals(direct.size(), cached.size());
+            for (int i = 0; i < direct.size(); i++) {
+                assertTrue(same(cached.get(i), direct.get(i)), "第 " + i + " 项读取");
+            }
+        }
+    }
+
+    @Test
+    void closeDetachesAndUnregistersStats(@TempDir Path dir) throws Exception {
+        assertTrue(PerfMonitor.getCaches().contains(cache.getStats()));
+        try (LedgerIndexer indexer = new LedgerIndexer(client, LedgerEventStore.open(dir))) {
+            cache.attach(indexer);
+            indexer.sync();
+            join(frame(true));
+
+            cache.close();
+            assertFalse(PerfMonitor.getCaches().contains(cache.getStats()));
+            assertEquals(0, cache.size());
+            long invalidated = cache.getInvalidated();
+            mock.getChain().populate(7, 100);
+            indexer.sync();
+            assertEquals(invalidated, cache.getInvalidated());
+        }
+    }
+
+    /**
+     * 一帧界面刷新：纪元面板和碎片收藏馆各读一次纪元，再加碎片和 NPC 列表
+     */
+    private List<CompletableFuture<?>> frame(boolean cached) {
+        List<CompletableFuture<?>> reads = new ArrayList<>();
+        reads.add(read(cached, "EpochManager", "getCurrentEpoch", PLAYER));
+        reads.add(read(cached, "EpochManager", "getPlayerFragmentCount", PLAYER));
+        reads.add(read(cached, "EpochManager", "canAdvanceEpoch", PLAYER));
+        reads.add(read(cached, "EpochManager", "getCurrentEpoch", PLAYER));
+        for (int id = 0; id < FRAGMENT_COUNT; id++) {
+            reads.add(read(cached, "EpochManager", "hasFragment", PLAYER, id));
+            reads.add(read(cached, "MemoryFragment", "getFragment", id));
+        }
+        for (byte[] npc : npcs) {
+            reads.add(read(cached, "AINPC_Extended", "getNPC", npc));
+        }
+        return reads;
+    }
+
+    private CompletableFuture<Object[]> read(boolean cached, String contract, String function, Object... args) {
+        return cached ? cache.call(contract, function, args) : client.call(contract, function, args);
+    }
+
+    private List<Object> join(List<? extends CompletableFuture<?>> reads) throws Exception {
+        client.flush();
+        List<Object> values = new ArrayList<>(reads.size());
+        for (CompletableFuture<?> read : reads) {
+            values.add(read.get(10, TimeUnit.SECONDS));
+        }
+        return values;
+    }
+
+    /**
+     * 链头查询与读取在同一个批量请求里，但回调可能晚于读取完成
+     */
+    private void awaitHead() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (cache.getHead() < 0 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertTrue(cache.getHead() >= 0);
+    }
+
+    private static boolean same(Object a, Object b) {
+        if (a instanceof Object[] x && b instanceof Object[] y) {
+            if (x.length != y.length) {
+                return false;
+            }
+            for (int i = 0; i < x.length; i++) {
+                if (!same(x[i], y[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (a instanceof List<?> x && b instanceof List<?> y) {
+            return same(x.toArray(), y.toArray());
+        }
+        if (a instanceof byte[] x && b instanceof byte[] y) {
+            return Arrays.equals(x, y);
+        }
+        return a.equals(b);
+    }
+}
@@ -0,0 +1,130 @@
+package com.yingzhou.ledger.index;
+
+import com.yingzhou.ledger.AbiRegistry;
+import com.yingzhou.ledger.Hex;
+import com.yingzhou.ledger.LedgerClient;
+import com.yingzhou.ledger.LedgerConfig;
+import com.yingzhou.ledger.mock.MockChain;
+import com.yingzhou.ledger.mock.MockRpcServer;
+import com.yingzhou.util.Logger;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigInteger;
+import java.nio.file.Path;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LedgerIndexerTest {
+
+    private static MockRpcServer mock;
+    private static LedgerClient client;
+
+    @BeforeAll
+    static void start() throws Exception {
+        Logger.setLevel("WARN");
+        mock = MockRpcServer.start(Map.of("mockTxs", "1000"));
+        LedgerConfig config = mock.configure(LedgerConfig.load());
+        config.setLingerMillis(0);
+        client = new LedgerClient(config, AbiRegistry.getDefault());
+    }
+
+    @AfterAll
+    static void stop() {
+        client.close();
+        mock.close();
+    }
+
+    @Test
+    void indexedHistoryMatchesEthCall(@TempDir Path dir) throws Exception {
+        try (LedgerIndexer indexer = new LedgerIndexer(client, LedgerEventStore.open(dir))) {
+            // 小批量强制分成多个区块范围
+            indexer.setBatchBlocks(50);
+            assertTrue(indexer.sync() > 0);
+            assertTrue(indexer.getRangesFetched() > 1);
+            LedgerEventStore store = indexer.getStore();
+            assertEquals(mock.getChain().getBlockNumber(), store.getCheckpoint());
+
+            Set<String> players = new LinkedHashSet<>();
+            players.add(MockChain.DEPLOYER);
+            List<byte[]> npcs = await(client.callValue("AINPC_Extended", "getAllNPCs"));
+            int dialogues = 0;
+            for (byte[] npc : npcs) {
+                dialogues += checkDialogues(store, Hex.encode(npc), players);
+            }
+            assertTrue(dialogues > 0);
+            for (String player : players) {
+                checkGames(store, player);
+                checkEpochs(store, player);
+            }
+        }
+    }
+
+    @Test
+    void reopenedIndexResumesFromCheckpoint(@TempDir Path dir) throws Exception {
+        int size;
+        long checkpoint;
+        try (LedgerIndexer indexer = new LedgerIndexer(client, LedgerEventStore.open(dir))) {
+            indexer.sync();
+            size = indexer.getStore().size();
+            checkpoint = indexer.getStore().getCheckpoint();
+        }
+        try (LedgerIndexer indexer = new LedgerIndexer(client, LedgerEventStore.open(dir))) {
+            assertEquals(size, indexer.getStore().size());
+            assertEquals(checkpoint, indexer.getStore().getCheckpoint());
+            assertEquals(0, indexer.sync());
+        }
+    }
+
+    private int checkDialogues(LedgerEventStore store, String npcId, Set<String> players) throws Exception {
+        List<Object[]> chain = await(client.callValue("AINPC_Extended", "getDialogueHistory", Hex.decode(npcId)));
+        List<LedgerEvent> indexed = store.dialogueHistory(npcId);
+        assertEquals(chain.size(), indexed.size(), "NPC " + npcId + " 的对话数");
+        for (int i = 0; i < chain.size(); i++) {
+            Object[] dialogue = chain.get(i);
+            LedgerEvent event = indexed.get(i);
+            players.add((String) dialogue[1]);
+            assertEquals(dialogue[0], BigInteger.valueOf(event.getTimestamp()), "对话时间戳");
+            assertEquals(dialogue[1], event.getPlayer(), "提问者");
+            assertEquals(Hex.encode((byte[]) dialogue[3]), event.getHex("responseHash"), "回复哈希");
+            assertEquals(dialogue[5], event.getBigInteger("epoch"), "对话纪元");
+        }
+        return chain.size();
+    }
+
+    private void checkGames(LedgerEventStore store, String player) throws Exception {
+        List<Object[]> chain = await(client.callValue("MiniGameManager", "getPlayerGameHistory", player));
+        List<LedgerEvent> indexed = store.playerGameHistory(player);
+        assertEquals(chain.size(), indexed.size(), player + " 的小游戏数");
+        for (int i = 0; i < chain.size(); i++) {
+            Object[] game = chain.get(i);
+            LedgerEvent event = indexed.get(i);
+            assertEquals(game[0], event.getBigInteger("gameType"), "游戏类型");
+            assertEquals(game[1], event.getBigInteger("score"), "得分");
+            assertEquals(game[2], event.getBigInteger("completionPercent"), "完成度");
+            assertEquals(game[3], BigInteger.valueOf(event.getTimestamp()), "游戏时间戳");
+        }
+    }
+
+    private void checkEpochs(LedgerEventStore store, String player) throws Exception {
+        List<BigInteger> chain = await(client.callValue("EpochManager", "getPlayerEpochHistory", player));
+        long[] indexed = store.playerEpochHistory(player);
+        for (int epoch = 0; epoch < indexed.length; epoch++) {
+            assertEquals(chain.get(epoch), BigInteger.valueOf(indexed[epoch]), player + " 进入纪元 " + epoch + " 的时间");
+        }
+    }
+
+    private <T> T await(CompletableFuture<T> future) throws Exception {
+        client.flush();
+        return future.get(10, TimeUnit.SECONDS);
+    }
+}
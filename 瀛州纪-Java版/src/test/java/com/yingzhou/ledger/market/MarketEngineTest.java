@@ -0,0 +1,287 @@
+package com.yingzhou.ledger.market;
+
+import com.yingzhou.ledger.AbiRegistry;
+import com.yingzhou.ledger.LedgerClient;
+import com.yingzhou.ledger.LedgerConfig;
+import com.yingzhou.ledger.index.LedgerEventStore;
+import com.yingzhou.ledger.index.LedgerEventType;
+import com.yingzhou.ledger.index.LedgerIndexer;
+import com.yingzhou.ledger.mock.MockRpcServer;
+import com.yingzhou.util.Logger;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigInteger;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MarketEngineTest {
+
+    private static final String ALICE = "0x0000000000000000000000000000000000020001";
+    private static final String BOB = "0x0000000000000000000000000000000000020002";
+    private static final String CAROL = "0x0000000000000000000000000000000000020003";
+    private static final String TOKEN = "0x0000000000000000000000000000000000020100";
+
+    @BeforeAll
+    static void quiet() {
+        Logger.setLevel("WARN");
+    }
+
+    /**
+     * 拒绝原因逐字对照 Market.sol 的 require 字符串，预检给出同样的原因且不改状态
+     */
+    @Test
+    void rejectionsMatchMarketSolRequireStrings() {
+        LocalCustody custody = new LocalCustody();
+        MarketEngine market = new MarketEngine(custody);
+        custody.mint(TOKEN, ALICE, 3, 10);
+        custody.deposit(BOB, 100);
+
+        assertEquals("price=0", reason(() -> market.list(ALICE, TOKEN, 3, 0, 0)));
+        assertEquals("amount=0", reason(() -> market.list(ALICE, TOKEN, 3, 0, 5)));
+        // 托管转账失败时按 ERC-1155 的错误回滚，不占挂单号
+        assertEquals(LocalCustody.INSUFFICIENT_BALANCE, reason(() -> market.list(ALICE, TOKEN, 3, 11, 5)));
+        assertEquals(0, market.getListingCounter());
+
+        long id = market.list(ALICE, TOKEN, 3, 10, 5);
+        assertEquals(1, id);
+        assertEquals(0, custody.balanceOf(TOKEN, ALICE, 3));
+        assertEquals(10, custody.balanceOf(TOKEN, MarketEngine.OFFLINE_ADDRESS, 3));
+
+        assertEquals("inactive", reason(() -> market.buy(BOB, 2, 1, 5)));
+        assertEquals("invalid amount", reason(() -> market.buy(BOB, id, 0, 0)));
+        assertEquals("invalid amount", reason(() -> market.buy(BOB, id, 11, 55)));
+        assertEquals("bad value", reason(() -> market.buy(BOB, id, 2, 9)));
+        assertEquals("not seller", reason(() -> market.cancel(BOB, id)));
+
+        assertEquals("bad value", market.checkBuy(id, 2, 9));
+        assertEquals("invalid amount", market.checkBuy(id, 11, 55));
+        assertEquals("not seller", market.checkCancel(BOB, id));
+        assertNull(market.checkBuy(id, 2, 10));
+        assertEquals(10, market.quote(id, 2));
+        assertEquals(10, market.getListing(id).getAmount());
+        assertEquals(100, custody.etherOf(BOB));
+
+        assertEquals(10, market.buy(BOB, id, 2, 10));
+        assertEquals(2, custody.balanceOf(TOKEN, BOB, 3));
+        assertEquals(10, custody.etherOf(ALICE));
+
+        market.cancel(ALICE, id);
+        assertEquals(8, custody.balanceOf(TOKEN, ALICE, 3));
+        assertEquals("inactive", reason(() -> market.buy(BOB, id, 1, 5)));
+        assertEquals("inactive", reason(() -> market.cancel(ALICE, id)));
+        assertEquals("inactive", market.checkCancel(ALICE, id));
+    }
+
+    /**
+     * 大量撤单使卖单簿越过压缩阈值，最优价始终与逐个比较有效挂单的结果一致（同价取挂单号小的）
+     */
+    @Test
+    void bestPriceSurvivesCompaction() {
+        MarketEngine market = new MarketEngine(MarketCustody.UNCHECKED);
+        SplittableRandom random = new SplittableRandom(11);
+        List<Long> open = new ArrayList<>();
+        for (int i = 0; i < 400; i++) {
+            open.add(market.list(ALICE, TOKEN, 7, 1, 1 + random.nextInt(50)));
+        }
+        for (int round = 0; round < 4; round++) {
+            // 每轮撤掉大半挂单，其中包括当前的最优挂单，再补挂一些
+            int cancels = open.size() * 3 / 4;
+            for (int i = 0; i < cancels; i++) {
+                long id = i % 5 == 0 ? market.bestListing(TOKEN, 7) : open.get(random.nextInt(open.size()));
+                market.cancel(ALICE, id);
+                open.remove(id);
+                assertBest(market, open);
+            }
+            for (int i = 0; i < 120; i++) {
+                open.add(market.list(ALICE, TOKEN, 7, 1, 1 + random.nextInt(50)));
+            }
+            assertBest(market, open);
+        }
+        while (!open.isEmpty()) {
+            market.cancel(ALICE, open.remove(open.size() - 1));
+        }
+        assertEquals(0, market.bestListing(TOKEN, 7));
+        assertEquals(-1, market.bestPrice(TOKEN, 7));
+        assertEquals(0, market.depth(TOKEN, 7));
+    }
+
+    @Test
+    void sweepTakesCheapestFirstAndStopsAtMaxPriceOrFunds() {
+        LocalCustody custody = new LocalCustody();
+        MarketEngine market = new MarketEngine(custody);
+        custody.mint(TOKEN, ALICE, 1, 8);
+        for (long price : new long[]{3, 1, 2, 5}) {
+            market.list(ALICE, TOKEN, 1, 2, price);
+        }
+        custody.deposit(BOB, 100);
+        custody.deposit(CAROL, 4);
+
+        // 2 个 1、2 个 2、1 个 3，到 5 之前就买够了
+        assertEquals(5, market.sweep(BOB, TOKEN, 1, 5, 3));
+        assertEquals(91, custody.etherOf(BOB));
+        assertEquals(5, custody.balanceOf(TOKEN, BOB, 1));
+        assertEquals(3, market.bestPrice(TOKEN, 1));
+
+        // 单价上限以内没有可买的
+        assertEquals(0, market.sweep(BOB, TOKEN, 1, 3, 2));
+
+        // 买下剩余的 1 个 3 后余额不够买 5，停在已成交的部分
+        assertEquals(1, market.sweep(CAROL, TOKEN, 1, 10, 10));
+        assertEquals(1, custody.etherOf(CAROL));
+        assertEquals(1, custody.balanceOf(TOKEN, CAROL, 1));
+        assertEquals(5, market.bestPrice(TOKEN, 1));
+        assertEquals(1, market.depth(TOKEN, 1));
+    }
+
+    @Test
+    void settleRecordsEachRejectionAndKeepsTheRest() {
+        LocalCustody custody = new LocalCustody();
+        MarketEngine market = new MarketEngine(custody);
+        custody.mint(TOKEN, ALICE, 2, 5);
+        custody.deposit(BOB, 50);
+
+        MarketBatch batch = new MarketBatch(2)
+            .list(ALICE, TOKEN, 2, 5, 4)
+            .list(ALICE, TOKEN, 2, 1, 0)
+            .buy(BOB, 1, 2, 8)
+            .buy(BOB, 1, 1, 5)
+            .buy(BOB, 9, 1, 4)
+            .cancel(BOB, 1)
+            .cancel(ALICE, 1)
+            .buy(BOB, 1, 1, 4);
+        assertEquals(3, market.settle(batch));
+        assertEquals(5, batch.getFailedCount());
+
+        String[] reasons = {null, "price=0", null, "bad value", "inactive", "not seller", null, "inactive"};
+        long[] results = {1, -1, 8, -1, -1, -1, 0, -1};
+        for (int i = 0; i < batch.size(); i++) {
+            assertEquals(reasons[i], batch.getReason(i), "第 " + i + " 项");
+            assertEquals(results[i], batch.getResult(i), "第 " + i + " 项");
+        }
+        assertEquals(2, custody.balanceOf(TOKEN, BOB, 2));
+        assertEquals(3, custody.balanceOf(TOKEN, ALICE, 2));
+        assertEquals(42, custody.etherOf(BOB));
+        assertEquals(8, custody.etherOf(ALICE));
+
+        // 清空后复用
+        batch.clear();
+        assertEquals(0, market.settle(batch.cancel(ALICE, 1)));
+        assertEquals("inactive", batch.getReason(0));
+    }
+
+    /**
+     * 付款之后发货失败，整笔回滚：货款退回、挂单不变
+     */
+    @Test
+    void failedDeliveryRefundsThePayment() {
+        LocalCustody local = new LocalCustody();
+        boolean[] failDelivery = {false};
+        MarketEngine market = new MarketEngine(new MarketCustody() {
+            @Override
+            public void transfer(String token, String from, String to, long tokenId, long amount) {
+                if (failDelivery[0] && from.equals(MarketEngine.OFFLINE_ADDRESS)) {
+                    throw new MarketException("ERC1155InvalidReceiver");
+                }
+                local.transfer(token, from, to, tokenId, amount);
+            }
+
+            @Override
+            public void pay(String from, String to, long wei) {
+                local.pay(from, to, wei);
+            }
+        });
+        local.mint(TOKEN, ALICE, 4, 3);
+        local.deposit(BOB, 30);
+        long id = market.list(ALICE, TOKEN, 4, 3, 10);
+
+        failDelivery[0] = true;
+        assertEquals("ERC1155InvalidReceiver", reason(() -> market.buy(BOB, id, 2, 20)));
+        assertEquals(30, local.etherOf(BOB));
+        assertEquals(0, local.etherOf(ALICE));
+        assertEquals(3, market.getListing(id).getAmount());
+        assertTrue(market.getListing(id).isActive());
+        assertEquals(0, local.balanceOf(TOKEN, BOB, 4));
+
+        failDelivery[0] = false;
+        assertEquals(30, market.buy(BOB, id, 3, 30));
+        assertEquals(0, market.getLiveCount());
+    }
+
+    /**
+     * 镜像与链上 Market.listings 一致；同一批事件再送一遍（挂接重放与回调重叠时）不会重复生效
+     */
+    @Test
+    void mirrorMatchesChainAndIgnoresReplayedEvents(@TempDir Path dir) throws Exception {
+        MockRpcServer mock = MockRpcServer.start(Map.of("mockTxs", "1500"));
+        LedgerConfig config = mock.configure(LedgerConfig.load());
+        config.setLingerMillis(0);
+        LedgerClient client = new LedgerClient(config, AbiRegistry.getDefault());
+        try (LedgerIndexer indexer = new LedgerIndexer(client, LedgerEventStore.open(dir))) {
+            MarketEngine following = new MarketEngine(client.address("Market"), MarketCustody.UNCHECKED);
+            following.attach(indexer);
+            indexer.setBatchBlocks(50);
+            indexer.sync();
+            assertTrue(following.getListingCounter() > 0);
+            int live = following.getLiveCount();
+
+            following.onEvents(indexer.getStore().byType(
+                EnumSet.of(LedgerEventType.LISTED, LedgerEventType.BOUGHT, LedgerEventType.CANCELLED)));
+            assertEquals(live, following.getLiveCount());
+
+            MarketEngine replayed = new MarketEngine(client.address("Market"), MarketCustody.UNCHECKED);
+            replayed.attach(indexer);
+            assertEquals(live, replayed.getLiveCount());
+
+            BigInteger counter = await(client, client.callValue("Market", "listingCounter"));
+            assertEquals(counter.longValue(), following.getListingCounter());
+            for (long id = 1; id <= counter.longValue(); id++) {
+                Object[] chain = await(client, client.call("Market", "listings", id));
+                for (MarketEngine market : new MarketEngine[]{following, replayed}) {
+                    MarketListing listing = market.getListing(id);
+                    assertEquals(((BigInteger) chain[4]).longValue(), listing.getAmount(), "挂单 " + id + " 的数量");
+                    assertEquals(chain[6], listing.isActive(), "挂单 " + id + " 的状态");
+                }
+            }
+        } finally {
+            client.close();
+            mock.close();
+        }
+    }
+
+    private static void assertBest(MarketEngine market, List<Long> open) {
+        long best = 0;
+        long bestPrice = -1;
+        for (long id : open) {
+            long price = market.getListing(id).getPrice();
+            if (best == 0 || price < bestPrice || (price == bestPrice && id < best)) {
+                best = id;
+                bestPrice = price;
+            }
+        }
+        assertEquals(best, market.bestListing(TOKEN, 7));
+        assertEquals(bestPrice, market.bestPrice(TOKEN, 7));
+        assertEquals(open.size(), market.depth(TOKEN, 7));
+    }
+
+    private static String reason(Runnable operation) {
+        return assertThrows(MarketException.class, operation::run).getReason();
+    }
+
+    private static <T> T await(LedgerClient client, CompletableFuture<T> future) throws Exception {
+        client.flush();
+        return future.get(10, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,208 @@
+package com.yingzhou.ledger.mock;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import com.yingzhou.ledger.AbiFunction;
+import com.yingzhou.ledger.AbiRegistry;
+import com.yingzhou.ledger.Hex;
+import com.yingzhou.ledger.Keccak256;
+import com.yingzhou.ledger.LedgerClient;
+import com.yingzhou.ledger.LedgerConfig;
+import com.yingzhou.ledger.RpcException;
+import com.yingzhou.ledger.tx.TxPipeline;
+import com.yingzhou.ledger.tx.TxReceipt;
+import com.yingzhou.util.Logger;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MockChainTest {
+
+    private static final byte[] ERROR_STRING_SELECTOR = {0x08, (byte) 0xc3, 0x79, (byte) 0xa0};
+    private static final AbiRegistry ABIS = AbiRegistry.getDefault();
+    private static final int PLAYERS = 3;
+    private static final int TXS = 100;
+
+    @BeforeAll
+    static void quiet() {
+        Logger.setLevel("WARN");
+    }
+
+    @Test
+    void sameSeedGivesSameBlockHashes() {
+        MockChain first = new MockChain();
+        first.populate(7, 500);
+        MockChain second = new MockChain();
+        second.populate(7, 500);
+        MockChain other = new MockChain();
+        other.populate(8, 500);
+
+        assertEquals(first.getBlockNumber(), second.getBlockNumber());
+        assertEquals(first.getHeadHash(), second.getHeadHash());
+        assertNotEquals(first.getHeadHash(), other.getHeadHash());
+    }
+
+    @Test
+    void requireFailureReturnsReasonAsRevertData() {
+        MockChain chain = new MockChain();
+        AbiFunction abi = ABIS.contract("MiniGameManager").function("submitGameScore");
+        JsonObject tx = new JsonObject();
+        tx.addProperty("from", MockChain.DEPLOYER);
+        tx.addProperty("to", chain.address("MiniGameManager"));
+        tx.addProperty("data", Hex.encode(abi.encodeCall(0, 1, 101)));
+        JsonArray params = new JsonArray();
+        params.add(tx);
+
+        RpcException error = assertThrows(RpcException.class, () -> chain.handle("eth_estimateGas", params));
+        assertEquals(3, error.getCode());
+        assertTrue(error.getMessage().contains("Completion percent must be <= 100"), error.getMessage());
+        assertArrayEquals(ERROR_STRING_SELECTOR, Arrays.copyOf(error.getRevertData(), 4));
+    }
+
+    /**
+     * 多个账户各用一条交易管线经过注入了延迟、503、丢失响应和调用错误的节点提交，
+     * 再直接读模拟链（不经过故障注入）核对：成功交易的 nonce 不重复，
+     * 每个玩家的成绩数、对话数和纪元推进与成功的回执、链上事件三方一致（重发没有造成重复交易）
+     */
+    @Test
+    void pipelinesSurviveInjectedFaults() throws Exception {
+        LedgerConfig config = LedgerConfig.load();
+        config.setLingerMillis(0);
+        try (MockRpcServer server = MockRpcServer.start(Map.of("mockSeed", "1", "mockLatency", "1",
+                 "mockJitter", "2", "mockDrop", "0.02", "mockLost", "0.02", "mockError", "0.01"));
+             LedgerClient client = new LedgerClient(server.configure(config), ABIS)) {
+            MockChain chain = server.getChain();
+            List<byte[]> npcs = new ArrayList<>();
+            for (Object id : (List<?>) view(chain, "AINPC_Extended", "getAllNPCs")[0]) {
+                npcs.add((byte[]) id);
+            }
+            // 纪元 0 时只有前三位 NPC 可对话
+            npcs = npcs.subList(0, 3);
+
+            List<TxPipeline> pipelines = new ArrayList<>(PLAYERS);
+            List<List<CompletableFuture<TxReceipt>>> games = new ArrayList<>();
+            List<List<CompletableFuture<TxReceipt>>> dialogues = new ArrayList<>();
+            List<List<CompletableFuture<TxReceipt>>> advances = new ArrayList<>();
+            try {
+                for (int p = 0; p < PLAYERS; p++) {
+                    TxPipeline pipeline = new TxPipeline(client, MockChain.ACCOUNTS.get(p + 1));
+                    pipeline.setMaxAttempts(10);
+                    pipeline.start(20);
+                    pipelines.add(pipeline);
+                    games.add(new ArrayList<>());
+                    dialogues.add(new ArrayList<>());
+                    advances.add(new ArrayList<>());
+                }
+                SplittableRandom random = new SplittableRandom(1);
+                for (int i = 0; i < TXS; i++) {
+                    for (int p = 0; p < PLAYERS; p++) {
+                        TxPipeline pipeline = pipelines.get(p);
+                        if (i % 25 == 24) {
+                            advances.get(p).add(pipeline.submit("EpochManager", "advanceEpoch", pipeline.getFrom()));
+                        } else if (random.nextBoolean()) {
+                            byte[] question = Keccak256.hash(("问题 " + p + "/" + i).getBytes(StandardCharsets.UTF_8));
+                            dialogues.get(p).add(pipeline.submit("AINPC_Extended", "interact",
+                                npcs.get(random.nextInt(npcs.size())), question));
+                        } else {
+                            games.get(p).add(pipeline.submit("MiniGameManager", "submitGameScore", random.nextInt(6),
+                                random.nextInt(10_000), random.nextInt(101)));
+                        }
+                    }
+                }
+
+                for (int p = 0; p < PLAYERS; p++) {
+                    TxPipeline pipeline = pipelines.get(p);
+                    TreeSet<Long> nonces = new TreeSet<>();
+                    int gamesOk = count(games.get(p), nonces);
+                    int dialoguesOk = count(dialogues.get(p), nonces);
+                    int advancesOk = count(advances.get(p), nonces);
+                    assertEquals(gamesOk + dialoguesOk + advancesOk, nonces.size(), "nonce 重复");
+                    assertEquals(pipeline.getSubmittedCount(),
+                        pipeline.getConfirmedCount() + pipeline.getFailedCount());
+                    assertTrue(gamesOk > 0 && dialoguesOk > 0);
+                    checkPlayer(chain, pipeline.getFrom(), gamesOk, dialoguesOk, advancesOk);
+                }
+            } finally {
+                for (TxPipeline pipeline : pipelines) {
+                    pipeline.close();
+                }
+            }
+            assertEquals(0, chain.getPendingCount());
+            assertTrue(server.getDropped() + server.getLost() + server.getInjectedErrors() > 0);
+        }
+    }
+
+    private static int count(List<CompletableFuture<TxReceipt>> futures, TreeSet<Long> nonces) throws Exception {
+        int ok = 0;
+        for (CompletableFuture<TxReceipt> future : futures) {
+            try {
+                nonces.add(future.get(120, TimeUnit.SECONDS).getNonce());
+                ok++;
+            } catch (ExecutionException e) {
+                // 推进纪元条件不足时回滚，注入的故障超过重试次数时失败，都算作失败
+            }
+        }
+        return ok;
+    }
+
+    /**
+     * 合约状态、成功回执和事件日志三方一致
+     */
+    private static void checkPlayer(MockChain chain, String player, int games, int dialogues, int advances)
+            throws RpcException {
+        String playerTopic = Hex.encode(new byte[12]) + player.substring(2);
+        assertEquals(games, ((Number) view(chain, "MiniGameManager", "getPlayerGameCount", player)[0]).intValue());
+        assertEquals(games, logs(chain, "MiniGameManager", "GameCompleted", playerTopic, null));
+        assertEquals(dialogues,
+            ((Number) view(chain, "AINPC_Extended", "getPlayerInteractionCount", player)[0]).intValue());
+        assertEquals(dialogues, logs(chain, "AINPC_Extended", "DialogueRecorded", null, playerTopic));
+        assertEquals(advances, ((Number) view(chain, "EpochManager", "getCurrentEpoch", player)[0]).intValue());
+        assertEquals(advances, logs(chain, "EpochManager", "EpochAdvanced", playerTopic, null));
+    }
+
+    private static int logs(MockChain chain, String contract, String event, String topic1, String topic2)
+            throws RpcException {
+        JsonArray topics = new JsonArray();
+        topics.add(ABIS.contract(contract).event(event).getTopic());
+        topics.add(topic1 == null ? JsonNull.INSTANCE : new JsonPrimitive(topic1));
+        topics.add(topic2 == null ? JsonNull.INSTANCE : new JsonPrimitive(topic2));
+        JsonObject filter = new JsonObject();
+        filter.addProperty("fromBlock", "0x0");
+        filter.addProperty("address", chain.address(contract));
+        filter.add("topics", topics);
+        JsonArray params = new JsonArray();
+        params.add(filter);
+        return chain.handle("eth_getLogs", params).getAsJsonArray().size();
+    }
+
+    private static Object[] view(MockChain chain, String contract, String function, Object... args)
+            throws RpcException {
+        AbiFunction abi = ABIS.contract(contract).function(function);
+        JsonObject call = new JsonObject();
+        call.addProperty("to", chain.address(contract));
+        call.addProperty("data", Hex.encode(abi.encodeCall(args)));
+        JsonArray params = new JsonArray();
+        params.add(call);
+        JsonElement result = chain.handle("eth_call", params);
+        return abi.decodeResult(Hex.decode(result.getAsString()));
+    }
+}
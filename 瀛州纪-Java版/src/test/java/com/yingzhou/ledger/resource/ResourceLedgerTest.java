@@ -0,0 +1,92 @@
+package com.yingzhou.ledger.resource;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ResourceLedgerTest {
+
+    private static final String ALICE = "0x0000000000000000000000000000000000010001";
+    private static final String BOB = "0x0000000000000000000000000000000000010002";
+    private static final String CAROL = "0x0000000000000000000000000000000000010003";
+
+    @Test
+    void rejectedBatchLeavesNoPartialChange() {
+        ResourceLedger ledger = new ResourceLedger();
+        ledger.mintBatch(ALICE, new long[]{0, 1}, new long[]{10, 10});
+        long sequence = ledger.getSequence();
+
+        // 前两项够扣，最后一项余额不足，整批回滚
+        ResourceException error = assertThrows(ResourceException.class, () -> ledger.safeBatchTransferFrom(
+            ALICE, ALICE, BOB, new long[]{0, 0, 1}, new long[]{1, 2, 11}));
+        assertEquals(ResourceLedger.INSUFFICIENT_BALANCE, error.getReason());
+        assertEquals(10, ledger.balanceOf(ALICE, 0));
+        assertEquals(0, ledger.balanceOf(BOB, 0));
+        assertEquals(sequence, ledger.getSequence());
+    }
+
+    @Test
+    void operatorNeedsApproval() {
+        ResourceLedger ledger = new ResourceLedger();
+        ledger.mint(ALICE, 3, 5);
+
+        ResourceException error = assertThrows(ResourceException.class,
+            () -> ledger.safeTransferFrom(CAROL, ALICE, BOB, 3, 1));
+        assertEquals(ResourceLedger.MISSING_APPROVAL, error.getReason());
+
+        ledger.setApprovalForAll(ALICE, CAROL, true);
+        assertTrue(ledger.isApprovedForAll(ALICE, CAROL));
+        ledger.safeTransferFrom(CAROL, ALICE, BOB, 3, 2);
+        assertEquals(3, ledger.balanceOf(ALICE, 3));
+        assertEquals(2, ledger.balanceOf(BOB, 3));
+
+        ledger.setApprovalForAll(ALICE, CAROL, false);
+        assertFalse(ledger.isApprovedForAll(ALICE, CAROL));
+    }
+
+    @Test
+    void eventLogAndSnapshotReproduceBalances() throws Exception {
+        ResourceLedger ledger = new ResourceLedger();
+        ledger.mintBatch(ALICE, new long[]{0, 1, 2}, new long[]{100, 50, 7});
+        ledger.safeTransferFrom(ALICE, ALICE, BOB, 0, 30);
+        ledger.safeBatchTransferFrom(ALICE, ALICE, CAROL, new long[]{1, 2, 1}, new long[]{5, 7, 5});
+        ledger.setApprovalForAll(BOB, CAROL, true);
+        ledger.safeTransferFrom(CAROL, BOB, ALICE, 0, 10);
+        ResourceSnapshot snapshot = ledger.snapshot();
+
+        ResourceLedger mirror = new ResourceLedger();
+        for (ResourceEvent event : ledger.events(0, Integer.MAX_VALUE)) {
+            mirror.apply(event);
+        }
+        assertEquals(snapshot.balances(), mirror.snapshot().balances());
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        snapshot.write(bytes);
+        ResourceLedger restored = new ResourceLedger();
+        restored.restore(ResourceSnapshot.read(new ByteArrayInputStream(bytes.toByteArray())));
+        assertEquals(snapshot.balances(), restored.snapshot().balances());
+        assertEquals(Map.of(0L, 100L, 1L, 50L, 2L, 7L), restored.snapshot().totals());
+    }
+
+    @Test
+    void concurrentTransfersKeepSnapshotsAndReplayConsistent() throws Exception {
+        ResourceLoadGenerator load = new ResourceLoadGenerator(
+            Map.of("threads", "4", "seconds", "2", "accounts", "200", "tokens", "8", "snapshotMillis", "20"),
+            new PrintStream(OutputStream.nullOutputStream()));
+        load.run();
+
+        assertEquals(0, load.getInconsistencies());
+        assertTrue(load.getSucceeded() > 0);
+        assertTrue(load.getSnapshots() > 0);
+        assertEquals(load.getEventCount(), load.getReplayed());
+    }
+}
@@ -0,0 +1,314 @@
+package com.yingzhou.ledger.tx;
+
+import com.google.gson.JsonArray;
+import com.yingzhou.ledger.AbiRegistry;
+import com.yingzhou.ledger.AbiType;
+import com.yingzhou.ledger.Hex;
+import com.yingzhou.ledger.Keccak256;
+import com.yingzhou.ledger.LedgerClient;
+import com.yingzhou.ledger.LedgerConfig;
+import com.yingzhou.ledger.RpcException;
+import com.yingzhou.ledger.mock.MockChain;
+import com.yingzhou.ledger.mock.MockRpcServer;
+import com.yingzhou.util.Logger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TxPipelineTest {
+
+    private static final String FROM = MockChain.DEPLOYER;
+    private static final int TXS = 60;
+
+    private MockRpcServer mock;
+    private LedgerClient client;
+    private List<byte[]> npcs;
+
+    @BeforeAll
+    static void quiet() {
+        Logger.setLevel("WARN");
+    }
+
+    @BeforeEach
+    void start() throws Exception {
+        connect(Map.of("mockTxs", "100"));
+        npcs = bornNpcs();
+    }
+
+    @AfterEach
+    void stop() {
+        client.close();
+        mock.close();
+    }
+
+    @Test
+    void submittedTransactionsUseContiguousNonces() throws Exception {
+        long startNonce = nonce();
+        List<CompletableFuture<TxReceipt>> futures = new ArrayList<>(TXS);
+        List<TxReceipt> receipts = new ArrayList<>(TXS);
+        long retried;
+        try (TxPipeline pipeline = new TxPipeline(client, FROM)) {
+            pipeline.start(10);
+            for (int i = 0; i < TXS; i++) {
+                futures.add(submit(pipeline, i));
+            }
+            for (CompletableFuture<TxReceipt> future : futures) {
+                receipts.add(future.get(60, TimeUnit.SECONDS));
+            }
+            retried = pipeline.getRetriedCount();
+            assertEquals(TXS, pipeline.getConfirmedCount());
+            assertEquals(0, pipeline.getFailedCount());
+            // 同一函数只在第一次估算 gas
+            assertTrue(pipeline.getGasStats().getHits() > 0);
+        }
+
+        TreeSet<Long> nonces = new TreeSet<>();
+        for (TxReceipt receipt : receipts) {
+            assertTrue(nonces.add(receipt.getNonce()), "nonce " + receipt.getNonce() + " 重复");
+            assertTrue(receipt.getBlockNumber() > 0);
+        }
+        long used = nonce() - startNonce;
+        assertEquals(startNonce, nonces.first());
+        assertTrue(nonces.last() < startNonce + used);
+        // gas 耗尽后重发的交易也占用 nonce
+        assertTrue(used >= TXS && used <= TXS + retried, "账户 nonce 增加 " + used);
+    }
+
+    @Test
+    void revertedTransactionFailsWithoutBreakingTheQueue() throws Exception {
+        long startNonce = nonce();
+        List<CompletableFuture<TxReceipt>> futures = new ArrayList<>();
+        CompletableFuture<TxReceipt> reverting;
+        try (TxPipeline pipeline = new TxPipeline(client, FROM)) {
+            pipeline.start(10);
+            for (int i = 0; i < TXS / 2; i++) {
+                futures.add(submit(pipeline, i));
+            }
+            // 完成度超过 100 的成绩必然回滚
+            reverting = pipeline.submit("MiniGameManager", "submitGameScore", 0, 1, 101);
+            for (int i = TXS / 2; i < TXS; i++) {
+                futures.add(submit(pipeline, i));
+            }
+            ExecutionException error = assertThrows(ExecutionException.class,
+                () -> reverting.get(60, TimeUnit.SECONDS));
+            assertInstanceOf(RpcException.class, error.getCause());
+            TreeSet<Long> nonces = new TreeSet<>();
+            for (CompletableFuture<TxReceipt> future : futures) {
+                assertTrue(nonces.add(future.get(60, TimeUnit.SECONDS).getNonce()));
+            }
+            assertEquals(TXS, pipeline.getConfirmedCount());
+            assertEquals(1, pipeline.getFailedCount());
+            // 执行时回滚的那笔照样打包，最多多占一个 nonce
+            long used = nonce() - startNonce;
+            assertTrue(used >= TXS && used <= TXS + 1 + pipeline.getRetriedCount(), "账户 nonce 增加 " + used);
+            assertTrue(nonces.first() >= startNonce && nonces.last() < startNonce + used);
+        }
+    }
+
+    @Test
+    void closeFailsQueuedTransactions() throws Exception {
+        TxPipeline pipeline = new TxPipeline(client, FROM);
+        // 未启动的管线不会发送，关闭时排队的交易全部失败
+        CompletableFuture<TxReceipt> queued = submit(pipeline, 1);
+        pipeline.close();
+        ExecutionException error = assertThrows(ExecutionException.class, () -> queued.get(10, TimeUnit.SECONDS));
+        assertInstanceOf(RpcException.class, error.getCause());
+        assertFalse(queued.isCancelled());
+    }
+
+    /**
+     * 发送的响应丢失后原样重发，节点返回原来的哈希，交易不重复、不因 nonce 已占用而失败
+     */
+    @Test
+    void lostResponsesAreResentWithTheOriginalHash() throws Exception {
+        reconnect(Map.of("mockTxs", "100", "mockSeed", "3", "mockLost", "0.25"));
+        List<TxReceipt> receipts = runFaulty(TXS / 2);
+        assertTrue(mock.getLost() > 0);
+        assertTrue(receipts.stream().anyMatch(receipt -> receipt.getAttempts() > 1), "没有重发过的交易");
+    }
+
+    /**
+     * 前一个 nonce 的重发被拒（注入的错误，未执行）时后一笔的重发得到 nonce too high；
+     * 重新取 nonce 后节点没收到的在途交易按原顺序重新编号，不与新交易撞 nonce，也不留空档
+     */
+    @Test
+    void nonceTooHighOnResendWaitsForThePreviousNonce() throws Exception {
+        reconnect(Map.of("mockTxs", "100", "mockSeed", "5", "mockDrop", "0.3", "mockError", "0.2"));
+        runFaulty(TXS / 2);
+        assertTrue(mock.getDropped() > 0 && mock.getInjectedErrors() > 0);
+    }
+
+    /**
+     * 同一函数的缓存 gas 按便宜的分支估出，贵的分支执行时耗尽，重新估算后用新 nonce 再发一次
+     */
+    @Test
+    void outOfGasIsReestimatedAndResent() throws Exception {
+        long startNonce = nonce();
+        try (TxPipeline pipeline = new TxPipeline(client, FROM)) {
+            // 不刷新最高分、不领碎片的成绩最便宜；刷新最高分要多写 5 个存储槽
+            CompletableFuture<TxReceipt> cheap = pipeline.submit("MiniGameManager", "submitGameScore", 5, 0, 0);
+            CompletableFuture<TxReceipt> costly = pipeline.submit("MiniGameManager", "submitGameScore", 5,
+                1_000_000_000L, 0);
+            pipeline.start(10);
+            TxReceipt first = cheap.get(60, TimeUnit.SECONDS);
+            TxReceipt second = costly.get(60, TimeUnit.SECONDS);
+
+            assertEquals(1, first.getAttempts());
+            assertEquals(2, second.getAttempts());
+            assertTrue(second.getGasUsed() > first.getGasUsed() * 6 / 5);
+            assertEquals(1, pipeline.getRetriedCount());
+            assertEquals(2, pipeline.getConfirmedCount());
+            // 耗尽 gas 的那笔也上链占用了一个 nonce
+            assertEquals(startNonce + 2, second.getNonce());
+            assertEquals(startNonce + 3, nonce());
+        }
+    }
+
+    /**
+     * 长时间未打包的交易以同一 nonce 提价替换，出块后按替换后的哈希确认
+     */
+    @Test
+    void stuckTransactionIsReplacedWithTheSameNonce() throws Exception {
+        MockChain chain = mock.getChain();
+        long startNonce = nonce();
+        chain.setAutomine(false);
+        try (TxPipeline pipeline = new TxPipeline(client, FROM)) {
+            pipeline.setReplaceAfterMillis(50);
+            pipeline.start(10);
+            CompletableFuture<TxReceipt> future = submit(pipeline, 1);
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+            while (pipeline.getReplacedCount() < 2 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertTrue(pipeline.getReplacedCount() >= 2);
+            // 替换顶掉池中原来的交易，不另占位置
+            assertEquals(1, chain.getPendingCount());
+            assertFalse(future.isDone());
+
+            chain.mine();
+            TxReceipt receipt = future.get(30, TimeUnit.SECONDS);
+            assertEquals(startNonce, receipt.getNonce());
+            assertTrue(receipt.getAttempts() >= 3);
+            assertEquals(0, pipeline.getFailedCount());
+            assertEquals(0, chain.getPendingCount());
+            assertEquals(startNonce + 1, nonce());
+        } finally {
+            chain.setAutomine(true);
+        }
+    }
+
+    /**
+     * 先提交再启动，工作线程发出的请求序列（和注入的故障）只取决于种子
+     */
+    private List<TxReceipt> runFaulty(int count) throws Exception {
+        long startNonce = nonce();
+        List<CompletableFuture<TxReceipt>> futures = new ArrayList<>(count);
+        List<TxReceipt> receipts = new ArrayList<>(count);
+        try (TxPipeline pipeline = new TxPipeline(client, FROM)) {
+            pipeline.setMaxAttempts(20);
+            for (int i = 0; i < count; i++) {
+                futures.add(submit(pipeline, i));
+            }
+            pipeline.start(10);
+            for (CompletableFuture<TxReceipt> future : futures) {
+                receipts.add(future.get(60, TimeUnit.SECONDS));
+            }
+            assertEquals(count, pipeline.getConfirmedCount());
+            assertEquals(0, pipeline.getFailedCount());
+
+            TreeSet<Long> nonces = new TreeSet<>();
+            TreeSet<String> hashes = new TreeSet<>();
+            for (TxReceipt receipt : receipts) {
+                assertTrue(nonces.add(receipt.getNonce()), "nonce " + receipt.getNonce() + " 重复");
+                assertTrue(hashes.add(receipt.getHash()), "哈希 " + receipt.getHash() + " 重复");
+            }
+            long used = nonce() - startNonce;
+            assertTrue(nonces.first() >= startNonce && nonces.last() < startNonce + used);
+            assertTrue(used >= count && used <= count + pipeline.getRetriedCount(), "账户 nonce 增加 " + used);
+        }
+        return receipts;
+    }
+
+    private void connect(Map<String, String> options) throws Exception {
+        mock = MockRpcServer.start(options);
+        LedgerConfig config = mock.configure(LedgerConfig.load());
+        config.setLingerMillis(0);
+        client = new LedgerClient(config, AbiRegistry.getDefault());
+    }
+
+    /**
+     * 换成注入故障的模拟链；同一种子生成的链相同，NPC 在不注入故障的链上查好
+     */
+    private void reconnect(Map<String, String> options) throws Exception {
+        stop();
+        Map<String, String> clean = new HashMap<>(options);
+        clean.keySet().removeAll(List.of("mockDrop", "mockLost", "mockError"));
+        connect(clean);
+        npcs = bornNpcs();
+        stop();
+        connect(options);
+    }
+
+    private CompletableFuture<TxReceipt> submit(TxPipeline pipeline, int i) {
+        if (i % 2 == 0 && !npcs.isEmpty()) {
+            return pipeline.submit("AINPC_Extended", "interact", npcs.get(i / 2 % npcs.size()), question(i));
+        }
+        return pipeline.submit("MiniGameManager", "submitGameScore", i % 6, 100 + i, 40 + i % 60);
+    }
+
+    /**
+     * 当前纪元已诞生且处于活跃状态的 NPC，对其他 NPC 的对话会回滚
+     */
+    private List<byte[]> bornNpcs() throws Exception {
+        int epoch = this.<Number>await(client.callValue("EpochManager", "getCurrentEpoch", FROM)).intValue();
+        AbiType npcType = client.getAbis().contract("AINPC_Extended").function("getNPC").getOutputs()
+            .getComponents().get(0);
+        int birthEpoch = npcType.indexOf("birthEpoch");
+        int active = npcType.indexOf("isActive");
+        List<byte[]> born = new ArrayList<>();
+        List<byte[]> all = await(client.callValue("AINPC_Extended", "getAllNPCs"));
+        for (byte[] id : all) {
+            Object[] npc = await(client.callValue("AINPC_Extended", "getNPC", id));
+            if (Boolean.TRUE.equals(npc[active]) && ((Number) npc[birthEpoch]).intValue() <= epoch) {
+                born.add(id);
+            }
+        }
+        return born;
+    }
+
+    /**
+     * 已上链的 nonce，直接问进程内的模拟链，不经过注入的故障
+     */
+    private long nonce() throws Exception {
+        JsonArray params = new JsonArray(2);
+        params.add(FROM);
+        params.add("latest");
+        return Hex.decodeQuantity(mock.getChain().handle("eth_getTransactionCount", params).getAsString());
+    }
+
+    private static byte[] question(int i) {
+        return Keccak256.hash(("问题 " + i).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private <T> T await(CompletableFuture<T> future) throws Exception {
+        client.flush();
+        return future.get(10, TimeUnit.SECONDS);
+    }
+}
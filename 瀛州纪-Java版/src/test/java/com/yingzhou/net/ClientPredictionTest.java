@@ -0,0 +1,47 @@
+package com.yingzhou.net;
+
+import com.yingzhou.util.Logger;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 按真实时钟在进程内跑 7 秒并判定响应时间上限，属于负载测试
+ */
+@Tag("load")
+class ClientPredictionTest {
+
+    private static final int SERVER_HZ = 30;
+    private static final int FPS = 60;
+
+    @BeforeAll
+    static void quiet() {
+        // 引擎和NPC的逐次交互日志
+        Logger.setLevel("WARN");
+    }
+
+    @Test
+    void predictionHidesLatencyAndInterpolationHidesSnapshotGaps() throws Exception {
+        PredictionLatencyMeter meter = new PredictionLatencyMeter(Map.of(
+            "seconds", "7", "latency", "80", "jitter", "10",
+            "hz", String.valueOf(SERVER_HZ), "fps", String.valueOf(FPS)),
+            new PrintStream(OutputStream.nullOutputStream()));
+        meter.run();
+
+        assertTrue(meter.isConnectedAtEnd());
+        assertTrue(meter.getResponseSamples() > 0);
+        // 预测下按键响应不超过两个服务器帧（外加一个画面帧的采样误差），与 80 ms 的单程延迟无关
+        double limit = 2000.0 / SERVER_HZ + 1000.0 / FPS;
+        assertTrue(meter.getPredictedResponseMaxMillis() <= limit,
+            "按键响应 " + meter.getPredictedResponseMaxMillis() + " ms");
+        assertTrue(meter.getMispredictionRate() < 0.05, "预测失败率 " + meter.getMispredictionRate());
+        assertTrue(meter.getRemoteInterpolatedStallRate() < 0.05,
+            "插值停顿帧 " + meter.getRemoteInterpolatedStallRate());
+    }
+}
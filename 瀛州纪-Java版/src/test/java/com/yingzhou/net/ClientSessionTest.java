@@ -0,0 +1,93 @@
+package com.yingzhou.net;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ClientSessionTest {
+
+    private static final int SNAPSHOT_BYTES = 60_000;
+
+    /**
+     * 快照只写出一部分时排入的控制消息，必须等快照写完才发出
+     */
+    @Test
+    void controlMessageWaitsForPartlyWrittenSnapshot() throws Exception {
+        try (ServerSocketChannel listener = ServerSocketChannel.open()) {
+            listener.bind(new InetSocketAddress("127.0.0.1", 0));
+            try (SocketChannel client = SocketChannel.open()) {
+                // 接收窗口和发送缓冲都压到最小，保证一次写不完整份快照
+                client.setOption(StandardSocketOptions.SO_RCVBUF, 1024);
+                client.connect(listener.getLocalAddress());
+                try (SocketChannel server = listener.accept()) {
+                    server.setOption(StandardSocketOptions.SO_SNDBUF, 1024);
+                    server.configureBlocking(false);
+                    client.configureBlocking(false);
+
+                    DirectBufferPool pool = new DirectBufferPool(Protocol.MAX_FRAME + 2, 4);
+                    ClientSession session = new ClientSession(1, server, null, pool);
+                    session.offerSnapshot(frame(pool.acquire(), Protocol.SNAPSHOT, SNAPSHOT_BYTES));
+                    assertFalse(session.flush(), "快照应只写出一部分");
+                    assertFalse(session.canEncodeSnapshot());
+
+                    session.queue(frame(ByteBuffer.allocate(16), Protocol.PONG, 8));
+                    List<Byte> types = drain(session, client, SNAPSHOT_BYTES + 8 + 2 * Protocol.HEADER_SIZE);
+                    assertEquals(List.of(Protocol.SNAPSHOT, Protocol.PONG), types);
+                    assertTrue(session.canEncodeSnapshot());
+                    assertFalse(session.hasPendingWrites());
+                }
+            }
+        }
+    }
+
+    private static ByteBuffer frame(ByteBuffer buffer, byte type, int payload) {
+        int start = Protocol.beginFrame(buffer, type);
+        for (int i = 0; i < payload; i++) {
+            buffer.put(type);
+        }
+        Protocol.endFrame(buffer, start);
+        return buffer.flip();
+    }
+
+    /**
+     * 交替写出和读取，直到收齐 total 字节，按帧解析并校验每帧内容都是同一类型字节
+     */
+    private static List<Byte> drain(ClientSession session, SocketChannel client, int total) throws Exception {
+        ByteBuffer received = ByteBuffer.allocate(total + 1024);
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        boolean flushed = false;
+        while (!flushed || received.position() < total) {
+            if (!flushed) {
+                flushed = session.flush();
+            }
+            if (client.read(received) == 0) {
+                Thread.sleep(1);
+            }
+            assertTrue(System.nanoTime() < deadline, "超时");
+        }
+        assertEquals(total, received.position());
+        received.flip();
+        List<Byte> types = new ArrayList<>();
+        int length;
+        while ((length = Protocol.completeFrameLength(received)) > 0) {
+            int end = received.position() + length;
+            received.getShort();
+            byte type = received.get();
+            while (received.position() < end) {
+                assertEquals(type, received.get(), "帧内容被其他消息打断");
+            }
+            types.add(type);
+        }
+        return types;
+    }
+}
@@ -0,0 +1,56 @@
+package com.yingzhou.net;
+
+import com.yingzhou.util.Logger;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WorldServerTest {
+
+    @BeforeAll
+    static void quiet() {
+        // 进程内服务器的逐次交互日志
+        Logger.setLevel("WARN");
+    }
+
+    @Test
+    void visitorsStayConnectedAndDecodeEverySnapshot() throws Exception {
+        WorldLoadGenerator load = run(10, 2);
+
+        assertEquals(10, load.getWelcomed());
+        assertEquals(0, load.getDisconnected());
+        assertEquals(0, load.getDecodeErrors());
+        assertTrue(load.getSnapshots() > 0);
+        assertTrue(load.getRoundTrips() > 0);
+    }
+
+    /**
+     * 服务器 30 帧/秒，每位访客 3 秒内至少应收到数十份快照；按真实时钟判定，属于负载测试
+     */
+    @Test
+    @Tag("load")
+    void serverKeepsSnapshotRateUnderLoad() throws Exception {
+        WorldLoadGenerator load = run(40, 3);
+
+        assertEquals(40, load.getWelcomed());
+        assertEquals(0, load.getDisconnected());
+        assertEquals(0, load.getDecodeErrors());
+        assertTrue(load.getSnapshots() > 40 * 30, "快照 " + load.getSnapshots());
+    }
+
+    private static WorldLoadGenerator run(int clients, int seconds) throws Exception {
+        WorldLoadGenerator load = new WorldLoadGenerator(
+            Map.of("clients", String.valueOf(clients), "seconds", String.valueOf(seconds),
+                "spawnRadius", "10", "interest", "12"),
+            new PrintStream(OutputStream.nullOutputStream()));
+        load.run();
+        return load;
+    }
+}
@@ -0,0 +1,54 @@
+package com.yingzhou.npc;
+
+import com.yingzhou.ledger.resource.ResourceEvent;
+import com.yingzhou.ledger.resource.ResourceLedger;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ResourceBalanceGameTest {
+
+    private static final int ROUNDS = 40;
+
+    /**
+     * 摊平的局每个账户各资源余额相同；转账只在账户之间搬动，总量等于累计发放量，
+     * 按事件日志重放得到同样的余额
+     */
+    @Test
+    void balancedRoundsLeaveEqualHoldingsAndConserveTotals() {
+        ResourceBalanceGame game = new ResourceBalanceGame(new SplittableRandom(7));
+        int balanced = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            boolean success = game.play();
+            assertTrue(game.getMoves() <= ResourceBalanceGame.MAX_MOVES);
+            assertEquals(success, game.isBalanced());
+            if (success) {
+                balanced++;
+                for (long resource : ResourceBalanceGame.RESOURCES) {
+                    long target = game.getTotal(resource) / game.getAccounts().length;
+                    for (String account : game.getAccounts()) {
+                        assertEquals(target, game.getLedger().balanceOf(account, resource));
+                    }
+                }
+            }
+        }
+        // 有的局步数内摊平，有的局摊不平
+        assertTrue(balanced > 0 && balanced < ROUNDS, "摊平 " + balanced + " 局");
+
+        ResourceLedger ledger = game.getLedger();
+        Map<Long, Long> totals = ledger.snapshot().totals();
+        for (long resource : ResourceBalanceGame.RESOURCES) {
+            assertEquals(game.getTotal(resource), totals.get(resource));
+        }
+        assertEquals(0, ledger.getFirstSequence());
+        ResourceLedger mirror = new ResourceLedger(ResourceBalanceGame.MERCHANT, 1, 16);
+        for (ResourceEvent event : ledger.events(0, Integer.MAX_VALUE)) {
+            mirror.apply(event);
+        }
+        assertEquals(ledger.snapshot().balances(), mirror.snapshot().balances());
+    }
+}
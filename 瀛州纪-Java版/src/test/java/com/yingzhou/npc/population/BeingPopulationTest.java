@@ -0,0 +1,90 @@
+package com.yingzhou.npc.population;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BeingPopulationTest {
+
+    private static final int BEINGS = 3000;
+    private static final int TICKS = 600;
+
+    /**
+     * 每个生命恰好挂着一个未来的动作；各生命的记忆条数之和等于总数，时间不倒退；对话记忆恰为交互次数
+     */
+    @Test
+    void scheduleAndMemoryLogStayConsistent() {
+        PopulationLoadGenerator load = new PopulationLoadGenerator(
+            Map.of("beings", String.valueOf(BEINGS), "ticks", String.valueOf(TICKS), "warmup", "0", "report", "0"),
+            new PrintStream(OutputStream.nullOutputStream()));
+        load.run();
+        BeingPopulation population = load.getPopulation();
+        assertEquals(TICKS, population.getTick());
+        assertTrue(population.getDialogues() > 0 && population.getDiscoveries() > 0);
+
+        MemoryLog log = population.getMemories();
+        int tick = population.getTick();
+        long total = 0;
+        long dialogueRecords = 0;
+        long interactions = 0;
+        for (int being = 0; being < population.size(); being++) {
+            long next = population.getNextAction(being);
+            assertTrue(next > tick && next <= tick + BeingPopulation.MAX_DELAY, "生命 " + being + " 到期帧 " + next);
+            int count = log.count(being);
+            total += count;
+            interactions += population.getInteractionCount(being);
+            int previous = Integer.MIN_VALUE;
+            for (int i = 0; i < count; i++) {
+                int address = log.address(being, i);
+                assertTrue(log.tick(address) >= previous && log.tick(address) <= tick, "生命 " + being + " 记忆时间倒退");
+                previous = log.tick(address);
+                if (log.category(address) == MemoryLog.DIALOGUE) {
+                    dialogueRecords++;
+                }
+            }
+        }
+        assertEquals(population.size(), population.getScheduled());
+        assertEquals(log.size(), total);
+        assertEquals(interactions, dialogueRecords);
+        assertEquals(population.getDialogues() * 2, interactions);
+    }
+
+    @Test
+    void sameSeedReplaysToSameState() {
+        assertEquals(digest(simulate(42)), digest(simulate(42)));
+        assertNotEquals(digest(simulate(42)), digest(simulate(43)));
+    }
+
+    private static BeingPopulation simulate(long seed) {
+        BeingPopulation population = new BeingPopulation(BEINGS, seed, PopulationLoadGenerator.NPC_ANCHORS);
+        population.spawnRandom(BEINGS);
+        for (int t = 0; t < TICKS; t++) {
+            population.step();
+        }
+        return population;
+    }
+
+    /**
+     * 全部生命的位置、交互数和记忆内容的摘要
+     */
+    private static long digest(BeingPopulation population) {
+        MemoryLog log = population.getMemories();
+        long digest = population.getTick();
+        for (int being = 0; being < population.size(); being++) {
+            digest = BeingPopulation.mix(digest ^ Float.floatToIntBits(population.getX(being)));
+            digest = BeingPopulation.mix(digest ^ Float.floatToIntBits(population.getZ(being)));
+            digest = BeingPopulation.mix(digest ^ population.getInteractionCount(being));
+            for (int i = 0; i < log.count(being); i++) {
+                int address = log.address(being, i);
+                digest = BeingPopulation.mix(digest ^ log.content(address) ^ log.subject(address));
+            }
+        }
+        return digest;
+    }
+}